@@ -64,6 +64,9 @@ public interface ClassName
 
 	String CursorActivation = "org.apache.derby.impl.sql.execute.CursorActivation";
 
+	String InterpretedActivation = "org.apache.derby.impl.sql.execute.InterpretedActivation";
+	String InterpretedCursorActivation = "org.apache.derby.impl.sql.execute.InterpretedCursorActivation";
+
 	String Row = "org.apache.derby.iapi.sql.Row";
 	String Qualifier = "org.apache.derby.iapi.store.access.Qualifier";
 
@@ -108,6 +108,7 @@ public interface MessageId {
 	String CM_CLASS_LOAD					= "C006";
 	String CM_CLASS_LOAD_EXCEPTION			= "C007";
 	String CM_CANNOT_LOAD_CLASS			= "C008";
+	String CM_NO_HIDDEN_CLASSES			= "C009";
 
 
 	/*
@@ -340,6 +340,34 @@ public interface Property {
 	 */
 	int MIN_LOCKS_ESCALATION_THRESHOLD = 100;
 
+	/**
+		derby.locks.escalationMemory
+		<BR>
+		The number of bytes the locks held by all the transactions of a
+		database may take up before the transactions that hold many of
+		them escalate to table locking, largest table first. The memory
+		is estimated from the number of locks. Zero disables escalation
+		on memory; escalation on derby.locks.escalationThreshold still
+		applies. The String value must be convertible to an int.
+	 */
+	String LOCKS_ESCALATION_MEMORY = "derby.locks.escalationMemory";
+
+	/**
+		The default value for LOCKS_ESCALATION_MEMORY, 64 MB
+	 */
+	int DEFAULT_LOCKS_ESCALATION_MEMORY = 64 * 1024 * 1024;
+
+	/**
+		derby.locks.optimisticReadCommitted
+		<BR>
+		If true, the default, a READ COMMITTED scan that reads a row from a
+		page that no transaction which has not committed yet has changed,
+		reads it without locking it. If false, it always locks the row.
+		Read when the database boots.
+	 */
+	String LOCKS_OPTIMISTIC_READ_COMMITTED =
+		"derby.locks.optimisticReadCommitted";
+
 	/**
 		Configuration parameter for deadlock timeouts, set in seconds.
 	*/
@@ -754,6 +782,27 @@ public interface Property {
 	/** Minimum value for above */
 	int MIN_LANGUAGE_STALE_PLAN_CHECK_INTERVAL = 5;
 
+	/**
+	  derby.language.cardinalityFeedbackRatio
+
+	  <P>
+	  When the stale plan check of a prepared statement finds that a base
+	  table returned this many times more, or fewer, rows than the optimizer
+	  estimated, the statement is recompiled with the estimate of the table
+	  corrected by the row count it saw. 0 turns the check off. Database.
+	  Dynamic.
+	  <P>
+	  Externally visible but undocumented.
+	 */
+	String LANGUAGE_CARDINALITY_FEEDBACK_RATIO =
+								"derby.language.cardinalityFeedbackRatio";
+
+	/** Default value for above */
+	int DEFAULT_LANGUAGE_CARDINALITY_FEEDBACK_RATIO = 10;
+
+	/** Minimum value for above, other than 0 */
+	int MIN_LANGUAGE_CARDINALITY_FEEDBACK_RATIO = 2;
+
 
 	/*
 		Statement plan cache size
@@ -762,6 +811,36 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/**
+	 * If true, the plans in the statement cache are written to the
+	 * database directory when the database is shut down, and put back
+	 * into the statement cache when it is booted again, so that the
+	 * statements need not be compiled again. Default is false.
+	 * Ignored for read-only and encrypted databases.
+	 */
+	String PERSISTENT_STATEMENT_CACHE = "derby.language.persistentStatementCache";
+
+	/**
+	 * The number of times a statement is executed with its activation
+	 * class interpreted, before the class is generated as byte code.
+	 * Interpreting saves the cost of generating and loading classes for
+	 * statements that are executed only a few times, at the cost of
+	 * slower execution. Default is 0, which generates the class when the
+	 * statement is compiled.
+	 */
+	String INTERPRETED_EXECUTIONS = "derby.language.interpretedExecutions";
+	int INTERPRETED_EXECUTIONS_DEFAULT = 0;
+
+	/**
+	 * If true, statements executed through java.sql.Statement are compiled
+	 * with the literals they compare with replaced by parameters, so that
+	 * statements that only differ in these literals share one plan in the
+	 * statement cache. Literals that the plan depends on, and literals
+	 * that do not convert exactly to the type of their parameter, are
+	 * left in the statement. Default is false.
+	 */
+	String AUTO_PARAMETERIZE = "derby.language.autoParameterize";
+
     /**
      * Tells if automatic index statistics update is enabled (default is true).
      */
@@ -869,6 +948,49 @@ public interface Property {
     String STORAGE_AUTO_INDEX_STATS_DEBUG_KEEP_DISPOSABLE_STATS =
             "derby.storage.indexStats.debug.keepDisposableStats";
 
+    /**
+     * <p>
+     * Specifies the number of leaf pages read to estimate the statistics of
+     * an index. Indexes with more leaf pages are sampled instead of scanned.
+     * Zero means that indexes are always scanned (default is 2000).
+     * </p>
+     */
+    String STORAGE_AUTO_INDEX_STATS_SAMPLE_PAGES =
+            "derby.storage.indexStats.samplePages";
+    int STORAGE_AUTO_INDEX_STATS_SAMPLE_PAGES_DEFAULT = 2000;
+
+    /**
+     * <p>
+     * Specifies the fraction of the rows of a table which must be inserted,
+     * updated or deleted before the index statistics of the table are
+     * updated (default is 0.1).
+     * </p>
+     */
+    String STORAGE_AUTO_INDEX_STATS_MODIFIED_FRACTION =
+            "derby.storage.indexStats.modifiedFraction";
+    double STORAGE_AUTO_INDEX_STATS_MODIFIED_FRACTION_DEFAULT = 0.1;
+
+    /**
+     * <p>
+     * Specifies the number of tables whose index statistics may be updated
+     * at the same time by the index statistics update daemon (default is 1).
+     * </p>
+     */
+    String STORAGE_AUTO_INDEX_STATS_WORKERS =
+            "derby.storage.indexStats.workers";
+    int STORAGE_AUTO_INDEX_STATS_WORKERS_DEFAULT = 1;
+
+    /**
+     * <p>
+     * Specifies the maximum number of buckets, and of most common values,
+     * in the histogram kept for the first column of each index. Zero means
+     * that no histograms are gathered (default is 50).
+     * </p>
+     */
+    String STORAGE_AUTO_INDEX_STATS_HISTOGRAM_SIZE =
+            "derby.storage.indexStats.histogramSize";
+    int STORAGE_AUTO_INDEX_STATS_HISTOGRAM_SIZE_DEFAULT = 50;
+
 	/*
 	** Transactions
 	*/
@@ -883,6 +1005,14 @@ public interface Property {
       */
     int DEFAULT_XA_TRANSACTION_TIMEOUT = 0;
 
+    /**
+     * The number of bytes of LOB data which the connections of the system
+     * may hold in memory together. LOBs which don't fit spill to a
+     * temporary file. The default is 16 MB.
+     */
+    String LOB_TEMP_MEMORY = "derby.jdbc.lobTempMemory";
+    int LOB_TEMP_MEMORY_DEFAULT = 16 * 1024 * 1024;
+
 
   /* some static fields */
 	public static final String DEFAULT_USER_NAME = "APP";
@@ -1204,6 +1204,7 @@ public interface SQLState {
     String ARGUMENT_MAY_NOT_BE_NULL                                = "42XBM";
     String LUCENE_FIELD_KEY_CONFLICT                                = "42XBN";
     String LUCENE_DUPLICATE_FIELD_NAME                                = "42XBO";
+    String LANG_COMPRESSED_COLUMN_NOT_ALLOWED                         = "42XBP";
     
 	// org.apache.derby.impl.sql.execute.rts
 	String RTS_ATTACHED_TO											   = "43X00.U";
@@ -1352,6 +1353,7 @@ public interface SQLState {
 	String RTS_END_DEPENDENT_NUMBER									   = "43Y55.U";	
 	String RTS_USER_SUPPLIED_OPTIMIZER_OVERRIDES_FOR_TABLE			   = "43Y56.U";	
 	String RTS_USER_SUPPLIED_OPTIMIZER_OVERRIDES_FOR_JOIN			   = "43Y57.U";
+	String RTS_SKIP_SCAN_COLUMNS									   = "43Y62.U";
 
 	// org.apache.derby.catalog.types
 	String TI_SQL_TYPE_NAME			= "44X00.U";
@@ -1888,6 +1890,7 @@ public interface SQLState {
 	String UNEXPECTED_IMPORT_ERROR                       ="XIE0R.S";
 	String DATA_FILE_EXISTS		                     ="XIE0S.S";
 	String LOB_DATA_FILE_EXISTS                          ="XIE0T.S";
+	String BINARY_DATA_FILE_INVALID                      ="XIE0U.S";
 
 
 
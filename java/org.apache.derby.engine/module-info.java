@@ -126,6 +126,9 @@ module org.apache.derby.engine
     exports org.apache.derby.iapi.services.cache to
         org.apache.derby.tests;
 
+    exports org.apache.derby.iapi.services.compiler to
+        org.apache.derby.tests;
+
     exports org.apache.derby.iapi.services.context to
         org.apache.derby.tests;
 
@@ -149,13 +149,11 @@ public interface IndexDescriptor
 	/**
 	 * Returns the number of ordered columns.  
      * <p>
-	 * In the future, it will be
-	 * possible to store non-ordered columns in an index.  These will be
-	 * useful for covered queries.  The ordered columns will be at the
-	 * beginning of the index row, and they will be followed by the
-	 * non-ordered columns.
-	 *
-	 * For now, all columns in an index must be ordered.
+	 * The ordered columns are the key columns of the index, and are at
+	 * the beginning of the index row.  They are followed by the columns
+	 * listed in the INCLUDE clause of CREATE INDEX, which are stored in
+	 * the index for covered queries but are not part of the key, so they
+	 * take no part in the uniqueness of a unique index.
      *
      * @return the number of ordered columns
 	 */
@@ -59,7 +59,9 @@ import org.apache.derby.iapi.util.StringUtil;
 import org.apache.derby.impl.jdbc.EmbedDatabaseMetaData;
 import org.apache.derby.impl.jdbc.Util;
 import org.apache.derby.impl.load.Export;
+import org.apache.derby.impl.load.ExportBinary;
 import org.apache.derby.impl.load.Import;
+import org.apache.derby.impl.load.ImportBinary;
 import org.apache.derby.impl.sql.catalog.XPLAINTableDescriptor;
 import org.apache.derby.impl.sql.catalog.XPLAINResultSetDescriptor;
 import org.apache.derby.impl.sql.catalog.XPLAINResultSetTimingsDescriptor;
@@ -71,6 +73,7 @@ import org.apache.derby.impl.sql.execute.JarUtil;
 import org.apache.derby.iapi.jdbc.InternalDriver;
 import org.apache.derby.iapi.store.access.TransactionController;
 import org.apache.derby.iapi.sql.dictionary.AliasDescriptor;
+import org.apache.derby.iapi.sql.dictionary.ConglomerateDescriptor;
 import org.apache.derby.iapi.sql.dictionary.DataDictionary;
 import org.apache.derby.iapi.sql.dictionary.DataDescriptorGenerator;
 import org.apache.derby.iapi.sql.dictionary.PasswordHasher;
@@ -902,6 +905,123 @@ public class SystemProcedures  {
         conn.close();
     }
 
+    /**
+     * Update the statistics of a group of columns of a table. The optimizer
+     * uses them for predicates which compare each of the columns with
+     * a value, in place of multiplying the selectivities of the columns,
+     * which underestimates the number of rows when the columns depend on
+     * each other.
+     * <p>
+     * Calls
+     * "alter table tablename update statistics (column, ...)" sql
+     * This routine will be called when an application calls:
+     *     SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS
+     * <p>
+     *
+     * @param schemaname    schema name of the table. null will mean use
+     *                      the current schema to resolve the table name.
+     *                      Empty string for schema name will raise an
+     *                      exception.
+     * @param tablename     name of the table. A null value or an empty
+     *                      string will throw table not found exception.
+     * @param columnnames   comma separated list of the names of the columns
+     *                      in the group, as SQL identifiers. Must be
+     *                      non-null.
+     *
+	 * @exception  SQLException on error
+     */
+    public static void SYSCS_UPDATE_COLUMN_GROUP_STATISTICS(
+    String  schemaname,
+    String  tablename,
+    String  columnnames)
+        throws SQLException
+    {
+        String query = "alter table " +
+            basicSchemaTableValidation(schemaname, tablename) +
+            " update statistics " + columnGroupList(columnnames);
+        Connection conn = getDefaultConn();
+
+        PreparedStatement ps = conn.prepareStatement(query);
+        ps.executeUpdate();
+        ps.close();
+
+        conn.close();
+    }
+
+    /**
+     * Drop the statistics of a group of columns of a table. To drop the
+     * statistics of all the column groups, along with those of the
+     * indexes, use SYSCS_UTIL.SYSCS_DROP_STATISTICS.
+     * <p>
+     * Calls
+     * "alter table tablename statistics drop (column, ...)" sql
+     * This routine will be called when an application calls:
+     *     SYSCS_UTIL.SYSCS_DROP_COLUMN_GROUP_STATISTICS
+     * <p>
+     *
+     * @param schemaname    schema name of the table. null will mean use
+     *                      the current schema to resolve the table name.
+     *                      Empty string for schema name will raise an
+     *                      exception.
+     * @param tablename     name of the table. A null value or an empty
+     *                      string will throw table not found exception.
+     * @param columnnames   comma separated list of the names of the columns
+     *                      in the group, as SQL identifiers. Must be
+     *                      non-null.
+     *
+	 * @exception  SQLException on error
+     */
+    public static void SYSCS_DROP_COLUMN_GROUP_STATISTICS(
+    String  schemaname,
+    String  tablename,
+    String  columnnames)
+        throws SQLException
+    {
+        String query = "alter table " +
+            basicSchemaTableValidation(schemaname, tablename) +
+            " statistics drop " + columnGroupList(columnnames);
+        Connection conn = getDefaultConn();
+
+        PreparedStatement ps = conn.prepareStatement(query);
+        ps.executeUpdate();
+        ps.close();
+
+        conn.close();
+    }
+
+    /**
+     * Turn a comma separated list of column names into the parenthesized
+     * list of delimited identifiers used in the internal ALTER TABLE syntax
+     * for the statistics of column groups.
+     *
+     * @param columnnames   the list of column names
+     * @return the list of delimited identifiers
+     * @throws SQLException if the list is null or empty, or not a valid list
+     *         of identifiers
+     */
+    private static String columnGroupList(String columnnames)
+        throws SQLException
+    {
+        try {
+            String[] names = IdUtil.parseIdList(columnnames);
+            if (names == null || names.length == 0) {
+                throw StandardException.newException(
+                        SQLState.LANG_COLUMN_NOT_FOUND, columnnames);
+            }
+
+            StringBuilder list = new StringBuilder("(");
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    list.append(", ");
+                }
+                list.append(IdUtil.normalToDelimited(names[i]));
+            }
+            return list.append(')').toString();
+        } catch (StandardException se) {
+            throw PublicAPI.wrapStandardException(se);
+        }
+    }
+
     /**
      * Do following checks
      * a)Schema name can't be empty string
@@ -1350,6 +1470,80 @@ public class SystemProcedures  {
 		conn.close();
     }
 
+    /**
+     * Implementation of SYSCS_UTIL.SYSCS_REORGANIZE_INDEX().
+     * <p>
+     * Merges under-filled leaf pages of an index, while the table stays
+     * available for reads and updates by other transactions.  The pages
+     * freed are reused by future inserts, and those at the end of the index
+     * can be returned to the operating system by
+     * SYSCS_UTIL.SYSCS_INPLACE_COMPRESS_TABLE.
+     *
+     * @param schemaname    schema of the table, if null the current schema.
+     * @param tablename     table of the index.
+     * @param indexname     index to reorganize, if null all indexes of the
+     *                      table are reorganized.
+     *
+     * @exception SQLException if a database error occurs
+     */
+    public static void SYSCS_REORGANIZE_INDEX(
+    String  schemaname,
+    String  tablename,
+    String  indexname)
+		throws SQLException
+    {
+		LanguageConnectionContext lcc       = ConnectionUtil.getCurrentLCC();
+		TransactionController     tc        = lcc.getTransactionExecute();
+
+		try
+        {
+            // make sure that application code doesn't bypass security checks
+            // by calling this public entry point
+            SecurityUtil.authorize( Securable.REORGANIZE_INDEX );
+
+            if (schemaname == null)
+                schemaname = lcc.getCurrentSchemaName();
+
+            DataDictionary data_dictionary = lcc.getDataDictionary();
+            SchemaDescriptor sd =
+                data_dictionary.getSchemaDescriptor(schemaname, tc, true);
+            TableDescriptor  td = (tablename == null) ? null :
+                data_dictionary.getTableDescriptor(tablename, sd, tc);
+
+            if (td == null)
+            {
+                throw StandardException.newException(
+                    SQLState.LANG_TABLE_NOT_FOUND,
+                    schemaname + "." + tablename);
+            }
+
+            boolean index_found = false;
+
+            ConglomerateDescriptor[] cds = td.getConglomerateDescriptors();
+            for (int i = 0; i < cds.length; i++)
+            {
+                if (cds[i].isIndex() &&
+                    (indexname == null ||
+                     indexname.equals(cds[i].getConglomerateName())))
+                {
+                    tc.reorganizeConglomerate(
+                        cds[i].getConglomerateNumber());
+                    index_found = true;
+                }
+            }
+
+            if (indexname != null && !index_found)
+            {
+                throw StandardException.newException(
+                    SQLState.LANG_INDEX_NOT_FOUND, indexname);
+            }
+        }
+		catch (StandardException se)
+		{
+			throw PublicAPI.wrapStandardException(se);
+		}
+    }
+
     public static String SYSCS_GET_RUNTIMESTATISTICS()
 		throws SQLException
     {
@@ -1759,6 +1953,142 @@ public class SystemProcedures  {
      }
 
 
+    /**
+     * Import data from a given file to a table, parsing the file in
+     * several threads.
+     * <p>
+     * Will be called by system procedure as
+	 * SYSCS_IMPORT_TABLE_PARALLEL(IN SCHEMANAME  VARCHAR(128), 
+	 * IN TABLENAME    VARCHAR(128),  IN FILENAME VARCHAR(32672) , 
+	 * IN COLUMNDELIMITER CHAR(1),  IN CHARACTERDELIMITER CHAR(1) ,  
+	 * IN CODESET VARCHAR(128), IN  REPLACE SMALLINT,
+	 * IN PARALLELISM INTEGER)
+     *
+     * @param schemaName Name of schema
+     * @param tableName Name of table
+     * @param fileName File to read
+     * @param columnDelimiter Column separator
+     * @param characterDelimiter Quote character
+     * @param codeset Encoding
+     * @param replace True if the table should be truncated first
+     * @param parallelism Number of threads that parse the file
+     *
+     * @exception SQLException if a database error occurs
+     **/
+	public static void SYSCS_IMPORT_TABLE_PARALLEL(
+	String  schemaName,
+    String  tableName,
+	String  fileName,
+	String  columnDelimiter,
+	String  characterDelimiter,
+	String  codeset,
+	short   replace,
+	int     parallelism)
+        throws SQLException
+    {
+		Connection conn = getDefaultConn();
+		try{
+			Import.importTableParallel(conn, schemaName , tableName , fileName ,
+                                       columnDelimiter , characterDelimiter, codeset,
+                                       replace, parallelism);
+		}catch(SQLException se)
+		{
+			rollBackAndThrowSQLException(conn, se);
+		}
+		//import finished successfull, commit it.
+		conn.commit();
+	}
+
+    /**
+     * Export data from a table to given file in the binary export format.
+     * <p>
+     * Will be called by system procedure as
+	 * SYSCS_EXPORT_TABLE_BINARY(IN SCHEMANAME  VARCHAR(128), 
+	 * IN TABLENAME    VARCHAR(128),  IN FILENAME VARCHAR(32672) , 
+	 * IN COMPRESS SMALLINT)
+     *
+     * @param schemaName Name of schema
+     * @param tableName Name of table
+     * @param fileName Where to dump the table contents
+     * @param compress True if the column chunks should be compressed
+     *
+     * @exception SQLException if a database error occurs
+     **/
+	public static void SYSCS_EXPORT_TABLE_BINARY(
+	String  schemaName,
+    String  tableName,
+	String  fileName,
+	short   compress)
+        throws SQLException
+    {
+		Connection conn = getDefaultConn();
+		ExportBinary.exportTable(conn, schemaName , tableName , fileName ,
+								 compress);
+		//export finished successfully, issue a commit 
+		conn.commit();
+	}
+
+    /**
+     * Export data from a select statement to given file in the binary
+     * export format.
+     * <p>
+     * Will be called as 
+	 * SYSCS_EXPORT_QUERY_BINARY(IN SELECTSTATEMENT  VARCHAR(32672), 
+	 * IN FILENAME VARCHAR(32672) , IN COMPRESS SMALLINT)
+     *
+     * @param selectStatement The query which materializes results
+     * @param fileName Where to dump the table contents
+     * @param compress True if the column chunks should be compressed
+     *
+     * @exception SQLException if a database error occurs
+     **/
+	public static void SYSCS_EXPORT_QUERY_BINARY(
+    String  selectStatement,
+	String  fileName,
+	short   compress)
+        throws SQLException
+    {
+		Connection conn = getDefaultConn();
+		ExportBinary.exportQuery(conn, selectStatement, fileName, compress);
+		//export finished successfully, issue a commit 
+		conn.commit();
+	}
+
+    /**
+     * Import data from a file written by SYSCS_EXPORT_TABLE_BINARY or
+     * SYSCS_EXPORT_QUERY_BINARY to a table.
+     * <p>
+     * Will be called by system procedure as
+	 * SYSCS_IMPORT_TABLE_BINARY(IN SCHEMANAME  VARCHAR(128), 
+	 * IN TABLENAME    VARCHAR(128),  IN FILENAME VARCHAR(32672) , 
+	 * IN  REPLACE SMALLINT)
+     *
+     * @param schemaName Name of schema
+     * @param tableName Name of table
+     * @param fileName File to read
+     * @param replace True if the table should be truncated first
+     *
+     * @exception SQLException if a database error occurs
+     **/
+	public static void SYSCS_IMPORT_TABLE_BINARY(
+	String  schemaName,
+    String  tableName,
+	String  fileName,
+	short   replace)
+        throws SQLException
+    {
+		Connection conn = getDefaultConn();
+		try{
+			ImportBinary.importTable(conn, schemaName , tableName , fileName ,
+									 replace);
+		}catch(SQLException se)
+		{
+			rollBackAndThrowSQLException(conn, se);
+		}
+		//import finished successfull, commit it.
+		conn.commit();
+	}
+
     /**
      * issue a rollback when SQLException se occurs. If SQLException ouccurs when rollback,
      * the new SQLException will be added into the chain of se. 
@@ -2036,6 +2366,66 @@ public class SystemProcedures  {
 		ps.close();
 	}
 	
+    /**
+     * Insert the rows of a query into a table with the bulk insert used by
+     * import.
+     * <p>
+     * If the table is empty, or if replace is set, the rows are written
+     * without logging into a new heap, the indexes are rebuilt by sorting,
+     * and the new conglomerates replace the old ones when the transaction
+     * commits. Otherwise, for example when the query reads the table, the
+     * rows are inserted one at a time as by INSERT.
+     * <p>
+     * Will be called as 
+	 * SYSCS_BULK_INSERT_QUERY (IN SCHEMANAME VARCHAR(128),
+	 *                    IN TABLENAME VARCHAR(128), 
+	 *                    IN SELECTSTATEMENT VARCHAR(32672), IN REPLACE SMALLINT)
+	 *
+     * @param schemaName Name of schema
+     * @param tableName Name of table
+     * @param selectStatement The query which supplies the rows
+     * @param replace True if the table should be truncated first
+     *
+     * @exception SQLException if a database error occurs
+     **/
+	public static void SYSCS_BULK_INSERT_QUERY(
+    String  schemaName,
+    String  tableName,
+	String  selectStatement,
+	short   replace
+	)
+        throws SQLException
+    {
+        try {
+            // make sure that application code doesn't bypass security checks
+            // by calling this public entry point
+            SecurityUtil.authorize( Securable.BULK_INSERT );
+        }
+        catch (StandardException se) { throw PublicAPI.wrapStandardException( se ); }
+
+		Connection conn = getDefaultConn();
+
+        // Use default schema if schemaName is null, as SYSCS_BULK_INSERT does.
+        String entityName = IdUtil.mkQualifiedName(schemaName, tableName);
+
+		String binsertSql = 
+			"insert into " + entityName +
+			" --DERBY-PROPERTIES insertMode=" +
+			(replace > 0 ? "replace" : "bulkInsert") + " \n" +
+			selectStatement;
+
+		try {
+			PreparedStatement ps = conn.prepareStatement(binsertSql);
+			ps.executeUpdate();
+			ps.close();
+		} catch (SQLException se) {
+			rollBackAndThrowSQLException(conn, se);
+		}
+
+		//bulk insert finished successfully, commit it.
+		conn.commit();
+	}
+	
     /**
      * Reload the policy file.
      * <p>
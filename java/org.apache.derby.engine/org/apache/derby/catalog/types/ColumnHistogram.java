@@ -0,0 +1,387 @@
+/*
+
+   Derby - Class org.apache.derby.catalog.types.ColumnHistogram
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.catalog.types;
+
+import org.apache.derby.iapi.services.io.FormatableArrayHolder;
+import org.apache.derby.iapi.services.io.FormatableHashtable;
+import org.apache.derby.iapi.services.io.FormatableLongHolder;
+import org.apache.derby.iapi.types.DataValueDescriptor;
+import org.apache.derby.iapi.types.NumberDataValue;
+import org.apache.derby.shared.common.error.StandardException;
+
+/**
+ * The distribution of the values of the leading column of an index, used by
+ * the optimizer to estimate the selectivity of comparisons with constants.
+ * <p>
+ * The histogram has two parts. The most common values are listed with
+ * the number of rows holding each of them. All the other values are
+ * described by equi-depth buckets, each holding about the same number of
+ * rows, with the highest value, the number of rows and the number of
+ * distinct values in each bucket. The counts come from the rows read when
+ * the statistics were gathered, which may be a sample of the index, so
+ * only the ratios between them are meaningful.
+ * <p>
+ * A histogram is kept with the statistics of the first column of an
+ * index, in the {@code FormatableHashtable} written by
+ * {@code StatisticsImpl}. It only uses formats which older versions can
+ * read, so they can still read the statistics and just ignore the
+ * histogram.
+ */
+public final class ColumnHistogram
+{
+    private static final String ROWS = "histRows";
+    private static final String NULL_ROWS = "histNullRows";
+    private static final String LOW = "histLow";
+    private static final String BOUNDS = "histBounds";
+    private static final String BUCKET_ROWS = "histBucketRows";
+    private static final String BUCKET_DISTINCT = "histBucketDistinct";
+    private static final String MCV_VALUES = "mcvValues";
+    private static final String MCV_ROWS = "mcvRows";
+
+    /** The number of rows read, including NULLs. */
+    private final long rows;
+    /** The number of NULLs read. */
+    private final long nullRows;
+    /** The lowest value read. */
+    private final DataValueDescriptor low;
+    /** The highest value in each bucket, in ascending order. */
+    private final DataValueDescriptor[] bounds;
+    /** The number of rows in each bucket, including the common values. */
+    private final long[] bucketRows;
+    /** The number of values in each bucket, including the common values. */
+    private final long[] bucketDistinct;
+    /** The most common values, in ascending order. */
+    private final DataValueDescriptor[] mcvValues;
+    /** The number of rows holding each of the most common values. */
+    private final long[] mcvRows;
+
+    /** The number of rows up to and including the highest value of each
+     * bucket. */
+    private final long[] cumulativeRows;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param rows the number of rows read, including NULLs
+     * @param nullRows the number of NULLs read
+     * @param low the lowest value read
+     * @param bounds the highest value in each bucket, in ascending order
+     * @param bucketRows the number of rows in each bucket
+     * @param bucketDistinct the number of distinct values in each bucket
+     * @param mcvValues the most common values, in ascending order
+     * @param mcvRows the number of rows holding each common value
+     */
+    public ColumnHistogram(long rows, long nullRows, DataValueDescriptor low,
+                           DataValueDescriptor[] bounds, long[] bucketRows,
+                           long[] bucketDistinct,
+                           DataValueDescriptor[] mcvValues, long[] mcvRows) {
+        this.rows = rows;
+        this.nullRows = nullRows;
+        this.low = low;
+        this.bounds = bounds;
+        this.bucketRows = bucketRows;
+        this.bucketDistinct = bucketDistinct;
+        this.mcvValues = mcvValues;
+        this.mcvRows = mcvRows;
+
+        cumulativeRows = new long[bucketRows.length];
+        long sum = 0;
+        for (int i = 0; i < bucketRows.length; i++) {
+            sum += bucketRows[i];
+            cumulativeRows[i] = sum;
+        }
+    }
+
+    /** @return the number of buckets */
+    public int getBucketCount() {
+        return bounds.length;
+    }
+
+    /** @return the number of most common values */
+    public int getCommonValueCount() {
+        return mcvValues.length;
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is NULL.
+     *
+     * @return The selectivity of {@code IS NULL}.
+     */
+    public double nullSelectivity() {
+        return atLeastOneRow(nullRows);
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is not NULL.
+     *
+     * @return The selectivity of {@code IS NOT NULL}.
+     */
+    public double notNullSelectivity() {
+        return atLeastOneRow(rows - nullRows);
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is equal to a value.
+     *
+     * @param value the value, not NULL
+     * @return The selectivity of {@code column = value}.
+     * @throws StandardException if the value cannot be compared with the
+     *      values in the histogram
+     */
+    public double equalsSelectivity(DataValueDescriptor value)
+            throws StandardException {
+        return atLeastOneRow(equalRows(value));
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is less than a value,
+     * or less than or equal to it.
+     *
+     * @param value the value, not NULL
+     * @param orEqual whether rows equal to the value are included
+     * @return The selectivity of {@code column < value} or
+     *      {@code column <= value}.
+     * @throws StandardException if the value cannot be compared with the
+     *      values in the histogram
+     */
+    public double lessThanSelectivity(DataValueDescriptor value,
+                                      boolean orEqual)
+            throws StandardException {
+        return atLeastOneRow(lessRows(value, orEqual));
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is greater than a
+     * value, or greater than or equal to it.
+     *
+     * @param value the value, not NULL
+     * @param orEqual whether rows equal to the value are included
+     * @return The selectivity of {@code column > value} or
+     *      {@code column >= value}.
+     * @throws StandardException if the value cannot be compared with the
+     *      values in the histogram
+     */
+    public double greaterThanSelectivity(DataValueDescriptor value,
+                                         boolean orEqual)
+            throws StandardException {
+        return atLeastOneRow(rows - nullRows - lessRows(value, !orEqual));
+    }
+
+    /**
+     * Returns the fraction of the rows where the column is not NULL and not
+     * equal to a value.
+     *
+     * @param value the value, not NULL
+     * @return The selectivity of {@code column <> value}.
+     * @throws StandardException if the value cannot be compared with the
+     *      values in the histogram
+     */
+    public double notEqualsSelectivity(DataValueDescriptor value)
+            throws StandardException {
+        return atLeastOneRow(rows - nullRows - equalRows(value));
+    }
+
+    /**
+     * Turns a number of rows into a fraction of the rows. Since the
+     * histogram may come from a sample, or be a bit old, no predicate is
+     * estimated to select less than one of the rows read.
+     */
+    private double atLeastOneRow(double selectedRows) {
+        if (rows == 0) {
+            return 0.0d;
+        }
+        return Math.min(1.0d, Math.max(1.0d, selectedRows) / rows);
+    }
+
+    /** Estimates the number of rows read which are equal to a value. */
+    private double equalRows(DataValueDescriptor value)
+            throws StandardException {
+        int mcv = find(mcvValues, value);
+        if (mcv < mcvValues.length && mcvValues[mcv].compare(value) == 0) {
+            return mcvRows[mcv];
+        }
+
+        int b = find(bounds, value);
+        if (b == bounds.length || low.compare(value) > 0) {
+            // Outside of the range of the values read.
+            return 0.0d;
+        }
+
+        // Spread the rows of the bucket which don't hold common values
+        // evenly over the other values in the bucket.
+        long otherRows = bucketRows[b];
+        long otherDistinct = bucketDistinct[b];
+        DataValueDescriptor lower = (b == 0) ? null : bounds[b - 1];
+        for (int i = 0; i < mcvValues.length; i++) {
+            if ((lower == null || mcvValues[i].compare(lower) > 0) &&
+                    mcvValues[i].compare(bounds[b]) <= 0) {
+                otherRows -= mcvRows[i];
+                otherDistinct--;
+            }
+        }
+        if (otherRows <= 0 || otherDistinct <= 0) {
+            return 0.0d;
+        }
+        return (double) otherRows / otherDistinct;
+    }
+
+    /**
+     * Estimates the number of rows read which are less than a value, or less
+     * than or equal to it.
+     */
+    private double lessRows(DataValueDescriptor value, boolean orEqual)
+            throws StandardException {
+        int cmp = low.compare(value);
+        if (cmp > 0 || (cmp == 0 && !orEqual)) {
+            return 0.0d;
+        }
+
+        int b = find(bounds, value);
+        if (b == bounds.length) {
+            return rows - nullRows;
+        }
+
+        double below = (b == 0) ? 0 : cumulativeRows[b - 1];
+        double equal = equalRows(value);
+        double less;
+        if (bounds[b].compare(value) == 0) {
+            less = cumulativeRows[b] - equal;
+        } else {
+            DataValueDescriptor lower = (b == 0) ? low : bounds[b - 1];
+            less = below + interpolate(lower, bounds[b], value) * bucketRows[b];
+        }
+
+        less = Math.max(below, less);
+        return orEqual ? Math.min(cumulativeRows[b], less + equal) : less;
+    }
+
+    /**
+     * Estimates where a value lies between two values, assuming that the
+     * values in between are evenly distributed if they are numbers.
+     *
+     * @return a number between 0 and 1
+     */
+    private static double interpolate(DataValueDescriptor lower,
+                                      DataValueDescriptor upper,
+                                      DataValueDescriptor value)
+            throws StandardException {
+        if (lower instanceof NumberDataValue &&
+                upper instanceof NumberDataValue &&
+                value instanceof NumberDataValue) {
+            double lo = lower.getDouble();
+            double hi = upper.getDouble();
+            if (hi > lo) {
+                return Math.min(1.0d,
+                        Math.max(0.0d, (value.getDouble() - lo) / (hi - lo)));
+            }
+        }
+        return 0.5d;
+    }
+
+    /**
+     * Finds the first value in a sorted array which is greater than or equal
+     * to a value.
+     *
+     * @return the position of the value in the array, or the length of the
+     *      array if all the values are less
+     */
+    private static int find(DataValueDescriptor[] sorted,
+                            DataValueDescriptor value)
+            throws StandardException {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compare(value) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /*------------------ Stored form ------------------*/
+
+    /**
+     * Writes the histogram into the hashtable holding the statistics.
+     *
+     * @param fh the hashtable
+     */
+    void writeTo(FormatableHashtable fh) {
+        fh.putLong(ROWS, rows);
+        fh.putLong(NULL_ROWS, nullRows);
+        fh.put(LOW, low);
+        fh.put(BOUNDS, new FormatableArrayHolder(bounds));
+        fh.put(BUCKET_ROWS, new FormatableArrayHolder(
+                FormatableLongHolder.getFormatableLongHolders(bucketRows)));
+        fh.put(BUCKET_DISTINCT, new FormatableArrayHolder(
+                FormatableLongHolder.getFormatableLongHolders(bucketDistinct)));
+        fh.put(MCV_VALUES, new FormatableArrayHolder(mcvValues));
+        fh.put(MCV_ROWS, new FormatableArrayHolder(
+                FormatableLongHolder.getFormatableLongHolders(mcvRows)));
+    }
+
+    /**
+     * Reads a histogram from the hashtable holding the statistics.
+     *
+     * @param fh the hashtable
+     * @return the histogram, or {@code null} if the statistics have none
+     */
+    static ColumnHistogram readFrom(FormatableHashtable fh) {
+        if (!fh.containsKey(ROWS)) {
+            return null;
+        }
+        return new ColumnHistogram(
+                fh.getLong(ROWS),
+                fh.getLong(NULL_ROWS),
+                (DataValueDescriptor) fh.get(LOW),
+                getValues(fh, BOUNDS),
+                getLongs(fh, BUCKET_ROWS),
+                getLongs(fh, BUCKET_DISTINCT),
+                getValues(fh, MCV_VALUES),
+                getLongs(fh, MCV_ROWS));
+    }
+
+    private static DataValueDescriptor[] getValues(FormatableHashtable fh,
+                                                   String key) {
+        return ((FormatableArrayHolder) fh.get(key)).getArray(
+                DataValueDescriptor[].class);
+    }
+
+    private static long[] getLongs(FormatableHashtable fh, String key) {
+        FormatableLongHolder[] holders =
+                ((FormatableArrayHolder) fh.get(key)).getArray(
+                        FormatableLongHolder[].class);
+        long[] longs = new long[holders.length];
+        for (int i = 0; i < holders.length; i++) {
+            longs[i] = holders[i].getLong();
+        }
+        return longs;
+    }
+
+    /** @see java.lang.Object#toString */
+    @Override
+    public String toString() {
+        return "buckets= " + bounds.length + " mcvs= " + mcvValues.length;
+    }
+}
@@ -110,10 +110,9 @@ public class IndexDescriptorImpl implements IndexDescriptor, Formatable
      * 								column position in the base table.
      * @param isAscending	An array of booleans telling asc/desc on each
      * 						column.
-     * @param numberOfOrderedColumns	In the future, it will be possible
-     * 									to store non-ordered columns in an
-     * 									index.  These will be useful for
-     * 									covered queries.
+     * @param numberOfOrderedColumns	Number of key columns.  The remaining
+     *									columns are INCLUDE columns, which are
+     *									not part of the key.
      */
 	public IndexDescriptorImpl(String indexType,
 								boolean isUnique,
@@ -275,7 +274,7 @@ public class IndexDescriptorImpl implements IndexDescriptor, Formatable
 		sb.append(" (");
 
 
-		for (int i = 0; i < baseColumnPositions.length; i++)
+		for (int i = 0; i < numberOfOrderedColumns; i++)
 		{
 			if (i > 0)
 				sb.append(", ");
@@ -286,6 +285,19 @@ public class IndexDescriptorImpl implements IndexDescriptor, Formatable
 
 		sb.append(")");
 
+		if (numberOfOrderedColumns < baseColumnPositions.length)
+		{
+			sb.append(" INCLUDE (");
+			for (int i = numberOfOrderedColumns;
+				 i < baseColumnPositions.length; i++)
+			{
+				if (i > numberOfOrderedColumns)
+					sb.append(", ");
+				sb.append(baseColumnPositions[i]);
+			}
+			sb.append(")");
+		}
+
 		return sb.toString();
 	}
 
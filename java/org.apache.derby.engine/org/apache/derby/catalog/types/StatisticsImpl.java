@@ -44,6 +44,15 @@ public class StatisticsImpl	implements Statistics, Formatable
 	 */
 	private long numUnique;
 
+	/* distribution of the values of the first column, if known
+	 */
+	private ColumnHistogram histogram;
+
+	/* positions of the columns in the table, if this statistic is for a
+	   group of columns rather than the keys of an index
+	*/
+	private int[] columnGroup;
+
 	/**
 	 * Constructor for StatisticsImpl.
 	 * 
@@ -58,6 +67,39 @@ public class StatisticsImpl	implements Statistics, Formatable
 		this.numUnique = numUnique;
 	}
 
+	/**
+	 * Constructor for StatisticsImpl with a histogram.
+	 *
+	 * @param numRows	number of rows in the conglomerate for which
+	 * this statistic is being created.
+	 * @param numUnique number of unique values in the key for which
+	 * this statistic is being created.
+	 * @param histogram distribution of the values of the first column
+	 * of the key, or null if not known.
+	 */
+	public StatisticsImpl(long numRows, long numUnique,
+						  ColumnHistogram histogram)
+	{
+		this(numRows, numUnique);
+		this.histogram = histogram;
+	}
+
+	/**
+	 * Constructor for StatisticsImpl for a group of columns.
+	 *
+	 * @param numRows	number of rows in the table for which
+	 * this statistic is being created.
+	 * @param numUnique number of unique combinations of values of the
+	 * columns in the group.
+	 * @param columnGroup positions of the columns in the table, in
+	 * ascending order.
+	 */
+	public StatisticsImpl(long numRows, long numUnique, int[] columnGroup)
+	{
+		this(numRows, numUnique);
+		this.columnGroup = columnGroup;
+	}
+
 	/** Zero argument constructor for Formatable Interface */
 	public StatisticsImpl()
 	{}
@@ -67,6 +109,26 @@ public class StatisticsImpl	implements Statistics, Formatable
         return numRows;
     }
 
+    /**
+     * Returns the distribution of the values of the first column of the key.
+     *
+     * @return The histogram, or {@code null} if there is none.
+     */
+    public ColumnHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the positions of the columns in the table, if this statistic
+     * is for a group of columns.
+     *
+     * @return The column positions in ascending order, or {@code null} if
+     *      this statistic is for the keys of an index.
+     */
+    public int[] getColumnGroup() {
+        return columnGroup;
+    }
+
 	/** @see Statistics#selectivity */
 	public double selectivity(Object[] predicates)
 	{
@@ -90,6 +152,11 @@ public class StatisticsImpl	implements Statistics, Formatable
 		FormatableHashtable fh = (FormatableHashtable)in.readObject();
 		numRows = fh.getLong("numRows");
 		numUnique = fh.getLong("numUnique");
+		histogram = ColumnHistogram.readFrom(fh);
+		ReferencedColumnsDescriptorImpl group =
+			(ReferencedColumnsDescriptorImpl) fh.get("groupColumns");
+		if (group != null)
+			columnGroup = group.getReferencedColumnPositions();
 	}
 
 	/**
@@ -105,6 +172,11 @@ public class StatisticsImpl	implements Statistics, Formatable
 		FormatableHashtable fh = new FormatableHashtable();
 		fh.putLong("numRows", numRows);
 		fh.putLong("numUnique", numUnique);
+		if (histogram != null)
+			histogram.writeTo(fh);
+		if (columnGroup != null)
+			fh.put("groupColumns",
+				   new ReferencedColumnsDescriptorImpl(columnGroup));
 		out.writeObject(fh);
 	}
 		
@@ -71,6 +71,7 @@ import org.apache.derby.iapi.sql.ResultSet;
 import org.apache.derby.iapi.util.InterruptStatus;
 import org.apache.derby.impl.jdbc.*;
 import org.apache.derby.mbeans.JDBCMBean;
+import org.apache.derby.mbeans.LOBTempSpaceMBean;
 import org.apache.derby.shared.common.security.SystemPermission;
 
 /**
@@ -83,6 +84,11 @@ public class InternalDriver implements ModuleControl, Driver {
     
     private Object mbean;
 
+    /**
+     * Reference to the LOBTempSpace MBean for the temporary space of LOBs.
+     */
+    private Object lobTempSpaceMBean;
+
 	protected boolean active;
 	private ContextService contextServiceFactory;
 	private AuthenticationService	authenticationService;
@@ -143,6 +149,12 @@ public class InternalDriver implements ModuleControl, Driver {
                    JDBCMBean.class,
                    "type=JDBC");
 
+        lobTempSpaceMBean = ((ManagementService)
+           getSystemModule(Module.JMX)).registerMBean(
+                   new LOBTempSpaceMBeanImpl(),
+                   LOBTempSpaceMBean.class,
+                   "type=LOBTempSpace");
+
         // Register with the driver manager
         AutoloadedDriver.registerDriverModule(this);
 	}
@@ -157,6 +169,9 @@ public class InternalDriver implements ModuleControl, Driver {
         ((ManagementService)
                 getSystemModule(Module.JMX)).unregisterMBean(
                         mbean);
+        ((ManagementService)
+                getSystemModule(Module.JMX)).unregisterMBean(
+                        lobTempSpaceMBean);
 
 		active = false;
 
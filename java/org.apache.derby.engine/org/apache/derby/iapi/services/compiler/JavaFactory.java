@@ -122,4 +122,39 @@ public interface JavaFactory {
 	 */
 	ClassBuilder newClassBuilder(ClassFactory cf, String packageName,
 		int modifiers, String className, String superClass);
+
+	/**
+	 * a class whose methods are interpreted when it is used, rather
+	 * than compiled to byte code. Its instances are instances of
+	 * interpreterClass, which must extend superClass without adding
+	 * abstract methods and implement
+	 * org.apache.derby.iapi.services.loader.InterpretedByteCode.
+	 * The class is generated as byte code once statements using it
+	 * have been executed the given number of times, see
+	 * org.apache.derby.iapi.services.loader.InterpretedClass.
+	 * <p>
+	 * The builder is used in the same way as the one returned by
+	 * newClassBuilder(). If a method it defines overrides a method of
+	 * superClass that interpreterClass does not hand to the interpreter,
+	 * getGeneratedClass() generates the byte code straight away.
+	 *
+	 * @param cf ClassFactory to be used for class resolution and loading
+	 *	of the generated class.
+	 * @param packageName the name of the package the class is in
+	 *	including the trailing 'dot' if it is not the empty package.
+	 * @param modifiers the | of the Modifier constants representing the
+	 *	visibility and control of this class.
+	 * @param className the name of the class
+	 * @param superClass the name of the superclass
+	 * @param interpreterClass the name of the class whose instances
+	 *	stand in for instances of the interpreted class
+	 * @param executions the number of executions after which the
+	 *	class is generated
+	 *
+	 * @return the class builder.
+	 * @see java.lang.reflect.Modifier
+	 */
+	ClassBuilder newInterpretedClassBuilder(ClassFactory cf,
+		String packageName, int modifiers, String className,
+		String superClass, String interpreterClass, int executions);
 }
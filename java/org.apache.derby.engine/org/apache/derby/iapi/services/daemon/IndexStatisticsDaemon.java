@@ -21,6 +21,7 @@
 
 package org.apache.derby.iapi.services.daemon;
 
+import org.apache.derby.catalog.UUID;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
 import org.apache.derby.iapi.sql.dictionary.ConglomerateDescriptor;
@@ -77,6 +78,21 @@ public interface IndexStatisticsDaemon {
      */
     public void schedule(TableDescriptor td);
 
+    /**
+     * Counts rows inserted, updated or deleted in the specified table, and
+     * schedules an update of the index statistics associated with the
+     * table when enough rows have been modified for the statistics to be
+     * considered stale.
+     *
+     * @param lcc connection which modified the rows
+     * @param tableId UUID of the base table
+     * @param rows number of rows modified
+     * @throws StandardException if looking up the table fails
+     */
+    public void countModifications(LanguageConnectionContext lcc,
+                                   UUID tableId, long rows)
+            throws StandardException;
+
     /**
      * Stops the background daemon.
      * <p>
@@ -0,0 +1,58 @@
+/*
+
+   Derby - Class org.apache.derby.iapi.services.loader.InterpretedByteCode
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.iapi.services.loader;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+	Precompiled classes that stand in for interpreted classes must
+	implement this interface. Their methods that a generated class
+	may override call the interpreter, through the InterpretedClass
+	returned by getGC(), if the generated class defines them.
+
+	@see InterpretedClass
+*/
+public interface InterpretedByteCode extends GeneratedByteCode {
+
+	/**
+		Set the values of the fields added by the generated class.
+		Called by the class manager just after creating the instance.
+
+        @param fields the field values
+	*/
+	public void setFields(Object[] fields);
+
+	/**
+		Get the values of the fields added by the generated class.
+
+        @return the field values
+	*/
+	public Object[] getFields();
+
+	/**
+		Get a lookup object for the class, used to reach the members
+		that the generated class could access but that are not public.
+
+        @return lookup object with full privileges on the class
+	*/
+	public MethodHandles.Lookup getLookup();
+}
@@ -0,0 +1,87 @@
+/*
+
+   Derby - Class org.apache.derby.iapi.services.loader.InterpretedClass
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.iapi.services.loader;
+
+import org.apache.derby.shared.common.error.StandardException;
+
+/**
+	A generated class whose methods are interpreted instead of being
+	compiled to byte code. Its instances are instances of a precompiled
+	class that implements InterpretedByteCode, which hands the methods
+	defined by the generated class to the interpreter.
+	<P>
+	After a number of executions the class can be generated as
+	byte code, and the interpreted class replaced by the generated one.
+
+	@see InterpretedByteCode
+*/
+public interface InterpretedClass extends GeneratedClass {
+
+	/**
+		Tell if the class defines a method with the given name.
+
+        @param methodName Name of the method
+        @return true if the method is defined by the class
+	*/
+	public boolean definesMethod(String methodName);
+
+	/**
+		Interpret a method of the class that has no arguments.
+
+        @param ref Instance of the class
+        @param methodName Name of the method
+        @return the value returned by the method
+		@exception 	StandardException	Standard Derby error policy
+	*/
+	public Object invoke(InterpretedByteCode ref, String methodName)
+		throws StandardException;
+
+	/**
+		Set a field of an instance of the class. This stands in for
+		java.lang.reflect.Field.set() on a generated class.
+
+        @param ref Instance of the class
+        @param fieldName Name of the field
+        @param value New value of the field
+		@exception 	StandardException	Standard Derby error policy
+	*/
+	public void setField(InterpretedByteCode ref, String fieldName,
+		Object value) throws StandardException;
+
+	/**
+		Count an execution of a statement that uses this class.
+
+        @return true for the execution after which the class should
+        be generated, false otherwise. Only one caller is told to
+        generate the class.
+	*/
+	public boolean countExecution();
+
+	/**
+		Generate the byte code of the class and load it.
+
+        @return the generated class
+		@exception 	StandardException	Standard Derby error policy
+	*/
+	public GeneratedClass generateClass()
+		throws StandardException;
+}
@@ -28,7 +28,8 @@ import java.util.Enumeration;
 	A limit represents a callback on a lock
 	group. It is called when the size of
 	the group reaches the limit set on the
-	call.
+	call, or when the lock factory holds
+	too many locks in total.
 
 	@see LockFactory#setLimit
 */
@@ -49,4 +50,25 @@ public interface Limit {
 						int limit, Enumeration lockList, int lockCount)
 		throws StandardException;
 
+	/**
+		Called by the lock factory when the locks held by all the
+		compatibility spaces of the lock factory take up more memory
+		than allowed, and the group the limit was set for holds many of
+		them. The callback should release as many locks of the group
+		as it can, for example by escalating them.
+
+		@param compatibilitySpace lock space the limit was set for
+		@param group lock group the limit was set for
+		@param lockList the list of Lockable's in the group
+		@param lockCount the number of locks in the group
+
+		@return true if locks were released
+
+        @exception StandardException Standard Derby error policy.
+	*/
+	public boolean memoryReached(CompatibilitySpace compatibilitySpace,
+								 Object group, Enumeration lockList,
+								 int lockCount)
+		throws StandardException;
+
 }
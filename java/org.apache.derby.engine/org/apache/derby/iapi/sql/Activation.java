@@ -427,6 +427,23 @@ public interface Activation extends Dependent
 	public void informOfRowCount(NoPutResultSet resultSet, long rowCount)
 					throws StandardException;
 
+	/**
+	 * Tell the activation how many rows a result set returned when it was
+	 * read to the end, the first time it was opened.  If this differs
+	 * significantly from the optimizer's estimate, the activation may
+	 * correct the estimate and invalidate its PreparedStatement to force
+	 * recompilation.
+	 *
+	 * Like informOfRowCount(), this method only compares the row counts
+	 * when the stale plan check of the statement is due.
+	 *
+     * @param resultSet The result set to inform on
+     * @param rowCount The number of rows returned by that result set
+	 * @exception StandardException		Thrown on error
+	 */
+	public void informOfCardinality(NoPutResultSet resultSet, long rowCount)
+					throws StandardException;
+
 	/**
 	 * Get the ConglomerateController, if any, that has already
 	 * been opened for the heap when scaning for an update or delete.
@@ -23,6 +23,7 @@ package org.apache.derby.iapi.sql.compile;
 
 import java.sql.SQLWarning;
 import java.util.List;
+import java.util.Map;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.iapi.services.compiler.JavaFactory;
 import org.apache.derby.iapi.services.context.Context;
@@ -474,6 +475,21 @@ public interface CompilerContext extends Context
 	 */
     boolean getReturnParameterFlag();
 
+	/**
+	 * Note that a parameter is compared with a key column of an index
+	 * that has statistics. Had the value of the parameter been known,
+	 * the rows it selects would have been estimated from it, and another
+	 * plan might have been chosen.
+	 */
+    void setParameterSensitiveFlag();
+
+	/**
+	 * Does the plan of the statement depend on the values of its parameters?
+	 *
+	 * @return	true if setParameterSensitiveFlag() was called
+	 */
+    boolean getParameterSensitiveFlag();
+
 	/**
 	 * Get the cursor info stored in the context.
 	 *
@@ -581,6 +597,43 @@ public interface CompilerContext extends Context
 	 */
     List<StatementPermission> getRequiredPermissionsList();
     
+	/**
+	 * Set the corrections of the estimated row counts of base tables, which
+	 * were learned from earlier executions of the statement.
+	 *
+	 * @param corrections the factors to multiply the estimates by, keyed by
+	 *	table number, or null if there are none
+	 */
+	void setCardinalityCorrections(Map<Integer,Double> corrections);
+
+	/**
+	 * Get the correction of the estimated row count of a base table.
+	 *
+	 * @param tableNumber the table number of the base table
+	 * @return the factor to multiply the estimate by, 1 if there is none
+	 */
+	double getCardinalityCorrection(int tableNumber);
+
+	/**
+	 * Record that the rows of a result set are the rows of a base table
+	 * after all its restrictions, so that its row count can be compared
+	 * with the estimate at execution. A later call for the same table
+	 * replaces the result set.
+	 *
+	 * @param resultSetNumber the number of the result set
+	 * @param tableNumber the table number of the base table
+	 */
+	void addCardinalityFeedback(int resultSetNumber, int tableNumber);
+
+	/**
+	 * Get the base tables recorded by addCardinalityFeedback() (for putting
+	 * into the prepared statement).
+	 *
+	 * @return the table numbers indexed by result set number, -1 for the
+	 *	result sets which are not recorded, or null if none is
+	 */
+	int[] getCardinalityFeedback();
+
 	/**
 	 * Add a sequence descriptor to the list of referenced sequences.
 	 */
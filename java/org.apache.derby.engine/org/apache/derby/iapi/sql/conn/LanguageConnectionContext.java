@@ -901,6 +901,29 @@ public interface LanguageConnectionContext extends Context {
         public PreparedStatement prepareInternalStatement(String sqlText) 
 	    throws StandardException;
 
+    /**
+     * Prepare a statement executed through java.sql.Statement with the
+     * literals it compares with replaced by parameters, if
+     * derby.language.autoParameterize is true. This lets statements that
+     * only differ in these literals share one plan in the statement cache.
+     * A statement whose plan depends on the values of the parameters, as
+     * when a literal is compared with a key column of an index that has
+     * statistics, is compiled with its literals.
+     *
+     * @param compilationSchema schema
+     * @param sqlText sql query string
+     * @param isForReadOnly read only status for resultset
+     * @param scrollable true if the result set is scrollable
+     * @return an activation of the statement with the literals as values
+     *         of its parameters, or null if the statement must be compiled
+     *         with its literals
+     * @exception StandardException on error
+     */
+    public Activation prepareAutoParameterized(
+        SchemaDescriptor compilationSchema, String sqlText,
+        boolean isForReadOnly, boolean scrollable)
+        throws StandardException;
+
 	/**
 	 * Install an optimizer tracer (to enable tracing) or uninstall the current optimizer tracer
      * (to disable tracing).
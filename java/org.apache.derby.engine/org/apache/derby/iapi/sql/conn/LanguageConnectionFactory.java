@@ -146,5 +146,44 @@ public interface LanguageConnectionFactory {
 
 	public CacheManager getStatementCache();
 
+    /**
+     * Tell whether the plans in the statement cache are saved at shutdown
+     * and reloaded when the database is booted again. If so, the byte code
+     * of the generated activation classes must be kept when compiling
+     * statements for the cache.
+     *
+     * @return true if the statement cache is persistent
+     */
+    public boolean persistsStatementCache();
+
+    /**
+     * Put the plans saved at the last shutdown of the database back into
+     * the statement cache. Only the first call after the database has
+     * been booted does any work, later calls return at once.
+     *
+     * @param lcc the connection to read the data dictionary with
+     * @throws StandardException on error
+     */
+    public void restoreStatementCache(LanguageConnectionContext lcc)
+            throws StandardException;
+
+    /**
+     * Tell whether the literals of statements executed through
+     * java.sql.Statement are replaced by parameters before the statements
+     * are looked up in the statement cache.
+     *
+     * @return true if derby.language.autoParameterize is true
+     */
+    public boolean autoParameterizes();
+
+    /**
+     * Get the number of times a statement is executed with its activation
+     * class interpreted before the class is generated as byte code.
+     *
+     * @return the value of derby.language.interpretedExecutions, 0 if
+     *         activation classes are generated when statements are compiled
+     */
+    public int getInterpretedExecutions();
+
     public Parser newParser(CompilerContext cc);
 }
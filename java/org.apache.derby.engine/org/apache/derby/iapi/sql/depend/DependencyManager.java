@@ -341,6 +341,14 @@ public interface DependencyManager {
 
     public static final int DROP_AGGREGATE = 51;
 
+    /**
+     * Action when the statistics a plan was chosen with turn out to be
+     * wrong, as found by the execution of the plan. Unlike
+     * INTERNAL_RECOMPILE_REQUEST, the old plan can still be used while
+     * the new one is compiled.
+     */
+    public static final int STALE_PLAN = 52;
+
     /**
      * Extensions to this interface may use action codes &gt; MAX_ACTION_CODE without fear of
      * clashing with action codes in this base interface.
@@ -75,10 +75,9 @@ public class IndexRowGenerator implements IndexDescriptor, Formatable
      * 								column position in the base table.
      * @param isAscending	An array of booleans telling asc/desc on each
      * 						column.
-     * @param numberOfOrderedColumns	In the future, it will be possible
-     * 									to store non-ordered columns in an
-     * 									index.  These will be useful for
-     * 									covered queries.
+     * @param numberOfOrderedColumns	Number of key columns.  The remaining
+     *									columns are INCLUDE columns, which are
+     *									not part of the key.
      */
 	public IndexRowGenerator(String indexType,
 								boolean isUnique,
@@ -940,6 +940,7 @@ public class SPSDescriptor extends UniqueSQLObjectDescriptor
 			case DependencyManager.SET_TRIGGERS_DISABLE:
 			case DependencyManager.ROLLBACK:
 			case DependencyManager.INTERNAL_RECOMPILE_REQUEST:
+			case DependencyManager.STALE_PLAN:
 			case DependencyManager.CREATE_TRIGGER:
 			case DependencyManager.DROP_TRIGGER:
 			case DependencyManager.DROP_COLUMN:
@@ -39,8 +39,12 @@ public class StatisticsDescriptor extends TupleDescriptor
 	private UUID statTableID;  	// UUID of table for which I'm a stat 
 	private Timestamp statUpdateTime; 	// when was I last modified 
 
-	/* I for Index, T for table and such; even though right now all 
-	   our statistics are 'I' but who knows what we'll need later.
+	/** Type of the statistics of the keys of an index. */
+	public static final String INDEX = "I";
+	/** Type of the statistics of a group of columns of a table. */
+	public static final String COLUMN_GROUP = "G";
+
+	/* I for Index, G for a column group; see the constants above.
 	*/
 	private String statType;  							
 	private boolean statValid = true;	// am I valid? 
@@ -60,7 +64,7 @@ public class StatisticsDescriptor extends TupleDescriptor
 		this.statRefID = objectUUID;
 		this.statTableID = tableUUID;
 		this.statUpdateTime = new Timestamp(System.currentTimeMillis());	
-		this.statType = "I";	// for now only index.
+		this.statType = type;
 		this.statStat = stat;
 		this.statColumnCount = colCount;
 	}
@@ -23,11 +23,15 @@ package org.apache.derby.iapi.sql.dictionary;
 
 import java.security.PrivilegedAction;
 import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.derby.catalog.Dependable;
 import org.apache.derby.catalog.DependableFinder;
 import org.apache.derby.catalog.UUID;
+import org.apache.derby.catalog.Statistics;
+import org.apache.derby.catalog.types.ColumnHistogram;
+import org.apache.derby.catalog.types.StatisticsImpl;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.Property;
 import org.apache.derby.shared.common.reference.SQLState;
@@ -205,6 +209,7 @@ public class TableDescriptor extends UniqueSQLObjectDescriptor
 	/** A list of statistics pertaining to this table-- 
 	 */
 	private List<StatisticsDescriptor>					statisticsDescriptorList;
+	private List<StatisticsDescriptor>					columnGroupStatisticsList;
 
 	/**
 	 * Constructor for a TableDescriptor (this is for a temporary table).
@@ -1297,7 +1302,7 @@ public class TableDescriptor extends UniqueSQLObjectDescriptor
 	}
 
 	
-	/** Returns a list of statistics for this table.
+	/** Returns a list of the statistics of the indexes of this table.
 	 */
 	public synchronized List<StatisticsDescriptor> getStatistics() throws StandardException
 	{
@@ -1307,7 +1312,25 @@ public class TableDescriptor extends UniqueSQLObjectDescriptor
 			return statisticsDescriptorList;
 
 		DataDictionary dd = getDataDictionary();
-		return statisticsDescriptorList = dd.getStatisticsDescriptors(this);
+		statisticsDescriptorList = new ArrayList<StatisticsDescriptor>();
+		columnGroupStatisticsList = new ArrayList<StatisticsDescriptor>();
+		for (StatisticsDescriptor statDesc : dd.getStatisticsDescriptors(this))
+		{
+			if (StatisticsDescriptor.COLUMN_GROUP.equals(statDesc.getStatType()))
+				columnGroupStatisticsList.add(statDesc);
+			else
+				statisticsDescriptorList.add(statDesc);
+		}
+		return statisticsDescriptorList;
+	}
+
+	/** Returns a list of the statistics of the column groups of this table.
+	 */
+	public synchronized List<StatisticsDescriptor> getColumnGroupStatistics()
+		throws StandardException
+	{
+		getStatistics();
+		return columnGroupStatisticsList;
 	}
 
     /**
@@ -1389,7 +1412,7 @@ public class TableDescriptor extends UniqueSQLObjectDescriptor
         List<StatisticsDescriptor> sdl = getStatistics();
 
 		if (cd == null)
-			return (sdl.size() > 0);
+			return (sdl.size() > 0 || getColumnGroupStatistics().size() > 0);
 
 		UUID cdUUID = cd.getUUID();
 
@@ -1439,6 +1462,40 @@ public class TableDescriptor extends UniqueSQLObjectDescriptor
         return Math.pow(0.1, numKeys);
 	}
 
+	/**
+	 * Return the histogram of the values of a column, if there is an index
+	 * whose first column is the column and its statistics have a histogram.
+	 *
+	 * @param columnPosition	The position of the column in the table.
+	 *
+	 * @return the histogram, or null if there is none.
+	 */
+	public ColumnHistogram getHistogram(int columnPosition)
+		throws StandardException
+	{
+        for (StatisticsDescriptor statDesc : getStatistics())
+		{
+			if (statDesc.getColumnCount() != 1)
+				continue;
+
+			Statistics stat = statDesc.getStatistic();
+			if (!(stat instanceof StatisticsImpl) ||
+				((StatisticsImpl) stat).getHistogram() == null)
+				continue;
+
+			ConglomerateDescriptor cd = getConglomerateDescriptorList().
+				getConglomerateDescriptor(statDesc.getReferenceID());
+			if (cd != null && cd.isIndex() &&
+				cd.getIndexDescriptor().baseColumnPositions()[0] ==
+					columnPosition)
+			{
+				return ((StatisticsImpl) stat).getHistogram();
+			}
+		}
+
+		return null;
+	}
+
 	/** @see TupleDescriptor#getDescriptorName */
     @Override
 	public String getDescriptorName() { return tableName; }
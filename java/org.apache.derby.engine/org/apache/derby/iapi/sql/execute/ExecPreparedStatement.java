@@ -123,6 +123,16 @@ public interface ExecPreparedStatement
 	 */
 	boolean needsSavepoint();
 
+	/**
+	 * Does the plan of this statement depend on the values of its
+	 * parameters? This is the case if a parameter is compared with a key
+	 * column of an index that has statistics, since the rows selected by
+	 * a literal in its place would have been estimated from its value.
+	 *
+	 * @return true if the plan might not suit every value of the parameters
+	 */
+	boolean isParameterSensitive();
+
 	/**
 	 * Get a new prepared statement that is a shallow copy
 	 * of the current one.
@@ -206,4 +216,26 @@ public interface ExecPreparedStatement
      * initialized yet
      */
     int getStalePlanCheckInterval();
+
+    /**
+     * Get the base table whose rows, after all its restrictions, are the
+     * rows of the specified result set in the current plan.
+     * @param rsNum the result set number
+     * @return the table number of the base table, or -1 if the result set
+     * does not return the rows of a base table
+     */
+    int getCardinalityFeedbackTable(int rsNum);
+
+    /**
+     * Correct the estimated row count of a base table for the next
+     * compilation of this statement.
+     * @param tableNumber the table number of the base table
+     * @param estimatedRowCount the row count estimated by the optimizer
+     * @param rowCount the row count seen at execution
+     * @return true if the estimate was corrected, false if an earlier
+     * correction of the table did not change the estimate, in which case
+     * recompiling would not help
+     */
+    boolean correctCardinality(int tableNumber, double estimatedRowCount,
+                               long rowCount);
 }
@@ -1067,6 +1067,48 @@ public interface ResultSetFactory {
 								double optimizerEstimatedCost)
 			throws StandardException;
 
+	/**
+		A skip scan result set, used for reading only the first row of each
+		group of index rows that share the same values in the leading
+		skipColumns columns. After returning a row it repositions the scan
+		past all the other rows with the same leading columns, so DISTINCT
+		and GROUP BY on the leading columns of an index only read one row
+		per group.
+
+		All arguments are the same as for TableScanResultSet, plus the
+		following:
+
+		@param skipColumns The number of leading index columns that
+			identify a group.
+	 */
+	NoPutResultSet getSkipScanResultSet(
+			                    Activation activation,
+								long conglomId,
+								int scociItem,
+								int resultRowTemplate,
+								int resultSetNumber,
+								GeneratedMethod startKeyGetter,
+								int startSearchOperator,
+								GeneratedMethod stopKeyGetter,
+								int stopSearchOperator,
+								boolean sameStartStopPosition,
+								Qualifier[][] qualifiers,
+								String tableName,
+								String userSuppliedOptimizerOverrides,
+								String indexName,
+								boolean isConstraint,
+								boolean forUpdate,
+								int colRefItem,
+								int indexColItem,
+								int lockMode,
+								boolean tableLocked,
+								int isolationLevel,
+								boolean oneRowScan,
+								double optimizerEstimatedRowCount,
+								double optimizerEstimatedCost,
+								int skipColumns)
+			throws StandardException;
+
 	/**
 		An index row to base row result set gets an index row from its source
 		and uses the RowLocation in its last column to get the row from the
@@ -0,0 +1,47 @@
+/*
+
+   Derby - Class org.apache.derby.iapi.store.access.SampleObserver
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.iapi.store.access;
+
+import org.apache.derby.shared.common.error.StandardException;
+
+import org.apache.derby.iapi.types.DataValueDescriptor;
+
+/**
+ * Allows clients to see the rows read while a conglomerate is sampled.
+ *
+ * @see TransactionController#sampleConglomerate
+ */
+public interface SampleObserver
+{
+    /**
+     * Called for each row read, in key order.
+     * <p>
+     * Only the key columns of the row are filled in.  The row is reused for
+     * the next row read, so values which are kept must be cloned.
+     *
+     * @param row the row
+     *
+     * @throws  StandardException  Standard exception policy.
+     */
+    public void observeRow(DataValueDescriptor[] row)
+        throws StandardException;
+}
@@ -53,4 +53,13 @@ public interface SpaceInfo
      **/
     public int getPageSize();
 
+    /**
+     * Get the average percentage of space in use on the pages which hold the
+     * rows of the conglomerate, ie. the leaf pages of a btree.
+     *
+     * @return the average fill percentage, or -1 if it is not computed for
+     *         this kind of conglomerate.
+     **/
+    public int getAverageFillPercent();
+
 }
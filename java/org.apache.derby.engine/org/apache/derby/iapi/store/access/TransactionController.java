@@ -1359,6 +1359,58 @@ public interface TransactionController
 	void compressConglomerate(long conglomId)
 			throws StandardException;
 
+    /**
+     * Reorganize the conglomerate while it stays available for updates.
+     * <p>
+     * Merges under-filled pages of a btree conglomerate, using short internal
+     * transactions which do not prevent other transactions from reading and
+     * updating the conglomerate.  Pages freed by the merges are available for
+     * future inserts into the conglomerate, and the sequential free pages at
+     * the "end" of the conglomerate can be returned to the OS by 
+     * compressConglomerate().  Heap conglomerates are not changed.
+     * <p>
+     * An intent lock on the table is held until the end of the transaction,
+     * so no ddl can change the table while it is being reorganized.
+     *
+     * @param conglomId Id of the conglomerate to reorganize.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	void reorganizeConglomerate(long conglomId)
+			throws StandardException;
+
+    /**
+     * Estimate the number of rows and distinct keys of a conglomerate from a
+     * random sample of its pages.
+     * <p>
+     * Reads only the chosen leaf pages of a btree conglomerate, and the
+     * branch pages needed to choose them.  No locks are requested, so the
+     * estimates include uncommitted changes as for a read uncommitted scan.
+     * Heap conglomerates, and btrees with no more than samplePages leaves,
+     * are not sampled; the caller has to scan them to get their statistics.
+     *
+     * @param conglomId     Id of the conglomerate to sample.
+     * @param samplePages   The number of leaf pages to read.
+     * @param cardinality   On return cardinality[i] holds the estimated
+     *                      number of distinct values of the first i + 1
+     *                      columns of the conglomerate.  It must have an entry
+     *                      for every key column, not counting the row
+     *                      location.
+     * @param observer      If not null, told about every row read from the
+     *                      sampled pages.
+     *
+	 * @return The estimated number of rows, or -1 if the conglomerate was not
+     *         sampled.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	long sampleConglomerate(
+    long            conglomId,
+    int             samplePages,
+    long[]          cardinality,
+    SampleObserver  observer)
+			throws StandardException;
+
 
     /**
      * Retrieve the maximum value row in an ordered conglomerate.
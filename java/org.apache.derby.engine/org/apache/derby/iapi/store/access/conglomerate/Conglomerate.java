@@ -26,6 +26,7 @@ import org.apache.derby.iapi.store.access.ConglomerateController;
 import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowLocationRetRowSource;
+import org.apache.derby.iapi.store.access.SampleObserver;
 import org.apache.derby.iapi.store.access.StoreCostController;
 import org.apache.derby.iapi.store.access.StaticCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.TransactionController;
@@ -372,6 +373,34 @@ public interface Conglomerate extends Storable, DataValueDescriptor
     Transaction                     rawtran)
         throws StandardException;
 
+    /**
+     * Reorganize the conglomerate while it stays available for updates.
+     * <p>
+     * @see org.apache.derby.iapi.store.access.TransactionController#reorganizeConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	void reorganizeConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran)
+        throws StandardException;
+
+    /**
+     * Estimate the number of rows and distinct keys of the conglomerate from
+     * a random sample of its pages.
+     * <p>
+     * @see org.apache.derby.iapi.store.access.TransactionController#sampleConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	long sampleConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran,
+    int                             sample_pages,
+    long[]                          cardinality,
+    SampleObserver                  observer)
+        throws StandardException;
+
     /**
      * Return an open StoreCostController for the conglomerate.
      * <p>
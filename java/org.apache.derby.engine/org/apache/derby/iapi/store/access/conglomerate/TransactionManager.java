@@ -102,6 +102,15 @@ public interface TransactionManager extends TransactionController
     String  feature) 
         throws StandardException;
 
+    /**
+     * Check if there are prepared transactions which recovery left in the
+     * transaction table at boot, and which have not been committed or
+     * rolled back since.
+     *
+     * @return <code> true </code> if there are such transactions.
+     */
+    public boolean hasPreparedRecoveredXact();
+
     /**
      * The ScanManager.close() method has been called on "scan".
      * <p>
@@ -21,6 +21,7 @@
 
 package org.apache.derby.iapi.store.raw;
 
+import org.apache.derby.iapi.services.io.FormatableBitSet;
 import org.apache.derby.iapi.store.access.SpaceInfo;
 import org.apache.derby.shared.common.error.StandardException;
 
@@ -606,6 +607,17 @@ public interface ContainerHandle
 	*/
 	public void compactRecord(RecordHandle record) throws StandardException;
 
+	/**
+		Set the columns whose long values are compressed when they are
+		written through this handle.  A long column written in compressed
+		form is marked as such in its row, so it is read back correctly
+		through any handle.
+
+		@param compressedColumns the columns to compress, or null to
+		compress none of them
+	 */
+	public void setCompressedColumns(FormatableBitSet compressedColumns);
+
 	/**
 		Return true if this containerHandle refers to a temporary container.
 		@exception StandardException Standard Derby exception policy.
@@ -130,6 +130,35 @@ public interface LockingPolicy {
     ContainerHandle container, 
     RecordHandle    record, 
     boolean         waitForLock,
+    boolean         forUpdate)
+		throws StandardException;
+
+	/**
+		Called before a record is fetched from a page that is latched,
+		without waiting for the lock. The policy may grant the request
+		without a lock if that does not change what the record fetched can
+		be, for instance if no transaction that has not committed yet has
+		changed the page.
+
+        @param t            Transaction to associate lock with.
+        @param container    Open Container used to get record.  Will be used
+                            to row locks by the container they belong to.
+        @param page         The latched page that holds the record.
+        @param record       Record to lock.
+        @param forUpdate    Should container be locked for update, or read?
+
+		@return true if the request was granted, false if the lock was
+		unavailable.
+
+		@exception StandardException	Standard Derby error policy
+
+		@see #lockRecordForRead
+	*/
+	public boolean lockRecordOnPageForRead(
+    Transaction     t, 
+    ContainerHandle container, 
+    Page            page,
+    RecordHandle    record, 
     boolean         forUpdate)
 		throws StandardException;
 
@@ -931,6 +931,31 @@ public interface Page
     int     dest_slot)
 		 throws StandardException;
 
+    /**
+     * Is there enough space on this page to copy rows to it from srcPage?
+     * <p>
+     * Check if a copyAndPurge() of slot[src_slot] to
+     * slot[src_slot+num_rows-1] of srcPage onto this page would find enough
+     * space for the rows, taking into account that the rows are given new
+     * record ids on this page.  Both pages must be latched and from the same
+     * container.
+     * <BR>
+     * MT - latched
+     *
+     * @param srcPage  the page the rows would be copied from
+     * @param src_slot start copying from this slot
+     * @param num_rows number of rows that would be copied
+     *
+	 * @return true if the rows will fit on this page.
+     *
+     * @exception StandardException Standard Derby error policy
+     **/
+	public boolean spaceForCopy(
+    Page    srcPage,
+    int     src_slot,
+    int     num_rows)
+		 throws StandardException;
+
 	/**
 		Update the complete record identified by the slot.
 
@@ -1008,6 +1033,19 @@ public interface Page
 
 	public int nonDeletedRecordCount() throws StandardException;
 
+    /**
+     * Return how full the page is.
+     * <p>
+     * The result is the percentage of the space available for records on
+     * the page which is currently in use, including the space used by rows
+     * marked deleted and by the slot table.
+     * <BR>
+     * MT - latched
+     *
+	 * @return percentage of record space in use, between 0 and 100.
+     **/
+	public int getPercentFull();
+
     /**
      * Is this page/deleted row a candidate for immediate reclaim space.
      * <p>
@@ -1135,6 +1173,20 @@ public interface Page
 
 	public boolean isLatched();
 
+	/**
+		Tell whether a transaction that has not committed yet may have changed
+		a record of this page. If not, the record is committed, and stays
+		committed while the page is latched. The pieces of a record that
+		overflow to other pages are changed on those pages, so a record that
+		does not fit on this page is always taken to have uncommitted
+		changes.
+
+		<BR> MT - latched
+
+		@param handle the record, which must be on this page
+	*/
+	public boolean hasUncommittedChanges(RecordHandle handle);
+
     public static final String DIAG_PAGE_SIZE        = "pageSize";
     public static final String DIAG_RESERVED_SPACE   = "reserveSpace";
     public static final String DIAG_MINIMUM_REC_SIZE = "minRecSize";
@@ -111,6 +111,9 @@ public interface RawStoreFactory extends Corruptable {
     /** Derby Store Minor Version (10) **/
     public static final int DERBY_STORE_MINOR_VERSION_10   = 10;
 
+    /** Derby Store Minor Version (15) **/
+    public static final int DERBY_STORE_MINOR_VERSION_15   = 15;
+
     /** Derby 10 Store Major version */
     public static final int DERBY_STORE_MAJOR_VERSION_10   = 10;
 
@@ -239,6 +242,51 @@ public interface RawStoreFactory extends Corruptable {
 
     public static final String PAGE_RESERVED_ZERO_SPACE_STRING = "0";
 
+    /** Property name for the percentage of a btree page to fill when
+        building an index and when splitting the rightmost page of an index
+        in an append-only insert pattern.  Unlike
+        PAGE_RESERVED_SPACE_PARAMETER it does not limit later inserts into
+        the page, it only decides where pages are split.
+    */
+    public static final String INDEX_FILL_FACTOR_PARAMETER =
+        "derby.storage.indexFillFactor";
+
+    /**
+        Default value for INDEX_FILL_FACTOR_PARAMETER (100), which fills
+        pages completely.
+    */
+    public static final int INDEX_FILL_FACTOR_DEFAULT = 100;
+
+    /**
+        Minimum value for INDEX_FILL_FACTOR_PARAMETER (10).
+    */
+    public static final int INDEX_FILL_FACTOR_MINIMUM = 10;
+
+    /** Property name for storing the leading key columns shared by all the
+        rows of a btree page only once, in the page's control row.
+        Only read when a btree is created; the default is "false".
+    */
+    public static final String INDEX_PREFIX_COMPRESSION_PARAMETER =
+        "derby.storage.indexPrefixCompression";
+
+    /** Property name for the columns of a heap whose long values are
+        stored compressed, given as a comma separated list of column
+        numbers counted from 0.  Only read when a heap is created.
+        The heap is the only record of which columns are COMPRESSED,
+        the data dictionary does not know about it.
+    */
+    public static final String COMPRESSED_COLUMNS_PARAMETER =
+        "derby.storage.compressedColumns";
+
+    /** Property name for deflating the pages of a heap when they are
+        written to disk.  The page cache holds the pages uncompressed.
+        A page keeps its slot in the file, so disk space is only saved in
+        whole file system blocks, which needs pages larger than 4K.
+        Only read when a heap is created; the default is "false".
+    */
+    public static final String PAGE_COMPRESSION_PARAMETER =
+        "derby.storage.pageCompression";
+
     /** Property name for the number of pages we try to pre-allocate in one
     /** synchronous I/O
     */
@@ -1060,6 +1108,15 @@ public interface RawStoreFactory extends Corruptable {
     int     requiredMinorVersion, 
     String  feature) 
         throws StandardException;
+
+    /**
+     * Check if there are prepared transactions which recovery left in the
+     * transaction table at boot, and which have not been committed or
+     * rolled back since.
+     *
+     * @return <code> true </code> if there are such transactions.
+     */
+    public boolean hasPreparedRecoveredXact();
     
     /**
      *  Use the available storage factory handle to create a readme
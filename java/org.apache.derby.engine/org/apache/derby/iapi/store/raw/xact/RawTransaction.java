@@ -129,6 +129,16 @@ public abstract class RawTransaction extends DerbyObservable implements Transact
 	*/
 	abstract public TransactionId getId();
 
+	/**
+		Tell whether this transaction object still runs the transaction with
+		the given short id, and that transaction may have changed data it has
+		not committed yet. Once this returns false for an id, it never returns
+		true for that id again.
+
+		<BR> MT - thread safe
+	*/
+	public abstract boolean isUncommittedWriter(TransactionId id);
+
 	/**
 		Get the shortId of this transaction.  May return null if transactio
 		has no ID.
@@ -294,6 +294,16 @@ public interface TransactionFactory extends Corruptable {
      */
 	public boolean hasPreparedXact();
 
+    /**
+     * Check if there are prepared transactions which recovery left in the
+     * transaction table, and which have not been committed or rolled back
+     * since.
+     *
+     * @return   <tt>true</tt> if such transactions exist,
+     *			 <tt>false</tt> otherwise.
+     */
+	public boolean hasPreparedRecoveredXact();
+
 	/**
 		Database creation finished
 
@@ -314,6 +314,10 @@ public class BasicDatabase implements ModuleControl, ModuleSupportable, Property
 		//when we push it. We first must push a few more contexts. 
 		lctx.initialize();		
 
+		// the first connection puts the plans saved at the last
+		// shutdown back into the statement cache
+		lcf.restoreStatementCache(lctx);
+
 		// Need to commit this to release locks gotten in initialize.  
 		// Commit it but make sure transaction not have any updates. 
 		lctx.internalCommitNoSync(
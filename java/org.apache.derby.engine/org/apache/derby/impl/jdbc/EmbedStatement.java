@@ -685,12 +685,19 @@ public class EmbedStatement extends ConnectionChild
 		try {
 			Activation activation;
 			try {
-				PreparedStatement preparedStatement = lcc.prepareInternalStatement
+				activation = lcc.prepareAutoParameterized
 				    (lcc.getDefaultSchema(), sql, resultSetConcurrency==
-                        java.sql.ResultSet.CONCUR_READ_ONLY, false);
-				activation =
-					preparedStatement.getActivation(lcc, resultSetType ==
+                        java.sql.ResultSet.CONCUR_READ_ONLY, resultSetType ==
                         java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+				if (activation == null) {
+					PreparedStatement preparedStatement =
+						lcc.prepareInternalStatement(lcc.getDefaultSchema(),
+							sql, resultSetConcurrency ==
+							java.sql.ResultSet.CONCUR_READ_ONLY, false);
+					activation =
+						preparedStatement.getActivation(lcc, resultSetType ==
+							java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+				}
 				checkRequiresCallableStatement(activation);
                 InterruptStatus.restoreIntrFlagIfSeen(lcc);
 			 } catch (Throwable t) {
@@ -22,16 +22,14 @@
 package org.apache.derby.impl.jdbc;
 
 import java.io.EOFException;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.shared.common.i18n.MessageService;
 import org.apache.derby.iapi.store.raw.data.DataFactory;
-import org.apache.derby.io.StorageFile;
 
 /**
- * This class is a wrapper class on top of StorageRandomAccess to provide common
+ * This class is a wrapper class on top of LOBFile to provide common
  * methods to write in encrypted file.
  * This class is NOT thread safe. The user class should take care
  * of synchronization if being used in multi threaded environment.
@@ -51,14 +49,11 @@ class EncryptedLOBFile extends LOBFile {
     /**
      * Constructs the EncryptedLOBFile object with encryption support.
      *
-     * @param lobFile StorageFile Object for which file will be created
+     * @param spillFile the shared file holding the data
      * @param df data factory for encryption and decription
-     * @throws FileNotFoundException if the file exists but is a directory or
-     * cannot be opened
      */
-    EncryptedLOBFile(StorageFile lobFile, DataFactory df)
-                                                throws FileNotFoundException {
-        super(lobFile);
+    EncryptedLOBFile(LOBSpillFile spillFile, DataFactory df) {
+        super(spillFile);
         this.df = df;
         blockSize = df.getEncryptionBlockSize();
         tail = new byte [blockSize];
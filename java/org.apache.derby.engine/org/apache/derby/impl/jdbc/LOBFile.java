@@ -20,43 +20,43 @@
  */
 package org.apache.derby.impl.jdbc;
 
-import java.io.FileNotFoundException;
+import java.io.EOFException;
 import java.io.IOException;
 import org.apache.derby.shared.common.error.StandardException;
-import org.apache.derby.io.StorageFile;
-import org.apache.derby.io.StorageRandomAccessFile;
 
 /**
- * LOBFile is a wrapper over StorageRandomAccessFile. The purpose of this class
- * is to let the user of this class access StorageRandomAccessFile in plain and
- * in encrypted for without having to change code.
+ * LOBFile holds the data of a LOB which has spilled to disk. The data is
+ * stored in extents of a {@link LOBSpillFile} shared with the other LOBs of
+ * the database, but the class offers the same random access as a file of its
+ * own. The purpose of this class is to let the user of this class access
+ * the data in plain and in encrypted form without having to change code.
  */
 class LOBFile {
-    /** The temporary file where the contents of the LOB should be stored. */
-    private final StorageFile storageFile;
+    /** The shared file where the contents of the LOB should be stored. */
+    private final LOBSpillFile spillFile;
 
-    /** An object giving random access to {@link #storageFile}. */
-    private final StorageRandomAccessFile randomAccessFile;
+    /** The extents of {@link #spillFile} holding the data, in order. */
+    private int[] extents = new int[4];
+
+    /** The number of extents in use. */
+    private int extentCount;
+
+    /** The length of the data. */
+    private long length;
+
+    /** The current position. */
+    private long filePointer;
+
+    /** Whether the file has been closed and its extents released. */
+    private boolean closed;
 
     /**
      * Constructs LOBFile.
      *
-     * @param lobFile StorageFile object for which the file will be created
-     * @throws FileNotFoundException if the file exists but is a directory or
-     * cannot be opened
+     * @param spillFile the shared file holding the data
      */
-    LOBFile(StorageFile lobFile) throws FileNotFoundException {
-        storageFile = lobFile;
-        randomAccessFile = lobFile.getRandomAccessFile("rw");
-    }
-
-    /**
-     * Get the {@code StorageFile} which represents the file where the
-     * contents of the LOB are stored.
-     * @return a {@code StorageFile} instance
-     */
-    StorageFile getStorageFile() {
-        return storageFile;
+    LOBFile(LOBSpillFile spillFile) {
+        this.spillFile = spillFile;
     }
 
     /**
@@ -65,7 +65,8 @@ class LOBFile {
      * @throws IOException if an I/O error occurs
      */
     long length() throws IOException {
-        return randomAccessFile.length();
+        checkOpen();
+        return length;
     }
 
     /**
@@ -74,7 +75,11 @@ class LOBFile {
      * @throws IOException if an I/O error occurs
      */
     void seek(long pos) throws IOException {
-        randomAccessFile.seek (pos);
+        checkOpen();
+        if (pos < 0) {
+            throw new IOException("Negative seek offset");
+        }
+        filePointer = pos;
     }
 
     /**
@@ -85,7 +90,7 @@ class LOBFile {
      *              subclasses to throw StandardException
      */
     void write(int b) throws IOException, StandardException {
-        randomAccessFile.write (b);
+        writeData(new byte[] {(byte) b}, 0, 1);
     }
 
     /**
@@ -94,7 +99,8 @@ class LOBFile {
      * @throws IOException if an I/O error occurs
      */
     long getFilePointer() throws IOException {
-        return randomAccessFile.getFilePointer();
+        checkOpen();
+        return filePointer;
     }
 
     /**
@@ -108,7 +114,10 @@ class LOBFile {
      */
     void write(byte[] b, int off, int len)
                                     throws IOException, StandardException {
-            randomAccessFile.write (b, off, len);
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        writeData(b, off, len);
     }
 
     /**
@@ -119,7 +128,11 @@ class LOBFile {
      *              subclasses to throw StandardException
      */
     int readByte() throws IOException, StandardException {
-        return randomAccessFile.readByte();
+        byte[] b = new byte[1];
+        if (readData(b, 0, 1) == -1) {
+            throw new EOFException();
+        }
+        return b[0];
     }
 
     /**
@@ -135,17 +148,30 @@ class LOBFile {
      */
     int read(byte[] buff, int off, int len)
                                     throws IOException, StandardException {
-        return randomAccessFile.read (buff, off, len);
+        if (off < 0 || len < 0 || off + len > buff.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return readData(buff, off, len);
     }
 
     /**
-     * Closes the file.
+     * Closes the file and releases its extents. Closing a file which is
+     * already closed has no effect.
      * @throws IOException if an I/O error occurs
-     * @throws StandardException it won't be thrown, it's in signature to allow
-     *              subclasses to throw StandardException
      */
     void close() throws IOException {
-        randomAccessFile.close();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            spillFile.releaseExtents(extents, 0, extentCount);
+        } finally {
+            extentCount = 0;
+            LOBTempSpace.closeFile(spillFile);
+        }
     }
 
     /**
@@ -156,7 +182,22 @@ class LOBFile {
      *              subclasses to throw StandardException
      */
     void setLength(long size) throws IOException, StandardException {
-        randomAccessFile.setLength (size);
+        checkOpen();
+        if (size > length) {
+            long pos = filePointer;
+            filePointer = size;
+            writeData(new byte[0], 0, 0);
+            filePointer = pos;
+            return;
+        }
+        length = size;
+        filePointer = Math.min(filePointer, size);
+        int needed = (int) ((size + LOBSpillFile.EXTENT_SIZE - 1) /
+                LOBSpillFile.EXTENT_SIZE);
+        if (needed < extentCount) {
+            spillFile.releaseExtents(extents, needed, extentCount);
+            extentCount = needed;
+        }
     }
 
     /**
@@ -167,7 +208,87 @@ class LOBFile {
      *              subclasses to throw StandardException
      */
     void write(byte[] buf) throws IOException, StandardException {
-        randomAccessFile.write (buf);
+        writeData(buf, 0, buf.length);
     }
 
+    /**
+     * Write bytes at the current position, which is moved past them. If the
+     * position is beyond the end of the file, the gap is filled with zeros
+     * so that no bytes left behind by other LOBs become visible.
+     */
+    private void writeData(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (filePointer > length) {
+            byte[] zeros = new byte[(int) Math.min(
+                    filePointer - length, LOBSpillFile.EXTENT_SIZE)];
+            long end = filePointer;
+            filePointer = length;
+            while (filePointer < end) {
+                writeData(zeros, 0,
+                        (int) Math.min(zeros.length, end - filePointer));
+            }
+        }
+        while (len > 0) {
+            int index = (int) (filePointer / LOBSpillFile.EXTENT_SIZE);
+            int pos = (int) (filePointer % LOBSpillFile.EXTENT_SIZE);
+            int n = Math.min(len, LOBSpillFile.EXTENT_SIZE - pos);
+            spillFile.write(getExtent(index), pos, b, off, n);
+            filePointer += n;
+            off += n;
+            len -= n;
+        }
+        length = Math.max(length, filePointer);
+    }
+
+    /**
+     * Read bytes from the current position, which is moved past them.
+     *
+     * @return the number of bytes read, or -1 if the position is at the end
+     *      of the file
+     */
+    private int readData(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (filePointer >= length) {
+            return -1;
+        }
+        int total = (int) Math.min(len, length - filePointer);
+        for (int remaining = total; remaining > 0; ) {
+            int index = (int) (filePointer / LOBSpillFile.EXTENT_SIZE);
+            int pos = (int) (filePointer % LOBSpillFile.EXTENT_SIZE);
+            int n = Math.min(remaining, LOBSpillFile.EXTENT_SIZE - pos);
+            spillFile.read(extents[index], pos, b, off, n);
+            filePointer += n;
+            off += n;
+            remaining -= n;
+        }
+        return total;
+    }
+
+    /**
+     * Get the extent holding a part of the file, allocating the extents up
+     * to it if the file does not reach that far.
+     *
+     * @param index the index of the extent in the file
+     * @return the number of the extent in the spill file
+     */
+    private int getExtent(int index) {
+        while (extentCount <= index) {
+            if (extentCount == extents.length) {
+                int[] tmp = new int[extents.length * 2];
+                System.arraycopy(extents, 0, tmp, 0, extentCount);
+                extents = tmp;
+            }
+            extents[extentCount++] = spillFile.allocateExtent();
+        }
+        return extents[index];
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("LOB file is closed");
+        }
+    }
 }
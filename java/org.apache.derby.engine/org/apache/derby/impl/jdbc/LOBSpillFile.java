@@ -0,0 +1,162 @@
+/*
+
+   Derby - Class org.apache.derby.impl.jdbc.LOBSpillFile
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.derby.impl.jdbc;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.BitSet;
+import org.apache.derby.io.StorageFile;
+import org.apache.derby.io.StorageRandomAccessFile;
+
+/**
+ * A temporary file shared by the LOBs of a database which don't fit in
+ * memory. The file is divided into extents of {@code EXTENT_SIZE} bytes,
+ * and each {@link LOBFile} keeps the list of the extents holding its data.
+ * Released extents are handed out again before the file is extended, and
+ * the file is shortened when the extents at its end are released.
+ * <p>
+ * The file is shared by many connections, so all access to it is
+ * synchronized on this object.
+ */
+final class LOBSpillFile {
+    /** The size of the extents. */
+    static final int EXTENT_SIZE = 16384;
+
+    private final StorageFile storageFile;
+    private final StorageRandomAccessFile randomAccessFile;
+
+    /** The extents which belong to some LOB file. */
+    private final BitSet usedExtents = new BitSet();
+
+    /** The number of extents in the file on disk. */
+    private int fileExtents;
+
+    /** The number of open LOB files using this file. */
+    private int users;
+
+    /**
+     * Creates the spill file.
+     *
+     * @param storageFile the temporary file to use
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    LOBSpillFile(StorageFile storageFile) throws FileNotFoundException {
+        this.storageFile = storageFile;
+        randomAccessFile = storageFile.getRandomAccessFile("rw");
+    }
+
+    /** Register a LOB file which uses the spill file. */
+    void addUser() {
+        users++;
+    }
+
+    /**
+     * Unregister a LOB file which used the spill file.
+     *
+     * @return {@code true} if the spill file has no more users
+     */
+    boolean removeUser() {
+        return --users == 0;
+    }
+
+    /**
+     * Take a free extent, the first one in the file if there are several.
+     *
+     * @return the number of the extent
+     */
+    synchronized int allocateExtent() {
+        int extent = usedExtents.nextClearBit(0);
+        usedExtents.set(extent);
+        LOBTempSpace.countSpilledBytes(EXTENT_SIZE);
+        return extent;
+    }
+
+    /**
+     * Release extents so that they can be reused by other LOB files.
+     *
+     * @param extents array holding the numbers of the extents
+     * @param from index of the first extent to release
+     * @param to index after the last extent to release
+     * @throws IOException if the file cannot be shortened
+     */
+    synchronized void releaseExtents(int[] extents, int from, int to)
+            throws IOException {
+        for (int i = from; i < to; i++) {
+            usedExtents.clear(extents[i]);
+        }
+        LOBTempSpace.countSpilledBytes(-(long) (to - from) * EXTENT_SIZE);
+        int end = usedExtents.length();
+        if (end < fileExtents) {
+            randomAccessFile.setLength((long) end * EXTENT_SIZE);
+            fileExtents = end;
+        }
+    }
+
+    /**
+     * Write bytes into an extent.
+     *
+     * @param extent the number of the extent
+     * @param pos the position within the extent
+     * @param b the bytes to write
+     * @param off the offset of the first byte in {@code b}
+     * @param len the number of bytes, which must fit in the extent
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void write(int extent, int pos, byte[] b, int off, int len)
+            throws IOException {
+        randomAccessFile.seek((long) extent * EXTENT_SIZE + pos);
+        randomAccessFile.write(b, off, len);
+        fileExtents = Math.max(fileExtents, extent + 1);
+    }
+
+    /**
+     * Read bytes from an extent. The bytes must have been written before.
+     *
+     * @param extent the number of the extent
+     * @param pos the position within the extent
+     * @param b the array to read into
+     * @param off the offset of the first byte in {@code b}
+     * @param len the number of bytes, which must fit in the extent
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void read(int extent, int pos, byte[] b, int off, int len)
+            throws IOException {
+        randomAccessFile.seek((long) extent * EXTENT_SIZE + pos);
+        randomAccessFile.readFully(b, off, len);
+    }
+
+    /**
+     * Close and delete the file once it has no more users.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    synchronized void delete() throws IOException {
+        randomAccessFile.close();
+        AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            public Object run() {
+                storageFile.delete();
+                return null;
+            }
+        });
+    }
+}
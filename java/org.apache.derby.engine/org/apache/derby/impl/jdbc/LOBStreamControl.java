@@ -37,7 +37,6 @@ import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.shared.common.i18n.MessageService;
 import org.apache.derby.iapi.services.monitor.Monitor;
 import org.apache.derby.iapi.store.raw.data.DataFactory;
-import org.apache.derby.io.StorageFile;
 import org.apache.derby.shared.common.error.ExceptionUtil;
 import org.apache.derby.shared.common.reference.MessageId;
 
@@ -51,6 +50,11 @@ import org.apache.derby.shared.common.reference.MessageId;
  * When write increases the data beyond this value a temporary file is created
  * and data is moved into that. If truncate reduces the size of the file below
  * initial buffer size, the data is moved into memory.
+ * <p>
+ * The data held in memory is kept in segments from the pool of
+ * {@link LOBTempSpace}, and the data is also moved to a temporary file when
+ * the pool has no more memory to give. The temporary files of all the LOBs
+ * of a database are extents of a single {@link LOBSpillFile}.
  *
  * This class also creates InputStream and OutputStream which can be used to access
  * blob data irrespective of if its in memory or in file.
@@ -58,12 +62,15 @@ import org.apache.derby.shared.common.reference.MessageId;
 
 final class LOBStreamControl {
     private LOBFile tmpFile;
-    private byte [] dataBytes = new byte [0];
+    /** The segments holding the data while it is kept in memory. */
+    private final byte [][] segments;
+    /** The length of the data while it is kept in memory. */
+    private int dataLength;
     private boolean isBytes = true;
     private final int bufferSize;
     private final EmbedConnection conn;
     private long updateCount;
-    private static final int DEFAULT_BUF_SIZE = 4096;
+    private static final int DEFAULT_BUF_SIZE = LOBTempSpace.SEGMENT_SIZE;
     private static final int MAX_BUF_SIZE = 32768;
 
     /**
@@ -75,6 +82,7 @@ final class LOBStreamControl {
         updateCount = 0;
         //default buffer size
         bufferSize = DEFAULT_BUF_SIZE;
+        segments = new byte [1][];
     }
 
     /**
@@ -86,79 +94,107 @@ final class LOBStreamControl {
             throws IOException, StandardException {
         this.conn = conn;
         updateCount = 0;
-        bufferSize =
-            Math.min(Math.max(DEFAULT_BUF_SIZE, data.length), MAX_BUF_SIZE);
+        //round up to whole segments, the memory is allocated in segments
+        int segmentCount = (Math.min(Math.max(DEFAULT_BUF_SIZE, data.length),
+                MAX_BUF_SIZE) + LOBTempSpace.SEGMENT_SIZE - 1) /
+                LOBTempSpace.SEGMENT_SIZE;
+        bufferSize = segmentCount * LOBTempSpace.SEGMENT_SIZE;
+        segments = new byte [segmentCount][];
         write (data, 0, data.length, 0);
     }
 
-    private void init(byte [] b, long len)
+    /**
+     * Moves the data from memory into a temporary file.
+     * @param len number of bytes to copy into the file
+     */
+    private void init(long len)
             throws IOException, StandardException {
         Object monitor = findService(
                 Property.DATABASE_MODULE, conn.getDBName());
-        final DataFactory df = (DataFactory) findServiceModule(
+        DataFactory df = (DataFactory) findServiceModule(
                 monitor, DataFactory.MODULE);
-        try {
-            AccessController.doPrivileged (new PrivilegedExceptionAction<Object>() {
-                public Object run() throws IOException {
-                    //create a temporary file
-                    StorageFile lobFile =
-                        df.getStorageFactory().createTemporaryFile("lob", null);
-                    if (df.databaseEncrypted()) {
-                        tmpFile = new EncryptedLOBFile (lobFile, df);
-                    } else {
-                        tmpFile = new LOBFile (lobFile);
-                    }
-                    return null;
-                }
-            });
-        }
-        catch (PrivilegedActionException pae) {
-            throw (IOException) pae.getCause();
-        }
+        tmpFile = LOBTempSpace.openFile(df);
 
         conn.addLobFile(tmpFile);
         isBytes = false;
-        //now this call will write into the file
-        if (len != 0)
-            write(b, 0, (int) len, 0);
-        dataBytes = null;
+        for (int i = 0; len > 0; i++) {
+            int segmentLength = (int) Math.min(len, LOBTempSpace.SEGMENT_SIZE);
+            tmpFile.write(segments [i], 0, segmentLength);
+            len -= segmentLength;
+        }
+        releaseSegments(0);
+        dataLength = 0;
     }
 
-    private long updateData(byte[] bytes, int offset, int len, long pos)
-            throws StandardException {
-        if (dataBytes == null) {
-            if ((int) pos == 0) {
-                dataBytes = new byte [len];
-                System.arraycopy(bytes, offset, dataBytes, (int) pos, len);
-                return len;
-            }
-            else {
-                //invalid postion
-                throw StandardException.newException(
-                        SQLState.BLOB_POSITION_TOO_LARGE, pos);
+    /**
+     * Makes sure there are segments for the given number of bytes.
+     * @param size number of bytes to keep in memory
+     * @return {@code false} if the pool of {@code LOBTempSpace} has no more
+     *      memory to give, in which case the data must be moved to a file
+     */
+    private boolean reserve(long size) {
+        int needed = (int) ((size + LOBTempSpace.SEGMENT_SIZE - 1) /
+                LOBTempSpace.SEGMENT_SIZE);
+        for (int i = 0; i < needed; i++) {
+            if (segments [i] == null) {
+                segments [i] = LOBTempSpace.allocateSegment();
+                if (segments [i] == null) {
+                    releaseSegments(dataLength);
+                    return false;
+                }
             }
         }
-        else {
-            if (pos > dataBytes.length) {
-                //invalid postion
-                throw StandardException.newException(
-                        SQLState.BLOB_POSITION_TOO_LARGE, pos);
-            }
-            else {
-                if (pos + len < dataBytes.length) {
-                    System.arraycopy(bytes, offset, dataBytes, (int) pos, len);
-                }
-                else {
-                    byte [] tmpBytes = new byte [len + (int) pos];
-                    System.arraycopy(dataBytes, 0 , tmpBytes, 0, (int) pos);
-                    System.arraycopy(bytes, offset, tmpBytes, (int) pos, len);
-                    dataBytes = tmpBytes;
-                }
+        return true;
+    }
+
+    /**
+     * Returns the segments which are not needed for the given number of
+     * bytes to the pool.
+     * @param size number of bytes to keep in memory
+     */
+    private void releaseSegments(int size) {
+        int needed = (size + LOBTempSpace.SEGMENT_SIZE - 1) /
+                LOBTempSpace.SEGMENT_SIZE;
+        for (int i = needed; i < segments.length; i++) {
+            if (segments [i] != null) {
+                LOBTempSpace.releaseSegment(segments [i]);
+                segments [i] = null;
             }
-            return pos + len;
         }
     }
 
+    /**
+     * Copies bytes between the segments and an array.
+     * @param toSegments {@code true} to copy from the array into the segments
+     */
+    private void copySegments(byte[] bytes, int offset, int len, int pos,
+                              boolean toSegments) {
+        while (len > 0) {
+            byte [] segment = segments [pos / LOBTempSpace.SEGMENT_SIZE];
+            int segmentPos = pos % LOBTempSpace.SEGMENT_SIZE;
+            int n = Math.min(len, LOBTempSpace.SEGMENT_SIZE - segmentPos);
+            if (toSegments)
+                System.arraycopy(bytes, offset, segment, segmentPos, n);
+            else
+                System.arraycopy(segment, segmentPos, bytes, offset, n);
+            pos += n;
+            offset += n;
+            len -= n;
+        }
+    }
+
+    private long updateData(byte[] bytes, int offset, int len, long pos)
+            throws StandardException {
+        if (pos > dataLength) {
+            //invalid postion
+            throw StandardException.newException(
+                    SQLState.BLOB_POSITION_TOO_LARGE, pos);
+        }
+        copySegments(bytes, offset, len, (int) pos, true);
+        dataLength = Math.max(dataLength, (int) pos + len);
+        return pos + len;
+    }
+
     private void isValidPostion(long pos)
             throws IOException, StandardException {
         if (pos < 0)
@@ -169,11 +205,7 @@ final class LOBStreamControl {
                     SQLState.BLOB_POSITION_TOO_LARGE, (pos + 1));
 
         if (isBytes) {
-            if (dataBytes == null) {
-                if (pos != 0)
-                    throw StandardException.newException(
-                            SQLState.BLOB_POSITION_TOO_LARGE, (pos + 1));
-            } else if (dataBytes.length < pos)
+            if (dataLength < pos)
                 throw StandardException.newException(
                         SQLState.BLOB_POSITION_TOO_LARGE, (pos + 1));
         } else {
@@ -202,12 +234,12 @@ final class LOBStreamControl {
         isValidPostion(pos);
         updateCount++;
         if (isBytes) {
-            if (pos < bufferSize) {
+            if (pos < bufferSize && reserve(pos + 1)) {
                 byte [] bytes = {(byte) b};
                 updateData(bytes, 0, 1, pos);
                 return pos + 1;
             } else {
-                init(dataBytes, pos);
+                init(pos);
             }
         }
         tmpFile.seek(pos);
@@ -242,10 +274,10 @@ final class LOBStreamControl {
         }
         updateCount++;
         if (isBytes) {
-            if (pos + len <= bufferSize)
+            if (pos + len <= bufferSize && reserve(pos + len))
                 return updateData(b, off, len, pos);
             else {
-                init(dataBytes, pos);
+                init(pos);
             }
         }
         tmpFile.seek(pos);
@@ -264,9 +296,10 @@ final class LOBStreamControl {
             throws IOException, StandardException {
         isValidPostion(pos);
         if (isBytes) {
-            if (dataBytes.length == pos)
+            if (dataLength == pos)
                 return -1;
-            return dataBytes [(int) pos] & 0xff;
+            return segments [(int) pos / LOBTempSpace.SEGMENT_SIZE]
+                    [(int) pos % LOBTempSpace.SEGMENT_SIZE] & 0xff;
         }
         if (tmpFile.getFilePointer() != pos)
             tmpFile.seek(pos);
@@ -279,11 +312,11 @@ final class LOBStreamControl {
     }
 
     private int readBytes(byte [] b, int off, int len, long pos) {
-        if (pos >= dataBytes.length)
+        if (pos >= dataLength)
             return -1;
-        int lengthFromPos = dataBytes.length - (int) pos;
+        int lengthFromPos = dataLength - (int) pos;
         int actualLength = len > lengthFromPos ? lengthFromPos : len;
-        System.arraycopy(dataBytes, (int) pos, b, off, actualLength);
+        copySegments(b, off, actualLength, (int) pos, false);
         return actualLength;
     }
 
@@ -334,7 +367,7 @@ final class LOBStreamControl {
      */
     long getLength() throws IOException {
         if (isBytes)
-            return dataBytes.length;
+            return dataLength;
         return tmpFile.length();
     }
 
@@ -347,16 +380,16 @@ final class LOBStreamControl {
             throws IOException, StandardException {
         isValidPostion(size);
         if (isBytes) {
-            byte [] tmpByte = new byte [(int) size];
-            System.arraycopy(dataBytes, 0, tmpByte, 0, (int) size);
-            dataBytes = tmpByte;
+            dataLength = (int) size;
+            releaseSegments(dataLength);
         } else {
-            if (size < bufferSize) {
-                dataBytes = new byte [(int) size];
-                read(dataBytes, 0, dataBytes.length, 0);
+            if (size < bufferSize && reserve(size)) {
+                byte [] tmpByte = new byte [(int) size];
+                read(tmpByte, 0, tmpByte.length, 0);
                 isBytes = true;
                 releaseTempFile(tmpFile);
                 tmpFile = null;
+                updateData(tmpByte, 0, tmpByte.length, 0);
             } else {
                 tmpFile.setLength(size);
             }
@@ -498,21 +531,13 @@ final class LOBStreamControl {
         free();
     }
 
-    private void deleteFile(final StorageFile file) {
-        AccessController.doPrivileged(new PrivilegedAction<Object>() {
-            public Object run() {
-                file.delete();
-                return null;
-            }
-        });
-    }
-
     /**
      * Invalidates all the variables and closes file handle if open.
      * @throws IOException if closing the file fails
      */
-    void free() throws IOException {
-        dataBytes = null;
+    synchronized void free() throws IOException {
+        releaseSegments(0);
+        dataLength = 0;
         if (tmpFile != null) {
             releaseTempFile(tmpFile);
             tmpFile = null;
@@ -520,12 +545,12 @@ final class LOBStreamControl {
     }
 
     /**
-     * Close and release all resources held by a temporary file. The file will
-     * also be deleted from the file system and removed from the list of
+     * Close and release all resources held by a temporary file. The extents
+     * of the file will be released, and it will be removed from the list of
      * {@code LOBFile}s in {@code EmbedConnection}.
      *
      * @param file the temporary file
-     * @throws IOException if the file cannot be closed or deleted
+     * @throws IOException if the file cannot be closed
      */
     private void releaseTempFile(LOBFile file) throws IOException {
         // Remove the file from the list of open files *first*, then close it.
@@ -544,7 +569,6 @@ final class LOBStreamControl {
         // fix for http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=6322678 .
         conn.removeLobFile(file);
         file.close();
-        deleteFile(file.getStorageFile());
     }
     
     /**
@@ -566,31 +590,29 @@ final class LOBStreamControl {
         long length = getLength();
         if (isBytes) {
             long finalLength = length - endPos + stPos + buf.length;
-            if (finalLength > bufferSize) {
-                byte [] tmpBytes = dataBytes;
-                init (tmpBytes, stPos);
+            //save the bytes after the replaced block, they are overwritten
+            byte [] tailBytes = new byte [(int) (length - endPos)];
+            copySegments (tailBytes, 0, tailBytes.length, (int) endPos, false);
+            if (finalLength > bufferSize || !reserve (finalLength)) {
+                init (stPos);
                 write (buf, 0, buf.length, getLength());
                 if (endPos < length)
-                    write (tmpBytes, (int) endPos, 
-                            (int) (length - endPos), getLength());
+                    write (tailBytes, 0, tailBytes.length, getLength());
             }
             else {
-                byte [] tmpByte = new byte [(int) finalLength];
-                System.arraycopy (dataBytes, 0, tmpByte, 0, (int) stPos);
-                System.arraycopy (buf, 0, tmpByte, (int) stPos, (int) buf.length);
-                if (endPos < length)
-                    System.arraycopy (dataBytes, (int) endPos, tmpByte, 
-                            (int) (stPos + buf.length), (int) (length - endPos));
-                dataBytes = tmpByte;            
+                copySegments (buf, 0, buf.length, (int) stPos, true);
+                copySegments (tailBytes, 0, tailBytes.length,
+                        (int) (stPos + buf.length), true);
+                dataLength = (int) finalLength;
+                releaseSegments (dataLength);
             }
         }
         else {
             //save over file handle and 
             //create new file with 0 size
             
-            byte tmp [] = new byte [0];
             LOBFile oldFile = tmpFile;
-            init (tmp, 0);
+            init (0);
             byte [] tmpByte = new byte [1024];
             long sz = stPos;
             oldFile.seek(0);
@@ -0,0 +1,200 @@
+/*
+
+   Derby - Class org.apache.derby.impl.jdbc.LOBTempSpace
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.derby.impl.jdbc;
+
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import org.apache.derby.iapi.services.property.PropertyUtil;
+import org.apache.derby.iapi.store.raw.data.DataFactory;
+import org.apache.derby.shared.common.reference.Property;
+
+/**
+ * The temporary space shared by the LOBs of all the connections in the
+ * system.
+ * <p>
+ * The data of a LOB is kept in memory in segments of {@code SEGMENT_SIZE}
+ * bytes taken from a pool, as long as the memory used by all the LOBs stays
+ * within the budget given by {@code derby.jdbc.lobTempMemory}. A LOB which
+ * grows beyond the size it may keep in memory, or which cannot get more
+ * memory from the pool, spills to disk. All the LOBs of a database spill
+ * into the extents of a single {@link LOBSpillFile}, which is removed again
+ * when the last of them is released.
+ * <p>
+ * The class also counts the bytes held in memory and on disk, which are
+ * made available through {@link LOBTempSpaceMBeanImpl}.
+ */
+final class LOBTempSpace {
+    /** The size of the memory segments. */
+    static final int SEGMENT_SIZE = 4096;
+
+    /** The maximum number of bytes held in memory segments. */
+    private static final long memoryBudget =
+        (long) PropertyUtil.getSystemInt(Property.LOB_TEMP_MEMORY,
+                0, Integer.MAX_VALUE, Property.LOB_TEMP_MEMORY_DEFAULT)
+            / SEGMENT_SIZE * SEGMENT_SIZE;
+
+    /** Segments which have been released and may be handed out again. */
+    private static final ArrayDeque<byte[]> freeSegments =
+            new ArrayDeque<byte[]>();
+
+    /** The spill files of the databases, which are in use by some LOB. */
+    private static final HashMap<DataFactory, LOBSpillFile> spillFiles =
+            new HashMap<DataFactory, LOBSpillFile>();
+
+    /** Number of bytes in the segments used by LOBs. */
+    private static long memoryBytes;
+    /** Highest value of {@code memoryBytes}. */
+    private static long peakMemoryBytes;
+    /** Number of bytes in the extents used by LOBs. */
+    private static long spilledBytes;
+    /** Highest value of {@code spilledBytes}. */
+    private static long peakSpilledBytes;
+    /** Number of times a LOB has moved from memory to disk. */
+    private static long spillCount;
+
+    private LOBTempSpace() {
+    }
+
+    /**
+     * Take a segment from the pool.
+     *
+     * @return a segment of {@code SEGMENT_SIZE} bytes, or {@code null} if the
+     *      memory budget is used up
+     */
+    static synchronized byte[] allocateSegment() {
+        if (memoryBytes + SEGMENT_SIZE > memoryBudget) {
+            return null;
+        }
+        memoryBytes += SEGMENT_SIZE;
+        peakMemoryBytes = Math.max(peakMemoryBytes, memoryBytes);
+        byte[] segment = freeSegments.poll();
+        return segment == null ? new byte[SEGMENT_SIZE] : segment;
+    }
+
+    /**
+     * Return a segment to the pool. The pool never holds more segments than
+     * the memory budget allows, since a segment is only created when the
+     * pool is empty.
+     *
+     * @param segment a segment from {@link #allocateSegment()}
+     */
+    static synchronized void releaseSegment(byte[] segment) {
+        memoryBytes -= SEGMENT_SIZE;
+        freeSegments.push(segment);
+    }
+
+    /**
+     * Open a LOB file in the spill file of a database. The spill file is
+     * created if no other LOB of the database has spilled to disk.
+     *
+     * @param df the data factory of the database
+     * @return a new LOB file, which must be closed to release its extents
+     * @throws IOException if the spill file cannot be created
+     */
+    static LOBFile openFile(final DataFactory df) throws IOException {
+        LOBSpillFile spillFile;
+        synchronized (spillFiles) {
+            spillFile = spillFiles.get(df);
+            if (spillFile == null) {
+                try {
+                    spillFile = AccessController.doPrivileged(
+                            new PrivilegedExceptionAction<LOBSpillFile>() {
+                        public LOBSpillFile run() throws IOException {
+                            return new LOBSpillFile(df.getStorageFactory()
+                                    .createTemporaryFile("lob", null));
+                        }
+                    });
+                } catch (PrivilegedActionException pae) {
+                    throw (IOException) pae.getCause();
+                }
+                spillFiles.put(df, spillFile);
+            }
+            spillFile.addUser();
+        }
+        synchronized (LOBTempSpace.class) {
+            spillCount++;
+        }
+        if (df.databaseEncrypted()) {
+            return new EncryptedLOBFile(spillFile, df);
+        }
+        return new LOBFile(spillFile);
+    }
+
+    /**
+     * Release a spill file when a LOB file using it is closed. The spill file
+     * is closed and deleted once it has no more users.
+     *
+     * @param spillFile the spill file of the LOB file
+     * @throws IOException if the spill file cannot be closed
+     */
+    static void closeFile(LOBSpillFile spillFile) throws IOException {
+        synchronized (spillFiles) {
+            if (spillFile.removeUser()) {
+                spillFiles.values().remove(spillFile);
+                spillFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Count extents which have been taken or given back by a LOB file.
+     *
+     * @param bytes the size of the extents, negative if they were released
+     */
+    static synchronized void countSpilledBytes(long bytes) {
+        spilledBytes += bytes;
+        peakSpilledBytes = Math.max(peakSpilledBytes, spilledBytes);
+    }
+
+    static long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    static synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    static synchronized long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    static synchronized long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    static synchronized long getPeakSpilledBytes() {
+        return peakSpilledBytes;
+    }
+
+    static synchronized long getSpillCount() {
+        return spillCount;
+    }
+
+    static int getSpillFileCount() {
+        synchronized (spillFiles) {
+            return spillFiles.size();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+
+   Derby - Class org.apache.derby.impl.jdbc.LOBTempSpaceMBeanImpl
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.jdbc;
+
+import java.security.AccessControlException;
+import java.security.AccessController;
+import org.apache.derby.mbeans.LOBTempSpaceMBean;
+import org.apache.derby.shared.common.security.SystemPermission;
+
+/**
+ * This class provides monitoring capabilities for the temporary space of
+ * LOBs through Java Management Extension (JMX).
+ */
+public final class LOBTempSpaceMBeanImpl implements LOBTempSpaceMBean {
+
+    @Override
+    public long getMemoryBudget() {
+        checkPermission();
+        return LOBTempSpace.getMemoryBudget();
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        checkPermission();
+        return LOBTempSpace.getMemoryBytes();
+    }
+
+    @Override
+    public long getPeakMemoryBytes() {
+        checkPermission();
+        return LOBTempSpace.getPeakMemoryBytes();
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        checkPermission();
+        return LOBTempSpace.getSpilledBytes();
+    }
+
+    @Override
+    public long getPeakSpilledBytes() {
+        checkPermission();
+        return LOBTempSpace.getPeakSpilledBytes();
+    }
+
+    @Override
+    public long getSpillCount() {
+        checkPermission();
+        return LOBTempSpace.getSpillCount();
+    }
+
+    @Override
+    public int getSpillFileCount() {
+        checkPermission();
+        return LOBTempSpace.getSpillFileCount();
+    }
+
+    private static void checkPermission() {
+        if (System.getSecurityManager() != null) {
+            try {
+                AccessController.checkPermission(
+                        SystemPermission.ENGINE_MONITOR);
+            } catch (AccessControlException ace) {
+                // Need to throw a simplified version as AccessControlException
+                // will have a reference to Derby's SystemPermission class,
+                // which most likely will not be available on the client.
+                throw new SecurityException(ace.getMessage());
+            }
+        }
+    }
+}
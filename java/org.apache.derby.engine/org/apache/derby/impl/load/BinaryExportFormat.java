@@ -0,0 +1,202 @@
+/*
+
+   Derby - Class org.apache.derby.impl.load.BinaryExportFormat
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.load;
+
+import java.sql.Types;
+
+/**
+ * <p>
+ * Constants for the binary export format written by {@link ExportBinary}
+ * and read by {@link ImportBinary}. All numbers are written in the byte
+ * order of <code>java.io.DataOutputStream</code>.
+ * </p>
+ *
+ * <p>
+ * The file starts with a header:
+ * </p>
+ *
+ * <pre>
+ * byte[8]  MAGIC
+ * short    VERSION
+ * int      number of columns
+ * for each column:
+ *   UTF    column name
+ *   int    JDBC type
+ *   UTF    SQL type name
+ *   int    precision
+ *   int    scale
+ * </pre>
+ *
+ * <p>
+ * The rows follow in blocks of at most ROWS_PER_BLOCK rows. A block holds
+ * one chunk for each column, so a reader only has to decode the columns
+ * it needs:
+ * </p>
+ *
+ * <pre>
+ * int      number of rows in the block, 0 after the last block
+ * for each column:
+ *   byte   chunk flags
+ *   long   minimum and maximum (or double for REAL and DOUBLE),
+ *          if CHUNK_MIN_MAX is set
+ *   int    length of the data when inflated, if CHUNK_COMPRESSED is set
+ *   int    length of the data
+ *   byte[] data, deflated if CHUNK_COMPRESSED is set:
+ *            a bitmap with one bit per row, if CHUNK_NULLS is set
+ *            the values of the rows which are not NULL
+ * </pre>
+ *
+ * <p>
+ * The minimum and maximum are only written for the numeric and datetime
+ * columns which have non-NULL values in the chunk, so that a reader
+ * can skip the chunks which cannot match a range.
+ * </p>
+ */
+final class BinaryExportFormat
+{
+    /** First bytes of every file. */
+    static final byte[] MAGIC =
+        { 'D', 'E', 'R', 'B', 'Y', 'B', 'I', 'N' };
+
+    static final short VERSION = 1;
+
+    /**
+     * Maximum number of rows in a block. Blocks are also ended after
+     * BLOCK_BYTES bytes, so that LOB columns don't use too much memory.
+     */
+    static final int ROWS_PER_BLOCK = 4096;
+    static final int BLOCK_BYTES = 1024 * 1024;
+
+    /** The chunk has a bitmap of the NULL values. */
+    static final int CHUNK_NULLS = 0x01;
+
+    /** The chunk has the minimum and maximum value. */
+    static final int CHUNK_MIN_MAX = 0x02;
+
+    /** The data of the chunk is deflated. */
+    static final int CHUNK_COMPRESSED = 0x04;
+
+    /*
+     * How the values of a column are written. A SMALLINT is written as a
+     * short, an INTEGER as an int and so on. DECIMAL values are written as
+     * the scale followed by the length and bytes of the unscaled value.
+     * Strings are written as the length and bytes of their UTF-8 encoding,
+     * and binary values as the length and the bytes. A DATE is written as
+     * the day since 1970-01-01, a TIME as the second of the day, and a
+     * TIMESTAMP as the second since 1970-01-01T00:00 followed by the
+     * nanoseconds, all without a time zone. User-defined types are written
+     * as serialized objects.
+     */
+    static final int KIND_SHORT = 1;
+    static final int KIND_INT = 2;
+    static final int KIND_LONG = 3;
+    static final int KIND_FLOAT = 4;
+    static final int KIND_DOUBLE = 5;
+    static final int KIND_DECIMAL = 6;
+    static final int KIND_STRING = 7;
+    static final int KIND_BYTES = 8;
+    static final int KIND_BOOLEAN = 9;
+    static final int KIND_DATE = 10;
+    static final int KIND_TIME = 11;
+    static final int KIND_TIMESTAMP = 12;
+    static final int KIND_OBJECT = 13;
+
+    private BinaryExportFormat() {
+    }
+
+    /**
+     * Get the kind of values used for a JDBC type.
+     *
+     * @return one of the KIND constants, or 0 if the type cannot be
+     *   exported
+     */
+    static int kindOf(int jdbcType)
+    {
+        switch (jdbcType)
+        {
+        case Types.SMALLINT:
+        case Types.TINYINT:
+            return KIND_SHORT;
+        case Types.INTEGER:
+            return KIND_INT;
+        case Types.BIGINT:
+            return KIND_LONG;
+        case Types.REAL:
+            return KIND_FLOAT;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return KIND_DOUBLE;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+            return KIND_DECIMAL;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.CLOB:
+            return KIND_STRING;
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+        case Types.BLOB:
+            return KIND_BYTES;
+        case Types.BOOLEAN:
+            return KIND_BOOLEAN;
+        case Types.DATE:
+            return KIND_DATE;
+        case Types.TIME:
+            return KIND_TIME;
+        case Types.TIMESTAMP:
+            return KIND_TIMESTAMP;
+        case Types.JAVA_OBJECT:
+            return KIND_OBJECT;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Whether the minimum and maximum of a chunk are written as longs.
+     */
+    static boolean hasLongRange(int kind)
+    {
+        switch (kind)
+        {
+        case KIND_SHORT:
+        case KIND_INT:
+        case KIND_LONG:
+        case KIND_DATE:
+        case KIND_TIME:
+        case KIND_TIMESTAMP:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Whether the minimum and maximum of a chunk are written as doubles.
+     */
+    static boolean hasDoubleRange(int kind)
+    {
+        return kind == KIND_FLOAT || kind == KIND_DOUBLE;
+    }
+}
@@ -0,0 +1,582 @@
+/*
+
+   Derby - Class org.apache.derby.impl.load.ExportBinary
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.load;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.apache.derby.shared.common.error.PublicAPI;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.iapi.services.io.FileUtil;
+import org.apache.derby.iapi.security.Securable;
+import org.apache.derby.iapi.security.SecurityUtil;
+
+/**
+ * This class exports the data of a table or a query into a file in the
+ * binary format described in {@link BinaryExportFormat}. The values are
+ * read with the typed getters of the ResultSet and written without
+ * converting them to text, one block of column chunks at a time.
+ * Export functions provided in this class are called through System
+ * Procedures, and the file is read back by {@link ImportBinary}.
+ */
+public class ExportBinary
+{
+    private final Connection con;
+    private final String schemaName;
+    private final String tableName;
+    private final String selectStatement;
+    private final String outputFileName;
+    private final boolean compress;
+
+    /** Used to compress the chunks, if compress is set. */
+    private Deflater deflater;
+
+    private ExportBinary(Connection con, String schemaName,
+                         String tableName, String selectStatement,
+                         String outputFileName, short compress)
+    {
+        this.con = con;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.selectStatement = selectStatement;
+        this.outputFileName = outputFileName;
+        this.compress = compress > 0;
+    }
+
+    /**
+     * SYSCS_EXPORT_TABLE_BINARY system Procedure from ij or from a Java
+     * application invokes this method to perform export of a table data
+     * to a binary file.
+     *
+     * @param con   The Derby database connection URL for the database
+     *              containing the table
+     * @param schemaName  schema name of the table data is being exported from
+     * @param tableName   Name of the Table from which data has to be exported.
+     * @param outputFileName Name of the file to which data has to be exported.
+     * @param compress   Whether the column chunks are compressed
+     *                   (0 - no, &gt; 0 - yes)
+     * @exception SQLException on errors
+     */
+    public static void exportTable(Connection con, String schemaName,
+                                   String tableName, String outputFileName,
+                                   short compress)
+        throws SQLException
+    {
+        /** Make sure that the current user has permission to perform this operation */
+        try {
+            SecurityUtil.authorize( Securable.EXPORT_TABLE );
+        }
+        catch (StandardException se) { throw PublicAPI.wrapStandardException( se ); }
+
+        new ExportBinary(con, schemaName, tableName, null,
+                         outputFileName, compress).doExport();
+    }
+
+    /**
+     * SYSCS_EXPORT_QUERY_BINARY system Procedure from ij or from a Java
+     * application invokes this method to perform export of the data
+     * retrieved by select statement to a binary file.
+     *
+     * @param con   The Derby database connection URL for the database
+     *              containing the table
+     * @param selectStatement    select query that is used to export the data
+     * @param outputFileName Name of the file to which data has to be exported.
+     * @param compress   Whether the column chunks are compressed
+     *                   (0 - no, &gt; 0 - yes)
+     * @exception SQLException on errors
+     */
+    public static void exportQuery(Connection con, String selectStatement,
+                                   String outputFileName, short compress)
+        throws SQLException
+    {
+        new ExportBinary(con, null, null, selectStatement,
+                         outputFileName, compress).doExport();
+    }
+
+    private void doExport() throws SQLException
+    {
+        try {
+            if (tableName == null && selectStatement == null)
+                throw LoadError.entityNameMissing();
+            if (outputFileName == null)
+                throw LoadError.dataFileNull();
+
+            ExportResultSetForObject exportResultSetForObject =
+                new ExportResultSetForObject(con, schemaName, tableName,
+                                             selectStatement);
+            DataOutputStream out = null;
+            try {
+                ResultSet rs = exportResultSetForObject.getResultSet();
+                ColumnWriter[] columns = getColumnWriters(rs.getMetaData());
+
+                out = openFile();
+                writeHeader(out, rs.getMetaData());
+
+                int rows = 0;
+                long bytes = 0;
+                while (rs.next())
+                {
+                    for (int i = 0; i < columns.length; i++)
+                    {
+                        bytes += columns[i].add(rs, i + 1, rows);
+                    }
+                    rows++;
+
+                    if (rows == BinaryExportFormat.ROWS_PER_BLOCK ||
+                        bytes >= BinaryExportFormat.BLOCK_BYTES)
+                    {
+                        writeBlock(out, columns, rows);
+                        rows = 0;
+                        bytes = 0;
+                    }
+                }
+                if (rows > 0)
+                {
+                    writeBlock(out, columns, rows);
+                }
+                out.writeInt(0);
+            } catch (IOException iex) {
+                //in case of ioexception, catch it and throw it as our own exception
+                throw LoadError.errorWritingData(iex);
+            } finally {
+                exportResultSetForObject.close();
+                if (out != null)
+                    out.close();
+                if (deflater != null)
+                    deflater.end();
+            }
+        } catch (Exception ex) {
+            throw LoadError.unexpectedError(ex);
+        }
+    }
+
+    /**
+     * Create the writers for the columns of the result set.
+     *
+     * @exception SQLException if a column cannot be exported
+     */
+    private ColumnWriter[] getColumnWriters(ResultSetMetaData metaData)
+        throws SQLException
+    {
+        ColumnWriter[] columns = new ColumnWriter[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            int jdbcType = metaData.getColumnType(i + 1);
+            int kind = BinaryExportFormat.kindOf(jdbcType);
+            if (kind == 0)
+            {
+                throw LoadError.nonSupportedTypeColumn(
+                    metaData.getColumnName(i + 1),
+                    metaData.getColumnTypeName(i + 1));
+            }
+            columns[i] = new ColumnWriter(kind, jdbcType);
+        }
+        return columns;
+    }
+
+    /**
+     * Create the output file, which must not exist already.
+     */
+    private DataOutputStream openFile() throws Exception
+    {
+        final String fileName =
+            FileUtil.stripProtocolFromFileName(outputFileName);
+        try {
+            OutputStream out = AccessController.doPrivileged(
+                new PrivilegedExceptionAction<OutputStream>() {
+                    public OutputStream run() throws Exception {
+                        File file = new File(fileName);
+                        if (file.exists())
+                            throw LoadError.dataFileExists(outputFileName);
+                        FileOutputStream fos = new FileOutputStream(file);
+                        FileUtil.limitAccessToOwner(file);
+                        return fos;
+                    }
+                });
+            return new DataOutputStream(
+                new BufferedOutputStream(out, 64 * 1024));
+        } catch (PrivilegedActionException pae) {
+            throw pae.getException();
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out,
+                                     ResultSetMetaData metaData)
+        throws IOException, SQLException
+    {
+        out.write(BinaryExportFormat.MAGIC);
+        out.writeShort(BinaryExportFormat.VERSION);
+        int columnCount = metaData.getColumnCount();
+        out.writeInt(columnCount);
+        for (int i = 1; i <= columnCount; i++)
+        {
+            out.writeUTF(metaData.getColumnName(i));
+            out.writeInt(metaData.getColumnType(i));
+            out.writeUTF(metaData.getColumnTypeName(i));
+            out.writeInt(metaData.getPrecision(i));
+            out.writeInt(metaData.getScale(i));
+        }
+    }
+
+    private void writeBlock(DataOutputStream out, ColumnWriter[] columns,
+                            int rows)
+        throws IOException
+    {
+        out.writeInt(rows);
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i].writeChunk(out, rows);
+        }
+    }
+
+    /**
+     * Collects the values of one column for the current block, and writes
+     * them as a chunk when the block is complete.
+     */
+    private final class ColumnWriter
+    {
+        private final int kind;
+        private final int jdbcType;
+
+        private final ByteArrayOutputStream buffer =
+            new ByteArrayOutputStream();
+        private final DataOutputStream values = new DataOutputStream(buffer);
+
+        /** One bit for each row of the block which is NULL. */
+        private final byte[] nulls =
+            new byte[(BinaryExportFormat.ROWS_PER_BLOCK + 7) / 8];
+        private boolean hasNulls;
+
+        /** Range of the values in the block, if hasValues is set. */
+        private boolean hasValues;
+        private long min;
+        private long max;
+        private double doubleMin;
+        private double doubleMax;
+
+        ColumnWriter(int kind, int jdbcType)
+        {
+            this.kind = kind;
+            this.jdbcType = jdbcType;
+        }
+
+        /**
+         * Add the value of the current row of the result set.
+         *
+         * @return the number of bytes added to the chunk
+         */
+        int add(ResultSet rs, int column, int row)
+            throws IOException, SQLException
+        {
+            int size = values.size();
+            switch (kind)
+            {
+            case BinaryExportFormat.KIND_SHORT:
+            {
+                short value = rs.getShort(column);
+                if (!rs.wasNull())
+                {
+                    values.writeShort(value);
+                    addToRange(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_INT:
+            {
+                int value = rs.getInt(column);
+                if (!rs.wasNull())
+                {
+                    values.writeInt(value);
+                    addToRange(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_LONG:
+            {
+                long value = rs.getLong(column);
+                if (!rs.wasNull())
+                {
+                    values.writeLong(value);
+                    addToRange(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_FLOAT:
+            {
+                float value = rs.getFloat(column);
+                if (!rs.wasNull())
+                {
+                    values.writeFloat(value);
+                    addToRange((double) value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_DOUBLE:
+            {
+                double value = rs.getDouble(column);
+                if (!rs.wasNull())
+                {
+                    values.writeDouble(value);
+                    addToRange(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_DECIMAL:
+            {
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value != null)
+                {
+                    values.writeInt(value.scale());
+                    writeBytes(value.unscaledValue().toByteArray());
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_STRING:
+            {
+                String value = rs.getString(column);
+                if (value != null)
+                {
+                    writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_BYTES:
+            {
+                byte[] value;
+                if (jdbcType == Types.BLOB)
+                {
+                    Blob blob = rs.getBlob(column);
+                    value = blob == null ?
+                        null : blob.getBytes(1, (int) blob.length());
+                }
+                else
+                {
+                    value = rs.getBytes(column);
+                }
+                if (value != null)
+                {
+                    writeBytes(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_BOOLEAN:
+            {
+                boolean value = rs.getBoolean(column);
+                if (!rs.wasNull())
+                {
+                    values.writeBoolean(value);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_DATE:
+            {
+                java.sql.Date value = rs.getDate(column);
+                if (value != null)
+                {
+                    long day = value.toLocalDate().toEpochDay();
+                    values.writeLong(day);
+                    addToRange(day);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_TIME:
+            {
+                java.sql.Time value = rs.getTime(column);
+                if (value != null)
+                {
+                    int second = value.toLocalTime().toSecondOfDay();
+                    values.writeInt(second);
+                    addToRange(second);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_TIMESTAMP:
+            {
+                java.sql.Timestamp value = rs.getTimestamp(column);
+                if (value != null)
+                {
+                    LocalDateTime dateTime = value.toLocalDateTime();
+                    long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+                    values.writeLong(second);
+                    values.writeInt(dateTime.getNano());
+                    addToRange(second);
+                }
+                break;
+            }
+            case BinaryExportFormat.KIND_OBJECT:
+            {
+                Object value = rs.getObject(column);
+                if (value != null)
+                {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    ObjectOutputStream oos = new ObjectOutputStream(bytes);
+                    oos.writeObject(value);
+                    oos.close();
+                    writeBytes(bytes.toByteArray());
+                }
+                break;
+            }
+            }
+
+            if (values.size() == size)
+            {
+                // Every value takes at least one byte, so nothing was
+                // written if the value is NULL.
+                setNull(row);
+            }
+            return values.size() - size;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException
+        {
+            values.writeInt(bytes.length);
+            values.write(bytes);
+        }
+
+        private void setNull(int row)
+        {
+            nulls[row >> 3] |= (byte) (1 << (row & 7));
+            hasNulls = true;
+        }
+
+        private void addToRange(long value)
+        {
+            if (!hasValues || value < min)
+                min = value;
+            if (!hasValues || value > max)
+                max = value;
+            hasValues = true;
+        }
+
+        private void addToRange(double value)
+        {
+            // NaN has no place in a range, so the range is not written.
+            if (!hasValues || value < doubleMin || Double.isNaN(value))
+                doubleMin = value;
+            if (!hasValues || value > doubleMax || Double.isNaN(value))
+                doubleMax = value;
+            hasValues = true;
+        }
+
+        /**
+         * Write the chunk for the rows added since the last chunk, and
+         * start a new one.
+         */
+        void writeChunk(DataOutputStream out, int rows) throws IOException
+        {
+            int flags = 0;
+
+            ByteArrayOutputStream data =
+                new ByteArrayOutputStream(buffer.size() + nulls.length);
+            if (hasNulls)
+            {
+                flags |= BinaryExportFormat.CHUNK_NULLS;
+                data.write(nulls, 0, (rows + 7) / 8);
+            }
+            buffer.writeTo(data);
+            byte[] bytes = data.toByteArray();
+            int length = bytes.length;
+
+            if (hasValues && (BinaryExportFormat.hasLongRange(kind) ||
+                              (BinaryExportFormat.hasDoubleRange(kind) &&
+                               !Double.isNaN(doubleMin) &&
+                               !Double.isNaN(doubleMax))))
+            {
+                flags |= BinaryExportFormat.CHUNK_MIN_MAX;
+            }
+
+            byte[] compressed = null;
+            int compressedLength = 0;
+            if (compress && length > 0)
+            {
+                if (deflater == null)
+                    deflater = new Deflater(Deflater.BEST_SPEED);
+                deflater.reset();
+                deflater.setInput(bytes);
+                deflater.finish();
+                compressed = new byte[length];
+                while (!deflater.finished() && compressedLength < length)
+                {
+                    compressedLength += deflater.deflate(
+                        compressed, compressedLength,
+                        length - compressedLength);
+                }
+                // Keep the data as it is if it did not get any smaller.
+                if (deflater.finished() && compressedLength < length)
+                    flags |= BinaryExportFormat.CHUNK_COMPRESSED;
+            }
+
+            out.writeByte(flags);
+            if ((flags & BinaryExportFormat.CHUNK_MIN_MAX) != 0)
+            {
+                if (BinaryExportFormat.hasLongRange(kind))
+                {
+                    out.writeLong(min);
+                    out.writeLong(max);
+                }
+                else
+                {
+                    out.writeDouble(doubleMin);
+                    out.writeDouble(doubleMax);
+                }
+            }
+            if ((flags & BinaryExportFormat.CHUNK_COMPRESSED) != 0)
+            {
+                out.writeInt(length);
+                out.writeInt(compressedLength);
+                out.write(compressed, 0, compressedLength);
+            }
+            else
+            {
+                out.writeInt(length);
+                out.write(bytes);
+            }
+
+            buffer.reset();
+            if (hasNulls)
+                Arrays.fill(nulls, (byte) 0);
+            hasNulls = false;
+            hasValues = false;
+        }
+    }
+}
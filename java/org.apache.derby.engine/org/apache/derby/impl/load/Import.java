@@ -154,7 +154,7 @@ public class Import extends ImportAbstract{
 		performImport(connection,  schemaName,  null, //No columnList 
 					  null , //No column indexes
 					  tableName, inputFileName, columnDelimiter, 
-					  characterDelimiter, codeset, replace, lobsInExtFile);
+					  characterDelimiter, codeset, replace, lobsInExtFile, 1);
 	}
 
 
@@ -211,7 +211,50 @@ public class Import extends ImportAbstract{
             skip=0;
 			performImport(connection,  schemaName,  insertColumnList,columnIndexes, 
 						  tableName, inputFileName, columnDelimiter, 
-						  characterDelimiter, codeset, replace, lobsInExtFile);
+						  characterDelimiter, codeset, replace, lobsInExtFile, 1);
+	}
+
+
+	/**
+	 * SYSCS_IMPORT_TABLE_PARALLEL system Procedure from ij or from a Java
+	 * application invokes this method to perform import to a table from a
+	 * file, parsing the file in several threads.
+	 *
+	 * @param connection	 The Derby database connection URL for the database containing the table
+	 * @param schemaName	The name of the schema where table to import exists 
+	 * @param tableName     Name of the Table the data has to be imported to.
+	 * @param inputFileName Name of the file from which data has to be imported.
+	 * @param columnDelimiter  Delimiter that seperates columns in the file
+	 * @param characterDelimiter  Delimiter that is used to quiote non-numeric types
+	 * @param codeset           Codeset of the data in the file
+	 * @param replace          Indicates whether the data in table has to be replaced or
+	 *                         appended.(0 - append , &gt; 0 Replace the data)
+	 * @param parallelism      Number of threads that parse the file. With 1,
+	 *                         the file is read as by importTable.
+     * @exception SQLException on errors
+	 */
+	public static void importTableParallel(Connection connection, String schemaName,
+                                           String tableName, String inputFileName,
+                                           String columnDelimiter,
+                                           String characterDelimiter, String codeset,
+                                           short replace, int parallelism)
+		throws SQLException {
+
+        /** Make sure that the current user has permission to perform this operation */
+        try {
+            SecurityUtil.authorize( Securable.IMPORT_TABLE );
+        }
+        catch (StandardException se) { throw PublicAPI.wrapStandardException( se ); }
+        if (parallelism < 1)
+            throw PublicAPI.wrapStandardException(StandardException.newException
+                (SQLState.LANG_INVALID_FUNCTION_ARGUMENT,
+                 Integer.toString(parallelism), "SYSCS_IMPORT_TABLE_PARALLEL"));
+        skip=0;
+
+		performImport(connection,  schemaName,  null, //No columnList 
+					  null , //No column indexes
+					  tableName, inputFileName, columnDelimiter, 
+					  characterDelimiter, codeset, replace, false, parallelism);
 	}
 
 
@@ -234,7 +277,8 @@ public class Import extends ImportAbstract{
          String characterDelimiter, 
          String codeset, 
          short replace, 
-         boolean lobsInExtFile)
+         boolean lobsInExtFile,
+         int parallelism)
         throws SQLException 
     {
         Integer     importCounter = bumpImportCounter();
@@ -268,7 +312,10 @@ public class Import extends ImportAbstract{
             }
 
             StringBuffer sb = new StringBuffer("new ");
-            sb.append("org.apache.derby.impl.load.Import");
+            if (parallelism > 1)
+                sb.append("org.apache.derby.impl.load.ParallelImport");
+            else
+                sb.append("org.apache.derby.impl.load.Import");
             sb.append("(") ;
             sb.append(quoteStringArgument(inputFileName));
             sb.append(",") ;
@@ -290,6 +337,11 @@ public class Import extends ImportAbstract{
             sb.append(quoteStringArgument( columnTypeNames ) );
             sb.append(", ");
             sb.append(quoteStringArgument( udtClassNames ) );
+            if (parallelism > 1)
+            {
+                sb.append(", ");
+                sb.append(parallelism);
+            }
             sb.append(" )") ;
             
             String importvti = sb.toString();
@@ -0,0 +1,586 @@
+/*
+
+   Derby - Class org.apache.derby.impl.load.ImportBinary
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.load;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.derby.shared.common.error.PublicAPI;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.iapi.services.io.FileUtil;
+import org.apache.derby.iapi.security.Securable;
+import org.apache.derby.iapi.security.SecurityUtil;
+import org.apache.derby.iapi.util.IdUtil;
+import org.apache.derby.iapi.util.StringUtil;
+import org.apache.derby.vti.VTIMetaDataTemplate;
+import org.apache.derby.vti.VTITemplate;
+
+/**
+ * <p>
+ * Import VTI which reads a file written by {@link ExportBinary}. The
+ * columns have the types that were exported, so the values are inserted
+ * without parsing text, and converted by the normal assignment rules of
+ * INSERT if the table columns have different types.
+ * </p>
+ *
+ * <p>
+ * The file is read one block at a time, and the chunks of a block are
+ * inflated before the first row of the block is returned.
+ * </p>
+ */
+public class ImportBinary extends VTITemplate
+{
+    private final String inputFileName;
+    private DataInputStream in;
+
+    private final String[] columnNames;
+    private final int[] columnTypes;
+    private final String[] columnTypeNames;
+    private final int[] precisions;
+    private final int[] scales;
+    private final int[] kinds;
+
+    /** Chunks of the current block. */
+    private final DataInputStream[] chunks;
+    private final byte[][] nullBitmaps;
+    private int blockRows;
+    private int blockRow;
+    private boolean endOfFile;
+
+    /** Values of the current row. */
+    private final Object[] row;
+    private boolean wasNull;
+
+    private Inflater inflater;
+
+    /**
+     * Constructor to invoke the binary import from a select statement.
+     *
+     * @param inputFileName the file written by the binary export
+     * @exception SQLException on error
+     */
+    public ImportBinary(String inputFileName) throws SQLException
+    {
+        this.inputFileName = inputFileName;
+        try {
+            if (inputFileName == null)
+                throw LoadError.dataFileNull();
+            in = openFile(inputFileName);
+
+            byte[] magic = new byte[BinaryExportFormat.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, BinaryExportFormat.MAGIC))
+                throw invalidFile("MAGIC");
+            short version = in.readShort();
+            if (version != BinaryExportFormat.VERSION)
+                throw invalidFile("VERSION " + version);
+
+            int columnCount = in.readInt();
+            if (columnCount <= 0)
+                throw invalidFile("COLUMNS " + columnCount);
+            columnNames = new String[columnCount];
+            columnTypes = new int[columnCount];
+            columnTypeNames = new String[columnCount];
+            precisions = new int[columnCount];
+            scales = new int[columnCount];
+            kinds = new int[columnCount];
+            for (int i = 0; i < columnCount; i++)
+            {
+                columnNames[i] = in.readUTF();
+                columnTypes[i] = in.readInt();
+                columnTypeNames[i] = in.readUTF();
+                precisions[i] = in.readInt();
+                scales[i] = in.readInt();
+                kinds[i] = BinaryExportFormat.kindOf(columnTypes[i]);
+                if (kinds[i] == 0)
+                    throw invalidFile(columnTypeNames[i]);
+            }
+        } catch (EOFException eofe) {
+            close();
+            throw invalidFile(eofe.toString());
+        } catch (Exception ex) {
+            close();
+            throw LoadError.unexpectedError(ex);
+        }
+
+        chunks = new DataInputStream[columnNames.length];
+        nullBitmaps = new byte[columnNames.length][];
+        row = new Object[columnNames.length];
+    }
+
+    /**
+     * SYSCS_IMPORT_TABLE_BINARY system Procedure from ij or from a Java
+     * application invokes this method to perform import to a table from
+     * a file written by SYSCS_EXPORT_TABLE_BINARY or
+     * SYSCS_EXPORT_QUERY_BINARY.
+     *
+     * @param connection	 The Derby database connection URL for the database containing the table
+     * @param schemaName	The name of the schema where table to import exists
+     * @param tableName     Name of the Table the data has to be imported to.
+     * @param inputFileName Name of the file from which data has to be imported.
+     * @param replace          Indicates whether the data in table has to be replaced or
+     *                         appended.(0 - append , &gt; 0 Replace the data)
+     * @exception SQLException on errors
+     */
+    public static void importTable(Connection connection, String schemaName,
+                                   String tableName, String inputFileName,
+                                   short replace)
+        throws SQLException
+    {
+        /** Make sure that the current user has permission to perform this operation */
+        try {
+            SecurityUtil.authorize( Securable.IMPORT_TABLE );
+        }
+        catch (StandardException se) { throw PublicAPI.wrapStandardException( se ); }
+
+        if (connection == null)
+            throw LoadError.connectionNull();
+        if (tableName == null)
+            throw LoadError.entityNameMissing();
+        if (inputFileName == null)
+            throw LoadError.dataFileNull();
+
+        String entityName = IdUtil.mkQualifiedName(schemaName, tableName);
+        String insertSql = "INSERT INTO " + entityName +
+            " --DERBY-PROPERTIES insertMode=" +
+            (replace > 0 ? "replace" : "bulkInsert") + "\n" +
+            " SELECT * from new org.apache.derby.impl.load.ImportBinary(" +
+            StringUtil.quoteStringLiteral(inputFileName) + ") AS importvti";
+
+        //prepare the import statement to hit any errors before locking the table
+        PreparedStatement ips = connection.prepareStatement(insertSql);
+
+        //lock the table before perfoming import, as Import does.
+        Statement statement = connection.createStatement();
+        statement.executeUpdate(
+            "LOCK TABLE " + entityName + " IN EXCLUSIVE MODE");
+        ips.executeUpdate();
+        statement.close();
+        ips.close();
+    }
+
+    private static DataInputStream openFile(String fileName) throws Exception
+    {
+        final String name = FileUtil.stripProtocolFromFileName(fileName);
+        try {
+            InputStream is = AccessController.doPrivileged(
+                new PrivilegedExceptionAction<InputStream>() {
+                    public InputStream run() throws FileNotFoundException {
+                        return new FileInputStream(name);
+                    }
+                });
+            return new DataInputStream(new BufferedInputStream(is, 64 * 1024));
+        } catch (PrivilegedActionException pae) {
+            throw LoadError.dataFileNotFound(fileName, pae.getException());
+        } catch (SecurityException se) {
+            throw LoadError.dataFileNotFound(fileName, se);
+        }
+    }
+
+    private SQLException invalidFile(String details)
+    {
+        return LoadError.binaryDataFileInvalid(inputFileName, details);
+    }
+
+    public ResultSetMetaData getMetaData()
+    {
+        return new BinaryMetaData();
+    }
+
+    public boolean next() throws SQLException
+    {
+        if (endOfFile)
+            return false;
+
+        try {
+            if (blockRow == blockRows)
+            {
+                readBlock();
+                if (blockRows == 0)
+                {
+                    endOfFile = true;
+                    return false;
+                }
+            }
+
+            for (int i = 0; i < row.length; i++)
+            {
+                byte[] nulls = nullBitmaps[i];
+                if (nulls != null &&
+                    (nulls[blockRow >> 3] & (1 << (blockRow & 7))) != 0)
+                {
+                    row[i] = null;
+                }
+                else
+                {
+                    row[i] = readValue(chunks[i], kinds[i]);
+                }
+            }
+            blockRow++;
+            return true;
+        } catch (EOFException eofe) {
+            throw invalidFile(eofe.toString());
+        } catch (Exception ex) {
+            throw LoadError.unexpectedError(ex);
+        }
+    }
+
+    /**
+     * Read the next block, and set up the chunks of its columns.
+     */
+    private void readBlock() throws Exception
+    {
+        blockRows = in.readInt();
+        blockRow = 0;
+        if (blockRows < 0 || blockRows > BinaryExportFormat.ROWS_PER_BLOCK)
+            throw invalidFile("ROWS " + blockRows);
+        if (blockRows == 0)
+            return;
+
+        for (int i = 0; i < chunks.length; i++)
+        {
+            int flags = in.readUnsignedByte();
+            if ((flags & BinaryExportFormat.CHUNK_MIN_MAX) != 0)
+            {
+                // The range is of no use when all the rows are read.
+                in.readLong();
+                in.readLong();
+            }
+
+            int length = in.readInt();
+            byte[] data;
+            if ((flags & BinaryExportFormat.CHUNK_COMPRESSED) != 0)
+            {
+                int compressedLength = in.readInt();
+                if (length < 0 || compressedLength < 0)
+                    throw invalidFile("LENGTH " + length);
+                byte[] compressed = new byte[compressedLength];
+                in.readFully(compressed);
+                data = inflate(compressed, length);
+            }
+            else
+            {
+                if (length < 0)
+                    throw invalidFile("LENGTH " + length);
+                data = new byte[length];
+                in.readFully(data);
+            }
+
+            int offset = 0;
+            if ((flags & BinaryExportFormat.CHUNK_NULLS) != 0)
+            {
+                offset = (blockRows + 7) / 8;
+                if (offset > data.length)
+                    throw invalidFile("NULLS");
+                nullBitmaps[i] = data;
+            }
+            else
+            {
+                nullBitmaps[i] = null;
+            }
+            chunks[i] = new DataInputStream(new ByteArrayInputStream(
+                data, offset, data.length - offset));
+        }
+    }
+
+    private byte[] inflate(byte[] compressed, int length)
+        throws SQLException
+    {
+        if (inflater == null)
+            inflater = new Inflater();
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] data = new byte[length];
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished())
+            {
+                int n = inflater.inflate(data, inflated, length - inflated);
+                if (n == 0 && (inflater.needsInput() ||
+                               inflater.needsDictionary()))
+                    break;
+                inflated += n;
+            }
+            if (inflated != length)
+                throw invalidFile("LENGTH " + inflated);
+        } catch (DataFormatException dfe) {
+            throw invalidFile(dfe.toString());
+        }
+        return data;
+    }
+
+    private static Object readValue(DataInputStream chunk, int kind)
+        throws IOException, ClassNotFoundException
+    {
+        switch (kind)
+        {
+        case BinaryExportFormat.KIND_SHORT:
+            return chunk.readShort();
+        case BinaryExportFormat.KIND_INT:
+            return chunk.readInt();
+        case BinaryExportFormat.KIND_LONG:
+            return chunk.readLong();
+        case BinaryExportFormat.KIND_FLOAT:
+            return chunk.readFloat();
+        case BinaryExportFormat.KIND_DOUBLE:
+            return chunk.readDouble();
+        case BinaryExportFormat.KIND_DECIMAL:
+        {
+            int scale = chunk.readInt();
+            return new BigDecimal(new BigInteger(readBytes(chunk)), scale);
+        }
+        case BinaryExportFormat.KIND_STRING:
+            return new String(readBytes(chunk), StandardCharsets.UTF_8);
+        case BinaryExportFormat.KIND_BYTES:
+            return readBytes(chunk);
+        case BinaryExportFormat.KIND_BOOLEAN:
+            return chunk.readBoolean();
+        case BinaryExportFormat.KIND_DATE:
+            return java.sql.Date.valueOf(LocalDate.ofEpochDay(chunk.readLong()));
+        case BinaryExportFormat.KIND_TIME:
+            return java.sql.Time.valueOf(
+                LocalTime.ofSecondOfDay(chunk.readInt()));
+        case BinaryExportFormat.KIND_TIMESTAMP:
+        {
+            long second = chunk.readLong();
+            int nanos = chunk.readInt();
+            return java.sql.Timestamp.valueOf(LocalDateTime.ofEpochSecond(
+                second, nanos, ZoneOffset.UTC));
+        }
+        default:
+        {
+            ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(readBytes(chunk)));
+            return ois.readObject();
+        }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream chunk) throws IOException
+    {
+        int length = chunk.readInt();
+        if (length < 0 || length > chunk.available())
+            throw new EOFException();
+        byte[] bytes = new byte[length];
+        chunk.readFully(bytes);
+        return bytes;
+    }
+
+    /** closes the resultset
+     * @exception	SQLException if there is an error
+     */
+    public void close() throws SQLException
+    {
+        if (inflater != null)
+        {
+            inflater.end();
+            inflater = null;
+        }
+        if (in != null)
+        {
+            try {
+                in.close();
+            } catch (IOException ioe) {
+                throw LoadError.unexpectedError(ioe);
+            } finally {
+                in = null;
+            }
+        }
+    }
+
+    public boolean wasNull()
+    {
+        return wasNull;
+    }
+
+    /** Get the value of a column and remember whether it was NULL. */
+    private Object getValue(int columnIndex)
+    {
+        Object value = row[columnIndex - 1];
+        wasNull = (value == null);
+        return value;
+    }
+
+    private Number getNumber(int columnIndex)
+    {
+        Number value = (Number) getValue(columnIndex);
+        return value == null ? Integer.valueOf(0) : value;
+    }
+
+    public String getString(int columnIndex)
+    {
+        Object value = getValue(columnIndex);
+        return value == null ? null : value.toString();
+    }
+
+    public boolean getBoolean(int columnIndex)
+    {
+        Boolean value = (Boolean) getValue(columnIndex);
+        return value != null && value.booleanValue();
+    }
+
+    public byte getByte(int columnIndex)
+    {
+        return getNumber(columnIndex).byteValue();
+    }
+
+    public short getShort(int columnIndex)
+    {
+        return getNumber(columnIndex).shortValue();
+    }
+
+    public int getInt(int columnIndex)
+    {
+        return getNumber(columnIndex).intValue();
+    }
+
+    public long getLong(int columnIndex)
+    {
+        return getNumber(columnIndex).longValue();
+    }
+
+    public float getFloat(int columnIndex)
+    {
+        return getNumber(columnIndex).floatValue();
+    }
+
+    public double getDouble(int columnIndex)
+    {
+        return getNumber(columnIndex).doubleValue();
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex)
+    {
+        return (BigDecimal) getValue(columnIndex);
+    }
+
+    public byte[] getBytes(int columnIndex)
+    {
+        return (byte[]) getValue(columnIndex);
+    }
+
+    public Blob getBlob(int columnIndex)
+    {
+        byte[] value = (byte[]) getValue(columnIndex);
+        return value == null ? null : new ImportBlob(value);
+    }
+
+    public Clob getClob(int columnIndex)
+    {
+        String value = (String) getValue(columnIndex);
+        return value == null ? null : new ImportClob(value);
+    }
+
+    public java.sql.Date getDate(int columnIndex)
+    {
+        return (java.sql.Date) getValue(columnIndex);
+    }
+
+    public java.sql.Time getTime(int columnIndex)
+    {
+        return (java.sql.Time) getValue(columnIndex);
+    }
+
+    public java.sql.Timestamp getTimestamp(int columnIndex)
+    {
+        return (java.sql.Timestamp) getValue(columnIndex);
+    }
+
+    public Object getObject(int columnIndex)
+    {
+        return getValue(columnIndex);
+    }
+
+    /**
+     * Describes the columns with the types they were exported with.
+     */
+    private final class BinaryMetaData extends VTIMetaDataTemplate
+    {
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }
+
+        public String getColumnName(int column)
+        {
+            return columnNames[column - 1];
+        }
+
+        public int getColumnType(int column)
+        {
+            return columnTypes[column - 1];
+        }
+
+        public String getColumnTypeName(int column)
+        {
+            return columnTypeNames[column - 1];
+        }
+
+        public int getPrecision(int column)
+        {
+            return precisions[column - 1];
+        }
+
+        public int getScale(int column)
+        {
+            return scales[column - 1];
+        }
+
+        /** The length of the character and binary types. */
+        public int getColumnDisplaySize(int column)
+        {
+            return precisions[column - 1];
+        }
+
+        public int isNullable(int column)
+        {
+            return columnNullable;
+        }
+    }
+}
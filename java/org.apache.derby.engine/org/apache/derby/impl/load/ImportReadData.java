@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -161,6 +162,25 @@ final class ImportReadData implements java.security.PrivilegedExceptionAction<Ob
 
   }
 
+  //template: reader of the data file the chunk was cut out of
+  //chunk: complete records read from the file by readNextRecordText
+  //firstLineNumber: number of records in the file before the chunk, so that
+  //errors are reported with the line number in the file
+  ImportReadData(ImportReadData template, String chunk, int firstLineNumber)
+  throws Exception {
+    this.inputFileName = template.inputFileName;
+    this.controlFileReader = template.controlFileReader;
+    loadPropertiesInfo();
+    numberOfColumns = template.numberOfColumns;
+    lineNumber = firstLineNumber;
+
+    //the chunk has no header lines, so it can be read as it is
+    bufferedReader = new BufferedReader(new StringReader(chunk));
+    streamOpenForReading = true;
+
+    lobFileHandles = new ImportLobFile[numberOfColumns];
+  }
+
   //just a getter returning number of columns for a row in the data file
   int getNumberOfColumns() {
     return numberOfColumns;
@@ -676,6 +696,103 @@ final class ImportReadData implements java.security.PrivilegedExceptionAction<Ob
     return readVal;
   }
 
+  /**append the characters of the next record in a delimited file, including
+    *its record separator, to record without parsing the values. The record
+    *ends at the first record separator after numberOfColumns-1 field
+    *separators that are not between character delimiters, which is where
+    *readNextDelimitedRow ends it. Only single character field separators and
+    *character delimiters are supported.
+    *@return false if there are no more records in the file
+ 	* @exception	Exception if there is an error
+	*/
+  boolean readNextRecordText(StringBuilder record) throws Exception {
+    if (SanityManager.DEBUG) {
+      SanityManager.ASSERT(formatCode == DEFAULT_FORMAT_CODE &&
+                           fieldSeparatorLength == 1 &&
+                           fieldStartDelimiterLength == 1 &&
+                           fieldStopDelimiterLength == 1,
+                           "record text can only be read with single character delimiters");
+    }
+
+    if (!streamOpenForReading) {
+       openFile();
+       if (hasColumnDefinition){
+          ignoreFirstRow();
+       }
+       ignoreHeaderLines();
+    }
+    if (numberOfColumns == 0)
+       return false;
+
+    char fieldSeparatorChar = fieldSeparator[0];
+    char startDelimiter = fieldStartDelimiter[0];
+    char stopDelimiter = fieldStopDelimiter[0];
+    int fieldsSoFar = 1;
+    //whether a character other than leading white space was found in the field
+    boolean foundValue = false;
+    boolean insideDelimiters = false;
+    int recordStart = record.length();
+
+    while (true) {
+      int nextChar = bufferedReader.read();
+      if (nextChar == -1) {
+        //let the parser of the record report a record that is incomplete
+        if (record.length() == recordStart)
+           return false;
+        lineNumber++;
+        return true;
+      }
+      record.append((char) nextChar);
+
+      if (insideDelimiters) {
+        if (nextChar == stopDelimiter) {
+          bufferedReader.mark(1);
+          int followingChar = bufferedReader.read();
+          if (followingChar == stopDelimiter) {
+            //double delimiter inside the data
+            record.append((char) followingChar);
+          } else {
+            bufferedReader.reset();
+            insideDelimiters = false;
+          }
+        }
+      } else if (fieldsSoFar < numberOfColumns) {
+        //record separators are data in all but the last field
+        if (nextChar == fieldSeparatorChar) {
+          fieldsSoFar++;
+          foundValue = false;
+        } else if (!foundValue) {
+          if (nextChar == startDelimiter) {
+            insideDelimiters = true;
+            foundValue = true;
+          } else if (!Character.isWhitespace((char) nextChar) ||
+                     nextChar == '\r' || nextChar == '\n') {
+            foundValue = true;
+          }
+        }
+      } else if (nextChar == '\r' || nextChar == '\n') {
+        if (nextChar == '\r') {
+          bufferedReader.mark(1);
+          int followingChar = bufferedReader.read();
+          if (followingChar == '\n')
+            record.append((char) followingChar);
+          else
+            bufferedReader.reset();
+        }
+        lineNumber++;
+        return true;
+      } else if (!foundValue) {
+        if (nextChar == startDelimiter) {
+          insideDelimiters = true;
+          foundValue = true;
+        } else if (!Character.isWhitespace((char) nextChar) ||
+                   nextChar == fieldSeparatorChar) {
+          foundValue = true;
+        }
+      }
+    }
+  }
+
 	// made this a field so it isn't inited for each row, just
 	// set and cleared on the rows that need it (the last row
 	// in a file, typically, so it isn't used much)
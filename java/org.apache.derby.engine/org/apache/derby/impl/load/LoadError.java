@@ -191,6 +191,18 @@ class LoadError {
 	}
 
 
+	/**
+	   Raised if a file read by the binary import was not written by the
+	   binary export, or is truncated or damaged.
+	*/
+	static SQLException binaryDataFileInvalid(String fileName, String details)
+	{
+		return PublicAPI.wrapStandardException(
+			   StandardException.newException(SQLState.BINARY_DATA_FILE_INVALID,
+											  fileName, details));
+	}
+
+
 	static SQLException tableNotFound(String tableName)
 	{
 	
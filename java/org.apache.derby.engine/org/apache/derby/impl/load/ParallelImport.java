@@ -0,0 +1,369 @@
+/*
+
+   Derby - Class org.apache.derby.impl.load.ParallelImport
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.load;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.derby.iapi.services.monitor.ModuleFactory;
+import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.util.InterruptStatus;
+
+/**
+ * <p>
+ * Import VTI which parses the data file in several threads. It is used by
+ * SYSCS_UTIL.SYSCS_IMPORT_TABLE_PARALLEL, and returns the same rows in the
+ * same order as {@link Import}.
+ * </p>
+ *
+ * <p>
+ * The import runs as a pipeline:
+ * </p>
+ *
+ * <ul>
+ * <li>A reader thread reads the file and cuts it into chunks of complete
+ * records. It only looks for separators and character delimiters, which is
+ * much cheaper than parsing the values.</li>
+ * <li>The chunks are parsed into column values by a pool of worker
+ * threads.</li>
+ * <li>The thread that executes the INSERT takes the parsed chunks in file
+ * order and converts and inserts the rows, with the bulk insert and sorted
+ * index build used by all imports.</li>
+ * </ul>
+ *
+ * <p>
+ * The number of chunks that have been read but not yet inserted is limited,
+ * so the memory used does not depend on the size of the file.
+ * </p>
+ *
+ * <p>
+ * The threads are daemon threads of Derby's thread group, like those of the
+ * other Derby daemons. They are not interrupted, but told to stop through
+ * their queues, and waited for, when the import is closed.
+ * </p>
+ */
+public class ParallelImport extends Import
+{
+    /** Maximum number of records in a chunk. */
+    private static final int CHUNK_RECORDS = 1024;
+
+    /** Number of characters after which a chunk is cut at the next record. */
+    private static final int CHUNK_CHARACTERS = 256 * 1024;
+
+    /** Number of chunks queued for each parser thread. */
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private final int parallelism;
+
+    /** The reader thread and the parser threads, started on first next(). */
+    private Thread[] threads;
+
+    /**
+     * Chunks waiting for a parser thread. A chunk without text tells a
+     * parser thread to stop.
+     */
+    private BlockingQueue<Chunk> work;
+
+    /** Chunks in file order. A chunk without rows marks the end of file. */
+    private BlockingQueue<Chunk> chunks;
+
+    /** Rows of the current chunk. */
+    private String[][] rows;
+    private int rowIndex;
+    private boolean endOfFile;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor to invoke parallel import from a select statement. The
+     * arguments are the same as for {@link Import}, followed by the number
+     * of threads that parse the file.
+     *
+     * @exception SQLException on error
+     */
+    public ParallelImport(String inputFileName, String columnDelimiter,
+                          String characterDelimiter, String codeset,
+                          int noOfColumnsExpected, String columnTypes,
+                          boolean lobsInExtFile,
+                          int importCounter,
+                          String columnTypeNames, String udtClassNamesString,
+                          int parallelism)
+        throws SQLException
+    {
+        super(inputFileName, columnDelimiter, characterDelimiter, codeset,
+              noOfColumnsExpected, columnTypes, lobsInExtFile, importCounter,
+              columnTypeNames, udtClassNamesString);
+        this.parallelism = parallelism;
+    }
+
+    /** gets the current row number */
+    public int getRow() throws SQLException {
+        return getCurrentLineNumber();
+    }
+
+    public boolean next() throws SQLException {
+        try {
+            if (threads == null) {
+                startThreads();
+            }
+
+            while (rows == null || rowIndex == rows.length) {
+                if (endOfFile) {
+                    return false;
+                }
+                Chunk chunk = chunks.take();
+                try {
+                    rows = chunk.rows.get();
+                } catch (ExecutionException ee) {
+                    // Report the error on the line that failed to parse.
+                    lineNumber = chunk.lineNumber + 1;
+                    throw ee;
+                }
+                rowIndex = 0;
+                if (rows == null) {
+                    endOfFile = true;
+                    return false;
+                }
+            }
+
+            String[] row = rows[rowIndex];
+            rows[rowIndex++] = null;
+            System.arraycopy(row, 0, nextRow, 0, nextRow.length);
+            lineNumber++;
+            return true;
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            throw importError(cause instanceof Exception ?
+                              (Exception) cause : ee);
+        } catch (Exception ex) {
+            throw importError(ex);
+        }
+    }
+
+    /** closes the resultset and stops the threads
+     * @exception	SQLException if there is an error
+     */
+    public void close() throws SQLException {
+        stopThreads();
+        super.close();
+    }
+
+    public SQLException importError(Exception ex) {
+        stopThreads();
+        return super.importError(ex);
+    }
+
+    /**
+     * Start the reader thread, which cuts the file into chunks and hands
+     * them to the parser threads, and the parser threads.
+     */
+    private void startThreads() {
+        chunks = new ArrayBlockingQueue<Chunk>(
+                CHUNKS_PER_THREAD * parallelism);
+
+        // One thread reads the file and the rest parse it. The parsers take
+        // their work from an unbounded queue, since the number of chunks is
+        // already limited by the queue of parsed chunks.
+        work = new LinkedBlockingQueue<Chunk>();
+
+        ModuleFactory monitor = getMonitor();
+        threads = new Thread[parallelism + 1];
+        threads[0] =
+            monitor.getDaemonThread(new ChunkReader(), "import", false);
+        for (int i = 1; i < threads.length; i++) {
+            threads[i] =
+                monitor.getDaemonThread(new ChunkParser(), "import", false);
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+    }
+
+    private void stopThreads() {
+        if (threads == null || closed) {
+            return;
+        }
+        closed = true;
+
+        // Make room for the chunk the reader may be waiting to queue, after
+        // which it sees that the import is closed. The parsers stop once
+        // they have parsed the chunk they are working on.
+        chunks.clear();
+        work.clear();
+        for (int i = 1; i < threads.length; i++) {
+            work.add(new Chunk(null, 0, 0));
+        }
+
+        // The reader must not use the file after it is closed.
+        for (int i = 0; i < threads.length; i++) {
+            while (true) {
+                try {
+                    threads[i].join();
+                    break;
+                } catch (InterruptedException ie) {
+                    InterruptStatus.setInterrupted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Privileged Monitor lookup. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static ModuleFactory getMonitor() {
+        return AccessController.doPrivileged(
+                new PrivilegedAction<ModuleFactory>() {
+                    public ModuleFactory run() {
+                        return Monitor.getMonitor();
+                    }
+                });
+    }
+
+    /**
+     * Reads the file and cuts it into chunks of complete records, which
+     * are queued for parsing in file order.
+     */
+    private final class ChunkReader implements Runnable {
+        public void run() {
+            try {
+                StringBuilder text = new StringBuilder();
+                boolean more = true;
+                while (more && !closed) {
+                    int records = 0;
+                    text.setLength(0);
+                    while (records < CHUNK_RECORDS &&
+                           text.length() < CHUNK_CHARACTERS &&
+                           (more = importReadData.readNextRecordText(text))) {
+                        records++;
+                    }
+
+                    if (records > 0) {
+                        Chunk chunk = new Chunk(text.toString(),
+                            importReadData.getCurrentRowNumber() - records,
+                            records);
+                        work.add(chunk);
+                        chunks.put(chunk);
+                    }
+                }
+
+                if (!closed) {
+                    Chunk end = new Chunk(null, 0, 0);
+                    end.rows.complete(null);
+                    chunks.put(end);
+                }
+            } catch (InterruptedException ie) {
+                // Only the import interrupts its threads, and it does not.
+            } catch (Exception ex) {
+                Chunk error = new Chunk(null,
+                    importReadData.getCurrentRowNumber(), 0);
+                error.rows.completeExceptionally(ex);
+                try {
+                    if (!closed) {
+                        chunks.put(error);
+                    }
+                } catch (InterruptedException ie) {
+                    // Only the import interrupts its threads, and it does not.
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the chunks queued for parsing, until it is told to stop.
+     */
+    private final class ChunkParser implements Runnable {
+        public void run() {
+            try {
+                while (true) {
+                    Chunk chunk = work.take();
+                    if (chunk.text == null) {
+                        return;
+                    }
+                    chunk.parse();
+                }
+            } catch (InterruptedException ie) {
+                // Only the import interrupts its threads, and it does not.
+            }
+        }
+    }
+
+    /**
+     * A chunk of records, which is parsed into column values by one of the
+     * parser threads.
+     */
+    private final class Chunk {
+        private String text;
+        private final int records;
+
+        /** Number of records in the file before the record being parsed. */
+        private volatile int lineNumber;
+
+        /** The parsed records, or null for the end of file. */
+        private final CompletableFuture<String[][]> rows =
+            new CompletableFuture<String[][]>();
+
+        Chunk(String text, int firstLineNumber, int records) {
+            this.text = text;
+            this.lineNumber = firstLineNumber;
+            this.records = records;
+        }
+
+        /**
+         * Parse the records, and complete the rows with them, or with the
+         * error that stopped the parsing.
+         */
+        void parse() {
+            try {
+                rows.complete(parseRecords());
+            } catch (Throwable t) {
+                rows.completeExceptionally(t);
+            }
+        }
+
+        private String[][] parseRecords() throws Exception {
+            ImportReadData parser =
+                new ImportReadData(importReadData, text, lineNumber);
+            text = null;
+
+            String[][] result = new String[records][];
+            for (int i = 0; i < records; i++) {
+                result[i] = new String[numberOfColumns];
+                if (!parser.readNextRow(result[i])) {
+                    throw LoadError.unexpectedEndOfFile(lineNumber + 1);
+                }
+                lineNumber++;
+            }
+
+            // The parser must end the last record where the reader ended it.
+            if (parser.readNextRow(new String[numberOfColumns])) {
+                throw LoadError.recordSeparatorMissing(lineNumber);
+            }
+            return result;
+        }
+    }
+}
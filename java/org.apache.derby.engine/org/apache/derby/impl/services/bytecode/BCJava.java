@@ -219,6 +219,20 @@ public class BCJava implements JavaFactory, CacheableFactory, ModuleControl {
 		return new BCClass(cf, packageName, modifiers, className, superClass, this);
 	}
 
+	/**
+	 * a class whose methods are interpreted until statements using it
+	 * have been executed the given number of times.
+	 *
+	 * @see JavaFactory#newInterpretedClassBuilder
+	 */
+	public ClassBuilder newInterpretedClassBuilder(ClassFactory cf,
+		String packageName, int modifiers, String className,
+		String superClass, String interpreterClass, int executions) {
+
+		return new InterpClass(cf, packageName, modifiers, className,
+			superClass, interpreterClass, executions, this);
+	}
+
 	/*
 	** CacheableFactory interface
 	*/
@@ -0,0 +1,287 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.bytecode.InterpClass
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.bytecode;
+
+import org.apache.derby.iapi.services.compiler.ClassBuilder;
+import org.apache.derby.iapi.services.compiler.LocalField;
+import org.apache.derby.iapi.services.compiler.MethodBuilder;
+import org.apache.derby.iapi.services.loader.ClassFactory;
+import org.apache.derby.iapi.services.loader.GeneratedClass;
+import org.apache.derby.iapi.util.ByteArray;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.reference.SQLState;
+import org.apache.derby.shared.common.sanity.SanityManager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ClassBuilder implementation for classes whose methods are interpreted.
+ * <p>
+ * The methods record the calls made to build them, which the interpreter
+ * executes when the class is used. The same calls are replayed on a
+ * BCClass to generate the class as byte code, when the class has been
+ * used often enough to be worth it, or straight away if the class cannot
+ * be interpreted.
+ * <p>
+ * Instances of the class are instances of the interpreter class, a
+ * precompiled subclass of the superclass that hands the methods the
+ * generated class defines to the interpreter. The constructor of the
+ * interpreted class is not run, the interpreter class's constructor is
+ * used instead. It must only call super(), as the constructors
+ * built by the language compiler do.
+ *
+ * @see InterpMethod
+ * @see InterpGeneratedClass
+ */
+class InterpClass extends GClass {
+
+	/**
+	 * The methods of each interpreter class that a generated class can
+	 * override, but that the interpreter class does not hand to the
+	 * interpreter. Each is described by its name and number of parameters.
+	 */
+	private static final Map<Class<?>,Set<String>> uninterpretedMethods =
+		new ConcurrentHashMap<Class<?>,Set<String>>();
+
+	final BCJava factory;
+	private final String packageName;
+	private final String name;
+	private final int modifiers;
+	private final String superClassName;
+	private final String interpreterClassName;
+	private final int executions;
+
+	final List<InterpField> fields = new ArrayList<InterpField>();
+	private final List<InterpMethod> methods = new ArrayList<InterpMethod>();
+	private final Map<String,InterpMethod> methodsByName =
+		new HashMap<String,InterpMethod>();
+
+	InterpClass(ClassFactory cf, String packageName, int modifiers,
+			String className, String superClassName,
+			String interpreterClassName, int executions, BCJava factory) {
+
+		super(cf, packageName.concat(className));
+
+		this.packageName = packageName;
+		this.name = className;
+		this.modifiers = modifiers;
+		this.superClassName = superClassName;
+		this.interpreterClassName = interpreterClassName;
+		this.executions = executions;
+		this.factory = factory;
+	}
+
+	//
+	// ClassBuilder interface
+	//
+
+	public LocalField addField(String type, String name, int modifiers) {
+		InterpField field = new InterpField(fields.size(), type, name,
+			modifiers);
+		fields.add(field);
+		return field;
+	}
+
+	/**
+	 * Return the interpreted class, or the generated class if this
+	 * class defines a method that the interpreter class would not hand
+	 * to the interpreter.
+	 */
+	public GeneratedClass getGeneratedClass() throws StandardException {
+
+		Class<?> interpreterClass;
+		try {
+			interpreterClass = cf.loadApplicationClass(interpreterClassName);
+		} catch (ClassNotFoundException cnfe) {
+			throw StandardException.newException(
+				SQLState.GENERATED_CLASS_LINKAGE_ERROR, cnfe, getFullName());
+		}
+
+		Set<String> uninterpreted = getUninterpretedMethods(interpreterClass);
+		for (InterpMethod m : methods) {
+			if (uninterpreted.contains(m.signature()))
+				return generateClass();
+		}
+
+		return new InterpGeneratedClass(this, interpreterClass, executions);
+	}
+
+	/**
+	 * The byte code of the class, generated by replaying the methods.
+	 */
+	public ByteArray getClassBytecode() throws StandardException {
+		return replay().getClassBytecode();
+	}
+
+	/**
+	 * the class's unqualified name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public MethodBuilder newMethodBuilder(int modifiers, String returnType,
+		String methodName) {
+
+		return newMethodBuilder(modifiers, returnType,
+			methodName, (String[]) null);
+	}
+
+	public MethodBuilder newMethodBuilder(int modifiers, String returnType,
+		String methodName, String[] parms) {
+
+		if (SanityManager.DEBUG) {
+			SanityManager.ASSERT(returnType!=null);
+			SanityManager.ASSERT(!methodsByName.containsKey(methodName),
+				"method " + methodName + " defined twice");
+		}
+
+		InterpMethod m = new InterpMethod(this, modifiers, returnType,
+			methodName, parms);
+		methods.add(m);
+		methodsByName.put(methodName, m);
+		return m;
+	}
+
+	public MethodBuilder newConstructorBuilder(int modifiers) {
+		InterpMethod m = new InterpMethod(this, modifiers, "void", "<init>",
+			null);
+		methods.add(m);
+		return m;
+	}
+
+	//
+	// class interface
+	//
+
+	/**
+	 * Get the method with the given name, null if the class does not
+	 * define it.
+	 */
+	InterpMethod getMethod(String methodName) {
+		return methodsByName.get(methodName);
+	}
+
+	/**
+	 * Get the field with the given name, null if the class does not
+	 * define it.
+	 */
+	InterpField getField(String fieldName) {
+		for (InterpField field : fields) {
+			if (field.name.equals(fieldName))
+				return field;
+		}
+		return null;
+	}
+
+	/**
+	 * Generate the class as byte code and load it.
+	 */
+	GeneratedClass generateClass() throws StandardException {
+		return replay().getGeneratedClass();
+	}
+
+	/**
+	 * Build the class again as byte code, by replaying the calls that
+	 * built this class on a BCClass.
+	 */
+	private ClassBuilder replay() {
+
+		ClassBuilder cb = factory.newClassBuilder(cf, packageName,
+			modifiers, name, superClassName);
+
+		LocalField[] bcFields = new LocalField[fields.size()];
+		for (InterpField field : fields) {
+			bcFields[field.index] =
+				cb.addField(field.type, field.name, field.modifiers);
+		}
+
+		for (InterpMethod m : methods) {
+			m.replay(cb, bcFields);
+		}
+
+		return cb;
+	}
+
+	/**
+	 * Find the methods a generated class in another package can override,
+	 * that is the public and protected instance methods of the superclasses
+	 * of the interpreter class, that the interpreter class does not
+	 * declare itself.
+	 * <p>
+	 * Declared members are only asked for from classes loaded with the
+	 * interpreter class, which needs no permission. Classes further up,
+	 * such as java.lang.Object, only contribute their public methods.
+	 */
+	private static Set<String> getUninterpretedMethods(Class<?> interpreterClass)
+	{
+		Set<String> uninterpreted = uninterpretedMethods.get(interpreterClass);
+		if (uninterpreted != null)
+			return uninterpreted;
+
+		Set<String> declared = new HashSet<String>();
+		for (Method m : interpreterClass.getDeclaredMethods()) {
+			declared.add(signature(m.getName(), m.getParameterTypes().length));
+		}
+
+		uninterpreted = new HashSet<String>();
+		for (Method m : interpreterClass.getMethods()) {
+			addUninterpreted(uninterpreted, declared, m);
+		}
+
+		ClassLoader loader = interpreterClass.getClassLoader();
+		for (Class<?> c = interpreterClass.getSuperclass();
+				c != null && c.getClassLoader() == loader;
+				c = c.getSuperclass()) {
+			for (Method m : c.getDeclaredMethods()) {
+				if (Modifier.isProtected(m.getModifiers()))
+					addUninterpreted(uninterpreted, declared, m);
+			}
+		}
+
+		uninterpretedMethods.put(interpreterClass, uninterpreted);
+		return uninterpreted;
+	}
+
+	private static void addUninterpreted(Set<String> uninterpreted,
+		Set<String> declared, Method m)
+	{
+		if (Modifier.isStatic(m.getModifiers()))
+			return;
+
+		String signature = signature(m.getName(), m.getParameterTypes().length);
+		if (!declared.contains(signature))
+			uninterpreted.add(signature);
+	}
+
+	static String signature(String methodName, int parameterCount) {
+		return methodName + "/" + parameterCount;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.bytecode.InterpField
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.bytecode;
+
+import org.apache.derby.iapi.services.compiler.LocalField;
+
+/**
+ * A field of an interpreted class. Its value is kept in the array
+ * returned by InterpretedByteCode.getFields(), at the field's index.
+ */
+class InterpField implements LocalField {
+
+	final int index;
+	final String type;
+	final String name;
+	final int modifiers;
+
+	/** the primitive class of the field, null for references */
+	final Class<?> primitive;
+
+	InterpField(int index, String type, String name, int modifiers) {
+		this.index = index;
+		this.type = type;
+		this.name = name;
+		this.modifiers = modifiers;
+		primitive = InterpMethod.primitiveClass(type);
+	}
+
+	/**
+	 * The value of the field before it is set, as in a generated class.
+	 */
+	Object initialValue() {
+		return primitive == null ? null :
+			InterpMethod.convert(Integer.valueOf(0), primitive);
+	}
+}
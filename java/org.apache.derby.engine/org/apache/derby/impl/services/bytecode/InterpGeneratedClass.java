@@ -0,0 +1,512 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.bytecode.InterpGeneratedClass
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.bytecode;
+
+import org.apache.derby.iapi.services.classfile.VMOpcode;
+import org.apache.derby.iapi.services.context.Context;
+import org.apache.derby.iapi.services.loader.ClassInfo;
+import org.apache.derby.iapi.services.loader.GeneratedClass;
+import org.apache.derby.iapi.services.loader.GeneratedMethod;
+import org.apache.derby.iapi.services.loader.InterpretedByteCode;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.reference.SQLState;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The class built by an InterpClass. Instances are instances of the
+ * interpreter class, whose methods call back into this class to
+ * interpret the methods built by the InterpClass.
+ * <p>
+ * The classes, methods, constructors and fields used by an instruction
+ * are looked up the first time it is executed, and kept in the
+ * instruction. Public members of public classes are used through
+ * reflection, other members through the lookup object of the
+ * interpreter class, which can reach everything a class generated as
+ * a subclass of the same superclass can.
+ */
+final class InterpGeneratedClass implements InterpretedClass {
+
+	private final InterpClass cb;
+	private final Class<?> interpreterClass;
+	private final ClassInfo ci;
+	private final int executions;
+	private final int classLoaderVersion;
+	private final AtomicInteger executionCount = new AtomicInteger();
+
+	/** classes by name, resolved with the interpreter class's loader */
+	private final Map<String,Class<?>> classes =
+		new ConcurrentHashMap<String,Class<?>>();
+
+	/** lookup object of the interpreter class, set by the first instance */
+	private volatile MethodHandles.Lookup lookup;
+
+	InterpGeneratedClass(InterpClass cb, Class<?> interpreterClass,
+			int executions) {
+		this.cb = cb;
+		this.interpreterClass = interpreterClass;
+		this.executions = executions;
+		ci = new ClassInfo(interpreterClass);
+		classLoaderVersion = cb.cf.getClassLoaderVersion();
+	}
+
+	/*
+	** Methods from GeneratedClass
+	*/
+
+	public String getName() {
+		return cb.getFullName();
+	}
+
+	public Object newInstance(Context context) throws StandardException {
+
+		Throwable t;
+		try {
+			InterpretedByteCode ni = (InterpretedByteCode) ci.getNewInstance();
+
+			Object[] fields = new Object[cb.fields.size()];
+			for (InterpField field : cb.fields) {
+				fields[field.index] = field.initialValue();
+			}
+			ni.setFields(fields);
+
+			if (lookup == null)
+				lookup = ni.getLookup();
+
+			ni.initFromContext(context);
+			ni.setGC(this);
+			ni.postConstructor();
+			return ni;
+
+		} catch (InstantiationException ie) {
+			t = ie;
+		} catch (IllegalAccessException iae) {
+			t = iae;
+		} catch (InvocationTargetException ite) {
+			t = ite;
+		} catch (NoSuchMethodException le) {
+			t = le;
+		} catch (LinkageError le) {
+			t = le;
+		} catch (StandardException se) {
+			throw se;
+		} catch (RuntimeException re) {
+			t = re;
+		}
+
+		throw StandardException.newException(SQLState.GENERATED_CLASS_INSTANCE_ERROR, t, getName());
+	}
+
+	public GeneratedMethod getMethod(final String simpleName)
+		throws StandardException {
+
+		if (!definesMethod(simpleName))
+			throw StandardException.newException(
+				SQLState.GENERATED_CLASS_NO_SUCH_METHOD, simpleName, getName());
+
+		// wrap the exceptions as ReflectGeneratedClass does
+		return new GeneratedMethod() {
+			public Object invoke(Object ref) throws StandardException {
+				try {
+					return InterpGeneratedClass.this.invoke(
+						(InterpretedByteCode) ref, simpleName);
+				} catch (StandardException se) {
+					throw se;
+				} catch (Throwable t) {
+					throw StandardException.unexpectedUserException(t);
+				}
+			}
+		};
+	}
+
+	public int getClassLoaderVersion() {
+		return classLoaderVersion;
+	}
+
+	/*
+	** Methods from InterpretedClass
+	*/
+
+	public boolean definesMethod(String methodName) {
+		return cb.getMethod(methodName) != null;
+	}
+
+	public Object invoke(InterpretedByteCode ref, String methodName)
+		throws StandardException {
+
+		try {
+			return cb.getMethod(methodName).invoke(this, ref, null);
+		} catch (StandardException se) {
+			throw se;
+		} catch (RuntimeException re) {
+			throw re;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw StandardException.unexpectedUserException(t);
+		}
+	}
+
+	public void setField(InterpretedByteCode ref, String fieldName,
+		Object value) throws StandardException {
+
+		InterpField field = cb.getField(fieldName);
+		if (field == null)
+			throw StandardException.plainWrapException(
+				new NoSuchFieldException(fieldName));
+
+		ref.getFields()[field.index] = InterpMethod.convert(value, field.primitive);
+	}
+
+	public boolean countExecution() {
+		for (;;) {
+			int count = executionCount.get();
+			if (count > executions)
+				return false;
+			if (executionCount.compareAndSet(count, count + 1))
+				return count == executions;
+		}
+	}
+
+	public GeneratedClass generateClass() throws StandardException {
+		return cb.generateClass();
+	}
+
+	/*
+	** Methods used by InterpMethod
+	*/
+
+	/**
+	 * Call a method.
+	 *
+	 * @param in the CALL instruction
+	 * @param ref the object the method is called on, null for static methods
+	 * @param args the arguments
+	 * @return the value returned by the method
+	 */
+	Object call(InterpMethod.Instruction in, Object ref, Object[] args)
+		throws Throwable {
+
+		Object link = in.link;
+		if (link == null)
+			in.link = link = linkMethod(in);
+
+		if (link instanceof InterpMethod)
+			return ((InterpMethod) link).invoke(this,
+				(InterpretedByteCode) ref, args);
+
+		if (link instanceof Method) {
+			try {
+				return ((Method) link).invoke(ref, args);
+			} catch (InvocationTargetException ite) {
+				throw ite.getCause();
+			}
+		}
+
+		MethodHandle mh = (MethodHandle) link;
+		if (in.opcode == VMOpcode.INVOKESTATIC)
+			return mh.invokeWithArguments(args);
+
+		Object[] all = new Object[args.length + 1];
+		all[0] = ref;
+		System.arraycopy(args, 0, all, 1, args.length);
+		return mh.invokeWithArguments(all);
+	}
+
+	/**
+	 * Create an object.
+	 *
+	 * @param in the NEW_COMPLETE instruction
+	 * @param args the arguments of the constructor
+	 * @return the new object
+	 */
+	Object newInstance(InterpMethod.Instruction in, Object[] args)
+		throws Throwable {
+
+		Object link = in.link;
+		if (link == null)
+			in.link = link = linkConstructor(in);
+
+		if (link instanceof Constructor) {
+			try {
+				return ((Constructor<?>) link).newInstance(args);
+			} catch (InvocationTargetException ite) {
+				throw ite.getCause();
+			}
+		}
+
+		return ((MethodHandle) link).invokeWithArguments(args);
+	}
+
+	/**
+	 * Get the value of a field.
+	 *
+	 * @param in the GET_FIELD or GET_STATIC instruction
+	 * @param ref the object whose field is read, null for static fields
+	 * @return the value of the field
+	 */
+	Object getField(InterpMethod.Instruction in, Object ref)
+		throws Throwable {
+
+		Object link = in.link;
+		if (link == null)
+			in.link = link = linkField(in, false);
+
+		if (link instanceof InterpField)
+			return ((InterpretedByteCode) ref).getFields()[((InterpField) link).index];
+
+		if (link instanceof Field)
+			return ((Field) link).get(ref);
+
+		MethodHandle mh = (MethodHandle) link;
+		return (ref == null) ? mh.invoke() : mh.invoke(ref);
+	}
+
+	/**
+	 * Set the value of a field.
+	 *
+	 * @param in the PUT_OWN or PUT_FIELD instruction
+	 * @param ref the object whose field is set
+	 * @param value the value
+	 */
+	void putField(InterpMethod.Instruction in, Object ref, Object value)
+		throws Throwable {
+
+		Object link = in.link;
+		if (link == null)
+			in.link = link = linkField(in, true);
+
+		value = InterpMethod.convert(value, in.primitive);
+
+		if (link instanceof InterpField)
+			((InterpretedByteCode) ref).getFields()[((InterpField) link).index] = value;
+		else if (link instanceof Field)
+			((Field) link).set(ref, value);
+		else
+			((MethodHandle) link).invoke(ref, value);
+	}
+
+	/**
+	 * Cast a value, as the checkcast instruction or a primitive
+	 * conversion does.
+	 *
+	 * @param in the CAST instruction
+	 * @param value the value
+	 * @return the value converted to the type of the cast
+	 */
+	Object cast(InterpMethod.Instruction in, Object value) {
+		if (in.primitive != null)
+			return InterpMethod.convert(value, in.primitive);
+
+		Class<?> c = getClass(in);
+		if (value != null && !c.isInstance(value))
+			throw new ClassCastException(
+				value.getClass().getName() + " cannot be cast to " + c.getName());
+		return value;
+	}
+
+	/**
+	 * Get the class named by the instruction.
+	 */
+	Class<?> getClass(InterpMethod.Instruction in) {
+		Object link = in.link;
+		if (link == null)
+			in.link = link = loadClass(in.className);
+		return (Class<?>) link;
+	}
+
+	/*
+	** Linking, which fails with the LinkageError the JVM would throw for
+	** a class generated as byte code.
+	*/
+
+	private Object linkMethod(InterpMethod.Instruction in) {
+
+		// methods of this class, unless called non-virtually, are
+		// interpreted directly
+		if (in.opcode != VMOpcode.INVOKESTATIC &&
+			in.opcode != VMOpcode.INVOKESPECIAL &&
+			in.owner.equals(getName())) {
+
+			InterpMethod m = cb.getMethod(in.memberName);
+			if (m != null)
+				return m;
+		}
+
+		Class<?> owner = loadClass(in.owner);
+		Class<?> returnType = loadClass(in.typeName);
+		Class<?>[] parameterTypes = loadClasses(in.argumentTypes);
+
+		try {
+			if (in.opcode == VMOpcode.INVOKESPECIAL) {
+				// a call to an overridden method of the superclass, which
+				// must not be dispatched back to the interpreter
+				return lookup.findSpecial(owner, in.memberName,
+					MethodType.methodType(returnType, parameterTypes),
+					interpreterClass);
+			}
+
+			try {
+				Method m = owner.getMethod(in.memberName, parameterTypes);
+				if (Modifier.isPublic(m.getDeclaringClass().getModifiers()) &&
+					Modifier.isStatic(m.getModifiers()) ==
+						(in.opcode == VMOpcode.INVOKESTATIC))
+					return m;
+			} catch (NoSuchMethodException nsme) {
+				// not public, use the lookup object
+			}
+
+			MethodType mt = MethodType.methodType(returnType, parameterTypes);
+			return (in.opcode == VMOpcode.INVOKESTATIC) ?
+				lookup.findStatic(owner, in.memberName, mt) :
+				lookup.findVirtual(owner, in.memberName, mt);
+
+		} catch (NoSuchMethodException nsme) {
+			throw linkError(new NoSuchMethodError(in.owner + "." + in.memberName), nsme);
+		} catch (IllegalAccessException iae) {
+			throw linkError(new IllegalAccessError(in.owner + "." + in.memberName), iae);
+		}
+	}
+
+	private Object linkConstructor(InterpMethod.Instruction in) {
+
+		Class<?> owner = loadClass(in.className);
+		Class<?>[] parameterTypes = loadClasses(in.argumentTypes);
+
+		try {
+			if (Modifier.isPublic(owner.getModifiers())) {
+				try {
+					return owner.getConstructor(parameterTypes);
+				} catch (NoSuchMethodException nsme) {
+					// not public, use the lookup object
+				}
+			}
+
+			return lookup.findConstructor(owner,
+				MethodType.methodType(void.class, parameterTypes));
+
+		} catch (NoSuchMethodException nsme) {
+			throw linkError(new NoSuchMethodError(in.className + ".<init>"), nsme);
+		} catch (IllegalAccessException iae) {
+			throw linkError(new IllegalAccessError(in.className + ".<init>"), iae);
+		}
+	}
+
+	private Object linkField(InterpMethod.Instruction in, boolean put) {
+
+		if (in.owner.equals(getName())) {
+			InterpField field = cb.getField(in.memberName);
+			if (field != null)
+				return field;
+		}
+
+		Class<?> owner = loadClass(in.owner);
+		Class<?> type = loadClass(in.typeName);
+		boolean isStatic = (in.op == InterpMethod.GET_STATIC);
+
+		try {
+			try {
+				Field f = owner.getField(in.memberName);
+				if (Modifier.isPublic(f.getDeclaringClass().getModifiers()) &&
+					!(put && Modifier.isFinal(f.getModifiers())))
+					return f;
+			} catch (NoSuchFieldException nsfe) {
+				// not public, use the lookup object
+			}
+
+			if (put)
+				return lookup.findSetter(owner, in.memberName, type);
+			return isStatic ?
+				lookup.findStaticGetter(owner, in.memberName, type) :
+				lookup.findGetter(owner, in.memberName, type);
+
+		} catch (NoSuchFieldException nsfe) {
+			throw linkError(new NoSuchFieldError(in.owner + "." + in.memberName), nsfe);
+		} catch (IllegalAccessException iae) {
+			throw linkError(new IllegalAccessError(in.owner + "." + in.memberName), iae);
+		}
+	}
+
+	/**
+	 * The error the JVM would throw when linking the instruction fails.
+	 */
+	private static LinkageError linkError(LinkageError le, Throwable cause) {
+		le.initCause(cause);
+		return le;
+	}
+
+	private Class<?>[] loadClasses(String[] names) {
+		Class<?>[] c = new Class<?>[names.length];
+		for (int i = 0; i < names.length; i++) {
+			c[i] = loadClass(names[i]);
+		}
+		return c;
+	}
+
+	/**
+	 * Load a class by its Java name, as the class loader of a class
+	 * generated as byte code would.
+	 */
+	private Class<?> loadClass(String name) {
+
+		Class<?> c = InterpMethod.primitiveClass(name);
+		if (c != null)
+			return c;
+
+		c = classes.get(name);
+		if (c != null)
+			return c;
+
+		if (name.endsWith("[]")) {
+			c = java.lang.reflect.Array.newInstance(
+				loadClass(name.substring(0, name.length() - 2)), 0).getClass();
+		} else if (name.equals(getName())) {
+			c = interpreterClass;
+		} else {
+			try {
+				c = Class.forName(name, false, interpreterClass.getClassLoader());
+			} catch (ClassNotFoundException cnfe) {
+				try {
+					c = cb.cf.loadApplicationClass(name);
+				} catch (ClassNotFoundException cnfe2) {
+					NoClassDefFoundError e = new NoClassDefFoundError(name);
+					e.initCause(cnfe2);
+					throw e;
+				}
+			}
+		}
+
+		classes.put(name, c);
+		return c;
+	}
+}
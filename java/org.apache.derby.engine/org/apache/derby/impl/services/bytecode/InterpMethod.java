@@ -0,0 +1,983 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.bytecode.InterpMethod
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.bytecode;
+
+import org.apache.derby.iapi.services.classfile.VMOpcode;
+import org.apache.derby.iapi.services.compiler.ClassBuilder;
+import org.apache.derby.iapi.services.compiler.LocalField;
+import org.apache.derby.iapi.services.compiler.MethodBuilder;
+import org.apache.derby.iapi.services.loader.InterpretedByteCode;
+import org.apache.derby.shared.common.sanity.SanityManager;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MethodBuilder implementation for interpreted methods.
+ * <p>
+ * Each call that builds the method is recorded as one instruction. The
+ * interpreter executes the instructions on a stack of objects, with
+ * primitive values boxed, in the same way as the JVM executes the byte
+ * code that BCMethod generates for the same calls. Like BCMethod, this
+ * class keeps track of the static types on the stack, since they
+ * select the methods, constructors and fields that the instructions use.
+ * <p>
+ * The instructions are also replayed on a BCMethod when the class is
+ * generated as byte code.
+ *
+ * @see InterpClass
+ */
+class InterpMethod implements MethodBuilder {
+
+	/*
+	** Instructions, one for each MethodBuilder call.
+	*/
+	static final int PARAMETER = 0;
+	static final int PUSH = 1;
+	static final int PUSH_NULL = 2;
+	static final int PUSH_THIS = 3;
+	static final int GET_LOCAL = 4;
+	static final int GET_FIELD = 5;
+	static final int GET_STATIC = 6;
+	static final int SET_LOCAL = 7;
+	static final int PUT_LOCAL = 8;
+	static final int PUT_OWN = 9;
+	static final int PUT_FIELD = 10;
+	static final int NEW_START = 11;
+	static final int NEW_COMPLETE = 12;
+	static final int NEW_ARRAY = 13;
+	static final int UPCAST = 14;
+	static final int CAST = 15;
+	static final int INSTANCEOF = 16;
+	static final int POP = 17;
+	static final int END_STATEMENT = 18;
+	static final int RETURN = 19;
+	static final int IF_NULL = 20;
+	static final int IF = 21;
+	static final int ELSE = 22;
+	static final int END_IF = 23;
+	static final int CALL = 24;
+	static final int CALL_DESCRIBED = 25;
+	static final int CALL_SUPER = 26;
+	static final int GET_ARRAY = 27;
+	static final int SET_ARRAY = 28;
+	static final int SWAP = 29;
+	static final int DUP = 30;
+
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private static final Map<String,Class<?>> primitives =
+		new HashMap<String,Class<?>>();
+
+	static {
+		primitives.put("boolean", boolean.class);
+		primitives.put("byte", byte.class);
+		primitives.put("char", char.class);
+		primitives.put("short", short.class);
+		primitives.put("int", int.class);
+		primitives.put("long", long.class);
+		primitives.put("float", float.class);
+		primitives.put("double", double.class);
+		primitives.put("void", void.class);
+	}
+
+	/**
+	 * An instruction of an interpreted method, and the arguments of the
+	 * MethodBuilder call it was recorded for.
+	 */
+	static final class Instruction {
+
+		final int op;
+
+		/** class name argument */
+		String className;
+		/** method or field name argument */
+		String memberName;
+		/** field type or return type argument */
+		String typeName;
+		/** numeric argument: number of arguments, parameter, index, size */
+		int number;
+		/** value pushed */
+		Object value;
+		/** method invocation opcode */
+		short opcode;
+
+		/**
+		 * The class declaring the method or field, taken from the stack
+		 * if the call did not give it.
+		 */
+		String owner;
+		/** static types of the arguments of a method or constructor */
+		String[] argumentTypes;
+		/** true if the instruction leaves a value on the stack */
+		boolean returnsValue;
+		/** primitive class a value is converted to, null if none */
+		Class<?> primitive;
+		/** next instruction if a branch is taken */
+		int target;
+
+		/**
+		 * The class, method, constructor or field the instruction uses,
+		 * resolved when it is first executed.
+		 */
+		volatile Object link;
+
+		Instruction(int op) {
+			this.op = op;
+		}
+	}
+
+	/**
+	 * A conditional being built.
+	 */
+	private static final class Condition {
+		final Condition parent;
+		final Instruction branch;
+		final String[] entryStack;
+		Instruction elseJump;
+
+		Condition(Condition parent, Instruction branch, String[] entryStack) {
+			this.parent = parent;
+			this.branch = branch;
+			this.entryStack = entryStack;
+		}
+	}
+
+	private final InterpClass cb;
+	private final int modifiers;
+	private final String returnType;
+	private final String name;
+	private final String[] parameterTypes;
+	private final Class<?>[] parameterPrimitives;
+	private final Class<?> returnPrimitive;
+	private List<String> thrownExceptions;
+
+	private Instruction[] code = new Instruction[16];
+	private int codeLength;
+
+	/** static types of the values on the stack */
+	private String[] stackTypes = new String[8];
+	private int stackTypeOffset;
+	private int maxStack;
+
+	private Condition condition;
+	private int statementNum;
+
+	InterpMethod(InterpClass cb, int modifiers, String returnType,
+			String name, String[] parms) {
+
+		this.cb = cb;
+		this.modifiers = modifiers;
+		this.returnType = returnType;
+		this.name = name;
+		parameterTypes = (parms == null) ? new String[0] : parms;
+
+		parameterPrimitives = new Class<?>[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterPrimitives[i] = primitiveClass(parameterTypes[i]);
+		}
+		returnPrimitive = primitiveClass(returnType);
+	}
+
+	//
+	// MethodBuilder interface
+	//
+
+	public void addThrownException(String exceptionClass) {
+		if (thrownExceptions == null)
+			thrownExceptions = new ArrayList<String>();
+		thrownExceptions.add(exceptionClass);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void complete() {
+		if (SanityManager.DEBUG) {
+			if (condition != null)
+				SanityManager.THROWASSERT("conditional not complete in " + name);
+		}
+	}
+
+	public void getParameter(int id) {
+		add(PARAMETER).number = id;
+		growStack(parameterTypes[id]);
+	}
+
+	public void push(byte value) {
+		push(Byte.valueOf(value), "byte");
+	}
+
+	public void push(boolean value) {
+		push(Boolean.valueOf(value), "boolean");
+	}
+
+	public void push(short value) {
+		push(Short.valueOf(value), "short");
+	}
+
+	public void push(int value) {
+		push(Integer.valueOf(value), "int");
+	}
+
+	public void push(long value) {
+		push(Long.valueOf(value), "long");
+	}
+
+	public void push(float value) {
+		push(Float.valueOf(value), "float");
+	}
+
+	public void push(double value) {
+		push(Double.valueOf(value), "double");
+	}
+
+	public void push(String value) {
+		push(value, "java.lang.String");
+	}
+
+	private void push(Object value, String type) {
+		add(PUSH).value = value;
+		growStack(type);
+	}
+
+	public void pushNull(String className) {
+		add(PUSH_NULL).className = className;
+		growStack(className);
+	}
+
+	public void getField(LocalField field) {
+		InterpField lf = (InterpField) field;
+		add(GET_LOCAL).number = lf.index;
+		growStack(lf.type);
+	}
+
+	public void getField(String declaringClass, String fieldName,
+		String fieldType) {
+
+		Instruction in = add(GET_FIELD);
+		String dt = popStack();
+		member(in, declaringClass, fieldName, fieldType);
+		in.owner = (declaringClass == null) ? dt : declaringClass;
+		growStack(fieldType);
+	}
+
+	public void getStaticField(String declaringClass, String fieldName,
+		String fieldType) {
+
+		Instruction in = add(GET_STATIC);
+		member(in, declaringClass, fieldName, fieldType);
+		in.owner = declaringClass;
+		growStack(fieldType);
+	}
+
+	public void setField(LocalField field) {
+		InterpField lf = (InterpField) field;
+		Instruction in = add(SET_LOCAL);
+		in.number = lf.index;
+		in.primitive = lf.primitive;
+		popStack();
+	}
+
+	public void putField(LocalField field) {
+		InterpField lf = (InterpField) field;
+		Instruction in = add(PUT_LOCAL);
+		in.number = lf.index;
+		in.primitive = lf.primitive;
+	}
+
+	public void putField(String fieldName, String fieldType) {
+		Instruction in = add(PUT_OWN);
+		member(in, null, fieldName, fieldType);
+		in.owner = cb.getFullName();
+		in.primitive = primitiveClass(fieldType);
+	}
+
+	public void putField(String declaringClass, String fieldName,
+		String fieldType) {
+
+		Instruction in = add(PUT_FIELD);
+		member(in, declaringClass, fieldName, fieldType);
+		in.primitive = primitiveClass(fieldType);
+
+		String vt = popStack();
+		String dt = popStack();
+		in.owner = (declaringClass == null) ? dt : declaringClass;
+		growStack(vt);
+	}
+
+	public void pushNewStart(String className) {
+		add(NEW_START).className = className;
+
+		// the reference to the new object is on the stack twice
+		growStack(className);
+		growStack(className);
+	}
+
+	public void pushNewComplete(int numArgs) {
+		Instruction in = add(NEW_COMPLETE);
+		in.number = numArgs;
+		in.argumentTypes = popArguments(numArgs);
+
+		// one copy of the reference is used to call the constructor
+		popStack();
+		in.className = stackTypes[stackTypeOffset - 1];
+	}
+
+	public void pushNewArray(String className, int size) {
+		Instruction in = add(NEW_ARRAY);
+		in.className = className;
+		in.number = size;
+		growStack(className.concat("[]"));
+	}
+
+	public void pushThis() {
+		add(PUSH_THIS);
+		growStack(cb.getFullName());
+	}
+
+	public void upCast(String className) {
+		add(UPCAST).className = className;
+		stackTypes[stackTypeOffset - 1] = className;
+	}
+
+	public void cast(String className) {
+		Instruction in = add(CAST);
+		in.className = className;
+
+		String tbc = stackTypes[stackTypeOffset - 1];
+
+		// like BCMethod, no cast when the type on the stack matches,
+		// which number records as 1
+		if (primitiveClass(tbc) == null && className.equals(tbc)) {
+			in.number = 1;
+			return;
+		}
+
+		in.primitive = primitiveClass(className);
+		popStack();
+		growStack(className);
+	}
+
+	public void isInstanceOf(String className) {
+		add(INSTANCEOF).className = className;
+		popStack();
+		growStack("boolean");
+	}
+
+	public void pop() {
+		add(POP);
+		popStack();
+	}
+
+	public void endStatement() {
+		Instruction in = add(END_STATEMENT);
+		if (stackTypeOffset != 0) {
+			in.number = 1;
+			popStack();
+		}
+	}
+
+	public void methodReturn() {
+		Instruction in = add(RETURN);
+		if (stackTypeOffset != 0) {
+			in.returnsValue = true;
+			popStack();
+		}
+
+		if (SanityManager.DEBUG) {
+			if (stackTypeOffset != 0)
+				SanityManager.THROWASSERT("items left on stack " + stackTypeOffset);
+		}
+	}
+
+	public void conditionalIfNull() {
+		conditionalIf(IF_NULL);
+	}
+
+	public void conditionalIf() {
+		conditionalIf(IF);
+	}
+
+	private void conditionalIf(int op) {
+		Instruction in = add(op);
+		popStack();
+		condition = new Condition(condition, in, copyStack());
+	}
+
+	public void startElseCode() {
+		condition.elseJump = add(ELSE);
+
+		// the condition branches to the code after the jump to the end
+		condition.branch.target = codeLength;
+
+		String[] entryStack = condition.entryStack;
+		System.arraycopy(entryStack, 0, stackTypes, 0, entryStack.length);
+		stackTypeOffset = entryStack.length;
+	}
+
+	public void completeConditional() {
+		add(END_IF);
+		if (condition.elseJump == null)
+			condition.branch.target = codeLength - 1;
+		else
+			condition.elseJump.target = codeLength - 1;
+		condition = condition.parent;
+	}
+
+	public int callMethod(short type, String declaringClass,
+		String methodName, String returnType, int numArgs) {
+
+		Instruction in = add(CALL);
+		member(in, declaringClass, methodName, returnType);
+		in.opcode = type;
+		in.number = numArgs;
+		in.argumentTypes = popArguments(numArgs);
+
+		String dt = (type == VMOpcode.INVOKESTATIC) ? null : popStack();
+		in.owner = (declaringClass == null) ? dt : declaringClass;
+
+		pushReturnValue(in, returnType);
+		return 0;
+	}
+
+	public Object describeMethod(short opcode, String declaringClass,
+		String methodName, String returnType) {
+
+		Instruction in = new Instruction(CALL_DESCRIBED);
+		member(in, declaringClass, methodName, returnType);
+		in.opcode = opcode;
+		in.argumentTypes = new String[0];
+
+		if ((declaringClass == null) && (opcode != VMOpcode.INVOKESTATIC))
+			declaringClass = stackTypes[stackTypeOffset - 1];
+		in.owner = declaringClass;
+		in.returnsValue = !"void".equals(returnType);
+		return in;
+	}
+
+	public int callMethod(Object methodDescriptor) {
+		Instruction in = (Instruction) methodDescriptor;
+		add(in);
+
+		// pop the reference off the stack
+		popStack();
+
+		if (in.returnsValue)
+			growStack(in.typeName);
+		return 0;
+	}
+
+	public void callSuper() {
+		add(CALL_SUPER);
+	}
+
+	public void getArrayElement(int element) {
+		add(GET_ARRAY).number = element;
+
+		String arrayType = popStack();
+		growStack(arrayType.substring(0, arrayType.length() - 2));
+	}
+
+	public void setArrayElement(int element) {
+		Instruction in = add(SET_ARRAY);
+		in.number = element;
+
+		popStack(); // value
+		String arrayType = popStack();
+		in.primitive = primitiveClass(
+			arrayType.substring(0, arrayType.length() - 2));
+	}
+
+	public void swap() {
+		add(SWAP);
+		String b = popStack();
+		String a = popStack();
+		growStack(b);
+		growStack(a);
+	}
+
+	public void dup() {
+		add(DUP);
+		String t = popStack();
+		growStack(t);
+		growStack(t);
+	}
+
+	/**
+	 * Same limit as BCMethod, so that the methods are split in the same
+	 * way whether they are interpreted or not.
+	 */
+	public boolean statementNumHitLimit(int noStatementsAdded)
+	{
+		if (statementNum > 2048)    // 2K limit
+		{
+			return true;
+		}
+		else
+		{
+			statementNum = statementNum + noStatementsAdded;
+			return false;
+		}
+	}
+
+	//
+	// class interface
+	//
+
+	/**
+	 * The name and number of parameters of the method.
+	 */
+	String signature() {
+		return InterpClass.signature(name, parameterTypes.length);
+	}
+
+	/**
+	 * Call the method.
+	 *
+	 * @param gc the interpreted class
+	 * @param self the instance the method is called on
+	 * @param args the arguments of the method
+	 * @return the value returned by the method, null for void methods
+	 * @exception Throwable anything thrown by the method
+	 */
+	Object invoke(InterpGeneratedClass gc, InterpretedByteCode self,
+		Object[] args) throws Throwable {
+
+		if (args == null)
+			args = NO_ARGUMENTS;
+
+		for (int i = 0; i < args.length; i++) {
+			args[i] = convert(args[i], parameterPrimitives[i]);
+		}
+
+		return execute(gc, self, args);
+	}
+
+	/**
+	 * Execute the instructions of the method.
+	 */
+	private Object execute(InterpGeneratedClass gc, InterpretedByteCode self,
+		Object[] args) throws Throwable {
+
+		final Instruction[] code = this.code;
+		final Object[] stack = new Object[maxStack];
+		int sp = 0;
+		int pc = 0;
+
+		for (;;) {
+			Instruction in = code[pc++];
+
+			switch (in.op) {
+			case PARAMETER:
+				stack[sp++] = args[in.number];
+				break;
+			case PUSH:
+			case PUSH_NULL:
+				stack[sp++] = in.value;
+				break;
+			case PUSH_THIS:
+				stack[sp++] = self;
+				break;
+			case GET_LOCAL:
+				stack[sp++] = self.getFields()[in.number];
+				break;
+			case GET_FIELD:
+				stack[sp - 1] = gc.getField(in, stack[sp - 1]);
+				break;
+			case GET_STATIC:
+				stack[sp++] = gc.getField(in, null);
+				break;
+			case SET_LOCAL:
+				self.getFields()[in.number] = convert(stack[--sp], in.primitive);
+				break;
+			case PUT_LOCAL:
+				self.getFields()[in.number] = convert(stack[sp - 1], in.primitive);
+				break;
+			case PUT_OWN:
+				gc.putField(in, self, stack[sp - 1]);
+				break;
+			case PUT_FIELD: {
+				Object value = stack[--sp];
+				gc.putField(in, stack[sp - 1], value);
+				stack[sp - 1] = value;
+				break;
+			}
+			case NEW_START:
+				stack[sp++] = null;
+				stack[sp++] = null;
+				break;
+			case NEW_COMPLETE: {
+				Object[] a = arguments(stack, sp, in.number);
+				sp -= in.number + 2;
+				stack[sp++] = gc.newInstance(in, a);
+				break;
+			}
+			case NEW_ARRAY:
+				stack[sp++] = Array.newInstance(gc.getClass(in), in.number);
+				break;
+			case UPCAST:
+			case END_IF:
+			case CALL_SUPER:
+				// nothing to do at run time, the constructor is not
+				// interpreted
+				break;
+			case CAST:
+				if (in.number == 0)
+					stack[sp - 1] = gc.cast(in, stack[sp - 1]);
+				break;
+			case INSTANCEOF:
+				stack[sp - 1] =
+					Boolean.valueOf(gc.getClass(in).isInstance(stack[sp - 1]));
+				break;
+			case POP:
+				stack[--sp] = null;
+				break;
+			case END_STATEMENT:
+				sp -= in.number;
+				break;
+			case RETURN:
+				return in.returnsValue ?
+					convert(stack[--sp], returnPrimitive) : null;
+			case IF_NULL:
+				if (stack[--sp] != null)
+					pc = in.target;
+				break;
+			case IF:
+				if (!isTrue(stack[--sp]))
+					pc = in.target;
+				break;
+			case ELSE:
+				pc = in.target;
+				break;
+			case CALL:
+			case CALL_DESCRIBED: {
+				int numArgs = in.number;
+				Object[] a = arguments(stack, sp, numArgs);
+				sp -= numArgs;
+				Object ref = (in.opcode == VMOpcode.INVOKESTATIC) ?
+					null : stack[--sp];
+				Object value = gc.call(in, ref, a);
+				if (in.returnsValue)
+					stack[sp++] = value;
+				break;
+			}
+			case GET_ARRAY:
+				stack[sp - 1] = Array.get(stack[sp - 1], in.number);
+				break;
+			case SET_ARRAY: {
+				Object value = convert(stack[--sp], in.primitive);
+				Array.set(stack[--sp], in.number, value);
+				break;
+			}
+			case SWAP: {
+				Object b = stack[sp - 1];
+				stack[sp - 1] = stack[sp - 2];
+				stack[sp - 2] = b;
+				break;
+			}
+			case DUP:
+				stack[sp] = stack[sp - 1];
+				sp++;
+				break;
+			default:
+				if (SanityManager.DEBUG)
+					SanityManager.THROWASSERT("unknown instruction " + in.op);
+			}
+		}
+	}
+
+	/**
+	 * Build the method again with another MethodBuilder.
+	 *
+	 * @param target the class to add the method to
+	 * @param fields the fields of target, in the order of the fields of
+	 *	this method's class
+	 */
+	void replay(ClassBuilder target, LocalField[] fields) {
+
+		MethodBuilder mb;
+		if ("<init>".equals(name))
+			mb = target.newConstructorBuilder(modifiers);
+		else
+			mb = target.newMethodBuilder(modifiers, returnType, name,
+				parameterTypes.length == 0 ? null : parameterTypes);
+
+		if (thrownExceptions != null) {
+			for (String exceptionClass : thrownExceptions)
+				mb.addThrownException(exceptionClass);
+		}
+
+		for (int pc = 0; pc < codeLength; pc++) {
+			Instruction in = code[pc];
+
+			switch (in.op) {
+			case PARAMETER:
+				mb.getParameter(in.number);
+				break;
+			case PUSH: {
+				Object value = in.value;
+				if (value instanceof Byte)
+					mb.push(((Byte) value).byteValue());
+				else if (value instanceof Boolean)
+					mb.push(((Boolean) value).booleanValue());
+				else if (value instanceof Short)
+					mb.push(((Short) value).shortValue());
+				else if (value instanceof Integer)
+					mb.push(((Integer) value).intValue());
+				else if (value instanceof Long)
+					mb.push(((Long) value).longValue());
+				else if (value instanceof Float)
+					mb.push(((Float) value).floatValue());
+				else if (value instanceof Double)
+					mb.push(((Double) value).doubleValue());
+				else
+					mb.push((String) value);
+				break;
+			}
+			case PUSH_NULL:
+				mb.pushNull(in.className);
+				break;
+			case PUSH_THIS:
+				mb.pushThis();
+				break;
+			case GET_LOCAL:
+				mb.getField(fields[in.number]);
+				break;
+			case GET_FIELD:
+				mb.getField(in.className, in.memberName, in.typeName);
+				break;
+			case GET_STATIC:
+				mb.getStaticField(in.className, in.memberName, in.typeName);
+				break;
+			case SET_LOCAL:
+				mb.setField(fields[in.number]);
+				break;
+			case PUT_LOCAL:
+				mb.putField(fields[in.number]);
+				break;
+			case PUT_OWN:
+				mb.putField(in.memberName, in.typeName);
+				break;
+			case PUT_FIELD:
+				mb.putField(in.className, in.memberName, in.typeName);
+				break;
+			case NEW_START:
+				mb.pushNewStart(in.className);
+				break;
+			case NEW_COMPLETE:
+				mb.pushNewComplete(in.number);
+				break;
+			case NEW_ARRAY:
+				mb.pushNewArray(in.className, in.number);
+				break;
+			case UPCAST:
+				mb.upCast(in.className);
+				break;
+			case CAST:
+				mb.cast(in.className);
+				break;
+			case INSTANCEOF:
+				mb.isInstanceOf(in.className);
+				break;
+			case POP:
+				mb.pop();
+				break;
+			case END_STATEMENT:
+				mb.endStatement();
+				break;
+			case RETURN:
+				mb.methodReturn();
+				break;
+			case IF_NULL:
+				mb.conditionalIfNull();
+				break;
+			case IF:
+				mb.conditionalIf();
+				break;
+			case ELSE:
+				mb.startElseCode();
+				break;
+			case END_IF:
+				mb.completeConditional();
+				break;
+			case CALL:
+				mb.callMethod(in.opcode, in.className, in.memberName,
+					in.typeName, in.number);
+				break;
+			case CALL_DESCRIBED:
+				mb.callMethod(mb.describeMethod(in.opcode, in.owner,
+					in.memberName, in.typeName));
+				break;
+			case CALL_SUPER:
+				mb.callSuper();
+				break;
+			case GET_ARRAY:
+				mb.getArrayElement(in.number);
+				break;
+			case SET_ARRAY:
+				mb.setArrayElement(in.number);
+				break;
+			case SWAP:
+				mb.swap();
+				break;
+			case DUP:
+				mb.dup();
+				break;
+			}
+		}
+
+		mb.complete();
+	}
+
+	//
+	// Helpers
+	//
+
+	private Instruction add(int op) {
+		return add(new Instruction(op));
+	}
+
+	private Instruction add(Instruction in) {
+		if (codeLength == code.length) {
+			Instruction[] newCode = new Instruction[code.length * 2];
+			System.arraycopy(code, 0, newCode, 0, codeLength);
+			code = newCode;
+		}
+		code[codeLength++] = in;
+		return in;
+	}
+
+	private static void member(Instruction in, String className,
+		String memberName, String typeName) {
+
+		in.className = className;
+		in.memberName = memberName;
+		in.typeName = typeName;
+	}
+
+	private void pushReturnValue(Instruction in, String returnType) {
+		if (!"void".equals(returnType)) {
+			in.returnsValue = true;
+			growStack(returnType);
+		}
+	}
+
+	private void growStack(String type) {
+		if (stackTypeOffset >= stackTypes.length) {
+			String[] newStackTypes = new String[stackTypes.length + 8];
+			System.arraycopy(stackTypes, 0, newStackTypes, 0, stackTypes.length);
+			stackTypes = newStackTypes;
+		}
+
+		stackTypes[stackTypeOffset++] = type;
+		if (stackTypeOffset > maxStack)
+			maxStack = stackTypeOffset;
+	}
+
+	private String popStack() {
+		return stackTypes[--stackTypeOffset];
+	}
+
+	private String[] popArguments(int numArgs) {
+		String[] types = new String[numArgs];
+		for (int i = numArgs - 1; i >= 0; i--) {
+			types[i] = popStack();
+		}
+		return types;
+	}
+
+	private String[] copyStack() {
+		String[] stack = new String[stackTypeOffset];
+		System.arraycopy(stackTypes, 0, stack, 0, stackTypeOffset);
+		return stack;
+	}
+
+	private static Object[] arguments(Object[] stack, int sp, int numArgs) {
+		if (numArgs == 0)
+			return NO_ARGUMENTS;
+
+		Object[] args = new Object[numArgs];
+		System.arraycopy(stack, sp - numArgs, args, 0, numArgs);
+		return args;
+	}
+
+	private static boolean isTrue(Object value) {
+		if (value instanceof Boolean)
+			return ((Boolean) value).booleanValue();
+		return ((Number) value).intValue() != 0;
+	}
+
+	/**
+	 * The class of a primitive type, null if the type is not primitive.
+	 */
+	static Class<?> primitiveClass(String type) {
+		return primitives.get(type);
+	}
+
+	/**
+	 * Convert a boxed primitive value to the given primitive type, like
+	 * the conversions the JVM does for a cast, or when it stores a value
+	 * in a field or array, or returns it, as a narrower type.
+	 *
+	 * @param value the value
+	 * @param primitive the primitive type, null for references
+	 * @return the converted value
+	 */
+	static Object convert(Object value, Class<?> primitive) {
+		if (primitive == null || value == null)
+			return value;
+
+		if (value instanceof Boolean) {
+			if (primitive == boolean.class)
+				return value;
+			value = Integer.valueOf(((Boolean) value).booleanValue() ? 1 : 0);
+		} else if (value instanceof Character) {
+			if (primitive == char.class)
+				return value;
+			value = Integer.valueOf(((Character) value).charValue());
+		}
+
+		Number n = (Number) value;
+		if (primitive == int.class)
+			return (n instanceof Integer) ? n : Integer.valueOf(n.intValue());
+		if (primitive == long.class)
+			return (n instanceof Long) ? n : Long.valueOf(n.longValue());
+		if (primitive == short.class)
+			return (n instanceof Short) ? n : Short.valueOf(n.shortValue());
+		if (primitive == byte.class)
+			return (n instanceof Byte) ? n : Byte.valueOf(n.byteValue());
+		if (primitive == double.class)
+			return (n instanceof Double) ? n : Double.valueOf(n.doubleValue());
+		if (primitive == float.class)
+			return (n instanceof Float) ? n : Float.valueOf(n.floatValue());
+		if (primitive == char.class)
+			return Character.valueOf((char) n.intValue());
+		if (primitive == boolean.class)
+			return Boolean.valueOf(n.intValue() != 0);
+		return value;
+	}
+}
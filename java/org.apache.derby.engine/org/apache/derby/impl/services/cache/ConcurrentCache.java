@@ -179,13 +179,16 @@ final class ConcurrentCache implements CacheManager {
      * @param key the identity of the entry to remove
      */
     private void removeEntry(Object key) {
-        CacheEntry entry = cache.remove(key);
+        CacheEntry entry = cache.get(key);
         Cacheable c = entry.getCacheable();
         if (c != null && c.getIdentity() != null) {
             // The cacheable should not have an identity when it has been
-            // removed.
+            // removed. Clear it while the entry is still in the cache, so
+            // that no other thread can give the same identity to another
+            // cacheable before clearIdentity() has completed.
             c.clearIdentity();
         }
+        cache.remove(key);
         entry.free();
     }
 
@@ -204,8 +207,11 @@ final class ConcurrentCache implements CacheManager {
      * @param key identity of the entry to remove
      */
     void evictEntry(Object key) {
-        CacheEntry entry = cache.remove(key);
+        CacheEntry entry = cache.get(key);
+        // Clear the identity while the entry is still in the cache, see
+        // removeEntry().
         entry.getCacheable().clearIdentity();
+        cache.remove(key);
         entry.setCacheable(null);
         countEviction();
     }
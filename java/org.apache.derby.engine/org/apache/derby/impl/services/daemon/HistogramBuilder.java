@@ -0,0 +1,221 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.daemon.HistogramBuilder
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.daemon;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import org.apache.derby.catalog.types.ColumnHistogram;
+import org.apache.derby.iapi.store.access.SampleObserver;
+import org.apache.derby.iapi.types.DataValueDescriptor;
+import org.apache.derby.shared.common.error.StandardException;
+
+/**
+ * Builds the histogram of the first column of an index from its rows, read
+ * in key order by a scan or while the index is sampled.
+ * <p>
+ * The number of rows is not known in advance, so the buckets are closed
+ * every {@code step} rows, and whenever there are twice as many buckets as
+ * wanted, neighboring buckets are merged and {@code step} is doubled. The
+ * most common values are the longest runs of equal values seen.
+ */
+final class HistogramBuilder implements SampleObserver {
+
+    /** A run of equal values. */
+    private static final class Run implements Comparable<Run> {
+        final DataValueDescriptor value;
+        final long rows;
+        /** The position of the run, which is the order of the values. */
+        final long position;
+
+        Run(DataValueDescriptor value, long rows, long position) {
+            this.value = value;
+            this.rows = rows;
+            this.position = position;
+        }
+
+        public int compareTo(Run other) {
+            return Long.compare(rows, other.rows);
+        }
+    }
+
+    /** The maximum number of buckets and of most common values. */
+    private final int size;
+
+    private long rows;
+    private long nullRows;
+    private long distinct;
+    private DataValueDescriptor low;
+
+    /** The value of the current run, or {@code null} before the first. */
+    private DataValueDescriptor runValue;
+    private long runRows;
+
+    private final DataValueDescriptor[] bounds;
+    private final long[] bucketRows;
+    private final long[] bucketDistinct;
+    private int buckets;
+    private long step = 1;
+    private long openRows;
+    private long openDistinct;
+
+    /** The longest runs, the shortest first. */
+    private final PriorityQueue<Run> commonValues = new PriorityQueue<Run>();
+
+    /**
+     * Creates a builder.
+     *
+     * @param size the maximum number of buckets, and of most common values
+     */
+    HistogramBuilder(int size) {
+        this.size = size;
+        bounds = new DataValueDescriptor[2 * size];
+        bucketRows = new long[2 * size];
+        bucketDistinct = new long[2 * size];
+    }
+
+    /**
+     * Adds the next row.
+     *
+     * @param row the row, only the first column is used
+     * @throws StandardException if comparing values fails
+     */
+    public void observeRow(DataValueDescriptor[] row)
+            throws StandardException {
+        DataValueDescriptor value = row[0];
+        rows++;
+        if (value.isNull()) {
+            nullRows++;
+        } else if (runValue != null && runValue.compare(value) == 0) {
+            runRows++;
+        } else {
+            endRun();
+            runValue = value.cloneValue(false);
+            runRows = 1;
+            if (low == null) {
+                low = runValue;
+            }
+        }
+    }
+
+    private void endRun() {
+        if (runValue == null) {
+            return;
+        }
+
+        distinct++;
+        if (runRows > 1) {
+            if (commonValues.size() < size) {
+                commonValues.add(new Run(runValue, runRows, distinct));
+            } else if (runRows > commonValues.peek().rows) {
+                commonValues.poll();
+                commonValues.add(new Run(runValue, runRows, distinct));
+            }
+        }
+
+        openRows += runRows;
+        openDistinct++;
+        if (openRows >= step) {
+            bounds[buckets] = runValue;
+            bucketRows[buckets] = openRows;
+            bucketDistinct[buckets] = openDistinct;
+            buckets++;
+            openRows = 0;
+            openDistinct = 0;
+            if (buckets == bounds.length) {
+                mergeBuckets();
+                step *= 2;
+            }
+        }
+        runValue = null;
+    }
+
+    /** Merges each pair of neighboring buckets into one. */
+    private void mergeBuckets() {
+        int merged = 0;
+        for (int i = 0; i < buckets; i += 2) {
+            int last = Math.min(i + 1, buckets - 1);
+            bounds[merged] = bounds[last];
+            bucketRows[merged] = bucketRows[i] +
+                    (last == i ? 0 : bucketRows[last]);
+            bucketDistinct[merged] = bucketDistinct[i] +
+                    (last == i ? 0 : bucketDistinct[last]);
+            merged++;
+        }
+        Arrays.fill(bounds, merged, buckets, null);
+        buckets = merged;
+    }
+
+    /**
+     * Returns the histogram of the rows added.
+     *
+     * @return the histogram, or {@code null} if no values other than NULL
+     *      have been added
+     */
+    ColumnHistogram getHistogram() {
+        DataValueDescriptor last = runValue;
+        endRun();
+        if (openRows > 0) {
+            bounds[buckets] = last;
+            bucketRows[buckets] = openRows;
+            bucketDistinct[buckets] = openDistinct;
+            buckets++;
+            openRows = 0;
+            openDistinct = 0;
+        }
+        if (buckets == 0) {
+            return null;
+        }
+        while (buckets > size) {
+            mergeBuckets();
+        }
+
+        // Only the values which are more common than the average are worth
+        // listing.
+        double average = (double) (rows - nullRows) / distinct;
+        Run[] runs = new Run[commonValues.size()];
+        int count = 0;
+        for (Run run : commonValues) {
+            if (run.rows > average) {
+                runs[count++] = run;
+            }
+        }
+        // The runs were seen in ascending order of their values.
+        Arrays.sort(runs, 0, count, new Comparator<Run>() {
+            public int compare(Run a, Run b) {
+                return Long.compare(a.position, b.position);
+            }
+        });
+        DataValueDescriptor[] mcvValues = new DataValueDescriptor[count];
+        long[] mcvRows = new long[count];
+        for (int i = 0; i < count; i++) {
+            mcvValues[i] = runs[i].value;
+            mcvRows[i] = runs[i].rows;
+        }
+
+        return new ColumnHistogram(rows, nullRows, low,
+                Arrays.copyOf(bounds, buckets),
+                Arrays.copyOf(bucketRows, buckets),
+                Arrays.copyOf(bucketDistinct, buckets),
+                mcvValues, mcvRows);
+    }
+}
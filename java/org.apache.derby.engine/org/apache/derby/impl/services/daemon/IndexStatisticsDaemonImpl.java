@@ -25,9 +25,11 @@ import java.security.PrivilegedAction;
 import java.security.AccessController;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import org.apache.derby.catalog.UUID;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.catalog.types.StatisticsImpl;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.iapi.db.Database;
@@ -56,18 +58,27 @@ import org.apache.derby.iapi.store.access.GroupFetchScanController;
 import org.apache.derby.iapi.store.access.ScanController;
 import org.apache.derby.iapi.store.access.TransactionController;
 import org.apache.derby.iapi.types.DataValueDescriptor;
+import org.apache.derby.iapi.types.StringDataValue;
 import org.apache.derby.iapi.util.InterruptStatus;
 
 /**
  * Daemon acting as a coordinator for creating and updating index cardinality
  * statistics.
  * <p>
- * The need for updated statistics is currently determined when compiling a
- * SELECT query. The unit of work is then scheduled with this daemon, and the
- * work itself will be carried out in a separate thread. If the worker thread
- * doesn't exist it is created, if it is idle the unit of work will be
- * processed immediately, and if it is busy the unit of work has to wait in the
- * queue.
+ * The need for updated statistics is determined when compiling a SELECT
+ * query, and when enough rows of a table have been inserted, updated or
+ * deleted since its statistics were last updated. The unit of work is then
+ * scheduled with this daemon, and the work itself will be carried out in a
+ * separate worker thread. If there is an idle worker, its thread is created
+ * and the unit of work will be processed immediately, and if all the workers
+ * are busy the unit of work has to wait in the queue. The number of workers,
+ * and thereby the number of tables processed at the same time, is given by
+ * {@code derby.storage.indexStats.workers}.
+ * <p>
+ * Indexes with more leaf pages than {@code derby.storage.indexStats.samplePages}
+ * are not scanned. Their statistics are estimated from a random sample of
+ * that many leaf pages instead, see
+ * {@link TransactionController#sampleConglomerate}.
  * <p>
  * The daemon code has a notion of a background task. If the update is run as a
  * background task, it will try to affect other activity in the Derby database
@@ -84,7 +95,7 @@ import org.apache.derby.iapi.util.InterruptStatus;
  *      <li>schedule update (the only action carried out by the user thread)<li>
  *      <li>for each index:</li>
  *      <ol>
- *          <li>scan index</li>
+ *          <li>scan or sample index</li>
  *          <li>invalidate statements dependent on current statistics</li>
  *          <li>drop existing statistics</li>
  *          <li>add new statistics</li>
@@ -109,7 +120,7 @@ import org.apache.derby.iapi.util.InterruptStatus;
  * </ol>
  */
 public class IndexStatisticsDaemonImpl
-        implements IndexStatisticsDaemon, Runnable {
+        implements IndexStatisticsDaemon {
 
     private static final boolean AS_BACKGROUND_TASK = true;
     private static final boolean AS_EXPLICIT_TASK = false;
@@ -121,6 +132,43 @@ public class IndexStatisticsDaemonImpl
                 Property.STORAGE_AUTO_INDEX_STATS_DEBUG_QUEUE_SIZE,
                 Property.STORAGE_AUTO_INDEX_STATS_DEBUG_QUEUE_SIZE_DEFAULT);
     }
+    /** Number of leaf pages to read when sampling an index, 0 to scan. */
+    private static final int SAMPLE_PAGES;
+    /** Number of worker threads processing the queue. */
+    private static final int MAX_WORKERS;
+    /**
+     * Fraction of the rows of a table to modify before its statistics are
+     * considered stale.
+     */
+    private static final double MODIFIED_FRACTION;
+    /** Maximum number of histogram buckets and common values, 0 for none. */
+    private static final int HISTOGRAM_SIZE;
+    static {
+        SAMPLE_PAGES = PropertyUtil.getSystemInt(
+                Property.STORAGE_AUTO_INDEX_STATS_SAMPLE_PAGES,
+                0, Integer.MAX_VALUE,
+                Property.STORAGE_AUTO_INDEX_STATS_SAMPLE_PAGES_DEFAULT);
+        MAX_WORKERS = PropertyUtil.getSystemInt(
+                Property.STORAGE_AUTO_INDEX_STATS_WORKERS,
+                1, Integer.MAX_VALUE,
+                Property.STORAGE_AUTO_INDEX_STATS_WORKERS_DEFAULT);
+        double tmpFraction =
+            Property.STORAGE_AUTO_INDEX_STATS_MODIFIED_FRACTION_DEFAULT;
+        try {
+            String tmpStr = PropertyUtil.getSystemProperty(
+                    Property.STORAGE_AUTO_INDEX_STATS_MODIFIED_FRACTION);
+            if (tmpStr != null) {
+                tmpFraction = Double.parseDouble(tmpStr);
+            }
+        } catch (NumberFormatException nfe) {
+            // Ignore, use the default.
+        }
+        MODIFIED_FRACTION = tmpFraction;
+        HISTOGRAM_SIZE = PropertyUtil.getSystemInt(
+                Property.STORAGE_AUTO_INDEX_STATS_HISTOGRAM_SIZE,
+                0, Integer.MAX_VALUE,
+                Property.STORAGE_AUTO_INDEX_STATS_HISTOGRAM_SIZE_DEFAULT);
+    }
 
     private final HeaderPrintWriter logStream;
     /** Tells if logging is enabled. */
@@ -135,8 +183,8 @@ public class IndexStatisticsDaemonImpl
     /** Tells if the daemon has been disabled. */
     // @GuardedBy("queue")
     private boolean daemonDisabled;
-    /** The context manager for the worker thread. */
-    private final ContextManager ctxMgr;
+    /** The workers processing the queue. */
+    private final Worker[] workers;
     /**
      * Tells if disposable stats should be generated, which will happen in
      * soft-upgrade mode or when the user asks us to revert to the old behavior.
@@ -146,8 +194,6 @@ public class IndexStatisticsDaemonImpl
      * to keep disposable statistics is removed.
      */
     public final boolean skipDisposableStats;
-    /** The language connection context for the worker thread. */
-    private LanguageConnectionContext daemonLCC;
     /**
      * The database object for the database we are handling automatic index
      * statistics update for.
@@ -159,18 +205,17 @@ public class IndexStatisticsDaemonImpl
 
     /**
      * A list of tables that shall have their index statistics updated.
-     * Note that the descriptor isn't removed before the work has
-     * been completed.
+     * The descriptor is removed when a worker starts processing it.
      */
     private final ArrayList<TableDescriptor> queue = new ArrayList<TableDescriptor>(MAX_QUEUE_LENGTH);
+
     /**
-     * The thread in which the index statistics refresh operation is being
-     * executed, if any. Created as needed, but there will only be one
-     * thread doing the work. The thread is allowed to die since it is assumed
-     * that index statistics regeneration is rather infrequent.
+     * The number of rows modified in each table since its statistics were
+     * last updated, keyed by the UUID of the table.
      */
-    //@GuardedBy("queue")
-    private Thread runningThread;
+    //@GuardedBy("modifications")
+    private final HashMap<UUID, ModificationCounter> modifications =
+            new HashMap<UUID, ModificationCounter>();
 
     /**
      * Number of consecutive errors, used as a metric to decide if the damoen
@@ -229,7 +274,10 @@ public class IndexStatisticsDaemonImpl
         this.db = db;
         this.dbOwner = userName;
         this.databaseName = databaseName;
-        this.ctxMgr = getContextService().newContextManager();
+        this.workers = new Worker[MAX_WORKERS];
+        for (int i=0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
         this.timeOfCreation = System.currentTimeMillis();
         trace(0, "created{log=" + doLog + ", traceLog=" +
                 traceToDerbyLog + ", traceOut=" + traceToStdOut +
@@ -240,6 +288,9 @@ public class IndexStatisticsDaemonImpl
                 ", lndiffThreshold=" +
                 TableDescriptor.ISTATS_LNDIFF_THRESHOLD +
                 ", queueLength=" + MAX_QUEUE_LENGTH +
+                ", samplePages=" + SAMPLE_PAGES +
+                ", modifiedFraction=" + MODIFIED_FRACTION +
+                ", workers=" + MAX_WORKERS +
                 "}) -> " + databaseName);
     }
 
@@ -266,7 +317,17 @@ public class IndexStatisticsDaemonImpl
      * @param td base table descriptor to update index statistics for
      */
     public void schedule(TableDescriptor td) {
-        String schedulingReason = td.getIndexStatsUpdateReason();
+        schedule(td, td.getIndexStatsUpdateReason());
+    }
+
+    /**
+     * Schedules an update of the index statistics for the specified table.
+     *
+     * @param td base table descriptor to update index statistics for
+     * @param schedulingReason why the statistics are considered stale, may
+     *      be {@code null}
+     */
+    private void schedule(TableDescriptor td, String schedulingReason) {
         synchronized (queue) {
             if (acceptWork(td)) {
                 // Add the work description for the given table.
@@ -278,12 +339,17 @@ public class IndexStatisticsDaemonImpl
                             ? ""
                             : ", reason=[" + schedulingReason + "]") +
                         " (queueSize=" + queue.size() + ")");
-                // If we're idle, fire off the worker thread.
-                if (runningThread == null) {
-                    //DERBY-5582. Make sure the thread is in the derby group
-                    // to avoid potential security manager issues
-                    runningThread = BasicDaemon.getMonitor().getDaemonThread(this, "index-stat-thread", false);
-                    runningThread.start();
+                // If a worker is idle, fire off its thread.
+                for (int i=0; i < workers.length; i++) {
+                    Worker w = workers[i];
+                    if (w.thread == null) {
+                        //DERBY-5582. Make sure the thread is in the derby
+                        // group to avoid potential security manager issues
+                        w.thread = BasicDaemon.getMonitor().getDaemonThread(
+                                w, "index-stat-thread", false);
+                        w.thread.start();
+                        break;
+                    }
                 }
             }
         }
@@ -299,7 +365,7 @@ public class IndexStatisticsDaemonImpl
     private boolean acceptWork(TableDescriptor td) {
         // Don't allow unbounded growth.
         boolean accept = !(daemonDisabled || queue.size() >= MAX_QUEUE_LENGTH);
-        if (accept && !queue.isEmpty()) {
+        if (accept) {
             // See if work is already scheduled for this table. If so, we
             // give the already scheduled or in progress task precedence.
             String table = td.getName();
@@ -314,6 +380,12 @@ public class IndexStatisticsDaemonImpl
                     break;
                 }
             }
+            for (int i=0; accept && i < workers.length; i++) {
+                TableDescriptor work = workers[i].current;
+                if (work != null && work.tableNameEquals(table, schema)) {
+                    accept = false;
+                }
+            }
         }
 
         // If the work was rejected, trace it.
@@ -334,6 +406,109 @@ public class IndexStatisticsDaemonImpl
         return accept;
     }
 
+    /**
+     * Counts rows modified in a table, and schedules an update of its
+     * existing index statistics once the fraction of its rows given by
+     * {@code derby.storage.indexStats.modifiedFraction} has been modified.
+     * <p>
+     * The table is only looked up in the data dictionary each time
+     * {@code derby.storage.indexStats.debug.absdiffThreshold} rows, or the
+     * modified fraction of the rows if that is more, have been modified, so
+     * the cost of counting is low for small statements.
+     *
+     * @param lcc connection which modified the rows
+     * @param tableId UUID of the table
+     * @param rows number of rows inserted, updated or deleted
+     * @throws StandardException if looking up the table fails
+     */
+    public void countModifications(LanguageConnectionContext lcc,
+                                   UUID tableId, long rows)
+            throws StandardException {
+        ModificationCounter mc;
+        long modified;
+        synchronized (modifications) {
+            mc = modifications.get(tableId);
+            if (mc == null) {
+                mc = new ModificationCounter();
+                modifications.put(tableId, mc);
+            }
+            mc.modified += rows;
+            if (mc.modified < mc.checkAt) {
+                return;
+            }
+            modified = mc.modified;
+        }
+
+        TableDescriptor td =
+                lcc.getDataDictionary().getTableDescriptor(tableId);
+        if (td == null ||
+                td.getTableType() != TableDescriptor.BASE_TABLE_TYPE) {
+            // The table has been dropped, or is not a base table.
+            synchronized (modifications) {
+                modifications.remove(tableId);
+            }
+            return;
+        }
+
+        // Compare with the row estimate of the current statistics. Tables
+        // without statistics get them when they are first used in a query.
+        List<StatisticsDescriptor> sdl = td.getStatistics();
+        if (sdl.isEmpty()) {
+            synchronized (modifications) {
+                modifications.remove(tableId);
+            }
+            return;
+        }
+        long rowEstimate = sdl.get(0).getStatistic().getRowEstimate();
+        long limit = modifiedLimit(rowEstimate);
+        boolean stale = (modified >= limit);
+
+        synchronized (modifications) {
+            // If an update is scheduled, look again after as many rows more
+            // have been modified in case the update was rejected.
+            mc.checkAt = stale ? modified + limit : limit;
+        }
+
+        // Like FromBaseTable, only bother if there are indexes which need
+        // statistics.
+        int qualifiedIndexes = skipDisposableStats
+                ? td.getQualifiedNumberOfIndexes(2, true)
+                : td.getTotalNumberOfIndexes();
+        if (stale && qualifiedIndexes > 0) {
+            schedule(td, "modified=" + modified + ", i-est=" + rowEstimate);
+        }
+    }
+
+    /**
+     * Starts counting the modifications of a table from zero again, after the
+     * statistics of all its indexes have been updated.
+     *
+     * @param td the table
+     * @param rowEstimate the number of rows in the table, or {@code -1} if
+     *      not known
+     */
+    private void resetModifications(TableDescriptor td, long rowEstimate) {
+        synchronized (modifications) {
+            ModificationCounter mc = modifications.get(td.getUUID());
+            if (mc != null) {
+                mc.modified = 0;
+                mc.checkAt = modifiedLimit(rowEstimate);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows to modify in a table before its statistics
+     * are considered stale.
+     *
+     * @param rowEstimate the number of rows in the table
+     * @return The number of rows.
+     */
+    private static long modifiedLimit(long rowEstimate) {
+        return Math.max(TableDescriptor.ISTATS_ABSDIFF_THRESHOLD,
+                        (long) (rowEstimate * MODIFIED_FRACTION));
+    }
+
     /**
      * Generates index statistics for all indexes associated with the given
      * table descriptor.
@@ -382,13 +557,18 @@ public class IndexStatisticsDaemonImpl
         }
     }
 
-    /** Return true if we are being shutdown */
-    private boolean isShuttingDown() {
+    /**
+     * Return true if we are being shutdown.
+     *
+     * @param lcc the connection of the worker asking, {@code null} if it has
+     *      been destroyed
+     */
+    private boolean isShuttingDown(LanguageConnectionContext lcc) {
         synchronized (queue) {
-            if (daemonDisabled || daemonLCC == null){
+            if (daemonDisabled || lcc == null){
                 return true;
             } else {
-                return !daemonLCC.getDatabase().isActive();
+                return !lcc.getDatabase().isActive();
             }
         }
     }
@@ -429,6 +609,7 @@ public class IndexStatisticsDaemonImpl
         // Extract/derive information from the table descriptor
         long[]          conglomerateNumber      = new long[cds.length];
         ExecIndexRow[]  indexRow                = new ExecIndexRow[cds.length];
+        boolean[]       withHistogram           = new boolean[cds.length];
 
 
         TransactionController tc = lcc.getTransactionExecute();
@@ -479,6 +660,15 @@ public class IndexStatisticsDaemonImpl
                 indexRow[i] = irg.getNullIndexRow(
                         td.getColumnDescriptorList(),
                         heapCC.newRowLocationTemplate());
+
+                // The histogram is read in the order of the index, so it
+                // must be the order of the values as the optimizer compares
+                // them.
+                withHistogram[i] = HISTOGRAM_SIZE > 0 &&
+                        irg.isAscending()[0] &&
+                        td.getColumnDescriptor(irg.baseColumnPositions()[0])
+                            .getType().getCollationType() ==
+                                StringDataValue.COLLATION_TYPE_UCS_BASIC;
             }
         }
         finally
@@ -553,6 +743,7 @@ public class IndexStatisticsDaemonImpl
         // [x][0] = conglomerate number, [x][1] = start time, [x][2] = stop time
         long[][] scanTimes = new long[conglomerateNumber.length][3];
         int      sci       = 0;
+        long     tableRows = -1;
         for (int indexNumber = 0;
              indexNumber < conglomerateNumber.length;
              indexNumber++)
@@ -562,7 +753,7 @@ public class IndexStatisticsDaemonImpl
 
             // Check if daemon has been disabled.
             if (asBackgroundTask) {
-                if (isShuttingDown()) {
+                if (isShuttingDown(lcc)) {
                     break;
                 }
             }
@@ -573,76 +764,104 @@ public class IndexStatisticsDaemonImpl
             // Subtract one for the RowLocation added for indexes.
             int           numCols     = indexRow[indexNumber].nColumns() - 1;
             long[]        cardinality = new long[numCols];
-            KeyComparator cmp         = new KeyComparator(indexRow[indexNumber]);
-
-            /* Read uncommitted, with record locking. Actually CS store may
-               not hold record locks */
-            GroupFetchScanController gsc =
-                tc.openGroupFetchScan(
-                        conglomerateNumber[indexNumber],
-                        false,  // hold
-                        0,
-                        TransactionController.MODE_RECORD, // locking
-                        TransactionController.ISOLATION_READ_UNCOMMITTED,
-                        null,   // scancolumnlist-- want everything.
-                        null,   // startkeyvalue-- start from the beginning.
-                        0,
-                        null,   // qualifiers, none!
-                        null,   // stopkeyvalue,
-                        0);
-
-            try
-            {
-                int     rowsFetched           = 0;
-                boolean giving_up_on_shutdown = false;
+            long          numRows     = -1;
+            HistogramBuilder histogram = withHistogram[indexNumber]
+                    ? new HistogramBuilder(HISTOGRAM_SIZE) : null;
+
+            // Estimate the statistics of large indexes from a sample of their
+            // leaf pages, the store tells us if the index should be scanned.
+            if (SAMPLE_PAGES > 0) {
+                numRows = tc.sampleConglomerate(
+                        conglomerateNumber[indexNumber], SAMPLE_PAGES,
+                        cardinality, histogram);
+                if (numRows >= 0) {
+                    trace(2, "sampled " + SAMPLE_PAGES + " leaf pages of c" +
+                            conglomerateNumber[indexNumber]);
+                }
+            }
 
-                while ((rowsFetched = cmp.fetchRows(gsc)) > 0)
+            if (numRows < 0) {
+                KeyComparator cmp = new KeyComparator(indexRow[indexNumber]);
+
+                /* Read uncommitted, with record locking. Actually CS store may
+                   not hold record locks */
+                GroupFetchScanController gsc =
+                    tc.openGroupFetchScan(
+                            conglomerateNumber[indexNumber],
+                            false,  // hold
+                            0,
+                            TransactionController.MODE_RECORD, // locking
+                            TransactionController.ISOLATION_READ_UNCOMMITTED,
+                            null,   // scancolumnlist-- want everything.
+                            null,   // startkeyvalue-- start from the beginning.
+                            0,
+                            null,   // qualifiers, none!
+                            null,   // stopkeyvalue,
+                            0);
+
+                try
                 {
-                    // DERBY-5108
-                    // Check if daemon has been disabled, and if so stop
-                    // scan and exit asap.  On shutdown the system will
-                    // send interrupts, but the system currently will
-                    // recover from these during the scan and allow the
-                    // scan to finish. Checking here after each group
-                    // I/O that is processed as a convenient point.
-                    if (asBackgroundTask) {
-                        if (isShuttingDown()) {
-                            giving_up_on_shutdown = true;
-                            break;
-                        }
-                    }
+                    int     rowsFetched           = 0;
+                    boolean giving_up_on_shutdown = false;
 
-                    for (int i = 0; i < rowsFetched; i++)
+                    while ((rowsFetched = cmp.fetchRows(gsc)) > 0)
                     {
-                        int whichPositionChanged = cmp.compareWithPrevKey(i);
-                        if (whichPositionChanged >= 0) {
-                            for (int j = whichPositionChanged; j < numCols; j++)
-                                cardinality[j]++;
+                        // DERBY-5108
+                        // Check if daemon has been disabled, and if so stop
+                        // scan and exit asap.  On shutdown the system will
+                        // send interrupts, but the system currently will
+                        // recover from these during the scan and allow the
+                        // scan to finish. Checking here after each group
+                        // I/O that is processed as a convenient point.
+                        if (asBackgroundTask) {
+                            if (isShuttingDown(lcc)) {
+                                giving_up_on_shutdown = true;
+                                break;
+                            }
                         }
-                    }
 
-                } // while
+                        for (int i = 0; i < rowsFetched; i++)
+                        {
+                            int whichPositionChanged =
+                                    cmp.compareWithPrevKey(i);
+                            if (whichPositionChanged >= 0) {
+                                for (int j = whichPositionChanged;
+                                     j < numCols; j++)
+                                    cardinality[j]++;
+                            }
+                            if (histogram != null) {
+                                histogram.observeRow(cmp.getRow(i));
+                            }
+                        }
 
-                if (giving_up_on_shutdown)
-                    break;
+                    } // while
 
-                gsc.setEstimatedRowCount(cmp.getRowCount());
-            } // try
-            finally
-            {
-                gsc.close();
-                gsc = null;
+                    if (giving_up_on_shutdown)
+                        break;
+
+                    gsc.setEstimatedRowCount(cmp.getRowCount());
+                    numRows = cmp.getRowCount();
+                } // try
+                finally
+                {
+                    gsc.close();
+                    gsc = null;
+                }
             }
             scanTimes[sci++][2] = System.currentTimeMillis();
+            ColumnHistogram columnHistogram =
+                    (histogram == null) ? null : histogram.getHistogram();
 
-            // We have scanned the indexes, so let's give this a few attempts
+            // We have scanned the index, so let's give this a few attempts
             // before giving up.
             int retries = 0;
             while (true) {
                 try {
                     writeUpdatedStats(lcc, td, 
                             non_disposable_objectUUID[indexNumber],
-                            cmp.getRowCount(), cardinality, asBackgroundTask);
+                            numRows, cardinality, columnHistogram,
+                            asBackgroundTask);
+                    tableRows = numRows;
                     break;
                 } catch (StandardException se) {
 
@@ -663,6 +882,13 @@ public class IndexStatisticsDaemonImpl
         }
 
         log(asBackgroundTask, td, fmtScanTimes(scanTimes));
+
+        // If the statistics of all the indexes have been updated, count the
+        // modifications of the table from zero again.
+        if (identifyDisposableStats &&
+                !(asBackgroundTask && isShuttingDown(lcc))) {
+            resetModifications(td, tableRows);
+        }
     }
 
     /**
@@ -674,6 +900,8 @@ public class IndexStatisticsDaemonImpl
      * @param numRows number of rows in the base table
      * @param cardinality the number of unique values in the index (per number
      *      of leading columns)
+     * @param histogram the distribution of the values of the first column of
+     *      the index, or {@code null} if not known
      * @param asBackgroundTask whether the update is done automatically as
      *      part of a background task or if explicitly invoked by the user
      * @throws StandardException if updating the data dictionary fails
@@ -681,6 +909,7 @@ public class IndexStatisticsDaemonImpl
     private void writeUpdatedStats(LanguageConnectionContext lcc,
                                    TableDescriptor td, UUID index,
                                    long numRows, long[] cardinality,
+                                   ColumnHistogram histogram,
                                    boolean asBackgroundTask)
             throws StandardException {
         TransactionController tc = lcc.getTransactionExecute();
@@ -706,7 +935,8 @@ public class IndexStatisticsDaemonImpl
             for (int i=0; i < cardinality.length; i++) {
                 StatisticsDescriptor statDesc = new StatisticsDescriptor(
                         dd, uf.createUUID(), index, table, "I",
-                     new StatisticsImpl(numRows, cardinality[i]),
+                     new StatisticsImpl(numRows, cardinality[i],
+                                        i == 0 ? histogram : null),
                      i+1);
                 dd.addDescriptor(statDesc, null,
                         DataDictionary.SYSSTATISTICS_CATALOG_NUM, true, tc);
@@ -718,7 +948,8 @@ public class IndexStatisticsDaemonImpl
                     "wrote stats for index "  + 
                     (cd == null ? "n/a" : cd.getDescriptorName()) +
                     " (" + index + "): rows=" + numRows +
-                    ", card=" + cardToStr(cardinality));
+                    ", card=" + cardToStr(cardinality) +
+                    (histogram == null ? "" : ", histogram=" + histogram));
 
             // DERBY-5045: When running as a background task, we don't take
             // intention locks that prevent dropping the table or its indexes.
@@ -835,25 +1066,27 @@ public class IndexStatisticsDaemonImpl
     /**
      * Drives the statistics generation.
      * <p>
-     * This method will be run in a separate thread, and it will keep working
-     * as long as there is work to do. When the queue is exhausted, the method
-     * will exit (the thread dies).
+     * This method will be run in the thread of a worker, and it will keep
+     * working as long as there is work to do. When the queue is exhausted, the
+     * method will exit (the thread dies).
+     *
+     * @param w the worker
      */
-    public void run() {
+    private void run(Worker w) {
         final long runStart = System.currentTimeMillis();
         ContextService ctxService = null;
         // Implement the outer-level exception handling here.
         try {
             // DERBY-5088: Factory-call may fail.
             ctxService = getContextService();
-            ctxService.setCurrentContextManager(ctxMgr);
-            processingLoop();
+            ctxService.setCurrentContextManager(w.ctxMgr);
+            processingLoop(w);
         } catch (ShutdownException se) {
             // The database is/has been shut down.
             // Log processing statistics and exit.
             trace(1, "swallowed shutdown exception: " + extractIstatInfo(se));
             stop();
-            ctxMgr.cleanupOnError(se, db.isActive());
+            w.ctxMgr.cleanupOnError(se, db.isActive());
         } catch (RuntimeException re) {
             // DERBY-4037
             // Extended filtering of runtime exceptions during shutdown:
@@ -861,7 +1094,7 @@ public class IndexStatisticsDaemonImpl
             //  o runtime exceptions, like NPEs, raised by production jars -
             //    happens because the background thread interacts with store
             //    on a lower level
-            if (!isShuttingDown()) {
+            if (!isShuttingDown(w.daemonLCC)) {
                 log(AS_BACKGROUND_TASK, null, re,
                         "runtime exception during normal operation");
                 throw re;
@@ -870,9 +1103,11 @@ public class IndexStatisticsDaemonImpl
                     extractIstatInfo(re));
         } finally {
             if (ctxService != null) {
-                ctxService.resetCurrentContextManager(ctxMgr);
+                ctxService.resetCurrentContextManager(w.ctxMgr);
+            }
+            synchronized (queue) {
+                runTime += (System.currentTimeMillis() - runStart);
             }
-            runTime += (System.currentTimeMillis() - runStart);
             trace(0, "worker thread exit");
         }
     }
@@ -880,26 +1115,32 @@ public class IndexStatisticsDaemonImpl
     /**
      * Main processing loop which will compute statistics until the queue
      * of scheduled work units has been drained.
+     *
+     * @param w the worker
      */
-    private void processingLoop() {
+    private void processingLoop(Worker w) {
         // If we don't have a connection to the database, create one.
-        if (daemonLCC == null) {
+        if (w.daemonLCC == null) {
             try {
-                daemonLCC =
-                        db.setupConnection(ctxMgr, dbOwner, null, databaseName);
+                w.daemonLCC =
+                      db.setupConnection(w.ctxMgr, dbOwner, null, databaseName);
                 // Initialize the lcc/transaction.
                 // TODO: Would be nice to name the transaction.
-                daemonLCC.setIsolationLevel(
+                w.daemonLCC.setIsolationLevel(
                         Connection.TRANSACTION_READ_UNCOMMITTED);
                 // Don't wait for any locks.
-                daemonLCC.getTransactionExecute().setNoLockWait(true);
+                w.daemonLCC.getTransactionExecute().setNoLockWait(true);
             } catch (StandardException se) {
                 log(AS_BACKGROUND_TASK, null, se,
                         "failed to initialize index statistics updater");
+                synchronized (queue) {
+                    w.thread = null;
+                }
                 return;
             }
         }
 
+        LanguageConnectionContext daemonLCC = w.daemonLCC;
         TransactionController tc = null;
         try {
             tc = daemonLCC.getTransactionExecute();
@@ -918,7 +1159,7 @@ public class IndexStatisticsDaemonImpl
                             // Ignore
                         }
                         tc = null;
-                        daemonLCC = null;
+                        w.daemonLCC = null;
                         queue.clear();
                         trace(1, "daemon disabled");
                         break;
@@ -927,21 +1168,20 @@ public class IndexStatisticsDaemonImpl
                         trace(1, "queue empty");
                         break;
                     }
-                    td = queue.get(0);
+                    td = queue.remove(0);
+                    w.current = td;
                 }
+                boolean failed = true;
                 try {
                     start = System.currentTimeMillis();
                     generateStatistics(daemonLCC, td);
-                    wuProcessed++;
-                    // Reset consecutive error counter.
-                    errorsConsecutive = 0;
+                    failed = false;
                     log(AS_BACKGROUND_TASK, td, "generation complete (" +
                             ((System.currentTimeMillis() - start))  + " ms)");
                 } catch (StandardException se) {
-                    errorsConsecutive++;
                     // Assume handling of fatal errors will clean up properly.
                     // For less severe errors, rollback tx to clean up.
-                    if (!handleFatalErrors(ctxMgr, se)) {
+                    if (!handleFatalErrors(w, se)) {
                         boolean handled = handleExpectedErrors(td, se);
                         if (!handled) {
                             handled = handleUnexpectedErrors(td, se);
@@ -953,21 +1193,27 @@ public class IndexStatisticsDaemonImpl
                     }
                 } finally {
                     // Whatever happened, discard the unit of work.
+                    int errors;
                     synchronized (queue) {
-                        // Queue may have been cleared due to shutdown.
-                        if (!queue.isEmpty()) {
-                            queue.remove(0);
+                        w.current = null;
+                        if (failed) {
+                            errorsConsecutive++;
+                        } else {
+                            wuProcessed++;
+                            // Reset consecutive error counter.
+                            errorsConsecutive = 0;
                         }
+                        errors = errorsConsecutive;
                     }
                     // If we have seen too many consecutive errors, disable
                     // the daemon. 50 was chosen based on gut-feeling...
                     // Hopefully it can withstand shortlived "hick-ups", but
                     // will cause shutdown if there is a real problem.
                     // Create an exception to force logging of the message.
-                    if (errorsConsecutive >= 50) {
+                    if (errors >= 50) {
                         log(AS_BACKGROUND_TASK, null,
                                 new IllegalStateException("degraded state"),
-                                "shutting down daemon, " + errorsConsecutive +
+                                "shutting down daemon, " + errors +
                                 " consecutive errors seen");
                         stop();
                     }
@@ -978,9 +1224,9 @@ public class IndexStatisticsDaemonImpl
             // Do nothing, just let the thread die.
         } finally {
             synchronized (queue) {
-                runningThread = null;
+                w.thread = null;
             }
-            if (daemonLCC != null && !daemonLCC.isTransactionPristine()) {
+            if (w.daemonLCC != null && !daemonLCC.isTransactionPristine()) {
                 if (SanityManager.DEBUG) {
                     SanityManager.THROWASSERT("transaction not pristine");
                 }
@@ -1025,7 +1271,7 @@ public class IndexStatisticsDaemonImpl
      * first time the method is invoked.
      */
     public void stop() {
-        Thread threadToWaitFor = null;
+        ArrayList<Thread> threadsToWaitFor = new ArrayList<Thread>();
         // Controls execution of last cleanup step outside of the synchronized
         // block. Should only be done once, and this is ensured by the guard on
         // 'queue' and the value of 'daemonDisabled'.
@@ -1035,36 +1281,51 @@ public class IndexStatisticsDaemonImpl
             if (!daemonDisabled) {
                 clearContext = true;
                 StringBuffer sb = new StringBuffer(100);
+                int active = 0;
+                for (int i=0; i < workers.length; i++) {
+                    if (workers[i].thread != null) {
+                        active++;
+                    }
+                }
                 sb.append("stopping daemon, active=").
-                        append(runningThread != null).
+                        append(active).
                         append(", work/age=").append(runTime).append('/').
                         append(System.currentTimeMillis() - timeOfCreation).
                         append(' ');
                 appendRunStats(sb);
                 log(AS_BACKGROUND_TASK, null, sb.toString());
-                // If there is no running thread and the daemon lcc is still
-                // around, destroy the transaction and clear the lcc reference.
-                if (runningThread == null && daemonLCC != null &&
-                        !isShuttingDown()) {
-                    // try/catch as safe-guard against shutdown race condition.
-                    try {
-                        daemonLCC.getTransactionExecute().destroy();
-                    } catch (ShutdownException se) {
-                        // Ignore
+                for (int i=0; i < workers.length; i++) {
+                    Worker w = workers[i];
+                    // If there is no running thread and the daemon lcc is
+                    // still around, destroy the transaction and clear the lcc
+                    // reference.
+                    if (w.thread == null && w.daemonLCC != null &&
+                            !isShuttingDown(w.daemonLCC)) {
+                        // try/catch as safe-guard against shutdown race
+                        // condition.
+                        try {
+                            w.daemonLCC.getTransactionExecute().destroy();
+                        } catch (ShutdownException se) {
+                            // Ignore
+                        }
+                        w.daemonLCC = null;
+                    }
+                    // A worker stopping the daemon can't wait for itself.
+                    if (w.thread != null &&
+                            w.thread != Thread.currentThread()) {
+                        threadsToWaitFor.add(w.thread);
                     }
-                    daemonLCC = null;
+                    w.thread = null;
                 }
                 daemonDisabled = true;
-                threadToWaitFor = runningThread;
-                runningThread = null;
                 queue.clear();
             }
         }
 
-        // Wait for the currently running thread, if there is one. Must do
+        // Wait for the currently running threads, if there are any. Must do
         // this outside of the synchronized block so that we don't deadlock
-        // with the thread.
-        if (threadToWaitFor != null) {
+        // with the threads.
+        for (Thread threadToWaitFor : threadsToWaitFor) {
             while (true) {
                 try {
                     threadToWaitFor.join();
@@ -1084,7 +1345,10 @@ public class IndexStatisticsDaemonImpl
             // DERBY-5336: Trigger cleanup code to remove the context
             //             from the context service. This pattern was
             //             copied from BasicDaemon.
-            ctxMgr.cleanupOnError(StandardException.normalClose(), false);
+            for (int i=0; i < workers.length; i++) {
+                workers[i].ctxMgr.cleanupOnError(
+                        StandardException.normalClose(), false);
+            }
         }
     }
 
@@ -1092,17 +1356,18 @@ public class IndexStatisticsDaemonImpl
     /**
      * Handles fatal errors that will cause the daemon to be shut down.
      *
-     * @param cm context manager
+     * @param w the worker which saw the error
      * @param se the exception to handle
      * @return {@code true} if the error was handled, {@code false} otherwise
      */
-    private boolean handleFatalErrors(ContextManager cm, StandardException se) {
+    private boolean handleFatalErrors(Worker w, StandardException se) {
+        LanguageConnectionContext daemonLCC = w.daemonLCC;
         boolean disable = false;
         if (SQLState.DATA_CONTAINER_READ_ONLY.equals(se.getMessageId())) {
             // We are not allowed to write into the database, most likely the
             // data dictionary. No point to keep doing work we can't gain from.
             disable = true;
-        } else if (isShuttingDown() ||
+        } else if (isShuttingDown(daemonLCC) ||
                 se.getSeverity() >= ExceptionSeverity.DATABASE_SEVERITY) {
             // DERBY-4037: Swallow exceptions raised during shutdown.
             // The database or system is going down. Probably handled elsewhere
@@ -1110,7 +1375,7 @@ public class IndexStatisticsDaemonImpl
             trace(1, "swallowed exception during shutdown: " +
                     extractIstatInfo(se));
             disable = true;
-            cm.cleanupOnError(se, db.isActive());
+            w.ctxMgr.cleanupOnError(se, db.isActive());
         }
 
         if (disable) {
@@ -1361,6 +1626,47 @@ public class IndexStatisticsDaemonImpl
         }
     }    
 
+    /**
+     * A worker processing the queue in a thread of its own, using its own
+     * context manager and connection. The thread is created as needed, and
+     * is allowed to die when the queue is empty since it is assumed that
+     * index statistics regeneration is rather infrequent. The connection is
+     * kept for the next time the worker is needed.
+     */
+    private class Worker implements Runnable {
+
+        /** The context manager for the worker thread. */
+        private final ContextManager ctxMgr =
+                getContextService().newContextManager();
+        /** The language connection context for the worker thread. */
+        private LanguageConnectionContext daemonLCC;
+        /** The thread in which the worker is running, if any. */
+        //@GuardedBy("queue")
+        private Thread thread;
+        /** The table the worker is updating statistics for, if any. */
+        //@GuardedBy("queue")
+        private TableDescriptor current;
+
+        public void run() {
+            IndexStatisticsDaemonImpl.this.run(this);
+        }
+    }
+
+    /**
+     * Counts the rows modified in a table since its statistics were last
+     * updated.
+     */
+    private static class ModificationCounter {
+
+        /** Number of rows inserted, updated or deleted. */
+        private long modified;
+        /**
+         * The number of modified rows at which to look at the table again
+         * to see if its statistics should be updated.
+         */
+        private long checkAt = TableDescriptor.ISTATS_ABSDIFF_THRESHOLD;
+    }
+
     /**
      * Support class used to compare keys when scanning indexes.
      */
@@ -1448,6 +1754,16 @@ public class IndexStatisticsDaemonImpl
             return -1;
         }
 
+        /**
+         * Returns a row fetched by the last call to {@code fetchRows}.
+         *
+         * @param index row index
+         * @return The row.
+         */
+        public DataValueDescriptor[] getRow(int index) {
+            return rowBufferArray[index];
+        }
+
         /**
          * Returns the number of rows fetched.
          *
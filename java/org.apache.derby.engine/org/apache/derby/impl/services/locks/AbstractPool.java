@@ -39,6 +39,8 @@ import org.apache.derby.shared.common.reference.Property;
 import java.io.Serializable;
 import java.util.Dictionary;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.iapi.services.locks.LockOwner;
 
@@ -66,6 +68,32 @@ abstract class AbstractPool implements LockFactory
 	*/
 	int deadlockMonitor;
 
+	/**
+		Estimated number of bytes taken up by a lock: the copy of the lock
+		in the group of its compatibility space and the lock in the lock
+		table, the hash table entries that refer to them, and the share of
+		the lock table entry and its mutex.
+	*/
+	static final int LOCK_MEMORY_ESTIMATE = 256;
+
+	/**
+		The number of locks held by all the compatibility spaces created
+		by this factory, counting each lock once however many times it
+		was obtained.
+	*/
+	private final LongAdder heldLocks = new LongAdder();
+
+	/**
+		The number of bytes the held locks may take up before the spaces
+		holding many of them are asked to release some, 0 if there is no
+		such limit. Set by derby.locks.escalationMemory.
+	*/
+	private volatile int escalationMemory =
+		Property.DEFAULT_LOCKS_ESCALATION_MEMORY;
+
+	/** The number of times a space released locks on memory. */
+	private final AtomicLong memoryEscalations = new AtomicLong();
+
 	protected AbstractPool() {
 		lockTable = createLockTable();
 	}
@@ -156,7 +184,7 @@ abstract class AbstractPool implements LockFactory
 	 * @return an object which represents a compatibility space
 	 */
 	public CompatibilitySpace createCompatibilitySpace(LockOwner owner) {
-		return new LockSpace(owner);
+		return new LockSpace(this, owner);
 	}
 
 	/**
@@ -329,6 +357,54 @@ abstract class AbstractPool implements LockFactory
 	*/
 	public int getWaitTimeout() { return lockTable.getWaitTimeout(); }
 
+	/*
+	** Accounting of the memory taken up by locks
+	*/
+
+	/** Count locks added to the group of a compatibility space. */
+	void locksAdded(int count) {
+		heldLocks.add(count);
+	}
+
+	/** Count locks removed from the group of a compatibility space. */
+	void locksRemoved(int count) {
+		heldLocks.add(-count);
+	}
+
+	/** Count a limit callback that released locks on memory. */
+	void memoryEscalated() {
+		memoryEscalations.incrementAndGet();
+	}
+
+	/**
+		Tell whether the held locks take up more memory than
+		derby.locks.escalationMemory allows.
+	*/
+	boolean isLockMemoryExceeded() {
+		int limit = escalationMemory;
+		return limit > 0 && getLockMemoryBytes() > limit;
+	}
+
+	/** Get the number of locks held by all compatibility spaces. */
+	long getLockCount() {
+		return heldLocks.sum();
+	}
+
+	/** Get the estimated number of bytes taken up by the held locks. */
+	long getLockMemoryBytes() {
+		return getLockCount() * LOCK_MEMORY_ESTIMATE;
+	}
+
+	/** Get the value of derby.locks.escalationMemory. */
+	int getEscalationMemory() {
+		return escalationMemory;
+	}
+
+	/** Get the number of times a space released locks on memory. */
+	long getMemoryEscalationCount() {
+		return memoryEscalations.get();
+	}
+
 	public void setLimit(CompatibilitySpace compatibilitySpace,
 						 Object group, int limit, Limit callback) {
 		((LockSpace) compatibilitySpace).setLimit(group, limit, callback);
@@ -387,6 +463,7 @@ abstract class AbstractPool implements LockFactory
 		getAndApply(dbOnly, p, Property.DEADLOCK_TIMEOUT);
 		getAndApply(dbOnly, p, Property.LOCKWAIT_TIMEOUT);
 		getAndApply(dbOnly, p, Property.DEADLOCK_MONITOR);
+		getAndApply(dbOnly, p, Property.LOCKS_ESCALATION_MEMORY);
 //EXCLUDE-START-lockdiag- 
         getAndApply(dbOnly, p, Property.DEADLOCK_TRACE);
 //EXCLUDE-END-lockdiag- 
@@ -423,6 +500,8 @@ abstract class AbstractPool implements LockFactory
 				PropertyUtil.booleanProperty(Property.DEADLOCK_MONITOR, value, false);
             else if (key.equals(Property.DEADLOCK_TRACE))
                 PropertyUtil.booleanProperty(Property.DEADLOCK_TRACE, value, false);
+			else if (key.equals(Property.LOCKS_ESCALATION_MEMORY))
+				getMemoryValue((String) value);
 		}
 
 		return true;
@@ -448,6 +527,8 @@ abstract class AbstractPool implements LockFactory
 			deadlockMonitor = PropertyUtil.booleanProperty(Property.DEADLOCK_MONITOR, svalue, false) ?
 				StandardException.REPORT_ALWAYS : StandardException.REPORT_DEFAULT;
 		}
+		else if (key.equals(Property.LOCKS_ESCALATION_MEMORY))
+			escalationMemory = getMemoryValue(svalue);
 //EXCLUDE-START-lockdiag- 
         else if (key.equals(Property.DEADLOCK_TRACE))
             lockTable.setDeadlockTrace(PropertyUtil.booleanProperty(Property.DEADLOCK_TRACE, svalue, false));
@@ -477,4 +558,9 @@ abstract class AbstractPool implements LockFactory
 
 		return wait;
 	}
+
+	private static int getMemoryValue(String value) {
+		return PropertyUtil.handleInt(value, 0, Integer.MAX_VALUE,
+			Property.DEFAULT_LOCKS_ESCALATION_MEMORY);
+	}
 }
@@ -40,6 +40,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.Enumeration;
 import java.util.Map;
 
@@ -52,10 +53,9 @@ import java.util.Map;
 	A LockControl contains information about the locks held on a Lockable.
 
 	<BR>
-    MT - Mutable : All public methods of this class, except addWaiters, are
-    thread safe. addWaiters can only be called from the thread which performs
-    deadlock detection. Only one thread can perform deadlock detection at a
-    time.
+    MT - Mutable : All public methods of this class are thread safe.
+    Several threads may perform deadlock detection at the same time, each
+    one locking only the entries on the paths of the wait graph it follows.
 
 	<BR>
 	The class creates ActiveLock and LockControl objects.
@@ -83,14 +83,27 @@ final class ConcurrentLockSet implements LockTable {
     private final ConcurrentHashMap<Lockable, Entry> locks;
 
     /**
-     * List containing all entries seen by the last call to
-     * <code>addWaiters()</code>. Makes it possible for the deadlock detection
-     * thread to lock all the entries it has visited until it has
-     * finished. This prevents false deadlocks from being reported (because all
-     * observed waiters must still be waiting when the deadlock detection has
-     * completed).
+     * The edges of the wait graph: maps the compatibility space of each
+     * waiting lock request to the entry it is waiting on. An edge is added
+     * when a lock request starts waiting and removed when it stops waiting,
+     * in both cases while holding the entry's mutex. Deadlock detection
+     * follows the edges from the waiter that checks for a deadlock instead
+     * of locking every entry in the lock table.
      */
-    private ArrayList<Entry> seenByDeadlockDetection;
+    private final ConcurrentHashMap<CompatibilitySpace, Entry> waitsFor;
+
+    /**
+     * Number of times deadlock detection tries to lock the entries on its
+     * paths without waiting for them, before it waits for the entries one
+     * search at a time.
+     */
+    private static final int DEADLOCK_SEARCH_ATTEMPTS = 10;
+
+    /**
+     * Lets one deadlock search at a time wait for the entries it visits,
+     * when its attempts not to wait have failed because of other searches.
+     */
+    private final Object waitingSearch = new Object();
 
 	/**
 		Timeout for deadlocks, in ms.
@@ -119,6 +132,7 @@ final class ConcurrentLockSet implements LockTable {
 		this.factory = factory;
         blockCount = new AtomicInteger();
 		locks = new ConcurrentHashMap<Lockable, Entry>();
+        waitsFor = new ConcurrentHashMap<CompatibilitySpace, Entry>();
 	}
 
     /**
@@ -133,8 +147,9 @@ final class ConcurrentLockSet implements LockTable {
          * than one entry. Excepted from this requirement is a thread which
          * performs deadlock detection. During deadlock detection, a thread
          * might hold several mutexes, but it is not allowed to hold any mutex
-         * when entering the deadlock detection. Only one thread is allowed to
-         * perform deadlock detection at a time.
+         * when entering the deadlock detection, and it only waits for a mutex
+         * while holding others if no other thread does, see
+         * {@link WaitGraph}.
          */
         private final ReentrantLock mutex = new ReentrantLock();
         /**
@@ -188,6 +203,20 @@ final class ConcurrentLockSet implements LockTable {
             mutex.lock();
         }
 
+        /**
+         * Lock the entry while performing deadlock detection, like
+         * <code>lockForDeadlockDetection()</code>, but only if no other
+         * thread holds the mutex.
+         *
+         * @return <code>true</code> if the entry was locked
+         */
+        boolean tryLockForDeadlockDetection() {
+            if (SanityManager.DEBUG) {
+                SanityManager.ASSERT(!mutex.isHeldByCurrentThread());
+            }
+            return mutex.tryLock();
+        }
+
         /**
          * Notify that the lock request that is currently accessing the entry
          * will be entering deadlock detection. Unlock the entry to allow the
@@ -254,8 +283,96 @@ final class ConcurrentLockSet implements LockTable {
     }
 
     /**
-     * Check whether there is a deadlock. Make sure that only one thread enters
-     * deadlock detection at a time.
+     * The part of the wait graph seen by a deadlock search. The search
+     * looks up which lock request a compatibility space is waiting for with
+     * <code>get()</code>, which follows the space's edge in
+     * <code>waitsFor</code>, locks the entry at the end of it and adds all
+     * the waiters of the entry, see <code>LockControl.addWaiters()</code>.
+     * The entries stay locked until <code>release()</code> is called, so
+     * all the waiters seen must still be waiting when a deadlock is found,
+     * and no false deadlocks are reported.
+     * <p>
+     * Since searches started by different waiters run at the same time, a
+     * search that waited for a mutex while holding others could deadlock
+     * with another search. Searches therefore only lock entries that are
+     * not locked by someone else, and report that they are incomplete
+     * if they had to skip an entry. A search that keeps being incomplete is
+     * repeated as a waiting search, which waits for the entries it visits;
+     * <code>waitingSearch</code> makes sure there is at most one of those.
+     */
+    private final class WaitGraph extends Hashtable<Object,Object> {
+        /** Whether to wait for entries locked by others. */
+        private final boolean waitForEntries;
+        /** The entries locked by this search. */
+        private final ArrayList<Entry> visited = new ArrayList<Entry>();
+        /** Whether an entry was skipped because it was locked. */
+        private boolean incomplete;
+        /** Whether the search has finished and released its entries. */
+        private boolean released;
+
+        WaitGraph(boolean waitForEntries) {
+            this.waitForEntries = waitForEntries;
+        }
+
+        /**
+         * Get the lock request a compatibility space is waiting for, or the
+         * lock request or lock control ahead of a waiting lock request.
+         */
+        public synchronized Object get(Object key) {
+            Object value = super.get(key);
+            if (value == null && !released &&
+                    key instanceof CompatibilitySpace) {
+                Entry entry = waitsFor.get(key);
+                if (entry != null && visit(entry)) {
+                    value = super.get(key);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Lock an entry and add its waiters, unless it has been visited
+         * before.
+         *
+         * @return <code>true</code> if the waiters of the entry were added
+         */
+        synchronized boolean visit(Entry entry) {
+            if (visited.contains(entry)) {
+                return false;
+            }
+            if (waitForEntries) {
+                entry.lockForDeadlockDetection();
+            } else if (!entry.tryLockForDeadlockDetection()) {
+                incomplete = true;
+                return false;
+            }
+            visited.add(entry);
+            if (entry.control != null) {
+                entry.control.addWaiters(this);
+            }
+            return true;
+        }
+
+        /** Tell whether the search skipped entries locked by others. */
+        synchronized boolean isIncomplete() {
+            return incomplete;
+        }
+
+        /** Unlock all the entries visited by the search. */
+        synchronized void release() {
+            for (Entry e : visited) {
+                e.unlock();
+            }
+            visited.clear();
+            released = true;
+        }
+    }
+
+    /**
+     * Check whether there is a deadlock. The search only locks the entries
+     * on the paths of the wait graph that start at the waiting lock request,
+     * so lock requests on other objects, and searches started by other
+     * waiters, go on while it runs.
      *
      * @param entry the entry in the lock table for the lock request that
      * triggered deadlock detection
@@ -269,19 +386,39 @@ final class ConcurrentLockSet implements LockTable {
         // make sure that the entry is not blocking other threads performing
         // deadlock detection since we have to wait for them to finish
         entry.enterDeadlockDetection();
-        synchronized (Deadlock.class) {
-            try {
-                return Deadlock.look(factory, this, control, waitingLock,
-                                     wakeupReason);
-            } finally {
-                // unlock all entries we visited
-                for (Entry e : seenByDeadlockDetection) {
-                    e.unlock();
+        try {
+            for (int i = 0; i < DEADLOCK_SEARCH_ATTEMPTS; i++) {
+                WaitGraph waiters = new WaitGraph(false);
+                try {
+                    if (waiters.visit(entry)) {
+                        Object[] data = Deadlock.look(factory, waiters,
+                                control, waitingLock, wakeupReason);
+                        // a deadlock found in part of the graph is still a
+                        // deadlock
+                        if (data != null || !waiters.isIncomplete()) {
+                            return data;
+                        }
+                    }
+                } finally {
+                    waiters.release();
                 }
-                seenByDeadlockDetection = null;
-                // re-lock the entry
-                entry.exitDeadlockDetection();
+                // let the search that holds the entries we need finish
+                Thread.yield();
             }
+
+            synchronized (waitingSearch) {
+                WaitGraph waiters = new WaitGraph(true);
+                try {
+                    waiters.visit(entry);
+                    return Deadlock.look(factory, waiters, control,
+                                         waitingLock, wakeupReason);
+                } finally {
+                    waiters.release();
+                }
+            }
+        } finally {
+            // re-lock the entry
+            entry.exitDeadlockDetection();
         }
     }
 
@@ -406,6 +543,9 @@ final class ConcurrentLockSet implements LockTable {
                return null;
 			}
 
+            // the lock request waits for the entry from now on
+            waitsFor.put(compatibilitySpace, entry);
+
         } finally {
             entry.unlock();
             
@@ -491,6 +631,7 @@ forever:	for (;;) {
                         // behind us in the queue don't get stuck waiting for
                         // us.
                         nextWaitingLock = control.getNextWaiter(waitingLock, true, this);
+                        waitsFor.remove(compatibilitySpace, entry);
                         throw e;
                     }
 
@@ -512,6 +653,7 @@ forever:	for (;;) {
                             // Remove from the waiting queue & get next waiter
                             nextWaitingLock = 
                                 control.getNextWaiter(waitingLock, true, this);
+                            waitsFor.remove(compatibilitySpace, entry);
 
                             return waitingLock;
                         }
@@ -548,6 +690,9 @@ forever:	for (;;) {
                         nextWaitingLock = 
                             control.getNextWaiter(
                                 waitingLock, willQuitWait, this);
+                        if (willQuitWait) {
+                            waitsFor.remove(compatibilitySpace, entry);
+                        }
 
 
                         // If we were not woken by another then we have
@@ -963,25 +1108,6 @@ forever:	for (;;) {
         }
     }
 
-    /**
-     * Add all waiters in this lock table to a <code>Map</code> object.
-     * This method can only be called by the thread that is currently
-     * performing deadlock detection. All entries that are visited in the lock
-     * table will be locked when this method returns. The entries that have
-     * been seen and locked will be unlocked after the deadlock detection has
-     * finished.
-     */
-    public void addWaiters(Map<Object,Object> waiters) {
-        seenByDeadlockDetection = new ArrayList<Entry>(locks.size());
-        for (Entry entry : locks.values()) {
-            seenByDeadlockDetection.add(entry);
-            entry.lockForDeadlockDetection();
-            if (entry.control != null) {
-                entry.control.addWaiters(waiters);
-            }
-        }
-    }
-
 //EXCLUDE-START-lockdiag- 
 	/**
 	 * make a shallow clone of myself and my lock controls
@@ -1032,4 +1158,18 @@ forever:	for (;;) {
 		}
 		return blocked != 0;
 	}
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getLockedObjectCount() {
+        return locks.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getWaiterCount() {
+        return blockCount.get();
+    }
 }
@@ -21,11 +21,27 @@
 
 package org.apache.derby.impl.services.locks;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Properties;
+import org.apache.derby.iapi.services.jmx.ManagementService;
+import org.apache.derby.iapi.services.monitor.ModuleControl;
+import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.services.monitor.PersistentService;
+import org.apache.derby.mbeans.LockManagerMBean;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.reference.Module;
+
 /**
  * A <code>LockFactory</code> which allows multiple threads to enter without
  * blocking each other out.
  */
-public final class ConcurrentPool extends AbstractPool {
+public final class ConcurrentPool extends AbstractPool
+        implements ModuleControl {
+
+    /** The identifier of the MBean that allows monitoring of the locks. */
+    private Object mbean;
+
     /**
      * Create the <code>ConcurrentLockSet</code> object that keeps the locks.
      *
@@ -34,4 +50,55 @@ public final class ConcurrentPool extends AbstractPool {
     protected LockTable createLockTable() {
         return new ConcurrentLockSet(this);
     }
+
+    /**
+     * Register the MBean that shows the locks of the database.
+     */
+    public void boot(boolean create, Properties properties)
+            throws StandardException {
+        String dbName = (properties == null)
+                ? null : properties.getProperty(PersistentService.ROOT);
+        ManagementService managementService =
+                (ManagementService) getSystemModule(Module.JMX);
+
+        if (dbName != null && managementService != null) {
+            mbean = managementService.registerMBean(
+                    new LockManagerMBeanImpl(this),
+                    LockManagerMBean.class,
+                    "type=LockManager,db=" +
+                    managementService.quotePropertyValue(dbName));
+        }
+    }
+
+    /**
+     * Unregister the MBean that shows the locks of the database.
+     */
+    public void stop() {
+        if (mbean != null) {
+            ManagementService managementService =
+                (ManagementService) getSystemModule(Module.JMX);
+            if (managementService != null) {
+                managementService.unregisterMBean(mbean);
+            }
+            mbean = null;
+        }
+    }
+
+    /**
+     * Privileged module lookup. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static  Object getSystemModule( final String factoryInterface )
+    {
+        return AccessController.doPrivileged
+            (
+             new PrivilegedAction<Object>()
+             {
+                 public Object run()
+                 {
+                     return Monitor.getSystemModule( factoryInterface );
+                 }
+             }
+             );
+    }
 }
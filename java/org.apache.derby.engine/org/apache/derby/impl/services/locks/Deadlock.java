@@ -53,9 +53,9 @@ import java.util.List;
  * </p>
  *
  * <p>
- * The wait graph is obtained by asking the {@code LockSet} instance to
- * provide a map representing all wait relations, see {@link #getWaiters}.
- * The map consists of two distinct sets of (key, value) pairs:
+ * The wait graph is provided by the {@code LockSet} instance as a map
+ * representing the wait relations, which it may fill in as the search
+ * asks for them. The map consists of two distinct sets of (key, value) pairs:
  * </p>
  *
  * <ol>
@@ -114,21 +114,15 @@ class Deadlock  {
      * </p>
      *
 	 * <p> 
-	 * MT - if the <code>LockTable</code> is a <code>LockSet</code> object, the
-	 * callers must be synchronized on the <code>LockSet</code> object in order
-	 * to satisfy the synchronization requirements of
-	 * <code>LockSet.addWaiters()</code>. If it is a
-	 * <code>ConcurrentLockSet</code> object, the callers must not hold any of
-	 * the <code>ReentrantLock</code>s guarding the entries in the lock table,
-	 * and the callers must make sure that only a single thread calls
-	 * <code>look()</code> at a time.
+	 * MT - the callers must make sure that the waiters in the wait graph,
+	 * and the granted locks of the lock controls reached through it, do not
+	 * change while <code>look()</code> runs.
      * </p>
 	 *
 	 *
 	 * @param factory The locking system factory
-	 * @param set The complete lock table. A lock table is a hash
-	 * table keyed by a Lockable and with a LockControl as
-	 * the data element.
+	 * @param waiters The wait graph, as (space, lock) and (lock, prevLock)
+	 * pairs, see {@link LockControl#addWaiters}.
 	 * @param control A LockControl contains a reference to the item being
 	 * locked and doubly linked lists for the granted locks
 	 * and the waiting locks. The passed in value is the
@@ -144,13 +138,10 @@ class Deadlock  {
 	 *
 	 * @exception StandardException Standard exception policy.
 	 */
-	static Object[] look(AbstractPool factory, LockTable set,
+	static Object[] look(AbstractPool factory, Dictionary waiters,
 						 LockControl control, ActiveLock startingLock,
 						 byte deadlockWake) {
 
-		// step one, get a list of all waiters
-		Dictionary waiters = Deadlock.getWaiters(set);
-
 		// This stack will track the potential deadlock chain
 		// The Stack consists of
 
@@ -357,23 +348,6 @@ inner:		for (;;) {
 		grants.remove(grants.size() - 1);
 	}
 
-    /**
-     * Get all the waiters in a {@code LockTable}. The waiters are returned
-     * as pairs (space, lock) mapping waiting compatibility spaces to the
-     * lock request in which they are blocked, and (lock, prevLock) linking
-     * a lock request with the lock request that's behind it in the queue of
-     * waiters.
-     *
-     * @param set the lock table
-     * @return all waiters in the lock table
-     * @see LockControl#addWaiters(java.util.Map)
-     */
-	private static Hashtable getWaiters(LockTable set) {
-		Hashtable<Object,Object> waiters = new Hashtable<Object,Object>();
-		set.addWaiters(waiters);
-		return waiters;
-	}
-
     /**
      * Handle a deadlock when it has been detected. Find out if the waiter
      * that started looking for the deadlock is involved in it. If it isn't,
@@ -26,6 +26,7 @@ import org.apache.derby.iapi.services.locks.Lockable;
 import org.apache.derby.iapi.services.locks.Limit;
 
 import org.apache.derby.iapi.util.Matchable;
+import org.apache.derby.shared.common.reference.Property;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.shared.common.error.StandardException;
 
@@ -49,6 +50,11 @@ import org.apache.derby.iapi.services.locks.LockOwner;
     use the owner as a group object which guarantees that the lock is released
     on a commit or an abort. The owner has no special meaning to the lock
     manager and can be any object, including <code>null</code>. </p>
+
+    <p> The lock factory that created the space counts the locks held by
+    all of its spaces. When they take up more memory than allowed, a space
+    whose limit group holds many locks asks the limit callback to release
+    some of them. </p>
 */
 final class LockSpace implements CompatibilitySpace {
 
@@ -56,6 +62,8 @@ final class LockSpace implements CompatibilitySpace {
     private final HashMap<Object, HashMap<Lock, Lock>> groups;
 	/** Reference to the owner of this compatibility space. */
 	private final LockOwner owner;
+	/** The lock factory that created this compatibility space. */
+	private final AbstractPool pool;
 
     /** The maximum number of elements to cache in {@link #spareGroups}. */
     private static final int MAX_CACHED_GROUPS = 3;
@@ -69,14 +77,18 @@ final class LockSpace implements CompatibilitySpace {
 	private int    limit;
 	private int    nextLimitCall;
 	private Limit  callback;
+	// the size of the limit group at which to check the memory of the locks
+	private int    nextMemoryCall = Property.MIN_LOCKS_ESCALATION_THRESHOLD;
 
 	/**
 	 * Creates a new <code>LockSpace</code> instance.
 	 *
+	 * @param pool the lock factory that creates the compatibility space
 	 * @param owner an object representing the owner of the compatibility space
 	 */
-	LockSpace(LockOwner owner) {
+	LockSpace(AbstractPool pool, LockOwner owner) {
         groups = new HashMap<Object, HashMap<Lock, Lock>>();
+		this.pool = pool;
 		this.owner = owner;
 	}
 
@@ -107,6 +119,7 @@ final class LockSpace implements CompatibilitySpace {
 		if (lockInGroup == null) {
 			lockInGroup = lock.copy();
 			dl.put(lockInGroup, lockInGroup);
+			pool.locksAdded(1);
 		}
 		lockInGroup.count++;
 
@@ -136,6 +149,25 @@ final class LockSpace implements CompatibilitySpace {
 			else
 				nextLimitCall += limit;
 
+		} else if (groupSize > nextMemoryCall) {
+
+			if (pool.isLockMemoryExceeded()) {
+				inLimit = true;
+				if (callback.memoryReached(this, group,
+						new LockList(java.util.Collections.enumeration(dl.keySet())),
+						groupSize))
+					pool.memoryEscalated();
+				inLimit = false;
+
+				// walking the locks of the group is expensive, so wait
+				// until the group has grown by half before trying again
+				int newGroupSize = dl.size();
+				nextMemoryCall = newGroupSize + Math.max(
+					Property.MIN_LOCKS_ESCALATION_THRESHOLD, newGroupSize / 2);
+			} else {
+				nextMemoryCall =
+					groupSize + Property.MIN_LOCKS_ESCALATION_THRESHOLD;
+			}
 		}
 	}
 	
@@ -152,9 +184,11 @@ final class LockSpace implements CompatibilitySpace {
         for (Lock lock : dl.keySet()) {
             lset.unlock(lock, 0);
 		}
+		pool.locksRemoved(dl.size());
 
 		if ((callbackGroup != null) && group.equals(callbackGroup)) {
 			nextLimitCall = limit;
+			nextMemoryCall = Property.MIN_LOCKS_ESCALATION_THRESHOLD;
 		}
 
 		saveGroup(dl);
@@ -194,6 +228,7 @@ final class LockSpace implements CompatibilitySpace {
 			}
 			lset.unlock(lock, 0);
 			e.remove();
+			pool.locksRemoved(1);
 		}
 
 		if (allUnlocked) {
@@ -201,6 +236,7 @@ final class LockSpace implements CompatibilitySpace {
 			saveGroup(dl);
 			if ((callbackGroup != null) && group.equals(callbackGroup)) {
 				nextLimitCall = limit;
+				nextMemoryCall = Property.MIN_LOCKS_ESCALATION_THRESHOLD;
 			}
 		}
 	}
@@ -222,7 +258,7 @@ final class LockSpace implements CompatibilitySpace {
 		if (to.size() < from.size()) {
 
 			// place the contents of to into from
-			mergeGroups(to, from);
+			pool.locksRemoved(mergeGroups(to, from));
 
 			Object oldTo = groups.put(newGroup, from);
 			if (SanityManager.DEBUG) {
@@ -230,15 +266,21 @@ final class LockSpace implements CompatibilitySpace {
 			}
 
 		} else {
-			mergeGroups(from, to);
+			pool.locksRemoved(mergeGroups(from, to));
 		}
 		
 		clearLimit(oldGroup);
 		groups.remove(oldGroup);
 	}
 
-    private void mergeGroups(HashMap<Lock, Lock> from, HashMap<Lock, Lock> into) {
+    /**
+     * Merge one group of locks into another.
+     *
+     * @return the number of locks that were in both groups
+     */
+    private int mergeGroups(HashMap<Lock, Lock> from, HashMap<Lock, Lock> into) {
 
+        int merged = 0;
         for (Lock lock : from.keySet()) {
 
             Lock lockI = into.get(lock);
@@ -252,9 +294,11 @@ final class LockSpace implements CompatibilitySpace {
                 Lock intoL = lockI;
 
 				intoL.count += fromL.getCount();
+				merged++;
 			}
 		}
 
+		return merged;
 	}
 
 	synchronized int unlockReference(LockTable lset, Lockable ref,
@@ -272,11 +316,13 @@ final class LockSpace implements CompatibilitySpace {
 
 		if (lockInGroup.getCount() == 1) {
 
+			pool.locksRemoved(1);
 			if (dl.isEmpty()) {
 				groups.remove(group);
 				saveGroup(dl);
 				if ((callbackGroup != null) && group.equals(callbackGroup)) {
 					nextLimitCall = limit;
+					nextMemoryCall = Property.MIN_LOCKS_ESCALATION_THRESHOLD;
 				}
 			}
 
@@ -318,6 +364,7 @@ final class LockSpace implements CompatibilitySpace {
 		callbackGroup = group;
 		this.nextLimitCall = this.limit = limit;
 		this.callback = callback;
+		nextMemoryCall = Property.MIN_LOCKS_ESCALATION_THRESHOLD;
 	}
 
 	/**
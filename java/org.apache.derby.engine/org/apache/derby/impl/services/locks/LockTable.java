@@ -149,10 +149,12 @@ interface LockTable {
     void setDeadlockTrace(boolean flag);
 
     /**
-     * Add all waiters in the lock table to the specified map.
-     *
-     * @param waiters the map to add the waiters to
-     * @see LockControl#addWaiters
+     * Get the number of objects that are locked or waited for.
+     */
+    int getLockedObjectCount();
+
+    /**
+     * Get the number of lock requests that are waiting.
      */
-    void addWaiters(Map<Object,Object> waiters);
+    int getWaiterCount();
 }
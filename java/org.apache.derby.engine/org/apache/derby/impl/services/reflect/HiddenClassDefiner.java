@@ -0,0 +1,235 @@
+/*
+
+   Derby - Class org.apache.derby.impl.services.reflect.HiddenClassDefiner
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.services.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+import org.apache.derby.iapi.services.compiler.ClassBuilder;
+import org.apache.derby.iapi.services.compiler.JavaFactory;
+import org.apache.derby.iapi.services.compiler.MethodBuilder;
+import org.apache.derby.iapi.services.classfile.VMOpcode;
+import org.apache.derby.iapi.services.loader.ClassFactory;
+import org.apache.derby.iapi.services.monitor.ModuleFactory;
+import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.sql.compile.CodeGeneration;
+import org.apache.derby.iapi.util.ByteArray;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.reference.Module;
+import org.apache.derby.shared.common.sanity.SanityManager;
+
+/**
+	Defines generated classes as hidden classes in a class loader shared
+	by all of them, instead of in a class loader of their own. Like a class
+	in a class loader of its own, a hidden class is unloaded as soon as it
+	is no longer used, but without the cost of a class loader per class.
+	Hidden classes came with Java 15; on older JVMs {@link #isSupported()}
+	returns false.
+	<P>
+	The classes are defined through a lookup object of a host class in the
+	package of the generated classes, which is loaded by the shared class
+	loader. The generated classes resolve the classes they use through that
+	class loader, so a new one must be used when the class loader version
+	changes.
+*/
+final class HiddenClassDefiner {
+
+	/** Name of the host class, in the package of the generated classes. */
+	private static final String HOST_CLASS = "HiddenClassHost";
+
+	/**
+		Debug flag that makes the host class fail to load, to test the
+		fallback to a class loader per generated class.
+	*/
+	static final String TEST_NO_HOST_CLASS =
+		SanityManager.DEBUG ? "TEST_NO_HIDDEN_CLASS_HOST" : null;
+
+	/**
+		MethodHandles.Lookup.defineHiddenClass(byte[], boolean,
+		ClassOption...), or null if the JVM does not support hidden classes.
+	*/
+	private static final MethodHandle defineHiddenClass;
+
+	/** An empty array of MethodHandles.Lookup.ClassOption. */
+	private static final Object noOptions;
+
+	static {
+		MethodHandle define = null;
+		Object options = null;
+		try {
+			Class<?> optionClass = Class.forName(
+				"java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			options = Array.newInstance(optionClass, 0);
+			define = MethodHandles.publicLookup().findVirtual(
+				MethodHandles.Lookup.class, "defineHiddenClass",
+				MethodType.methodType(MethodHandles.Lookup.class,
+									  byte[].class, boolean.class,
+									  options.getClass())).asFixedArity();
+		} catch (ClassNotFoundException cnfe) {
+			// not supported before Java 15
+		} catch (NoSuchMethodException nsme) {
+			// not supported before Java 15
+		} catch (IllegalAccessException iae) {
+			// not expected, the method is public
+		}
+		defineHiddenClass = define;
+		noOptions = options;
+	}
+
+	/** The class loader version the class loader was created for. */
+	private final int classLoaderVersion;
+
+	/** Lookup object with full privileges on the host class. */
+	private final MethodHandles.Lookup hostLookup;
+
+	/**
+		Define the host class in a new class loader.
+
+		@param cf the class factory the classes are generated for
+		@param loader the class loader to share between the classes
+		@param classLoaderVersion the current class loader version
+
+		@exception StandardException the host class could not be generated
+		@exception ReflectiveOperationException the host class could not
+			be loaded
+	*/
+	HiddenClassDefiner(ClassFactory cf, ReflectLoaderJava2 loader,
+					   int classLoaderVersion)
+		throws StandardException, ReflectiveOperationException
+	{
+		this.classLoaderVersion = classLoaderVersion;
+
+		if (SanityManager.DEBUG) {
+			if (SanityManager.DEBUG_ON(TEST_NO_HOST_CLASS))
+				throw new ClassNotFoundException(
+					CodeGeneration.GENERATED_PACKAGE_PREFIX + HOST_CLASS);
+		}
+
+		Class<?> host = loader.loadGeneratedClass(
+			CodeGeneration.GENERATED_PACKAGE_PREFIX + HOST_CLASS,
+			hostClassBytecode(cf)).getJVMClass();
+		hostLookup = (MethodHandles.Lookup)
+			host.getMethod("lookup").invoke(null);
+	}
+
+	/** Tell whether the JVM supports hidden classes. */
+	static boolean isSupported() {
+		return defineHiddenClass != null;
+	}
+
+	/** Return the class loader version the class loader was created for. */
+	int getClassLoaderVersion() {
+		return classLoaderVersion;
+	}
+
+	/**
+		Define a generated class as a hidden class.
+
+		@param fullyQualifiedName the name the class was generated with
+		@param classDump the byte code of the class
+	*/
+	LoadedGeneratedClass loadGeneratedClass(ClassFactory cf,
+											String fullyQualifiedName,
+											ByteArray classDump)
+	{
+		byte[] bytes = classDump.getArray();
+		if (classDump.getOffset() != 0 ||
+			classDump.getLength() != bytes.length)
+		{
+			bytes = new byte[classDump.getLength()];
+			System.arraycopy(classDump.getArray(), classDump.getOffset(),
+							 bytes, 0, bytes.length);
+		}
+
+		MethodHandles.Lookup lookup;
+		try {
+			lookup = (MethodHandles.Lookup)
+				defineHiddenClass.invoke(hostLookup, bytes, true, noOptions);
+		} catch (RuntimeException re) {
+			throw re;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable t) {
+			// only unchecked exceptions are thrown
+			throw new IllegalStateException(t);
+		}
+
+		return new ReflectGeneratedClass(cf, fullyQualifiedName, lookup);
+	}
+
+	/**
+		Generate the byte code of the host class:
+		<pre>
+		public final class HiddenClassHost {
+			public static MethodHandles.Lookup lookup() {
+				return MethodHandles.lookup();
+			}
+		}
+		</pre>
+	*/
+	private static ByteArray hostClassBytecode(ClassFactory cf)
+		throws StandardException
+	{
+		JavaFactory javaFactory = (JavaFactory)
+			getMonitor().findModule((Object) null, Module.JavaFactory,
+									(String) null);
+
+		ClassBuilder cb = javaFactory.newClassBuilder(cf,
+			CodeGeneration.GENERATED_PACKAGE_PREFIX,
+			Modifier.PUBLIC | Modifier.FINAL, HOST_CLASS,
+			"java.lang.Object");
+
+		MethodBuilder mb = cb.newMethodBuilder(
+			Modifier.PUBLIC | Modifier.STATIC,
+			"java.lang.invoke.MethodHandles$Lookup", "lookup");
+		mb.callMethod(VMOpcode.INVOKESTATIC,
+			"java.lang.invoke.MethodHandles", "lookup",
+			"java.lang.invoke.MethodHandles$Lookup", 0);
+		mb.methodReturn();
+		mb.complete();
+
+		return cb.getClassBytecode();
+	}
+
+    /**
+     * Privileged Monitor lookup. Must be private so that user code
+     * can't call this entry point.
+     */
+    private  static  ModuleFactory  getMonitor()
+    {
+        return AccessController.doPrivileged
+            (
+             new PrivilegedAction<ModuleFactory>()
+             {
+                 public ModuleFactory run()
+                 {
+                     return Monitor.getMonitor();
+                 }
+             }
+             );
+    }
+}
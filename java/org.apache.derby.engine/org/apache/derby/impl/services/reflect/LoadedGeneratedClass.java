@@ -32,6 +32,9 @@ import org.apache.derby.shared.common.reference.SQLState;
 
 import org.apache.derby.iapi.services.loader.ClassInfo;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
 
 public abstract class LoadedGeneratedClass
 	implements GeneratedClass
@@ -43,14 +46,39 @@ public abstract class LoadedGeneratedClass
 
 	private final ClassInfo	ci;
 	private final int classLoaderVersion;
+	private final String name;
+
+	/**
+		Handle of the no-arg constructor, or null if instances are created
+		through reflection.
+	*/
+	private final MethodHandle constructor;
 
 	/*
 	**	Constructor
 	*/
 
 	public LoadedGeneratedClass(ClassFactory cf, Class jvmClass) {
+		this(cf, jvmClass, jvmClass.getName(), null);
+	}
+
+	/**
+		Create a generated class whose instances are created through a
+		method handle. The name of the class is given since the name of a
+		hidden class differs from the name it was generated with.
+
+		@param cf the class factory
+		@param jvmClass the class
+		@param name the name the class was generated with
+		@param constructor the no-arg constructor
+	*/
+	LoadedGeneratedClass(ClassFactory cf, Class jvmClass, String name,
+						 MethodHandle constructor) {
 		ci = new ClassInfo(jvmClass);
 		classLoaderVersion = cf.getClassLoaderVersion();
+		this.name = name;
+		this.constructor = (constructor == null) ? null :
+			constructor.asType(MethodType.methodType(Object.class));
 	}
 
 	/*
@@ -58,14 +86,15 @@ public abstract class LoadedGeneratedClass
 	*/
 
 	public String getName() {
-		return ci.getClassName();
+		return name;
 	}
 
 	public Object newInstance(Context context) throws StandardException	{
 
 		Throwable t;
 		try {
-			GeneratedByteCode ni =  (GeneratedByteCode) ci.getNewInstance();
+			GeneratedByteCode ni = (GeneratedByteCode) ((constructor == null) ?
+				ci.getNewInstance() : (Object) constructor.invokeExact());
 			ni.initFromContext(context);
 			ni.setGC(this);
 			ni.postConstructor();
@@ -81,6 +110,15 @@ public abstract class LoadedGeneratedClass
 			t = le;
 		} catch (LinkageError le) {
 			t = le;
+		} catch (StandardException se) {
+			throw se;
+		} catch (RuntimeException re) {
+			t = re;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable th) {
+			// thrown by the constructor handle
+			t = th;
 		}
 
 		throw StandardException.newException(SQLState.GENERATED_CLASS_INSTANCE_ERROR, t, getName());
@@ -21,8 +21,12 @@
 
 package org.apache.derby.impl.services.reflect;
 
+import org.apache.derby.iapi.services.monitor.Monitor;
 import org.apache.derby.iapi.sql.compile.CodeGeneration;
 import org.apache.derby.iapi.util.ByteArray;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.i18n.MessageService;
+import org.apache.derby.shared.common.reference.MessageId;
 
 /**
 	Reflect loader with Privileged block for Java 2 security. 
@@ -36,6 +40,19 @@ public class ReflectClassesJava2 extends DatabaseClasses
 
 	private int action = -1;
 
+	/**
+		Defines the generated classes as hidden classes, null if that has
+		not been set up yet.
+	*/
+	private HiddenClassDefiner hiddenClassDefiner;
+
+	/**
+		True if the generated classes are defined in class loaders of
+		their own, because the JVM does not support hidden classes or the
+		host class for them could not be defined.
+	*/
+	private boolean noHiddenClasses = !HiddenClassDefiner.isSupported();
+
 	synchronized LoadedGeneratedClass loadGeneratedClassFromData(String fullyQualifiedName, ByteArray classDump) {
 
 		if (classDump == null || classDump.getArray() == null) {
@@ -74,10 +91,62 @@ public class ReflectClassesJava2 extends DatabaseClasses
             throw new IllegalArgumentException( fullyQualifiedName );
         }
         
+		HiddenClassDefiner definer = getHiddenClassDefiner();
+		if (definer != null)
+			return definer.loadGeneratedClass(this, fullyQualifiedName, classDump);
+
 		action = 1;
 		return ((ReflectLoaderJava2) java.security.AccessController.doPrivileged(this)).loadGeneratedClass(fullyQualifiedName, classDump);
 	}
 
+	/**
+		Get the object that defines generated classes as hidden classes in
+		a class loader shared by them, or null if each class is to be
+		defined in a class loader of its own. A new class loader is used
+		when the class loader version changes, so that the classes
+		generated after a change of the database class path see the new
+		application classes.
+	*/
+	private HiddenClassDefiner getHiddenClassDefiner() {
+
+		if (noHiddenClasses)
+			return null;
+
+		int version = getClassLoaderVersion();
+		if (hiddenClassDefiner == null ||
+			hiddenClassDefiner.getClassLoaderVersion() != version)
+		{
+			action = 1;
+			ReflectLoaderJava2 loader = (ReflectLoaderJava2)
+				java.security.AccessController.doPrivileged(this);
+			try {
+				hiddenClassDefiner =
+					new HiddenClassDefiner(this, loader, version);
+			} catch (StandardException se) {
+				fallBackToClassLoaders(se);
+			} catch (ReflectiveOperationException roe) {
+				fallBackToClassLoaders(roe);
+			} catch (LinkageError le) {
+				fallBackToClassLoaders(le);
+			}
+		}
+
+		return hiddenClassDefiner;
+	}
+
+	/**
+		Fall back to a class loader per generated class, because the host
+		class for the hidden classes could not be defined. The fallback
+		is kept until the database is shut down, so it is logged once.
+	*/
+	private void fallBackToClassLoaders(Throwable t) {
+		noHiddenClasses = true;
+		hiddenClassDefiner = null;
+
+		Monitor.getStream().printlnWithHeader(MessageService.getTextMessage(
+			MessageId.CM_NO_HIDDEN_CLASSES, t));
+	}
+
 	public final Object run() {
 
 		try {
@@ -28,6 +28,9 @@ import org.apache.derby.iapi.services.loader.ClassFactory;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.SQLState;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Hashtable;
 
@@ -43,9 +46,44 @@ public final class ReflectGeneratedClass extends LoadedGeneratedClass {
 		}
 	}
 
+	/**
+		Lookup object with full privileges on the class if it is a hidden
+		class, null otherwise.
+	*/
+	private final MethodHandles.Lookup lookup;
+
 	public ReflectGeneratedClass(ClassFactory cf, Class jvmClass) {
 		super(cf, jvmClass);
 		methodCache = new Hashtable<String,GeneratedMethod>();
+		lookup = null;
+	}
+
+	/**
+		Create a generated class for a hidden class, whose instances are
+		created and methods called through method handles.
+
+		@param cf the class factory
+		@param name the name the class was generated with
+		@param lookup lookup object with full privileges on the class
+	*/
+	ReflectGeneratedClass(ClassFactory cf, String name,
+						  MethodHandles.Lookup lookup) {
+		super(cf, lookup.lookupClass(), name, findConstructor(lookup));
+		methodCache = new Hashtable<String,GeneratedMethod>();
+		this.lookup = lookup;
+	}
+
+	private static MethodHandle findConstructor(MethodHandles.Lookup lookup)
+	{
+		try {
+			return lookup.findConstructor(lookup.lookupClass(),
+				MethodType.methodType(void.class));
+		} catch (NoSuchMethodException nsme) {
+			// let newInstance() report the error
+		} catch (IllegalAccessException iae) {
+			// let newInstance() report the error
+		}
+		return null;
 	}
 
 	public GeneratedMethod getMethod(String simpleName)
@@ -69,7 +107,8 @@ public final class ReflectGeneratedClass extends LoadedGeneratedClass {
 			{
 				Method m = getJVMClass().getMethod(simpleName, (Class []) null);
 				
-				rm = new ReflectMethod(m);
+				rm = (lookup == null) ?
+					new ReflectMethod(m) : new HandleCall(lookup.unreflect(m));
 			}
 			methodCache.put(simpleName, rm);
 			return rm;
@@ -77,6 +116,36 @@ public final class ReflectGeneratedClass extends LoadedGeneratedClass {
 		} catch (NoSuchMethodException nsme) {
 			throw StandardException.newException(SQLState.GENERATED_CLASS_NO_SUCH_METHOD,
 				nsme, getName(), simpleName);
+		} catch (IllegalAccessException iae) {
+			throw StandardException.newException(SQLState.GENERATED_CLASS_NO_SUCH_METHOD,
+				iae, getName(), simpleName);
+		}
+	}
+}
+
+/**
+	Calls a method of a hidden class through a method handle.
+*/
+class HandleCall implements GeneratedMethod {
+
+	private final MethodHandle method;
+
+	HandleCall(MethodHandle method) {
+
+		this.method = method.asType(
+			MethodType.methodType(Object.class, Object.class));
+	}
+
+	public Object invoke(Object ref)
+		throws StandardException {
+
+		try {
+			return (Object) method.invokeExact(ref);
+		} catch (StandardException se) {
+			throw se;
+		}
+		catch (Throwable t) {
+			throw StandardException.unexpectedUserException(t);
 		}
 	}
 }
@@ -30,6 +30,7 @@ import org.apache.derby.catalog.UUID;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.iapi.services.loader.GeneratedClass;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.sql.Activation;
 import org.apache.derby.iapi.sql.ParameterValueSet;
@@ -241,6 +242,17 @@ final public class GenericActivationHolder implements Activation
 		*/
 		// synchronized (ps)
 		{
+			/* Generate the activation class once the statement has been
+			 * interpreted often enough. It is picked up below like the
+			 * class of a recompiled statement. */
+			if (gc instanceof InterpretedClass &&
+				ps instanceof GenericPreparedStatement &&
+				((InterpretedClass) gc).countExecution())
+			{
+				((GenericPreparedStatement) ps).generateActivationClass(
+					(InterpretedClass) gc);
+			}
+
 			/* Has the activation class changed or has the activation been
 			 * invalidated? */
             final boolean needNewClass =
@@ -765,6 +777,16 @@ final public class GenericActivationHolder implements Activation
 		ac.informOfRowCount(resultSet, rowCount);
 	}
 
+	/**
+		@see Activation#informOfCardinality
+		@exception StandardException	Thrown on error
+	 */
+	public void informOfCardinality(NoPutResultSet resultSet, long rowCount)
+					throws StandardException
+	{
+		ac.informOfCardinality(resultSet, rowCount);
+	}
+
 	/**
 	 * @see Activation#isCursorActivation
 	 */
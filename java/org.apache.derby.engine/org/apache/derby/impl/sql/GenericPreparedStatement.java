@@ -27,7 +27,9 @@ import java.sql.SQLWarning;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.derby.catalog.Dependable;
 import org.apache.derby.catalog.DependableFinder;
 import org.apache.derby.catalog.UUID;
@@ -38,6 +40,7 @@ import org.apache.derby.iapi.services.context.ContextManager;
 import org.apache.derby.iapi.services.context.ContextService;
 import org.apache.derby.shared.common.util.ArrayUtil;
 import org.apache.derby.iapi.services.loader.GeneratedClass;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
 import org.apache.derby.iapi.services.monitor.ModuleFactory;
 import org.apache.derby.iapi.services.monitor.Monitor;
 import org.apache.derby.shared.common.sanity.SanityManager;
@@ -100,6 +103,12 @@ public class GenericPreparedStatement
 	////////////////////////////////////////////////
 	public Statement statement;
 	protected GeneratedClass activationClass; // satisfies Activation
+
+	/*
+	** The interpreted class that activationClass was generated from, if
+	** any. Activations of this class are still up to date.
+	*/
+	private InterpretedClass interpretedClass;
 	protected ResultDescription resultDesc;
 	protected DataTypeDescriptor[] paramTypeDescriptors;
 	private String			spsName;
@@ -127,6 +136,7 @@ public class GenericPreparedStatement
 	protected UUID   UUIDValue;
 
 	private boolean needsSavepoint;
+	private boolean parameterSensitive;
 
 	private String execStmtName;
 	private String execSchemaName;
@@ -141,6 +151,19 @@ public class GenericPreparedStatement
     /** True if the statement was invalidated while it was being compiled. */
     boolean invalidatedWhileCompiling;
 
+    /**
+     * True if the statistics the plan was chosen with have changed, so
+     * that a new plan should be compiled. The plan can still be used until
+     * the new one is ready.
+     */
+    private volatile boolean stalePlan;
+
+    /** True if a new plan is being compiled for a stale plan. */
+    private boolean refreshingPlan;
+
+    /** The version of the plan that is being refreshed. */
+    private long refreshedVersion;
+
 	////////////////////////////////////////////////
 	// STATE that is not copied by getClone()
 	////////////////////////////////////////////////
@@ -175,6 +198,19 @@ public class GenericPreparedStatement
      */
     private RowCountStatistics rowCountStats = new RowCountStatistics();
 
+    /**
+     * Holder for the corrections of the optimizer's row count estimates,
+     * which are kept across recompilations.
+     */
+    private CardinalityFeedback cardinalityFeedback =
+            new CardinalityFeedback();
+
+    /**
+     * Byte code of the activation class, kept only if the statement cache
+     * is saved when the database is shut down.
+     */
+    private ByteArray persistentByteCode;
+
 	//
 	// constructors
 	//
@@ -213,7 +249,8 @@ public class GenericPreparedStatement
      * @see ExecPreparedStatement#upToDate(GeneratedClass)
      */
     public synchronized boolean upToDate(GeneratedClass gc) {
-        return (activationClass == gc) && isUpToDate();
+        return (activationClass == gc ||
+                (gc != null && interpretedClass == gc)) && isUpToDate();
     }
 
     /**
@@ -238,6 +275,7 @@ public class GenericPreparedStatement
      */
     final synchronized void beginCompiling() {
         compilingStatement = true;
+        stalePlan = false;
         setActivationClass(null);
     }
 
@@ -250,6 +288,90 @@ public class GenericPreparedStatement
         notifyAll();
     }
 
+    /**
+     * Check if the plan should be replaced by a new one because the
+     * statistics it was chosen with have changed.
+     */
+    final boolean isStale() {
+        return stalePlan;
+    }
+
+    /**
+     * Signal that a new plan is about to be compiled for a stale plan.
+     * Unlike {@link #beginCompiling()}, this does not block others, who
+     * go on using the current plan until {@link #endRefresh} replaces it.
+     *
+     * @return {@code true} if the caller should compile the new plan,
+     * {@code false} if the plan is not stale or is already being refreshed
+     */
+    final synchronized boolean beginRefresh() {
+        if (!stalePlan || refreshingPlan || !isUpToDate()) {
+            return false;
+        }
+        stalePlan = false;
+        refreshingPlan = true;
+        refreshedVersion = versionCounter;
+        return true;
+    }
+
+    /**
+     * Replace the plan with the one compiled after {@link #beginRefresh()}.
+     * If the statement was invalidated while the new plan was compiled,
+     * the new plan is dropped and the statement is recompiled as if it
+     * had been invalidated while it was being compiled.
+     *
+     * @param plan the statement the new plan was compiled into, or
+     * {@code null} if the compilation failed
+     */
+    final synchronized void endRefresh(GenericPreparedStatement plan) {
+        refreshingPlan = false;
+
+        if (versionCounter != refreshedVersion) {
+            // recompiled by someone else after an invalidation
+            return;
+        }
+
+        if (!isValid) {
+            invalidatedWhileCompiling = true;
+            return;
+        }
+
+        if (plan == null) {
+            // let the next execution recompile the statement and report
+            // the error
+            isValid = false;
+            return;
+        }
+
+        executionConstants = plan.executionConstants;
+        savedObjects = plan.savedObjects;
+        cardinalityFeedback.setTables(plan.cardinalityFeedback.getTables());
+        requiredPermissionsList = plan.requiredPermissionsList;
+        persistentByteCode = plan.persistentByteCode;
+        needsSavepoint = plan.needsSavepoint;
+        parameterSensitive = plan.parameterSensitive;
+        targetTable = plan.targetTable;
+        updateMode = plan.updateMode;
+        updateColumns = plan.updateColumns;
+        isAtomic = plan.isAtomic;
+        paramTypeDescriptors = plan.paramTypeDescriptors;
+        resultDesc = plan.resultDesc;
+        warnings = plan.warnings;
+        parseTime = plan.parseTime;
+        bindTime = plan.bindTime;
+        optimizeTime = plan.optimizeTime;
+        generateTime = plan.generateTime;
+        compileTime = plan.compileTime;
+        beginCompileTimestamp = plan.beginCompileTimestamp;
+        endCompileTimestamp = plan.endCompileTimestamp;
+        incrementVersionCounter();
+        rowCountStats.reset();
+
+        // the executions pick up the new plan by its activation class
+        activationClass = plan.activationClass;
+        interpretedClass = null;
+    }
+
 	public void rePrepare(LanguageConnectionContext lcc) 
 		throws StandardException {
         rePrepare(lcc, false);
@@ -257,7 +379,7 @@ public class GenericPreparedStatement
 
     public void rePrepare(LanguageConnectionContext lcc, boolean forMetaData)
         throws StandardException {
-		if (!upToDate()) {
+		if (!upToDate() || stalePlan) {
             PreparedStatement ps = statement.prepare(lcc, forMetaData);
 
 			if (SanityManager.DEBUG)
@@ -734,6 +856,30 @@ recompileOutOfDatePlan:
 		savedObjects = objects;
 	}
 
+	/**
+	 * Set the base tables of the result sets of the plan that report
+	 * their row counts, as recorded by the compiler.
+	 *
+	 * @param tables the table numbers indexed by result set number, or
+	 *	null if no result set reports its row count
+	 */
+	final void setCardinalityFeedbackTables(int[] tables)
+	{
+		cardinalityFeedback.setTables(tables);
+	}
+
+	/**
+	 * Get the corrections of the row count estimates of base tables, to
+	 * be applied by the next compilation.
+	 *
+	 * @return the corrections keyed by table number, or null if there are
+	 *	none
+	 */
+	final Map<Integer,Double> getCardinalityCorrections()
+	{
+		return cardinalityFeedback.getCorrections();
+	}
+
 	/**
 	 *	Get the specified saved object.
 	 *
@@ -846,10 +992,35 @@ recompileOutOfDatePlan:
 		switch (action) {
 		case DependencyManager.RECHECK_PRIVILEGES:
 			return;
+		case DependencyManager.INTERNAL_RECOMPILE_REQUEST:
+		case DependencyManager.STALE_PLAN:
+			break;
+		default:
+			// The corrections were learned against the old statistics
+			// and schema objects.
+			cardinalityFeedback.clearCorrections();
 		}
 
 		synchronized (this) {
 
+			// New statistics do not make the plan wrong, only maybe slow,
+			// so keep using it until a new plan has been compiled. Stored
+			// statements and trigger actions are recompiled the usual way.
+			if ((action == DependencyManager.STALE_PLAN ||
+				 action == DependencyManager.UPDATE_STATISTICS) &&
+				!spsAction && execStmtName == null && !isStorable() &&
+				isUpToDate())
+			{
+				// a stale plan check that fires during a refresh finds
+				// the row counts of the plan being replaced
+				if (!refreshingPlan ||
+					action == DependencyManager.UPDATE_STATISTICS)
+				{
+					stalePlan = true;
+				}
+				return;
+			}
+
 			if (compilingStatement)
             {
                 // Since the statement is in the process of being compiled,
@@ -887,6 +1058,7 @@ recompileOutOfDatePlan:
 			if (execStmtName != null) {
 				switch (action) {
 				case DependencyManager.INTERNAL_RECOMPILE_REQUEST:
+				case DependencyManager.STALE_PLAN:
 				case DependencyManager.CHANGED_CURSOR:
 				{
 					/*
@@ -1062,6 +1234,36 @@ recompileOutOfDatePlan:
 	void setActivationClass(GeneratedClass ac)
 	{
 		activationClass = ac;
+		interpretedClass = null;
+	}
+
+	/**
+	 * Replace the interpreted activation class of the statement with the
+	 * class generated from it. Nothing is done if the statement has been
+	 * compiled again meanwhile. The executions pick up the new class as
+	 * they do after a recompilation, but the activations of the
+	 * interpreted class stay valid.
+	 * <p>
+	 * If the class cannot be generated, for instance because it is too
+	 * large, the statement goes on being interpreted.
+	 *
+	 * @param ic the interpreted activation class
+	 */
+	void generateActivationClass(InterpretedClass ic)
+	{
+		GeneratedClass generated;
+		try {
+			generated = ic.generateClass();
+		} catch (StandardException se) {
+			return;
+		}
+
+		synchronized (this) {
+			if (activationClass == ic) {
+				activationClass = generated;
+				interpretedClass = ic;
+			}
+		}
 	}
 
 	//
@@ -1160,6 +1362,25 @@ recompileOutOfDatePlan:
 	 	this.needsSavepoint = needsSavepoint;
 	}
 
+	/**
+	 * @see ExecPreparedStatement#isParameterSensitive
+	 */
+	public boolean isParameterSensitive()
+	{
+		return parameterSensitive;
+	}
+
+	/**
+	 * Set whether the plan depends on the values of the parameters.
+	 *
+	 * @param parameterSensitive true if the plan might not suit every
+	 *	value of the parameters
+	 */
+	void setParameterSensitive(boolean parameterSensitive)
+	{
+		this.parameterSensitive = parameterSensitive;
+	}
+
 	/**
 	 * Set the stmts 'isAtomic' state.  
 	 * 
@@ -1223,7 +1444,9 @@ recompileOutOfDatePlan:
 		clone.updateColumns = updateColumns;
 		clone.updateMode = updateMode;	
 		clone.needsSavepoint = needsSavepoint;
+		clone.parameterSensitive = parameterSensitive;
         clone.rowCountStats = rowCountStats;
+        clone.cardinalityFeedback = cardinalityFeedback;
 
 		return clone;
 	}
@@ -1292,6 +1515,64 @@ recompileOutOfDatePlan:
         ++versionCounter;
     }
 
+    // Persistent statement cache.
+
+    /**
+     * Set the byte code of the activation class, to be saved in the
+     * persistent statement cache.
+     *
+     * @param byteCode the byte code, or null if it was not kept
+     */
+    void setPersistentByteCode(ByteArray byteCode) {
+        persistentByteCode = byteCode;
+    }
+
+    /**
+     * Get the byte code of the activation class if this statement can be
+     * saved in the persistent statement cache. A statement is only saved
+     * if its plan can be used by any connection without compiling the
+     * statement again, so statements that are invalid, reference the
+     * SESSION schema, have privileges to check, refer to stored prepared
+     * statements or raised warnings during compilation are left out.
+     *
+     * @return the byte code, or null if the statement cannot be saved
+     */
+    synchronized ByteArray getPersistentByteCode() {
+        if (!isUpToDate() || persistentByteCode == null ||
+                referencesSessionSchema || spsAction ||
+                spsName != null || execStmtName != null || warnings != null ||
+                (requiredPermissionsList != null &&
+                    !requiredPermissionsList.isEmpty())) {
+            return null;
+        }
+        return persistentByteCode;
+    }
+
+    /**
+     * Install the plan of a statement read back from the persistent
+     * statement cache, and mark the statement valid. The caller must
+     * have registered the dependencies of the statement already.
+     *
+     * @param sps the plan as it was saved
+     * @param paramTypes the types of the parameters of the statement
+     * @throws StandardException if the activation class cannot be loaded
+     */
+    synchronized void restorePlan(GenericStorablePreparedStatement sps,
+                                  DataTypeDescriptor[] paramTypes)
+            throws StandardException {
+        setActivationClass(sps.getActivationClass());
+        setCursorInfo((CursorInfo) sps.getCursorInfo());
+        needsSavepoint = sps.needsSavepoint();
+        isAtomic = sps.isAtomic();
+        executionConstants = sps.executionConstants;
+        resultDesc = sps.resultDesc;
+        savedObjects = sps.savedObjects;
+        paramTypeDescriptors = paramTypes;
+        persistentByteCode = sps.getByteCodeSaver();
+        incrementVersionCounter();
+        isValid = true;
+    }
+
     // Stale plan checking.
 
     /**
@@ -1375,6 +1656,83 @@ recompileOutOfDatePlan:
         }
     }
 
+    /**
+     * This class holds the corrections of the row count estimates of the
+     * base tables of a GenericPreparedStatement, learned by comparing the
+     * estimates with the row counts seen at execution. Unlike the row count
+     * statistics, the corrections survive recompilation, since that is when
+     * they are used. Like them, they are shared between clones.
+     */
+    private static class CardinalityFeedback {
+        /** Table numbers by result set number, for the current plan. */
+        private int[] tables;
+        /** Factors to multiply the estimates by, by table number. */
+        private HashMap<Integer,Double> corrections;
+        /** The estimates that were last corrected, by table number. */
+        private HashMap<Integer,Double> correctedEstimates;
+
+        synchronized void setTables(int[] tables) {
+            this.tables = tables;
+        }
+
+        synchronized int[] getTables() {
+            return tables;
+        }
+
+        /** @see ExecPreparedStatement#getCardinalityFeedbackTable(int) */
+        synchronized int getTable(int rsNum) {
+            return (tables == null || rsNum < 0 || rsNum >= tables.length) ?
+                    -1 : tables[rsNum];
+        }
+
+        synchronized Map<Integer,Double> getCorrections() {
+            return (corrections == null) ?
+                    null : new HashMap<Integer,Double>(corrections);
+        }
+
+        /** @see ExecPreparedStatement#correctCardinality(int, double, long) */
+        synchronized boolean correct(int tableNumber, double estimate,
+                                     long rowCount) {
+            if (corrections == null) {
+                corrections = new HashMap<Integer,Double>();
+                correctedEstimates = new HashMap<Integer,Double>();
+            }
+
+            // If the last correction left the estimate as it was, the
+            // estimate does not come from the table alone, and another
+            // recompilation would only give the same plan.
+            Double previous = correctedEstimates.get(tableNumber);
+            if (previous != null && previous.doubleValue() == estimate) {
+                return false;
+            }
+
+            Double factor = corrections.get(tableNumber);
+            double correction = (factor == null) ? 1.0 : factor.doubleValue();
+            correction *= Math.max(rowCount, 1L) / Math.max(estimate, 1.0);
+            corrections.put(tableNumber, correction);
+            correctedEstimates.put(tableNumber, estimate);
+            return true;
+        }
+
+        synchronized void clearCorrections() {
+            corrections = null;
+            correctedEstimates = null;
+        }
+    }
+
+    /** @see ExecPreparedStatement#getCardinalityFeedbackTable(int) */
+    public int getCardinalityFeedbackTable(int rsNum) {
+        return cardinalityFeedback.getTable(rsNum);
+    }
+
+    /** @see ExecPreparedStatement#correctCardinality(int, double, long) */
+    public boolean correctCardinality(int tableNumber,
+                                      double estimatedRowCount,
+                                      long rowCount) {
+        return cardinalityFeedback.correct(
+                tableNumber, estimatedRowCount, rowCount);
+    }
+
     /** @see ExecPreparedStatement#incrementExecutionCount() */
     public int incrementExecutionCount() {
         return rowCountStats.incrementExecutionCount();
@@ -44,6 +44,7 @@ import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
 import org.apache.derby.impl.sql.compile.StatementNode;
 import org.apache.derby.impl.sql.conn.GenericLanguageConnectionContext;
 import org.apache.derby.iapi.transaction.TransactionControl;
+import org.apache.derby.iapi.util.ByteArray;
 import org.apache.derby.iapi.util.InterruptStatus;
 
 public class GenericStatement
@@ -70,6 +71,23 @@ public class GenericStatement
 		this.isForReadOnly = isForReadOnly;
 	}
 
+	/**
+	 * Constructor for the key of a statement read back from the
+	 * persistent statement cache.
+	 *
+	 * @param compilationSchema schema
+	 * @param statementText	The text of the statement
+	 * @param isForReadOnly if the statement is opened with level CONCUR_READ_ONLY
+	 * @param prepareIsolationLevel the isolation level the statement was
+	 *        prepared with
+	 */
+	GenericStatement(SchemaDescriptor compilationSchema, String statementText,
+					 boolean isForReadOnly, int prepareIsolationLevel)
+	{
+		this(compilationSchema, statementText, isForReadOnly);
+		this.prepareIsolationLevel = prepareIsolationLevel;
+	}
+
 	/*
 	 * Statement interface
 	 */
@@ -183,7 +201,7 @@ public class GenericStatement
 		// if it is, and is valid, simply return that tree.
 		// if it is invalid, we will recompile now.
 		if (preparedStmt != null) {
-			if (preparedStmt.upToDate())
+			if (preparedStmt.upToDate() && !preparedStmt.isStale())
 				return preparedStmt;
 		}
 
@@ -240,6 +258,10 @@ public class GenericStatement
 			}
 		}
 
+		// true if a new plan is compiled for a stale plan, which the
+		// others go on using until the new plan replaces it
+		boolean refresh = false;
+
 		// if anyone else also has this prepared statement,
 		// we don't want them trying to compile with it while
 		// we are.  So, we synchronize on it and re-check
@@ -263,7 +285,11 @@ public class GenericStatement
 
 				// did it get updated while we waited for the lock on it?
 				if (preparedStmt.upToDate()) {
-					return preparedStmt;
+					if (!preparedStmt.beginRefresh()) {
+						return preparedStmt;
+					}
+					refresh = true;
+					break;
 				}
 
                 if (!preparedStmt.isCompiling()) {
@@ -277,9 +303,16 @@ public class GenericStatement
 				}
 			}
 
-            preparedStmt.beginCompiling();
+			if (!refresh) {
+				preparedStmt.beginCompiling();
+			}
 		}
 
+		// the statement to compile into
+		GenericPreparedStatement target = refresh ?
+			new GenericPreparedStatement(this) : preparedStmt;
+		boolean compiled = false;
+
 		try {
 
 			HeaderPrintWriter istream = lcc.getLogStatementText() ? Monitor.getStream() : null;
@@ -457,6 +490,11 @@ public class GenericStatement
 
                     // stop adding privileges for user-defined types
                     cc.skipTypePrivileges( true );
+
+                    // correct the estimates which earlier executions of
+                    // the statement found to be wrong
+                    cc.setCardinalityCorrections(
+                            preparedStmt.getCardinalityCorrections());
                     
 					qt.optimizeStatement();
 
@@ -546,7 +584,18 @@ public class GenericStatement
 						}
 					}
 
-					GeneratedClass ac = qt.generate(preparedStmt.getByteCodeSaver());
+					// keep the byte code of cached statements if the
+					// statement cache is saved at shutdown
+					ByteArray byteCodeSaver = preparedStmt.getByteCodeSaver();
+					ByteArray persistentByteCode = null;
+					if (byteCodeSaver == null && cacheMe &&
+						lcc.getLanguageConnectionFactory().persistsStatementCache())
+					{
+						persistentByteCode = new ByteArray();
+						byteCodeSaver = persistentByteCode;
+					}
+
+					GeneratedClass ac = qt.generate(byteCodeSaver);
 
 					generateTime = getCurrentTimeMillis(lcc);
 					/* endTimestamp only meaningful if generateTime is meaningful.
@@ -573,21 +622,26 @@ public class GenericStatement
 						this erases as it replaces.  Set the activation
 						class in case it came from a StorablePreparedStatement
 					*/
-					preparedStmt.setConstantAction( qt.makeConstantAction() );
-					preparedStmt.setSavedObjects( cc.getSavedObjects() );
-					preparedStmt.setRequiredPermissionsList(cc.getRequiredPermissionsList());
-                    preparedStmt.incrementVersionCounter();
-					preparedStmt.setActivationClass(ac);
-					preparedStmt.setNeedsSavepoint(qt.needsSavepoint());
-					preparedStmt.setCursorInfo((CursorInfo)cc.getCursorInfo());
-					preparedStmt.setIsAtomic(qt.isAtomic());
-					preparedStmt.setExecuteStatementNameAndSchema(
+					target.setConstantAction( qt.makeConstantAction() );
+					target.setSavedObjects( cc.getSavedObjects() );
+					target.setCardinalityFeedbackTables(
+											cc.getCardinalityFeedback());
+					target.setRequiredPermissionsList(cc.getRequiredPermissionsList());
+                    target.incrementVersionCounter();
+					target.setActivationClass(ac);
+					target.setPersistentByteCode(persistentByteCode);
+					target.setNeedsSavepoint(qt.needsSavepoint());
+					target.setParameterSensitive(
+						cc.getParameterSensitiveFlag());
+					target.setCursorInfo((CursorInfo)cc.getCursorInfo());
+					target.setIsAtomic(qt.isAtomic());
+					target.setExecuteStatementNameAndSchema(
 												qt.executeStatementName(),
 												qt.executeSchemaName()
 												);
-					preparedStmt.setSPSName(qt.getSPSName());
-					preparedStmt.completeCompile(qt);
-					preparedStmt.setCompileTimeWarnings(cc.getWarnings());
+					target.setSPSName(qt.getSPSName());
+					target.completeCompile(qt);
+					target.setCompileTimeWarnings(cc.getWarnings());
 
                     // Schedule updates of any stale index statistics we may
                     // have detected when creating the plan.
@@ -610,7 +664,7 @@ public class GenericStatement
 
 				if (lcc.getRunTimeStatisticsMode())
 				{
-					preparedStmt.setCompileTimeMillis(
+					target.setCompileTimeMillis(
 						parseTime - beginTime, //parse time
 						bindTime - parseTime, //bind time
 						optimizeTime - bindTime, //optimize time
@@ -620,6 +674,7 @@ public class GenericStatement
 						endTimestamp);
 				}
 
+				compiled = true;
 			}
 			finally // for block introduced by pushCompilerContext()
 			{
@@ -628,14 +683,19 @@ public class GenericStatement
 		}
 		catch (StandardException se)
 		{
-			if (foundInCache)
+			// the others are still using the plan that was to be refreshed
+			if (foundInCache && !refresh)
 				((GenericLanguageConnectionContext)lcc).removeStatement(this);
 
 			throw se;
 		}
 		finally
 		{
-            preparedStmt.endCompiling();
+			if (refresh) {
+				preparedStmt.endRefresh(compiled ? target : null);
+			} else {
+				preparedStmt.endCompiling();
+			}
 		}
 
 		lcc.commitNestedTransaction();
@@ -695,6 +755,21 @@ public class GenericStatement
 		return compilationSchema.getDescriptorName();
 	}
 
+	/** Return the schema descriptor the statement is compiled in. */
+	SchemaDescriptor getCompilationSchemaDescriptor() {
+		return compilationSchema;
+	}
+
+	/** Tell whether the statement is opened with level CONCUR_READ_ONLY. */
+	boolean isForReadOnly() {
+		return isForReadOnly;
+	}
+
+	/** Return the isolation level the statement was prepared with. */
+	int getPrepareIsolationLevel() {
+		return prepareIsolationLevel;
+	}
+
 	private static long getCurrentTimeMillis(LanguageConnectionContext lcc)
 	{
 		if (lcc.getStatisticsTiming())
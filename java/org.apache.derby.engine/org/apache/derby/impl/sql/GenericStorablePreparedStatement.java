@@ -94,6 +94,30 @@ public class GenericStorablePreparedStatement
 		super(stmt);
 	}
 
+	/**
+	 * Make a storable copy of the plan of a compiled statement, to be
+	 * written to the persistent statement cache.
+	 *
+	 * @param ps the compiled statement
+	 * @param byteCode the byte code of its activation class
+	 *
+	 * @exception StandardException on error
+	 */
+	GenericStorablePreparedStatement(GenericPreparedStatement ps,
+									 ByteArray byteCode)
+		throws StandardException
+	{
+		super(ps.statement);
+		setCursorInfo((CursorInfo) ps.getCursorInfo());
+		setNeedsSavepoint(ps.needsSavepoint());
+		isAtomic = ps.isAtomic();
+		executionConstants = ps.executionConstants;
+		resultDesc = ps.resultDesc;
+		savedObjects = ps.savedObjects;
+		className = ps.getActivationClass().getName();
+		this.byteCode = byteCode;
+	}
+
 	/**
 	 * Get our byte code array.  Used
 	 * by others to save off our byte
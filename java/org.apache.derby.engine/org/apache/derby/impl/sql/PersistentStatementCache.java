@@ -0,0 +1,454 @@
+/*
+
+   Derby - Class org.apache.derby.impl.sql.PersistentStatementCache
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.derby.catalog.Dependable;
+import org.apache.derby.io.StorageFactory;
+import org.apache.derby.io.StorageFile;
+import org.apache.derby.iapi.services.cache.CacheManager;
+import org.apache.derby.iapi.services.io.FormatIdInputStream;
+import org.apache.derby.iapi.services.io.FormatIdOutputStream;
+import org.apache.derby.iapi.services.monitor.ModuleFactory;
+import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
+import org.apache.derby.iapi.sql.conn.StatementContext;
+import org.apache.derby.iapi.sql.depend.DependencyManager;
+import org.apache.derby.iapi.sql.depend.Provider;
+import org.apache.derby.iapi.sql.depend.ProviderInfo;
+import org.apache.derby.iapi.sql.dictionary.DataDictionary;
+import org.apache.derby.iapi.sql.dictionary.SchemaDescriptor;
+import org.apache.derby.iapi.store.access.TransactionController;
+import org.apache.derby.iapi.types.DataTypeDescriptor;
+import org.apache.derby.iapi.util.ByteArray;
+import org.apache.derby.impl.sql.conn.CachedStatement;
+import org.apache.derby.shared.common.error.ExceptionSeverity;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.util.ArrayUtil;
+
+/**
+ * Saves the plans in the statement cache when the database is shut down,
+ * and puts them back into the statement cache when the database is booted
+ * again, so that the statements of an application need not be compiled
+ * again after a restart.
+ * <p>
+ * A plan is saved as a {@link GenericStorablePreparedStatement}, like the
+ * plans of stored prepared statements, together with the parameter types
+ * and the persistent providers of the statement. When the plans are read
+ * back, the providers are looked up in the data dictionary and registered
+ * with the dependency manager, so that DDL invalidates the statements as
+ * usual. A statement whose providers cannot all be found is dropped.
+ * <p>
+ * The file is only used by an engine of the same version on a database at
+ * the same data dictionary version as when it was written, and it is
+ * deleted when it has been read, so that the plans are never used after
+ * the database has been booted without them.
+ */
+public final class PersistentStatementCache
+{
+    /** Name of the file in the database directory. */
+    public static final String FILE_NAME = "statementCache.dat";
+
+    /** Version of the format of the file. */
+    private static final int FORMAT_VERSION = 1;
+
+    private final StorageFactory storageFactory;
+
+    /** True once the saved plans have been read back. */
+    private boolean restored;
+
+    /**
+     * The version of the data dictionary and its dependency manager, set
+     * when the saved plans are read back by the first connection.
+     */
+    private String dictionaryVersion;
+    private DependencyManager dependencyManager;
+
+    public PersistentStatementCache(StorageFactory storageFactory)
+    {
+        this.storageFactory = storageFactory;
+    }
+
+    /**
+     * Delete the plans saved at an earlier shutdown, if there are any.
+     *
+     * @param storageFactory the storage factory of the database
+     */
+    public static void discard(StorageFactory storageFactory)
+    {
+        try {
+            new PersistentStatementCache(storageFactory).deleteFile();
+        } catch (IOException ioe) {
+            ioe.printStackTrace(Monitor.getStream().getPrintWriter());
+        }
+    }
+
+    /**
+     * Put the plans saved at the last shutdown into the statement cache.
+     * Only the first call does any work.
+     *
+     * @param cache the statement cache
+     * @param lcc the connection to read the data dictionary with
+     * @throws StandardException if the data dictionary could not be read
+     */
+    public synchronized void restore(CacheManager cache,
+                                     LanguageConnectionContext lcc)
+            throws StandardException
+    {
+        if (restored) {
+            return;
+        }
+        restored = true;
+
+        DataDictionary dd = lcc.getDataDictionary();
+        TransactionController tc = lcc.getTransactionExecute();
+        Serializable version =
+            tc.getProperty(DataDictionary.CORE_DATA_DICTIONARY_VERSION);
+        dictionaryVersion = String.valueOf(version);
+        dependencyManager = dd.getDependencyManager();
+
+        try {
+            try {
+                List<byte[]> entries = readFile();
+                for (int i = 0; i < entries.size(); i++) {
+                    try {
+                        restoreStatement(cache, lcc, entries.get(i));
+                    } catch (StandardException se) {
+                        // a statement that cannot be restored is simply
+                        // compiled again when it is used, unless the error
+                        // has aborted the transaction
+                        if (se.getSeverity() >
+                                ExceptionSeverity.STATEMENT_SEVERITY) {
+                            throw se;
+                        }
+                    } catch (IOException ioe) {
+                    } catch (ClassNotFoundException cnfe) {
+                    }
+                }
+            } finally {
+                deleteFile();
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace(Monitor.getStream().getPrintWriter());
+        }
+    }
+
+    /**
+     * Save the plans of the statements in the statement cache. Statements
+     * that are invalid, or whose plans cannot be used by another
+     * connection without compiling them again, are not saved.
+     *
+     * @param cache the statement cache
+     */
+    public synchronized void save(CacheManager cache)
+    {
+        // no connection has been made, so there is nothing to save
+        if (dictionaryVersion == null) {
+            return;
+        }
+
+        List<byte[]> entries = new ArrayList<byte[]>();
+        for (Object cached : cache.values()) {
+            GenericPreparedStatement ps =
+                ((CachedStatement) cached).getPreparedStatement();
+            if (ps == null) {
+                continue;
+            }
+            try {
+                byte[] entry = saveStatement(ps);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            } catch (StandardException se) {
+            } catch (IOException ioe) {
+                // some object of the plan cannot be written
+            }
+        }
+
+        try {
+            if (!entries.isEmpty()) {
+                writeFile(entries);
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace(Monitor.getStream().getPrintWriter());
+        }
+    }
+
+    /**
+     * Write the plan of a statement to a byte array.
+     *
+     * @return the plan, or null if the statement cannot be saved
+     */
+    private byte[] saveStatement(GenericPreparedStatement ps)
+            throws StandardException, IOException
+    {
+        GenericStorablePreparedStatement sps;
+        DataTypeDescriptor[] paramTypes;
+        synchronized (ps) {
+            ByteArray byteCode = ps.getPersistentByteCode();
+            if (byteCode == null) {
+                return null;
+            }
+            sps = new GenericStorablePreparedStatement(ps, byteCode);
+            paramTypes = ps.paramTypeDescriptors;
+        }
+
+        GenericStatement stmt = (GenericStatement) ps.statement;
+        SchemaDescriptor sd = stmt.getCompilationSchemaDescriptor();
+        if (sd.getUUID() == null) {
+            // the schema has not been created yet
+            return null;
+        }
+
+        ProviderInfo[] providers =
+            dependencyManager.getPersistentProviderInfos(ps);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FormatIdOutputStream out = new FormatIdOutputStream(bytes);
+        out.writeObject(sd.getSchemaName());
+        out.writeObject(stmt.getSource());
+        out.writeBoolean(stmt.isForReadOnly());
+        out.writeInt(stmt.getPrepareIsolationLevel());
+        out.writeObject(sps);
+        out.writeBoolean(paramTypes != null);
+        if (paramTypes != null) {
+            ArrayUtil.writeArray(out, paramTypes);
+        }
+        ArrayUtil.writeArray(out, providers);
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read back the plan of a statement and put it into the statement
+     * cache, unless the objects it depends on no longer exist.
+     */
+    private void restoreStatement(CacheManager cache,
+                                  LanguageConnectionContext lcc,
+                                  byte[] entry)
+            throws StandardException, IOException, ClassNotFoundException
+    {
+        FormatIdInputStream in =
+            new FormatIdInputStream(new ByteArrayInputStream(entry));
+        String schemaName = (String) in.readObject();
+        String text = (String) in.readObject();
+        boolean isForReadOnly = in.readBoolean();
+        int prepareIsolationLevel = in.readInt();
+        GenericStorablePreparedStatement sps =
+            (GenericStorablePreparedStatement) in.readObject();
+        DataTypeDescriptor[] paramTypes = null;
+        if (in.readBoolean()) {
+            paramTypes =
+                new DataTypeDescriptor[ArrayUtil.readArrayLength(in)];
+            ArrayUtil.readArrayItems(in, paramTypes);
+        }
+        ProviderInfo[] providerInfos =
+            new ProviderInfo[ArrayUtil.readArrayLength(in)];
+        ArrayUtil.readArrayItems(in, providerInfos);
+
+        DataDictionary dd = lcc.getDataDictionary();
+        SchemaDescriptor sd = dd.getSchemaDescriptor(
+                schemaName, lcc.getTransactionExecute(), false);
+        if (sd == null) {
+            return;
+        }
+
+        Provider[] providers = new Provider[providerInfos.length];
+        for (int i = 0; i < providers.length; i++) {
+            Dependable d = providerInfos[i].getDependableFinder().
+                getDependable(dd, providerInfos[i].getObjectId());
+            if (!(d instanceof Provider)) {
+                return;
+            }
+            providers[i] = (Provider) d;
+        }
+
+        GenericStatement stmt = new GenericStatement(
+                sd, text, isForReadOnly, prepareIsolationLevel);
+        CachedStatement cs = (CachedStatement) cache.find(stmt);
+        if (cs == null) {
+            return;
+        }
+        GenericPreparedStatement ps = cs.getPreparedStatement();
+
+        if (ps.upToDate()) {
+            // compiled by someone else already
+            cache.release(cs);
+            return;
+        }
+
+        // the dependencies are registered in a statement context, like
+        // when the statement is compiled
+        StatementContext sc = lcc.pushStatementContext(
+                true, isForReadOnly, text, null, false, 0L);
+        try {
+            for (int i = 0; i < providers.length; i++) {
+                dependencyManager.addDependency(
+                        ps, providers[i], lcc.getContextManager());
+            }
+            ps.restorePlan(sps, paramTypes);
+        } catch (StandardException se) {
+            dependencyManager.clearDependencies(lcc, ps);
+            lcc.popStatementContext(sc, se);
+            cache.remove(cs);
+            throw se;
+        }
+
+        lcc.popStatementContext(sc, null);
+        cache.release(cs);
+    }
+
+    /**
+     * Read the saved plans. If the file was written by another version of
+     * the engine, or when the data dictionary was at another version, the
+     * plans are ignored.
+     *
+     * @return the saved plans, each in a byte array
+     */
+    private List<byte[]> readFile() throws IOException
+    {
+        List<byte[]> entries = new ArrayList<byte[]>();
+
+        final StorageFile file = storageFactory.newStorageFile(FILE_NAME);
+        InputStream is = run(new PrivilegedExceptionAction<InputStream>() {
+            public InputStream run() throws IOException {
+                return file.exists() ? file.getInputStream() : null;
+            }
+        });
+        if (is == null) {
+            return entries;
+        }
+
+        FormatIdInputStream in =
+            new FormatIdInputStream(new BufferedInputStream(is));
+        try {
+            if (in.readInt() != FORMAT_VERSION ||
+                    !in.readUTF().equals(getEngineVersion()) ||
+                    !in.readUTF().equals(dictionaryVersion)) {
+                return entries;
+            }
+
+            while (in.readBoolean()) {
+                byte[] entry = new byte[in.readInt()];
+                in.readFully(entry);
+                entries.add(entry);
+            }
+        } finally {
+            in.close();
+        }
+
+        return entries;
+    }
+
+    /**
+     * Write the saved plans to the file in the database directory.
+     */
+    private void writeFile(List<byte[]> entries) throws IOException
+    {
+        final StorageFile file = storageFactory.newStorageFile(FILE_NAME);
+        OutputStream os = run(new PrivilegedExceptionAction<OutputStream>() {
+            public OutputStream run() throws IOException {
+                return file.getOutputStream();
+            }
+        });
+
+        FormatIdOutputStream out =
+            new FormatIdOutputStream(new BufferedOutputStream(os));
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(getEngineVersion());
+            out.writeUTF(dictionaryVersion);
+            for (int i = 0; i < entries.size(); i++) {
+                byte[] entry = entries.get(i);
+                out.writeBoolean(true);
+                out.writeInt(entry.length);
+                out.write(entry);
+            }
+            out.writeBoolean(false);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void deleteFile() throws IOException
+    {
+        final StorageFile file = storageFactory.newStorageFile(FILE_NAME);
+        run(new PrivilegedExceptionAction<Object>() {
+            public Object run() {
+                if (file.exists()) {
+                    file.delete();
+                }
+                return null;
+            }
+        });
+    }
+
+    private static String getEngineVersion()
+    {
+        return getMonitor().getEngineVersion().getVersionBuildString(true);
+    }
+
+    /**
+     * Privileged Monitor lookup. Must be private so that user code
+     * can't call this entry point.
+     */
+    private  static  ModuleFactory  getMonitor()
+    {
+        return AccessController.doPrivileged
+            (
+             new PrivilegedAction<ModuleFactory>()
+             {
+                 public ModuleFactory run()
+                 {
+                     return Monitor.getMonitor();
+                 }
+             }
+             );
+    }
+
+    /**
+     * Run a privileged action on the file.
+     */
+    private static <T> T run(PrivilegedExceptionAction<T> action)
+            throws IOException
+    {
+        try {
+            return AccessController.doPrivileged(action);
+        } catch (PrivilegedActionException pae) {
+            throw (IOException) pae.getCause();
+        }
+    }
+}
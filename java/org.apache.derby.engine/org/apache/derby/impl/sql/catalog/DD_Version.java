@@ -556,6 +556,13 @@ public	class DD_Version implements	Formatable
 			bootingDictionary.upgrade_SYSCOLUMNS_AUTOINCCYCLE(tc);
 		}
 
+        if (fromMajorVersionNumber <= DataDictionary.DD_VERSION_DERBY_10_14)
+        {
+            // On upgrade from versions before 10.15, create system procedures
+            // added in 10.15.
+            bootingDictionary.create_10_15_system_procedures( tc, newlyCreatedRoutines );
+        }
+
         // Grant PUBLIC access to some system routines
         bootingDictionary.grantPublicAccessToSystemRoutines(newlyCreatedRoutines, tc, aid);
 	}
@@ -382,6 +382,13 @@ public final class	DataDictionaryImpl
 	/* Cache of table descriptors */
 	CacheManager	OIDTdCache;
 	CacheManager	nameTdCache;
+
+	/*
+	** The table descriptors read through the caches since the last DDL,
+	** which compile-only lookups can use without pinning them in the
+	** caches. Replaced by an empty snapshot when the caches are cleared.
+	*/
+	private volatile TableDescriptorSnapshot tdSnapshot;
 	private CacheManager	spsNameCache;
     private CacheManager sequenceGeneratorCache;
 	private Hashtable<UUID,SPSDescriptor>		spsIdHash;
@@ -454,6 +461,8 @@ public final class	DataDictionaryImpl
 												"SYSCS_UPDATE_STATISTICS",
 												"SYSCS_MODIFY_PASSWORD",
 												"SYSCS_DROP_STATISTICS", 
+												"SYSCS_UPDATE_COLUMN_GROUP_STATISTICS",
+												"SYSCS_DROP_COLUMN_GROUP_STATISTICS",
 												};
 	
 	/**
@@ -677,6 +686,7 @@ public final class	DataDictionaryImpl
 				"TableDescriptorNameCache",
 				tdCacheSize,
 				tdCacheSize);
+		tdSnapshot = newTableDescriptorSnapshot();
 
 		if (stmtCacheSize > 0)
 		{
@@ -2202,14 +2212,23 @@ public final class	DataDictionaryImpl
 		/* Only use the cache if we're in compile-only mode */
 		if (getCacheMode() == DataDictionary.COMPILE_ONLY_MODE)
 		{
-			NameTDCacheable cacheEntry = (NameTDCacheable) nameTdCache.find(tableKey);
-			if (cacheEntry != null)
+			TableDescriptorSnapshot snapshot = tdSnapshot;
+			retval = snapshot.get(tableKey);
+			if (retval == null)
 			{
-				retval = cacheEntry.getTableDescriptor();
-				// bind in previous command might have set refernced cols
-				retval.setReferencedColumnMap(null);
-				nameTdCache.release(cacheEntry);
+				NameTDCacheable cacheEntry =
+					(NameTDCacheable) nameTdCache.find(tableKey);
+				if (cacheEntry != null)
+				{
+					retval = cacheEntry.getTableDescriptor();
+					nameTdCache.release(cacheEntry);
+					snapshot.put(tableKey, retval);
+				}
 			}
+			// bind in previous command might have set refernced cols;
+			// the map is kept by the session, not by the shared descriptor
+			if (retval != null)
+				retval.setReferencedColumnMap(null);
 			return retval;
 		}
 
@@ -2300,14 +2319,22 @@ public final class	DataDictionaryImpl
 		/* Only use the cache if we're in compile-only mode */
 		if (getCacheMode() == DataDictionary.COMPILE_ONLY_MODE)
 		{
-			cacheEntry = (OIDTDCacheable) OIDTdCache.find(tableID);
-			if (cacheEntry != null)
+			TableDescriptorSnapshot snapshot = tdSnapshot;
+			retval = snapshot.get(tableID);
+			if (retval == null)
 			{
-				retval = cacheEntry.getTableDescriptor();
-				// bind in previous command might have set refernced cols
-				retval.setReferencedColumnMap(null);
-				OIDTdCache.release(cacheEntry);
+				cacheEntry = (OIDTDCacheable) OIDTdCache.find(tableID);
+				if (cacheEntry != null)
+				{
+					retval = cacheEntry.getTableDescriptor();
+					OIDTdCache.release(cacheEntry);
+					snapshot.put(tableID, retval);
+				}
 			}
+			// bind in previous command might have set refernced cols;
+			// the map is kept by the session, not by the shared descriptor
+			if (retval != null)
+				retval.setReferencedColumnMap(null);
 
 			return retval;
 
@@ -9017,6 +9044,8 @@ public final class	DataDictionaryImpl
 		nameTdCache.ageOut();
 		OIDTdCache.cleanAll();
 		OIDTdCache.ageOut();
+		// after the caches, so that the new snapshot isn't filled from them
+		tdSnapshot = newTableDescriptorSnapshot();
         if ( clearSequenceCaches ) { clearSequenceCaches(); }
 		if (spsNameCache != null)
 		{
@@ -9028,6 +9057,16 @@ public final class	DataDictionaryImpl
 		}
 	}
 
+	/**
+	 * Create an empty snapshot of the table descriptors. It holds more
+	 * descriptors than the caches, since holding a descriptor costs no
+	 * more than the descriptor itself.
+	 */
+	private TableDescriptorSnapshot newTableDescriptorSnapshot()
+	{
+		return new TableDescriptorSnapshot(4 * tdCacheSize);
+	}
+
     /**
        Flush sequence caches to disk so that we don't leak unused, pre-allocated numbers.
     */
@@ -11456,6 +11495,8 @@ public final class	DataDictionaryImpl
         create_10_12_system_procedures( tc, newlyCreatedRoutines );
         // add 10.13 specific system procedures
         create_10_13_system_procedures( tc, newlyCreatedRoutines );
+        // add 10.15 specific system procedures
+        create_10_15_system_procedures( tc, newlyCreatedRoutines );
     }
 
     /**
@@ -13554,6 +13595,256 @@ public final class	DataDictionaryImpl
 
 	
 
+    }
+
+    /**
+     * <p>
+     * Create system procedures that are part of the SYSCS_UTIL schema, added in version 10.15.
+     * </p>
+     *
+     * @param tc an instance of the Transaction Controller.
+     * @param newlyCreatedRoutines set of routines we are creating (used to add permissions later on)
+     **/
+    void create_10_15_system_procedures( TransactionController   tc, HashSet<String> newlyCreatedRoutines )
+        throws StandardException
+    {
+        UUID  sysUtilUUID = getSystemUtilSchemaDescriptor().getUUID();
+
+        // void SYSCS_UTIL.SYSCS_REORGANIZE_INDEX(varchar(128), varchar(128), varchar(128))
+        {
+            // procedure argument names
+            String[] arg_names = {"SCHEMANAME", "TABLENAME", "INDEXNAME"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_REORGANIZE_INDEX",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_IMPORT_TABLE_PARALLEL(varchar(128), varchar(128),
+        //     varchar(32672), char(1), char(1), varchar(128), smallint, integer)
+        {
+            // procedure argument names
+            String[] arg_names = {"schemaName", "tableName", "fileName",
+                                  "columnDelimiter", "characterDelimiter",
+                                  "codeset", "replace", "parallelism"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    DataTypeDescriptor.getCatalogType(Types.CHAR, 1),
+                    DataTypeDescriptor.getCatalogType(Types.CHAR, 1),
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    TypeDescriptor.SMALLINT,
+                    TypeDescriptor.INTEGER
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_IMPORT_TABLE_PARALLEL",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_EXPORT_TABLE_BINARY(varchar(128), varchar(128),
+        //     varchar(32672), smallint)
+        {
+            // procedure argument names
+            String[] arg_names = {"schemaName", "tableName", "fileName",
+                                  "compress"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    TypeDescriptor.SMALLINT
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_EXPORT_TABLE_BINARY",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.READS_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_EXPORT_QUERY_BINARY(varchar(32672),
+        //     varchar(32672), smallint)
+        {
+            // procedure argument names
+            String[] arg_names = {"selectStatement", "fileName", "compress"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    TypeDescriptor.SMALLINT
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_EXPORT_QUERY_BINARY",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.READS_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_IMPORT_TABLE_BINARY(varchar(128), varchar(128),
+        //     varchar(32672), smallint)
+        {
+            // procedure argument names
+            String[] arg_names = {"schemaName", "tableName", "fileName",
+                                  "replace"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    TypeDescriptor.SMALLINT
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_IMPORT_TABLE_BINARY",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_BULK_INSERT_QUERY(varchar(128), varchar(128),
+        //     varchar(32672), smallint)
+        {
+            // procedure argument names
+            String[] arg_names = {"schemaName", "tableName",
+                                  "selectStatement", "replace"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672),
+                    TypeDescriptor.SMALLINT
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_BULK_INSERT_QUERY",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS(varchar(128),
+        //     varchar(128), varchar(32672))
+        {
+            // procedure argument names
+            String[] arg_names = {"SCHEMANAME", "TABLENAME", "COLUMNNAMES"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672)
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_UPDATE_COLUMN_GROUP_STATISTICS",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
+
+        // void SYSCS_UTIL.SYSCS_DROP_COLUMN_GROUP_STATISTICS(varchar(128),
+        //     varchar(128), varchar(32672))
+        {
+            // procedure argument names
+            String[] arg_names = {"SCHEMANAME", "TABLENAME", "COLUMNNAMES"};
+
+            // procedure argument types
+            TypeDescriptor[] arg_types = {
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    CATALOG_TYPE_SYSTEM_IDENTIFIER,
+                    DataTypeDescriptor.getCatalogType(Types.VARCHAR, 32672)
+            };
+
+            createSystemProcedureOrFunction(
+                "SYSCS_DROP_COLUMN_GROUP_STATISTICS",
+                sysUtilUUID,
+                arg_names,
+                arg_types,
+                0,
+                0,
+                RoutineAliasInfo.MODIFIES_SQL_DATA,
+                false,
+                false,
+                (TypeDescriptor) null,
+                newlyCreatedRoutines,
+                tc);
+        }
     }
 
 
@@ -0,0 +1,105 @@
+/*
+
+   Derby - Class org.apache.derby.impl.sql.catalog.TableDescriptorSnapshot
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.sql.catalog;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.derby.catalog.UUID;
+import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
+
+/**
+ * The table descriptors that have been read through the table descriptor
+ * caches since the data dictionary last left DDL mode. The descriptors
+ * cannot change until the data dictionary enters DDL mode again, at which
+ * point the data dictionary replaces the snapshot with an empty one, so a
+ * descriptor found here can be used without finding it in the caches, which
+ * would keep it there until it is released.
+ * <p>
+ * Lookups don't block each other or the sessions adding descriptors.
+ * A snapshot holds at most a fixed number of descriptors by name and by
+ * UUID; descriptors read after that are only found in the caches.
+ * <p>
+ * Like the descriptors in the caches, the descriptors are shared by all
+ * sessions, and are not copied. The referenced column map, which binding
+ * a statement sets on a descriptor and the lookups reset, is kept by the
+ * LanguageConnectionContext of each session (DERBY-4895), so resetting it
+ * in one session does not change it for another.
+ */
+final class TableDescriptorSnapshot
+{
+	private final ConcurrentHashMap<TableKey,TableDescriptor> byName;
+	private final ConcurrentHashMap<UUID,TableDescriptor> byId;
+	private final int maxSize;
+
+	/**
+	 * Create an empty snapshot.
+	 *
+	 * @param maxSize the maximum number of descriptors to hold by name,
+	 *	and by UUID
+	 */
+	TableDescriptorSnapshot(int maxSize)
+	{
+		this.maxSize = maxSize;
+		byName = new ConcurrentHashMap<TableKey,TableDescriptor>();
+		byId = new ConcurrentHashMap<UUID,TableDescriptor>();
+	}
+
+	/**
+	 * Get the descriptor of a table by name.
+	 *
+	 * @return the descriptor, or null if it is not in the snapshot
+	 */
+	TableDescriptor get(TableKey tableKey)
+	{
+		return byName.get(tableKey);
+	}
+
+	/**
+	 * Get the descriptor of a table by UUID.
+	 *
+	 * @return the descriptor, or null if it is not in the snapshot
+	 */
+	TableDescriptor get(UUID tableID)
+	{
+		return byId.get(tableID);
+	}
+
+	/**
+	 * Add a descriptor read through the name cache, unless the snapshot
+	 * is full.
+	 */
+	void put(TableKey tableKey, TableDescriptor td)
+	{
+		if (byName.size() < maxSize)
+			byName.putIfAbsent(tableKey, td);
+	}
+
+	/**
+	 * Add a descriptor read through the UUID cache, unless the snapshot
+	 * is full.
+	 */
+	void put(UUID tableID, TableDescriptor td)
+	{
+		if (byId.size() < maxSize)
+			byId.putIfAbsent(tableID, td);
+	}
+}
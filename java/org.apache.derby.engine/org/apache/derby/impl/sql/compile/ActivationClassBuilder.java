@@ -96,6 +96,19 @@ class ActivationClassBuilder	extends	ExpressionClassBuilder
 		super( superClass, (String) null, cc );
 	}
 
+	/**
+	 * Build an activation class whose methods are interpreted by
+	 * interpreterClass, until the statement has been executed the given
+	 * number of times.
+	 *
+	 * @exception StandardException thrown on failure
+	 */
+	ActivationClassBuilder (String superClass, String interpreterClass,
+		int executions, CompilerContext cc) throws StandardException
+	{
+		super( superClass, (String) null, interpreterClass, executions, cc );
+	}
+
 	///////////////////////////////////////////////////////////////////////
 	//
 	// ACCESSORS
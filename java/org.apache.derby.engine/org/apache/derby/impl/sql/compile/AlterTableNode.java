@@ -28,6 +28,7 @@ import org.apache.derby.iapi.services.context.ContextManager;
 import org.apache.derby.iapi.services.io.FormatableBitSet;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.sql.compile.Visitor;
+import org.apache.derby.iapi.sql.dictionary.ColumnDescriptor;
 import org.apache.derby.iapi.sql.dictionary.ConglomerateDescriptor;
 import org.apache.derby.iapi.sql.dictionary.ConstraintDescriptorList;
 import org.apache.derby.iapi.sql.dictionary.DataDictionary;
@@ -78,6 +79,12 @@ class AlterTableNode extends DDLStatementNode
 	 * whose statistics need to be updated/dropped.
 	 */
 	private	String				indexNameForStatistics;
+	/**
+	 * If statistic is getting updated/dropped for a group of columns, the
+	 * names of the columns, and once bound, their positions in the table.
+	 */
+	private	ResultColumnList	columnGroupForStatistics;
+	private	int[]				columnGroupPositions;
 	
 	public	boolean				compressTable = false;
 	public	boolean				sequential = false;
@@ -203,6 +210,25 @@ class AlterTableNode extends DDLStatementNode
         schemaDescriptor = getSchemaDescriptor();
     }
 
+    /**
+     * Constructor for UPDATE_STATISTICS or DROP_STATISTICS of a group of
+     * columns
+     *
+     * @param tableName The name of the table being altered
+     * @param changeType update or drop statistics
+     * @param columnGroup Names of the columns in the group
+     * @param cm Context manager
+     * @throws StandardException
+     */
+    AlterTableNode(
+            TableName tableName,
+            int changeType,
+            ResultColumnList columnGroup,
+            ContextManager cm) throws StandardException {
+        this(tableName, changeType, false, null, cm);
+        this.columnGroupForStatistics = columnGroup;
+    }
+
     /**
      * Constructor for ADD_TYPE, DROP_TYPE, MODIFY_TYPE and LOCK_TYPE
      * @param tableName  The name of the table being altered
@@ -265,7 +291,9 @@ class AlterTableNode extends DDLStatementNode
 				"dropStatistics: " + dropStatistics + "\n" +
 				"dropStatisticsAll: " + dropStatisticsAll + "\n" +
 				"indexNameForStatistics: " +
-				indexNameForStatistics + "\n";
+				indexNameForStatistics + "\n" +
+				"columnGroupForStatistics: " +
+				columnGroupForStatistics + "\n";
 		}
 		else
 		{
@@ -443,7 +471,11 @@ public String statementToString()
 		//Check if we are in alter table to update/drop the statistics. If yes,
 		// then check if we are here to update/drop the statistics of a specific
 		// index. If yes, then verify that the indexname provided is a valid one.
-		if ((updateStatistics && !updateStatisticsAll) || (dropStatistics && !dropStatisticsAll))
+		if (columnGroupForStatistics != null)
+		{
+			columnGroupPositions = bindColumnGroup();
+		}
+		else if ((updateStatistics && !updateStatisticsAll) || (dropStatistics && !dropStatisticsAll))
 		{
 			ConglomerateDescriptor	cd = null;
 			if (schemaDescriptor.getUUID() != null) 
@@ -467,6 +499,53 @@ public String statementToString()
 		getCompilerContext().createDependency(baseTable);
 	}
 
+	/**
+	 * Find the positions of the columns of a column group whose statistics
+	 * are to be updated or dropped.
+	 *
+	 * @return	The positions of the columns in the table, in ascending
+	 *			order and without duplicates
+	 *
+	 * @exception StandardException		Thrown if a column does not exist,
+	 *									or cannot be ordered
+	 */
+	private int[] bindColumnGroup() throws StandardException
+	{
+		FormatableBitSet columns =
+			new FormatableBitSet(baseTable.getNumberOfColumns() + 1);
+
+        for (ResultColumn rc : columnGroupForStatistics)
+		{
+			ColumnDescriptor columnDescriptor =
+				baseTable.getColumnDescriptor(rc.getName());
+			if (columnDescriptor == null)
+			{
+				throw StandardException.newException(
+						SQLState.LANG_COLUMN_NOT_FOUND_IN_TABLE,
+						rc.getName(),
+						getFullName());
+			}
+
+			// The distinct values are counted by sorting them.
+			if (!columnDescriptor.getType().getTypeId().
+					orderable(getClassFactory()))
+			{
+				throw StandardException.newException(
+						SQLState.LANG_COLUMN_NOT_ORDERABLE_DURING_EXECUTION,
+						columnDescriptor.getType().getTypeId().getSQLTypeName());
+			}
+			columns.set(columnDescriptor.getPosition());
+		}
+
+		int[] positions = new int[columns.getNumBitsSet()];
+		for (int i = 0, position = columns.anySetBit(); position != -1;
+			 position = columns.anySetBit(position))
+		{
+			positions[i++] = position;
+		}
+		return positions;
+	}
+
 	/**
 	 * Return true if the node references SESSION schema tables (temporary or permanent)
 	 *
@@ -511,7 +590,8 @@ public String statementToString()
  										     updateStatisticsAll,
  										     dropStatistics,
  										     dropStatisticsAll,
- 										     indexNameForStatistics);
+ 										     indexNameForStatistics,
+ 										     columnGroupPositions);
 	}
 
 	/**
@@ -22,6 +22,7 @@
 package	org.apache.derby.impl.sql.compile;
 
 import java.sql.Types;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derby.iapi.services.compiler.MethodBuilder;
@@ -1025,6 +1026,14 @@ class BinaryRelationalOperatorNode
 		}
 	}
 
+	/** @see RelationalOperator#compareWithParameter */
+	public boolean compareWithParameter(Optimizable optTable)
+	{
+        ValueNode node = keyColumnOnLeft(optTable) ? rightOperand : leftOperand;
+
+		return node.requiresTypeFromContext();
+	}
+
 	/**
 	 * @see RelationalOperator#getCompareValue
 	 *
@@ -1405,6 +1414,11 @@ class BinaryRelationalOperatorNode
 		
 		if (retval >= 0.0d)
 			return retval;
+
+		retval = histogramSelectivity(optTable);
+
+		if (retval >= 0.0d)
+			return retval;
 			
         switch (relOpType)
 		{
@@ -1424,6 +1438,93 @@ class BinaryRelationalOperatorNode
 		return 0.0;
 	}
 
+	/**
+	 * Return the selectivity of this comparison from the histogram of the
+	 * column, if it compares a column of the table with a constant and the
+	 * optimizer has a histogram of the column. An IN list probe predicate
+	 * only gets here when it is not a start/stop key with constants, so
+	 * it stands for the whole list.
+	 * <p>
+	 * If the column has a histogram but is compared with a parameter,
+	 * the plan is marked as sensitive to the value of the parameter,
+	 * since the histogram would have estimated the selectivity of a
+	 * constant.
+	 *
+	 * @param optTable	The table being optimized
+	 *
+	 * @return	The selectivity, or -1 if there is no histogram to use
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	double histogramSelectivity(Optimizable optTable)
+		throws StandardException
+	{
+		if (isInListProbeNode())
+			return inListProbeSource.histogramSelectivity(optTable);
+
+		if ((rightOperand.requiresTypeFromContext() &&
+			 getColumnHistogram(optTable, leftOperand) != null) ||
+			(leftOperand.requiresTypeFromContext() &&
+			 getColumnHistogram(optTable, rightOperand) != null))
+		{
+			getCompilerContext().setParameterSensitiveFlag();
+			return -1.0d;
+		}
+
+		int operator = relOpType;
+		ColumnHistogram histogram = getColumnHistogram(optTable, leftOperand);
+		DataValueDescriptor value = getHistogramValue(rightOperand);
+		if (histogram == null || value == null)
+		{
+			// Try the other way around, with the column on the right.
+			histogram = getColumnHistogram(optTable, rightOperand);
+			value = getHistogramValue(leftOperand);
+			switch (relOpType)
+			{
+				case RelationalOperator.LESS_THAN_RELOP:
+					operator = RelationalOperator.GREATER_THAN_RELOP;
+					break;
+				case RelationalOperator.LESS_EQUALS_RELOP:
+					operator = RelationalOperator.GREATER_EQUALS_RELOP;
+					break;
+				case RelationalOperator.GREATER_THAN_RELOP:
+					operator = RelationalOperator.LESS_THAN_RELOP;
+					break;
+				case RelationalOperator.GREATER_EQUALS_RELOP:
+					operator = RelationalOperator.LESS_EQUALS_RELOP;
+					break;
+			}
+		}
+		if (histogram == null || value == null)
+			return -1.0d;
+
+		try
+		{
+			switch (operator)
+			{
+				case RelationalOperator.EQUALS_RELOP:
+					return histogram.equalsSelectivity(value);
+				case RelationalOperator.NOT_EQUALS_RELOP:
+					return histogram.notEqualsSelectivity(value);
+				case RelationalOperator.LESS_THAN_RELOP:
+					return histogram.lessThanSelectivity(value, false);
+				case RelationalOperator.LESS_EQUALS_RELOP:
+					return histogram.lessThanSelectivity(value, true);
+				case RelationalOperator.GREATER_THAN_RELOP:
+					return histogram.greaterThanSelectivity(value, false);
+				case RelationalOperator.GREATER_EQUALS_RELOP:
+					return histogram.greaterThanSelectivity(value, true);
+			}
+		}
+		catch (StandardException se)
+		{
+			// The constant cannot be compared with the values in the
+			// histogram without a conversion; use the default estimates.
+		}
+
+		return -1.0d;
+	}
+
 	/** @see RelationalOperator#getTransitiveSearchClause */
     @Override
 	public RelationalOperator getTransitiveSearchClause(ColumnReference otherCR)
@@ -77,6 +77,9 @@ public class ColumnDefinitionNode extends TableElementNode
 	long						autoinc_create_or_modify_Start_Increment;
 	boolean						autoincrementVerify;
 
+	// true if the long values of this column are stored deflated
+	boolean						compressed;
+
 	//autoinc_create_or_modify_Start_Increment will be set to one of the
 	//following 3 values.
 	//CREATE_AUTOINCREMENT - this autoincrement column definition is for create table
@@ -561,6 +564,55 @@ public class ColumnDefinitionNode extends TableElementNode
 		}
 	}
 
+	/**
+	 * Mark this column as COMPRESSED.
+	 */
+	void setCompressed()
+	{
+		compressed = true;
+	}
+
+	/**
+	 * Is this a COMPRESSED column?
+	 *
+	 * @return Whether or not the long values of this column are stored
+	 *         compressed.
+	 */
+	boolean isCompressed()
+	{
+		return compressed;
+	}
+
+	/**
+	 * Check that COMPRESSED may be used for this column. Only character and
+	 * binary columns of a new base table may be compressed, and the database
+	 * must have been upgraded to 10.15.
+	 *
+	 * @param 		dd		DataDictionary.
+	 * @param		tableType	base table or declared global temporary table.
+	 * @param		createTable	true if the column is part of CREATE TABLE,
+	 *						false for ALTER TABLE ADD COLUMN.
+	 *
+	 * @exception 	StandardException if the column may not be compressed
+	 */
+	void validateCompression(DataDictionary dd,
+							 int tableType,
+							 boolean createTable) throws StandardException
+	{
+		if (!compressed)
+			return;
+
+		dd.checkVersion(DataDictionary.DD_VERSION_DERBY_10_15, "COMPRESSED");
+
+		if (!createTable ||
+			tableType != TableDescriptor.BASE_TABLE_TYPE ||
+			!getType().getTypeId().isConcatableTypeId())
+		{
+			throw StandardException.newException(
+				SQLState.LANG_COMPRESSED_COLUMN_NOT_ALLOWED, getColumnName());
+		}
+	}
+
 	/**
 	 * checks to see if autoincrementIncrement and autoincrementInitial
 	 * are within the bounds of the type whose min and max values are
@@ -24,9 +24,11 @@ package org.apache.derby.impl.sql.compile;
 
 import java.sql.SQLWarning;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.apache.derby.catalog.UUID;
 import org.apache.derby.shared.common.error.ExceptionSeverity;
 import org.apache.derby.shared.common.error.StandardException;
@@ -140,9 +142,12 @@ public class CompilerContextImpl extends ContextImpl
 		savedObjects = null;
 		reliability = CompilerContext.SQL_LEGAL;
 		returnParameterFlag = false;
+		parameterSensitiveFlag = false;
 		initRequiredPriv();
 		defaultSchemaStack = null;
         referencedSequences = null;
+        cardinalityCorrections = null;
+        cardinalityFeedback = null;
         privilegeCheckFilters =  null;
         namedScopes = null;
         skippingTypePrivileges = false;
@@ -590,6 +595,22 @@ public class CompilerContextImpl extends ContextImpl
 		return returnParameterFlag;
 	}
 
+	/**
+	 * @see CompilerContext#setParameterSensitiveFlag
+	 */
+	public void setParameterSensitiveFlag()
+	{
+		parameterSensitiveFlag = true;
+	}
+
+	/**
+	 * @see CompilerContext#getParameterSensitiveFlag
+	 */
+	public boolean getParameterSensitiveFlag()
+	{
+		return parameterSensitiveFlag;
+	}
+
 	/**
      * Get an array of type descriptors for all the ? parameters.
 	 */
@@ -961,6 +982,46 @@ public class CompilerContextImpl extends ContextImpl
 		return list;
 	} // end of getRequiredPermissionsList
 
+	/** @see CompilerContext#setCardinalityCorrections */
+	public void setCardinalityCorrections(Map<Integer,Double> corrections)
+	{
+		cardinalityCorrections = corrections;
+	}
+
+	/** @see CompilerContext#getCardinalityCorrection */
+	public double getCardinalityCorrection(int tableNumber)
+	{
+		Double correction = (cardinalityCorrections == null) ?
+			null : cardinalityCorrections.get(tableNumber);
+		return (correction == null) ? 1.0d : correction.doubleValue();
+	}
+
+	/** @see CompilerContext#addCardinalityFeedback */
+	public void addCardinalityFeedback(int resultSetNumber, int tableNumber)
+	{
+		if (cardinalityFeedback == null)
+		{
+			cardinalityFeedback = new HashMap<Integer,Integer>();
+		}
+		cardinalityFeedback.put(tableNumber, resultSetNumber);
+	}
+
+	/** @see CompilerContext#getCardinalityFeedback */
+	public int[] getCardinalityFeedback()
+	{
+		if (cardinalityFeedback == null)
+			return null;
+
+		int[] tables = new int[getNumResultSets()];
+		Arrays.fill(tables, -1);
+		for (Map.Entry<Integer,Integer> e : cardinalityFeedback.entrySet())
+		{
+			if (e.getValue() < tables.length)
+				tables[e.getValue()] = e.getKey();
+		}
+		return tables;
+	}
+
 	public void addReferencedSequence( SequenceDescriptor sd )
     {
         if ( referencedSequences == null ) { referencedSequences = new HashMap<UUID,SequenceDescriptor>(); }
@@ -1093,6 +1154,7 @@ public class CompilerContextImpl extends ContextImpl
 
 	private ProviderList		currentAPL;
 	private boolean returnParameterFlag;
+	private boolean parameterSensitiveFlag;
 
     /**
      * Map that contains all store cost controllers opened in this compiler
@@ -1120,5 +1182,8 @@ public class CompilerContextImpl extends ContextImpl
 	private HashMap<UUID,String> requiredUsagePrivileges;
 	private HashMap<StatementRolePermission,StatementRolePermission> requiredRolePrivileges;
     private HashMap<UUID,SequenceDescriptor> referencedSequences;
+	private Map<Integer,Double> cardinalityCorrections;
+	/* result set numbers, by table number */
+	private HashMap<Integer,Integer> cardinalityFeedback;
     
 } // end of class CompilerContextImpl
@@ -33,6 +33,7 @@ import org.apache.derby.iapi.services.property.PropertyUtil;
 import org.apache.derby.iapi.sql.compile.Visitor;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.sql.dictionary.ColumnDescriptor;
+import org.apache.derby.iapi.sql.dictionary.DataDictionary;
 import org.apache.derby.iapi.sql.dictionary.SchemaDescriptor;
 import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
 import org.apache.derby.iapi.sql.execute.ConstantAction;
@@ -52,6 +53,7 @@ class CreateIndexNode extends DDLStatementNode
     private TableName           indexName;
     private TableName           tableName;
     private List<String>        columnNameList;
+    private List<String>        includeColumnNameList;
     private String[]            columnNames;
     private boolean[]           isAscending;
     private int[]               boundColumnIDs;
@@ -66,6 +68,9 @@ class CreateIndexNode extends DDLStatementNode
 	 * @param tableName	The name of the table the index will be on
 	 * @param columnNameList	A list of column names, in the order they
 	 *							appear in the index.
+	 * @param includeColumnNameList	A list of the names of the columns which
+	 *							are stored in the index without being part
+	 *							of its key.
 	 * @param properties	The optional properties list associated with the index.
      * @param cm Context manager
 	 *
@@ -76,6 +81,7 @@ class CreateIndexNode extends DDLStatementNode
                     TableName indexName,
                     TableName tableName,
                     List<String> columnNameList,
+                    List<String> includeColumnNameList,
                     Properties properties,
                     ContextManager cm) throws StandardException
 	{
@@ -85,6 +91,7 @@ class CreateIndexNode extends DDLStatementNode
         this.indexName = indexName;
         this.tableName = tableName;
         this.columnNameList = columnNameList;
+        this.includeColumnNameList = includeColumnNameList;
         this.properties = properties;
 	}
 
@@ -154,6 +161,15 @@ class CreateIndexNode extends DDLStatementNode
 		/* Validate the column name list */
 		verifyAndGetUniqueNames();
 
+		/* Older versions do not know that INCLUDE columns are not part of
+		 * the key of the index.
+		 */
+		if (!includeColumnNameList.isEmpty())
+		{
+			getDataDictionary().checkVersion(
+				DataDictionary.DD_VERSION_DERBY_10_15, "INCLUDE");
+		}
+
 		columnCount = columnNames.length;
 		boundColumnIDs = new int[ columnCount ];
 
@@ -181,7 +197,7 @@ class CreateIndexNode extends DDLStatementNode
 		}
 
 		/* Check for number of key columns to be less than 16 to match DB2 */
-		if (columnCount > 16)
+		if (columnNameList.size() > 16)
 			throw StandardException.newException(SQLState.LANG_TOO_MANY_INDEX_KEY_COLS);
 
 		/* See if the index already exists in this schema.
@@ -283,6 +299,7 @@ class CreateIndexNode extends DDLStatementNode
                     td.getUUID(),
                     columnNames,
                     isAscending,
+                    columnNameList.size(),
                     false,
                     null,
                     properties);
@@ -290,6 +307,7 @@ class CreateIndexNode extends DDLStatementNode
 
 	/**
 	 * Check the uniqueness of the column names within the derived column list.
+	 * The INCLUDE columns are added after the key columns.
 	 *
 	 * @exception StandardException	Thrown if column list contains a
 	 *											duplicate name.
@@ -297,7 +315,8 @@ class CreateIndexNode extends DDLStatementNode
 	private void verifyAndGetUniqueNames()
 				throws StandardException
 	{
-		int size = columnNameList.size();
+		int keySize = columnNameList.size();
+		int size = keySize + includeColumnNameList.size();
         HashSet<String> seenNames = new HashSet<String>(size + 2, 0.999f);
 		columnNames = new String[size];
 		isAscending = new boolean[size];
@@ -307,8 +326,13 @@ class CreateIndexNode extends DDLStatementNode
 			/* Verify that this column's name is unique within the list
 			 * Having a space at the end meaning descending on the column
 			 */
-            columnNames[index] = columnNameList.get(index);
-			if (columnNames[index].endsWith(" "))
+			if (index < keySize)
+				columnNames[index] = columnNameList.get(index);
+			else
+				columnNames[index] =
+					includeColumnNameList.get(index - keySize);
+
+			if (index < keySize && columnNames[index].endsWith(" "))
 			{
 				columnNames[index] = columnNames[index].substring(0, columnNames[index].length() - 1);
 				isAscending[index] = false;
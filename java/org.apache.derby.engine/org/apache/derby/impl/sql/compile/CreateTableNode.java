@@ -38,6 +38,7 @@ import org.apache.derby.iapi.sql.dictionary.DataDictionary;
 import org.apache.derby.iapi.sql.dictionary.SchemaDescriptor;
 import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
 import org.apache.derby.iapi.sql.execute.ConstantAction;
+import org.apache.derby.iapi.store.raw.RawStoreFactory;
 import org.apache.derby.iapi.types.DataTypeDescriptor;
 import org.apache.derby.impl.sql.execute.ColumnInfo;
 import org.apache.derby.impl.sql.execute.CreateConstraintConstantAction;
@@ -553,6 +554,21 @@ class CreateTableNode extends DDLStatementNode
             }
         }
 
+        // the long values of COMPRESSED columns are deflated by the store.
+        // Only the heap remembers which columns they are: SYSCOLUMNS does
+        // not record COMPRESSED, so neither dblook nor anything else that
+        // recreates a table from the catalogs can reproduce it.
+        String compressedColumns = coldefs.getCompressedColumns();
+        if (compressedColumns != null)
+        {
+            if (properties == null)
+                properties = new Properties();
+
+            properties.put(
+                RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER,
+                compressedColumns);
+        }
+
 		return(
             getGenericConstantActionFactory().getCreateTableConstantAction(
                 sd.getSchemaName(),
@@ -100,6 +100,21 @@ abstract	class ExpressionClassBuilder implements ExpressionClassBuilderInterface
 	 */
 	ExpressionClassBuilder (String superClass, String className, CompilerContext cc ) 
 		throws StandardException
+	{
+		this(superClass, className, null, 0, cc);
+	}
+
+	/**
+	 * Build a class whose methods are interpreted, until statements using
+	 * the class have been executed the given number of times, if
+	 * interpreterClass is not null.
+	 *
+	 * @see JavaFactory#newInterpretedClassBuilder
+	 * @exception StandardException thrown on failure
+	 */
+	ExpressionClassBuilder (String superClass, String className,
+		String interpreterClass, int executions, CompilerContext cc)
+		throws StandardException
 	{
 		int modifiers = Modifier.PUBLIC | Modifier.FINAL;
 
@@ -109,9 +124,14 @@ abstract	class ExpressionClassBuilder implements ExpressionClassBuilderInterface
 		if ( className == null ) { className = myCompCtx.getUniqueClassName(); }
 
 		// start the class
-		cb = javaFac.newClassBuilder(myCompCtx.getClassFactory(),
-			getPackageName(), modifiers,
-			className, superClass);
+		if (interpreterClass == null)
+			cb = javaFac.newClassBuilder(myCompCtx.getClassFactory(),
+				getPackageName(), modifiers,
+				className, superClass);
+		else
+			cb = javaFac.newInterpretedClassBuilder(
+				myCompCtx.getClassFactory(), getPackageName(), modifiers,
+				className, superClass, interpreterClass, executions);
 
 		beginConstructor();
 	}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import org.apache.derby.catalog.IndexDescriptor;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derby.shared.common.reference.SQLState;
@@ -112,6 +113,12 @@ class FromBaseTable extends FromTable
      */
     private boolean hasCheckedIndexStats;
 
+    /**
+     * Whether or not the optimizer uses statistics for this table, and with
+     * them the histograms of its columns. Set when the cost is estimated.
+     */
+    private boolean useHistograms;
+
 	TableName		tableName;
 	TableDescriptor	tableDescriptor;
 
@@ -169,6 +176,16 @@ class FromBaseTable extends FromTable
 	// true if we are to do a distinct scan
 	private boolean distinctScan;
 
+	// number of leading index columns that a skip scan steps over, or 0
+	// if this is not a skip scan
+	private int skipScanColumns;
+
+	/* Rough cost of repositioning a skip scan, measured in rows that could
+	 * have been read from the leaf level instead. Each reposition searches
+	 * the index from the root.
+	 */
+	private static final double SKIP_SCAN_PROBE_ROWS = 10.0;
+
 	/**
 	 *Information for dependent table scan for Referential Actions
 	 */
@@ -968,6 +985,8 @@ class FromBaseTable extends FromTable
 		 */
 		PredicateList unknownPredicateList = null;
 
+		useHistograms = optimizer.useStatistics();
+
 		if (optimizer.useStatistics() && predList != null)
 		{
 			/* if user has specified that we don't use statistics,
@@ -1248,6 +1267,18 @@ class FromBaseTable extends FromTable
 
 					boolean knownConstant =
 						pred.compareWithKnownConstant(this, true);
+
+					/* With statistics for the index, the rows selected by
+					 * a known constant are estimated from its value. Those
+					 * selected by a parameter are not, so the plan might
+					 * not suit every value of the parameter.
+					 */
+					if (statisticsForConglomerate && !knownConstant &&
+						((Predicate) pred).compareWithParameter(this))
+					{
+						getCompilerContext().setParameterSensitiveFlag();
+					}
+
 					if (startKey)
 					{
 						if (knownConstant && ( ! startGap ) )
@@ -2048,6 +2079,20 @@ class FromBaseTable extends FromTable
 			}
 		}
 
+		/*
+		** Correct the row count by what earlier executions of the statement
+		** saw, when the estimate turned out to be way off.
+		*/
+		double cardinalityCorrection =
+			getCompilerContext().getCardinalityCorrection(tableNumber);
+		if (cardinalityCorrection != 1.0d && !existsBaseTable)
+		{
+            costEst.setCost(costEst.getEstimatedCost(),
+                            costEst.rowCount() * cardinalityCorrection,
+                            costEst.singleScanRowCount() *
+                                cardinalityCorrection);
+		}
+
 		/* Put the base predicates back in the predicate list */
 		currentJoinStrategy.putBasePredicates(predList,
 									   baseTableRestrictionList);
@@ -3467,6 +3512,16 @@ class FromBaseTable extends FromTable
 			return;
 		}
 
+		/*
+		** If we are skipping from one group of index rows
+		** to the next, generate it separately.
+		*/
+		if (skipScanColumns > 0)
+		{
+			generateSkipScan(acb, mb);
+			return;
+		}
+
 		/*
 		** If we are doing a special distinct scan, generate
 		** it separately.
@@ -3713,6 +3768,32 @@ class FromBaseTable extends FromTable
 	}
 
 
+	/**
+	 * Generate a skip scan. It takes the same arguments as a table scan,
+	 * plus the number of leading index columns that it skips over.
+	 */
+	private void generateSkipScan
+	(
+		ExpressionClassBuilder	acb,
+		MethodBuilder mb
+	) throws StandardException
+	{
+		acb.pushGetResultSetFactoryExpression(mb);
+
+		int nargs = getScanArguments(acb, mb);
+
+		if (SanityManager.DEBUG)
+		{
+			SanityManager.ASSERT(nargs == 24,
+				"unexpected number of table scan arguments: " + nargs);
+		}
+
+		mb.push(skipScanColumns);
+
+		mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null,
+			"getSkipScanResultSet", ClassName.NoPutResultSet, nargs + 1);
+	}
+
 	/**
 	 * Generation on a FromBaseTable for a referential action dependent table.
 	 *
@@ -4510,12 +4591,118 @@ class FromBaseTable extends FromTable
 	}
 
 	/**
-	 * Mark the underlying scan as a distinct scan.
+	 * Mark the underlying scan as a distinct scan. A skip scan is used
+	 * instead if the distinct columns are the leading columns of the
+	 * chosen index and the statistics say that they have few values.
+	 *
+	 * @exception StandardException		Thrown on error
 	 */
     @Override
-	void markForDistinctScan()
+	void markForDistinctScan() throws StandardException
 	{
-		distinctScan = true;
+		if (! markForSkipScan(getResultColumns().size(), 0, true))
+		{
+			distinctScan = true;
+		}
+	}
+
+	/**
+	 * Mark the underlying scan as a skip scan if that is possible and
+	 * cheaper than reading every row of the index. A skip scan returns
+	 * only the first index row for each distinct value of the leading
+	 * prefixColumns index columns, and then repositions the scan past
+	 * all the other rows with that value. It is possible iff:
+	 *	o  The access path is a covering index with no predicates.
+	 *	o  The first prefixColumns index columns are referenced.
+	 *	o  The only other column referenced, if any, is firstRowColumn,
+	 *	   and it is the next column of the index with the given ordering.
+	 * The first row for each prefix then has the smallest (ascending) or
+	 * largest (descending, NOT NULL) value of firstRowColumn.
+	 *
+	 * @param prefixColumns	Number of leading index columns in a group
+	 * @param firstRowColumn	1-based base column number of the column
+	 *							read from the first row of each group, or 0
+	 * @param ascending	Whether firstRowColumn must be ascending in the index
+	 *
+	 * @return Whether or not the scan was marked as a skip scan.
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	boolean markForSkipScan(int prefixColumns, int firstRowColumn,
+							boolean ascending)
+		throws StandardException
+	{
+		AccessPath ap = getTrulyTheBestAccessPath();
+		ConglomerateDescriptor cd = ap.getConglomerateDescriptor();
+
+		if (specialMaxScan || multiProbing || prefixColumns < 1 ||
+			cd == null || ! cd.isIndex() || ! ap.getCoveringIndexScan() ||
+			isCursorTargetTable() || forUpdate() ||
+			ap.getJoinStrategy().isHashJoin() ||
+			(restrictionList != null && restrictionList.size() != 0) ||
+			referencedCols == null)
+		{
+			return false;
+		}
+
+		IndexDescriptor id = cd.getIndexDescriptor();
+		int[] baseCols = id.baseColumnPositions();
+		int orderedCols = id.numberOfOrderedColumns();
+		int scanCols = (firstRowColumn == 0) ? prefixColumns : prefixColumns + 1;
+
+		if (scanCols > orderedCols)
+		{
+			return false;
+		}
+		if (firstRowColumn != 0 &&
+			(baseCols[prefixColumns] != firstRowColumn ||
+			 id.isAscending()[prefixColumns] != ascending))
+		{
+			return false;
+		}
+
+		/* NULLs sort high, so they come first in a descending column. The
+		 * first row of a group would then hold NULL instead of the largest
+		 * value, unless the column cannot be NULL.
+		 */
+		if (firstRowColumn != 0 && ! ascending &&
+			tableDescriptor.getColumnDescriptor(firstRowColumn).
+				getType().isNullable())
+		{
+			return false;
+		}
+
+		// The prefix must be read, and nothing after the first row column.
+		for (int i = 0; i < prefixColumns; i++)
+		{
+			if (! referencedCols.get(i))
+				return false;
+		}
+		if (referencedCols.anySetBit(scanCols - 1) != -1)
+		{
+			return false;
+		}
+
+		/* Only skip if the statistics say there are far fewer groups than
+		 * rows. Without statistics we have no idea, so read every row.
+		 */
+		if (! tableDescriptor.statisticsExist(cd))
+		{
+			return false;
+		}
+
+		double rows = baseRowCount();
+		double groups =
+			1 / tableDescriptor.selectivityForConglomerate(cd, prefixColumns);
+
+		if (groups * SKIP_SCAN_PROBE_ROWS >= rows)
+		{
+			return false;
+		}
+
+		disableBulkFetch();
+		skipScanColumns = prefixColumns;
+		return true;
 	}
 
 
@@ -4976,6 +5163,23 @@ class FromBaseTable extends FromTable
         }
 	}
 
+    /**
+     * Returns the histogram of the values of a column of this table, if the
+     * optimizer uses statistics and there is one.
+     *
+     * @param cr a reference to the column, which may be to another table
+     * @return the histogram, or {@code null} if there is none
+     * @throws StandardException if reading the statistics fails
+     */
+    ColumnHistogram getColumnHistogram(ColumnReference cr)
+            throws StandardException {
+        if (!useHistograms || cr.getTableNumber() != tableNumber ||
+                cr.getSource() == null) {
+            return null;
+        }
+        return tableDescriptor.getHistogram(cr.getSource().getColumnPosition());
+    }
+
     /**
      * Tells if the given table qualifies for a statistics update check in the
      * current configuration.
@@ -1300,6 +1300,69 @@ class GroupByNode extends SingleChildResultSetNode
 		}
 	}
 
+	/**
+	 * Consider reading the source of a grouped aggregate with a skip scan,
+	 * which returns only the first index row of each group. This gives the
+	 * right answer iff:
+	 *	o  The source is a single table, ordered on the grouping columns.
+	 *	o  No ROLLUP and no distinct aggregates.
+	 *	o  All aggregates are min/max of the same ColumnReference, and the
+	 *	   first row of each group holds the wanted value. (Checked by
+	 *	   FromBaseTable.markForSkipScan().)
+	 * The caller must make sure that the SELECT has no restriction, since
+	 * a restriction evaluated above the scan could reject the one row
+	 * read for a group.
+	 *
+	 * @exception StandardException	on error
+	 */
+	void considerSkipScan() throws StandardException
+	{
+		if (groupingList == null || groupingList.isRollup() ||
+			addDistinctAggregate)
+		{
+			return;
+		}
+
+		int firstRowColumn = 0;
+		boolean isMax = false;
+		for (AggregateNode an : aggregates)
+		{
+			AggregateDefinition ad = an.getAggregateDefinition();
+			if (! (ad instanceof MaxMinAggregateDefinition) ||
+				! (an.getOperand() instanceof ColumnReference))
+			{
+				return;
+			}
+
+			int colNum = ((ColumnReference) an.getOperand()).getColumnNumber();
+			boolean max = ((MaxMinAggregateDefinition) ad).isMax();
+			if (firstRowColumn != 0 &&
+				(colNum != firstRowColumn || max != isMax))
+			{
+				return;
+			}
+			firstRowColumn = colNum;
+			isMax = max;
+		}
+
+		ColumnReference[] crs = new ColumnReference[groupingList.size()];
+		for (int index = 0; index < crs.length; index++)
+		{
+			GroupByColumn gc = groupingList.elementAt(index);
+			if (! (gc.getColumnExpression() instanceof ColumnReference))
+			{
+				return;
+			}
+			crs[index] = (ColumnReference) gc.getColumnExpression();
+		}
+
+		ArrayList<FromBaseTable> fbtHolder = new ArrayList<FromBaseTable>(1);
+		if (isOrderedOn(crs, true, fbtHolder) && fbtHolder.size() == 1)
+		{
+			fbtHolder.get(0).markForSkipScan(crs.length, firstRowColumn, !isMax);
+		}
+	}
+
 	/**
 	 * Comparator class for GROUP BY expression substitution.
 	 *
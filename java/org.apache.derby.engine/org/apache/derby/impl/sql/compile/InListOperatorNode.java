@@ -22,6 +22,7 @@
 package	org.apache.derby.impl.sql.compile;
 
 import java.lang.reflect.Modifier;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derby.iapi.services.classfile.VMOpcode;
@@ -495,9 +496,71 @@ public final class InListOperatorNode extends BinaryListOperatorNode
 	 */
     @Override
 	public double selectivity(Optimizable optTable)
+		throws StandardException
 	{
+		double retval = histogramSelectivity(optTable);
+
+		if (retval >= 0.0d)
+			return retval;
+
 		return 0.3d;
 	}
+
+	/**
+	 * Return the selectivity of this IN list from the histogram of the
+	 * column, which is the sum of the selectivities of the values, if the
+	 * values are all constants and the optimizer has a histogram of the
+	 * column. If some of the values are parameters and the others are
+	 * constants, the plan is marked as sensitive to the values of the
+	 * parameters.
+	 *
+	 * @param optTable	The table being optimized
+	 *
+	 * @return	The selectivity, or -1 if there is no histogram to use
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	double histogramSelectivity(Optimizable optTable)
+		throws StandardException
+	{
+		ColumnHistogram histogram = getColumnHistogram(optTable, leftOperand);
+		if (histogram == null)
+			return -1.0d;
+
+		double selectivity = 0.0d;
+		boolean parameters = false;
+		try
+		{
+			for (ValueNode vn : rightOperandList)
+			{
+				if (vn.requiresTypeFromContext())
+				{
+					parameters = true;
+					continue;
+				}
+				DataValueDescriptor value = getHistogramValue(vn);
+				if (value == null)
+					return -1.0d;
+				selectivity += histogram.equalsSelectivity(value);
+			}
+		}
+		catch (StandardException se)
+		{
+			// The values cannot be compared with the values in the
+			// histogram without a conversion; use the default estimate.
+			return -1.0d;
+		}
+
+		if (parameters)
+		{
+			// The histogram would have estimated the selectivity of
+			// constants in place of the parameters.
+			getCompilerContext().setParameterSensitiveFlag();
+			return -1.0d;
+		}
+
+		return Math.min(selectivity, 1.0d);
+	}
  
 	/**
 	 * Do code generation for this IN list operator.
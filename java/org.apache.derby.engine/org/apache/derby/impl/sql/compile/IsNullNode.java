@@ -22,6 +22,7 @@
 package	org.apache.derby.impl.sql.compile;
 
 import java.sql.Types;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derby.iapi.services.compiler.MethodBuilder;
@@ -176,6 +177,12 @@ public final class IsNullNode extends UnaryComparisonOperatorNode
 		return true;
 	}
 
+	/** @see RelationalOperator#compareWithParameter */
+	public boolean compareWithParameter(Optimizable optTable)
+	{
+		return false;
+	}
+
 	/**
 	 * @see RelationalOperator#getCompareValue
 	 *
@@ -241,7 +248,14 @@ public final class IsNullNode extends UnaryComparisonOperatorNode
 
     @Override
 	public double selectivity(Optimizable optTable) 
+		throws StandardException
 	{
+        ColumnHistogram histogram = getColumnHistogram(optTable, operand);
+        if (histogram != null) {
+            return notNull ? histogram.notNullSelectivity()
+                           : histogram.nullSelectivity();
+        }
+
         if (notNull) {
             /* IS NOT NULL is like <>, so should have same selectivity */
 			return 0.9d;
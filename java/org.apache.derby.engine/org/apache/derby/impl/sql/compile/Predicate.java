@@ -172,6 +172,18 @@ public final class Predicate extends QueryTreeNode implements OptimizablePredica
 		return retval;
 	}
 
+	/**
+	 * Return whether this predicate compares a column of the given
+	 * Optimizable with a parameter.
+	 */
+	boolean compareWithParameter(Optimizable optTable)
+	{
+		if (!isRelationalOpPredicate())
+			return false;
+
+		return getRelop().compareWithParameter(optTable);
+	}
+
 	public int hasEqualOnColumnList(int[] baseColumnPositions,
 										Optimizable optTable)
 		throws StandardException
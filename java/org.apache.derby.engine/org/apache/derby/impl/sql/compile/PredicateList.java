@@ -23,7 +23,10 @@ package	org.apache.derby.impl.sql.compile;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import org.apache.derby.catalog.types.StatisticsImpl;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derby.iapi.services.classfile.VMOpcode;
@@ -40,6 +43,7 @@ import org.apache.derby.iapi.sql.compile.OptimizablePredicateList;
 import org.apache.derby.iapi.sql.compile.RequiredRowOrdering;
 import org.apache.derby.iapi.sql.compile.RowOrdering;
 import org.apache.derby.iapi.sql.dictionary.ConglomerateDescriptor;
+import org.apache.derby.iapi.sql.dictionary.StatisticsDescriptor;
 import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
 import org.apache.derby.iapi.sql.execute.ExecutionFactory;
 import org.apache.derby.iapi.store.access.ScanController;
@@ -3667,9 +3671,6 @@ class PredicateList extends QueryTreeNodeVector<Predicate>
 		int numPredicates = size();
 		int numConglomerates = conglomerates.length;
 
-		if (numConglomerates == 1)
-			return -1.0d; // one conglomerate; must be heap.
-
 		if (numPredicates == 0)
 			return -1.0d;		// no predicates why bother?
 
@@ -3691,6 +3692,29 @@ class PredicateList extends QueryTreeNodeVector<Predicate>
             workingPredicates.addOptPredicate(elementAt(i));
 		}
 
+		/* Column groups with statistics come first: their columns tend to
+		 * depend on each other, so the selectivity of equality predicates
+		 * on all the columns of a group is that of the group, not the
+		 * product of the selectivities of the columns.
+		 */
+		double selectivity = 1.0;
+		double groupSelectivity =
+			workingPredicates.columnGroupSelectivity(optTable, td);
+		if (groupSelectivity >= 0.0d)
+		{
+			selectivity = groupSelectivity;
+			nothingYet = false;
+		}
+
+		if (numConglomerates == 1 || workingPredicates.size() == 0)
+		{
+			// one conglomerate; must be heap.
+			if (nothingYet)
+				return -1.0d;
+			return selectivity *
+				workingPredicates.selectivityNoStatistics(optTable);
+		}
+
 		int numWorkingPredicates = workingPredicates.size();
 
 		/*--------------------------------------------------------------------
@@ -3789,8 +3813,6 @@ class PredicateList extends QueryTreeNodeVector<Predicate>
 		 * loop until we can't find any more statistics or we have exhausted all
 		 * the predicates for which we are trying to find statistics.
 		 *--------------------------------------------------------------------*/
-		double selectivity = 1.0;
-
 		ArrayList<Predicate> maxPreds = new ArrayList<Predicate>();
 
 		while (true)
@@ -3802,9 +3824,32 @@ class PredicateList extends QueryTreeNodeVector<Predicate>
 			if (conglomIndex == -1)
 				break;			// no more stats available.
 
-			selectivity *=
+			double conglomSelectivity =
 				td.selectivityForConglomerate(conglomerates[conglomIndex], maxPreds.size());
 
+			/* The statistics give the average selectivity of the values. If
+			 * the first column is compared with a constant, and there is a
+			 * histogram of it, scale the selectivity by how common that
+			 * constant is compared to the average.
+			 */
+			ValueNode firstRelop =
+				maxPreds.get(0).getAndNode().getLeftOperand();
+			if (firstRelop instanceof BinaryRelationalOperatorNode)
+			{
+				double histogramSelectivity =
+					((BinaryRelationalOperatorNode) firstRelop).
+						histogramSelectivity(optTable);
+				if (histogramSelectivity >= 0.0d)
+				{
+					conglomSelectivity = Math.min(1.0d,
+						conglomSelectivity * histogramSelectivity /
+						td.selectivityForConglomerate(
+							conglomerates[conglomIndex], 1));
+				}
+			}
+
+			selectivity *= conglomSelectivity;
+
 			for (int i = 0; i < maxPreds.size(); i++)
 			{
 				/* remove the predicates that we've calculated the selectivity
@@ -3826,6 +3871,74 @@ class PredicateList extends QueryTreeNodeVector<Predicate>
 		return selectivity;
 	}
 	
+	/**
+	 * Figure the selectivity of the equality predicates on the columns of
+	 * the column groups of the table with statistics, and remove the
+	 * predicates used from this list. Larger groups are tried first, and
+	 * a group is only used if there is an equality predicate on each of
+	 * its columns.
+	 *
+	 * @param optTable	The table the predicates are on
+	 * @param td		The descriptor of the table
+	 *
+	 * @return	The selectivity of the predicates used, or -1 if no group
+	 *			could be used
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	private double columnGroupSelectivity(Optimizable optTable,
+										  TableDescriptor td)
+		throws StandardException
+	{
+		List<StatisticsDescriptor> groups =
+			new ArrayList<StatisticsDescriptor>(td.getColumnGroupStatistics());
+		if (groups.isEmpty())
+			return -1.0d;
+
+		Collections.sort(groups, new Comparator<StatisticsDescriptor>() {
+			public int compare(StatisticsDescriptor a, StatisticsDescriptor b)
+			{
+				return b.getColumnCount() - a.getColumnCount();
+			}
+		});
+
+		double selectivity = -1.0d;
+		for (StatisticsDescriptor statDesc : groups)
+		{
+			if (!(statDesc.getStatistic() instanceof StatisticsImpl))
+				continue;
+
+			int[] columns =
+				((StatisticsImpl) statDesc.getStatistic()).getColumnGroup();
+			if (columns == null || columns.length > size())
+				continue;
+
+			Predicate[] matched = new Predicate[columns.length];
+			int numMatched = 0;
+			for (int i = 0; i < size(); i++)
+			{
+				Predicate pred = elementAt(i);
+				int ip = pred.hasEqualOnColumnList(columns, optTable);
+				if (ip >= 0 && matched[ip] == null)
+				{
+					matched[ip] = pred;
+					numMatched++;
+				}
+			}
+
+			if (numMatched < columns.length)
+				continue;
+
+			if (selectivity < 0.0d)
+				selectivity = 1.0d;
+			selectivity *= statDesc.getStatistic().selectivity((Object[]) null);
+			for (int i = 0; i < matched.length; i++)
+				removeOptPredicate(matched[i]);
+		}
+
+		return selectivity;
+	}
+
 	/* assign a weight to each predicate-- the maximum weight that a predicate
 	 * can have is numUsefulPredicates. If a predicate corresponds to the first
 	 * index position then its weight is numUsefulPredicates. The weight of a
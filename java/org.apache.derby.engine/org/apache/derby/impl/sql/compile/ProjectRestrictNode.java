@@ -1336,6 +1336,49 @@ class ProjectRestrictNode extends SingleChildResultSetNode
 		generateMinion( acb, mb, true);
 	}
 
+	/**
+	 * If the child of this node is a base table, whose rows are estimated
+	 * for a single scan of the table, record that the rows of the given
+	 * result set are the rows of the table after all its restrictions. This
+	 * lets execution compare the estimate with the row count. Nested
+	 * ProjectRestrictNodes all record the same table, and the outermost,
+	 * generated last, wins.
+	 *
+	 * @param resultSetNumber	The result set returning the rows of the table
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	private void addCardinalityFeedback(int resultSetNumber)
+		throws StandardException
+	{
+		ResultSetNode child = childResult;
+		while (child instanceof ProjectRestrictNode)
+		{
+			child = ((ProjectRestrictNode) child).childResult;
+		}
+		if (child instanceof IndexToBaseRowNode)
+		{
+			child = ((IndexToBaseRowNode) child).source;
+		}
+		if (!(child instanceof FromBaseTable))
+		{
+			return;
+		}
+
+		/* The estimate of a table in the inner of a join also counts the
+		 * scans for the outer rows, and so their misestimates.
+		 */
+		FromBaseTable fbt = (FromBaseTable) child;
+		CostEstimate ce = fbt.getTrulyTheBestAccessPath().getCostEstimate();
+		if (ce == null || ce.rowCount() != ce.singleScanRowCount())
+		{
+			return;
+		}
+
+		getCompilerContext().addCardinalityFeedback(
+			resultSetNumber, fbt.getTableNumber());
+	}
+
 	/**
 	 * Logic shared by generate() and generateResultSet().
 	 *
@@ -1366,6 +1409,7 @@ class ProjectRestrictNode extends SingleChildResultSetNode
 			else
 				childResult.generate((ActivationClassBuilder)acb, mb);
 			setCostEstimate( childResult.getFinalCostEstimate() );
+			addCardinalityFeedback(childResult.getResultSetNumber());
 			return;
 		}
 
@@ -1467,6 +1511,7 @@ class ProjectRestrictNode extends SingleChildResultSetNode
 		 * ResultColumnList and ResultSet.
 		 */
 		assignResultSetNumber();
+		addCardinalityFeedback(getResultSetNumber());
 		
 		/* Set the point of attachment in all subqueries attached
 		 * to this node.
@@ -1818,9 +1863,11 @@ class ProjectRestrictNode extends SingleChildResultSetNode
 
 	/**
 	 * Mark the underlying scan as a distinct scan.
+	 *
+	 * @exception StandardException		Thrown on error
 	 */
     @Override
-	void markForDistinctScan()
+	void markForDistinctScan() throws StandardException
 	{
 		childResult.markForDistinctScan();
 	}
@@ -339,6 +339,12 @@ interface RelationalOperator
     boolean compareWithKnownConstant(
         Optimizable optTable, boolean considerParameters);
 
+	/**
+	 * Return whether this operator compares the given Optimizable with
+	 * a parameter.
+	 */
+    boolean compareWithParameter(Optimizable optTable);
+
 	/**
 	 * Return an Object representing the known value that this relational
 	 * operator is comparing to a column in the given Optimizable.
@@ -1771,8 +1771,10 @@ public abstract class ResultSetNode extends QueryTreeNode
 
 	/**
 	 * Mark the underlying scan as a distinct scan.
+	 *
+	 * @exception StandardException		Thrown on error
 	 */
-	void markForDistinctScan()
+	void markForDistinctScan() throws StandardException
 	{
 		if (SanityManager.DEBUG)
 		{
@@ -1538,6 +1538,10 @@ class SelectNode extends ResultSetNode
                     nestingLevel,
                     getContextManager());
 			gbn.considerPostOptimizeOptimizations(originalWhereClause != null);
+			if (origFromListSize == 1 && originalWhereClause == null)
+			{
+				gbn.considerSkipScan();
+			}
 			gbn.assignCostEstimate(getOptimizer().getOptimizedCost());
 
 			groupByList = null;
@@ -298,7 +298,24 @@ public abstract class StatementNode extends QueryTreeNode
 					String.valueOf(nodeChoice));
 		}
 
-		ActivationClassBuilder generatingClass = new ActivationClassBuilder(
+		// Interpret the activation class until the statement has been
+		// executed often enough to be worth generating it, unless the
+		// byte code is needed now.
+		int executions = (byteCode == null) ?
+			getLanguageConnectionContext().getLanguageConnectionFactory().
+				getInterpretedExecutions() : 0;
+
+		ActivationClassBuilder generatingClass;
+		if (executions > 0)
+			generatingClass = new ActivationClassBuilder(
+										superClass,
+										superClass.equals(ClassName.CursorActivation) ?
+											ClassName.InterpretedCursorActivation :
+											ClassName.InterpretedActivation,
+										executions,
+										getCompilerContext());
+		else
+			generatingClass = new ActivationClassBuilder(
 										superClass, 
 										getCompilerContext());
 
@@ -521,6 +521,14 @@ class SubqueryNode extends ValueNode
 
 		if (subqueryType == EXISTS_SUBQUERY)
 		{
+			/* The SELECT list is thrown away below, so the columns it
+			 * references need not be fetched.  Remember which base table
+			 * columns were referenced before binding it, so that an index
+			 * covering the rest of the subquery can still be used.
+			 */
+			boolean[][] referencedBeforeTargetList =
+				getReferencedBaseColumns();
+
 			/* Bind the expression in the SELECT list */
 			resultSet.bindTargetExpressions(fromList);
 
@@ -537,6 +545,15 @@ class SubqueryNode extends ValueNode
 			 * EXISTS (select r from s ...)
 			 */
 			resultSet = resultSet.setResultToBooleanTrueNode(false);
+
+			/* Whatever is left of the SELECT list gets marked again when
+			 * the full expressions are bound below.
+			 */
+			if (referencedBeforeTargetList != null)
+			{
+				removeExistsColumnReferences();
+			}
+			resetReferencedBaseColumns(referencedBeforeTargetList);
 		}
 
 		/* bind the left operand, if there is one */
@@ -588,6 +605,116 @@ class SubqueryNode extends ValueNode
 		return this;
 	}
 
+	/**
+	 * Get which columns of the tables in the FROM list of the subquery are
+	 * marked as referenced.  Only a simple SELECT whose FROM list holds
+	 * nothing but base tables is handled, since binding anything else may
+	 * mark columns which are not marked again on a second bind.
+	 *
+	 * @return the referenced flags of the columns of each table in the
+	 *         FROM list, or null if the subquery is not handled
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	private boolean[][] getReferencedBaseColumns()
+		throws StandardException
+	{
+		if (!(resultSet instanceof SelectNode))
+		{
+			return null;
+		}
+
+		FromList subqueryFromList = resultSet.getFromList();
+		boolean[][] referenced = new boolean[subqueryFromList.size()][];
+
+		for (int i = 0; i < referenced.length; i++)
+		{
+			FromTable ft = (FromTable) subqueryFromList.elementAt(i);
+
+			if (!(ft instanceof FromBaseTable) ||
+				ft.getResultColumns() == null)
+			{
+				return null;
+			}
+
+			ResultColumnList rcl = ft.getResultColumns();
+			referenced[i] = new boolean[rcl.size()];
+			for (int col = 0; col < referenced[i].length; col++)
+			{
+				referenced[i][col] = rcl.elementAt(col).isReferenced();
+			}
+		}
+
+		return referenced;
+	}
+
+	/**
+	 * Remove the columns after the first from the SELECT list of an EXISTS
+	 * subquery, if they are all plain column references.  Their values are
+	 * never used and they can not change which rows the subquery returns,
+	 * unless the subquery has a GROUP BY, HAVING or ORDER BY clause, which
+	 * may refer to them.
+	 */
+	private void removeExistsColumnReferences()
+	{
+		SelectNode select = (SelectNode) resultSet;
+		ResultColumnList rcl = select.getResultColumns();
+
+		if (orderByList != null ||
+			select.groupByList != null ||
+			select.havingClause != null)
+		{
+			return;
+		}
+
+		for (int i = 1; i < rcl.size(); i++)
+		{
+			if (!(rcl.elementAt(i).getExpression() instanceof ColumnReference))
+			{
+				return;
+			}
+		}
+
+		for (int i = rcl.size() - 1; i > 0; i--)
+		{
+			rcl.removeElementAt(i);
+		}
+	}
+
+	/**
+	 * Unmark the columns of the tables in the FROM list of the subquery
+	 * which were not referenced when {@code getReferencedBaseColumns()}
+	 * was called.
+	 *
+	 * @param referenced	the value returned by
+	 *						{@code getReferencedBaseColumns()}, may be null
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	private void resetReferencedBaseColumns(boolean[][] referenced)
+		throws StandardException
+	{
+		if (referenced == null)
+		{
+			return;
+		}
+
+		FromList subqueryFromList = resultSet.getFromList();
+
+		for (int i = 0; i < referenced.length; i++)
+		{
+			ResultColumnList rcl =
+				((FromTable) subqueryFromList.elementAt(i)).getResultColumns();
+			for (int col = 0; col < referenced[i].length; col++)
+			{
+				if (!referenced[i][col])
+				{
+					rcl.elementAt(col).setUnreferenced();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Preprocess an expression tree.  We do a number of transformations
 	 * here (including subqueries, IN lists, LIKE and BETWEEN) plus
@@ -201,6 +201,8 @@ class TableElementList extends QueryTreeNodeVector<TableElementNode>
 				cdn.bindAndValidateDefault(dd, td);
 
 				cdn.validateAutoincrement(dd, td, tableType);
+				cdn.validateCompression(
+					dd, tableType, ddlStmt instanceof CreateTableNode);
 
 				if (tableElement instanceof ModifyColumnNode)
 				{
@@ -432,6 +434,37 @@ class TableElementList extends QueryTreeNodeVector<TableElementNode>
 		return numColumns;
 	}
 
+	/**
+	 * Get the columns which were declared COMPRESSED, as the value of the
+	 * derby.storage.compressedColumns property of the table's heap.
+	 *
+	 * @return	A comma separated list of the 0-based positions of the
+	 *			compressed columns, or null if there are none.
+	 */
+	String getCompressedColumns()
+	{
+		StringBuilder columns = null;
+		int position = 0;
+
+        for (TableElementNode tableElement : this)
+		{
+			if (!(tableElement instanceof ColumnDefinitionNode))
+				continue;
+
+			if (((ColumnDefinitionNode) tableElement).isCompressed())
+			{
+				if (columns == null)
+					columns = new StringBuilder();
+				else
+					columns.append(',');
+				columns.append(position);
+			}
+			position++;
+		}
+
+		return (columns == null) ? null : columns.toString();
+	}
+
 	/**
 	 * Fill in the ColumnInfo[] for this table element list.
 	 * 
@@ -1271,6 +1304,7 @@ class TableElementList extends QueryTreeNodeVector<TableElementNode>
                     ((td != null) ? td.getUUID() : (UUID) null),
                     columnNames,
                     isAscending,
+                    columnNames.length,
                     isConstraint,
                     cdn.getBackingIndexUUID(),
                     checkIndexPageSizeProperty(cdn));
@@ -22,6 +22,7 @@
 package	org.apache.derby.impl.sql.compile;
 
 import java.util.List;
+import org.apache.derby.catalog.types.ColumnHistogram;
 import org.apache.derby.shared.common.error.StandardException;
 import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.iapi.services.compiler.MethodBuilder;
@@ -31,6 +32,7 @@ import org.apache.derby.iapi.sql.compile.Optimizable;
 import org.apache.derby.iapi.sql.compile.TypeCompiler;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.types.DataTypeDescriptor;
+import org.apache.derby.iapi.types.DataValueDescriptor;
 import org.apache.derby.iapi.types.DataValueFactory;
 import org.apache.derby.iapi.types.StringDataValue;
 import org.apache.derby.iapi.types.TypeId;
@@ -908,6 +910,52 @@ public abstract class ValueNode extends QueryTreeNode
 		}
 	}
 
+	/**
+	 * Return the histogram of the column a predicate compares, if the
+	 * operand is a column of the base table being optimized and the
+	 * optimizer has a histogram of it.
+	 *
+	 * @param optTable	The table being optimized
+	 * @param operand	An operand of the predicate
+	 *
+	 * @return	The histogram, or null if there is none
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	static ColumnHistogram getColumnHistogram(Optimizable optTable,
+											  ValueNode operand)
+		throws StandardException
+	{
+		if (!(optTable instanceof FromBaseTable) ||
+			!(operand instanceof ColumnReference))
+		{
+			return null;
+		}
+		return ((FromBaseTable) optTable).getColumnHistogram(
+			(ColumnReference) operand);
+	}
+
+	/**
+	 * Return the value of an operand which is a constant other than NULL,
+	 * for looking it up in a histogram.
+	 *
+	 * @param operand	An operand of a predicate
+	 *
+	 * @return	The value, or null if the operand is not such a constant
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	static DataValueDescriptor getHistogramValue(ValueNode operand)
+		throws StandardException
+	{
+		if (!(operand instanceof ConstantNode))
+		{
+			return null;
+		}
+		DataValueDescriptor value = ((ConstantNode) operand).getValue();
+		return (value == null || value.isNull()) ? null : value;
+	}
+
 	/**
 	 * Update the array of columns in = conditions with expressions without
 	 * column references from the same table.  This is useful when doing
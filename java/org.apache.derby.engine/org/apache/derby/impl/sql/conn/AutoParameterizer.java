@@ -0,0 +1,417 @@
+/*
+
+   Derby - Class org.apache.derby.impl.sql.conn.AutoParameterizer
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.sql.conn;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.iapi.types.DataTypeDescriptor;
+import org.apache.derby.iapi.types.DataValueDescriptor;
+import org.apache.derby.iapi.types.SQLChar;
+import org.apache.derby.iapi.types.SQLDecimal;
+import org.apache.derby.iapi.types.SQLDouble;
+import org.apache.derby.iapi.types.SQLInteger;
+import org.apache.derby.iapi.types.SQLLongint;
+import org.apache.derby.iapi.types.TypeId;
+
+/**
+	Replaces the literals of a statement by parameters, so that statements
+	that only differ in their literals share one plan in the statement
+	cache. "SELECT * FROM T WHERE ID = 17" and "SELECT * FROM T WHERE
+	ID = 42" are both compiled as "SELECT * FROM T WHERE ID = ?", and
+	executed with the literal as the value of the parameter.
+	<P>
+	Only literals that are a whole operand of a comparison, or the value
+	of a column in the SET clause of an UPDATE, are replaced, and only
+	in SELECT, INSERT, UPDATE and DELETE statements. These are the
+	literals whose value does not change the plan: they are not LIKE
+	patterns, ORDER BY positions, row counts of FETCH FIRST, lengths of
+	data types, or part of an expression that is evaluated at compile
+	time. Statements that already have parameters are left alone.
+	<P>
+	The plan can still depend on the value of a literal compared with a
+	key column of an index that has statistics, since the optimizer
+	estimates the rows such a literal selects from its value. A statement
+	whose parameterized plan compares a parameter with such a column is
+	therefore compiled with its literals, so that skewed values get plans
+	of their own.
+	<P>
+	The type of a parameter is inferred when the statement is compiled,
+	and need not be the type of the literal. {@link #getValue} therefore
+	gives the value of a literal only if it converts to the type of its
+	parameter without loss, so that comparing with the parameter gives
+	the same result as comparing with the literal. Otherwise the
+	statement must be compiled with its literals.
+*/
+final class AutoParameterizer {
+
+	/** Token types. */
+	private static final int IDENTIFIER = 0;
+	private static final int NUMBER = 1;
+	private static final int STRING = 2;
+	private static final int OPERATOR = 3;
+
+	/** Maximum precision of an exact numeric literal. */
+	private static final int MAX_PRECISION = 31;
+
+	/** The statement text with its literals replaced by parameters. */
+	private final String text;
+
+	/** The literals replaced by parameters, in the order of the parameters. */
+	private final DataValueDescriptor[] literals;
+
+	private AutoParameterizer(String text, DataValueDescriptor[] literals)
+	{
+		this.text = text;
+		this.literals = literals;
+	}
+
+	/**
+		Replace the literals of a statement by parameters.
+
+		@param sqlText the text of the statement
+		@return the statement with its literals replaced, or null if the
+			statement has no literals that can be replaced
+	*/
+	static AutoParameterizer parameterize(String sqlText)
+	{
+		ArrayList<int[]> tokens = tokenize(sqlText);
+		if (tokens == null || tokens.isEmpty())
+			return null;
+
+		int[] first = tokens.get(0);
+		if (first[0] != IDENTIFIER)
+			return null;
+		String verb = sqlText.substring(first[1], first[2]);
+		if (!(verb.equalsIgnoreCase("SELECT") ||
+			  verb.equalsIgnoreCase("INSERT") ||
+			  verb.equalsIgnoreCase("UPDATE") ||
+			  verb.equalsIgnoreCase("DELETE")))
+			return null;
+
+		StringBuilder text = new StringBuilder(sqlText.length());
+		ArrayList<DataValueDescriptor> literals =
+			new ArrayList<DataValueDescriptor>();
+		int copied = 0;
+
+		for (int i = 1; i < tokens.size(); i++)
+		{
+			int[] token = tokens.get(i);
+
+			if (token[0] == OPERATOR &&
+				sqlText.charAt(token[1]) == '?')
+				return null;
+
+			if (token[0] != NUMBER && token[0] != STRING)
+				continue;
+			if (!isComparisonOperator(sqlText, tokens.get(i - 1)))
+				continue;
+			if (i + 1 < tokens.size() &&
+				!endsOperand(sqlText, tokens.get(i + 1)))
+				continue;
+
+			DataValueDescriptor literal = (token[0] == STRING)
+				? stringLiteral(sqlText, token[1], token[2])
+				: numericLiteral(sqlText.substring(token[1], token[2]));
+			if (literal == null)
+				continue;
+
+			text.append(sqlText, copied, token[1]).append('?');
+			copied = token[2];
+			literals.add(literal);
+		}
+
+		if (literals.isEmpty())
+			return null;
+
+		text.append(sqlText, copied, sqlText.length());
+		return new AutoParameterizer(text.toString(),
+			literals.toArray(new DataValueDescriptor[literals.size()]));
+	}
+
+	/** Return the statement text with its literals replaced. */
+	String getText()
+	{
+		return text;
+	}
+
+	/** Return the number of literals that were replaced. */
+	int getParameterCount()
+	{
+		return literals.length;
+	}
+
+	/**
+		Return the value of a literal as a value of the type inferred for
+		its parameter.
+
+		@param position the position of the parameter, 0 based
+		@param type the type of the parameter
+		@return the value, or null if the literal does not convert to the
+			type without loss
+
+		@exception StandardException on error
+	*/
+	DataValueDescriptor getValue(int position, DataTypeDescriptor type)
+		throws StandardException
+	{
+		DataValueDescriptor literal = literals[position];
+		TypeId typeId = type.getTypeId();
+
+		if (literal instanceof SQLChar)
+		{
+			if (!typeId.isStringTypeId() || typeId.isLOBTypeId())
+				return null;
+		}
+		else if (!typeId.isNumericTypeId())
+		{
+			return null;
+		}
+
+		DataValueDescriptor value;
+		try {
+			value = type.normalize(literal, type.getNull());
+		} catch (StandardException se) {
+			// out of range, or truncated
+			return null;
+		}
+
+		return (value.compare(literal) == 0) ? value : null;
+	}
+
+	/**
+		Tell whether a token is an operator that compares the operands on
+		either side of it. This includes the = of the SET clause.
+	*/
+	private static boolean isComparisonOperator(String sqlText, int[] token)
+	{
+		if (token[0] != OPERATOR)
+			return false;
+
+		String operator = sqlText.substring(token[1], token[2]);
+		return operator.equals("=") || operator.equals("<>") ||
+			operator.equals("!=") || operator.equals("<") ||
+			operator.equals(">") || operator.equals("<=") ||
+			operator.equals(">=");
+	}
+
+	/**
+		Tell whether a token ends the operand before it, so that the
+		operand is not part of a larger expression.
+	*/
+	private static boolean endsOperand(String sqlText, int[] token)
+	{
+		switch (token[0])
+		{
+		case IDENTIFIER:
+			return true;
+		case OPERATOR:
+			String operator = sqlText.substring(token[1], token[2]);
+			return operator.equals(")") || operator.equals(",") ||
+				operator.equals(";");
+		default:
+			return false;
+		}
+	}
+
+	/** Return the value of a character string literal. */
+	private static DataValueDescriptor stringLiteral(String sqlText,
+													 int start, int end)
+	{
+		return new SQLChar(
+			sqlText.substring(start + 1, end - 1).replace("''", "'"));
+	}
+
+	/**
+		Return the value of a numeric literal, with the type it has in
+		the statement, or null if it is not a valid literal.
+	*/
+	private static DataValueDescriptor numericLiteral(String literal)
+	{
+		try {
+			if (literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0)
+			{
+				double value = Double.parseDouble(literal);
+				return Double.isInfinite(value) ? null : new SQLDouble(value);
+			}
+
+			BigDecimal value = new BigDecimal(literal);
+			if (literal.indexOf('.') < 0)
+			{
+				int bits = value.unscaledValue().bitLength();
+				if (bits < 32)
+					return new SQLInteger(value.intValue());
+				if (bits < 64)
+					return new SQLLongint(value.longValue());
+			}
+
+			return (value.precision() > MAX_PRECISION)
+				? null : new SQLDecimal(value);
+		} catch (NumberFormatException nfe) {
+			return null;
+		} catch (StandardException se) {
+			return null;
+		}
+	}
+
+	/**
+		Split a statement into tokens. Each token is an array of its type,
+		its start and its end in the text. White space and comments are
+		left out.
+
+		@return the tokens, or null if the statement is not well formed
+	*/
+	private static ArrayList<int[]> tokenize(String sqlText)
+	{
+		ArrayList<int[]> tokens = new ArrayList<int[]>();
+		int length = sqlText.length();
+		int i = 0;
+
+		while (i < length)
+		{
+			char c = sqlText.charAt(i);
+			int start = i;
+
+			if (Character.isWhitespace(c))
+			{
+				i++;
+			}
+			else if (c == '-' && i + 1 < length &&
+					 sqlText.charAt(i + 1) == '-')
+			{
+				while (i < length && sqlText.charAt(i) != '\n' &&
+					   sqlText.charAt(i) != '\r')
+					i++;
+			}
+			else if (c == '/' && i + 1 < length &&
+					 sqlText.charAt(i + 1) == '*')
+			{
+				// bracketed comments may be nested
+				int depth = 0;
+				do {
+					if (i + 1 >= length)
+						return null;
+					if (sqlText.startsWith("/*", i)) {
+						depth++;
+						i += 2;
+					} else if (sqlText.startsWith("*/", i)) {
+						depth--;
+						i += 2;
+					} else {
+						i++;
+					}
+				} while (depth > 0);
+			}
+			else if (c == '\'' || c == '"')
+			{
+				// quotes are escaped by doubling them
+				do {
+					i = sqlText.indexOf(c, i + 1);
+					if (i < 0)
+						return null;
+					i++;
+				} while (i < length && sqlText.charAt(i) == c);
+
+				tokens.add(new int[] {(c == '\'') ? STRING : IDENTIFIER,
+									  start, i});
+			}
+			else if (Character.isDigit(c) ||
+					 (c == '.' && i + 1 < length &&
+					  Character.isDigit(sqlText.charAt(i + 1))))
+			{
+				while (i < length && (Character.isLetterOrDigit(
+						   sqlText.charAt(i)) || sqlText.charAt(i) == '.' ||
+						   sqlText.charAt(i) == '_' ||
+						   ((sqlText.charAt(i) == '+' ||
+							 sqlText.charAt(i) == '-') &&
+							(sqlText.charAt(i - 1) == 'e' ||
+							 sqlText.charAt(i - 1) == 'E'))))
+					i++;
+
+				// anything but a number is checked by the parser
+				String number = sqlText.substring(start, i);
+				tokens.add(new int[] {isNumber(number) ? NUMBER : IDENTIFIER,
+									  start, i});
+			}
+			else if (Character.isLetter(c) || c == '_')
+			{
+				while (i < length &&
+					   (Character.isLetterOrDigit(sqlText.charAt(i)) ||
+						sqlText.charAt(i) == '_'))
+					i++;
+				tokens.add(new int[] {IDENTIFIER, start, i});
+			}
+			else
+			{
+				i++;
+				if (i < length)
+				{
+					String pair = sqlText.substring(start, i + 1);
+					if (pair.equals("<=") || pair.equals(">=") ||
+						pair.equals("<>") || pair.equals("!=") ||
+						pair.equals("||"))
+						i++;
+				}
+				tokens.add(new int[] {OPERATOR, start, i});
+			}
+		}
+
+		return tokens;
+	}
+
+	/** Tell whether a token that starts with a digit is a number. */
+	private static boolean isNumber(String token)
+	{
+		int i = 0;
+		int digits = 0;
+		int length = token.length();
+
+		while (i < length && Character.isDigit(token.charAt(i))) {
+			i++;
+			digits++;
+		}
+		if (i < length && token.charAt(i) == '.') {
+			i++;
+			while (i < length && Character.isDigit(token.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+		if (digits == 0)
+			return false;
+
+		if (i < length && (token.charAt(i) == 'e' || token.charAt(i) == 'E'))
+		{
+			i++;
+			if (i < length &&
+				(token.charAt(i) == '+' || token.charAt(i) == '-'))
+				i++;
+			if (i == length)
+				return false;
+			while (i < length && Character.isDigit(token.charAt(i)))
+				i++;
+		}
+
+		return i == length;
+	}
+}
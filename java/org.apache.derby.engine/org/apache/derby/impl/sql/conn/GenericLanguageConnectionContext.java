@@ -81,6 +81,8 @@ import org.apache.derby.iapi.sql.execute.RunTimeStatistics;
 import org.apache.derby.iapi.store.access.TransactionController;
 import org.apache.derby.iapi.store.access.XATransactionController;
 import org.apache.derby.iapi.transaction.TransactionControl;
+import org.apache.derby.iapi.types.DataTypeDescriptor;
+import org.apache.derby.iapi.types.DataValueDescriptor;
 import org.apache.derby.iapi.types.DataValueFactory;
 import org.apache.derby.iapi.util.IdUtil;
 import org.apache.derby.iapi.util.InterruptStatus;
@@ -1124,6 +1126,73 @@ public class GenericLanguageConnectionContext
                 getStatement(getDefaultSchema(), sqlText, true).prepare(this);
         }      
 
+    /**
+     * @see LanguageConnectionContext#prepareAutoParameterized
+     */
+    public Activation prepareAutoParameterized(
+        SchemaDescriptor compilationSchema, String sqlText,
+        boolean isForReadOnly, boolean scrollable)
+        throws StandardException
+    {
+        if (!connFactory.autoParameterizes()) {
+            return null;
+        }
+
+        AutoParameterizer parameterized =
+            AutoParameterizer.parameterize(sqlText);
+        if (parameterized == null) {
+            return null;
+        }
+
+        final int depth = getStatementDepth();
+        PreparedStatement ps;
+        try {
+            ps = prepareInternalStatement(compilationSchema,
+                parameterized.getText(), isForReadOnly, false);
+        } catch (StandardException se) {
+            if (se.getSeverity() > ExceptionSeverity.STATEMENT_SEVERITY) {
+                throw se;
+            }
+
+            // Probably a parameter whose type cannot be inferred. Any other
+            // error is reported when the statement is compiled with its
+            // literals. The error handler, which would clean up the
+            // statement contexts pushed for the compilation, is not invoked.
+            while (getStatementDepth() > depth) {
+                getStatementContext().cleanupOnError(se);
+            }
+            return null;
+        }
+
+        if (((ExecPreparedStatement) ps).isParameterSensitive()) {
+            // the plan chosen for the literals may be another one
+            return null;
+        }
+
+        DataTypeDescriptor[] types = ps.getParameterTypes();
+        if (types == null ||
+                types.length != parameterized.getParameterCount()) {
+            return null;
+        }
+
+        DataValueDescriptor[] values = new DataValueDescriptor[types.length];
+        for (int i = 0; i < types.length; i++) {
+            values[i] = parameterized.getValue(i, types[i]);
+            if (values[i] == null) {
+                // comparing with the parameter would give another result
+                return null;
+            }
+        }
+
+        Activation activation = ps.getActivation(this, scrollable);
+        ParameterValueSet pvs = activation.getParameterValueSet();
+        for (int i = 0; i < values.length; i++) {
+            pvs.getParameterForSet(i).setValue(values[i]);
+        }
+
+        return activation;
+    }
+
     /**
      * Remove the activation to those known about by this connection.
      *
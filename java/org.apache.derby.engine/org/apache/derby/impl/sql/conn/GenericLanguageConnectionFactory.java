@@ -27,6 +27,7 @@ import org.apache.derby.iapi.sql.compile.CompilerContext;
 
 import org.apache.derby.iapi.sql.LanguageFactory;
 import org.apache.derby.impl.sql.GenericStatement;
+import org.apache.derby.impl.sql.PersistentStatementCache;
 
 import org.apache.derby.iapi.services.uuid.UUIDFactory;
 import org.apache.derby.iapi.services.compiler.JavaFactory;
@@ -111,6 +112,24 @@ public class GenericLanguageConnectionFactory
 	private int cacheSize = org.apache.derby.shared.common.reference.Property.STATEMENT_CACHE_SIZE_DEFAULT;
 	private CacheManager singleStatementCache;
 
+	/*
+	  true if the literals of statements from java.sql.Statement are
+	  replaced by parameters
+	*/
+	private boolean autoParameterize;
+
+	/*
+	  the number of executions with an interpreted activation class
+	  before the class is generated, 0 if classes are always generated
+	*/
+	private int interpretedExecutions =
+		Property.INTERPRETED_EXECUTIONS_DEFAULT;
+
+	/*
+	  for saving the statement cache at shutdown, null unless enabled
+	*/
+	private PersistentStatementCache persistentStatementCache;
+
 	/*
 	   constructor
 	*/
@@ -276,6 +295,26 @@ public class GenericLanguageConnectionFactory
 		return cacheSize;
 	}
 	
+	/**
+	 * Get the value of an integer property, no less than min, or the
+	 * default value if the property is not set or not a number.
+	 */
+	private static int intProperty(Properties startParams, String key,
+		int defaultValue, int min)
+	{
+		String value = PropertyUtil.getPropertyFromSet(startParams, key);
+
+		if (value != null) {
+			try {
+				return Math.max(Integer.parseInt(value), min);
+			} catch (NumberFormatException nfe) {
+				// use the default
+			}
+		}
+
+		return defaultValue;
+	}
+
 	/**
 	 * Start-up method for this instance of the language connection factory.
 	 * Note these are expected to be booted relative to a Database.
@@ -316,13 +355,36 @@ public class GenericLanguageConnectionFactory
 												cacheSize/4,
 												cacheSize);
 
+			autoParameterize = Boolean.valueOf(
+				PropertyUtil.getPropertyFromSet(startParams,
+					Property.AUTO_PARAMETERIZE)).booleanValue();
+
             // Start a management bean for the statement cache to allow
             // monitoring through JMX, if it is available and enabled.
             DataFactory df = (DataFactory)
                     findServiceModule(this, DataFactory.MODULE);
             singleStatementCache.registerMBean(df.getRootDirectory());
+
+			if (!df.isReadOnly()) {
+				if (!df.databaseEncrypted() &&
+					Boolean.valueOf(PropertyUtil.getPropertyFromSet(startParams,
+						Property.PERSISTENT_STATEMENT_CACHE)).booleanValue())
+				{
+					persistentStatementCache =
+						new PersistentStatementCache(df.getStorageFactory());
+				}
+				else
+				{
+					// don't leave plans behind that could be used after
+					// the database has been changed without them
+					PersistentStatementCache.discard(df.getStorageFactory());
+				}
+			}
 		}
 
+		interpretedExecutions = intProperty(startParams,
+			Property.INTERPRETED_EXECUTIONS,
+			Property.INTERPRETED_EXECUTIONS_DEFAULT, 0);
 	}
 
 	/**
@@ -334,10 +396,39 @@ public class GenericLanguageConnectionFactory
 		return singleStatementCache;
 	}
 
+	/** @see LanguageConnectionFactory#persistsStatementCache */
+	public boolean persistsStatementCache()
+	{
+		return persistentStatementCache != null;
+	}
+
+	/** @see LanguageConnectionFactory#restoreStatementCache */
+	public void restoreStatementCache(LanguageConnectionContext lcc)
+		throws StandardException
+	{
+		if (persistentStatementCache != null)
+			persistentStatementCache.restore(singleStatementCache, lcc);
+	}
+
+	/** @see LanguageConnectionFactory#autoParameterizes */
+	public boolean autoParameterizes()
+	{
+		return autoParameterize;
+	}
+
+	/** @see LanguageConnectionFactory#getInterpretedExecutions */
+	public int getInterpretedExecutions()
+	{
+		return interpretedExecutions;
+	}
+
 	/**
      * Stop this module.
 	 */
 	public void stop() {
+        if (persistentStatementCache != null) {
+            persistentStatementCache.save(singleStatementCache);
+        }
         if (singleStatementCache != null) {
             singleStatementCache.deregisterMBean();
         }
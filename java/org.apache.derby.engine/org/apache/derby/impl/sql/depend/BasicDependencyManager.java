@@ -59,12 +59,18 @@ import org.apache.derby.iapi.store.access.TransactionController;
  * <em>Synchronization:</em> The need for synchronization is different depending
  * on whether the dependency is an in-memory dependency or a stored dependency.
  * When accessing and modifying in-memory dependencies, Java synchronization
- * must be used (specifically, we synchronize on {@code this}). When accessing
- * and modifying stored dependencies, which are stored in the data dictionary,
- * we expect that the locking protocols will provide the synchronization needed.
- * Note that stored dependencies should not be accessed while holding the
- * monitor of {@code this}, as this may result in deadlocks. So far the need
- * for synchronization across both in-memory and stored dependencies hasn't
+ * must be used. The in-memory dependencies are spread over a number of
+ * {@code Stripe}s by the UUID of the dependent and of the provider, and we
+ * synchronize on the stripes of the objects whose dependencies are accessed,
+ * so that sessions working with unrelated objects don't contend. A stripe
+ * is only held while its maps are accessed, and when both the stripe of the
+ * dependent and the stripe of the provider are needed, the one with the
+ * lowest index is synchronized on first. When accessing and modifying stored
+ * dependencies, which are stored in the data dictionary, we expect that the
+ * locking protocols will provide the synchronization needed. Note that
+ * stored dependencies should not be accessed while holding the monitor of a
+ * stripe, as this may result in deadlocks. So far the need for
+ * synchronization across both in-memory and stored dependencies hasn't
  * occurred.
  */
 public class BasicDependencyManager implements DependencyManager {
@@ -75,32 +81,50 @@ public class BasicDependencyManager implements DependencyManager {
     private final DataDictionary dd;
     
     /**
-     * Map of in-memory dependencies for Dependents.
-     * In-memory means that one or both of the Dependent
-     * or Provider are non-persistent (isPersistent() returns false).
-     * 
-     * Key is the UUID of the Dependent (from getObjectID()).
-     * Value is a List containing Dependency objects, each
-     * of whihc links the same Dependent to a Provider.
-     * Dependency objects in the List are unique.
-     * 
+     * Number of stripes the in-memory dependencies are spread over. Must be
+     * a power of two.
      */
-    //@GuardedBy("this")
-    private final Map<UUID,List<Dependency>> dependents = new HashMap<UUID,List<Dependency>>();
-    
+    private static final int STRIPES = 64;
+
     /**
-     * Map of in-memory dependencies for Providers.
+     * The in-memory dependencies of the dependents and providers whose
+     * UUIDs hash to the same stripe.
      * In-memory means that one or both of the Dependent
      * or Provider are non-persistent (isPersistent() returns false).
-     * 
-     * Key is the UUID of the Provider (from getObjectID()).
-     * Value is a List containing Dependency objects, each
-     * of which links the same Provider to a Dependent.
-     * Dependency objects in the List are unique.
-     * 
-     */    
-    //@GuardedBy("this")
-    private final Map<UUID,List<Dependency>> providers = new HashMap<UUID,List<Dependency>>();
+     */
+    private static final class Stripe {
+        /**
+         * Map of in-memory dependencies for Dependents.
+         * 
+         * Key is the UUID of the Dependent (from getObjectID()).
+         * Value is a List containing Dependency objects, each
+         * of which links the same Dependent to a Provider.
+         * Dependency objects in the List are unique.
+         */
+        //@GuardedBy("this")
+        final Map<UUID,List<Dependency>> dependents =
+                new HashMap<UUID,List<Dependency>>();
+
+        /**
+         * Map of in-memory dependencies for Providers.
+         * 
+         * Key is the UUID of the Provider (from getObjectID()).
+         * Value is a List containing Dependency objects, each
+         * of which links the same Provider to a Dependent.
+         * Dependency objects in the List are unique.
+         */
+        //@GuardedBy("this")
+        final Map<UUID,List<Dependency>> providers =
+                new HashMap<UUID,List<Dependency>>();
+    }
+
+    /** The stripes of the in-memory dependencies. */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Lock that serializes the invalidations of non-persistent providers.
+     */
+    private final Object invalidationLock = new Object();
 
 
 	//
@@ -161,23 +185,31 @@ public class BasicDependencyManager implements DependencyManager {
      * @throws StandardException if adding the dependency fails
      * @see #addStoredDependency
      */
-    private synchronized void addInMemoryDependency(Dependent d, Provider p,
-                                                    ContextManager cm)
+    private void addInMemoryDependency(Dependent d, Provider p,
+                                       ContextManager cm)
             throws StandardException {
         Dependency dy = new BasicDependency(d, p);
+        int depStripe = stripeIndex(d.getObjectID());
+        int provStripe = stripeIndex(p.getObjectID());
 
         // Duplicate dependencies are not added to the lists.
         // If we find that the dependency we are trying to add in
         // one list is a duplicate, then it should be a duplicate in the
         // other list.
         boolean addedToProvs = false;
-        boolean addedToDeps =
-                addDependencyToTable(dependents, d.getObjectID(), dy);
+        boolean addedToDeps;
+
+        synchronized (stripes[Math.min(depStripe, provStripe)]) {
+            synchronized (stripes[Math.max(depStripe, provStripe)]) {
+                addedToDeps = addDependencyToTable(
+                        stripes[depStripe].dependents, d.getObjectID(), dy);
 
-        if (addedToDeps) {
-            addedToProvs = addDependencyToTable(providers, p.getObjectID(), dy);
-        } else if (SanityManager.DEBUG) {
-            addedToProvs = addDependencyToTable(providers, p.getObjectID(), dy);
+                if (addedToDeps || SanityManager.DEBUG) {
+                    addedToProvs = addDependencyToTable(
+                            stripes[provStripe].providers,
+                            p.getObjectID(), dy);
+                }
+            }
         }
 
         // Dependency should have been added to both or neither.
@@ -279,9 +311,11 @@ public class BasicDependencyManager implements DependencyManager {
 		 throws StandardException
 	{
 		/*
-		** Non-persistent dependencies are stored in memory, and need to
-		** use "synchronized" to ensure their lists don't change while
-		** the invalidation is taking place.  Persistent dependencies are
+		** Non-persistent dependencies are stored in memory. The invalidation
+		** works on a copy of the provider's list, and the invalidations of
+		** non-persistent providers are serialized with "synchronized" on a
+		** lock of their own, so that the lists can change while the
+		** invalidation is taking place but two invalidations don't overlap.  Persistent dependencies are
 		** stored in the data dictionary, and we should *not* do anything
 		** transactional (like reading from a system table) from within
 		** a synchronized method, as it could cause deadlock.
@@ -293,7 +327,7 @@ public class BasicDependencyManager implements DependencyManager {
 		if (p.isPersistent())
 			coreInvalidateFor(p, action, lcc);
 		else {
-			synchronized (this) {
+			synchronized (invalidationLock) {
 				coreInvalidateFor(p, action, lcc);
 			}
 		}
@@ -469,18 +503,23 @@ public class BasicDependencyManager implements DependencyManager {
                             wait);
         }
 
-        // Now remove the in-memory dependencies, if any.
-        synchronized(this) {
-            List deps = (List) dependents.get(id);
-            if (deps != null) {
-                Iterator depsIter = deps.iterator();
-                // go through the list notifying providers to remove
-                // the dependency from their lists
-                while (depsIter.hasNext()) {
-                    Dependency dy = (Dependency)depsIter.next();
-                    clearProviderDependency(dy.getProviderKey(), dy);
-                }
-                dependents.remove(id);
+        // Now remove the in-memory dependencies, if any. The list of the
+        // dependent is removed first, and then each dependency is removed
+        // from the list of its provider, which may be in another stripe.
+        List<Dependency> deps;
+        Stripe stripe = stripes[stripeIndex(id)];
+        synchronized (stripe) {
+            deps = stripe.dependents.remove(id);
+        }
+        if (deps == null) {
+            return;
+        }
+
+        for (Dependency dy : deps) {
+            final UUID provId = dy.getProviderKey();
+            Stripe provStripe = stripes[stripeIndex(provId)];
+            synchronized (provStripe) {
+                removeFromTable(provStripe.providers, provId, dy);
             }
         }
     }
@@ -491,10 +530,34 @@ public class BasicDependencyManager implements DependencyManager {
 	 * (We clear all in-memory dependencies added in the current
 	 * StatementContext.)
 	 */
-    public synchronized void clearInMemoryDependency(Dependency dy) {
+    public void clearInMemoryDependency(Dependency dy) {
         final UUID deptId = dy.getDependent().getObjectID();
         final UUID provId = dy.getProviderKey();
-        List deps = (List) dependents.get(deptId);
+        final int depStripe = stripeIndex(deptId);
+        final int provStripe = stripeIndex(provId);
+
+        synchronized (stripes[Math.min(depStripe, provStripe)]) {
+            synchronized (stripes[Math.max(depStripe, provStripe)]) {
+                clearInMemoryDependency(dy, stripes[depStripe],
+                                        stripes[provStripe]);
+            }
+        }
+    }
+
+    /**
+     * Clear the specified in memory dependency. The caller must be
+     * synchronized on the stripes of the dependent and the provider.
+     *
+     * @param dy the dependency
+     * @param depStripe the stripe of the dependent
+     * @param provStripe the stripe of the provider
+     */
+    //@GuardedBy("depStripe, provStripe")
+    private void clearInMemoryDependency(Dependency dy, Stripe depStripe,
+                                         Stripe provStripe) {
+        final UUID deptId = dy.getDependent().getObjectID();
+        final UUID provId = dy.getProviderKey();
+        List deps = (List) depStripe.dependents.get(deptId);
 
         // NOTE - this is a NEGATIVE Sanity mode check, in sane mode we continue
         // to ensure the dependency manager is consistent.
@@ -504,7 +567,7 @@ public class BasicDependencyManager implements DependencyManager {
                 return;
         }
 
-        List provs = (List) providers.get(provId);
+        List provs = (List) provStripe.providers.get(provId);
 
         if (SanityManager.DEBUG)
         {
@@ -554,10 +617,10 @@ public class BasicDependencyManager implements DependencyManager {
 
         deps.remove(dy);
         if (deps.isEmpty())
-            dependents.remove(deptId);
+            depStripe.dependents.remove(deptId);
         provs.remove(dy);
         if (provs.isEmpty())
-            providers.remove(provId);
+            provStripe.providers.remove(provId);
     }
 
 	/**
@@ -836,6 +899,9 @@ public class BasicDependencyManager implements DependencyManager {
             case DROP_AGGREGATE:
 				return "DROP DERBY AGGREGATE";
 
+            case STALE_PLAN:
+				return "STALE PLAN";
+
             default:
 				if (SanityManager.DEBUG)
 				{
@@ -861,17 +927,21 @@ public class BasicDependencyManager implements DependencyManager {
         // Add the stored dependencies.
         List<?> storedDeps = dd.getAllDependencyDescriptorsList();
         int numDependencies = storedDeps.size();
-        synchronized(this) {
-            Iterator<List<Dependency>> deps = dependents.values().iterator();
-            Iterator<List<Dependency>> provs = providers.values().iterator();
-
-            // Count the in memory dependencies.
-            while (deps.hasNext()) {
-                numDependencies += deps.next().size();
-            }
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                Iterator<List<Dependency>> deps =
+                        stripes[i].dependents.values().iterator();
+                Iterator<List<Dependency>> provs =
+                        stripes[i].providers.values().iterator();
+
+                // Count the in memory dependencies.
+                while (deps.hasNext()) {
+                    numDependencies += deps.next().size();
+                }
 
-            while (provs.hasNext()) {
-                numDependencies += provs.next().size();
+                while (provs.hasNext()) {
+                    numDependencies += provs.next().size();
+                }
             }
         }
         return numDependencies;
@@ -882,6 +952,9 @@ public class BasicDependencyManager implements DependencyManager {
 	//
 	public BasicDependencyManager(DataDictionary dd) {
         this.dd = dd;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
 	}
 
 	//
@@ -945,21 +1018,35 @@ public class BasicDependencyManager implements DependencyManager {
 	}
 
 	/**
-	 * removes a dependency for a given provider. assumes
-	 * that the dependent removal is being dealt with elsewhere.
-	 * Won't assume that the dependent only appears once in the list.
+	 * Return the index of the stripe that holds the in-memory dependencies
+	 * of a dependent or a provider.
+	 *
+	 * @param id the UUID of the dependent or provider, may be null
 	 */
-    //@GuardedBy("this")
-    private void clearProviderDependency(UUID p, Dependency d) {
-        List<?> deps = providers.get(p);
+    private static int stripeIndex(UUID id) {
+        if (id == null) {
+            return 0;
+        }
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+	/**
+	 * Removes a dependency from the list of a key, and the list if it
+	 * becomes empty.
+	 */
+    //@GuardedBy("stripe of key")
+    private static void removeFromTable(
+            Map<UUID, List<Dependency>> table, UUID key, Dependency dy) {
+        List<Dependency> deps = table.get(key);
 
 		if (deps == null)
 			return;
 
-		deps.remove(d);
+		deps.remove(dy);
 
         if (deps.isEmpty()) {
-			providers.remove(p);
+			table.remove(key);
         }
 	}
 
@@ -1048,8 +1135,9 @@ public class BasicDependencyManager implements DependencyManager {
      */
     private List<Provider> getProviders (Dependent d) throws StandardException {
         List<Provider> provs = new ArrayList<Provider>();
-        synchronized (this) {
-            List deps = (List) dependents.get(d.getObjectID());
+        Stripe stripe = stripes[stripeIndex(d.getObjectID())];
+        synchronized (stripe) {
+            List deps = (List) stripe.dependents.get(d.getObjectID());
             if (deps != null) {
                 Iterator depsIter = deps.iterator();
                 while (depsIter.hasNext()) {
@@ -1086,8 +1174,9 @@ public class BasicDependencyManager implements DependencyManager {
 	private List<Dependency> getDependents (Provider p) 
 			throws StandardException {
         List<Dependency> deps = new ArrayList<Dependency>();
-        synchronized (this) {
-            List<Dependency> memDeps = providers.get(p.getObjectID());
+        Stripe stripe = stripes[stripeIndex(p.getObjectID())];
+        synchronized (stripe) {
+            List<Dependency> memDeps = stripe.providers.get(p.getObjectID());
             if (memDeps != null) {
                 deps.addAll(memDeps);
             }
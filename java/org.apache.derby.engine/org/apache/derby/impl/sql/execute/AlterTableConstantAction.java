@@ -22,8 +22,10 @@
 package org.apache.derby.impl.sql.execute;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.StringTokenizer;
 import org.apache.derby.catalog.Dependable;
 import org.apache.derby.catalog.DependableFinder;
 import org.apache.derby.catalog.IndexDescriptor;
@@ -77,6 +79,7 @@ import org.apache.derby.iapi.store.access.ScanController;
 import org.apache.derby.iapi.store.access.SortController;
 import org.apache.derby.iapi.store.access.SortObserver;
 import org.apache.derby.iapi.store.access.TransactionController;
+import org.apache.derby.iapi.store.raw.RawStoreFactory;
 import org.apache.derby.iapi.types.DataTypeDescriptor;
 import org.apache.derby.iapi.types.DataValueDescriptor;
 import org.apache.derby.iapi.types.RowLocation;
@@ -145,6 +148,11 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 	 * whose statistics need to be updated/dropped.
 	 */
     private	    String						indexNameForStatistics;
+	/**
+	 * If statistic is getting updated/dropped for a group of columns, then
+	 * columnGroupForStatistics will tell the positions of the columns.
+	 */
+    private	    int[]						columnGroupForStatistics;
 
     
     // Alter table compress and Drop column
@@ -214,6 +222,9 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 	 *  	will be updated/dropped. This param is looked at only if 
 	 *  	updateStatisticsAll/dropStatisticsAll is set to false and
 	 *  	updateStatistics/dropStatistics is set to true.
+	 *  @param columnGroupForStatistics	Positions of the columns of the
+	 *  	column group whose statistics will be updated/dropped, or null
+	 *  	if the statistics are those of indexes.
 	 */
 	AlterTableConstantAction(
     SchemaDescriptor            sd,
@@ -235,7 +246,8 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
     boolean                     updateStatisticsAll,
     boolean                     dropStatistics,
     boolean                     dropStatisticsAll,
-    String                      indexNameForStatistics)
+    String                      indexNameForStatistics,
+    int[]                       columnGroupForStatistics)
 	{
 		super(tableId);
 		this.sd                     = sd;
@@ -257,6 +269,7 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 		this.dropStatistics     	= dropStatistics;
 		this.dropStatisticsAll    = dropStatisticsAll;
 		this.indexNameForStatistics = indexNameForStatistics;
+		this.columnGroupForStatistics = columnGroupForStatistics;
 
 		if (SanityManager.DEBUG)
 		{
@@ -726,7 +739,9 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
         dd.startWriting(lcc);
         dm.invalidateFor(td, DependencyManager.UPDATE_STATISTICS, lcc);
 
-        if (dropStatisticsAll) {
+        if (columnGroupForStatistics != null) {
+            dropColumnGroupStatistics(columnGroupForStatistics);
+        } else if (dropStatisticsAll) {
             dd.dropStatisticsDescriptors(td.getUUID(), null, tc);
         } else {
             ConglomerateDescriptor cd = 
@@ -747,6 +762,11 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
         ConglomerateDescriptor[] cds;
         td = dd.getTableDescriptor(tableId);
 
+        if (columnGroupForStatistics != null) {
+            updateColumnGroupStatistics();
+            return;
+        }
+
         if (updateStatisticsAll) {
             cds = null;
         } else {
@@ -758,6 +778,122 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
                                                 lcc, td, cds, "ALTER TABLE");
     }
 
+    /**
+     * Update the statistics of a group of columns. The number of distinct
+     * combinations of values of the columns is counted by sorting them
+     * with duplicates eliminated.
+     *
+     * @throws StandardException
+     */
+    private void updateColumnGroupStatistics()
+            throws StandardException {
+        int[] columns = columnGroupForStatistics;
+        int maxColumn = columns[columns.length - 1];
+
+        // Only read the columns of the group.
+        FormatableBitSet validColumns = new FormatableBitSet(maxColumn);
+        DataValueDescriptor[] baseRow = new DataValueDescriptor[maxColumn];
+        ExecRow groupRow =
+            activation.getExecutionFactory().getValueRow(columns.length);
+        ColumnOrdering[] ordering = new ColumnOrdering[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            int position = columns[i];
+            validColumns.set(position - 1);
+            baseRow[position - 1] =
+                td.getColumnDescriptor(position).getType().getNull();
+            groupRow.setColumn(i + 1, baseRow[position - 1]);
+            ordering[i] = new IndexColumnOrder(i);
+        }
+
+        // Like the scans of the indexes when their statistics are updated,
+        // read uncommitted rows; statistics are estimates anyway.
+        ScanController scan = tc.openScan(
+                td.getHeapConglomerateId(),
+                false,  // hold
+                0,      // openMode: for read
+                TransactionController.MODE_RECORD,
+                TransactionController.ISOLATION_READ_UNCOMMITTED,
+                validColumns,
+                null,   // startkeyvalue-- start from the beginning.
+                0,
+                null,   // qualifiers, none!
+                null,   // stopkeyvalue,
+                0);
+
+        long numRows = 0;
+        long numUnique = 0;
+        long sortId = tc.createSort(
+                (Properties) null,
+                groupRow.getRowArrayClone(),
+                ordering,
+                new BasicSortObserver(true, true, groupRow, true),
+                false,  // not in order
+                scan.getEstimatedRowCount(),
+                -1);    // est row size, -1 means no idea
+        try {
+            SortController sorter = tc.openSort(sortId);
+            try {
+                while (scan.fetchNext(baseRow)) {
+                    sorter.insert(groupRow.getRowArray());
+                    numRows++;
+                }
+            } finally {
+                scan.close();
+                sorter.completedInserts();
+            }
+
+            ScanController sortScan = tc.openSortScan(sortId, false);
+            try {
+                while (sortScan.next()) {
+                    numUnique++;
+                }
+            } finally {
+                sortScan.close();
+            }
+        } finally {
+            tc.dropSort(sortId);
+        }
+
+        dd.startWriting(lcc);
+        dm.invalidateFor(td, DependencyManager.UPDATE_STATISTICS, lcc);
+        dropColumnGroupStatistics(columns);
+
+        // Like for indexes, don't write statistics if the table is empty.
+        if (numRows > 0) {
+            StatisticsDescriptor statDesc = new StatisticsDescriptor(
+                    dd,
+                    dd.getUUIDFactory().createUUID(),
+                    dd.getUUIDFactory().createUUID(),
+                    td.getUUID(),
+                    StatisticsDescriptor.COLUMN_GROUP,
+                    new StatisticsImpl(numRows, numUnique, columns),
+                    columns.length);
+            dd.addDescriptor(statDesc, null,
+                    DataDictionary.SYSSTATISTICS_CATALOG_NUM, true, tc);
+        }
+    }
+
+    /**
+     * Drop the statistics of a group of columns, or of all the column
+     * groups of the table.
+     *
+     * @param columns the positions of the columns of the group, or
+     *      {@code null} for all the column groups
+     * @throws StandardException
+     */
+    private void dropColumnGroupStatistics(int[] columns)
+            throws StandardException {
+        for (StatisticsDescriptor statDesc : td.getColumnGroupStatistics()) {
+            int[] group = (statDesc.getStatistic() instanceof StatisticsImpl)
+                ? ((StatisticsImpl) statDesc.getStatistic()).getColumnGroup()
+                : null;
+            if (columns == null || Arrays.equals(columns, group)) {
+                dd.dropStatisticsDescriptors(
+                        td.getUUID(), statDesc.getReferenceID(), tc);
+            }
+        }
+    }
+
     /**
      * Truncate end of conglomerate.
      * <p>
@@ -1384,6 +1520,10 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
             }
         }
 
+        // The column groups with statistics refer to the columns by their
+        // positions, which change when a column is dropped.
+        dropColumnGroupStatistics(null);
+
 		DataDescriptorGenerator ddg = dd.getDataDescriptorGenerator();
         int                             cascadedDrops = cascadedDroppedColumns.size();
 		int sizeAfterCascadedDrops = td.getColumnDescriptorList().size() - cascadedDrops;
@@ -2374,6 +2514,37 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 						 DataDictionary.SYSCOLUMNS_CATALOG_NUM, false, tc);
     }
   
+    /**
+     * Remove a dropped column from the list of compressed columns of a heap.
+     *
+     * @param compressedColumns the comma separated 0-based column numbers
+     * @param droppedColumn     the 0-based number of the dropped column
+     *
+     * @return the list with the dropped column removed and the columns
+     *         after it renumbered
+     */
+    private static String dropCompressedColumn(
+    String  compressedColumns,
+    int     droppedColumn)
+    {
+        StringBuilder   columns = new StringBuilder();
+        StringTokenizer st      = new StringTokenizer(compressedColumns, ",");
+
+        while (st.hasMoreTokens())
+        {
+            int column = Integer.parseInt(st.nextToken().trim());
+
+            if (column == droppedColumn)
+                continue;
+
+            if (columns.length() > 0)
+                columns.append(',');
+            columns.append(column > droppedColumn ? column - 1 : column);
+        }
+
+        return columns.toString();
+    }
+
     /**
      * routine to process compress table or ALTER TABLE <t> DROP COLUMN <c>;
      * <p>
@@ -2459,6 +2630,17 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 
 			emptyHeapRow = newRow;
 			collation_ids = new_collation_ids;
+
+            // the compressed columns after the dropped one move down by one
+            String compressedColumns = properties.getProperty(
+                RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER);
+            if (compressedColumns != null && compressedColumns.length() > 0)
+            {
+                properties.put(
+                    RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER,
+                    dropCompressedColumn(
+                        compressedColumns, droppedColumnPosition - 1));
+            }
 		}
 		setUpAllSorts(emptyHeapRow, rl);
 
@@ -2799,8 +2981,11 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 		properties.put("baseConglomerateId", Long.toString(newHeapConglom));
 		if (cd.getIndexDescriptor().isUnique())
 		{
+			// INCLUDE columns are not part of the unique key
 			properties.put(
-                "nUniqueColumns", Integer.toString(indexRowLength - 1));
+                "nUniqueColumns",
+                Integer.toString(
+                    cd.getIndexDescriptor().numberOfOrderedColumns()));
 		}
 		else
 		{
@@ -2959,8 +3144,12 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 					if (baseColumnPositions[j] == droppedColumnPosition) break;
 				if (j == baseColumnPositions.length)	// not related
 					continue;
-					
-				if (baseColumnPositions.length == 1 || 
+
+				// an INCLUDE column is simply removed from the index
+				if (j >= compressIRGs[i].numberOfOrderedColumns())
+					continue;
+
+				if (compressIRGs[i].numberOfOrderedColumns() == 1 || 
 					(behavior == StatementType.DROP_CASCADE && compressIRGs[i].isUnique()))
 				{
 					numIndexes--;
@@ -3023,6 +3212,7 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 				boolean[] isAscending = compressIRGs[j].isAscending();
 				boolean reMakeArrays = false;
 				boolean rewriteBaseColumnPositions = false;
+				boolean droppedOrderedColumn = false;
 				int size = baseColumnPositions.length;
 				for (int k = 0; k < size; k++)
 				{
@@ -3035,6 +3225,8 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 					{
 						baseColumnPositions[k] = 0;		// mark it
 						reMakeArrays = true;
+						droppedOrderedColumn =
+							k < compressIRGs[j].numberOfOrderedColumns();
 					}
 				}
 
@@ -3060,7 +3252,9 @@ class AlterTableConstantAction extends DDLSingleTableConstantAction
 					IndexDescriptor id = compressIRGs[j].getIndexDescriptor();
 					id.setBaseColumnPositions(newBCP);
 					id.setIsAscending(newIsAscending);
-					id.setNumberOfOrderedColumns(id.numberOfOrderedColumns() - 1);
+					if (droppedOrderedColumn)
+						id.setNumberOfOrderedColumns(
+							id.numberOfOrderedColumns() - 1);
 					collation[i] = newCollation;
 				}
 			}
@@ -125,6 +125,11 @@ public abstract class BaseActivation implements CursorActivation, GeneratedByteC
 	// for recompilation.  See comments below, in informOfRowCount()
 	private static final int TEN_PERCENT_THRESHOLD = 400;
 
+	// The row count of a result set must differ from the estimate by at
+	// least this many rows before the estimate is corrected, so that plans
+	// for small tables are not recompiled over a handful of rows.
+	private static final int CARDINALITY_FEEDBACK_MIN_ROWS = 100;
+
 	/* Performance optimization for update/delete - only
 	 * open heap ConglomerateController once when doing
 	 * index row to base row on search
@@ -1054,12 +1059,53 @@ public abstract class BaseActivation implements CursorActivation, GeneratedByteC
 			/* Invalidate outside of the critical section */
 			if (significantChange)
 			{
-				preStmt.makeInvalid(DependencyManager.INTERNAL_RECOMPILE_REQUEST, lcc);
+				preStmt.makeInvalid(DependencyManager.STALE_PLAN, lcc);
 			}
 		}
 
 	}
 
+	/**
+		@see Activation#informOfCardinality
+		@exception StandardException	Thrown on error
+	 */
+	public void informOfCardinality(NoPutResultSet resultSet, long rowCount)
+					throws StandardException
+	{
+		/* Only compare with the estimate when the stale plan check is due */
+		if (!checkRowCounts)
+			return;
+
+		final ExecPreparedStatement ps = getPreparedStatement();
+		int tableNumber = ps.getCardinalityFeedbackTable(
+											resultSet.resultSetNumber());
+		if (tableNumber < 0)
+			return;
+
+		double estimate = Math.max(resultSet.getEstimatedRowCount(), 1.0);
+		double actual = Math.max(rowCount, 1L);
+		double ratio = Math.max(actual / estimate, estimate / actual);
+		if (Math.abs(actual - estimate) < CARDINALITY_FEEDBACK_MIN_ROWS ||
+			ratio < Property.MIN_LANGUAGE_CARDINALITY_FEEDBACK_RATIO)
+			return;
+
+		int threshold = PropertyUtil.getServiceInt(
+							getTransactionController(),
+							Property.LANGUAGE_CARDINALITY_FEEDBACK_RATIO,
+							0,
+							Integer.MAX_VALUE,
+							Property.DEFAULT_LANGUAGE_CARDINALITY_FEEDBACK_RATIO
+							);
+		if (threshold == 0 || ratio < threshold)
+			return;
+
+		if (ps.correctCardinality(tableNumber,
+								  resultSet.getEstimatedRowCount(), rowCount))
+		{
+			preStmt.makeInvalid(DependencyManager.STALE_PLAN, lcc);
+		}
+	}
+
 	/**
 	 * @see Activation#getHeapConglomerateController
 	 */
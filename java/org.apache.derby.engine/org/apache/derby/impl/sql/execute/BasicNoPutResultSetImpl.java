@@ -88,6 +88,9 @@ implements NoPutResultSet
 	public double optimizerEstimatedRowCount;
 	public double optimizerEstimatedCost;
 
+	// set once the row count has been reported to the activation
+	private boolean cardinalityReported;
+
 	// set on demand during execution
 	private StatementContext			statementContext;
 	public NoPutResultSet[]			subqueryTrackingArray;
@@ -221,6 +224,25 @@ implements NoPutResultSet
 		return optimizerEstimatedRowCount;
 	}
 
+	/**
+	 * Tell the activation how many rows this result set returned, once it
+	 * has been read to the end. Only the first open is reported, since the
+	 * optimizer's estimate is for all the opens together.
+	 *
+	 * @param rowCount	The number of rows returned
+	 *
+	 * @exception StandardException thrown on error
+	 */
+	protected final void informOfCardinality(long rowCount)
+		throws StandardException
+	{
+		if (numOpens == 1 && !cardinalityReported)
+		{
+			cardinalityReported = true;
+			activation.informOfCardinality(this, rowCount);
+		}
+	}
+
 	/**
 	 * @see NoPutResultSet#requiresRelocking
 	 */
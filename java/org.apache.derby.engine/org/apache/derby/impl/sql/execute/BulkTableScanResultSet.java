@@ -368,6 +368,7 @@ outer:		for (;;)
 					{
 						clearCurrentRow();
 						setRowCountIfPossible(rowsThisScan);
+						informOfCardinality(rowsSeen - rowsFiltered);
 						return null;
 					}
 				}	
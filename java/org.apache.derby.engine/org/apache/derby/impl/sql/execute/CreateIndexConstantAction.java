@@ -110,6 +110,13 @@ class CreateIndexConstantAction extends IndexConstantAction
 	private String			indexType;
 	private String[]		columnNames;
 	private boolean[]		isAscending;
+
+    /**
+     * The number of key columns, at the start of {@code columnNames}.
+     * The remaining columns are INCLUDE columns.
+     */
+	private int				numberOfOrderedColumns;
+
 	private boolean			isConstraint;
 	private UUID			conglomerateUUID;
 	private Properties		properties;
@@ -166,6 +173,9 @@ class CreateIndexConstantAction extends IndexConstantAction
      *                                      in order
      * @param isAscending	                Array of booleans telling asc/desc 
      *                                      on each column
+     * @param numberOfOrderedColumns        Number of key columns, the
+     *                                      remaining columns are INCLUDE
+     *                                      columns
      * @param isConstraint	                TRUE if index is backing up a 
      *                                      constraint, else FALSE
      * @param conglomerateUUID	            ID of conglomerate
@@ -186,6 +196,7 @@ class CreateIndexConstantAction extends IndexConstantAction
             UUID			tableId,
             String[]		columnNames,
             boolean[]		isAscending,
+            int             numberOfOrderedColumns,
             boolean			isConstraint,
             UUID			conglomerateUUID,
             Properties		properties)
@@ -202,6 +213,7 @@ class CreateIndexConstantAction extends IndexConstantAction
 		this.indexType                  = indexType;
 		this.columnNames                = columnNames;
 		this.isAscending                = isAscending;
+		this.numberOfOrderedColumns     = numberOfOrderedColumns;
 		this.isConstraint               = isConstraint;
 		this.conglomerateUUID           = conglomerateUUID;
 		this.properties                 = properties;
@@ -256,6 +268,7 @@ class CreateIndexConstantAction extends IndexConstantAction
 		this.indexType = irg.indexType();
 		this.columnNames = srcCD.getColumnNames();
 		this.isAscending = irg.isAscending();
+		this.numberOfOrderedColumns = irg.numberOfOrderedColumns();
 		this.isConstraint = srcCD.isConstraint();
 		this.conglomerateUUID = srcCD.getUUID();
 		this.properties = properties;
@@ -508,6 +521,7 @@ class CreateIndexConstantAction extends IndexConstantAction
             boolean possibleShare =
                     (irg.isUnique() || !unique) &&
                     (bcps.length == baseColumnPositions.length) &&
+                    (irg.numberOfOrderedColumns() == numberOfOrderedColumns) &&
                     !hasDeferrableChecking;
 
 			//check if existing index is non unique and uniqueWithDuplicateNulls
@@ -575,7 +589,7 @@ class CreateIndexConstantAction extends IndexConstantAction
                         false, // deferrable indexes are not shared
 						baseColumnPositions,
 						isAscending,
-						baseColumnPositions.length);
+						numberOfOrderedColumns);
 
 				//DERBY-655 and DERBY-1343  
 				// Sharing indexes will have unique logical conglomerate UUIDs.
@@ -653,9 +667,10 @@ class CreateIndexConstantAction extends IndexConstantAction
 
 		// All indexes are unique because they contain the RowLocation.
 		// The number of uniqueness columns must include the RowLocation
-		// if the user did not specify a unique index.
+		// if the user did not specify a unique index. INCLUDE columns are
+		// not part of the key of a unique index.
 		indexProperties.put("nUniqueColumns",
-					Integer.toString(unique ? baseColumnPositions.length :
+					Integer.toString(unique ? numberOfOrderedColumns :
 												baseColumnPositions.length + 1)
 							);
 		// By convention, the row location column is the last column
@@ -666,7 +681,7 @@ class CreateIndexConstantAction extends IndexConstantAction
 		indexProperties.put("nKeyFields",
 							Integer.toString(baseColumnPositions.length + 1));
 
-		// For now, assume that all index columns are ordered columns
+		// The key columns are ordered, the INCLUDE columns follow them
 		if (! shareExisting)
 		{
             if (dd.checkVersion(DataDictionary.DD_VERSION_DERBY_10_4, null))
@@ -680,7 +695,7 @@ class CreateIndexConstantAction extends IndexConstantAction
                          constraintType != DataDictionary.FOREIGNKEY_CONSTRAINT),
                         baseColumnPositions,
                         isAscending,
-                        baseColumnPositions.length);
+                        numberOfOrderedColumns);
 			}
 			else 
             {
@@ -692,7 +707,7 @@ class CreateIndexConstantAction extends IndexConstantAction
                                             false,
                                             baseColumnPositions,
                                             isAscending,
-                                            baseColumnPositions.length);
+                                            numberOfOrderedColumns);
 			}
 		}
 
@@ -835,7 +850,7 @@ class CreateIndexConstantAction extends IndexConstantAction
 
                 if (unique || uniqueDeferrable)
 				{
-                    numColumnOrderings = unique ? baseColumnPositions.length :
+                    numColumnOrderings = unique ? numberOfOrderedColumns :
                             baseColumnPositions.length + 1;
 
                     sortObserver = new UniqueIndexSortObserver(
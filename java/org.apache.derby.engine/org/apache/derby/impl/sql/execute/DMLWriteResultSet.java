@@ -24,6 +24,7 @@ package org.apache.derby.impl.sql.execute;
 import java.io.InputStream;
 import org.apache.derby.catalog.UUID;
 import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.iapi.services.daemon.IndexStatisticsDaemon;
 import org.apache.derby.iapi.services.io.FormatableBitSet;
 import org.apache.derby.iapi.services.io.StreamStorable;
 import org.apache.derby.iapi.sql.Activation;
@@ -158,6 +159,26 @@ abstract public class DMLWriteResultSet extends NoRowsResultSetImpl
 		return row;
 	}
 
+	/**
+	 * Count the rows modified by this statement in the target table, so that
+	 * the index statistics daemon can update the statistics of the table
+	 * once enough of its rows have changed.
+	 *
+	 * @exception StandardException		Thrown on error
+	 */
+	protected void countModifiedRows() throws StandardException
+	{
+		if (rowCount == 0 || constantAction.targetUUID == null)
+			return;
+
+		IndexStatisticsDaemon isd =
+			lcc.getDataDictionary().getIndexStatsRefresher(true);
+		if (isd != null)
+		{
+			isd.countModifications(lcc, constantAction.targetUUID, rowCount);
+		}
+	}
+
 	private void objectifyStreams(ExecRow row) throws StandardException 
 	{
 		// if the column is a streamStorable, we need to materialize the object
@@ -165,6 +165,8 @@ class DeleteResultSet extends DMLWriteResultSet
 			savedSource = source;
 		}
 
+		countModifiedRows();
+
 		cleanUp();
 		endTime = getCurrentTimeMillis();
 
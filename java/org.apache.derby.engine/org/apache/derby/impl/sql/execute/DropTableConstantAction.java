@@ -261,6 +261,9 @@ class DropTableConstantAction extends DDLSingleTableConstantAction
 			}
 		}
 
+		// drop the statistics of column groups, which belong to no index
+		dd.dropStatisticsDescriptors(td.getUUID(), null, tc);
+
 		/* Prepare all dependents to invalidate.  (This is there chance
 		 * to say that they can't be invalidated.  For example, an open
 		 * cursor referencing a table/view that the user is attempting to
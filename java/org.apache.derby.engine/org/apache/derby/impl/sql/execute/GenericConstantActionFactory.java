@@ -129,6 +129,9 @@ public class GenericConstantActionFactory
 	 *  	will be updated/dropped. This param is looked at only if 
 	 *  	updateStatisticsAll/dropStatisticsAll is set to false and
 	 *  	updateStatistics/dropStatistics is set to true.
+	 *  @param columnGroupForStatistics	Positions of the columns of the
+	 *  	column group whose statistics will be updated/dropped, or null
+	 *  	if the statistics are those of indexes.
 	 *  .
 	 */
 	public	ConstantAction	getAlterTableConstantAction
@@ -153,7 +156,8 @@ public class GenericConstantActionFactory
 		boolean						updateStatisticsAll,
 		boolean						dropStatistics,
 		boolean						dropStatisticsAll,
-		String						indexNameForStatistics
+		String						indexNameForStatistics,
+		int[]						columnGroupForStatistics
     )
 	{
 		return new	AlterTableConstantAction( sd, tableName, tableId, tableConglomerateId, 
@@ -165,7 +169,8 @@ public class GenericConstantActionFactory
 											  updateStatisticsAll,
 											  dropStatistics, 
 											  dropStatisticsAll,
-											  indexNameForStatistics);
+											  indexNameForStatistics,
+											  columnGroupForStatistics);
 	}
 
 	/**
@@ -241,6 +246,8 @@ public class GenericConstantActionFactory
      * @param tableId		UUID of table.
      * @param columnNames	Names of the columns in the index, in order
      * @param isAscending	Array of booleans telling asc/desc on each column
+     * @param numberOfOrderedColumns	Number of key columns, the remaining
+     *                                  columns are INCLUDE columns
      * @param isConstraint	TRUE if index is backing up a constraint, else FALSE
      * @param conglomerateUUID	ID of conglomerate
      * @param properties	The optional properties list associated with the index.
@@ -260,6 +267,7 @@ public class GenericConstantActionFactory
 		UUID			tableId,
 		String[]		columnNames,
 		boolean[]		isAscending,
+		int				numberOfOrderedColumns,
 		boolean			isConstraint,
 		UUID			conglomerateUUID,
 		Properties		properties
@@ -279,6 +287,7 @@ public class GenericConstantActionFactory
             tableId,
             columnNames,
             isAscending,
+            numberOfOrderedColumns,
             isConstraint,
             conglomerateUUID,
             properties);
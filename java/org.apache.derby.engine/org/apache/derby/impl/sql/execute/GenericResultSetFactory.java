@@ -892,6 +892,72 @@ public class GenericResultSetFactory implements ResultSetFactory
 								optimizerEstimatedCost);
 	}
 
+	/**
+		Skip scan that returns the first row for each distinct value of
+		the leading skipColumns columns of an index.
+
+		@see ResultSetFactory#getSkipScanResultSet
+		@exception StandardException thrown on error
+	 */
+	public NoPutResultSet getSkipScanResultSet(
+									Activation activation,
+									long conglomId,
+									int scociItem,
+									int resultRowTemplate,
+									int resultSetNumber,
+									GeneratedMethod startKeyGetter,
+									int startSearchOperator,
+									GeneratedMethod stopKeyGetter,
+									int stopSearchOperator,
+									boolean sameStartStopPosition,
+									Qualifier[][] qualifiers,
+									String tableName,
+									String userSuppliedOptimizerOverrides,
+									String indexName,
+									boolean isConstraint,
+									boolean forUpdate,
+									int colRefItem,
+									int indexColItem,
+									int lockMode,
+									boolean tableLocked,
+									int isolationLevel,
+									boolean oneRowScan,
+									double optimizerEstimatedRowCount,
+									double optimizerEstimatedCost,
+									int skipColumns)
+			throws StandardException
+	{
+		StaticCompiledOpenConglomInfo scoci = (StaticCompiledOpenConglomInfo)
+			activation.getPreparedStatement().getSavedObject(scociItem);
+
+		return new SkipScanResultSet(
+								conglomId,
+								scoci,
+								activation,
+								resultRowTemplate,
+								resultSetNumber,
+								startKeyGetter,
+								startSearchOperator,
+								stopKeyGetter,
+								stopSearchOperator,
+								sameStartStopPosition,
+								qualifiers,
+								tableName,
+								userSuppliedOptimizerOverrides,
+								indexName,
+								isConstraint,
+								forUpdate,
+								colRefItem,
+								indexColItem,
+								lockMode,
+								tableLocked,
+								isolationLevel,
+								oneRowScan,
+								optimizerEstimatedRowCount,
+								optimizerEstimatedCost,
+								skipColumns);
+	}
+
 	/**
 		@see ResultSetFactory#getIndexRowToBaseRowResultSet
 		@exception StandardException	Thrown on error
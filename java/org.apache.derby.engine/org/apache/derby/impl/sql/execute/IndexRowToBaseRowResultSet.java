@@ -434,6 +434,7 @@ class IndexRowToBaseRowResultSet extends NoPutResultSetImpl
 				baseRowLocation = null;
 
 				retval = null;
+				informOfCardinality(rowsSeen - rowsFiltered);
 			}
 	    } 
 		while ( (sourceRow != null) && (! restrict ) );
@@ -459,6 +459,8 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
 			savedSource = sourceResultSet;
 		}
 
+		countModifiedRows();
+
 		cleanUp();
 
 		saveAIcacheInformation(constants.getSchemaName(), 
@@ -1679,7 +1681,7 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
             if (indDes.isUnique() || indDes.isUniqueDeferrable())
             {
                 numColumnOrderings =
-                        indDes.isUnique() ? baseColumnPositions.length :
+                        indDes.isUnique() ? indDes.numberOfOrderedColumns() :
                         baseColumnPositions.length + 1;
 
 				sortObserver = 
@@ -1725,7 +1727,8 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
 													 reuseWrappers);
 			}
 			ordering[index] = new ColumnOrdering[numColumnOrderings];
-			for (int ii =0; ii < isAscending.length; ii++) 
+			for (int ii =0;
+				 ii < isAscending.length && ii < numColumnOrderings; ii++) 
 			{
 				ordering[index][ii] = new IndexColumnOrder(ii, isAscending[ii]);
 			}
@@ -1828,8 +1831,10 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
 			properties.put("baseConglomerateId", Long.toString(newHeapConglom));
 			if (cd.getIndexDescriptor().isUnique())
 			{
+				// INCLUDE columns are not part of the unique key
 				properties.put("nUniqueColumns", 
-							   Integer.toString(indexRowLength - 1));
+							   Integer.toString(
+								   cd.getIndexDescriptor().numberOfOrderedColumns()));
 			}
 			else
 			{
@@ -2214,7 +2219,7 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
             if (indDes.isUnique() || indDes.isUniqueDeferrable())
 			{
                 numColumnOrderings =
-                        indDes.isUnique() ? baseColumnPositions.length :
+                        indDes.isUnique() ? indDes.numberOfOrderedColumns() :
                         baseColumnPositions.length + 1;
 
 				String indexOrConstraintName = cd.getConglomerateName();
@@ -2254,7 +2259,8 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
 													 true);
 			}
             order[index] = new ColumnOrdering[numColumnOrderings];
-			for (int ii =0; ii < isAscending.length; ii++) 
+			for (int ii =0;
+				 ii < isAscending.length && ii < numColumnOrderings; ii++) 
 			{
                 order[index][ii] = new IndexColumnOrder(ii, isAscending[ii]);
 			}
@@ -2323,8 +2329,10 @@ class InsertResultSet extends DMLWriteGeneratedColumnsResultSet implements Targe
 			properties.put("baseConglomerateId", Long.toString(newHeapConglom));
 			if (cd.getIndexDescriptor().isUnique())
 			{
+				// INCLUDE columns are not part of the unique key
 				properties.put("nUniqueColumns", 
-							   Integer.toString(indexRowLength - 1));
+							   Integer.toString(
+								   cd.getIndexDescriptor().numberOfOrderedColumns()));
 			}
 			else
 			{
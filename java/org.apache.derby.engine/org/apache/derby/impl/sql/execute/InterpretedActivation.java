@@ -0,0 +1,147 @@
+/*
+
+   Derby - Class org.apache.derby.impl.sql.execute.InterpretedActivation
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.sql.execute;
+
+import java.lang.invoke.MethodHandles;
+import org.apache.derby.iapi.services.loader.InterpretedByteCode;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
+import org.apache.derby.iapi.sql.ResultSet;
+import org.apache.derby.iapi.sql.execute.CursorResultSet;
+import org.apache.derby.shared.common.error.StandardException;
+
+/**
+	A pre-compiled activation that stands in for an activation class
+	whose methods are interpreted, until the statement has been executed
+	often enough for the class to be generated as byte code.
+	<P>
+	Each method that a generated activation class may define is handed
+	to the interpreter if the interpreted class defines it.
+
+	@see InterpretedCursorActivation
+ */
+public final class InterpretedActivation extends BaseActivation
+	implements InterpretedByteCode
+{
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/** fields of the interpreted class */
+	private Object[] fields;
+
+	public void setFields(Object[] fields) {
+		this.fields = fields;
+	}
+
+	public Object[] getFields() {
+		return fields;
+	}
+
+	public MethodHandles.Lookup getLookup() {
+		return LOOKUP;
+	}
+
+	private InterpretedClass interpreted() {
+		return (InterpretedClass) getGC();
+	}
+
+	/**
+	 * Interpret a method of the class that cannot throw checked
+	 * exceptions, where the generated code would not throw any.
+	 */
+	private Object interpretGetter(String methodName) {
+		try {
+			return interpreted().invoke(this, methodName);
+		} catch (StandardException se) {
+			throw new IllegalStateException(se);
+		}
+	}
+
+	public void postConstructor() throws StandardException {
+		if (interpreted().definesMethod("postConstructor"))
+			interpreted().invoke(this, "postConstructor");
+	}
+
+	protected ResultSet createResultSet() throws StandardException {
+		return (ResultSet) interpreted().invoke(this, "createResultSet");
+	}
+
+	protected void reinit() throws StandardException {
+		if (interpreted().definesMethod("reinit"))
+			interpreted().invoke(this, "reinit");
+		else
+			super.reinit();
+	}
+
+	public void reset() throws StandardException {
+		if (interpreted().definesMethod("reset"))
+			interpreted().invoke(this, "reset");
+		else
+			super.reset();
+	}
+
+	protected void closeActivationAction() throws Exception {
+		if (interpreted().definesMethod("closeActivationAction"))
+			interpreted().invoke(this, "closeActivationAction");
+		else
+			super.closeActivationAction();
+	}
+
+	public CursorResultSet getTargetResultSet() {
+		if (interpreted().definesMethod("getTargetResultSet"))
+			return (CursorResultSet) interpretGetter("getTargetResultSet");
+		return super.getTargetResultSet();
+	}
+
+	public CursorResultSet getCursorResultSet() {
+		if (interpreted().definesMethod("getCursorResultSet"))
+			return (CursorResultSet) interpretGetter("getCursorResultSet");
+		return super.getCursorResultSet();
+	}
+
+	public java.sql.ResultSet[][] getDynamicResults() {
+		if (interpreted().definesMethod("getDynamicResults"))
+			return (java.sql.ResultSet[][]) interpretGetter("getDynamicResults");
+		return super.getDynamicResults();
+	}
+
+	public int getMaxDynamicResults() {
+		if (interpreted().definesMethod("getMaxDynamicResults"))
+			return ((Integer) interpretGetter("getMaxDynamicResults")).intValue();
+		return super.getMaxDynamicResults();
+	}
+
+	public Object e0() throws StandardException { return e("e0"); }
+	public Object e1() throws StandardException { return e("e1"); }
+	public Object e2() throws StandardException { return e("e2"); }
+	public Object e3() throws StandardException { return e("e3"); }
+	public Object e4() throws StandardException { return e("e4"); }
+	public Object e5() throws StandardException { return e("e5"); }
+	public Object e6() throws StandardException { return e("e6"); }
+	public Object e7() throws StandardException { return e("e7"); }
+	public Object e8() throws StandardException { return e("e8"); }
+	public Object e9() throws StandardException { return e("e9"); }
+
+	private Object e(String methodName) throws StandardException {
+		if (interpreted().definesMethod(methodName))
+			return interpreted().invoke(this, methodName);
+		return null;
+	}
+}
@@ -32,7 +32,10 @@ import org.apache.derby.shared.common.reference.SQLState;
 import org.apache.derby.shared.common.util.ArrayUtil;
 import org.apache.derby.iapi.services.io.Formatable;
 import org.apache.derby.iapi.services.io.StoredFormatIds;
+import org.apache.derby.iapi.services.loader.GeneratedClass;
 import org.apache.derby.iapi.services.loader.GeneratedMethod;
+import org.apache.derby.iapi.services.loader.InterpretedByteCode;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
 import org.apache.derby.iapi.sql.ResultDescription;
 import org.apache.derby.iapi.sql.ResultSet;
 import org.apache.derby.iapi.sql.execute.ConstantAction;
@@ -161,21 +164,36 @@ public class MatchingClauseConstantAction implements ConstantAction, Formatable
             activation.pushConstantAction( _thenAction );
 
             try {
-                //
-                // Poke the temporary table into the variable which will be pushed as
-                // an argument to the INSERT/UPDATE/DELETE action.
-                //
-                Field   resultSetField = activation.getClass().getField( _resultSetFieldName );
-                resultSetField.set( activation, sourceRS );
-
-                Activation  cursorActivation = sourceRS.getActivation();
-
-                //
-                // Now execute the generated method which creates an InsertResultSet,
-                // UpdateResultSet, or DeleteResultSet.
-                //
-                Method  actionMethod = activation.getClass().getMethod( _actionMethodName );
-                _actionRS = (ResultSet) actionMethod.invoke( activation, null );
+                GeneratedClass  gc = ((BaseActivation) activation).getGC();
+
+                if ( gc instanceof InterpretedClass )
+                {
+                    //
+                    // The activation class is interpreted, so its fields and
+                    // methods are not there to reflect on. Ask the interpreter.
+                    //
+                    InterpretedClass    ic = (InterpretedClass) gc;
+                    InterpretedByteCode ref = (InterpretedByteCode) activation;
+
+                    ic.setField( ref, _resultSetFieldName, sourceRS );
+                    _actionRS = (ResultSet) ic.invoke( ref, _actionMethodName );
+                }
+                else
+                {
+                    //
+                    // Poke the temporary table into the variable which will be pushed as
+                    // an argument to the INSERT/UPDATE/DELETE action.
+                    //
+                    Field   resultSetField = activation.getClass().getField( _resultSetFieldName );
+                    resultSetField.set( activation, sourceRS );
+
+                    //
+                    // Now execute the generated method which creates an InsertResultSet,
+                    // UpdateResultSet, or DeleteResultSet.
+                    //
+                    Method  actionMethod = activation.getClass().getMethod( _actionMethodName );
+                    _actionRS = (ResultSet) actionMethod.invoke( activation, null );
+                }
             }
             catch (Exception e) { throw StandardException.plainWrapException( e ); }
 
@@ -330,6 +330,7 @@ class ProjectRestrictResultSet extends NoPutResultSetImpl
 		else
 		{
 			clearCurrentRow();
+			informOfCardinality(rowsSeen - rowsFiltered);
 		}
 
 
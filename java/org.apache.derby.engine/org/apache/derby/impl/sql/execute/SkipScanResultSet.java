@@ -0,0 +1,229 @@
+/*
+
+   Derby - Class org.apache.derby.impl.sql.execute.SkipScanResultSet
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.sql.execute;
+
+import java.util.Properties;
+
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.i18n.MessageService;
+import org.apache.derby.shared.common.reference.SQLState;
+import org.apache.derby.shared.common.sanity.SanityManager;
+import org.apache.derby.iapi.services.loader.GeneratedMethod;
+
+import org.apache.derby.iapi.store.access.Qualifier;
+import org.apache.derby.iapi.store.access.ScanController;
+import org.apache.derby.iapi.store.access.StaticCompiledOpenConglomInfo;
+
+import org.apache.derby.iapi.sql.Activation;
+import org.apache.derby.iapi.sql.execute.CursorResultSet;
+import org.apache.derby.iapi.sql.execute.ExecRow;
+
+import org.apache.derby.iapi.types.DataValueDescriptor;
+
+// These are for javadoc "@see" tags.
+import org.apache.derby.iapi.sql.execute.NoPutResultSet;
+import org.apache.derby.iapi.sql.execute.ResultSetFactory;
+
+/**
+ * Result set that reads only the first row of each group of index rows
+ * with the same values in the leading skipColumns columns. After a row
+ * has been returned, the next call to getNextRowCore() repositions the
+ * scan on the first row whose leading columns are greater than those of
+ * the returned row (in index order), so the rest of the group is never
+ * read.
+ *
+ * This is used for DISTINCT and GROUP BY on the leading columns of an
+ * index with few distinct values. Each reposition searches the index from
+ * the root, so the cost is proportional to the number of groups rather
+ * than to the number of rows.
+ *
+ * Most of the work for this class is inherited from TableScanResultSet.
+ */
+class SkipScanResultSet extends TableScanResultSet
+    implements CursorResultSet
+{
+    /** Number of leading index columns that identify a group. */
+    private final int skipColumns;
+
+    /** Leading columns of the last row returned, used as start key. */
+    private DataValueDescriptor[] skipKey;
+
+    /** Whether the scan must skip past skipKey before reading again. */
+    private boolean skipPending;
+
+    /**
+     * Constructor.  Just save off the number of skip columns and pass
+     * everything else up to TableScanResultSet.
+     *
+     * @see ResultSetFactory#getSkipScanResultSet
+     * @exception StandardException thrown on failure to open
+     */
+    SkipScanResultSet(long conglomId,
+        StaticCompiledOpenConglomInfo scoci, Activation activation,
+        int resultRowTemplate,
+        int resultSetNumber,
+        GeneratedMethod startKeyGetter, int startSearchOperator,
+        GeneratedMethod stopKeyGetter, int stopSearchOperator,
+        boolean sameStartStopPosition,
+        Qualifier[][] qualifiers,
+        String tableName,
+        String userSuppliedOptimizerOverrides,
+        String indexName,
+        boolean isConstraint,
+        boolean forUpdate,
+        int colRefItem,
+        int indexColItem,
+        int lockMode,
+        boolean tableLocked,
+        int isolationLevel,
+        boolean oneRowScan,
+        double optimizerEstimatedRowCount,
+        double optimizerEstimatedCost,
+        int skipColumns)
+            throws StandardException
+    {
+        /* Note: We use '1' as rows per read because bulk fetching would
+         * read the rows that we want to skip.
+         */
+        super(conglomId,
+            scoci,
+            activation,
+            resultRowTemplate,
+            resultSetNumber,
+            startKeyGetter,
+            startSearchOperator,
+            stopKeyGetter,
+            stopSearchOperator,
+            sameStartStopPosition,
+            qualifiers,
+            tableName,
+            userSuppliedOptimizerOverrides,
+            indexName,
+            isConstraint,
+            forUpdate,
+            colRefItem,
+            indexColItem,
+            lockMode,
+            tableLocked,
+            isolationLevel,
+            1, // rowsPerRead
+            oneRowScan,
+            optimizerEstimatedRowCount,
+            optimizerEstimatedCost);
+
+        if (SanityManager.DEBUG)
+        {
+            SanityManager.ASSERT(skipColumns > 0,
+                "No skip columns found for skip scan.");
+        }
+
+        this.skipColumns = skipColumns;
+        this.skipKey = new DataValueDescriptor[skipColumns];
+    }
+
+    /**
+     * @see NoPutResultSet#openCore
+     */
+    public void openCore() throws StandardException
+    {
+        skipPending = false;
+        super.openCore();
+    }
+
+    /**
+     * @see NoPutResultSet#reopenCore
+     */
+    public void reopenCore() throws StandardException
+    {
+        skipPending = false;
+        super.reopenCore();
+    }
+
+    /**
+     * Return the first row of the next group (if any) from the scan.
+     *
+     * @exception StandardException thrown on failure to get next row
+     */
+    public ExecRow getNextRowCore() throws StandardException
+    {
+        if( isXplainOnlyMode() )
+            return null;
+
+        if (skipPending && scanControllerOpened)
+        {
+            skipToNextGroup();
+        }
+        skipPending = false;
+
+        ExecRow result = super.getNextRowCore();
+
+        if (result != null)
+        {
+            /* The candidate row holds the full index row, so the leading
+             * columns are always at the front, whatever the projection.
+             */
+            DataValueDescriptor[] row = candidate.getRowArray();
+            for (int i = 0; i < skipColumns; i++)
+            {
+                skipKey[i] = row[i].cloneValue(false);
+            }
+            skipPending = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reposition the scan on the first row after the group of the last
+     * row returned. Two NULLs compare equal when positioning in a btree,
+     * so rows with NULL leading columns are grouped the same way as
+     * DISTINCT and GROUP BY group them.
+     */
+    private void skipToNextGroup() throws StandardException
+    {
+        DataValueDescriptor[] stopPositionRow =
+            stopPosition == null ? null : stopPosition.getRowArray();
+
+        // Count the rows of all groups as part of the same scan.
+        long rows = rowsThisScan;
+        scanController.reopenScan(
+                        skipKey,
+                        ScanController.GT,
+                        qualifiers,
+                        stopPositionRow,
+                        stopSearchOperator);
+        rowsThisScan = rows;
+    }
+
+    /**
+     * Add the number of skip columns to the scan properties shown in the
+     * runtime statistics.
+     */
+    public Properties getScanProperties()
+    {
+        Properties props = super.getScanProperties();
+        props.put(
+            MessageService.getTextMessage(SQLState.RTS_SKIP_SCAN_COLUMNS),
+            Integer.toString(skipColumns));
+        return props;
+    }
+}
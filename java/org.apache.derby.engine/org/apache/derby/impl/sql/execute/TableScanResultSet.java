@@ -543,6 +543,7 @@ class TableScanResultSet extends ScanResultSet
 				{
 					setRowCountIfPossible(rowsThisScan);
 					currentRow = null;
+					informOfCardinality(rowsSeen - rowsFiltered);
 				}
 			}
 	    }
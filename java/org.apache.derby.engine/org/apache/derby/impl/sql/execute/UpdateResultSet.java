@@ -296,6 +296,7 @@ class UpdateResultSet extends DMLWriteGeneratedColumnsResultSet
 
 		saveAIcacheInformation(constants.getSchemaName(), 
 			constants.getTableName(), constants.getColumnNames());
+		countModifiedRows();
 		cleanUp();
     }
 
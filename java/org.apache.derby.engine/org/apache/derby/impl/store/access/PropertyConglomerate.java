@@ -141,6 +141,11 @@ class PropertyConglomerate
                 RawStoreFactory.PAGE_RESERVED_SPACE_PARAMETER, 
                 RawStoreFactory.PAGE_RESERVED_ZERO_SPACE_STRING);
 
+            // the properties are not available yet to look up whether pages
+            // should be compressed, and the property conglomerate is small.
+			conglomProperties.put(
+                RawStoreFactory.PAGE_COMPRESSION_PARAMETER, "false");
+
 			propertiesConglomId = 
                 tc.createConglomerate(
                     AccessFactoryGlobals.HEAP,
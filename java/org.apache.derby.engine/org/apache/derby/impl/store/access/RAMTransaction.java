@@ -53,6 +53,7 @@ import org.apache.derby.iapi.store.access.FileResource;
 import org.apache.derby.iapi.store.access.GroupFetchScanController;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowLocationRetRowSource;
+import org.apache.derby.iapi.store.access.SampleObserver;
 import org.apache.derby.iapi.store.access.ScanController;
 import org.apache.derby.iapi.store.access.SortController;
 import org.apache.derby.iapi.store.access.SortCostController;
@@ -1457,6 +1458,48 @@ public class RAMTransaction
 		return;
     }
 
+    /**
+     * Reorganize the conglomerate while it stays available for updates.
+     * <p>
+     * Merges under-filled pages of a btree conglomerate, the pages freed can
+     * be returned to the OS by compressConglomerate().
+     * <p>
+     *
+     * @param conglomId Id of the conglomerate to reorganize.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public void reorganizeConglomerate(
+    long    conglomId)
+        throws StandardException
+    {
+        findExistingConglomerate(conglomId).reorganizeConglomerate(
+            this, 
+            rawtran); 
+
+		return;
+    }
+
+    /**
+     * Estimate the number of rows and distinct keys of a conglomerate from a
+     * random sample of its pages.
+     * <p>
+     * @see TransactionController#sampleConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public long sampleConglomerate(
+    long            conglomId,
+    int             samplePages,
+    long[]          cardinality,
+    SampleObserver  observer)
+        throws StandardException
+    {
+        return(
+            findExistingConglomerate(conglomId).sampleConglomerate(
+                this, rawtran, samplePages, cardinality, observer));
+    }
+
     /**
      * Compress table in place.
      * <p>
@@ -2162,6 +2205,14 @@ public class RAMTransaction
                 requiredMajorVersion, requiredMinorVersion, feature));
     }
 
+    /**
+     * @see TransactionManager#hasPreparedRecoveredXact
+     */
+    public boolean hasPreparedRecoveredXact()
+    {
+        return(accessmanager.getRawStore().hasPreparedRecoveredXact());
+    }
+
     /**
      * The ConglomerateController.close() method has been called on 
      * "conglom_control".
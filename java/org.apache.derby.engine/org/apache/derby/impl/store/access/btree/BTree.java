@@ -411,7 +411,9 @@ public abstract class BTree extends GenericConglomerate
     used to check for uniqueness.  So for a standard SQL non-unique index 
     implementation set "nUniqueColumns" to the same value as "nKeyFields"; and
     for a unique index set "nUniqueColumns" to "nKeyFields" - 1 (ie. don't 
-    include the rowLocationColumn in the uniqueness check).
+    include the rowLocationColumn in the uniqueness check), or less if the
+    columns before the rowLocationColumn end with columns which are not
+    part of the unique key.
     This property is required.
     <LI>"maintainParentLinks" (boolean)
     Whether the b-tree pages maintain the page number of their parent.  Only
@@ -505,8 +507,7 @@ public abstract class BTree extends GenericConglomerate
 					") expected to equal nKeyFields (" + 
 					nKeyFields + ")");
 			}
-            SanityManager.ASSERT((nUniqueColumns == nKeyFields) || 
-                                 (nUniqueColumns == (nKeyFields - 1)));
+            SanityManager.ASSERT(nUniqueColumns <= nKeyFields);
         }
 
         // get format id's from each column in template and store it in the
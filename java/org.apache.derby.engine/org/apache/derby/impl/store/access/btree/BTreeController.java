@@ -434,6 +434,7 @@ public class BTreeController extends OpenBTree implements ConglomerateController
             }
             rh = leaf.page.fetchFromSlot(null, slot, rows, null, true);
             if (rh != null) {
+                leaf.restoreKeyPrefix(this, rows);
                 int ret = compareRowsForInsert(rows, oldRows, leaf, slot);
 
                 // If we found a deleted row, we don't know whether there
@@ -515,6 +516,7 @@ public class BTreeController extends OpenBTree implements ConglomerateController
             }
             rh = leaf.page.fetchFromSlot(null, slot, rows, null, true);
             if (rh != null) {
+                leaf.restoreKeyPrefix(this, rows);
                 int ret =  compareRowsForInsert(rows, oldRows, leaf, slot);
 
                 // If we found a deleted row, we don't know whether there
@@ -824,14 +826,13 @@ public class BTreeController extends OpenBTree implements ConglomerateController
 
                         break;
                     }
-                    else if (this.getConglomerate().nUniqueColumns == 
-                             (this.getConglomerate().nKeyFields - 1))
+                    else if (this.getConglomerate().nUniqueColumns < 
+                             this.getConglomerate().nKeyFields)
                     {
                         // The row that we found deleted has matching keys
                         // which form the unique key fields,
-                        // but the nonkey fields may differ (for now the
-                        // heap rowlocation is the only nonkey field 
-                        // allowed).
+                        // but the nonkey fields may differ (the INCLUDE
+                        // columns of the index and the heap rowlocation).
                         
                         // RESOLVE BT39 (mikem) - when/if heap row location
                         // is not fixed we must handle update failing for
@@ -869,17 +870,23 @@ public class BTreeController extends OpenBTree implements ConglomerateController
                             {
                                 // There are no collated types in the BTree,
                                 // which means that the values currently
-                                // stored in the undeleted row are correct.
-                                // We simply update the row location to point
-                                // to the correct row in the heap.
-                                int rowloc_index =
-                                        this.getConglomerate().nKeyFields - 1;
-                                targetleaf.page.updateFieldAtSlot(
-                                    insert_slot, rowloc_index, 
-                                    (DataValueDescriptor) RowUtil.getColumn(
-                                        rowToInsert, 
-                                        (FormatableBitSet) null, rowloc_index),
-                                    this.btree_undo);
+                                // stored in the unique key fields of the
+                                // undeleted row are correct.  We simply
+                                // update the nonkey fields, ending with the
+                                // row location to point to the correct row
+                                // in the heap.
+                                int rowsToUpdate =
+                                        this.getConglomerate().nKeyFields;
+                                for (int i = this.getConglomerate().nUniqueColumns;
+                                     i < rowsToUpdate; i++)
+                                {
+                                    targetleaf.page.updateFieldAtSlot(
+                                        insert_slot, i, 
+                                        (DataValueDescriptor) RowUtil.getColumn(
+                                            rowToInsert, 
+                                            (FormatableBitSet) null, i),
+                                        this.btree_undo);
+                                }
                             }
                         }
                         catch (StandardException se)
@@ -937,7 +944,8 @@ public class BTreeController extends OpenBTree implements ConglomerateController
 
                 if (targetleaf.page.insertAtSlot(
                         insert_slot, 
-                        rowToInsert, (FormatableBitSet) null,
+                        targetleaf.stripKeyPrefix(this, rowToInsert),
+                        (FormatableBitSet) null,
                         this.btree_undo,
                         Page.INSERT_DEFAULT,
 						AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD) != null)
@@ -1048,13 +1056,18 @@ public class BTreeController extends OpenBTree implements ConglomerateController
 
     /**
      * Just insert the row on the current page/slot if it fits.
+     * <p>
+     * The row is considered not to fit if the page is already filled up to
+     * the fill factor of the btree, so that the load leaves the requested
+     * amount of free space on each leaf for later inserts.
      * <p>
 	 * @exception  StandardException  Standard exception policy.
      **/
 	private boolean do_load_insert(
     DataValueDescriptor[]   rowToInsert,
     LeafControlRow          leaf,
-    int                     insert_slot)
+    int                     insert_slot,
+    int                     fill_factor)
         throws StandardException
 	{
 		LeafControlRow old_leaf         = null;
@@ -1071,7 +1084,9 @@ public class BTreeController extends OpenBTree implements ConglomerateController
             this.isIndexableRowConsistent(rowToInsert);
         }
 
-        if (num_rows_on_page < BTree.maxRowsPerPage)
+        if ((num_rows_on_page < BTree.maxRowsPerPage) &&
+            ((num_rows_on_page < 2) || 
+             (leaf.page.getPercentFull() < fill_factor)))
         {
             // By default maxRowsPerPage is set to MAXINT, some tests
             // set it small to cause splitting to happen quicker with
@@ -1086,6 +1101,7 @@ public class BTreeController extends OpenBTree implements ConglomerateController
                     // verify that the row inserted is >= than previous row.
                     int compare_result =
                         ControlRow.compareIndexRowFromPageToKey(
+                            this,
                             leaf,
                             insert_slot - 1,
                             scratch_template,
@@ -1107,7 +1123,7 @@ public class BTreeController extends OpenBTree implements ConglomerateController
 
             if (leaf.page.insertAtSlot(
                     insert_slot, 
-                    rowToInsert, 
+                    leaf.stripKeyPrefix(this, rowToInsert), 
                     (FormatableBitSet) null, 
                     this.btree_undo,
                     Page.INSERT_DEFAULT,
@@ -1516,6 +1532,7 @@ public class BTreeController extends OpenBTree implements ConglomerateController
             current_leaf = 
                 (LeafControlRow) ControlRow.get(this, BTree.ROOTPAGEID);
             int current_insert_slot = 1;
+            int fill_factor         = getFillFactor();
 
             if (SanityManager.DEBUG)
             {
@@ -1540,7 +1557,9 @@ public class BTreeController extends OpenBTree implements ConglomerateController
 
                 while (true)
                 {
-                    if (do_load_insert(row, current_leaf, current_insert_slot))
+                    if (do_load_insert(
+                            row, current_leaf, current_insert_slot, 
+                            fill_factor))
                     {
                         // row inserted successfully.
                         break;
@@ -265,6 +265,7 @@ public class BTreeForwardScan extends BTreeScan
                         pos.current_slot, fetch_row, 
                         init_fetchDesc,
                         true);
+                pos.current_leaf.restoreKeyPrefix(this, fetch_row);
 
 
                 pos.current_rh_qualified = true;
@@ -394,6 +395,7 @@ public class BTreeForwardScan extends BTreeScan
                                 pos.current_slot, fetch_row, 
                                 init_fetchDesc,
                                 true);
+                            pos.current_leaf.restoreKeyPrefix(this, fetch_row);
 
                             latch_released =
                                 !this.getLockingPolicy().lockScanRow(
@@ -456,6 +456,7 @@ public class BTreeMaxScan extends BTreeScan
                         (RecordHandle) null,
                         pos.current_slot, fetch_row, init_fetchDesc,
                         true);
+                pos.current_leaf.restoreKeyPrefix(this, fetch_row);
 
                 // lock current row in max scan, no previous key lock necessary.
                 boolean latch_released =
@@ -319,6 +319,7 @@ class BTreePostCommit implements Serviceable
             slot_no, shrink_key, 
             (FetchDescriptor) null,
 			true);
+        control_row.restoreKeyPrefix(open_btree, shrink_key);
 
         return(shrink_key);
     }
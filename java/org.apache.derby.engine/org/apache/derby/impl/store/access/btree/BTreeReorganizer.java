@@ -0,0 +1,624 @@
+/*
+
+   Derby - Class org.apache.derby.impl.store.access.btree.BTreeReorganizer
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.store.access.btree;
+
+import org.apache.derby.shared.common.error.StandardException;
+
+import org.apache.derby.iapi.store.access.ConglomerateController;
+import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
+import org.apache.derby.iapi.store.access.RowUtil;
+import org.apache.derby.iapi.store.access.TransactionController;
+
+import org.apache.derby.iapi.store.access.conglomerate.LogicalUndo;
+import org.apache.derby.iapi.store.access.conglomerate.TransactionManager;
+
+import org.apache.derby.iapi.store.raw.ContainerHandle;
+import org.apache.derby.iapi.store.raw.FetchDescriptor;
+import org.apache.derby.iapi.store.raw.LockingPolicy;
+import org.apache.derby.iapi.store.raw.Page;
+import org.apache.derby.iapi.store.raw.RecordHandle;
+
+import org.apache.derby.iapi.types.DataValueDescriptor;
+
+/**
+
+The BTreeReorganizer defragments the leaf level of a btree while the btree
+remains available for reads and updates.
+<p>
+It walks the leaves from left to right, and merges a leaf into its left
+neighbor whenever the rows of both fit on one page within the fill factor
+of the btree.  Only neighbors which are children of the same branch page
+are merged, so that merging only has to remove the branch row pointing at
+the merged leaf, and the key range of the branch page itself never changes.
+<p>
+Each merge is done in its own short internal transaction which, like a
+split, only holds latches on the pages involved, in the usual top down, left
+to right order.  Before merging, committed deleted rows are purged from the
+two leaves, using the same row level checks as post commit processing, and
+the rows of the right leaf are locked without waiting, so that no leaf a
+transaction which has not committed yet may have to undo its changes on is
+freed.  This needs an intent lock on the base table without waiting, if it
+is not granted the step merges nothing.  Between
+merges all latches are released, and the walk continues from a saved key
+the same way a scan repositions, so concurrent splits, shrinks and merges
+of the btree are handled.
+
+**/
+
+public class BTreeReorganizer
+{
+    private final BTree             btree;
+
+    /**
+     * Key of the leaf to continue the walk at, null for the leftmost leaf.
+     **/
+    private DataValueDescriptor[]   next_key;
+
+    /**
+     * Can rows be locked in the current step, to purge committed deleted
+     * rows and to check that the rows of a leaf are committed?
+     **/
+    private boolean                 lock_rows;
+
+    /* Constructors for This class: */
+    public BTreeReorganizer(BTree btree)
+    {
+        this.btree = btree;
+    }
+
+    /* Public Methods of This class: */
+
+    /**
+     * Reorganize the btree.
+     * <p>
+     * The caller is expected to hold an intent lock on the base table for
+     * the whole reorganization, which keeps the table writable for others
+     * while preventing it from being dropped or altered.
+     * <p>
+     * Nothing is done while there are prepared transactions which recovery
+     * left in the transaction table.  Their locks were only taken again from
+     * the log at boot, so the leaves they may have to undo changes on are
+     * not relied on to be found by locking rows.
+     *
+     * @param xact_manager The user transaction, which starts the internal
+     *                     transactions each merge is done in.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public void reorganize(TransactionManager xact_manager)
+        throws StandardException
+    {
+        if (xact_manager.hasPreparedRecoveredXact())
+            return;
+
+        next_key = null;
+
+        boolean more_work = true;
+
+        while (more_work)
+        {
+            TransactionManager internal_xact =
+                xact_manager.getInternalTransaction();
+
+            OpenBTree open_btree = null;
+
+            try
+            {
+                open_btree = openIndex(internal_xact);
+
+                more_work = reorganizeStep(open_btree);
+
+                // Commit before closing the btree, the commit releases the
+                // latches on pages where rows have been purged, which must be
+                // held until the purges are committed.
+                internal_xact.commit();
+            }
+            finally
+            {
+                // On error closing the btree releases all latches, before
+                // destroy aborts the internal transaction.
+                if (open_btree != null)
+                    open_btree.close();
+
+                internal_xact.destroy();
+            }
+        }
+    }
+
+    /* Private/Protected methods of This class: */
+
+    /**
+     * Open the index in the internal transaction.
+     * <p>
+     * Try to get an intent lock on the base table without waiting, if
+     * granted rows can be locked, to purge committed deleted rows and to
+     * check the rows of a leaf before merging it away.  If not granted the
+     * index is opened without a locking policy for the base table, and the
+     * step neither purges nor merges.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private OpenBTree openIndex(TransactionManager internal_xact)
+        throws StandardException
+    {
+        OpenBTree               open_btree = new OpenBTree();
+        ConglomerateController  base_cc    = null;
+
+        try
+        {
+            base_cc =
+                btree.lockTable(
+                    internal_xact,
+                    (ContainerHandle.MODE_FORUPDATE |
+                     ContainerHandle.MODE_LOCK_NOWAIT),
+                    TransactionController.MODE_RECORD,
+                    TransactionController.ISOLATION_REPEATABLE_READ);
+        }
+        catch (StandardException se)
+        {
+            // Some other transaction holds a table level lock, and may have
+            // changed rows without locking them.
+            if (!se.isLockTimeoutOrDeadlock())
+                throw se;
+        }
+
+        lock_rows = (base_cc != null);
+
+        open_btree.init(
+            (TransactionManager) null,
+            internal_xact,
+            (ContainerHandle) null,           // open the container
+            internal_xact.getRawStoreXact(),
+            false,
+            (ContainerHandle.MODE_FORUPDATE | ContainerHandle.MODE_LOCK_NOWAIT),
+            TransactionController.MODE_RECORD,
+            btree.getBtreeLockingPolicy(
+                internal_xact.getRawStoreXact(),
+                TransactionController.MODE_RECORD,
+                LockingPolicy.MODE_RECORD,
+                TransactionController.ISOLATION_REPEATABLE_READ,
+                base_cc,
+                open_btree),
+            btree,
+            (LogicalUndo) null,              // No logical undo necessary.
+            (DynamicCompiledOpenConglomInfo) null);
+
+        return(open_btree);
+    }
+
+    /**
+     * Do one step of the walk over the leaves.
+     * <p>
+     * Search from the root for the branch page at level 1 holding the leaf
+     * for next_key, and try to merge that leaf with the leaf to its right.
+     * On return all latches which need not be held until commit have been
+     * released, and next_key has been set to the key of the leaf to continue
+     * at.
+     *
+	 * @return true if there is more work to do.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean reorganizeStep(OpenBTree open_btree)
+        throws StandardException
+    {
+        ControlRow parent = ControlRow.get(open_btree, BTree.ROOTPAGEID);
+
+        // A btree with a single leaf has nothing to merge.
+        if (parent.getLevel() == 0)
+        {
+            parent.release();
+            return(false);
+        }
+
+        BranchRow branch_template =
+            BranchRow.createEmptyTemplate(
+                open_btree.getRawTran(),
+                open_btree.getConglomerate());
+
+        try
+        {
+            int slot = findChildSlot(open_btree, parent, branch_template);
+
+            // Search down to the level above the leaves, always latching the
+            // child before releasing the parent.
+            while (parent.getLevel() > 1)
+            {
+                ControlRow child =
+                    ((BranchControlRow) parent).getChildPageAtSlot(
+                        open_btree, slot);
+
+                parent.release();
+                parent = child;
+
+                slot = findChildSlot(open_btree, parent, branch_template);
+            }
+
+            BranchControlRow leaf_parent = (BranchControlRow) parent;
+            parent = null;
+
+            return(
+                mergeChildren(
+                    open_btree, leaf_parent, slot, branch_template));
+        }
+        finally
+        {
+            if (parent != null)
+                parent.release();
+        }
+    }
+
+    /**
+     * Find the slot of the child of a branch page to search for next_key.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private int findChildSlot(
+    OpenBTree   open_btree,
+    ControlRow  branch,
+    BranchRow   branch_template)
+        throws StandardException
+    {
+        if (next_key == null)
+            return(0);
+
+        SearchParameters sp = new SearchParameters(
+            next_key,
+            SearchParameters.POSITION_LEFT_OF_PARTIAL_KEY_MATCH,
+            branch_template.getRow(), open_btree, false);
+
+        branch.searchForEntry(sp);
+
+        return(sp.resultSlot);
+    }
+
+    /**
+     * Try to merge the leaf at a slot of a branch page with the leaf at the
+     * next slot.
+     * <p>
+     * If the leaf is the last child of the branch page, no merge is
+     * attempted and the walk continues at the first row of the leaves to the
+     * right of it.  If rows can not be locked in this step, no merge is
+     * attempted and the walk continues at the right leaf.  Otherwise if
+     * committed deleted rows are purged from the
+     * leaves, the merge is retried by the next step, as a purged page must
+     * not receive rows before the purge is committed.  If the rows of both
+     * leaves fit on one page within the fill factor, the rows of the right
+     * leaf are moved to the left leaf, the right leaf is unlinked from its
+     * siblings and freed, and the branch row pointing at it is purged.  The
+     * walk then stays at the left leaf to try to merge it with its new right
+     * neighbor.  If the leaves do not fit on one page, their key prefixes
+     * can not be merged, or a row of the right leaf is locked by another
+     * transaction, the walk continues at the right leaf.  A transaction
+     * which has not committed yet holds the lock of each row it changed, and
+     * logical undo finds a moved row from the page it was changed on, so
+     * that page must not be freed.
+     * <p>
+     * The branch page is latched on entry.  On exit it is released, unless
+     * a branch row has been purged from it, then it stays latched until the
+     * commit so that no other transaction can use the space of the purged
+     * row before then.
+     *
+	 * @return true if there is more work to do.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean mergeChildren(
+    OpenBTree           open_btree,
+    BranchControlRow    parent,
+    int                 slot,
+    BranchRow           branch_template)
+        throws StandardException
+    {
+        ControlRow  leftleaf      = null;
+        ControlRow  rightleaf     = null;
+        ControlRow  rightsib      = null;
+        boolean     merged        = false;
+        boolean     left_purged   = false;
+        boolean     right_purged  = false;
+
+        try
+        {
+            leftleaf = parent.getChildPageAtSlot(open_btree, slot);
+
+            if (slot + 1 >= parent.page.recordCount())
+            {
+                next_key = getKeyRightOf(open_btree, leftleaf);
+
+                return(next_key != null);
+            }
+
+            rightleaf = parent.getChildPageAtSlot(open_btree, slot + 1);
+
+            if (lock_rows)
+            {
+                left_purged  =
+                    purgeRowLevelCommittedDeletes(open_btree, leftleaf);
+                right_purged =
+                    purgeRowLevelCommittedDeletes(open_btree, rightleaf);
+
+                if (left_purged || right_purged)
+                    return(true);
+            }
+
+            int num_rows = rightleaf.page.recordCount() - 1;
+
+            if (!lock_rows ||
+                (leftleaf.page.getPercentFull() +
+                    rightleaf.page.getPercentFull() >
+                        open_btree.getFillFactor()) ||
+                ((num_rows > 0) &&
+                    !leftleaf.page.spaceForCopy(rightleaf.page, 1, num_rows)) ||
+                !canMergeKeyPrefix(open_btree, parent, slot, leftleaf, rightleaf) ||
+                !lockLeafRows(open_btree, rightleaf))
+            {
+                // Leaves can not be merged, continue at the right leaf.
+                next_key = getBranchKey(open_btree, parent, slot + 1,
+                                        branch_template);
+
+                return(true);
+            }
+
+            if (num_rows > 0)
+            {
+                rightleaf.page.copyAndPurge(
+                    leftleaf.page, 1, num_rows, leftleaf.page.recordCount());
+
+                // Tell scans positioned on the right leaf to reposition
+                // because the rows they are positioned on have moved.
+                rightleaf.page.setRepositionNeeded();
+            }
+
+            // Unlink the right leaf, its right sibling is latched in the
+            // deadlock free left to right direction.
+            rightsib = rightleaf.getRightSibling(open_btree);
+
+            leftleaf.setRightSibling(rightsib);
+            if (rightsib != null)
+                rightsib.setLeftSibling(leftleaf);
+
+            parent.page.purgeAtSlot(slot + 1, 1, true);
+            merged = true;
+
+            // After removePage call the right leaf is unlatched, and should
+            // not be referenced anymore.
+            open_btree.container.removePage(rightleaf.page);
+            rightleaf = null;
+
+            return(true);
+        }
+        finally
+        {
+            // Pages with purged rows stay latched until the commit.
+            if (!merged)
+                parent.release();
+            if (leftleaf != null && !left_purged)
+                leftleaf.release();
+            if (rightleaf != null && !right_purged)
+                rightleaf.release();
+            if (rightsib != null)
+                rightsib.release();
+        }
+    }
+
+    /**
+     * Can the key prefixes of two leaves be merged?
+     * <p>
+     * On a prefix compressed btree the rows of the right leaf may leave out
+     * the columns of its key prefix, so the prefix of the left leaf must 
+     * start with the same values, and it must be shared by the keys of the
+     * range of the right leaf which the left leaf takes over.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean canMergeKeyPrefix(
+    OpenBTree           open_btree,
+    BranchControlRow    parent,
+    int                 slot,
+    ControlRow          leftleaf,
+    ControlRow          rightleaf)
+        throws StandardException
+    {
+        if (!open_btree.isPrefixCompressed())
+            return(true);
+
+        return(
+            leftleaf.sharesKeyPrefix(open_btree, rightleaf) &&
+            leftleaf.canGrowRange(open_btree, parent, slot, slot + 2));
+    }
+
+    /**
+     * Get the key of the first row in the leaves right of a leaf.
+     * <p>
+     * Empty leaves, which are waiting to be shrunk by post commit
+     * processing, are skipped.
+     *
+	 * @return the key, or null if there are no rows right of the leaf.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private DataValueDescriptor[] getKeyRightOf(
+    OpenBTree   open_btree,
+    ControlRow  leaf)
+        throws StandardException
+    {
+        ControlRow next_leaf = leaf.getRightSibling(open_btree);
+
+        try
+        {
+            while (next_leaf != null && next_leaf.page.recordCount() <= 1)
+            {
+                ControlRow right = next_leaf.getRightSibling(open_btree);
+                next_leaf.release();
+                next_leaf = right;
+            }
+
+            if (next_leaf == null)
+                return(null);
+
+            DataValueDescriptor[] key =
+                open_btree.getConglomerate().createTemplate(
+                    open_btree.getRawTran());
+
+            next_leaf.page.fetchFromSlot(
+                (RecordHandle) null, 1, key, (FetchDescriptor) null, true);
+            next_leaf.restoreKeyPrefix(open_btree, key);
+
+            return(key);
+        }
+        finally
+        {
+            if (next_leaf != null)
+                next_leaf.release();
+        }
+    }
+
+    /**
+     * Get the key of the branch row at a slot of a branch page.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private DataValueDescriptor[] getBranchKey(
+    OpenBTree           open_btree,
+    BranchControlRow    branch,
+    int                 slot,
+    BranchRow           branch_template)
+        throws StandardException
+    {
+        DataValueDescriptor[] row = branch_template.getRow();
+
+        branch.page.fetchFromSlot(
+            (RecordHandle) null, slot, row, (FetchDescriptor) null, true);
+        branch.restoreKeyPrefix(open_btree, row);
+
+        // The key is the branch row without the child page number.
+        DataValueDescriptor[] key =
+            new DataValueDescriptor[open_btree.getConglomerate().nKeyFields];
+
+        for (int i = 0; i < key.length; i++)
+            key[i] = row[i].cloneValue(false);
+
+        return(key);
+    }
+
+    /**
+     * Lock all rows of a leaf without waiting.
+     * <p>
+     * Each row is locked exclusively, as purging committed deleted rows
+     * does, and the locks are held until the internal transaction commits.
+     * If all locks are granted, no other transaction which has not committed
+     * yet has changed a row of the leaf.
+     *
+	 * @return true if all rows were locked.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean lockLeafRows(
+    OpenBTree   open_btree,
+    ControlRow  leaf)
+        throws StandardException
+    {
+        Page    page = leaf.page;
+
+        BTreeLockingPolicy  btree_locking_policy =
+            open_btree.getLockingPolicy();
+
+        DataValueDescriptor[] scratch_template =
+            open_btree.getRuntimeMem().get_template(open_btree.getRawTran());
+
+        // RowLocation column is in last column of template.
+        FetchDescriptor lock_fetch_desc =
+            RowUtil.getFetchDescriptorConstant(scratch_template.length - 1);
+
+        for (int slot_no = 1; slot_no < page.recordCount(); slot_no++)
+        {
+            if (!btree_locking_policy.lockScanCommittedDeletedRow(
+                    open_btree, (LeafControlRow) leaf, scratch_template,
+                    lock_fetch_desc, slot_no))
+            {
+                return(false);
+            }
+        }
+
+        return(true);
+    }
+
+    /**
+     * Purge committed deleted rows from a leaf using row locks.
+     * <p>
+     * For each deleted row try to get an exclusive lock on the row NOWAIT, if
+     * granted the row must have been deleted by a committed transaction and
+     * is purged.  As in BTreePostCommit, the leaf must stay latched until the
+     * transaction commits if any row is purged.
+     *
+	 * @return true if at least one row was purged.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean purgeRowLevelCommittedDeletes(
+    OpenBTree   open_btree,
+    ControlRow  leaf)
+        throws StandardException
+    {
+        Page    page                    = leaf.page;
+        boolean purged_at_least_one_row = false;
+
+        // The number records that can be reclaimed is:
+        // total recs - control row - recs_not_deleted
+        if (page.recordCount() - 1 - page.nonDeletedRecordCount() <= 0)
+            return(false);
+
+        BTreeLockingPolicy  btree_locking_policy =
+            open_btree.getLockingPolicy();
+
+        DataValueDescriptor[] scratch_template =
+            open_btree.getRuntimeMem().get_template(open_btree.getRawTran());
+
+        // RowLocation column is in last column of template.
+        FetchDescriptor lock_fetch_desc =
+            RowUtil.getFetchDescriptorConstant(scratch_template.length - 1);
+
+        // loop backward so that purges which affect the slot table
+        // don't affect the loop (ie. they only move records we
+        // have already looked at).
+        for (int slot_no = page.recordCount() - 1; slot_no > 0; slot_no--)
+        {
+            if (page.isDeletedAtSlot(slot_no) &&
+                btree_locking_policy.lockScanCommittedDeletedRow(
+                    open_btree, (LeafControlRow) leaf, scratch_template,
+                    lock_fetch_desc, slot_no))
+            {
+                page.purgeAtSlot(slot_no, 1, true);
+                purged_at_least_one_row = true;
+            }
+        }
+
+        if (purged_at_least_one_row)
+        {
+            // Tell scans positioned on this page to reposition because the
+            // row they are positioned on may have disappeared.
+            page.setRepositionNeeded();
+        }
+
+        return(purged_at_least_one_row);
+    }
+}
@@ -0,0 +1,431 @@
+/*
+
+   Derby - Class org.apache.derby.impl.store.access.btree.BTreeSampler
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.store.access.btree;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.apache.derby.shared.common.error.StandardException;
+
+import org.apache.derby.iapi.services.io.FormatableBitSet;
+
+import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
+import org.apache.derby.iapi.store.access.SampleObserver;
+
+import org.apache.derby.iapi.store.access.conglomerate.LogicalUndo;
+import org.apache.derby.iapi.store.access.conglomerate.TransactionManager;
+
+import org.apache.derby.iapi.store.raw.ContainerHandle;
+import org.apache.derby.iapi.store.raw.FetchDescriptor;
+import org.apache.derby.iapi.store.raw.Page;
+import org.apache.derby.iapi.store.raw.RecordHandle;
+import org.apache.derby.iapi.store.raw.Transaction;
+
+import org.apache.derby.iapi.types.DataValueDescriptor;
+
+/**
+
+The BTreeSampler estimates the number of rows and the number of distinct keys
+of a btree from a random sample of its leaf pages.
+<p>
+The branch pages just above the leaves are walked from left to right, and a
+uniform random sample of the leaves they point at is chosen while walking,
+without reading any of the leaves.  The chosen leaves are then read in key
+order.  As the rows are sorted, the number of distinct values of the first i columns
+follows from the number of places where neighboring rows differ in those
+columns.  The places are counted on the leaves read, and between two leaves
+read there are none if the rows around the gap are equal.  Only the gaps
+with different rows around them have to be estimated, from the fraction of
+neighboring rows on the leaves read which differ, so that columns with few
+distinct values which rarely change within a leaf are estimated well too.
+<p>
+Only one page is latched at a time, and no locks are requested, so the
+estimates include uncommitted changes just like a read uncommitted scan.
+Leaves which have been freed or reused by concurrent splits and merges
+after being chosen are skipped.
+
+**/
+
+public class BTreeSampler
+{
+    private final BTree     btree;
+
+    /* Constructors for This class: */
+    public BTreeSampler(BTree btree)
+    {
+        this.btree = btree;
+    }
+
+    /* Public Methods of This class: */
+
+    /**
+     * Estimate the number of rows and distinct keys of the btree.
+     *
+     * @param xact_manager  The access manager transaction.
+     * @param rawtran       The raw store transaction.
+     * @param sample_pages  The number of leaves to read.
+     * @param cardinality   On return cardinality[i] holds the estimated
+     *                      number of distinct values of the first i + 1
+     *                      columns.  It has an entry for every key column,
+     *                      not counting the row location.
+     * @param observer      If not null, told about every row read.
+     *
+	 * @return The estimated number of rows, or -1 if the btree has no more
+     *         than sample_pages leaves.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public long sample(
+    TransactionManager  xact_manager,
+    Transaction         rawtran,
+    int                 sample_pages,
+    long[]              cardinality,
+    SampleObserver      observer)
+        throws StandardException
+    {
+        OpenBTree open_btree = new OpenBTree();
+
+        open_btree.init(
+            xact_manager,
+            xact_manager,
+            (ContainerHandle) null,           // open the container
+            rawtran,
+            false,
+            ContainerHandle.MODE_READONLY,
+            TransactionManager.MODE_NONE,
+            (BTreeLockingPolicy) null,        // no locks, as for costing
+            btree,
+            (LogicalUndo) null,               // read only, no undo
+            (DynamicCompiledOpenConglomInfo) null);
+
+        try
+        {
+            long[] leaf_count = new long[1];
+
+            long[][] leaves =
+                chooseLeaves(open_btree, sample_pages, leaf_count);
+
+            if (leaves == null)
+                return(-1);
+
+            return(
+                estimate(
+                    open_btree, leaves, leaf_count[0], cardinality, observer));
+        }
+        finally
+        {
+            open_btree.close();
+        }
+    }
+
+    /* Private/Protected methods of This class: */
+
+    /**
+     * Choose the leaves to read.
+     * <p>
+     * Reservoir sampling keeps a uniform random sample of the leaves seen so
+     * far while the branch pages above the leaves are walked, so the number
+     * of leaves need not be known in advance.
+     *
+     * @param leaf_count    On return leaf_count[0] holds the number of
+     *                      leaves of the btree.
+     *
+	 * @return The ordinal and page number of each chosen leaf sorted by the
+     *         ordinal, or null if the btree has no more than sample_pages
+     *         leaves.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private long[][] chooseLeaves(
+    OpenBTree   open_btree,
+    int         sample_pages,
+    long[]      leaf_count)
+        throws StandardException
+    {
+        long[][]    leaves = new long[sample_pages][];
+        long        seen   = 0;
+        Random      random = new Random();
+
+        ControlRow  parent = ControlRow.get(open_btree, BTree.ROOTPAGEID);
+
+        try
+        {
+            // A btree with a single leaf is cheaper to scan.
+            if (parent.getLevel() == 0)
+                return(null);
+
+            // Search down the left edge to the level above the leaves,
+            // always latching the child before releasing the parent.
+            while (parent.getLevel() > 1)
+            {
+                ControlRow child =
+                    ((BranchControlRow) parent).getLeftChild(open_btree);
+
+                parent.release();
+                parent = child;
+            }
+
+            while (parent != null)
+            {
+                BranchControlRow branch = (BranchControlRow) parent;
+
+                for (int slot = 0; slot < branch.page.recordCount(); slot++)
+                {
+                    int pos;
+
+                    if (seen < sample_pages)
+                    {
+                        pos = (int) seen;
+                    }
+                    else
+                    {
+                        long r = (long) (random.nextDouble() * (seen + 1));
+                        pos = (r < sample_pages) ? (int) r : -1;
+                    }
+
+                    if (pos >= 0)
+                    {
+                        leaves[pos] = new long[] {
+                            seen, branch.getChildPageIdAtSlot(open_btree, slot)
+                        };
+                    }
+
+                    seen++;
+                }
+
+                // Left to right is the deadlock free latch order.
+                ControlRow next = parent.getRightSibling(open_btree);
+                parent.release();
+                parent = next;
+            }
+        }
+        finally
+        {
+            if (parent != null)
+                parent.release();
+        }
+
+        leaf_count[0] = seen;
+
+        if (seen <= sample_pages)
+            return(null);
+
+        Arrays.sort(leaves, new Comparator<long[]>() {
+            public int compare(long[] a, long[] b)
+            {
+                return(Long.compare(a[0], b[0]));
+            }
+        });
+
+        return(leaves);
+    }
+
+    /**
+     * Read the chosen leaves and compute the estimates.
+     * <p>
+     * The number of distinct values of the first i columns is one more than
+     * the number of places where the first i columns of neighboring rows
+     * differ.  Those places are counted exactly on the leaves read.  Between
+     * two leaves read, there are none if the last row of the first leaf and
+     * the first row of the second leaf have the same key, as the rows are
+     * sorted, and at least one otherwise, in which case the number is
+     * estimated from how often neighboring rows differ on the leaves read.
+     *
+	 * @return The estimated number of rows, or -1 if none of the chosen
+     *         leaves could be read.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private long estimate(
+    OpenBTree       open_btree,
+    long[][]        leaves,
+    long            leaf_count,
+    long[]          cardinality,
+    SampleObserver  observer)
+        throws StandardException
+    {
+        int ncols = cardinality.length;
+
+        Transaction           rawtran = open_btree.getRawTran();
+        DataValueDescriptor[] prev    = btree.createTemplate(rawtran);
+        DataValueDescriptor[] curr    = btree.createTemplate(rawtran);
+
+        // Only fetch the key columns, leave out the row location.
+        FormatableBitSet key_columns = new FormatableBitSet(curr.length);
+        for (int i = 0; i < ncols; i++)
+            key_columns.set(i);
+        FetchDescriptor fetch_desc =
+            new FetchDescriptor(curr.length, key_columns, null);
+
+        long    leaves_read = 0;
+        long    rows        = 0;
+        long    pairs       = 0;        // neighbors on the same leaf
+        long[]  changed     = new long[ncols];
+
+        // For each gap between two leaves read, the number of leaves in the
+        // gap and the first column in which the rows around it differ.
+        long[]  gap_leaves  = new long[leaves.length];
+        int[]   gap_changed = new int[leaves.length];
+        int     gaps        = 0;
+        long    first_read  = -1;
+        long    last_read   = -1;
+
+        for (int i = 0; i < leaves.length; i++)
+        {
+            Page page = open_btree.container.getPage(leaves[i][1]);
+
+            // The leaf has been freed since it was chosen.
+            if (page == null)
+                continue;
+
+            try
+            {
+                ControlRow leaf = 
+                    ControlRow.getControlRowForPage(open_btree.container, page);
+
+                if (!(leaf instanceof LeafControlRow))
+                {
+                    // The page has been reused as a branch page.
+                    continue;
+                }
+
+                leaves_read++;
+
+                boolean first_on_leaf = true;
+
+                for (int slot = 1; slot < page.recordCount(); slot++)
+                {
+                    if (page.isDeletedAtSlot(slot))
+                        continue;
+
+                    page.fetchFromSlot(
+                        (RecordHandle) null, slot, curr, fetch_desc, true);
+                    leaf.restoreKeyPrefix(open_btree, curr);
+
+                    rows++;
+
+                    if (observer != null)
+                        observer.observeRow(curr);
+
+                    if (first_on_leaf)
+                    {
+                        if (last_read >= 0)
+                        {
+                            gap_leaves[gaps]  = leaves[i][0] - last_read - 1;
+                            gap_changed[gaps] =
+                                firstChangedColumn(prev, curr, ncols);
+                            gaps++;
+                        }
+                        else
+                        {
+                            first_read = leaves[i][0];
+                        }
+                        last_read = leaves[i][0];
+                    }
+                    else
+                    {
+                        pairs++;
+
+                        int first_changed =
+                            firstChangedColumn(prev, curr, ncols);
+
+                        for (int j = first_changed; j < ncols; j++)
+                            changed[j]++;
+                    }
+
+                    DataValueDescriptor[] tmp = prev;
+                    prev          = curr;
+                    curr          = tmp;
+                    first_on_leaf = false;
+                }
+            }
+            finally
+            {
+                page.unlatch();
+            }
+        }
+
+        if (leaves_read == 0)
+            return(-1);
+
+        double  rows_per_leaf = (double) rows / leaves_read;
+        long    est_rows      = Math.round(rows_per_leaf * leaf_count);
+
+        for (int j = 0; j < ncols; j++)
+        {
+            if (rows == 0)
+            {
+                cardinality[j] = 0;
+                continue;
+            }
+
+            // How often neighboring rows differ, if the leaves read tell.
+            double density = (pairs == 0) ? 1 : (double) changed[j] / pairs;
+
+            // The leaves before the first and after the last leaf read.
+            double differ =
+                changed[j] +
+                density * rows_per_leaf *
+                    (first_read + (leaf_count - 1 - last_read));
+
+            for (int g = 0; g < gaps; g++)
+            {
+                if (gap_changed[g] <= j)
+                {
+                    differ +=
+                        Math.max(1, density * rows_per_leaf * gap_leaves[g]);
+                }
+            }
+
+            cardinality[j] =
+                Math.max(1, Math.min(Math.round(1 + differ), est_rows));
+        }
+
+        return(est_rows);
+    }
+
+    /**
+     * Find the first key column in which two rows differ.
+     * <p>
+     * As when statistics are computed by a full scan, NULLs are counted as
+     * distinct values.
+     *
+	 * @return The number of the column, or ncols if the keys are equal.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private static int firstChangedColumn(
+    DataValueDescriptor[]   prev,
+    DataValueDescriptor[]   curr,
+    int                     ncols)
+        throws StandardException
+    {
+        for (int i = 0; i < ncols; i++)
+        {
+            if (prev[i].isNull() || prev[i].compare(curr[i]) != 0)
+                return(i);
+        }
+
+        return(ncols);
+    }
+}
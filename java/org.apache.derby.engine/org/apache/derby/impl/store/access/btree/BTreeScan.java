@@ -1374,6 +1374,7 @@ public abstract class BTreeScan extends OpenBTree implements ScanManager
                 scan_position.current_slot, row, 
                 qualify ? init_fetchDesc : null,
                 true);
+            scan_position.current_leaf.restoreKeyPrefix(this, row);
 
             // The possibility is that the row at the current position
             // has been marked as deleted (it cannot have been purged
@@ -2133,6 +2134,8 @@ public abstract class BTreeScan extends OpenBTree implements ScanManager
                 if (SanityManager.DEBUG) {
                     SanityManager.ASSERT(rh != null, "Row not found");
                 }
+
+                scan_position.current_leaf.restoreKeyPrefix(this, fullKey);
             }
 
             scan_position.current_positionKey = fullKey;
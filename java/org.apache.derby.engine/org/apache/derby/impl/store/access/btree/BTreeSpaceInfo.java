@@ -0,0 +1,71 @@
+/*
+
+   Derby - Class org.apache.derby.impl.store.access.btree.BTreeSpaceInfo
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.store.access.btree;
+
+import org.apache.derby.iapi.store.access.SpaceInfo;
+
+/**
+
+Space information about a btree.  The page counts come from the container
+holding the btree, the average fill is computed over the leaf pages.
+
+**/
+
+class BTreeSpaceInfo implements SpaceInfo
+{
+    private final SpaceInfo containerSpaceInfo;
+    private final int       averageLeafFill;
+
+    BTreeSpaceInfo(SpaceInfo containerSpaceInfo, int averageLeafFill)
+    {
+        this.containerSpaceInfo = containerSpaceInfo;
+        this.averageLeafFill    = averageLeafFill;
+    }
+
+    public long getNumAllocatedPages()
+    {
+        return containerSpaceInfo.getNumAllocatedPages();
+    }
+
+    public long getNumFreePages()
+    {
+        return containerSpaceInfo.getNumFreePages();
+    }
+
+    public long getNumUnfilledPages()
+    {
+        return containerSpaceInfo.getNumUnfilledPages();
+    }
+
+    public int getPageSize()
+    {
+        return containerSpaceInfo.getPageSize();
+    }
+
+    /**
+     * Get the average percentage of space in use on the leaf pages.
+     **/
+    public int getAverageFillPercent()
+    {
+        return averageLeafFill;
+    }
+}
@@ -68,6 +68,7 @@ import org.apache.derby.iapi.services.io.FormatableBitSet;
  *                                       the type of object is inferred by
  *                                       the logical undo code.
  * column 8 - left child page number   : SQLLongint
+ * column 9 and up - key prefix        : optional, see ControlRow.
  **/
 
 /**
@@ -423,6 +424,12 @@ public class BranchControlRow extends ControlRow
                 branch_template.getRow(), open_btree, false);
 
             this.searchForEntry(sp);
+
+            // Leave the child alone if its range of keys can not be given to
+            // its neighbor.
+            if (!canRemoveChild(open_btree, sp.resultSlot))
+                return(false);
+
             childpage = this.getChildPageAtSlot(sp.btree, sp.resultSlot);
 
             // Recursively shrink the child.  If this call returns
@@ -537,6 +544,62 @@ public class BranchControlRow extends ControlRow
         return(shrinkme);
     }
 
+    /**
+     * Can the child at a slot be removed from this page?
+     * <p>
+     * Removing a child gives its range of keys to its left neighbor, or to
+     * its right neighbor if it is the left child.  On a prefix compressed 
+     * btree all the keys of the larger range must share the key prefix of 
+     * the neighbor, otherwise the child is left in place even when empty.
+     *
+     * @param open_btree    The open btree.
+     * @param slot          The slot of the child.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private boolean canRemoveChild(
+    OpenBTree   open_btree,
+    int         slot)
+        throws StandardException
+    {
+        if (!open_btree.isPrefixCompressed())
+            return(true);
+
+        int neighbor_slot;
+        int low_slot;
+        int high_slot;
+
+        if (slot > 0)
+        {
+            neighbor_slot = slot - 1;
+            low_slot      = slot - 1;
+            high_slot     = slot + 1;
+        }
+        else if (this.page.recordCount() > 1)
+        {
+            neighbor_slot = 1;
+            low_slot      = CR_SLOT;
+            high_slot     = 2;
+        }
+        else
+        {
+            // The only child, this page goes with it.
+            return(true);
+        }
+
+        ControlRow neighbor = getChildPageAtSlot(open_btree, neighbor_slot);
+
+        try
+        {
+            return(
+                neighbor.canGrowRange(open_btree, this, low_slot, high_slot));
+        }
+        finally
+        {
+            neighbor.release();
+        }
+    }
+
     /**
      * Perform a top down split pass making room for the the key in "row".
      * <p>
@@ -645,6 +708,12 @@ public class BranchControlRow extends ControlRow
                 // move all the row to the new page
                 splitpoint = 1;
             }
+            else if ((flag & ControlRow.SPLIT_FLAG_LAST_IN_TABLE) != 0)
+            {
+                // appending to the right edge of the btree, leave this page
+                // filled up to the fill factor.
+                splitpoint = getAppendSplitPoint(open_btree.getFillFactor());
+            }
             else if ((flag & ControlRow.SPLIT_FLAG_LAST_ON_PAGE) != 0)
             {
                 // This is not optimal as we would rather move no rows to the
@@ -675,6 +744,7 @@ public class BranchControlRow extends ControlRow
             this.page.fetchFromSlot(
                 (RecordHandle) null, splitpoint, split_branch_row.getRow(), 
                 (FetchDescriptor) null, true);
+            this.restoreKeyPrefix(open_btree, split_branch_row.getRow());
 
             // Create the branch row to insert onto the parent page.  For now
             // use a fake page number because we don't know the real page
@@ -684,11 +754,16 @@ public class BranchControlRow extends ControlRow
                 split_branch_row.createBranchRowFromOldBranchRow(
                         BranchRow.DUMMY_PAGE_NUMBER);
 
+            // The form of newbranchrow stored on the parent page, it shares
+            // the child page number column with newbranchrow.
+            DataValueDescriptor[] parent_row = 
+                parent.stripKeyPrefix(open_btree, newbranchrow.getRow());
+
             // At this point we have guaranteed there is space in the parent
             // page for splitrow, but it could be the case that the new
             // "newbranchrow" does not fit on the parent page.
             if (!parent.page.spaceForInsert(
-                    newbranchrow.getRow(), (FormatableBitSet) null,
+                    parent_row, (FormatableBitSet) null,
 					AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD))
             {
                 // There is no room on the parent page to complete a split at
@@ -755,7 +830,7 @@ public class BranchControlRow extends ControlRow
 			insertFlag |= Page.INSERT_UNDO_WITH_PURGE;
 			if (parent.page.insertAtSlot(
                     sp.resultSlot + 1,
-                    newbranchrow.getRow(),
+                    parent_row,
                     (FormatableBitSet) null,
                     (LogicalUndo)null,
                     insertFlag, AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD)
@@ -779,6 +854,14 @@ public class BranchControlRow extends ControlRow
             // newbranchrow only valid while contents of split_branch_row
             // remain unchanged.
             newbranchrow = null;
+            parent_row   = null;
+
+            // The rows moved to the new page may not store the columns of
+            // the key prefix of the current page, so the new page must 
+            // start out with the same prefix.  Both pages held the same rows
+            // before the split, so the prefix is sure to fit.
+            if (this.getKeyPrefix(open_btree).length > 0)
+                newbranch.setKeyPrefix(this.getKeyPrefix(open_btree));
 
 			// Copy the rows from the split point, but not including it (since
             // the split point is turning into the left child of the new
@@ -796,6 +879,16 @@ public class BranchControlRow extends ControlRow
             // the "left child", but we do need to get rid of it.
 			this.page.purgeAtSlot(splitpoint, 1, true);
 
+            // The parent row now bounds the range of keys of both pages,
+            // which may let them share more leading key columns.
+            if (open_btree.isPrefixCompressed())
+            {
+                this.growKeyPrefix(
+                    open_btree, parent, sp.resultSlot, sp.resultSlot + 1);
+                newbranch.growKeyPrefix(
+                    open_btree, parent, sp.resultSlot + 1, sp.resultSlot + 2);
+            }
+
             // Test fail after of copy of rows to new page.
             if (SanityManager.DEBUG)
             {
@@ -954,7 +1047,7 @@ public class BranchControlRow extends ControlRow
                 	") but got (" + this.getVersion());
             */
             SanityManager.ASSERT(
-                this.page.fetchNumFieldsAtSlot(CR_SLOT) ==
+                this.page.fetchNumFieldsAtSlot(CR_SLOT) >=
                 BranchControlRow.CR_NCOLUMNS);
             SanityManager.ASSERT(getLeftChildPageno() !=
                                  ContainerHandle.INVALID_PAGE_NUMBER);
@@ -1303,6 +1396,67 @@ public class BranchControlRow extends ControlRow
         this.setLeftChildPageno(leftchild.page.getPageNumber());
 	}
 
+    /**
+     * Get the key prefix shared by all the keys of the range of a child.
+     * <p>
+     * The keys of the child lie between the rows at low_slot (inclusive) 
+     * and high_slot (exclusive) on this page, so they share all the leading
+     * key columns which those two rows share.  If either slot is not a row 
+     * of this page the range reaches the edge of the range of this page and
+     * only the prefix of this page is known to hold.
+     * <p>
+     * The row location column, and columns whose value is null, are never 
+     * part of the prefix.
+     *
+     * @param open_btree    The open btree.
+     * @param low_slot      Slot of the row where the range starts.
+     * @param high_slot     Slot of the row following the range.
+     *
+	 * @return The values of the prefix columns.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    DataValueDescriptor[] getChildKeyPrefix(
+    OpenBTree   open_btree,
+    int         low_slot,
+    int         high_slot)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix = getKeyPrefix(open_btree);
+
+        if (low_slot > CR_SLOT && high_slot < this.page.recordCount())
+        {
+            DataValueDescriptor[] low  = getRowTemplate(open_btree);
+            DataValueDescriptor[] high = getRowTemplate(open_btree);
+
+            this.page.fetchFromSlot(
+                (RecordHandle) null, low_slot, low, 
+                (FetchDescriptor) null, true);
+            restoreKeyPrefix(open_btree, low);
+            this.page.fetchFromSlot(
+                (RecordHandle) null, high_slot, high, 
+                (FetchDescriptor) null, true);
+            restoreKeyPrefix(open_btree, high);
+
+            int max_ncols = open_btree.getConglomerate().nKeyFields - 1;
+            int ncols     = 0;
+            while (ncols < max_ncols && 
+                   !low[ncols].isNull() && low[ncols].compare(high[ncols]) == 0)
+            {
+                ncols++;
+            }
+
+            if (ncols > prefix.length)
+            {
+                prefix = new DataValueDescriptor[ncols];
+                for (int i = 0; i < ncols; i++)
+                    prefix[i] = low[i].cloneValue(false);
+            }
+        }
+
+        return(prefix);
+    }
+
 	/**
 	 ** A branch page that has just been allocated as part
 	 ** of a split has index rows and a left child pointer
@@ -1381,7 +1535,7 @@ public class BranchControlRow extends ControlRow
         }
 	}
 
-    private long getChildPageIdAtSlot(
+    long getChildPageIdAtSlot(
     OpenBTree       btree,
     int             slot)
         throws StandardException
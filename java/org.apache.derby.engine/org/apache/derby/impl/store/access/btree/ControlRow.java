@@ -29,6 +29,7 @@ import org.apache.derby.iapi.services.io.TypedFormat;
 
 import org.apache.derby.shared.common.error.StandardException;
 
+import org.apache.derby.iapi.store.access.AccessFactoryGlobals;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowUtil;
 
@@ -38,7 +39,10 @@ import org.apache.derby.iapi.store.raw.Page;
 import org.apache.derby.iapi.store.raw.ContainerHandle;
 import org.apache.derby.iapi.store.raw.RecordHandle;
 
+import org.apache.derby.iapi.types.BitDataValue;
 import org.apache.derby.iapi.types.DataValueDescriptor;
+import org.apache.derby.iapi.types.NumberDataValue;
+import org.apache.derby.iapi.types.StringDataValue;
 
 import org.apache.derby.iapi.types.SQLLongint;
 import org.apache.derby.impl.store.access.StorableFormatId;
@@ -58,6 +62,23 @@ the page the control row is for.  The page is latched when the control
 row is "gotten" (ControlRow#Get), and unlatched when the control row
 is released (ControlRow#release).
 <P>
+<B>Key Prefix Compression</B>
+<P>
+The pages of a btree created with key prefix compression may store the 
+leading key columns shared by all the keys which can be on the page once, in
+optional columns following the columns of the control row:
+<UL>
+<LI> the number of prefix columns, a SQLLongint,
+<LI> the values of the prefix columns, which are never null.
+</UL>
+A row on such a page stores a null in place of each prefix column which it
+has the same value as.  The prefix is derived from the parent rows bounding 
+the range of keys of the page when the page is split, so it only ever grows,
+and a page is never given a range of keys which does not share its prefix.
+Code which fetches a row from a page must call restoreKeyPrefix() before 
+using its key columns, and code which inserts a row must insert the row 
+returned by stripKeyPrefix().
+<P>
 <B>To Do List</B>
 <UL>
 <LI> <I>[NOTE1]</I>
@@ -191,6 +212,12 @@ public abstract class ControlRow implements AuxObject, TypedFormat
      **/
     transient protected int last_search_result = 0;
 
+    /**
+     * The key columns shared by all the rows on the page, faulted in from 
+     * the control row.  Empty if the page is not prefix compressed.
+     **/
+    transient DataValueDescriptor[] key_prefix = null;
+
     /**
      * Column number assignments for columns of the control row.
      * <p>
@@ -999,6 +1026,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 			// Compare the index row to the key.
 			compare_ret = 
                 compareIndexRowFromPageToKey(
+                    params.btree,
                     this,
                     midslot,
                     params.template, params.searchKey, 
@@ -1129,6 +1157,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 			// Compare the index row to the key.
 			compare_ret = 
                 compareIndexRowFromPageToKey(
+                    params.btree,
                     this,
                     midslot,
                     params.template, params.searchKey, 
@@ -1210,6 +1239,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
     multi-part key differs in the first column the subsequent columns are not
     read.
 
+    @param open_btree The open btree the page belongs to.
     @param indexpage Controlrow of page to get target row from.
     @param slot      Slot to get control row from.
     @param indexrow template of the target row (the row in the index).
@@ -1220,6 +1250,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 	@throws StandardException if lower levels have a problem.
 	**/
 	public static int compareIndexRowFromPageToKey(
+    OpenBTree               open_btree,
     ControlRow              indexpage,
     int                     slot,
     DataValueDescriptor[]   indexrow, 
@@ -1244,6 +1275,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
             (RecordHandle) null, slot, indexrow, 
             (FetchDescriptor) null,
             true);
+        indexpage.restoreKeyPrefix(open_btree, indexrow);
 
 		// Compare corresponding columns in the index row and the key.
 		for (int i = 0; i < nCompareCols; i++)
@@ -1295,6 +1327,380 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 		return 0;
 	}
 
+    /**
+     * Get the key prefix shared by all the rows on this page.
+     * <p>
+     * The prefix is faulted in from the control row the first time it is
+     * needed.  Pages which are not prefix compressed, including all the 
+     * pages written before prefix compression existed, have no prefix 
+     * columns in their control row and get an empty prefix.
+     *
+     * @param open_btree    The open btree the page belongs to.
+     *
+	 * @return The prefix, an empty array if the page is not compressed.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public DataValueDescriptor[] getKeyPrefix(OpenBTree open_btree)
+        throws StandardException
+    {
+        if (key_prefix == null)
+        {
+            if (!open_btree.isPrefixCompressed())
+            {
+                key_prefix = new DataValueDescriptor[0];
+                return(key_prefix);
+            }
+
+            // Fault in the number of prefix columns, if the column is not 
+            // on the page it is returned as null which reads as 0.
+            int ncols_colid = getNumberOfControlRowColumns();
+
+            SQLLongint ncols = new SQLLongint();
+
+            DataValueDescriptor[] cr_row = 
+                new DataValueDescriptor[ncols_colid + 1];
+            cr_row[ncols_colid] = ncols;
+
+            this.page.fetchFromSlot(
+               (RecordHandle) null, CR_SLOT, cr_row, 
+               new FetchDescriptor(cr_row.length, ncols_colid), false); 
+
+            DataValueDescriptor[] prefix = 
+                new DataValueDescriptor[(int) ncols.getLong()];
+
+            if (prefix.length > 0)
+            {
+                DataValueDescriptor[] template = 
+                    open_btree.getConglomerate().createTemplate(
+                        open_btree.getRawTran());
+
+                cr_row = new DataValueDescriptor[ncols_colid + 1 + prefix.length];
+                FormatableBitSet prefix_cols = 
+                    new FormatableBitSet(cr_row.length);
+
+                for (int i = 0; i < prefix.length; i++)
+                {
+                    prefix[i] = template[i];
+                    cr_row[ncols_colid + 1 + i] = prefix[i];
+                    prefix_cols.set(ncols_colid + 1 + i);
+                }
+
+                this.page.fetchFromSlot(
+                   (RecordHandle) null, CR_SLOT, cr_row, 
+                   new FetchDescriptor(
+                       cr_row.length, prefix_cols, (Qualifier[][]) null), 
+                   false); 
+            }
+
+            key_prefix = prefix;
+        }
+
+        return(key_prefix);
+    }
+
+    /**
+     * Set the key prefix shared by all the rows on this page.
+     * <p>
+     * The prefix may only grow, rows already on the page store either 
+     * nulls or their own values for the columns of the current prefix and
+     * are correct with any longer prefix.
+     *
+     * @param prefix    The values of the leading key columns.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected void setKeyPrefix(DataValueDescriptor[] prefix)
+        throws StandardException
+    {
+        if (SanityManager.DEBUG)
+        {
+            SanityManager.ASSERT(!getIsRoot(), "root page has no key prefix");
+            SanityManager.ASSERT(
+                key_prefix == null || key_prefix.length <= prefix.length,
+                "key prefix can not shrink");
+        }
+
+        // Update the prefix columns as one record update, which also adds
+        // the columns to the control row if they are not there yet.
+        int ncols_colid = getNumberOfControlRowColumns();
+
+        DataValueDescriptor[] cr_row = 
+            new DataValueDescriptor[ncols_colid + 1 + prefix.length];
+        FormatableBitSet prefix_cols = new FormatableBitSet(cr_row.length);
+
+        cr_row[ncols_colid] = new SQLLongint(prefix.length);
+        prefix_cols.set(ncols_colid);
+
+        for (int i = 0; i < prefix.length; i++)
+        {
+            cr_row[ncols_colid + 1 + i] = prefix[i];
+            prefix_cols.set(ncols_colid + 1 + i);
+        }
+
+        this.page.updateAtSlot(CR_SLOT, cr_row, prefix_cols);
+
+        key_prefix = prefix;
+    }
+
+    /**
+     * Restore the key columns of a row fetched from this page which the page
+     * does not store in the row itself.
+     * <p>
+     * A row on a prefix compressed page stores a null in place of each key
+     * column of the prefix which it has the same value as.  The values of
+     * the prefix are never null, so the nulls are replaced with the values 
+     * of the prefix.  Columns which are not in the row, because only some 
+     * columns were fetched, are left alone.  Code which fetches a row from
+     * a page and then looks at its key columns must call this first.
+     *
+     * @param open_btree    The open btree the page belongs to.
+     * @param row           The row just fetched from this page.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public void restoreKeyPrefix(
+    OpenBTree               open_btree,
+    DataValueDescriptor[]   row)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix = getKeyPrefix(open_btree);
+
+        for (int i = 0; i < prefix.length && i < row.length; i++)
+        {
+            if (row[i] != null && row[i].isNull())
+                row[i].setValue(prefix[i]);
+        }
+    }
+
+    /**
+     * Get the form of a row which is to be inserted on this page.
+     * <p>
+     * The key columns which have the same value as the key prefix of the 
+     * page are replaced by nulls, the rest of the row is shared with the 
+     * input row.  The input row is not changed.  The caller must make sure 
+     * the row belongs on this page.
+     *
+     * @param open_btree    The open btree the page belongs to.
+     * @param row           The row to insert.
+     *
+	 * @return The row to insert.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected DataValueDescriptor[] stripKeyPrefix(
+    OpenBTree               open_btree,
+    DataValueDescriptor[]   row)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix   = getKeyPrefix(open_btree);
+        DataValueDescriptor[] stripped = row;
+
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (isSameValue(row[i], prefix[i]))
+            {
+                if (stripped == row)
+                {
+                    stripped = new DataValueDescriptor[row.length];
+                    System.arraycopy(row, 0, stripped, 0, row.length);
+                }
+
+                stripped[i] = row[i].getNewNull();
+            }
+        }
+
+        return(stripped);
+    }
+
+    /**
+     * Lengthen the key prefix of this page after a split.
+     * <p>
+     * The rows of this page lie between the rows at low_slot (inclusive) and
+     * high_slot (exclusive) on the parent page, so they share all the
+     * leading key columns which those two rows share, see 
+     * BranchControlRow.getChildKeyPrefix().  Any row which later moves onto
+     * this page lies in the same range, so the prefix stays valid for as 
+     * long as the range of the page does not change.
+     * <p>
+     * If the prefix grows, the rows already on the page are rewritten to
+     * leave out the key columns they share with it.  Nothing is done if the
+     * longer prefix does not fit on the page.
+     *
+     * @param open_btree    The open btree.
+     * @param parent        The latched parent of this page.
+     * @param low_slot      Slot of the parent row pointing at this page.
+     * @param high_slot     Slot of the parent row following low_slot.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected void growKeyPrefix(
+    OpenBTree           open_btree,
+    BranchControlRow    parent,
+    int                 low_slot,
+    int                 high_slot)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix = 
+            parent.getChildKeyPrefix(open_btree, low_slot, high_slot);
+
+        if (prefix.length > getKeyPrefix(open_btree).length &&
+            this.page.spaceForInsert(
+                prefix, (FormatableBitSet) null, 
+                AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD))
+        {
+            setKeyPrefix(prefix);
+            stripRows(open_btree);
+        }
+    }
+
+    /**
+     * Rewrite the rows on this page to leave out the key columns they share
+     * with the key prefix of the page.
+     * <p>
+     * Deleted rows are left as they are, they can not be updated and will 
+     * be purged.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private void stripRows(OpenBTree open_btree)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix    = getKeyPrefix(open_btree);
+        DataValueDescriptor[] row       = getRowTemplate(open_btree);
+        DataValueDescriptor[] null_row  = 
+            new DataValueDescriptor[prefix.length];
+
+        FormatableBitSet prefix_cols = new FormatableBitSet(row.length);
+        for (int i = 0; i < prefix.length; i++)
+        {
+            prefix_cols.set(i);
+            null_row[i] = prefix[i].getNewNull();
+        }
+
+        FetchDescriptor prefix_desc = 
+            new FetchDescriptor(
+                row.length, prefix_cols, (Qualifier[][]) null);
+        FormatableBitSet strip_cols = new FormatableBitSet(prefix.length);
+
+        for (int slot = CR_SLOT + 1; slot < this.page.recordCount(); slot++)
+        {
+            if (this.page.isDeletedAtSlot(slot))
+                continue;
+
+            this.page.fetchFromSlot(
+                (RecordHandle) null, slot, row, prefix_desc, true);
+
+            boolean strip = false;
+            for (int i = 0; i < prefix.length; i++)
+            {
+                if (isSameValue(row[i], prefix[i]))
+                {
+                    strip_cols.set(i);
+                    strip = true;
+                }
+                else
+                {
+                    strip_cols.clear(i);
+                }
+            }
+
+            if (strip)
+                this.page.updateAtSlot(slot, null_row, strip_cols);
+        }
+    }
+
+    /**
+     * Can a key column of a row be replaced by the key prefix column?
+     * <p>
+     * compare() treats some values which are not the same as equal, for 
+     * instance strings which differ in trailing blanks or only by collation
+     * and decimals which differ in scale, so those must also have the same
+     * string form.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private static boolean isSameValue(
+    DataValueDescriptor col,
+    DataValueDescriptor prefix_col)
+        throws StandardException
+    {
+        if (col.isNull() || col.compare(prefix_col) != 0)
+            return(false);
+
+        return(
+            !(col instanceof StringDataValue ||
+              col instanceof BitDataValue    ||
+              col instanceof NumberDataValue) ||
+            col.toString().equals(prefix_col.toString()));
+    }
+
+    /**
+     * Can the range of keys of this page grow to include the range of a
+     * sibling?
+     * <p>
+     * Removing a child of a branch page gives its range of keys to its left
+     * neighbor, or to its right neighbor if it is the left child.  The key 
+     * prefix of that neighbor must then be shared by all the keys of the 
+     * larger range.
+     *
+     * @param open_btree    The open btree.
+     * @param parent        The latched parent of this page.
+     * @param low_slot      Slot of the parent row where the larger range 
+     *                      starts.
+     * @param high_slot     Slot of the parent row following the larger range.
+     *
+	 * @return true if the key prefix of this page is valid for the range.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected boolean canGrowRange(
+    OpenBTree           open_btree,
+    BranchControlRow    parent,
+    int                 low_slot,
+    int                 high_slot)
+        throws StandardException
+    {
+        return(
+            getKeyPrefix(open_btree).length <= 
+            parent.getChildKeyPrefix(open_btree, low_slot, high_slot).length);
+    }
+
+    /**
+     * Can the rows of another page be moved onto this page as they are 
+     * stored?
+     * <p>
+     * A row stored on the other page leaves out the key columns it shares 
+     * with the key prefix of that page, so this page must have a key prefix
+     * at least as long which starts with the same values.
+     *
+     * @param open_btree    The open btree.
+     * @param other         The latched page the rows are on.
+     *
+	 * @return true if the rows keep their values on this page.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected boolean sharesKeyPrefix(
+    OpenBTree   open_btree,
+    ControlRow  other)
+        throws StandardException
+    {
+        DataValueDescriptor[] prefix        = getKeyPrefix(open_btree);
+        DataValueDescriptor[] other_prefix  = other.getKeyPrefix(open_btree);
+
+        if (other_prefix.length > prefix.length)
+            return(false);
+
+        for (int i = 0; i < other_prefix.length; i++)
+        {
+            if (!isSameValue(other_prefix[i], prefix[i]))
+                return(false);
+        }
+
+        return(true);
+    }
+
 	public static int compareIndexRowToKey(
     DataValueDescriptor[]   indexrow, 
     DataValueDescriptor[]   key,
@@ -1434,6 +1840,8 @@ public abstract class ControlRow implements AuxObject, TypedFormat
                    page.fetchFromSlot(
                        (RecordHandle) null, i + 1, greater, 
                        (FetchDescriptor) null, true); 
+               restoreKeyPrefix(btree, lesser);
+               restoreKeyPrefix(btree, greater);
 
                SanityManager.ASSERT(btree.getConglomerate().nUniqueColumns <= 
                                     btree.getConglomerate().nKeyFields);
@@ -1502,6 +1910,9 @@ public abstract class ControlRow implements AuxObject, TypedFormat
                         (RecordHandle) null, 1, right_firstrow, 
                         (FetchDescriptor) null, true); 
 
+                left_sib.restoreKeyPrefix(btree, left_lastrow);
+                right_sib.restoreKeyPrefix(btree, right_firstrow);
+
                 int r = 
                     compareIndexRowToKey(
                         left_lastrow, right_firstrow,
@@ -1912,6 +2323,35 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 	protected abstract ControlRow searchRight(OpenBTree btree)
         throws StandardException;
 
+    /**
+     * Compute the split point for a split caused by a row which would be
+     * the last row in the table.
+     * <p>
+     * In an append-only insert pattern no more rows will be inserted into
+     * the current page once it has been split, so rather than splitting in
+     * the middle keep as many rows on the current page as the fill factor
+     * of the btree allows and move the rest to the new page.  At least one
+     * row is moved, it provides the separator key for the new page.
+     *
+	 * @return the slot of the first row to move to the new page.
+     *
+     * @param fill_factor   percentage of the page to leave filled.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    protected int getAppendSplitPoint(int fill_factor)
+        throws StandardException
+    {
+        int num_rows     = this.page.recordCount() - 1;
+        int percent_full = this.page.getPercentFull();
+
+        int rows_to_keep = 
+            (percent_full <= fill_factor) ? 
+                num_rows - 1 : (num_rows * fill_factor) / percent_full;
+
+        return(Math.min(Math.max(rows_to_keep, 1) + 1, num_rows));
+    }
+
 	/**
 	 **	Perform a recursive shrink operation for the key.
 	 ** If this method returns true, the caller should
@@ -2002,6 +2442,7 @@ public abstract class ControlRow implements AuxObject, TypedFormat
 		level = null;
 		isRoot = null;
 		page = null;
+        key_prefix = null;
 	}
 
     /**
@@ -63,6 +63,7 @@ import org.apache.derby.iapi.services.io.FormatableBitSet;
  *                                       is only used by logical undo and
  *                                       the type of object is inferred by
  *                                       the logical undo code.
+ * column 8 and up - key prefix        : optional, see ControlRow.
  **/
 
 public class LeafControlRow extends ControlRow
@@ -529,10 +530,20 @@ public class LeafControlRow extends ControlRow
                 	this + " splitFor null parent and non-root");
         }
 
-        // See if this page has space.
+        // See if this page has space.  A page at the right edge of the
+        // btree which is filled beyond the fill factor is split anyway, 
+        // which is how a load leaves free space on the leaves it builds.
+        boolean append_split = 
+            ((flag & ControlRow.SPLIT_FLAG_LAST_IN_TABLE) != 0) &&
+            (this.page.recordCount() > 2) &&
+            (this.page.getPercentFull() >= open_btree.getFillFactor());
+
         if ((this.page.recordCount() - 1 < BTree.maxRowsPerPage) &&
-            (this.page.spaceForInsert(splitrow, (FormatableBitSet) null,
-				AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD)))
+            (this.page.spaceForInsert(
+                this.stripKeyPrefix(open_btree, splitrow), 
+                (FormatableBitSet) null,
+				AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD)) &&
+            !append_split)
         {
             // The splitFor() operation is complete, commit the work done
             // before releasing the latches.
@@ -579,6 +590,12 @@ public class LeafControlRow extends ControlRow
             // move all the row to the new page
             splitpoint = 1;
         }
+        else if ((flag & ControlRow.SPLIT_FLAG_LAST_IN_TABLE) != 0)
+        {
+            // appending to the right edge of the btree, leave this page
+            // filled up to the fill factor.
+            splitpoint = getAppendSplitPoint(open_btree.getFillFactor());
+        }
         else if ((flag & ControlRow.SPLIT_FLAG_LAST_ON_PAGE) != 0)
         {
             // This is not optimal as we would rather move no rows to the
@@ -601,6 +618,7 @@ public class LeafControlRow extends ControlRow
         this.page.fetchFromSlot(
             (RecordHandle) null, splitpoint, split_leaf_row, 
             (FetchDescriptor) null, true); 
+        this.restoreKeyPrefix(open_btree, split_leaf_row);
 
         // Create the branch row to insert onto the parent page.  For now
         // use a fake page number because we don't know the real page 
@@ -609,12 +627,17 @@ public class LeafControlRow extends ControlRow
         BranchRow branchrow = BranchRow.createBranchRowFromOldLeafRow(
             split_leaf_row, BranchRow.DUMMY_PAGE_NUMBER);
 
+        // The form of branchrow stored on the parent page, it shares the 
+        // child page number column with branchrow.
+        DataValueDescriptor[] parent_row = 
+            parent_page.stripKeyPrefix(open_btree, branchrow.getRow());
+
 
         // At this point we have guaranteed there is space in the parent
         // page for splitrow, but it could be the case that the new
         // "branchrow" does not fit on the parent page.
         if (!parent_page.page.spaceForInsert(
-                branchrow.getRow(), (FormatableBitSet) null,
+                parent_row, (FormatableBitSet) null,
 				AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD))
         {
             // There is no room on the parent page to complete a split at
@@ -660,6 +683,12 @@ public class LeafControlRow extends ControlRow
         if (SanityManager.DEBUG)
             SanityManager.ASSERT(num_rows_to_move >= 0);
 
+        // The rows moved to the new leaf may not store the columns of the
+        // key prefix of the current page, so the new leaf must start out
+        // with the same prefix.
+        if (this.getKeyPrefix(open_btree).length > 0)
+            newleaf.setKeyPrefix(this.getKeyPrefix(open_btree));
+
         if (num_rows_to_move != 0)
         {
             this.page.copyAndPurge(
@@ -708,7 +737,7 @@ public class LeafControlRow extends ControlRow
         {
             SanityManager.ASSERT(
                 parent_page.page.spaceForInsert(
-                    branchrow.getRow(), (FormatableBitSet) null,
+                    parent_row, (FormatableBitSet) null,
 					AccessFactoryGlobals.BTREE_OVERFLOW_THRESHOLD));
         }
 
@@ -717,7 +746,7 @@ public class LeafControlRow extends ControlRow
 		insertFlag |= Page.INSERT_UNDO_WITH_PURGE;
         if (parent_page.page.insertAtSlot(
             sp.resultSlot + 1,
-            branchrow.getRow(),
+            parent_row,
             (FormatableBitSet) null,
 			(LogicalUndo)null, 
             insertFlag,
@@ -728,7 +757,18 @@ public class LeafControlRow extends ControlRow
 		}
 
         // branchrow is only valid while split_leaf_row remains unchanged.
-        branchrow = null;
+        branchrow  = null;
+        parent_row = null;
+
+        // The parent row now bounds the range of keys of both leaves, which
+        // may let them share more leading key columns.
+        if (open_btree.isPrefixCompressed())
+        {
+            this.growKeyPrefix(
+                open_btree, parent_page, sp.resultSlot, sp.resultSlot + 1);
+            newleaf.growKeyPrefix(
+                open_btree, parent_page, sp.resultSlot + 1, sp.resultSlot + 2);
+        }
 
         // RESOLVE (mikem) - this case breaks the btree currently - as the
         // abort of the insert leaves a logical delete in the tree.
@@ -996,7 +1036,7 @@ public class LeafControlRow extends ControlRow
                 	this.getVersion());
             */
             SanityManager.ASSERT(
-                this.page.fetchNumFieldsAtSlot(CR_SLOT) == 
+                this.page.fetchNumFieldsAtSlot(CR_SLOT) >= 
                 ControlRow.CR_NCOLUMNS);
 
             // The remaining checks are specific to leaf pages.
@@ -21,6 +21,9 @@
 
 package org.apache.derby.impl.store.access.btree;
 
+import java.util.Properties;
+import java.util.Random;
+
 import org.apache.derby.shared.common.sanity.SanityManager;
 
 import org.apache.derby.shared.common.error.StandardException;
@@ -34,6 +37,7 @@ import org.apache.derby.iapi.store.access.TransactionController;
 import org.apache.derby.iapi.store.access.SpaceInfo;
 import org.apache.derby.iapi.store.raw.ContainerHandle;
 import org.apache.derby.iapi.store.raw.LockingPolicy;
+import org.apache.derby.iapi.store.raw.RawStoreFactory;
 import org.apache.derby.iapi.store.raw.Transaction;
 
 import org.apache.derby.iapi.types.DataValueDescriptor;
@@ -56,6 +60,12 @@ import org.apache.derby.impl.store.access.conglomerate.OpenConglomerateScratchSp
 
 public class OpenBTree 
 {
+    /**
+     * The number of leaves getSpaceInfo() reads to estimate the average fill
+     * of the leaf pages.
+     **/
+    private static final int SPACE_INFO_SAMPLE_LEAVES = 100;
+
 	/*
 	** Fields of OpenBTree
 	*/
@@ -119,6 +129,15 @@ public class OpenBTree
      **/
     protected OpenConglomerateScratchSpace  runtime_mem;
 
+    /**
+     * The fill factor and key prefix compression setting of the btree, read
+     * from the container properties the first time either is asked for 
+     * after the btree is opened.  A fill factor of 0 means they have not 
+     * been read yet.
+     **/
+    private int                             fill_factor;
+    private boolean                         prefix_compressed;
+
     /**************************************************************************
      * Public Accessors of This class:
      **************************************************************************
@@ -428,6 +447,7 @@ public class OpenBTree
               (OpenConglomerateScratchSpace)
                 conglomerate.getDynamicCompiledConglomInfo());
 
+        this.fill_factor = 0;
 	}
 
     /**
@@ -669,10 +689,153 @@ public class OpenBTree
         return(latch_released);
     }
 
+    /**
+     * Get information about the space used by the btree.
+     * <p>
+     * In addition to the page counts of the container, estimate the average
+     * fill of the leaf pages from a sample of SPACE_INFO_SAMPLE_LEAVES
+     * leaves, so the cost does not grow with the size of the btree.  Each
+     * leaf is found by searching down from the root, choosing a child of
+     * each branch page at random.  If the root is a leaf, or the leaves are
+     * the children of the root and there are no more of them than the
+     * sample, each leaf is read once and the result is exact.  Only latches
+     * are taken, so the result is an estimate if the btree is being updated
+     * concurrently.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
     public SpaceInfo getSpaceInfo()
         throws StandardException
     {
-        return container.getSpaceInfo();
+        SpaceInfo  container_info = container.getSpaceInfo();
+        long       total_fill     = 0;
+        long       num_leaves     = 0;
+        ControlRow page           = ControlRow.get(this, BTree.ROOTPAGEID);
+
+        try
+        {
+            if (page.getLevel() == 0)
+            {
+                total_fill = page.page.getPercentFull();
+                num_leaves = 1;
+            }
+            else if (page.getLevel() == 1 &&
+                     page.page.recordCount() <= SPACE_INFO_SAMPLE_LEAVES)
+            {
+                BranchControlRow root = (BranchControlRow) page;
+
+                for (int slot = 0; slot < root.page.recordCount(); slot++)
+                {
+                    ControlRow leaf = root.getChildPageAtSlot(this, slot);
+                    total_fill += leaf.page.getPercentFull();
+                    num_leaves++;
+                    leaf.release();
+                }
+            }
+            else
+            {
+                Random random = new Random();
+
+                page.release();
+                page = null;
+
+                for (int i = 0; i < SPACE_INFO_SAMPLE_LEAVES; i++)
+                {
+                    page = ControlRow.get(this, BTree.ROOTPAGEID);
+
+                    // Always latch the child before releasing the parent.
+                    while (page.getLevel() > 0)
+                    {
+                        ControlRow child =
+                            ((BranchControlRow) page).getChildPageAtSlot(
+                                this,
+                                random.nextInt(page.page.recordCount()));
+
+                        page.release();
+                        page = child;
+                    }
+
+                    total_fill += page.page.getPercentFull();
+                    num_leaves++;
+
+                    page.release();
+                    page = null;
+                }
+            }
+        }
+        finally
+        {
+            if (page != null)
+                page.release();
+        }
+
+        return new BTreeSpaceInfo(
+            container_info, 
+            (num_leaves == 0) ? 0 : (int) (total_fill / num_leaves));
+    }
+
+    /**
+     * Get the fill factor of the btree.
+     * <p>
+     * The fill factor is the percentage of a page to fill when loading the
+     * btree, and when splitting the rightmost page at any level of the
+     * btree.  It is stored with the container of the btree.
+     *
+	 * @return the fill factor, a percentage between 10 and 100.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public int getFillFactor()
+        throws StandardException
+    {
+        if (fill_factor == 0)
+            readContainerProperties();
+
+        return(fill_factor);
+    }
+
+    /**
+     * Is key prefix compression enabled for the btree?
+     * <p>
+     * If enabled, a page created by a split stores the leading key columns
+     * which all of its rows must share only once, in its control row, see 
+     * ControlRow.  It is stored with the container of the btree.
+     *
+	 * @return true if the pages of this btree may be prefix compressed.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public boolean isPrefixCompressed()
+        throws StandardException
+    {
+        if (fill_factor == 0)
+            readContainerProperties();
+
+        return(prefix_compressed);
+    }
+
+    /**
+     * Read the fill factor and key prefix compression setting of the btree
+     * from the properties of its container.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private void readContainerProperties()
+        throws StandardException
+    {
+        Properties prop = new Properties();
+        prop.put(RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER, "");
+        prop.put(RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER, "");
+
+        container.getContainerProperties(prop);
+
+        prefix_compressed = 
+            Boolean.parseBoolean(
+                prop.getProperty(
+                    RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER));
+        fill_factor = 
+            Integer.parseInt(
+                prop.getProperty(RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER));
     }
 
 	// return column Sort order information
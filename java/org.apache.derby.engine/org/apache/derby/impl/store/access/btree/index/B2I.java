@@ -41,6 +41,7 @@ import org.apache.derby.iapi.store.access.ConglomerateController;
 import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowLocationRetRowSource;
+import org.apache.derby.iapi.store.access.SampleObserver;
 import org.apache.derby.iapi.store.access.StaticCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.StoreCostController;
 import org.apache.derby.iapi.store.access.TransactionController;
@@ -48,6 +49,7 @@ import org.apache.derby.iapi.store.access.TransactionController;
 
 import org.apache.derby.iapi.store.raw.ContainerHandle;
 import org.apache.derby.iapi.store.raw.LockingPolicy;
+import org.apache.derby.iapi.store.raw.RawStoreFactory;
 import org.apache.derby.iapi.store.raw.Transaction;
 
 import org.apache.derby.iapi.types.DataValueDescriptor;
@@ -56,6 +58,8 @@ import org.apache.derby.iapi.types.StringDataValue;
 
 import org.apache.derby.impl.store.access.btree.BTree;
 import org.apache.derby.impl.store.access.btree.BTreeLockingPolicy;
+import org.apache.derby.impl.store.access.btree.BTreeReorganizer;
+import org.apache.derby.impl.store.access.btree.BTreeSampler;
 import org.apache.derby.impl.store.access.btree.LeafControlRow;
 import org.apache.derby.impl.store.access.btree.OpenBTree;
 
@@ -63,6 +67,7 @@ import org.apache.derby.iapi.services.cache.ClassSize;
 
 import org.apache.derby.iapi.services.io.FormatableBitSet;
 import org.apache.derby.iapi.services.io.StoredFormatIds;
+import org.apache.derby.iapi.services.property.PropertyUtil;
 
 
 // For JavaDoc references (i.e. @see)
@@ -592,6 +597,35 @@ public class B2I extends BTree
             ConglomerateUtil.createCollationIds(template.length, collationIds);
         hasCollatedTypes = hasCollatedColumns(collation_ids);
 
+        // Resolve whether the pages are prefix compressed now, the
+        // container records the choice for the life of the btree.  Older
+        // releases can not read compressed pages, so only allow it
+        // once the database has been upgraded.
+        property_value = 
+            properties.getProperty(
+                RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER);
+        if (property_value == null)
+        {
+            property_value = 
+                PropertyUtil.getServiceProperty(
+                    xact_manager, 
+                    RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER);
+        }
+
+        if (Boolean.parseBoolean(property_value))
+        {
+            if (segmentId != ContainerHandle.TEMPORARY_SEGMENT)
+            {
+                xact_manager.checkVersion(
+                    RawStoreFactory.DERBY_STORE_MAJOR_VERSION_10,
+                    RawStoreFactory.DERBY_STORE_MINOR_VERSION_15,
+                    RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER);
+            }
+
+            properties.put(
+                RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER, "true");
+        }
+
 		// Do the generic part of creating the b-tree.
 		super.create(
             rawtran, segmentId, input_conglomid, template, 
@@ -951,6 +985,70 @@ public class B2I extends BTree
         return;
     }
 
+    /**
+     * Reorganize the btree while it stays available for updates.
+     * <p>
+     * Under-filled leaves are merged by a BTreeReorganizer, which does
+     * each merge in its own internal transaction.
+     *
+     * @see Conglomerate#reorganizeConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	public void reorganizeConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran)
+        throws StandardException
+    {
+        ConglomerateController base_cc = null;
+
+        try
+        {
+            // Open table in intended exclusive mode in the top level
+            // transaction, this will stop any ddl from happening until
+            // the reorganization of the whole btree is finished.
+            base_cc =
+                lockTable(
+                    xact_manager,
+                    TransactionController.OPENMODE_FORUPDATE,
+                    TransactionController.MODE_RECORD,
+                    TransactionController.ISOLATION_REPEATABLE_READ);
+
+            new BTreeReorganizer(this).reorganize(xact_manager);
+        }
+        finally
+        {
+            if (base_cc != null)
+                base_cc.close();
+        }
+
+        return;
+    }
+
+    /**
+     * Estimate the number of rows and distinct keys of the btree from a
+     * random sample of its leaves.
+     * <p>
+     * The leaves are chosen and read by a BTreeSampler, which only latches
+     * pages and does not lock the base table.
+     *
+     * @see Conglomerate#sampleConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	public long sampleConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran,
+    int                             sample_pages,
+    long[]                          cardinality,
+    SampleObserver                  observer)
+        throws StandardException
+    {
+        return(
+            new BTreeSampler(this).sample(
+                xact_manager, rawtran, sample_pages, cardinality, observer));
+    }
+
     /**
      * Return an open StoreCostController for the conglomerate.
      * <p>
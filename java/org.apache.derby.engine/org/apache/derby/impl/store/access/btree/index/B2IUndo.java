@@ -191,8 +191,18 @@ public class B2IUndo implements LogicalUndo, Formatable
             // could have possibly moved it.
             control_row = ControlRow.get(open_btree, rechandle.getPageNumber());
 
-            // init compare_result, if record doesn't exist do the search 
-            compare_result = 1;
+            // The logged row leaves out the key columns it shared with the
+            // key prefix of the page, if the btree is prefix compressed.  The
+            // prefix of the page may have grown since the row was logged, so
+            // a null in a column of the prefix is either a left out column or
+            // a real null in a column the prefix did not cover yet.  Build
+            // the possible keys, from the one with all those columns 
+            // restored down to the logged row itself.  The row location 
+            // makes the key unique, so only one of them can be in the btree.
+            DataValueDescriptor[][] keys = 
+                getUndoKeys(
+                    logged_index_row_template, 
+                    control_row.getKeyPrefix(open_btree));
 
             if (control_row.getPage().recordExists(rechandle, true))
             {
@@ -212,14 +222,18 @@ public class B2IUndo implements LogicalUndo, Formatable
                         template, 
                         (FetchDescriptor) null,
                         true);
+                control_row.restoreKeyPrefix(open_btree, template);
 
                 // compare the 2 rows, and if they are the same then the raw 
                 // store has the right page and record and there is no work to
                 // be done (this is usual case).
-                compare_result = ControlRow.compareIndexRowToKey(
-                    template, logged_index_row_template, 
-                    logged_index_row_template.length, 1, 
-                    open_btree.getColumnSortOrderInfo());
+                for (int i = 0; i < keys.length && compare_result != 0; i++)
+                {
+                    compare_result = ControlRow.compareIndexRowToKey(
+                        template, keys[i], 
+                        keys[i].length, 1, 
+                        open_btree.getColumnSortOrderInfo());
+                }
             }
 
             if (compare_result == 0)
@@ -231,16 +245,30 @@ public class B2IUndo implements LogicalUndo, Formatable
                 // if the 2 don't compare equal, search the btree from the root 
                 // for the logged row, find the leaf, reset the row for the raw 
                 // store, and return the new page latched.
-                
-                // Create the objects needed for the insert.
-                SearchParameters sp = new SearchParameters(
-                        logged_index_row_template, ScanController.GE, 
-                        template, open_btree, false);
-
                 control_row.release();
                 control_row = null;
-                control_row = 
-                    ControlRow.get(open_btree, BTree.ROOTPAGEID).search(sp);
+
+                SearchParameters sp = null;
+
+                for (int i = 0; i < keys.length; i++)
+                {
+                    // Create the objects needed for the search.
+                    sp = new SearchParameters(
+                            keys[i], ScanController.GE, 
+                            template, open_btree, false);
+
+                    control_row = 
+                        ControlRow.get(open_btree, BTree.ROOTPAGEID).search(sp);
+
+                    if (sp.resultExact)
+                        break;
+
+                    if (i < keys.length - 1)
+                    {
+                        control_row.release();
+                        control_row = null;
+                    }
+                }
 
                 if (!sp.resultExact)
                 {
@@ -288,6 +316,52 @@ public class B2IUndo implements LogicalUndo, Formatable
         return(ret_page);
     }
 
+    /**
+     * Get the keys the logged row may stand for.
+     * <p>
+     * The first key has all the null columns of the logged row which are 
+     * covered by the key prefix restored from the prefix, each following key
+     * has one column less restored, starting with the last one, and the 
+     * last key is the logged row.
+     *
+     * @param logged_row    The row as it was logged.
+     * @param prefix        The key prefix of the page the row was logged on.
+     *
+     * @return The keys, most restored first.
+     *
+     * @exception StandardException Standard Derby error policy
+     **/
+    private DataValueDescriptor[][] getUndoKeys(
+    DataValueDescriptor[]   logged_row,
+    DataValueDescriptor[]   prefix)
+        throws StandardException
+    {
+        int[] null_cols = new int[prefix.length];
+        int   nnulls    = 0;
+
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (logged_row[i].isNull())
+                null_cols[nnulls++] = i;
+        }
+
+        DataValueDescriptor[][] keys = new DataValueDescriptor[nnulls + 1][];
+
+        for (int k = 0; k <= nnulls; k++)
+        {
+            DataValueDescriptor[] key = 
+                new DataValueDescriptor[logged_row.length];
+            System.arraycopy(logged_row, 0, key, 0, logged_row.length);
+
+            for (int i = 0; i < nnulls - k; i++)
+                key[null_cols[i]] = prefix[null_cols[i]];
+
+            keys[k] = key;
+        }
+
+        return(keys);
+    }
+
 	/**
 		Return my format identifier.
 
@@ -68,6 +68,7 @@ public final class ConglomerateUtil
      *     derby.storage.pageReservedSpace
      *     derby.storage.pageSize 
 	 *     derby.storage.reusableRecordId
+     *     derby.storage.compressedColumns (only filled in for heaps)
      *     
      * <p>
      *
@@ -81,6 +82,7 @@ public final class ConglomerateUtil
         prop = createUserRawStorePropertySet(prop);
 
         prop.put(RawStoreFactory.PAGE_REUSABLE_RECORD_ID,       "");
+        prop.put(RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER,  "");
 
         return(prop);
     }
@@ -113,6 +115,9 @@ public final class ConglomerateUtil
         prop.put(RawStoreFactory.MINIMUM_RECORD_SIZE_PARAMETER, "");
         prop.put(RawStoreFactory.PAGE_RESERVED_SPACE_PARAMETER, "");
         prop.put(RawStoreFactory.CONTAINER_INITIAL_PAGES,       "");
+        prop.put(RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER,   "");
+        prop.put(RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER, "");
+        prop.put(RawStoreFactory.PAGE_COMPRESSION_PARAMETER,    "");
 
         return(prop);
     }
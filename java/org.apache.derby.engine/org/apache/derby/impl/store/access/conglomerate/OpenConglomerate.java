@@ -438,10 +438,12 @@ public abstract class OpenConglomerate
         if (SanityManager.DEBUG)
             SanityManager.ASSERT(pos.current_rh != null);
 
+        // the page is latched, so the locking policy may know the lock is
+        // not needed
         boolean lock_granted_with_latch_held =
-            this.container.getLockingPolicy().lockRecordForRead(
-                init_rawtran, container, pos.current_rh, 
-                false /* NOWAIT */, forUpdate);
+            this.container.getLockingPolicy().lockRecordOnPageForRead(
+                init_rawtran, container, pos.current_page, pos.current_rh, 
+                forUpdate);
 
         if (!lock_granted_with_latch_held)
         {
@@ -26,6 +26,7 @@ import java.io.ObjectOutput;
 import java.io.ObjectInput;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.StringTokenizer;
 
 import org.apache.derby.shared.common.reference.SQLState;
 
@@ -51,6 +52,7 @@ import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowLocationRetRowSource;
 import org.apache.derby.iapi.store.access.RowUtil;
+import org.apache.derby.iapi.store.access.SampleObserver;
 import org.apache.derby.iapi.store.access.StaticCompiledOpenConglomInfo;
 import org.apache.derby.iapi.store.access.StoreCostController;
 import org.apache.derby.iapi.store.access.TransactionController;
@@ -156,6 +158,31 @@ import org.apache.derby.impl.store.access.conglomerate.OpenConglomerateScratchSp
  *     collation_ids(compressed array of ints)
  **/
 
+/**
+ * @derby.formatId ACCESS_HEAP_V4_ID
+ *
+ * @derby.purpose   The tag that describes the on disk representation of a Heap
+ *            conglomerate object with columns whose long values are stored
+ *            compressed.  The format contains first the ACCESS_HEAP_V3_ID
+ *            format, followed by a bit set of the compressed columns.
+ *
+ *            Heaps without compressed columns continue to use the
+ *            ACCESS_HEAP_V3_ID format.
+ *
+ * @derby.upgrade   A heap with compressed columns can only be created in a
+ *            database hard upgraded to 10.15, the factory checks the version
+ *            before creating one.
+ *
+ * @derby.diskLayout
+ *     format_of_this_conlgomerate(byte[])
+ *     containerid(long)
+ *     segmentid(int)
+ *     number_of_columns(int)
+ *     array_of_format_ids(byte[][])
+ *     collation_ids(compressed array of ints)
+ *     compressed_columns(FormatableBitSet)
+ **/
+
 /**
 
   A heap object corresponds to an instance of a heap conglomerate.  It caches
@@ -195,6 +222,12 @@ public class Heap
      */
     private boolean hasCollatedTypes;
 
+    /**
+     * The columns whose long values are stored compressed, null unless the
+     * format is ACCESS_HEAP_V4_ID.
+     **/
+    private FormatableBitSet compressed_columns;
+
     private static final int BASE_MEMORY_USAGE = ClassSize.estimateBaseFromCatalog( Heap.class);
     private static final int CONTAINER_KEY_MEMORY_USAGE = ClassSize.estimateBaseFromCatalog( ContainerKey.class);
 
@@ -311,6 +344,13 @@ public class Heap
                 format_ids.length, collationIds);
         hasCollatedTypes = hasCollatedColumns(collation_ids);
 
+        // get the columns whose long values are stored compressed.
+        if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID)
+        {
+            compressed_columns = 
+                createCompressedColumns(format_ids.length, properties);
+        }
+
         // need to open the container and insert the row.  Since we are
         // creating it no need to bother with locking since no one can get
         // to it until after we have created it and returned it's id.
@@ -355,6 +395,48 @@ public class Heap
         }
 	}
 
+    /**
+     * Create the set of compressed columns from the
+     * derby.storage.compressedColumns property.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    private static FormatableBitSet createCompressedColumns(
+    int         num_columns,
+    Properties  properties)
+		throws StandardException
+    {
+        FormatableBitSet columns = new FormatableBitSet(num_columns);
+
+        StringTokenizer st = 
+            new StringTokenizer(
+                properties.getProperty(
+                    RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER), ",");
+
+        try
+        {
+            while (st.hasMoreTokens())
+            {
+                int column = Integer.parseInt(st.nextToken().trim());
+
+                if (column < 0 || column >= num_columns)
+                {
+                    throw StandardException.newException(
+                        SQLState.HEAP_COULD_NOT_CREATE_CONGLOMERATE);
+                }
+
+                columns.set(column);
+            }
+        }
+        catch (NumberFormatException nfe)
+        {
+            throw StandardException.newException(
+                SQLState.HEAP_COULD_NOT_CREATE_CONGLOMERATE, nfe);
+        }
+
+        return(columns);
+    }
+
     /**
      * Create a heap conglomerate during the boot process.
      * <p>
@@ -467,6 +549,10 @@ public class Heap
 
             // add the new column's collation id.
             collation_ids[old_collation_ids.length] =  collation_id;
+
+            // the new column is not compressed.
+            if (compressed_columns != null)
+                compressed_columns.grow(format_ids.length);
            
             // row in slot 0 of heap page 1 which is just a single column with
             // the heap entry.
@@ -1060,6 +1146,46 @@ public class Heap
         return;
     }
 
+    /**
+     * Reorganize the heap.
+     * <p>
+     * Rows in a heap are not kept in any order, so there is nothing to
+     * reorganize.  Committed deleted rows are reclaimed by 
+     * purgeConglomerate(), and rows are moved by defragmentConglomerate().
+     *
+     * @see Conglomerate#reorganizeConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	public void reorganizeConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran)
+        throws StandardException
+    {
+        return;
+    }
+
+    /**
+     * Sample the heap.
+     * <p>
+     * Heaps have no keys to estimate the cardinality of, so they are never
+     * sampled.
+     *
+     * @see Conglomerate#sampleConglomerate
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+	public long sampleConglomerate(
+    TransactionManager              xact_manager,
+    Transaction                     rawtran,
+    int                             sample_pages,
+    long[]                          cardinality,
+    SampleObserver                  observer)
+        throws StandardException
+    {
+        return(-1);
+    }
+
     /**
      * Open a heap compress scan.
      * <p>
@@ -1207,9 +1333,23 @@ public class Heap
      **/
 	public int getTypeFormatId()
     {
-		return StoredFormatIds.ACCESS_HEAP_V3_ID;
+        // only heaps with compressed columns use the 10.15 format, so that
+        // other heaps remain readable by older versions.
+		return (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID ?
+                StoredFormatIds.ACCESS_HEAP_V4_ID :
+                StoredFormatIds.ACCESS_HEAP_V3_ID);
 	}
 
+    /**
+     * Return the columns whose long values are stored compressed.
+     *
+     * @return the columns, or null if there are none.
+     **/
+    FormatableBitSet getCompressedColumns()
+    {
+        return(compressed_columns);
+    }
+
     /**
      * Return whether the value is null or not.
      *
@@ -1266,18 +1406,26 @@ public class Heap
      * <p>
      * This routine uses the current database version to either store the
      * the 10.2 format (ACCESS_HEAP_V2_ID) or the current format 
-     * (ACCESS_HEAP_V3_ID).  
+     * (ACCESS_HEAP_V3_ID), or the format of a heap with compressed columns
+     * (ACCESS_HEAP_V4_ID).
      * <p>
      **/
 	public void writeExternal(ObjectOutput out) throws IOException
     {
         writeExternal_v10_2(out);
 
-        if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V3_ID)
+        if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V3_ID ||
+            conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID)
         {
             // Now append sparse array of collation ids
             ConglomerateUtil.writeCollationIdArray(collation_ids, out);
         }
+
+        if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID)
+        {
+            // followed by the compressed columns
+            compressed_columns.writeExternal(out);
+        }
 	}
 
     /**
@@ -1320,16 +1468,23 @@ public class Heap
         for (int i = 0; i < format_ids.length; i++)
             collation_ids[i] = StringDataValue.COLLATION_TYPE_UCS_BASIC;
 
-		if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V3_ID)
+		if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V3_ID ||
+            conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID)
         {
             // current format id, read collation info from disk
 
             hasCollatedTypes =
                     ConglomerateUtil.readCollationIdArray(collation_ids, in);
+
+            if (conglom_format_id == StoredFormatIds.ACCESS_HEAP_V4_ID)
+            {
+                compressed_columns = new FormatableBitSet();
+                compressed_columns.readExternal(in);
+            }
         }
         else if (conglom_format_id != StoredFormatIds.ACCESS_HEAP_V2_ID)
         {
-            // Currently only V2 and V3 should be possible in a Derby DB.
+            // Currently only V2, V3 and V4 should be possible in a Derby DB.
             // Actual work for V2 is handled by default code above, so no
             // special work is necessary.
 
@@ -23,10 +23,12 @@ package org.apache.derby.impl.store.access.heap;
 
 import org.apache.derby.shared.common.reference.SQLState;
 
+import org.apache.derby.iapi.services.io.StoredFormatIds;
 import org.apache.derby.iapi.services.monitor.ModuleControl;
 import org.apache.derby.iapi.services.monitor.ModuleFactory;
 import org.apache.derby.iapi.services.monitor.ModuleSupportable;
 import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.services.property.PropertyUtil;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.shared.common.error.StandardException;
 
@@ -210,10 +212,67 @@ public class HeapConglomerateFactory implements ConglomerateFactory, ModuleContr
             heap = new Heap_v10_2();
         }
 
+        int format_id = heap.getTypeFormatId();
+
+        // A heap with compressed columns uses a new format, and the long
+        // columns written to it cannot be read by older versions. Temporary
+        // heaps do not need to save space on disk, so they never compress.
+        String compressed_columns = (properties == null ? null :
+            properties.getProperty(
+                RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER));
+
+        if (compressed_columns != null && 
+            compressed_columns.length() > 0 &&
+            (temporaryFlag & TransactionController.IS_TEMPORARY) == 0)
+        {
+            xact_mgr.checkVersion(
+                RawStoreFactory.DERBY_STORE_MAJOR_VERSION_10,
+                RawStoreFactory.DERBY_STORE_MINOR_VERSION_15,
+                RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER);
+
+            format_id = StoredFormatIds.ACCESS_HEAP_V4_ID;
+        }
+
+        // Resolve whether the pages are compressed on disk now, the container
+        // records the choice for the life of the heap.  Older releases can
+        // not read compressed pages, so only allow it once the database has
+        // been upgraded.  Temporary heaps are not compressed either.
+        String page_compression = (properties == null ? null :
+            properties.getProperty(
+                RawStoreFactory.PAGE_COMPRESSION_PARAMETER));
+        if (page_compression == null)
+        {
+            page_compression = 
+                PropertyUtil.getServiceProperty(
+                    xact_mgr, RawStoreFactory.PAGE_COMPRESSION_PARAMETER);
+        }
+
+        if (Boolean.parseBoolean(page_compression))
+        {
+            if (properties == null)
+                properties = new Properties();
+
+            if ((temporaryFlag & TransactionController.IS_TEMPORARY) == 0)
+            {
+                xact_mgr.checkVersion(
+                    RawStoreFactory.DERBY_STORE_MAJOR_VERSION_10,
+                    RawStoreFactory.DERBY_STORE_MINOR_VERSION_15,
+                    RawStoreFactory.PAGE_COMPRESSION_PARAMETER);
+
+                properties.put(
+                    RawStoreFactory.PAGE_COMPRESSION_PARAMETER, "true");
+            }
+            else
+            {
+                properties.put(
+                    RawStoreFactory.PAGE_COMPRESSION_PARAMETER, "false");
+            }
+        }
+
 		heap.create(
             xact_mgr.getRawStoreXact(), segment, input_containerid, 
             template, columnOrder, collationIds, properties, 
-            heap.getTypeFormatId(), 
+            format_id, 
             temporaryFlag);
 
 		return heap;
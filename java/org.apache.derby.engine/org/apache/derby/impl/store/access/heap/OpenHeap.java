@@ -25,8 +25,21 @@ import org.apache.derby.shared.common.reference.SQLState;
 
 import org.apache.derby.shared.common.error.StandardException;
 
+import org.apache.derby.iapi.services.io.FormatableBitSet;
+
+import org.apache.derby.iapi.store.access.DynamicCompiledOpenConglomInfo;
+import org.apache.derby.iapi.store.access.conglomerate.Conglomerate;
+import org.apache.derby.iapi.store.access.conglomerate.TransactionManager;
+
+import org.apache.derby.iapi.store.raw.ContainerHandle;
+import org.apache.derby.iapi.store.raw.LockingPolicy;
+import org.apache.derby.iapi.store.raw.RawStoreFactory;
+import org.apache.derby.iapi.store.raw.Transaction;
+
 import org.apache.derby.iapi.types.RowLocation;
 
+import java.util.Properties;
+
 import org.apache.derby.impl.store.access.conglomerate.OpenConglomerate;
 
 /**
@@ -59,6 +72,106 @@ class OpenHeap extends OpenConglomerate
         return(((Heap) getConglomerate()).format_ids);
     }
 
+    /**
+     * Open the container.
+     * <p>
+     * In addition to the work done by OpenConglomerate, tell the container
+     * handle which columns have their long values stored compressed.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public ContainerHandle init(
+    ContainerHandle                 open_container,
+    Conglomerate                    conglomerate,
+    int[]                           format_ids,
+    int[]                           collation_ids,
+    TransactionManager              xact_manager,
+    Transaction                     rawtran,
+    boolean                         hold,
+    int                             openmode,
+    int                             lock_level,
+    LockingPolicy                   locking_policy,
+    DynamicCompiledOpenConglomInfo  dynamic_info)
+        throws StandardException
+    {
+        ContainerHandle container = 
+            super.init(
+                open_container, conglomerate, format_ids, collation_ids,
+                xact_manager, rawtran, hold, openmode, lock_level,
+                locking_policy, dynamic_info);
+
+        if (container != null)
+        {
+            container.setCompressedColumns(
+                ((Heap) conglomerate).getCompressedColumns());
+        }
+
+        return(container);
+    }
+
+    /**
+     * Open the container, if it is not already open.
+     * <p>
+     * In addition to the work done by OpenConglomerate, tell the container
+     * handle which columns have their long values stored compressed.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public ContainerHandle reopen()
+        throws StandardException
+    {
+        ContainerHandle container = super.reopen();
+
+        if (container != null)
+        {
+            container.setCompressedColumns(
+                ((Heap) getConglomerate()).getCompressedColumns());
+        }
+
+        return(container);
+    }
+
+    /**
+     * Request the system properties associated with a table. 
+     * <p>
+     * In addition to the container properties, a heap reports the columns
+     * whose long values are stored compressed, so that a heap created to
+     * replace this one, for instance by compress table, keeps them.
+     *
+     * @param prop   Property list to fill in.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     **/
+    public void getTableProperties(Properties prop)
+		throws StandardException
+    {
+        super.getTableProperties(prop);
+
+        if (prop.getProperty(RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER) 
+                != null)
+        {
+            FormatableBitSet compressed_columns = 
+                ((Heap) getConglomerate()).getCompressedColumns();
+
+            StringBuilder value = new StringBuilder();
+            if (compressed_columns != null)
+            {
+                for (int i = compressed_columns.anySetBit();
+                     i != -1; 
+                     i = compressed_columns.anySetBit(i))
+                {
+                    if (value.length() > 0)
+                        value.append(',');
+                    value.append(i);
+                }
+            }
+
+            prop.put(
+                RawStoreFactory.COMPRESSED_COLUMNS_PARAMETER, 
+                value.toString());
+        }
+    }
+
     /**
      * Return an "empty" row location object of the correct type.
      * <p>
@@ -2324,6 +2324,14 @@ public final class RawStore implements RawStoreFactory, ModuleControl, ModuleSup
                 requiredMajorVersion, requiredMinorVersion, feature));
     }
 
+    /**
+     * @see RawStoreFactory#hasPreparedRecoveredXact
+     */
+    public boolean hasPreparedRecoveredXact()
+    {
+        return(xactFactory.hasPreparedRecoveredXact());
+    }
+
     /**
      * Removes properties related to encrypted databases.
      *
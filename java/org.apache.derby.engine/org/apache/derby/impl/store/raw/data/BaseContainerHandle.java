@@ -23,6 +23,7 @@ package org.apache.derby.impl.store.raw.data;
 
 import org.apache.derby.shared.common.reference.SQLState;
 
+import org.apache.derby.iapi.services.io.FormatableBitSet;
 import org.apache.derby.iapi.services.locks.Lockable;
 import org.apache.derby.iapi.services.locks.VirtualLockTable;
 import org.apache.derby.iapi.services.monitor.DerbyObservable;
@@ -123,6 +124,14 @@ public class BaseContainerHandle extends DerbyObservable
 	private PageActions		            actionsSet;
 	private AllocationActions           allocActionsSet;
 
+	/**
+		The columns whose long values are compressed when they are written
+		through this handle, null if there are none.
+
+		<BR> MT - Mutable : scoped
+	*/
+	private FormatableBitSet            compressedColumns;
+
 
 	/*
 	** Constructor
@@ -968,6 +977,26 @@ public class BaseContainerHandle extends DerbyObservable
 				identity.getSegmentId() == ContainerHandle.TEMPORARY_SEGMENT);
 	}
 
+	/**
+		@see ContainerHandle#setCompressedColumns
+	 */
+	public void setCompressedColumns(FormatableBitSet compressedColumns)
+    {
+		this.compressedColumns = compressedColumns;
+	}
+
+	/**
+		Is a long value of a column written in compressed form?
+
+		@param columnId the number of the column in the row
+	 */
+	public boolean isCompressedColumn(int columnId)
+    {
+		return (compressedColumns != null &&
+				columnId < compressedColumns.getLength() &&
+				compressedColumns.isSet(columnId));
+	}
+
 	/*
 	** Implementation specific methods for myself and my sub-classes
 	*/
@@ -84,6 +84,8 @@ import java.util.Date;
 import java.util.Properties;
 import java.util.Hashtable;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.io.File;
 import java.io.IOException;
@@ -202,6 +204,16 @@ public class BaseDataFileFactory
 
 	private Hashtable<String,StorageFile> postRecoveryRemovedFiles;
 
+	// transactions that changed pages that have left the page cache, and
+	// may not have committed yet, by page
+	private final ConcurrentHashMap<PageKey,UncommittedWriters>
+		evictedPageWriters = new ConcurrentHashMap<PageKey,UncommittedWriters>();
+
+	// the number of pages in evictedPageWriters at which the writers that
+	// have finished are removed
+	private int evictedPageWritersPruneSize = MIN_EVICTED_PAGE_WRITERS_PRUNE_SIZE;
+	private static final int MIN_EVICTED_PAGE_WRITERS_PRUNE_SIZE = 1024;
+
     // PrivilegedAction actions
     private int actionCode;
     private static final int REMOVE_TEMP_DIRECTORY_ACTION           = 2;
@@ -1470,6 +1482,45 @@ public class BaseDataFileFactory
 		return pageCache;
 	}
 
+	/**
+		Keep the transactions that changed a page which is leaving the page
+		cache, and may not have committed yet, until the page is read in
+		again.
+	*/
+	void saveUncommittedWriters(PageKey key, UncommittedWriters writers)
+	{
+		evictedPageWriters.put(key, writers);
+
+		if (evictedPageWriters.size() >= evictedPageWritersPruneSize)
+		{
+			for (Iterator<UncommittedWriters> it =
+					 evictedPageWriters.values().iterator(); it.hasNext(); )
+			{
+				if (it.next().isEmpty())
+					it.remove();
+			}
+
+			// benign race, another thread may prune at the same time
+			evictedPageWritersPruneSize = Math.max(
+				MIN_EVICTED_PAGE_WRITERS_PRUNE_SIZE,
+				2 * evictedPageWriters.size());
+		}
+	}
+
+	/**
+		Return the transactions that changed a page while it was out of the
+		page cache, and may not have committed yet, or null if there are
+		none.
+	*/
+	UncommittedWriters restoreUncommittedWriters(PageKey key)
+	{
+		if (evictedPageWriters.isEmpty())
+			return null;
+
+		UncommittedWriters writers = evictedPageWriters.remove(key);
+		return (writers == null || writers.isEmpty()) ? null : writers;
+	}
+
 	/**
 		Ask the log factory to flush up to this log instant.
 
@@ -52,6 +52,8 @@ import org.apache.derby.iapi.util.InterruptStatus;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.ObjectInput;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
 
 
 
@@ -148,6 +150,14 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 	*/
 	private LogInstant lastLog;
 
+	/**
+		Transactions that have changed this page and may not have committed
+		yet, or null if there are none.
+
+		<BR> MT - mutable : latched
+	*/
+	private UncommittedWriters uncommittedWriters;
+
     /**
      * The oldest version where we know that any record id that was on the
      * page at that version, must still be on the page. This is used by the
@@ -231,6 +241,7 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 		identity = null;
 		recordCount = 0;
 		clearLastLogInstant();
+		uncommittedWriters = null;
         repositionNeededAfterVersion = 0;
 
 		if (SanityManager.DEBUG)
@@ -771,14 +782,16 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 
 					// step 1: insert the long column ... use the same
 					// insertFlag as the rest of the row.
+					boolean compressed =
+						owner.isCompressedColumn(lce.getNextColumn());
 					RecordHandle longColumnHandle = 
-						insertLongColumn(curPage, lce, insertFlag);
+						insertLongColumn(curPage, lce, insertFlag, compressed);
 
 					// step 2: append the overflow field header to the log buffer
 					int overflowFieldLen = 0;
 					try {
 						overflowFieldLen +=
-							appendOverflowFieldHeader((DynamicByteArrayOutputStream)logBuffer, longColumnHandle);
+							appendOverflowFieldHeader((DynamicByteArrayOutputStream)logBuffer, longColumnHandle, compressed);
 					} catch (IOException ioe) {
 						// YYZ: revisit...  ioexception, insert failed...
 						return null;
@@ -841,6 +854,11 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
      *
      * Same code is called both from an initial insert of a long column and
      * from a subsequent update that results in a long column.
+     * <p>
+     * A compressed column is stored as the deflated form of all of its bytes,
+     * including those already read into the LongColumnException.  The caller
+     * marks the pointer to the chain as compressed, see
+     * appendOverflowFieldHeader().
      *
      * @return The recordHandle of the first piece of the long column chain.
      *
@@ -854,6 +872,8 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
      *                      of the stream it will have a copy of just the first
      *                      page of the stream that has already been read once.
      * @param insertFlag    flags for insert operation.    
+     * @param compressed    if true the column is deflated before it is
+     *                      written to the overflow pages.
      *
      *
      * @exception  StandardException  Standard exception policy.
@@ -861,12 +881,61 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 	protected RecordHandle insertLongColumn(
     BasePage            mainChainPage,
     LongColumnException lce, 
+    byte                insertFlag,
+    boolean             compressed)
+		throws StandardException
+	{
+        if (!compressed)
+            return insertLongColumn(mainChainPage, lce.getColumn(), insertFlag);
+
+        Deflater deflater = new Deflater();
+        try
+        {
+            RememberBytesInputStream columnIn =
+                (RememberBytesInputStream) lce.getColumn();
+
+            return insertLongColumn(
+                mainChainPage,
+                new RememberBytesInputStream(
+                    new DeflaterInputStream(
+                        columnIn.getRemainingStream(), deflater),
+                    columnIn.getByteHolder().cloneEmpty()),
+                insertFlag);
+        }
+        catch (IOException ioe)
+        {
+            throw StandardException.newException(
+                SQLState.DATA_UNEXPECTED_EXCEPTION, ioe);
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Insert the bytes of a long column as a linked list of rows on overflow
+     * pages, see insertLongColumn() above.
+     *
+     * @return The recordHandle of the first piece of the long column chain.
+     *
+     * @param mainChainPage The parent page with row piece containing column
+     *                      that will eventually point to this long column
+     *                      chain.
+     * @param column        The column to insert, a RememberBytesInputStream.
+     * @param insertFlag    flags for insert operation.    
+     *
+     * @exception  StandardException  Standard exception policy.
+     **/
+	private RecordHandle insertLongColumn(
+    BasePage            mainChainPage,
+    Object              column, 
     byte                insertFlag)
 		throws StandardException
 	{
 
 		Object[] row = new Object[1];
-		row[0]       = lce.getColumn();
+		row[0]       = column;
 
 		RecordHandle firstHandle = null;
 		RecordHandle handle      = null;
@@ -1020,10 +1089,12 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 		@param logBuffer		The buffer that contains the partially logged row.
 		@param overflowHandle	the overflow (continuation) pointer
 								to the beginning of the long column
+		@param compressed		true if the long column was logged in
+								deflated form
 
 		@exception StandardException	Standard Derby error policy
 	*/
-	public abstract int appendOverflowFieldHeader(DynamicByteArrayOutputStream logBuffer, RecordHandle overflowHandle)
+	public abstract int appendOverflowFieldHeader(DynamicByteArrayOutputStream logBuffer, RecordHandle overflowHandle, boolean compressed)
 		throws StandardException, IOException;
 
 	public abstract BasePage getOverflowPageForInsert(
@@ -2344,6 +2415,67 @@ abstract class BasePage implements Page, DerbyObserver, TypedFormat
 			lastLog = instant;
 	}
 
+	/*
+	** Uncommitted writers of the page
+	*/
+
+	/**
+		Record that a transaction has changed this page.
+	*/
+	protected final void addUncommittedWriter(RawTransaction t)
+	{
+		if (SanityManager.DEBUG) {
+			SanityManager.ASSERT(isLatched());
+		}
+
+		if (t == null)
+			return;
+
+		if (uncommittedWriters == null)
+			uncommittedWriters = new UncommittedWriters();
+		uncommittedWriters.add(t);
+	}
+
+	/**
+		Return the transactions that have changed this page and may not have
+		committed yet, and forget them, or null if there are none. Called when
+		the page leaves the cache.
+	*/
+	protected final UncommittedWriters removeUncommittedWriters()
+	{
+		UncommittedWriters writers = uncommittedWriters;
+		uncommittedWriters = null;
+		return (writers == null || writers.isEmpty()) ? null : writers;
+	}
+
+	/**
+		Set the transactions that changed this page while it was out of the
+		cache and may not have committed yet. Called when the page enters
+		the cache.
+	*/
+	protected final void setUncommittedWriters(UncommittedWriters writers)
+	{
+		uncommittedWriters = writers;
+	}
+
+	/** @see Page#hasUncommittedChanges */
+	public final boolean hasUncommittedChanges(RecordHandle handle)
+	{
+		if (SanityManager.DEBUG) {
+			SanityManager.ASSERT(isLatched());
+		}
+
+		if (uncommittedWriters != null && uncommittedWriters.isEmpty())
+			uncommittedWriters = null;
+
+		if (uncommittedWriters != null)
+			return true;
+
+		// the writers of the other pieces are recorded on their own pages
+		int slot = findRecordById(handle.getId(), handle.getSlotNumberHint());
+		return (slot < 0) || getHeaderAtSlot(slot).hasOverflow();
+	}
+
 	/*
 	** Page Version control
 	*/
@@ -219,6 +219,8 @@ public abstract class CachedPage extends BasePage implements Cacheable
 		}
 
 		fillInIdentity(newIdentity);
+		setUncommittedWriters(
+			dataFactory.restoreUncommittedWriters(newIdentity));
 
 		initialRowCount = 0;
 
@@ -282,6 +284,8 @@ public abstract class CachedPage extends BasePage implements Cacheable
 		
 		// this is the correct page instance
 		initializeHeaders(5);
+		setUncommittedWriters(
+			dataFactory.restoreUncommittedWriters(newIdentity));
 		createPage(newIdentity, createArgs);
 
 		fillInIdentity(newIdentity);
@@ -640,6 +644,13 @@ public abstract class CachedPage extends BasePage implements Cacheable
 	public void clearIdentity() 
     {
 		alreadyReadPage = false;
+
+		// changes that have not been committed yet must still be known
+		// when the page is read in again
+		UncommittedWriters writers = removeUncommittedWriters();
+		if (writers != null && identity != null)
+			dataFactory.saveUncommittedWriters(identity, writers);
+
 		super.clearIdentity();
 	}
 
@@ -0,0 +1,199 @@
+/*
+
+   Derby - Class org.apache.derby.impl.store.raw.data.CompressedOverflowInputStream
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.store.raw.data;
+
+import org.apache.derby.shared.common.error.StandardException;
+
+import org.apache.derby.iapi.services.io.CloneableStream;
+
+import org.apache.derby.iapi.types.Resetable;
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+A CompressedOverflowInputStream turns a compressed long column into an
+InputStream.
+<p>
+The bytes in the overflow chain of a compressed long column are the deflated
+form of the column.  This stream inflates them while the chain is read, so
+the datatype sees the same bytes it would have seen from an
+OverflowInputStream on an uncompressed column.  Only the part of the column
+that is actually read is inflated.
+<p>
+Resetting the stream restarts the inflation from the beginning of the chain.
+The Inflater is released as soon as the end of the column is reached, or when
+the stream is closed.
+
+**/
+
+class CompressedOverflowInputStream
+extends InputStream
+implements Resetable, CloneableStream
+{
+    /**************************************************************************
+     * Fields of the class
+     **************************************************************************
+     */
+
+    // the stream of deflated bytes read from the overflow chain
+    private final OverflowInputStream   overflowIn;
+
+    // the inflater, null once the end of the column has been reached
+    private Inflater                    inflater;
+
+    // the stream of inflated bytes
+    private InflaterInputStream         inflaterIn;
+
+    /**************************************************************************
+     * Constructors for This class:
+     **************************************************************************
+     */
+
+    /**
+     * Constructor for CompressedOverflowInputStream
+     *
+     * @param overflowIn    The stream over the overflow chain of the column,
+     *                      positioned at the beginning of the chain.
+     **/
+    CompressedOverflowInputStream(OverflowInputStream overflowIn)
+    {
+        this.overflowIn = overflowIn;
+        startInflating();
+    }
+
+    /**************************************************************************
+     * Private methods of This class:
+     **************************************************************************
+     */
+
+    private void startInflating()
+    {
+        if (inflater == null)
+            inflater = new Inflater();
+        else
+            inflater.reset();
+
+        inflaterIn = new InflaterInputStream(overflowIn, inflater);
+    }
+
+    private void endInflating()
+    {
+        if (inflater != null)
+        {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    /**************************************************************************
+     * Public Methods of InputStream:
+     **************************************************************************
+     */
+
+    public int read() throws IOException
+    {
+        if (inflater == null)
+            return -1;
+
+        int value = inflaterIn.read();
+        if (value == -1)
+            endInflating();
+
+        return value;
+    }
+
+    public int read(byte b[], int off, int len) throws IOException
+    {
+        if (inflater == null)
+            return -1;
+
+        int count = inflaterIn.read(b, off, len);
+        if (count == -1)
+            endInflating();
+
+        return count;
+    }
+
+    public long skip(long count) throws IOException
+    {
+        if (inflater == null)
+            return 0;
+
+        return inflaterIn.skip(count);
+    }
+
+    public int available() throws IOException
+    {
+        if (inflater == null)
+            return 0;
+
+        return inflaterIn.available();
+    }
+
+    /**************************************************************************
+     * Public Methods of Resetable Interface.
+     **************************************************************************
+     */
+
+    public void initStream() throws StandardException
+    {
+        overflowIn.initStream();
+    }
+
+    /**
+     * Reset the stream back to beginning of the long column.
+     *
+     * @exception  StandardException  Standard exception policy.
+     **/
+    public void resetStream() throws IOException, StandardException
+    {
+        overflowIn.resetStream();
+        startInflating();
+    }
+
+    public void closeStream()
+    {
+        overflowIn.closeStream();
+        endInflating();
+    }
+
+    /**************************************************************************
+     * Public Methods of CloneableStream Interface
+     **************************************************************************/
+
+    /**
+     * Clone this object.
+     * <p>
+     * The returned stream reads the column from the beginning with its own
+     * buffers and Inflater.
+     *
+     * @return Copy of this stream which can be used independently.
+     */
+    public InputStream cloneStream()
+    {
+        return new CompressedOverflowInputStream(
+            (OverflowInputStream) overflowIn.cloneStream());
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.derby.iapi.services.context.ContextService;
 import org.apache.derby.iapi.services.monitor.Monitor;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.services.io.FormatIdOutputStream;
+import org.apache.derby.iapi.services.io.FormatIdUtil;
 import org.apache.derby.iapi.services.io.StoredFormatIds;
 import org.apache.derby.iapi.services.io.TypedFormat;
 
@@ -59,6 +60,7 @@ import org.apache.derby.iapi.services.io.ArrayOutputStream;
 import org.apache.derby.iapi.services.property.PropertyUtil;
 import org.apache.derby.iapi.util.ByteArray;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.DataInput;
 
@@ -67,6 +69,9 @@ import java.security.AccessController;
 
 import java.util.Properties;
 import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.apache.derby.io.StorageRandomAccessFile;
 
@@ -117,6 +122,15 @@ abstract class FileContainer
 
 	protected short initialPages;	    // initial number of pages preallocated
                                         // to the container when created
+
+	protected int fillFactor;           // % of a btree page to fill on load
+                                        // and on rightmost page splits
+
+	protected boolean prefixCompressed; // do btree pages store their
+                                        // shared key prefix only once?
+
+	protected boolean pageCompressed;   // are pages deflated when they are
+                                        // written to disk?
                                         
 	protected boolean canUpdate;        // can I be written to?
 
@@ -277,7 +291,7 @@ abstract class FileContainer
 		8 bytes	long	container version
 		8 bytes long	estimated number of rows
 		8 bytes long	reusable recordId sequence number
-		8 bytes long	spare3
+		8 bytes long	fill factor (was spare3, 0 means the default)
 		8 bytes	long	checksum
 		container info size is 80 bytes, with 10 bytes of spare space
 	*/
@@ -300,6 +314,28 @@ abstract class FileContainer
 	// recordId in this container can be reused when a page is reused.
 	private static final int FILE_REUSABLE_RECORDID = 0x8;
 
+	// btree pages in this container may be key prefix compressed.
+	private static final int FILE_PREFIX_COMPRESSED = 0x10;
+
+	// pages other than the first alloc page are deflated on disk.
+	private static final int FILE_PAGE_COMPRESSED = 0x20;
+
+	/**
+		A compressed page starts with the RAW_STORE_COMPRESSED_PAGE format id
+		and the number of deflated bytes which follow, instead of the format
+		id of the page.  The page is only written compressed if this saves
+		at least COMPRESSED_PAGE_MINIMUM_SAVING bytes.
+	*/
+	protected static final int COMPRESSED_PAGE_HEADER_SIZE = 8;
+	private static final int COMPRESSED_PAGE_MINIMUM_SAVING = 512;
+
+	/**
+		The number of bytes read first from a compressed container.  If the
+		page has been compressed into fewer bytes, the rest of the page need
+		not be read from disk.
+	*/
+	protected static final int COMPRESSED_PAGE_READ_SIZE = 4096;
+
 	protected static final String SPACE_TRACE = 
         (SanityManager.DEBUG ? "SpaceTrace" : null);
 
@@ -680,6 +716,33 @@ abstract class FileContainer
                 Integer.toString(spareSpace));
         }
 
+        // derby.storage.indexFillFactor
+        if (prop.getProperty(RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER) != 
+                null)
+        {
+            prop.put(
+                RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER, 
+                Integer.toString(fillFactor));
+        }
+
+        // derby.storage.indexPrefixCompression
+        if (prop.getProperty(
+                RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER) != null)
+        {
+            prop.put(
+                RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER, 
+                Boolean.toString(prefixCompressed));
+        }
+
+        // derby.storage.pageCompression
+        if (prop.getProperty(RawStoreFactory.PAGE_COMPRESSION_PARAMETER) != 
+                null)
+        {
+            prop.put(
+                RawStoreFactory.PAGE_COMPRESSION_PARAMETER, 
+                Boolean.toString(pageCompressed));
+        }
+
 		// derby.storage.reusableRecordId
 		if (prop.getProperty(RawStoreFactory.PAGE_REUSABLE_RECORD_ID) != null)
 		{
@@ -749,6 +812,9 @@ abstract class FileContainer
 			pageSize = 0;
 			spareSpace = 0;
 			minimumRecordSize = 0;
+			fillFactor = RawStoreFactory.INDEX_FILL_FACTOR_DEFAULT;
+			prefixCompressed = false;
+			pageCompressed = false;
 		}
 
 		initialPages = 1;
@@ -814,7 +880,8 @@ abstract class FileContainer
 		if (PreAllocSize == 0)	// pre 2.0, we don't store this.
 			PreAllocSize = DEFAULT_PRE_ALLOC_SIZE;
 
-		long spare3 = inStream.readLong();	// read spare long
+		// containers created before the fill factor was stored have 0 here.
+		fillFactor = readFillFactor(inStream.readLong());
 
 		// upgrade - if this is a container that was created before
 		// initialPages was stored, it will have a zero value.  Set it to the
@@ -849,6 +916,8 @@ abstract class FileContainer
 		setDroppedState((status & FILE_DROPPED) != 0);
 		setCommittedDropState((status & FILE_COMMITTED_DROP) != 0);
 		setReusableRecordIdState((status & FILE_REUSABLE_RECORDID) != 0);
+		prefixCompressed = (status & FILE_PREFIX_COMPRESSED) != 0;
+		pageCompressed = (status & FILE_PAGE_COMPRESSED) != 0;
 	}
 
 
@@ -1010,6 +1079,8 @@ abstract class FileContainer
 		if (getDroppedState()) status |= FILE_DROPPED;
 		if (getCommittedDropState()) status |= FILE_COMMITTED_DROP;
 		if (isReusableRecordId()) status |= FILE_REUSABLE_RECORDID;
+		if (prefixCompressed) status |= FILE_PREFIX_COMPRESSED;
+		if (pageCompressed) status |= FILE_PAGE_COMPRESSED;
 
 		a_out.setPosition(0);
 		a_out.setLimit(CONTAINER_INFO_SIZE);
@@ -1025,7 +1096,9 @@ abstract class FileContainer
 		outStream.writeLong(containerVersion);
 		outStream.writeLong(estimatedRowCount);
 		outStream.writeLong(reusableRecordIdSequenceNumber);
-		outStream.writeLong(0);		//Write spare3
+		outStream.writeLong(
+            fillFactor == RawStoreFactory.INDEX_FILL_FACTOR_DEFAULT ?
+                0 : fillFactor);
 
 		checksum.reset();
 		checksum.update(a, 0, CONTAINER_INFO_SIZE - CHECKSUM_SIZE);
@@ -1073,6 +1146,9 @@ abstract class FileContainer
 		minimumRecordSize
 		isReusableRecordId
 		initialPages
+		fillFactor
+		prefixCompressed
+		pageCompressed
 
 	 */
 	private void createInfoFromLog(ByteArray byteArray) 
@@ -1114,6 +1190,13 @@ abstract class FileContainer
 			minimumRecordSize = inStream.readInt();
 			initialPages = inStream.readShort(); 
 
+			inStream.readShort();	// PreAllocSize
+			inStream.readLong();	// firstAllocPageNumber
+			inStream.readLong();	// firstAllocPageOffset
+			inStream.readLong();	// containerVersion
+			inStream.readLong();	// estimatedRowCount
+			inStream.readLong();	// reusableRecordIdSequenceNumber
+			fillFactor = readFillFactor(inStream.readLong());
 		}
 		catch (IOException ioe)
 		{
@@ -1123,6 +1206,8 @@ abstract class FileContainer
 
 		// set reusable record id property
 		setReusableRecordIdState((status & FILE_REUSABLE_RECORDID) != 0);
+		prefixCompressed = (status & FILE_PREFIX_COMPRESSED) != 0;
+		pageCompressed = (status & FILE_PAGE_COMPRESSED) != 0;
 
 		// sanity check to make sure we are not encoutering any
 		// dropped Container 
@@ -1143,6 +1228,9 @@ abstract class FileContainer
 		minimumRecordSize
 		isReusableRecordId
 		initialPages
+		fillFactor
+		prefixCompressed
+		pageCompressed
 
 		RESOLVE - in the future setting parameters should be overridable
 		by sub-class, e.g. one implementation of Container may require a
@@ -1184,6 +1272,12 @@ abstract class FileContainer
 				RawStoreFactory.PAGE_RESERVED_SPACE_PARAMETER, 
 				0, 100, 20);
 
+		fillFactor = 
+			PropertyUtil.getServiceInt(tc, createArgs,
+				RawStoreFactory.INDEX_FILL_FACTOR_PARAMETER, 
+				RawStoreFactory.INDEX_FILL_FACTOR_MINIMUM, 100,
+				RawStoreFactory.INDEX_FILL_FACTOR_DEFAULT);
+
 		PreAllocSize = 
 			PropertyUtil.getServiceInt(tc, createArgs,
 					RawStoreFactory.PRE_ALLOCATE_PAGE,
@@ -1234,6 +1328,14 @@ abstract class FileContainer
 				setReusableRecordIdState(reusableRecordId.booleanValue());
 			}
 
+			prefixCompressed = Boolean.parseBoolean(
+				createArgs.getProperty(
+					RawStoreFactory.INDEX_PREFIX_COMPRESSION_PARAMETER));
+
+			pageCompressed = Boolean.parseBoolean(
+				createArgs.getProperty(
+					RawStoreFactory.PAGE_COMPRESSION_PARAMETER));
+
 			String containerInitialPageParameter =
 				createArgs.getProperty(RawStoreFactory.CONTAINER_INITIAL_PAGES);
 			if (containerInitialPageParameter != null)
@@ -3332,6 +3434,146 @@ abstract class FileContainer
     
     
 
+	/*
+	 * Page compression
+	 */
+
+	/**
+		Is this page written compressed?  The first alloc page holds the
+		container header and is never compressed, and neither are the pages
+		of an encrypted database, which must be encrypted as a whole.
+
+		<BR>MT - MT safe.
+	 */
+	protected boolean compressesPage(long pageNumber)
+	{
+		return pageCompressed &&
+			pageNumber != FIRST_ALLOC_PAGE_NUMBER &&
+			!dataFactory.databaseEncrypted();
+	}
+
+	/**
+		Compresses a page.
+
+		<BR>MT - MT safe, the caller supplies the buffer.
+
+		@param pageData the page
+		@param compressionBuffer buffer of pageSize bytes to put the
+			compressed page into
+		@return the number of bytes of the compressed page in
+			compressionBuffer, or -1 if the page does not compress well
+			enough and should be written as it is
+	 */
+	protected int compressPage(byte[] pageData, byte[] compressionBuffer)
+	{
+		int maxLength = pageSize - COMPRESSED_PAGE_MINIMUM_SAVING;
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try
+		{
+			deflater.setInput(pageData, 0, pageSize);
+			deflater.finish();
+
+			int length = COMPRESSED_PAGE_HEADER_SIZE;
+			while (!deflater.finished() && length < maxLength)
+			{
+				length += deflater.deflate(
+					compressionBuffer, length, maxLength - length);
+			}
+
+			if (!deflater.finished())
+				return -1;
+
+			// the format id is written the same way as the format id of
+			// a page, so that it can never be mistaken for one
+			int formatId = StoredFormatIds.RAW_STORE_COMPRESSED_PAGE;
+			int deflatedLength = length - COMPRESSED_PAGE_HEADER_SIZE;
+			compressionBuffer[0] = (byte) (formatId >>> 8);
+			compressionBuffer[1] = (byte) formatId;
+			compressionBuffer[2] = 0;
+			compressionBuffer[3] = 0;
+			compressionBuffer[4] = (byte) (deflatedLength >>> 24);
+			compressionBuffer[5] = (byte) (deflatedLength >>> 16);
+			compressionBuffer[6] = (byte) (deflatedLength >>> 8);
+			compressionBuffer[7] = (byte) deflatedLength;
+
+			return length;
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	/**
+		Get the length of a compressed page on disk from the first bytes
+		read from its slot.
+
+		<BR>MT - MT safe.
+
+		@param data at least the first COMPRESSED_PAGE_HEADER_SIZE bytes
+			of the slot of the page
+		@return the number of bytes of the compressed page including its
+			header, or -1 if the page was not written compressed
+	 */
+	protected int getCompressedPageLength(byte[] data)
+	{
+		if (FormatIdUtil.readFormatIdInteger(data) != 
+				StoredFormatIds.RAW_STORE_COMPRESSED_PAGE)
+		{
+			return -1;
+		}
+
+		int length = COMPRESSED_PAGE_HEADER_SIZE +
+			(((data[4] & 0xff) << 24) | ((data[5] & 0xff) << 16) |
+			 ((data[6] & 0xff) << 8) | (data[7] & 0xff));
+
+		// a garbled length is treated like any other unreadable page
+		return (length > pageSize) ? pageSize : length;
+	}
+
+	/**
+		Decompresses a page.
+
+		<BR>MT - MT safe.
+
+		@param compressedData the compressed page, including its header
+		@param pageData the array to put the page into
+		@exception IOException the compressed page is garbled
+	 */
+	protected void decompressPage(byte[] compressedData, byte[] pageData)
+		 throws IOException
+	{
+		int length = getCompressedPageLength(compressedData);
+
+		Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput(compressedData, COMPRESSED_PAGE_HEADER_SIZE,
+							  length - COMPRESSED_PAGE_HEADER_SIZE);
+
+			int count = 0;
+			while (count < pageSize && !inflater.finished())
+			{
+				int n = inflater.inflate(pageData, count, pageSize - count);
+				if (n == 0 && inflater.needsInput())
+					break;
+				count += n;
+			}
+
+			if (count != pageSize)
+				throw new EOFException();
+		}
+		catch (DataFormatException dfe)
+		{
+			throw new IOException(dfe);
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
 	/*
 	 * page preallocation
 	 */
@@ -3434,6 +3676,22 @@ abstract class FileContainer
 		return minimumRecordSize;
 	}
 
+	/**
+		Map the fill factor as stored in the container header to its value.
+		Containers created before the fill factor was stored, and
+		containers using the default, store 0.
+	*/
+	private static int readFillFactor(long stored)
+	{
+		if ((stored < RawStoreFactory.INDEX_FILL_FACTOR_MINIMUM) ||
+			(stored > RawStoreFactory.INDEX_FILL_FACTOR_DEFAULT))
+		{
+			return RawStoreFactory.INDEX_FILL_FACTOR_DEFAULT;
+		}
+
+		return (int) stored;
+	}
+
 	private synchronized void switchToMultiInsertPageMode(
     BaseContainerHandle handle)
         throws StandardException
@@ -35,6 +35,7 @@ import org.apache.derby.shared.common.reference.SQLState;
 
 import org.apache.derby.io.StorageFile;
 
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.DataInputStream;
@@ -190,6 +191,11 @@ final class InputStreamContainer extends FileContainer  {
 		{
 			decryptPage(pageData, pageSize);
 		}
+		else if (compressesPage(pageNumber) &&
+				 getCompressedPageLength(pageData) != -1)
+		{
+			decompressPage((byte[]) pageData.clone(), pageData);
+		}
 	}
 
 	/**
@@ -207,7 +213,16 @@ final class InputStreamContainer extends FileContainer  {
 
 			InputStreamUtil.skipFully(is, pageOffset);
 
-			InputStreamUtil.readFully(is, pageData, 0, pageSize);
+			// a compressed page at the end of the file may be shorter than
+			// the page size
+			int count = InputStreamUtil.readLoop(is, pageData, 0, pageSize);
+			if (count < pageSize &&
+				(count < COMPRESSED_PAGE_HEADER_SIZE ||
+				 getCompressedPageLength(pageData) == -1 ||
+				 getCompressedPageLength(pageData) > count))
+			{
+				throw new EOFException();
+			}
 
 			is.close();
 			is = null;
@@ -184,6 +184,12 @@ class RAFContainer extends FileContainer implements PrivilegedExceptionAction<Ob
 
 		synchronized (this) {
 
+			if (compressesPage(pageNumber))
+			{
+				readCompressedPage(pageOffset, pageData);
+				return;
+			}
+
 			fileData.seek(pageOffset);
 
 			fileData.readFully(pageData, 0, pageSize);
@@ -196,6 +202,49 @@ class RAFContainer extends FileContainer implements PrivilegedExceptionAction<Ob
 		}
 	}
 
+	/**
+		Read a page of a compressed container into the supplied array.  Only
+		the first bytes of the page are read at first, the rest is only read
+		if the page was written uncompressed or did not compress into them.
+
+		<BR> MT - call within synchronized block
+		@exception IOException exception reading page
+	*/
+	private void readCompressedPage(long pageOffset, byte[] pageData)
+		 throws IOException
+	{
+		int readSize = Math.min(pageSize, COMPRESSED_PAGE_READ_SIZE);
+
+		fileData.seek(pageOffset);
+
+		// a compressed page at the end of the file may end before its slot
+		int count = 0;
+		while (count < readSize)
+		{
+			int n = fileData.read(pageData, count, readSize - count);
+			if (n < 0)
+				break;
+			count += n;
+		}
+
+		int length = (count < COMPRESSED_PAGE_HEADER_SIZE) ?
+			-1 : getCompressedPageLength(pageData);
+
+		if (length == -1)
+		{
+			// the page was written uncompressed
+			fileData.readFully(pageData, count, pageSize - count);
+			return;
+		}
+
+		byte[] compressedData = new byte[length];
+		int have = Math.min(count, length);
+		System.arraycopy(pageData, 0, compressedData, 0, have);
+		fileData.readFully(compressedData, have, length - have);
+
+		decompressPage(compressedData, pageData);
+	}
+
 	/**
 		Write a page from the supplied array.
 
@@ -244,6 +293,21 @@ class RAFContainer extends FileContainer implements PrivilegedExceptionAction<Ob
             byte[] dataToWrite = 
                 updatePageArray(pageNumber, pageData, encryptionBuf, false);
 
+            // Only the bytes of a compressed page are written, the rest of
+            // its slot in the file is left as it is.  The encryption buffer
+            // is free since pages of encrypted databases are not compressed.
+            int writeLength = pageSize;
+            if (compressesPage(pageNumber))
+            {
+                byte[] compressionBuf = getEncryptionBuffer();
+                int length = compressPage(dataToWrite, compressionBuf);
+                if (length != -1)
+                {
+                    dataToWrite = compressionBuf;
+                    writeLength = length;
+                }
+            }
+
 			try
 			{
 				fileData.seek(pageOffset);
@@ -259,7 +323,7 @@ class RAFContainer extends FileContainer implements PrivilegedExceptionAction<Ob
 				dataFactory.writeInProgress();
 				try
 				{
-					fileData.write(dataToWrite, 0, pageSize);
+					fileData.write(dataToWrite, 0, writeLength);
 				}
 				finally
 				{
@@ -290,7 +354,7 @@ class RAFContainer extends FileContainer implements PrivilegedExceptionAction<Ob
 				dataFactory.writeInProgress();
 				try
 				{
-					fileData.write(dataToWrite, 0, pageSize);
+					fileData.write(dataToWrite, 0, writeLength);
 				}
 				finally
 				{
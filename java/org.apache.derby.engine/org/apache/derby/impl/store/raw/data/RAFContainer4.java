@@ -428,7 +428,11 @@ class RAFContainer4 extends RAFContainer {
                     }
                 }
 
-                if (offset == -1L) {
+                if (offset == -1L && compressesPage(pageNumber)) {
+                    // The page may have been compressed, in which case it
+                    // is decompressed into pageData.
+                    readCompressedPage(pageData, ioChannel, pageOffset);
+                } else if (offset == -1L) {
                     // Normal page read doesn't specify offset,
                     // so use one computed from page number.
                     readFull(pageBuf, ioChannel, pageOffset);
@@ -1000,7 +1004,19 @@ class RAFContainer4 extends RAFContainer {
                         "RAFContainer4: dataToWrite is null after updatePageArray()");
             }
 
-            ByteBuffer writeBuffer = ByteBuffer.wrap(dataToWrite);
+            // Only the bytes of a compressed page are written, the rest of
+            // its slot in the file is left as it is.
+            int writeLength = pageSize;
+            if (compressesPage(pageNumber)) {
+                byte[] compressionBuf = new byte[pageSize];
+                int length = compressPage(dataToWrite, compressionBuf);
+                if (length != -1) {
+                    dataToWrite = compressionBuf;
+                    writeLength = length;
+                }
+            }
+
+            ByteBuffer writeBuffer = ByteBuffer.wrap(dataToWrite, 0, writeLength);
 
             dataFactory.writeInProgress();
             try {
@@ -1193,6 +1209,64 @@ class RAFContainer4 extends RAFContainer {
         }
     }
 
+    /**
+     * Read a page of a compressed container into the supplied array.
+     * <p/>
+     * Only the first bytes of the page are read at first, the rest is only
+     * read if the page was written uncompressed or did not compress into
+     * them. A compressed page at the end of the file may end before its
+     * slot does.
+     *
+     * @param pageData the buffer to read the page into
+     * @param srcChannel channel to read from
+     * @param position file position of the page
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws StandardException If thread is interrupted.
+     */
+    private void readCompressedPage(byte[] pageData,
+                                    FileChannel srcChannel,
+                                    long position)
+            throws IOException, StandardException
+    {
+        ByteBuffer pageBuf = ByteBuffer.wrap(pageData);
+        pageBuf.limit(Math.min(pageSize, COMPRESSED_PAGE_READ_SIZE));
+
+        while (pageBuf.remaining() > 0) {
+            if (srcChannel.read(pageBuf,
+                                position + pageBuf.position()) == -1) {
+                break;
+            }
+
+            // See (**) in readFull
+            if (Thread.currentThread().isInterrupted() &&
+                    !srcChannel.isOpen()) {
+                throw new ClosedByInterruptException();
+            }
+        }
+
+        int count = pageBuf.position();
+        int length = (count < COMPRESSED_PAGE_HEADER_SIZE) ?
+            -1 : getCompressedPageLength(pageData);
+
+        if (length == -1) {
+            // the page was written uncompressed
+            pageBuf.limit(pageSize);
+            readFull(pageBuf, srcChannel, position);
+            return;
+        }
+
+        byte[] compressedData = new byte[length];
+        int have = Math.min(count, length);
+        System.arraycopy(pageData, 0, compressedData, 0, have);
+
+        ByteBuffer compressedBuf = ByteBuffer.wrap(compressedData);
+        compressedBuf.position(have);
+        readFull(compressedBuf, srcChannel, position);
+
+        decompressPage(compressedData, pageData);
+    }
+
     /**
      * Attempts to write buf completely from start until end, at the given
      * position in the destination fileChannel.
@@ -26,6 +26,7 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 
 /**
   A FilterInputStream that remembers read or skipped bytes.
@@ -175,6 +176,19 @@ public class RememberBytesInputStream extends FilterInputStream
 		return new ByteHolderInputStream(bh);
 	}
 
+	/**
+	  Get an input stream which returns the remembered bytes followed by
+	  the bytes which have not been read from the underlying stream yet.
+	  This stream must not be read any more once the returned stream is
+	  in use.
+	  */
+	public InputStream getRemainingStream() throws IOException {
+		bh.startReading();
+		InputStream remembered = new ByteHolderInputStream(bh);
+		return streamClosed ?
+			remembered : new SequenceInputStream(remembered, in);
+	}
+
 	/**
 	  Get the byteHolder.
 	  */
@@ -80,6 +80,15 @@ public class SpaceInformation implements SpaceInfo
         return pageSize;
     }
 
+    /**
+     * Average page fill is not computed for a container, it requires
+     * knowing which pages hold rows.
+     **/
+    public int getAverageFillPercent()
+    {
+        return -1;
+    }
+
     /*
     record the page size for the conglomerate.
     */
@@ -95,6 +95,10 @@ import org.apache.derby.shared.common.sanity.SanityManager;
 	FIXED		- the field is FIXED if and only if it is used in the log 
                   records for version 1.2 and higher.
 
+	COMPRESSED	- only set together with OVERFLOW on the pointer to a long
+                  column chain.  The bytes stored in the chain are the
+                  deflated form of the column (version 10.15 and higher).
+
 	<BR><B>fieldDataLength</B><BR>
 	The fieldDataLength is only set if the field is not NULL.  It is the length
     of the field that is stored on the current page.
@@ -126,6 +130,7 @@ public final class StoredFieldHeader
 	public		static final int FIELD_EXTENSIBLE	= 0x08;
 	public		static final int FIELD_TAGGED		= 0x10;
 	protected	static final int FIELD_FIXED		= 0x20;
+	public		static final int FIELD_COMPRESSED	= 0x40;
 
 	public		static final int FIELD_NONEXISTENT	= (FIELD_NOT_NULLABLE | FIELD_NULL);
 
@@ -178,6 +183,10 @@ public final class StoredFieldHeader
 		return ((status & FIELD_NOT_NULLABLE) == 0);
 	}
 
+	public static final boolean isCompressed(int status) {
+		return ((status & FIELD_COMPRESSED) == FIELD_COMPRESSED);
+	}
+
 	public static final int size(
     int status, 
     int fieldDataLength, 
@@ -286,6 +295,19 @@ public final class StoredFieldHeader
 		return status;
 	}
 
+	public final static int setCompressed(int status, boolean isCompressed) {
+
+		if (SanityManager.DEBUG)
+			SanityManager.ASSERT(isOverflow(status),
+				"only a long column pointer can be set to compressed");
+
+		if (isCompressed)
+			status |= FIELD_COMPRESSED;
+		else
+			status &= ~FIELD_COMPRESSED;
+		return status;
+	}
+
     /**************************************************************************
      * routines used to write a field header to a OutputStream
      **************************************************************************
@@ -703,6 +725,7 @@ public final class StoredFieldHeader
 			if (isTagged(status)) str.append("Tagged ");
 			if (isFixed(status)) str.append("Fixed ");
 			if (isNullable(status)) str.append("Nullable ");
+			if (isCompressed(status)) str.append("Compressed ");
 			if (str.length() == 0)
 				str.append("INITIAL ");
 
@@ -1299,6 +1299,16 @@ public class StoredPage extends CachedPage
         return (allowInsert() && (freeSpace > (getPageSize() / 2)));
     }
 
+    /**
+     * Return how full the page is.
+     *
+     * @see Page#getPercentFull
+     **/
+    public int getPercentFull()
+    {
+        return (int) (((long) (totalSpace - freeSpace) * 100) / totalSpace);
+    }
+
     /**
      * Is there enough space on the page to insert a minimum size row?
      * <p>
@@ -1365,6 +1375,37 @@ public class StoredPage extends CachedPage
         return((freeSpace - bytesNeeded) >= 0);
     }
 
+    /**
+     * Does this page have enough space to copy rows to it from srcPage?
+     * <p>
+     * The rows keep their length and reserved space, but are given new
+     * record ids starting at the next record id of this page, which may
+     * be stored in a different number of bytes.
+     *
+     * @see Page#spaceForCopy(Page, int, int)
+     *
+     * @exception  StandardException  Standard exception policy.
+     **/
+    public boolean spaceForCopy(Page srcPage, int src_slot, int num_rows)
+        throws StandardException
+    {
+        StoredPage srcStoredPage = (StoredPage) srcPage;
+        int[]      spaceNeeded   = new int[num_rows];
+
+        for (int i = 0; i < num_rows; i++)
+        {
+            int slot = src_slot + i;
+
+            spaceNeeded[i] =
+                srcStoredPage.getTotalSpace(slot)
+                - StoredRecordHeader.getStoredSizeRecordId(
+                    srcStoredPage.getHeaderAtSlot(slot).getId())
+                + StoredRecordHeader.getStoredSizeRecordId(nextId + i);
+        }
+
+        return(spaceForCopy(num_rows, spaceNeeded));
+    }
+
     /**
      * Does this page have enough space to move the row to it.
      * <p>
@@ -4732,7 +4773,7 @@ public class StoredPage extends CachedPage
                     boolean isOverflow = 
                         StoredFieldHeader.isOverflow(fieldStatus);
 
-                    OverflowInputStream overflowIn = null;
+                    InputStream overflowIn = null;
 
                     if (isOverflow) 
                     {
@@ -4749,9 +4790,13 @@ public class StoredPage extends CachedPage
                         MemByteHolder byteHolder = 
                             new MemByteHolder(pageData.length);
 
-                        overflowIn = new OverflowInputStream(
+                        OverflowInputStream chainIn = new OverflowInputStream(
                             byteHolder, owner, overflowPage, 
                             overflowId, recordToLock);
+
+                        // a compressed long column is inflated as it is read
+                        overflowIn = StoredFieldHeader.isCompressed(fieldStatus) ?
+                            new CompressedOverflowInputStream(chainIn) : chainIn;
                     }
 
                     // Deal with Storable columns
@@ -5304,7 +5349,7 @@ public class StoredPage extends CachedPage
 
                 Object column     = row[columnId];
 
-                OverflowInputStream overflowIn = null;
+                InputStream overflowIn = null;
 
                 // SRW-DJD code assumes non-extensible case ...
 
@@ -5346,9 +5391,13 @@ public class StoredPage extends CachedPage
                     MemByteHolder byteHolder = 
                         new MemByteHolder(pageData.length);
 
-                    overflowIn = new OverflowInputStream(
+                    OverflowInputStream chainIn = new OverflowInputStream(
                         byteHolder, owner, overflowPage, 
                         overflowId, recordToLock);
+
+                    // a compressed long column is inflated as it is read
+                    overflowIn = StoredFieldHeader.isCompressed(fieldStatus) ?
+                        new CompressedOverflowInputStream(chainIn) : chainIn;
                 }
 
                 // Deal with Object columns
@@ -5617,7 +5666,7 @@ public class StoredPage extends CachedPage
 
                     Object              column     = row[columnId];
 
-                    OverflowInputStream overflowIn = null;
+                    InputStream overflowIn = null;
 
                     // SRW-DJD code assumes non-extensible case ...
 
@@ -5649,9 +5698,13 @@ public class StoredPage extends CachedPage
                             MemByteHolder byteHolder = 
                                 new MemByteHolder(pageData.length);
 
-                            overflowIn = new OverflowInputStream(
+                            OverflowInputStream chainIn = new OverflowInputStream(
                                 byteHolder, owner, overflowPage, 
                                 overflowId, recordToLock);
+
+                            // a compressed long column is inflated as it is read
+                            overflowIn = StoredFieldHeader.isCompressed(fieldStatus) ?
+                                new CompressedOverflowInputStream(chainIn) : chainIn;
                         }
 
                         // Deal with Object columns
@@ -7079,7 +7132,8 @@ public class StoredPage extends CachedPage
      */
 
     /*
-     * update page version and instance due to actions by a log record
+     * update page version and instance due to actions by a log record, and
+     * remember the transaction that did the action until it commits
      */
     public void logAction(LogInstant instant) throws StandardException
     {
@@ -7104,6 +7158,9 @@ public class StoredPage extends CachedPage
 
         bumpPageVersion();
         updateLastLogInstant(instant);
+
+        if (owner != null)
+            addUncommittedWriter(owner.getTransaction());
     }
 
 
@@ -8577,11 +8634,12 @@ slotScan:
     /**
         @exception StandardException Standard Derby error policy
     */
-    public int appendOverflowFieldHeader(DynamicByteArrayOutputStream logBuffer, RecordHandle overflowHandle)
+    public int appendOverflowFieldHeader(DynamicByteArrayOutputStream logBuffer, RecordHandle overflowHandle, boolean compressed)
         throws StandardException, IOException
     {
         int fieldStatus = StoredFieldHeader.setInitial();
         fieldStatus = StoredFieldHeader.setOverflow(fieldStatus, true);
+        fieldStatus = StoredFieldHeader.setCompressed(fieldStatus, compressed);
 
         long overflowPage = overflowHandle.getPageNumber();
         int overflowId = overflowHandle.getId();
@@ -8793,9 +8851,12 @@ slotScan:
                         // operation rolls back, purge the after image column 
                         // chain and reclaim the overflow page because the 
                         // whole chain will be orphaned anyway. 
+                        boolean compressed =
+                            owner.isCompressedColumn(lce.getNextColumn());
                         RecordHandle longColumnHandle =
                             insertLongColumn(
-                                curPage, lce, Page.INSERT_UNDO_WITH_PURGE);
+                                curPage, lce, Page.INSERT_UNDO_WITH_PURGE,
+                                compressed);
 
                         // step 2: append overflow field header to log buffer
                         int overflowFieldLen = 0;
@@ -8803,7 +8864,7 @@ slotScan:
                         {
                             overflowFieldLen +=
                                 appendOverflowFieldHeader(
-                                    logBuffer, longColumnHandle);
+                                    logBuffer, longColumnHandle, compressed);
 
                         } 
                         catch (IOException ioe) 
@@ -0,0 +1,115 @@
+/*
+
+   Derby - Class org.apache.derby.impl.store.raw.data.UncommittedWriters
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.impl.store.raw.data;
+
+import org.apache.derby.iapi.store.raw.xact.RawTransaction;
+import org.apache.derby.iapi.store.raw.xact.TransactionId;
+
+/**
+	The transactions that have changed a page and may not have committed
+	yet. A transaction is recorded with the short id it had when it changed
+	the page, so that it is known to be finished once its transaction object
+	runs another transaction, or none.
+	<P>
+	A page holds its writers while it is in the page cache, and the data
+	factory holds them while the page is out of the cache, so that a page
+	written out and read in again before its writers finish still has them.
+
+	<BR>
+	MT - synchronized, the writers of a page that has been removed from the
+	cache may be pruned while the page is read in again.
+*/
+final class UncommittedWriters
+{
+	private RawTransaction[] writers = new RawTransaction[2];
+	private TransactionId[] writerIds = new TransactionId[2];
+	private int writerCount;
+
+	/**
+		Record a transaction that changed the page.
+	*/
+	synchronized void add(RawTransaction t)
+	{
+		TransactionId id = t.getId();
+		if (id == null)
+			return;
+
+		prune();
+
+		for (int i = 0; i < writerCount; i++)
+		{
+			if (writers[i] == t && id.equals(writerIds[i]))
+				return;
+		}
+
+		if (writerCount == writers.length)
+		{
+			RawTransaction[] newWriters =
+				new RawTransaction[writers.length * 2];
+			TransactionId[] newWriterIds =
+				new TransactionId[writers.length * 2];
+			System.arraycopy(writers, 0, newWriters, 0, writerCount);
+			System.arraycopy(writerIds, 0, newWriterIds, 0, writerCount);
+			writers = newWriters;
+			writerIds = newWriterIds;
+		}
+
+		writers[writerCount] = t;
+		writerIds[writerCount] = id;
+		writerCount++;
+	}
+
+	/**
+		Tell whether all the transactions that changed the page have
+		finished, and forget the ones that have.
+	*/
+	synchronized boolean isEmpty()
+	{
+		prune();
+		return writerCount == 0;
+	}
+
+	/**
+		Forget the transactions that have finished.
+	*/
+	private void prune()
+	{
+		int kept = 0;
+		for (int i = 0; i < writerCount; i++)
+		{
+			if (writers[i].isUncommittedWriter(writerIds[i]))
+			{
+				writers[kept] = writers[i];
+				writerIds[kept] = writerIds[i];
+				kept++;
+			}
+		}
+
+		for (int i = kept; i < writerCount; i++)
+		{
+			writers[i] = null;
+			writerIds[i] = null;
+		}
+
+		writerCount = kept;
+	}
+}
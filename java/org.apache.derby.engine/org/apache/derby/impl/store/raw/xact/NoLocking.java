@@ -23,6 +23,7 @@ package org.apache.derby.impl.store.raw.xact;
 
 import org.apache.derby.iapi.store.raw.LockingPolicy;
 import org.apache.derby.iapi.store.raw.ContainerHandle;
+import org.apache.derby.iapi.store.raw.Page;
 import org.apache.derby.iapi.store.raw.RecordHandle;
 import org.apache.derby.iapi.store.raw.Transaction;
 
@@ -65,6 +66,17 @@ class NoLocking implements LockingPolicy {
 		return true;
 	}
 
+	public boolean lockRecordOnPageForRead(
+    Transaction     t, 
+    ContainerHandle container,
+    Page            page,
+    RecordHandle    record, 
+    boolean         forUpdate)
+		throws StandardException
+	{
+		return lockRecordForRead(t, container, record, false, forUpdate);
+	}
+
 	public boolean zeroDurationLockRecordForWrite(
     Transaction     t, 
     RecordHandle    record,
@@ -29,6 +29,7 @@ import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.store.raw.ContainerHandle;
 import org.apache.derby.iapi.store.raw.ContainerLock;
 import org.apache.derby.iapi.store.raw.LockingPolicy;
+import org.apache.derby.iapi.store.raw.Page;
 import org.apache.derby.iapi.store.raw.RecordHandle;
 import org.apache.derby.iapi.store.raw.RowLock;
 import org.apache.derby.iapi.store.raw.Transaction;
@@ -48,9 +49,21 @@ import org.apache.derby.shared.common.error.StandardException;
 */
 public class RowLocking2nohold extends RowLocking2
 {
+    /**
+     * Whether rows on pages that only have committed changes are read
+     * without locking them.
+     */
+    private final boolean optimisticReads;
+
 	protected RowLocking2nohold(LockFactory lf) 
+    {
+		this(lf, false);
+	}
+
+	protected RowLocking2nohold(LockFactory lf, boolean optimisticReads) 
     {
 		super(lf);
+        this.optimisticReads = optimisticReads;
 	}
 
     /**
@@ -94,6 +107,39 @@ public class RowLocking2nohold extends RowLocking2
                     C_LockFactory.TIMED_WAIT : C_LockFactory.NO_WAIT));
 	}
 
+    /**
+     * Obtain lock on record being read from a latched page.
+     * <p>
+     * A read lock which is released as soon as it is granted only makes
+     * the reader wait for the transactions that have changed the record and
+     * not committed yet.  If no such transaction has changed the page, and
+     * the record is stored on the page in one piece, the record is
+     * committed, and stays committed while the page is latched, so it is
+     * read without a lock.  Otherwise the lock is requested as in
+     * lockRecordForRead(), without waiting.
+     * <p>
+     * Only done for optimistic reads.  The lock is always requested for
+     * update.
+     *
+	 * @exception  StandardException  Standard exception policy.
+     *
+     * @see LockingPolicy#lockRecordOnPageForRead
+     **/
+	public boolean lockRecordOnPageForRead(
+    Transaction     t, 
+    ContainerHandle container_handle,
+    Page            page,
+    RecordHandle    record, 
+    boolean         forUpdate)
+		throws StandardException
+	{
+        if (optimisticReads && !forUpdate &&
+            !page.hasUncommittedChanges(record))
+            return true;
+
+        return lockRecordForRead(t, container_handle, record, false, forUpdate);
+	}
+
 	public void unlockRecordAfterRead(
     Transaction     t, 
     ContainerHandle container_handle,
@@ -118,6 +118,14 @@ public class TransactionTable implements Formatable
 		return trans.get(id);
 	}
 
+	/**
+		Is the transaction with the given id in the transaction table?
+	*/
+	boolean hasTransaction(TransactionId id)
+	{
+		return findTransactionEntry(id) != null;
+	}
+
     /**
      * Interface for visiting entries in the transaction table.
      * @see #visitEntries(EntryVisitor)
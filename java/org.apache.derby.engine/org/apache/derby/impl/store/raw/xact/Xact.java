@@ -636,6 +636,23 @@ public class Xact extends RawTransaction implements Limit, LockOwner {
 		return myId;
 	}
 
+	/**
+		A transaction is in the update state, or prepared, from before it
+		changes any data until it ends, and its object gets a new id before
+		it runs another transaction.
+
+		@see RawTransaction#isUncommittedWriter
+	*/
+	public final boolean isUncommittedWriter(TransactionId id)
+	{
+		TransactionId currentId = myId;
+		if (currentId == null || !id.equals(currentId))
+			return false;
+
+		int currentState = state;
+		return currentState == UPDATE || currentState == PREPARED;
+	}
+
 	/**
 		Get the transaction id without sanity check, this should only be called
 		by a cloned TransactionTableEntry 
@@ -2485,26 +2502,7 @@ public class Xact extends RawTransaction implements Limit, LockOwner {
 						int limit, Enumeration lockList, int lockCount)
 		throws StandardException {
 
-		// Count row locks by table
-		Dictionary<ContainerKey,LockCount> containers = new java.util.Hashtable<ContainerKey,LockCount>();
-
-		for (; lockList.hasMoreElements(); ) {
-
-			Object plainLock = lockList.nextElement();
-			if (!(plainLock instanceof RecordHandle)) {
-				// only interested in rows locks
-				continue;
-			}
-
-			ContainerKey ckey = ((RecordHandle) plainLock).getContainerId();
-			
-			LockCount lc = (LockCount) containers.get(ckey);
-			if (lc == null) {
-				lc = new LockCount();
-				containers.put(ckey, lc);
-			}
-			lc.count++;
-		}
+		Dictionary<ContainerKey,LockCount> containers = countRowLocks(lockList);
 
 		// Determine the threshold for lock escalation
 		// based upon our own limit, not the current count
@@ -2525,27 +2523,8 @@ public class Xact extends RawTransaction implements Limit, LockOwner {
 				continue;
 			}
 
-            try
-            {
-                if (openContainer(ckey,
-                    new RowLocking3Escalate(getLockFactory()),
-                    ContainerHandle.MODE_OPEN_FOR_LOCK_ONLY |
-                    ContainerHandle.MODE_FORUPDATE |
-                    ContainerHandle.MODE_LOCK_NOWAIT) != null) 
-                {
-
-                    didEscalate = true;
-                }
-            }
-            catch (StandardException se)
-            {
-                if (!se.isLockTimeout())
-                {
-                    // if it is a timeout then escalate did not happen and
-                    // just fall through.
-                    throw se;
-                }
-            }
+			if (escalate(ckey))
+				didEscalate = true;
 		}
 
 		// Now notify all open containers that an escalation
@@ -2569,6 +2548,102 @@ public class Xact extends RawTransaction implements Limit, LockOwner {
 		}
 	}
 
+	/**
+		Escalate the row locks of the table that holds the most of them,
+		which frees the most memory. If its table lock cannot be obtained
+		without waiting, try the table with the next most row locks.
+	*/
+	public boolean memoryReached(CompatibilitySpace compatibilitySpace,
+								 Object group, Enumeration lockList,
+								 int lockCount)
+		throws StandardException {
+
+		Dictionary<ContainerKey,LockCount> containers = countRowLocks(lockList);
+
+		while (!containers.isEmpty()) {
+
+			ContainerKey largest = null;
+			int largestCount = 0;
+			for (Enumeration<ContainerKey> e = containers.keys(); e.hasMoreElements(); ) {
+				ContainerKey ckey = e.nextElement();
+				int count = containers.get(ckey).count;
+				if (count > largestCount) {
+					largest = ckey;
+					largestCount = count;
+				}
+			}
+
+			if (escalate(largest)) {
+				// see reached() for why the open containers are notified
+				notifyObservers(LOCK_ESCALATE);
+				checkObserverException();
+				return true;
+			}
+
+			containers.remove(largest);
+		}
+
+		return false;
+	}
+
+	/**
+		Count the row locks in a list of locks by table.
+	*/
+	private static Dictionary<ContainerKey,LockCount> countRowLocks(
+		Enumeration lockList) {
+
+		Dictionary<ContainerKey,LockCount> containers = new java.util.Hashtable<ContainerKey,LockCount>();
+
+		for (; lockList.hasMoreElements(); ) {
+
+			Object plainLock = lockList.nextElement();
+			if (!(plainLock instanceof RecordHandle)) {
+				// only interested in rows locks
+				continue;
+			}
+
+			ContainerKey ckey = ((RecordHandle) plainLock).getContainerId();
+			
+			LockCount lc = (LockCount) containers.get(ckey);
+			if (lc == null) {
+				lc = new LockCount();
+				containers.put(ckey, lc);
+			}
+			lc.count++;
+		}
+
+		return containers;
+	}
+
+	/**
+		Escalate the row locks on a table to a table lock, unless the
+		table lock cannot be obtained without waiting.
+
+		@return true if the table lock was obtained
+		@exception StandardException Standard Derby error policy
+	*/
+	private boolean escalate(ContainerKey ckey) throws StandardException {
+
+        try
+        {
+            return openContainer(ckey,
+                new RowLocking3Escalate(getLockFactory()),
+                ContainerHandle.MODE_OPEN_FOR_LOCK_ONLY |
+                ContainerHandle.MODE_FORUPDATE |
+                ContainerHandle.MODE_LOCK_NOWAIT) != null;
+        }
+        catch (StandardException se)
+        {
+            if (!se.isLockTimeout())
+            {
+                // if it is a timeout then escalate did not happen and
+                // just fall through.
+                throw se;
+            }
+            return false;
+        }
+	}
+
 	/**
      * Convert a local transaction to a global transaction.
      * <p>
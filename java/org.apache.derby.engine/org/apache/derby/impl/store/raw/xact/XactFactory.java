@@ -34,6 +34,7 @@ import org.apache.derby.iapi.services.monitor.ModuleControl;
 import org.apache.derby.iapi.services.monitor.ModuleFactory;
 import org.apache.derby.iapi.services.monitor.ModuleSupportable;
 import org.apache.derby.iapi.services.monitor.Monitor;
+import org.apache.derby.iapi.services.property.PropertyUtil;
 import org.apache.derby.shared.common.sanity.SanityManager;
 import org.apache.derby.iapi.services.io.Formatable;
 import org.apache.derby.iapi.services.uuid.UUIDFactory;
@@ -65,6 +66,7 @@ import java.security.PrivilegedExceptionAction;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -99,6 +101,10 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
 
 	private boolean inCreateNoLog = false;	// creating database, no logging
 
+    // ids of the prepared transactions recovery left in the transaction
+    // table, null if there were none or they have all ended since
+    private volatile TransactionId[] recoveredPreparedXacts;
+
     private /* XAResourceManager */ Object xa_resource;
 
 	private Object   backupSemaphore = new Object();
@@ -167,7 +173,8 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
                             new RowLocking2(lockFactory);
 	    lockingPolicies[LockingPolicy.MODE_RECORD]
                        [TransactionController.ISOLATION_READ_COMMITTED_NOHOLDLOCK] =
-                            new RowLocking2nohold(lockFactory);
+                            new RowLocking2nohold(lockFactory,
+                                optimisticReadCommitted(properties));
 	    lockingPolicies[LockingPolicy.MODE_RECORD]
                        [TransactionController.ISOLATION_REPEATABLE_READ] =
                             new RowLockingRR(lockFactory);
@@ -215,6 +222,18 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
 		}
 	}
 
+	/**
+		Tell whether read committed scans read rows on pages that only
+		have committed changes without locking them.
+	*/
+	private static boolean optimisticReadCommitted(Properties properties)
+	{
+		String value = PropertyUtil.getPropertyFromSet(
+			properties, Property.LOCKS_OPTIMISTIC_READ_COMMITTED);
+
+		return (value == null) || Boolean.valueOf(value).booleanValue();
+	}
+
 	public void	stop() {
 
 		if (rawStoreDaemon != null)
@@ -616,8 +635,18 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
 
 		if (ttab.hasPreparedRecoveredXact())
 		{
+            ArrayList<TransactionId> recovered_ids =
+                new ArrayList<TransactionId>();
+
             // if there any prepared xacts 
 
+            // The pages changed by the prepared xacts before the database
+            // booted don't know them, so read committed scans must lock
+            // every row they read.
+            lockingPolicies[LockingPolicy.MODE_RECORD]
+                           [TransactionController.ISOLATION_READ_COMMITTED_NOHOLDLOCK] =
+                                new RowLocking2nohold(lockFactory);
+
             // At this point recovery has used one context and one transaction
             // to deal with all transactions.  Prepared transactions are to
             // be left in the transaction table, but the must have real and
@@ -646,6 +675,7 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
                     // accumulate locks, and change the transaction table entry
                     // to not be "in-recovery" so that it won't show up again.
                     rawtran.reprepare();
+                    recovered_ids.add(rawtran.getId());
 
                     if (SanityManager.DEBUG)
                         prepared_count++;
@@ -663,6 +693,8 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
 				}
             }
 
+            recoveredPreparedXacts =
+                recovered_ids.toArray(new TransactionId[recovered_ids.size()]);
 		}
 
 		if (SanityManager.DEBUG)
@@ -902,6 +934,30 @@ public class XactFactory implements TransactionFactory, ModuleControl, ModuleSup
 		return (ttab.hasPreparedXact());
 	}
 
+    /**
+     * Check if there are prepared transactions which recovery left in the
+     * transaction table.  Those that have ended are forgotten, the answer
+     * may be outdated as soon as it is reported.
+     *
+     * @see TransactionFactory#hasPreparedRecoveredXact
+     */
+	public boolean hasPreparedRecoveredXact()
+	{
+        TransactionId[] ids = recoveredPreparedXacts;
+
+        if (ids == null)
+            return false;
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            if (ttab.hasTransaction(ids[i]))
+                return true;
+        }
+
+        recoveredPreparedXacts = null;
+        return false;
+	}
+
 
 
 	/**
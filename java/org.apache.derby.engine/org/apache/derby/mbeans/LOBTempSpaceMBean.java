@@ -0,0 +1,90 @@
+/*
+
+   Derby - Class org.apache.derby.mbeans.LOBTempSpaceMBean
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.mbeans;
+
+/**
+ * This is an MBean that provides information about the temporary space
+ * used by the BLOB and CLOB values which are modified through JDBC.
+ * Such a LOB is held in memory while it is small and the memory budget
+ * given by the <code>derby.jdbc.lobTempMemory</code> property allows it,
+ * and spills to a temporary file of its database otherwise.
+ * <P>
+ * Key properties for registered MBean:
+ * <UL>
+ * <LI> <code>type=LOBTempSpace</code>
+ * <LI> <code>system=</code><em>runtime system identifier</em> (see overview)
+ * </UL>
+ */
+public interface LOBTempSpaceMBean {
+    /**
+     * Get the maximum number of bytes which LOBs may hold in memory.
+     *
+     * @return the memory budget in bytes
+     */
+    long getMemoryBudget();
+
+    /**
+     * Get the number of bytes of memory currently held by LOBs.
+     *
+     * @return the memory used by LOBs in bytes
+     */
+    long getMemoryBytes();
+
+    /**
+     * Get the highest number of bytes of memory held by LOBs at the
+     * same time.
+     *
+     * @return the peak memory used by LOBs in bytes
+     */
+    long getPeakMemoryBytes();
+
+    /**
+     * Get the number of bytes of the temporary files currently held by
+     * LOBs which have spilled to disk.
+     *
+     * @return the disk space used by LOBs in bytes
+     */
+    long getSpilledBytes();
+
+    /**
+     * Get the highest number of bytes of the temporary files held by LOBs
+     * at the same time.
+     *
+     * @return the peak disk space used by LOBs in bytes
+     */
+    long getPeakSpilledBytes();
+
+    /**
+     * Get the number of times a LOB has spilled from memory to disk.
+     *
+     * @return the number of spills
+     */
+    long getSpillCount();
+
+    /**
+     * Get the number of temporary files currently open for LOBs. There is
+     * at most one such file for each database.
+     *
+     * @return the number of temporary files
+     */
+    int getSpillFileCount();
+}
@@ -0,0 +1,86 @@
+/*
+
+   Derby - Class org.apache.derby.mbeans.LockManagerMBean
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derby.mbeans;
+
+/**
+ * This is an MBean that provides information about the lock manager of a
+ * database: how many locks its transactions hold, how much memory they
+ * take up, and how often transactions have escalated their row locks to
+ * table locks because the locks took up more memory than the
+ * <code>derby.locks.escalationMemory</code> property allows.
+ * <P>
+ * Key properties for registered MBean:
+ * <UL>
+ * <LI> <code>type=LockManager</code>
+ * <LI> <code>db=</code><em>database name</em>
+ * <LI> <code>system=</code><em>runtime system identifier</em> (see overview)
+ * </UL>
+ */
+public interface LockManagerMBean {
+    /**
+     * Get the number of locks held by all the transactions of the database.
+     * A lock obtained several times by a transaction is counted once.
+     *
+     * @return the number of held locks
+     */
+    long getLockCount();
+
+    /**
+     * Get the estimated number of bytes of memory taken up by the held
+     * locks.
+     *
+     * @return the memory used by locks in bytes
+     */
+    long getLockMemoryBytes();
+
+    /**
+     * Get the number of bytes of memory the held locks may take up before
+     * transactions holding many of them escalate to table locks, or 0 if
+     * there is no such limit.
+     *
+     * @return the value of <code>derby.locks.escalationMemory</code>
+     */
+    int getEscalationMemory();
+
+    /**
+     * Get the number of times a transaction has escalated row locks to a
+     * table lock because the locks took up too much memory.
+     *
+     * @return the number of escalations on memory
+     */
+    long getMemoryEscalationCount();
+
+    /**
+     * Get the number of objects, such as rows and tables, which are locked
+     * or waited for.
+     *
+     * @return the number of entries in the lock table
+     */
+    int getLockedObjectCount();
+
+    /**
+     * Get the number of lock requests which are waiting for a lock.
+     *
+     * @return the number of waiters
+     */
+    int getWaiterCount();
+}
@@ -0,0 +1,237 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.lang.CoveringIndexTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.RuntimeStatisticsParser;
+import org.apache.derbyTesting.junit.SQLUtilities;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test that queries are answered from an index alone when the index holds
+ * all the columns they need, including the columns listed in the INCLUDE
+ * clause of CREATE INDEX.
+ */
+public class CoveringIndexTest extends BaseJDBCTestCase {
+
+    public CoveringIndexTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        // Only the engine is tested, so skip client/server.
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(CoveringIndexTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.execute("create table orders(id int not null, "
+                        + "customer int, amount int, note varchar(100))");
+                s.execute("create table customers(id int)");
+                for (int i = 0; i < 200; i++) {
+                    s.execute("insert into orders values (" + i + ", "
+                            + (i % 20) + ", " + i + ", 'note " + i + "')");
+                }
+                s.execute("insert into customers values 1, 2, 3, 99");
+            }
+        };
+    }
+
+    protected void setUp() throws SQLException {
+        createStatement().execute(
+                "call syscs_util.syscs_set_runtimestatistics(1)");
+    }
+
+    protected void tearDown() throws Exception {
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_set_runtimestatistics(0)");
+        dropIndex(s, "ORDERS_CUSTOMER");
+        dropIndex(s, "ORDERS_ID");
+        s.close();
+        super.tearDown();
+    }
+
+    /**
+     * Test that the SELECT list of an EXISTS subquery does not force a
+     * lookup of the base row, since its values are never used, so that the
+     * subquery is answered from an index which covers its predicates.
+     */
+    public void testExistsSubquery() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create index orders_customer on orders(customer, amount)");
+
+        JDBC.assertUnorderedResultSet(s.executeQuery(
+                "select id from customers c where exists "
+                + "(select note from orders o where o.customer = c.id "
+                + "and o.amount > 100)"),
+                new String[][] {{"1"}, {"2"}, {"3"}});
+        assertNoBaseRowLookup("ORDERS");
+
+        // Probe the index for each customer, a hash join would rather scan
+        // the whole table once for so few customers.
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select id from customers c where not exists "
+                + "(select note, id from orders o --DERBY-PROPERTIES "
+                + "index=orders_customer, joinStrategy=nestedloop\n"
+                + "where o.customer = c.id)"),
+                "99");
+        assertNoBaseRowLookup("ORDERS");
+    }
+
+    /**
+     * Test that an EXISTS subquery whose predicates are on INCLUDE columns
+     * is answered from the index.
+     */
+    public void testExistsSubqueryWithIncludeColumns() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create index orders_customer on orders(customer) "
+                + "include (amount)");
+
+        JDBC.assertUnorderedResultSet(s.executeQuery(
+                "select id from customers c where exists "
+                + "(select note from orders o --DERBY-PROPERTIES "
+                + "index=orders_customer, joinStrategy=nestedloop\n"
+                + "where o.customer = c.id and o.amount > 180)"),
+                new String[][] {{"1"}, {"2"}, {"3"}});
+        assertNoBaseRowLookup("ORDERS");
+    }
+
+    /**
+     * Test that INCLUDE columns cover queries on a non-unique index.
+     */
+    public void testIncludeColumns() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create index orders_customer on orders(customer) "
+                + "include (amount)");
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, sum(amount) from orders "
+                + "where customer < 3 group by customer"),
+                new String[][] {
+                    {"0", "900"}, {"1", "910"}, {"2", "920"}});
+        assertNoBaseRowLookup("ORDERS");
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(distinct amount) from orders "
+                + "where customer = 7"),
+                "10");
+        assertNoBaseRowLookup("ORDERS");
+
+        s.execute("update orders set amount = amount + 1 where customer = 7");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select max(amount) from orders where customer = 7"),
+                "188");
+        assertCheckTable();
+        s.execute("update orders set amount = amount - 1 where customer = 7");
+    }
+
+    /**
+     * Test that INCLUDE columns of a unique index are not part of its key.
+     */
+    public void testUniqueIndexWithIncludeColumns() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create unique index orders_id on orders(id) "
+                + "include (customer, note)");
+
+        assertStatementError("23505", s,
+                "insert into orders values (5, 1, 1, 'note 5')");
+        assertStatementError("23505", s,
+                "insert into orders values (5, 2, 2, 'another note')");
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, note from orders where id = 42"),
+                new String[][] {{"2", "note 42"}});
+        assertNoBaseRowLookup("ORDERS");
+
+        // Reinserting a deleted key must replace the INCLUDE columns of the
+        // deleted index row.
+        setAutoCommit(false);
+        s.execute("delete from orders where id = 42");
+        s.execute("insert into orders values (42, 3, 42, "
+                + "'a much longer note than the one before')");
+        commit();
+        setAutoCommit(true);
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, note from orders --DERBY-PROPERTIES "
+                + "index=orders_id\nwhere id = 42"),
+                new String[][] {
+                    {"3", "a much longer note than the one before"}});
+
+        s.execute("update orders set note = 'updated' where id = 43");
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, note from orders --DERBY-PROPERTIES "
+                + "index=orders_id\nwhere id = 43"),
+                new String[][] {{"3", "updated"}});
+        assertCheckTable();
+
+        // Compress rebuilds the index with the same unique key.
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'ORDERS', 0)");
+        assertStatementError("23505", s,
+                "insert into orders values (43, 4, 4, 'note 43')");
+        assertCheckTable();
+
+        s.execute("update orders set customer = 2, note = 'note 42' "
+                + "where id = 42");
+        s.execute("update orders set note = 'note 43' where id = 43");
+    }
+
+    /**
+     * Test the errors raised for bad INCLUDE column lists.
+     */
+    public void testIncludeColumnErrors() throws SQLException {
+        Statement s = createStatement();
+        assertStatementError("42X66", s,
+                "create index orders_bad on orders(id) include (id)");
+        assertStatementError("42X66", s,
+                "create index orders_bad on orders(id) include (note, note)");
+        assertStatementError("42X14", s,
+                "create index orders_bad on orders(id) include (nosuch)");
+    }
+
+    /**
+     * Check that the last statement did not look up rows of the table
+     * through an index.
+     */
+    private void assertNoBaseRowLookup(String table) throws SQLException {
+        RuntimeStatisticsParser parser =
+                SQLUtilities.getRuntimeStatisticsParser(createStatement());
+        assertTrue(parser.toString(), parser.usedIndexScan(table));
+        assertFalse(parser.toString(), parser.usedIndexRowToBaseRow(table));
+    }
+
+    private void assertCheckTable() throws SQLException {
+        JDBC.assertSingleValueResultSet(createStatement().executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'ORDERS')"), "1");
+    }
+
+    private static void dropIndex(Statement s, String index)
+            throws SQLException {
+        try {
+            s.execute("drop index " + index);
+        } catch (SQLException se) {
+            assertSQLState("42X65", se);
+        }
+    }
+}
@@ -92,6 +92,7 @@ public class DBOAccessTest extends GeneratedColumnsHelper
     private static  final   String      SYSCS_CREATE_USER = "SYSCS_UTIL.SYSCS_CREATE_USER";
     private static  final   String      SYSCS_RESET_PASSWORD = "SYSCS_UTIL.SYSCS_RESET_PASSWORD";
     private static  final   String      SYSCS_DROP_USER = "SYSCS_UTIL.SYSCS_DROP_USER";
+    private static  final   String      SYSCS_REORGANIZE_INDEX = "SYSCS_UTIL.SYSCS_REORGANIZE_INDEX";
 
     ///////////////////////////////////////////////////////////////////////////////////
     //
@@ -337,6 +338,7 @@ public class DBOAccessTest extends GeneratedColumnsHelper
         vet6616( dboConnection, janetConnection, SYSCS_CREATE_USER, false );
         vet6616( dboConnection, janetConnection, SYSCS_RESET_PASSWORD, false );
         vet6616( dboConnection, janetConnection, SYSCS_DROP_USER, false );
+        vet6616( dboConnection, janetConnection, SYSCS_REORGANIZE_INDEX, false );
     }
     private void    vet6616
         ( Connection dboConnection, Connection janetConnection, String routineName, boolean isFunction )
@@ -608,6 +610,14 @@ public class DBOAccessTest extends GeneratedColumnsHelper
             }
             catch (SQLException se) { vetError( UNKNOWN_USER, se ); }
         }
+        else if (SYSCS_REORGANIZE_INDEX.equals( routineName ) )
+        {
+            try {
+                SystemProcedures.SYSCS_REORGANIZE_INDEX( "TEST_DBO", "BAR", null );
+                fail();
+            }
+            catch (SQLException se) { vetError( MISSING_TABLE, se ); }
+        }
         else
         {
             throw new Exception( "Unknown routine name: " + routineName );
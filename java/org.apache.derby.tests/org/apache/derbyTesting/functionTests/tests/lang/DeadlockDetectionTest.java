@@ -238,4 +238,81 @@ public class DeadlockDetectionTest extends BaseJDBCTestCase {
         // picked as victim, the other ones should be able to complete.)
         assertEquals("Number of victims", 1, exceptions.size());
     }
+
+    /**
+     * Stress test for deadlock detection. Many pairs of transactions
+     * deadlock at the same time, each pair on its own two rows, so that
+     * many waiters search the wait graph for deadlocks concurrently.
+     * Exactly one transaction in each pair should be picked as victim.
+     */
+    public void testManyConcurrentDeadlocks() throws Exception {
+        final int pairs = 100;
+
+        Statement s = createStatement();
+        s.executeUpdate("create table many_deadlocks(x int primary key, y int)");
+        PreparedStatement insert = prepareStatement(
+                "insert into many_deadlocks(x) values ?");
+        for (int i = 0; i < 2 * pairs; i++) {
+            insert.setInt(1, i);
+            insert.executeUpdate();
+        }
+
+        Connection[] conns = new Connection[2 * pairs];
+        Thread[] threads = new Thread[conns.length];
+        final List<Exception> exceptions =
+                Collections.synchronizedList(new ArrayList<Exception>());
+
+        for (int i = 0; i < pairs; i++) {
+            // Both transactions in a pair lock one of the pair's rows, wait
+            // for each other, and then try to lock the other row.
+            final Barrier barrier = new Barrier(2);
+            for (int j = 0; j < 2; j++) {
+                final Connection c = openDefaultConnection();
+                c.setAutoCommit(false);
+                final PreparedStatement ps = c.prepareStatement(
+                        "update many_deadlocks set y = x where x = ?");
+                final int first = 2 * i + j;
+                final int second = 2 * i + 1 - j;
+
+                Thread t = new Thread() {
+                    public void run() {
+                        try {
+                            ps.setInt(1, first);
+                            assertUpdateCount(ps, 1);
+                            barrier.await();
+                            ps.setInt(1, second);
+                            assertUpdateCount(ps, 1);
+                            c.commit();
+                        } catch (Exception e) {
+                            exceptions.add(e);
+                        }
+                    }
+                };
+
+                conns[2 * i + j] = c;
+                threads[2 * i + j] = t;
+            }
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            conns[i].rollback();
+            conns[i].close();
+        }
+
+        for (Exception e : exceptions) {
+            if (e instanceof SQLException) {
+                assertSQLState(DEADLOCK, (SQLException) e);
+            } else {
+                // What's this? Report it.
+                throw e;
+            }
+        }
+
+        assertEquals("Number of victims", pairs, exceptions.size());
+    }
 }
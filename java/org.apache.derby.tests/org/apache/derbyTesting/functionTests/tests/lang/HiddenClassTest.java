@@ -0,0 +1,253 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.lang.HiddenClassTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derby.iapi.services.context.Context;
+import org.apache.derby.iapi.services.context.ContextService;
+import org.apache.derby.iapi.sql.Activation;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
+import org.apache.derby.impl.sql.GenericActivationHolder;
+import org.apache.derby.shared.common.sanity.SanityManager;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.BaseTestSuite;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test that generated classes are defined as hidden classes in a class
+ * loader they share, when the JVM supports hidden classes, that the
+ * class loader is replaced when the class loader version changes, and
+ * that a class loader per generated class is used if the hidden classes
+ * cannot be defined.
+ */
+public class HiddenClassTest extends BaseJDBCTestCase {
+
+    /**
+     * Debug flag that makes the class the hidden classes are defined
+     * through fail to load.
+     */
+    private static final String NO_HOST_CLASS = "TEST_NO_HIDDEN_CLASS_HOST";
+
+    public HiddenClassTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Run the tests in embedded mode only, since the activation classes
+     * are examined from a function, each on a database of its own so that
+     * the hidden classes have not been set up when the fixture starts.
+     */
+    public static Test suite() {
+        BaseTestSuite suite = new BaseTestSuite("HiddenClassTest");
+        suite.addTest(TestConfiguration.singleUseDatabaseDecorator(
+            new HiddenClassTest("testHiddenClasses")));
+        suite.addTest(TestConfiguration.singleUseDatabaseDecorator(
+            new HiddenClassTest("testClassLoaderVersion")));
+
+        // The fallback is forced with a debug flag.
+        if (SanityManager.DEBUG) {
+            suite.addTest(TestConfiguration.singleUseDatabaseDecorator(
+                new HiddenClassTest("testFallback")));
+        }
+        return suite;
+    }
+
+    protected void setUp() throws SQLException {
+        Statement s = createStatement();
+        s.executeUpdate("create function activationClass() " +
+            "returns varchar(100) language java parameter style java " +
+            "no sql external name '" + getClass().getName() +
+            ".activationClass'");
+        s.close();
+    }
+
+    protected void tearDown() throws Exception {
+        if (SanityManager.DEBUG) {
+            SanityManager.DEBUG_CLEAR(NO_HOST_CLASS);
+        }
+        super.tearDown();
+    }
+
+    /**
+     * The activation classes of different statements are hidden classes
+     * in the same class loader, or in class loaders of their own if the
+     * JVM does not support hidden classes.
+     */
+    public void testHiddenClasses() throws SQLException {
+        String first = activationClassOf(1);
+        String second = activationClassOf(2);
+
+        if (hiddenClassesSupported()) {
+            assertHidden(first);
+            assertHidden(second);
+            assertEquals(loaderOf(first), loaderOf(second));
+        } else {
+            assertNotHidden(first);
+            assertNotHidden(second);
+            assertFalse(loaderOf(first).equals(loaderOf(second)));
+        }
+    }
+
+    /**
+     * Classes generated after a change of the database class path, which
+     * changes the class loader version, are defined in a new class loader.
+     */
+    public void testClassLoaderVersion() throws SQLException {
+        if (!hiddenClassesSupported()) {
+            return;
+        }
+
+        String before = activationClassOf(1);
+        bumpClassLoaderVersion();
+        String after = activationClassOf(2);
+        String afterAgain = activationClassOf(3);
+
+        assertHidden(before);
+        assertHidden(after);
+        assertHidden(afterAgain);
+        assertFalse(loaderOf(before).equals(loaderOf(after)));
+        assertEquals(loaderOf(after), loaderOf(afterAgain));
+    }
+
+    /**
+     * If the class the hidden classes are defined through cannot be
+     * loaded, each generated class gets a class loader of its own, and
+     * that is kept even once the class could be loaded again.
+     */
+    public void testFallback() throws SQLException {
+        String hidden = activationClassOf(1);
+
+        SanityManager.DEBUG_SET(NO_HOST_CLASS);
+        bumpClassLoaderVersion();
+        String first = activationClassOf(2);
+        String second = activationClassOf(3);
+
+        assertNotHidden(first);
+        assertNotHidden(second);
+        assertFalse(loaderOf(first).equals(loaderOf(second)));
+
+        SanityManager.DEBUG_CLEAR(NO_HOST_CLASS);
+        bumpClassLoaderVersion();
+        assertNotHidden(activationClassOf(4));
+
+        if (hiddenClassesSupported()) {
+            assertHidden(hidden);
+        }
+    }
+
+    /**
+     * Execute a statement of its own, which returns the description of
+     * its activation class from {@link #activationClass()}.
+     */
+    private String activationClassOf(int n) throws SQLException {
+        Statement s = createStatement();
+        ResultSet rs = s.executeQuery(
+            "values (activationClass(), " + n + ")");
+        assertTrue(rs.next());
+        String description = rs.getString(1);
+        rs.close();
+        s.close();
+        return description;
+    }
+
+    /**
+     * Change the class loader version by setting the database class path.
+     */
+    private void bumpClassLoaderVersion() throws SQLException {
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_set_database_property(" +
+            "'derby.database.classpath', '')");
+        s.close();
+    }
+
+    private static void assertHidden(String description) {
+        assertTrue(description, description.startsWith("hidden "));
+    }
+
+    private static void assertNotHidden(String description) {
+        assertTrue(description, description.startsWith("loaded "));
+    }
+
+    private static String loaderOf(String description) {
+        return description.substring(description.indexOf(' ') + 1);
+    }
+
+    /**
+     * Tell whether the JVM supports hidden classes, that is Class has
+     * an isHidden() method (Java 15 and later).
+     */
+    private static boolean hiddenClassesSupported() {
+        return isHiddenMethod() != null;
+    }
+
+    private static Method isHiddenMethod() {
+        try {
+            return Class.class.getMethod("isHidden");
+        } catch (NoSuchMethodException nsme) {
+            return null;
+        }
+    }
+
+    /**
+     * Function that describes the activation class of the statement that
+     * calls it: "hidden" or "loaded", followed by the identity of the
+     * class loader of the class.
+     */
+    public static String activationClass() throws Exception {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        Activation activation = lcc.getStatementContext().getActivation();
+        if (activation instanceof GenericActivationHolder) {
+            activation = ((GenericActivationHolder) activation).ac;
+        }
+
+        Class<?> c = activation.getClass();
+        Method isHidden = isHiddenMethod();
+        boolean hidden = isHidden != null &&
+            ((Boolean) isHidden.invoke(c)).booleanValue();
+
+        return (hidden ? "hidden " : "loaded ") +
+            System.identityHashCode(c.getClassLoader());
+    }
+
+    /**
+     * Privileged lookup of a Context. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static Context getContextOrNull(final String contextID) {
+        if (System.getSecurityManager() == null) {
+            return ContextService.getContextOrNull(contextID);
+        } else {
+            return AccessController.doPrivileged(
+                new PrivilegedAction<Context>() {
+                    public Context run() {
+                        return ContextService.getContextOrNull(contextID);
+                    }
+                });
+        }
+    }
+}
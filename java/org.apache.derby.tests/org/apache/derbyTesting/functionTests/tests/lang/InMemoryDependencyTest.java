@@ -0,0 +1,288 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.lang.InMemoryDependencyTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Test;
+import org.apache.derby.catalog.DependableFinder;
+import org.apache.derby.catalog.UUID;
+import org.apache.derby.iapi.services.context.Context;
+import org.apache.derby.iapi.services.context.ContextService;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
+import org.apache.derby.iapi.sql.depend.DependencyManager;
+import org.apache.derby.iapi.sql.depend.Dependent;
+import org.apache.derby.iapi.sql.depend.Provider;
+import org.apache.derby.iapi.sql.dictionary.DataDictionary;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test that the in-memory dependencies of the dependency manager, which
+ * are spread over stripes by the UUIDs of their dependents and providers,
+ * are all removed when sessions add, invalidate and clear dependencies
+ * at the same time.
+ */
+public class InMemoryDependencyTest extends BaseJDBCTestCase {
+
+    /** Number of sessions working on the dependencies at the same time. */
+    private static final int SESSIONS = 8;
+
+    /** Number of dependents each session works on. */
+    private static final int ITERATIONS = 500;
+
+    /** Number of providers shared by the sessions. */
+    private static final int PROVIDERS = 16;
+
+    /** Providers shared by the sessions, created by the first one. */
+    private static TestProvider[] providers;
+
+    public InMemoryDependencyTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Run the tests in embedded mode only, since the dependencies are
+     * added by a procedure that uses the dependency manager directly.
+     */
+    public static Test suite() {
+        return new CleanDatabaseTestSetup(TestConfiguration.embeddedSuite(
+            InMemoryDependencyTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.executeUpdate("create procedure exerciseDependencies(" +
+                    "session int, iterations int) language java " +
+                    "parameter style java no sql external name '" +
+                    InMemoryDependencyTest.class.getName() +
+                    ".exerciseDependencies'");
+                s.executeUpdate("create function countDependencies() " +
+                    "returns int language java parameter style java " +
+                    "no sql external name '" +
+                    InMemoryDependencyTest.class.getName() +
+                    ".countDependencies'");
+            }
+        };
+    }
+
+    /**
+     * Sessions that add, invalidate and clear dependencies on shared
+     * providers at the same time leave as many dependencies behind as
+     * there were before they started.
+     */
+    public void testConcurrentClear() throws Exception {
+        final List<Throwable> failures =
+            Collections.synchronizedList(new ArrayList<Throwable>());
+
+        // Compile the statements first, since the statements themselves
+        // depend on the objects they use.
+        Connection[] conns = new Connection[SESSIONS];
+        final CallableStatement[] calls = new CallableStatement[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            conns[i] = openDefaultConnection();
+            calls[i] = conns[i].prepareCall(
+                "call exerciseDependencies(?, ?)");
+            calls[i].setInt(1, i);
+            calls[i].setInt(2, 1);
+            calls[i].execute();
+        }
+        PreparedStatement count = prepareStatement(
+            "values countDependencies()");
+        String baseline = count(count);
+
+        Thread[] threads = new Thread[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            final CallableStatement call = calls[i];
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        call.setInt(2, ITERATIONS);
+                        call.execute();
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < SESSIONS; i++) {
+            threads[i].join();
+        }
+
+        for (Throwable t : failures) {
+            fail("Session failed", t);
+        }
+        assertEquals(baseline, count(count));
+
+        for (int i = 0; i < SESSIONS; i++) {
+            calls[i].close();
+            conns[i].close();
+        }
+        count.close();
+    }
+
+    private static String count(PreparedStatement count) throws SQLException {
+        ResultSet rs = count.executeQuery();
+        assertTrue(rs.next());
+        String n = rs.getString(1);
+        JDBC.assertEmpty(rs);
+        return n;
+    }
+
+    /**
+     * Procedure that adds dependencies of new dependents on the shared
+     * providers, invalidates some of the providers, and clears the
+     * dependencies again. Each dependent has a twin with the same UUID,
+     * as a prepared statement and its clone have, whose dependencies are
+     * cleared with those of the dependent.
+     */
+    public static void exerciseDependencies(int session, int iterations)
+        throws StandardException
+    {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        DataDictionary dd = lcc.getDataDictionary();
+        DependencyManager dm = dd.getDependencyManager();
+        TestProvider[] provs = getProviders(dd);
+
+        for (int i = 0; i < iterations; i++) {
+            UUID id = dd.getUUIDFactory().createUUID();
+            TestDependent d = new TestDependent(id);
+            TestDependent twin = new TestDependent(id);
+            for (int j = 0; j < 4; j++) {
+                Provider p = provs[(session + i * 3 + j * 5) % PROVIDERS];
+                dm.addDependency(d, p, lcc.getContextManager());
+                dm.addDependency(twin, p, lcc.getContextManager());
+            }
+
+            // The dependents of an invalidated provider clear their
+            // dependencies, possibly while their own session does.
+            if (i % 4 == session % 4) {
+                dm.invalidateFor(provs[(session + i) % PROVIDERS],
+                    DependencyManager.COMPILE_FAILED, lcc);
+            }
+
+            dm.clearDependencies(lcc, d);
+        }
+    }
+
+    /**
+     * Function that returns the number of dependencies the dependency
+     * manager knows of.
+     */
+    public static int countDependencies() throws StandardException {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        return lcc.getDataDictionary().getDependencyManager().
+            countDependencies();
+    }
+
+    private static synchronized TestProvider[] getProviders(
+        DataDictionary dd)
+    {
+        if (providers == null) {
+            providers = new TestProvider[PROVIDERS];
+            for (int i = 0; i < PROVIDERS; i++) {
+                providers[i] = new TestProvider(
+                    dd.getUUIDFactory().createUUID());
+            }
+        }
+        return providers;
+    }
+
+    /**
+     * A non-persistent provider.
+     */
+    private static final class TestProvider implements Provider {
+        private final UUID id;
+
+        TestProvider(UUID id) {
+            this.id = id;
+        }
+
+        public DependableFinder getDependableFinder() { return null; }
+        public String getObjectName() { return "provider " + id; }
+        public UUID getObjectID() { return id; }
+        public boolean isPersistent() { return false; }
+        public String getClassType() { return "TestProvider"; }
+    }
+
+    /**
+     * A non-persistent dependent, which clears its dependencies when it
+     * is invalidated.
+     */
+    private static final class TestDependent implements Dependent {
+        private final UUID id;
+        private volatile boolean valid = true;
+
+        TestDependent(UUID id) {
+            this.id = id;
+        }
+
+        public boolean isValid() { return valid; }
+
+        public void prepareToInvalidate(Provider p, int action,
+            LanguageConnectionContext lcc)
+        {
+        }
+
+        public void makeInvalid(int action, LanguageConnectionContext lcc)
+            throws StandardException
+        {
+            valid = false;
+            lcc.getDataDictionary().getDependencyManager().
+                clearDependencies(lcc, this);
+        }
+
+        public DependableFinder getDependableFinder() { return null; }
+        public String getObjectName() { return "dependent " + id; }
+        public UUID getObjectID() { return id; }
+        public boolean isPersistent() { return false; }
+        public String getClassType() { return "TestDependent"; }
+    }
+
+    /**
+     * Privileged lookup of a Context. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static Context getContextOrNull(final String contextID) {
+        if (System.getSecurityManager() == null) {
+            return ContextService.getContextOrNull(contextID);
+        } else {
+            return AccessController.doPrivileged(
+                new PrivilegedAction<Context>() {
+                    public Context run() {
+                        return ContextService.getContextOrNull(contextID);
+                    }
+                });
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Class org.apache.derbyTesting.functionTests.tests.lang.PersistentStatementCacheTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.SystemPropertyTestSetup;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test that the plans in the statement cache are saved when the database
+ * is shut down, and put back into the statement cache when it is booted
+ * again, if derby.language.persistentStatementCache is true.
+ */
+public class PersistentStatementCacheTest extends BaseJDBCTestCase {
+
+    private static final String CACHE_QUERY =
+        "select valid from syscs_diag.statement_cache where sql_text = ?";
+
+    public PersistentStatementCacheTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create the test suite. The test is only run in embedded mode since
+     * the statement cache is examined through SYSCS_DIAG.STATEMENT_CACHE,
+     * and on a database of its own since it shuts the database down.
+     */
+    public static Test suite() {
+        Properties props = new Properties();
+        props.setProperty("derby.language.persistentStatementCache", "true");
+        Test test = TestConfiguration.singleUseDatabaseDecorator(
+            TestConfiguration.embeddedSuite(
+                PersistentStatementCacheTest.class));
+        return new SystemPropertyTestSetup(test, props, true);
+    }
+
+    /**
+     * Return the VALID column of the statement cache for a statement, or
+     * null if the statement is not in the cache.
+     */
+    private Boolean isCachedAndValid(String sql) throws SQLException {
+        PreparedStatement ps = prepareStatement(CACHE_QUERY);
+        ps.setString(1, sql);
+        ResultSet rs = ps.executeQuery();
+        Boolean valid = rs.next() ? Boolean.valueOf(rs.getBoolean(1)) : null;
+        rs.close();
+        ps.close();
+        return valid;
+    }
+
+    /**
+     * Restart the database so that the statement cache is saved and read
+     * back.
+     */
+    private void restart() throws SQLException {
+        getTestConfiguration().shutdownDatabase();
+        getConnection();
+    }
+
+    /**
+     * Test that statements are in the statement cache after a restart
+     * without having been prepared, and that their plans give the
+     * right results.
+     */
+    public void testPlansSurviveRestart() throws SQLException {
+        String select = "select b from pscache1 where a = ?";
+        String insert = "insert into pscache1 values (?, ?)";
+
+        Statement s = createStatement();
+        s.execute("create table pscache1(a int, b varchar(10))");
+        s.execute("insert into pscache1 values (1, 'one'), (2, 'two')");
+
+        PreparedStatement ps = prepareStatement(select);
+        ps.setInt(1, 2);
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "two");
+        ps.close();
+        prepareStatement(insert).close();
+
+        restart();
+
+        assertEquals(Boolean.TRUE, isCachedAndValid(select));
+        assertEquals(Boolean.TRUE, isCachedAndValid(insert));
+
+        ps = prepareStatement(insert);
+        ps.setInt(1, 3);
+        ps.setString(2, "three");
+        assertUpdateCount(ps, 1);
+        ps.close();
+
+        ps = prepareStatement(select);
+        ps.setInt(1, 3);
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "three");
+        ps.setInt(1, 1);
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "one");
+        ps.close();
+
+        // the plans are saved again at the next shutdown
+        restart();
+        assertEquals(Boolean.TRUE, isCachedAndValid(select));
+
+        s = createStatement();
+        s.execute("drop table pscache1");
+        s.close();
+    }
+
+    /**
+     * Test that the dependencies of the restored statements are
+     * registered, so that DDL invalidates them.
+     */
+    public void testDDLInvalidatesRestoredPlans() throws SQLException {
+        String select = "select * from pscache2";
+
+        Statement s = createStatement();
+        s.execute("create table pscache2(a int)");
+        s.execute("insert into pscache2 values 1");
+        JDBC.assertSingleValueResultSet(s.executeQuery(select), "1");
+
+        restart();
+
+        assertEquals(Boolean.TRUE, isCachedAndValid(select));
+
+        s = createStatement();
+        s.execute("alter table pscache2 add column b int default 2");
+        assertEquals(Boolean.FALSE, isCachedAndValid(select));
+        JDBC.assertFullResultSet(s.executeQuery(select),
+                                 new String[][] {{"1", "2"}});
+
+        // a statement invalidated before the shutdown is not saved
+        restart();
+        s = createStatement();
+        s.execute("drop table pscache2");
+        restart();
+        assertNull(isCachedAndValid(select));
+        s.close();
+    }
+}
@@ -22,9 +22,11 @@
 package org.apache.derbyTesting.functionTests.tests.lang;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.Properties;
 import junit.framework.Test;
 import org.apache.derbyTesting.junit.BaseJDBCTestCase;
@@ -1441,6 +1443,140 @@ public class SelectivityTest extends BaseJDBCTestCase {
                 {"NT_YX","numunique= 9 numrows= 9","2"}});
     }
     
+    /**
+     * Test that the histograms gathered with the statistics give estimates
+     * close to the real row counts for columns with skewed values, where
+     * the average selectivity of the values is far off.
+     */
+    public void testSkewedColumnSelectivity() throws SQLException {
+        setAutoCommit(false);
+        Connection conn = getConnection();
+        Statement s = createStatement();
+
+        // 90% of the rows have tenant 1, every 97th row has a null tenant
+        // and the other rows have a tenant of their own.
+        s.executeUpdate("create table skewed (id int, tenant int)");
+        s.executeUpdate("create index skewed_tenant on skewed(tenant)");
+        PreparedStatement ps = prepareStatement(
+                "insert into skewed values (?, ?)");
+        for (int i = 0; i < 20000; i++) {
+            ps.setInt(1, i);
+            if (i % 97 == 0) {
+                ps.setNull(2, Types.INTEGER);
+            } else {
+                ps.setInt(2, i % 10 != 0 ? 1 : 2 + i / 10);
+            }
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS" +
+                "('APP','SKEWED',NULL)");
+        s.executeUpdate("call SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+
+        // Without an index the predicates are qualifiers, whose selectivity
+        // was a fixed guess before.
+        String select = "select id from skewed " +
+                "--DERBY-PROPERTIES index=null \n where ";
+        JDBC.assertDrainResults(s.executeQuery(select + "tenant = 1"), 17814);
+        checkEstimatedRowCount(conn, 17818.45);
+        JDBC.assertDrainResults(s.executeQuery(select + "tenant = 500"), 1);
+        checkEstimatedRowCount(conn, 1.0);
+        JDBC.assertDrainResults(s.executeQuery(select + "tenant <> 1"), 1979);
+        checkEstimatedRowCount(conn, 1979.49);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "tenant < 100"), 17910);
+        checkEstimatedRowCount(conn, 17915.94);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "100 > tenant"), 17910);
+        checkEstimatedRowCount(conn, 17915.94);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "tenant > 100"), 1882);
+        checkEstimatedRowCount(conn, 1881.01);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "tenant is null"), 207);
+        checkEstimatedRowCount(conn, 207.05);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "tenant is not null"), 19793);
+        checkEstimatedRowCount(conn, 19797.95);
+        JDBC.assertDrainResults(
+                s.executeQuery(select + "tenant in (1, 3)"), 17815);
+        checkEstimatedRowCount(conn, 17819.45);
+
+        rollback();
+    }
+
+    /**
+     * Check that the statistics of a column group capture the correlation
+     * of its columns, which the statistics of single indexes cannot.
+     */
+    public void testColumnGroupSelectivity() throws SQLException {
+        setAutoCommit(false);
+        Connection conn = getConnection();
+        Statement s = createStatement();
+
+        // There are 200 cities in 20 countries, so the city determines the
+        // country.
+        s.executeUpdate("create table places (id int, country int, city int)");
+        s.executeUpdate("create index places_country on places(country)");
+        s.executeUpdate("create index places_city on places(city)");
+        PreparedStatement ps = prepareStatement(
+                "insert into places values (?, ?, ?)");
+        for (int i = 0; i < 20000; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, (i % 200) / 10);
+            ps.setInt(3, i % 200);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS" +
+                "('APP','PLACES',NULL)");
+        s.executeUpdate("call SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+
+        String select = "select id from places " +
+                "--DERBY-PROPERTIES index=null \n " +
+                "where country = 3 and city = 35";
+        JDBC.assertDrainResults(s.executeQuery(select), 100);
+        checkEstimatedRowCount(conn, 5.0);
+
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS" +
+                "('APP','PLACES','COUNTRY,CITY')");
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select colcount, cast(statistics as varchar(40)) " +
+                "from sys.sysstatistics where type = 'G'"),
+                new String[][] {{"2", "numunique= 200 numrows= 20000"}});
+        JDBC.assertDrainResults(s.executeQuery(select), 100);
+        checkEstimatedRowCount(conn, 100.025);
+
+        // Refreshing the statistics of the group, in any order of its
+        // columns, replaces them.
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS" +
+                "('APP','PLACES','CITY,COUNTRY')");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from sys.sysstatistics where type = 'G'"),
+                "1");
+        assertStatementError("42X14", s,
+                "CALL SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS" +
+                "('APP','PLACES','COUNTRY,TOWN')");
+
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_DROP_COLUMN_GROUP_STATISTICS" +
+                "('APP','PLACES','CITY,COUNTRY')");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from sys.sysstatistics where type = 'G'"),
+                "0");
+        JDBC.assertDrainResults(s.executeQuery(select), 100);
+        checkEstimatedRowCount(conn, 5.0);
+
+        // Dropping a column drops the statistics of the column groups.
+        s.executeUpdate("CALL SYSCS_UTIL.SYSCS_UPDATE_COLUMN_GROUP_STATISTICS" +
+                "('APP','PLACES','COUNTRY,CITY')");
+        s.executeUpdate("alter table places drop column id");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from sys.sysstatistics where type = 'G'"),
+                "0");
+
+        rollback();
+    }
+
     // drop any tables created during testBasic
     protected void tearDown() throws Exception {
         Statement s = createStatement();
@@ -0,0 +1,199 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.lang.SkipScanTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.RuntimeStatisticsParser;
+import org.apache.derbyTesting.junit.SQLUtilities;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test skip scans, which read only the first index row for each distinct
+ * value of the leading index columns when answering DISTINCT and GROUP BY.
+ */
+public class SkipScanTest extends BaseJDBCTestCase {
+
+    /** Text shown in the scan information of a skip scan. */
+    private static final String SKIP_SCAN =
+            "Number of leading columns skipped over=";
+
+    public SkipScanTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        // Only the engine is tested, so skip client/server.
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(SkipScanTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.execute("create table orders(customer int, ts int, "
+                        + "amount int)");
+                PreparedStatement ps = s.getConnection().prepareStatement(
+                        "insert into orders values (?, ?, ?)");
+                for (int i = 0; i < 2000; i++) {
+                    ps.setInt(1, i % 10);
+                    ps.setInt(2, i);
+                    ps.setInt(3, i % 7);
+                    ps.executeUpdate();
+                }
+                ps.close();
+                s.execute("insert into orders values "
+                        + "(null, 5, 5), (null, 1, 1), (3, null, 1)");
+                s.execute("create index orders_customer_ts "
+                        + "on orders(customer, ts)");
+                s.execute("call syscs_util.syscs_update_statistics"
+                        + "('APP', 'ORDERS', null)");
+            }
+        };
+    }
+
+    protected void setUp() throws SQLException {
+        createStatement().execute(
+                "call syscs_util.syscs_set_runtimestatistics(1)");
+    }
+
+    protected void tearDown() throws Exception {
+        createStatement().execute(
+                "call syscs_util.syscs_set_runtimestatistics(0)");
+        super.tearDown();
+    }
+
+    /**
+     * Test DISTINCT on the leading index column.
+     */
+    public void testDistinct() throws SQLException {
+        Statement s = createStatement();
+        JDBC.assertUnorderedResultSet(s.executeQuery(
+                "select distinct customer from orders"),
+                new String[][] {
+                    {"0"}, {"1"}, {"2"}, {"3"}, {"4"}, {"5"}, {"6"},
+                    {"7"}, {"8"}, {"9"}, {null}});
+        assertSkipScan(true, 11);
+
+        // Reexecuting the statement must start from the beginning again.
+        PreparedStatement ps = prepareStatement(
+                "select count(*) from (select distinct customer "
+                + "from orders) t");
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "11");
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "11");
+
+        // Both index columns are almost unique, so there is nothing to skip.
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from (select distinct customer, ts "
+                + "from orders) t"), "2003");
+        assertSkipScan(false, 2003);
+    }
+
+    /**
+     * Test GROUP BY on the leading index column with MIN of the next one.
+     */
+    public void testGroupByMin() throws SQLException {
+        Statement s = createStatement();
+        String[][] expected = new String[11][];
+        for (int i = 0; i < 10; i++) {
+            expected[i] = new String[] {Integer.toString(i), Integer.toString(i)};
+        }
+        expected[10] = new String[] {null, "1"};
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, min(ts) from orders group by customer"),
+                expected);
+        assertSkipScan(true, 11);
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer from orders group by customer "
+                + "having min(ts) < 2"),
+                new String[][] {{"0"}, {"1"}, {null}});
+        assertSkipScan(true, 11);
+
+        // MAX and COUNT need every row of the group.
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select max(ts) from orders where customer = 3 "
+                + "group by customer"), "1993");
+        assertSkipScan(false, -1);
+        JDBC.assertDrainResults(s.executeQuery(
+                "select customer, count(*) from orders group by customer"),
+                11);
+        assertSkipScan(false, 2003);
+    }
+
+    /**
+     * Test that a descending column is only skipped over for MAX if it
+     * cannot be NULL, since NULLs are the first values in the group.
+     */
+    public void testDescendingIndex() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create table desc_orders(customer int, "
+                + "ts int not null, note int)");
+        s.execute("insert into desc_orders select customer, "
+                + "coalesce(ts, 0), ts from orders");
+        s.execute("create index desc_orders_ts on desc_orders"
+                + "(customer, ts desc, note desc)");
+        s.execute("call syscs_util.syscs_update_statistics"
+                + "('APP', 'DESC_ORDERS', null)");
+
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select customer, max(ts) from desc_orders "
+                + "where customer < 2 group by customer"),
+                new String[][] {{"0", "1990"}, {"1", "1991"}});
+
+        JDBC.assertDrainResults(s.executeQuery(
+                "select customer, max(ts) from desc_orders "
+                + "--DERBY-PROPERTIES index=desc_orders_ts\n"
+                + "group by customer"), 11);
+        assertSkipScan(true, 11);
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from (select customer, ts "
+                + "from desc_orders group by customer, ts) t"), "2003");
+        JDBC.assertDrainResults(s.executeQuery(
+                "select customer, ts, max(note) from desc_orders "
+                + "--DERBY-PROPERTIES index=desc_orders_ts\n"
+                + "group by customer, ts"), 2003);
+        assertSkipScan(false, 2003);
+
+        s.execute("drop table desc_orders");
+    }
+
+    /**
+     * Check whether the last statement used a skip scan, and how many
+     * index rows it read.
+     *
+     * @param skipScan whether a skip scan is expected
+     * @param rowsSeen the number of rows the index scan should have read,
+     *   or -1 if it does not matter
+     */
+    private void assertSkipScan(boolean skipScan, int rowsSeen)
+            throws SQLException {
+        RuntimeStatisticsParser parser =
+                SQLUtilities.getRuntimeStatisticsParser(createStatement());
+        String plan = parser.toString();
+        assertEquals(plan, skipScan, plan.indexOf(SKIP_SCAN) != -1);
+        if (rowsSeen != -1) {
+            assertTrue(plan, plan.indexOf("Rows seen = " + rowsSeen) != -1);
+        }
+    }
+}
@@ -20,7 +20,9 @@
  */
 package org.apache.derbyTesting.functionTests.tests.lang;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
@@ -333,4 +335,106 @@ public class StalePlansTest extends BaseJDBCTestCase {
 
         rollback();
     }
+
+    /**
+     * Test that a statement is recompiled with a corrected estimate when a
+     * table returns many more rows than the optimizer estimated, and that
+     * derby.language.cardinalityFeedbackRatio=0 turns this off.
+     */
+    public void testCardinalityFeedback() throws SQLException {
+        Statement stmt = createStatement();
+        stmt.executeUpdate("insert into t values (1, 1, 'abc')");
+        PreparedStatement insert = prepareStatement(
+            "insert into t select * from t");
+        for (int i = 0; i < 11; i++) {
+            insert.executeUpdate();
+        }
+        commit();
+
+        // Make sure row count from inserts is flushed out
+        flushRowCount(stmt);
+
+        // Without statistics, each predicate is estimated to qualify a
+        // tenth of the rows, but all the rows qualify.
+        PreparedStatement ps = prepareStatement(
+            "select c3 from t --DERBY-PROPERTIES index=null\n" +
+            "where c1 = 1 and c2 = 1");
+        JDBC.assertDrainResults(ps.executeQuery(), 2048);
+        checkEstimatedRowCount(getConnection(), 22.33);
+
+        // The first execution corrected the estimate of the table.
+        for (int i = 0; i < 2; i++) {
+            JDBC.assertDrainResults(ps.executeQuery(), 2048);
+            checkEstimatedRowCount(getConnection(), 2048);
+        }
+        ps.close();
+
+        stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
+                     "'derby.language.cardinalityFeedbackRatio', '0')");
+        ps = prepareStatement(
+            "select c3 from t --DERBY-PROPERTIES index=null\n" +
+            "where c2 = 1 and c1 = 1");
+        for (int i = 0; i < 3; i++) {
+            JDBC.assertDrainResults(ps.executeQuery(), 2048);
+            checkEstimatedRowCount(getConnection(), 22.33);
+        }
+        ps.close();
+        stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
+                     "'derby.language.cardinalityFeedbackRatio', null)");
+
+        stmt.close();
+        insert.close();
+        commit();
+    }
+
+    /**
+     * Test that a statement is not invalidated when the statistics of its
+     * tables are updated, and that another connection can go on using the
+     * old plan while the new plan is compiled.
+     */
+    public void testStalePlanUsedWhileRecompiled() throws SQLException {
+        Statement stmt = createStatement();
+        stmt.executeUpdate("insert into t values (1, 1, 'abc')");
+        PreparedStatement insert = prepareStatement(
+            "insert into t select * from t");
+        for (int i = 0; i < 6; i++) {
+            insert.executeUpdate();
+        }
+        insert.close();
+        commit();
+
+        String sql = "select c3 from t where c1 = 1";
+        PreparedStatement ps = prepareStatement(sql);
+        JDBC.assertDrainResults(ps.executeQuery(), 64);
+        commit();
+
+        Connection other = openDefaultConnection();
+        PreparedStatement otherPs = other.prepareStatement(sql);
+        ResultSet rs = otherPs.executeQuery();
+        assertTrue(rs.next());
+
+        stmt.execute("call SYSCS_UTIL.SYSCS_UPDATE_STATISTICS" +
+                     "('APP', 'T', null)");
+        commit();
+
+        PreparedStatement valid = prepareStatement(
+            "select valid from syscs_diag.statement_cache " +
+            "where sql_text = ?");
+        valid.setString(1, sql);
+        JDBC.assertSingleValueResultSet(valid.executeQuery(), "true");
+
+        // Compile the new plan while the other connection has the old
+        // plan open.
+        JDBC.assertDrainResults(ps.executeQuery(), 64);
+        JDBC.assertDrainResults(rs, 63);
+        JDBC.assertDrainResults(otherPs.executeQuery(), 64);
+        JDBC.assertSingleValueResultSet(valid.executeQuery(), "true");
+
+        otherPs.close();
+        other.close();
+        valid.close();
+        ps.close();
+        stmt.close();
+        commit();
+    }
 }
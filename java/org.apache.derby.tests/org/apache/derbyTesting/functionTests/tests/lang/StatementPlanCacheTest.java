@@ -19,17 +19,38 @@
 */
 package org.apache.derbyTesting.functionTests.tests.lang;
 
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.Test;
+import org.apache.derby.iapi.services.compiler.ClassBuilder;
+import org.apache.derby.iapi.services.compiler.MethodBuilder;
+import org.apache.derby.iapi.services.context.Context;
+import org.apache.derby.iapi.services.context.ContextService;
+import org.apache.derby.iapi.services.loader.GeneratedClass;
+import org.apache.derby.iapi.services.loader.InterpretedClass;
+import org.apache.derby.iapi.sql.Activation;
+import org.apache.derby.iapi.sql.compile.CodeGeneration;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionFactory;
+import org.apache.derby.impl.sql.GenericActivationHolder;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derby.shared.common.reference.ClassName;
 import org.apache.derbyTesting.junit.BaseJDBCTestCase;
 import org.apache.derbyTesting.junit.BaseTestSuite;
 import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
 import org.apache.derbyTesting.junit.DatabasePropertyTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.RuntimeStatisticsParser;
+import org.apache.derbyTesting.junit.SQLUtilities;
 
 /**
  * Tests statement plan caching.
@@ -73,6 +94,20 @@ public class StatementPlanCacheTest extends BaseJDBCTestCase {
         suite.addTest(DatabasePropertyTestSetup.singleProperty(
                 new StatementPlanCacheTest("noCachingTest"),
                 "derby.language.statementCacheSize", "0", true));
+
+        // literals replaced by parameters
+        suite.addTest(DatabasePropertyTestSetup.singleProperty(
+                new StatementPlanCacheTest("autoParameterizeTest"),
+                "derby.language.autoParameterize", "true", true));
+        suite.addTest(DatabasePropertyTestSetup.singleProperty(
+                new StatementPlanCacheTest("autoParameterizeSkewTest"),
+                "derby.language.autoParameterize", "true", true));
+
+        // activation classes interpreted for the first two executions
+        suite.addTest(DatabasePropertyTestSetup.singleProperty(
+                new StatementPlanCacheTest("interpretedExecutionsTest"),
+                "derby.language.interpretedExecutions", "2", true));
+        suite.addTest(new StatementPlanCacheTest("interpretedFallbackTest"));
         
         
         return new CleanDatabaseTestSetup(suite);
@@ -144,6 +179,299 @@ public class StatementPlanCacheTest extends BaseJDBCTestCase {
         assertFalse(sql, isPlanInCache(schema, sql));
     }
     
+    /**
+     * Check that when derby.language.autoParameterize is true, statements
+     * that only differ in the literals they compare with share one plan,
+     * and that literals that do not fit the type of the column are left
+     * in the statement.
+     */
+    public void autoParameterizeTest() throws SQLException
+    {
+        String schema = this.getTestConfiguration().getUserName();
+        
+        Statement s = createStatement();
+        s.execute("CREATE TABLE AUTOPARAM(ID INT, NAME CHAR(3))");
+        s.execute("INSERT INTO AUTOPARAM VALUES (17, 'A'), (42, 'BB')");
+        
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT NAME FROM AUTOPARAM WHERE ID = 17"), "A  ");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT NAME FROM AUTOPARAM WHERE ID = 42"), "BB ");
+        String sql = "SELECT NAME FROM AUTOPARAM WHERE ID = ?";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        sql = "SELECT NAME FROM AUTOPARAM WHERE ID = 17";
+        assertFalse(sql, isPlanInCache(schema, sql));
+        
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT ID FROM AUTOPARAM WHERE NAME = 'BB'"), "42");
+        sql = "SELECT ID FROM AUTOPARAM WHERE NAME = ?";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        // 1.5 is not an INT, and 'BBBB' is not a CHAR(3)
+        JDBC.assertEmpty(s.executeQuery(
+                "SELECT NAME FROM AUTOPARAM WHERE ID = 1.5"));
+        JDBC.assertEmpty(s.executeQuery(
+                "SELECT ID FROM AUTOPARAM WHERE NAME = 'BBBB'"));
+        sql = "SELECT NAME FROM AUTOPARAM WHERE ID = 1.5";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        // a LIKE pattern is left alone
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT ID FROM AUTOPARAM WHERE NAME LIKE 'B%'"), "42");
+        sql = "SELECT ID FROM AUTOPARAM WHERE NAME LIKE 'B%'";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        // a statement that does not compile with parameters reports the
+        // error of the statement with its literals, and leaves the
+        // transaction alone
+        setAutoCommit(false);
+        s.execute("INSERT INTO AUTOPARAM VALUES (99, 'C')");
+        assertStatementError("42X05", s,
+                "SELECT NAME FROM NOSUCHTABLE WHERE ID = 99");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT NAME FROM AUTOPARAM WHERE ID = 99"), "C  ");
+        rollback();
+        setAutoCommit(true);
+        
+        s.execute("DROP TABLE AUTOPARAM");
+        s.close();
+    }
+    
+    /**
+     * Check that when derby.language.interpretedExecutions is two,
+     * statements run with an interpreted activation class for their first
+     * two executions and with a generated class from the third on, and
+     * give the same results with either.
+     */
+    public void interpretedExecutionsTest() throws SQLException
+    {
+        setAutoCommit(false);
+        Statement s = createStatement();
+        s.execute("CREATE FUNCTION ACTIVATIONCLASS() " +
+                "RETURNS VARCHAR(200) LANGUAGE JAVA PARAMETER STYLE JAVA " +
+                "NO SQL EXTERNAL NAME '" + getClass().getName() +
+                ".activationClass'");
+        s.execute("CREATE TABLE INTERP(ID INT PRIMARY KEY, " +
+                "NAME VARCHAR(10), PRICE DOUBLE)");
+        s.execute("INSERT INTO INTERP VALUES " +
+                "(1, 'one', 1.5), (2, 'two', 2.5), (3, NULL, 3.5)");
+        s.execute("CREATE TABLE INTERPLOG(I INT, CLASSNAME VARCHAR(200))");
+
+        // statements are only cached once the DDL has been committed
+        commit();
+
+        PreparedStatement query = prepareStatement(
+                "SELECT ID, UPPER(NAME), PRICE * 2, ABS(-ID), " +
+                "CASE WHEN NAME IS NULL THEN 'none' ELSE NAME END, " +
+                "ACTIVATIONCLASS() " +
+                "FROM INTERP WHERE ID >= ? AND PRICE < ? ORDER BY ID DESC");
+        PreparedStatement update = prepareStatement(
+                "UPDATE INTERP SET PRICE = PRICE + ? WHERE ID = ?");
+        PreparedStatement divide = prepareStatement(
+                "SELECT ID / ? FROM INTERP");
+        PreparedStatement log = prepareStatement(
+                "INSERT INTO INTERPLOG VALUES (?, ACTIVATIONCLASS())");
+
+        // the classes are generated before the third execution
+        for (int i = 0; i < 4; i++) {
+            query.setInt(1, 2);
+            query.setDouble(2, 10);
+            ResultSet rs = query.executeQuery();
+            String[][] expected = {
+                    {"3", null, "7.0", "3", "none"},
+                    {"2", "TWO", "5.0", "2", "two"},
+                };
+            for (int row = 0; row < expected.length; row++) {
+                assertTrue(rs.next());
+                for (int col = 0; col < expected[row].length; col++) {
+                    assertEquals(expected[row][col], rs.getString(col + 1));
+                }
+                assertActivationClass(i < 2,
+                        ClassName.InterpretedCursorActivation,
+                        rs.getString(6));
+            }
+            assertFalse(rs.next());
+            rs.close();
+
+            update.setDouble(1, 1);
+            update.setInt(2, 1);
+            assertEquals(1, update.executeUpdate());
+
+            divide.setInt(1, 0);
+            assertStatementError("22012", divide);
+
+            log.setInt(1, i);
+            assertEquals(1, log.executeUpdate());
+        }
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT PRICE FROM INTERP WHERE ID = 1"), "5.5");
+
+        // statements that return no rows have other activation classes
+        ResultSet logged = s.executeQuery(
+                "SELECT I, CLASSNAME FROM INTERPLOG ORDER BY I");
+        for (int i = 0; i < 4; i++) {
+            assertTrue(logged.next());
+            assertEquals(i, logged.getInt(1));
+            assertActivationClass(i < 2, ClassName.InterpretedActivation,
+                    logged.getString(2));
+        }
+        assertFalse(logged.next());
+        logged.close();
+
+        // positioned updates use the cursor result set of the activation
+        for (int i = 0; i < 4; i++) {
+            Statement cursor = createStatement(
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+            cursor.setCursorName("INTERPCURSOR");
+            ResultSet rs = cursor.executeQuery(
+                    "SELECT ID, ACTIVATIONCLASS() FROM INTERP " +
+                    "WHERE ID = 2 FOR UPDATE");
+            assertTrue(rs.next());
+            assertActivationClass(i < 2,
+                    ClassName.InterpretedCursorActivation, rs.getString(2));
+            PreparedStatement positioned = prepareStatement(
+                    "UPDATE INTERP SET NAME = NAME || 'x' " +
+                    "WHERE CURRENT OF INTERPCURSOR");
+            assertEquals(1, positioned.executeUpdate());
+            positioned.close();
+            rs.close();
+            cursor.close();
+        }
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT NAME FROM INTERP WHERE ID = 2"), "twoxxxx");
+
+        s.execute("DROP TABLE INTERP");
+        s.execute("DROP TABLE INTERPLOG");
+        s.execute("DROP FUNCTION ACTIVATIONCLASS");
+        s.close();
+        commit();
+    }
+
+    /**
+     * Check that an activation class is interpreted if the methods it
+     * defines are all handed to the interpreter by the class that stands
+     * in for it, and that it is generated at once if it overrides a
+     * method that the interpreter class does not hand over.
+     */
+    public void interpretedFallbackTest() throws SQLException
+    {
+        Statement s = createStatement();
+        s.execute("CREATE FUNCTION INTERPRETEDCLASS(M VARCHAR(128)) " +
+                "RETURNS VARCHAR(20) LANGUAGE JAVA PARAMETER STYLE JAVA " +
+                "NO SQL CALLED ON NULL INPUT EXTERNAL NAME '" +
+                getClass().getName() + ".interpretedClass'");
+
+        PreparedStatement ps = prepareStatement(
+                "VALUES INTERPRETEDCLASS(CAST(? AS VARCHAR(128)))");
+        ps.setNull(1, Types.VARCHAR);
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "interpreted");
+        ps.setString(1, "getCursorResultSet");
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "interpreted");
+        ps.setString(1, "toString");
+        JDBC.assertSingleValueResultSet(ps.executeQuery(), "generated");
+        ps.close();
+
+        s.execute("DROP FUNCTION INTERPRETEDCLASS");
+        s.close();
+    }
+
+    /**
+     * Assert that an activation class returned by {@link
+     * #activationClass()} is the given interpreter class, or a generated
+     * class.
+     */
+    private static void assertActivationClass(boolean interpreted,
+            String interpreterClass, String activationClass)
+    {
+        if (interpreted) {
+            assertEquals(interpreterClass, activationClass);
+        } else {
+            assertTrue(activationClass, activationClass.startsWith(
+                    CodeGeneration.GENERATED_PACKAGE_PREFIX));
+        }
+    }
+
+    /**
+     * Check that when derby.language.autoParameterize is true, literals
+     * compared with an indexed column that has statistics are left in the
+     * statement, so that a value that selects most of the rows and one
+     * that selects few of them get plans of their own. The same holds
+     * for literals whose selectivity is estimated from the histogram of
+     * the column.
+     */
+    public void autoParameterizeSkewTest() throws SQLException
+    {
+        String schema = this.getTestConfiguration().getUserName();
+        
+        Statement s = createStatement();
+        s.execute("CREATE TABLE AUTOSKEW(ID INT, STATUS INT, " +
+                "DESCR VARCHAR(100))");
+        s.execute("CREATE INDEX AUTOSKEW_STATUS ON AUTOSKEW(STATUS)");
+        
+        // STATUS is 0 in all rows but five
+        PreparedStatement ps = prepareStatement(
+                "INSERT INTO AUTOSKEW VALUES (?, ?, ?)");
+        for (int i = 0; i < 2000; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, (i % 400 == 0) ? 5 : 0);
+            ps.setString(3, "row " + i);
+            ps.executeUpdate();
+        }
+        ps.close();
+        
+        // a parameter compared with STATUS is not sensitive without
+        // statistics
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT COUNT(ID) FROM AUTOSKEW WHERE STATUS = 5"), "5");
+        String sql = "SELECT COUNT(ID) FROM AUTOSKEW WHERE STATUS = ?";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        CallableStatement cs = prepareCall(
+                "CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS(?, 'AUTOSKEW', null)");
+        cs.setString(1, schema);
+        cs.execute();
+        cs.close();
+        
+        s.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+        
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT MAX(DESCR) FROM AUTOSKEW WHERE STATUS = 0"), "row 999");
+        RuntimeStatisticsParser rtsp =
+                SQLUtilities.getRuntimeStatisticsParser(s);
+        assertTrue(rtsp.usedTableScan("AUTOSKEW"));
+        sql = "SELECT MAX(DESCR) FROM AUTOSKEW WHERE STATUS = 0";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT MAX(DESCR) FROM AUTOSKEW WHERE STATUS = 5"), "row 800");
+        rtsp = SQLUtilities.getRuntimeStatisticsParser(s);
+        assertTrue(rtsp.usedIndexScan("AUTOSKEW"));
+        sql = "SELECT MAX(DESCR) FROM AUTOSKEW WHERE STATUS = 5";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        s.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+        
+        // <> is never a start or stop key, but the rows it selects are
+        // estimated from the histogram of STATUS
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT COUNT(ID) FROM AUTOSKEW WHERE STATUS <> 0"), "5");
+        sql = "SELECT COUNT(ID) FROM AUTOSKEW WHERE STATUS <> 0";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT COUNT(ID) FROM AUTOSKEW WHERE 5 <> STATUS"), "1995");
+        sql = "SELECT COUNT(ID) FROM AUTOSKEW WHERE 5 <> STATUS";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        // ID has no index, so its literals are still replaced
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "SELECT STATUS FROM AUTOSKEW WHERE ID = 400"), "5");
+        sql = "SELECT STATUS FROM AUTOSKEW WHERE ID = ?";
+        assertTrue(sql, isPlanInCache(schema, sql));
+        
+        s.execute("DROP TABLE AUTOSKEW");
+        s.close();
+    }
+    
     /**
      * Check that the same plan can be shared across
      * Statement, PreparedStatement and CallableStatement.
@@ -335,4 +663,83 @@ public class StatementPlanCacheTest extends BaseJDBCTestCase {
         cacheInPlanPS_TEXT.clearParameters();
         return count == 1;
     }
+
+    /** Number of the last class built by {@link #interpretedClass}. */
+    private static final AtomicInteger classNumber = new AtomicInteger();
+
+    /**
+     * Function that returns the name of the activation class of the
+     * statement that calls it.
+     */
+    public static String activationClass()
+    {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        Activation activation = lcc.getStatementContext().getActivation();
+        if (activation instanceof GenericActivationHolder) {
+            activation = ((GenericActivationHolder) activation).ac;
+        }
+        return activation.getClass().getName();
+    }
+
+    /**
+     * Function that builds an interpreted activation class, which defines
+     * createResultSet() and, unless methodName is null, a method of that
+     * name that returns a string. It returns "interpreted" if the class
+     * is interpreted, and "generated" if it has been generated as byte
+     * code.
+     */
+    public static String interpretedClass(String methodName)
+        throws StandardException
+    {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        LanguageConnectionFactory lcf = lcc.getLanguageConnectionFactory();
+
+        ClassBuilder cb = lcf.getJavaFactory().newInterpretedClassBuilder(
+            lcf.getClassFactory(), CodeGeneration.GENERATED_PACKAGE_PREFIX,
+            Modifier.PUBLIC | Modifier.FINAL,
+            "InterpretedFallback" + classNumber.incrementAndGet(),
+            ClassName.BaseActivation, ClassName.InterpretedActivation, 2);
+
+        MethodBuilder mb = cb.newConstructorBuilder(Modifier.PUBLIC);
+        mb.callSuper();
+        mb.methodReturn();
+        mb.complete();
+
+        mb = cb.newMethodBuilder(Modifier.PROTECTED, ClassName.ResultSet,
+            "createResultSet");
+        mb.addThrownException(ClassName.StandardException);
+        mb.pushNull(ClassName.ResultSet);
+        mb.methodReturn();
+        mb.complete();
+
+        if (methodName != null) {
+            mb = cb.newMethodBuilder(Modifier.PUBLIC, "java.lang.String",
+                methodName);
+            mb.push(methodName);
+            mb.methodReturn();
+            mb.complete();
+        }
+
+        GeneratedClass gc = cb.getGeneratedClass();
+        return (gc instanceof InterpretedClass) ? "interpreted" : "generated";
+    }
+
+    /**
+     * Privileged lookup of a Context. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static Context getContextOrNull(final String contextID) {
+        if (System.getSecurityManager() == null) {
+            return ContextService.getContextOrNull(contextID);
+        } else {
+            return AccessController.doPrivileged(
+                new PrivilegedAction<Context>() {
+                    public Context run() {
+                        return ContextService.getContextOrNull(contextID);
+                    }
+                });
+        }
+    }
 }
@@ -46,7 +46,8 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
     private static  final   String[]    ALL_SPACE_TABLE_COLUMNS =
     {
         "CONGLOMERATENAME", "ISINDEX", "NUMALLOCATEDPAGES", "NUMFREEPAGES",
-        "NUMUNFILLEDPAGES", "PAGESIZE", "ESTIMSPACESAVING", "TABLEID"
+        "NUMUNFILLEDPAGES", "PAGESIZE", "ESTIMSPACESAVING", "TABLEID",
+        "AVGLEAFFILL"
     };
 
     private static  final   String  BAD_FROM_LIST_JOIN = "42ZB7";
@@ -177,7 +178,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         String [][] expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -190,7 +191,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -207,7 +208,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -223,7 +224,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -279,7 +280,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -335,7 +336,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
@@ -348,7 +349,7 @@ public final class SysDiagVTIMappingTest extends BaseJDBCTestCase {
         
         expRS = new String [][]
         {
-            {"T1", "0", "1", "0", "1", "4096", "0", tableID}
+            {"T1", "0", "1", "0", "1", "4096", "0", tableID, null}
         };
         
         JDBC.assertFullResultSet(rs, expRS, true);
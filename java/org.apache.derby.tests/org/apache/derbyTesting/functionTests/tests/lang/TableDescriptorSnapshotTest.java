@@ -0,0 +1,193 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.lang.TableDescriptorSnapshotTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.derbyTesting.functionTests.tests.lang;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derby.iapi.services.context.Context;
+import org.apache.derby.iapi.services.context.ContextService;
+import org.apache.derby.iapi.sql.conn.LanguageConnectionContext;
+import org.apache.derby.iapi.sql.dictionary.DataDictionary;
+import org.apache.derby.iapi.sql.dictionary.SchemaDescriptor;
+import org.apache.derby.iapi.sql.dictionary.TableDescriptor;
+import org.apache.derby.iapi.store.access.TransactionController;
+import org.apache.derby.shared.common.error.StandardException;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test that the table descriptors the data dictionary hands out in
+ * compile-only mode, from the snapshot of the descriptors read since the
+ * last DDL, are replaced when DDL is done, whether the DDL commits or
+ * rolls back.
+ */
+public class TableDescriptorSnapshotTest extends BaseJDBCTestCase {
+
+    public TableDescriptorSnapshotTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Run the tests in embedded mode only, since the descriptors are
+     * looked up by a function that uses the data dictionary directly.
+     */
+    public static Test suite() {
+        return new CleanDatabaseTestSetup(TestConfiguration.embeddedSuite(
+            TableDescriptorSnapshotTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.executeUpdate("create function describeTable(" +
+                    "schemaName varchar(128), tableName varchar(128)) " +
+                    "returns varchar(100) language java " +
+                    "parameter style java no sql external name '" +
+                    TableDescriptorSnapshotTest.class.getName() +
+                    ".describeTable'");
+            }
+        };
+    }
+
+    /**
+     * DDL committed by another session replaces the descriptor the
+     * session looks up, and statements compiled afterwards see the change.
+     */
+    public void testDDLInOtherSession() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create table snap1(a int)");
+
+        String before = describe("SNAP1");
+        assertEquals("1 1", columnsOf(before));
+        assertEquals(before, describe("SNAP1"));
+
+        Connection other = openDefaultConnection();
+        Statement os = other.createStatement();
+        os.execute("alter table snap1 add column b int");
+        os.close();
+        other.close();
+
+        String after = describe("SNAP1");
+        assertEquals("2 2", columnsOf(after));
+        assertFalse(identityOf(before).equals(identityOf(after)));
+
+        ResultSet rs = s.executeQuery("select * from snap1");
+        assertEquals(2, rs.getMetaData().getColumnCount());
+        JDBC.assertEmpty(rs);
+
+        s.execute("drop table snap1");
+        s.close();
+    }
+
+    /**
+     * The descriptor read while DDL was in progress is not handed out once
+     * the DDL is rolled back.
+     */
+    public void testRolledBackDDL() throws SQLException {
+        Statement s = createStatement();
+        s.execute("create table snap2(a int)");
+        assertEquals("1 1", columnsOf(describe("SNAP2")));
+
+        setAutoCommit(false);
+        s.execute("alter table snap2 add column b int");
+        String during = describe("SNAP2");
+        assertEquals("2 2", columnsOf(during));
+        rollback();
+        setAutoCommit(true);
+
+        String after = describe("SNAP2");
+        assertEquals("1 1", columnsOf(after));
+        assertFalse(identityOf(during).equals(identityOf(after)));
+
+        ResultSet rs = s.executeQuery("select * from snap2");
+        assertEquals(1, rs.getMetaData().getColumnCount());
+        JDBC.assertEmpty(rs);
+
+        s.execute("drop table snap2");
+        s.close();
+    }
+
+    /**
+     * Describe a table of the current schema with {@link #describeTable}.
+     */
+    private String describe(String tableName) throws SQLException {
+        PreparedStatement ps = prepareStatement(
+            "values describeTable(current schema, ?)");
+        ps.setString(1, tableName);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        String description = rs.getString(1);
+        rs.close();
+        ps.close();
+        return description;
+    }
+
+    private static String identityOf(String description) {
+        return description.substring(0, description.indexOf(' '));
+    }
+
+    private static String columnsOf(String description) {
+        return description.substring(description.indexOf(' ') + 1);
+    }
+
+    /**
+     * Function that looks up the descriptor of a table by name, and then
+     * by its UUID. It returns the identity of the descriptor found by
+     * name, followed by the number of columns of the descriptors found by
+     * name and by UUID.
+     */
+    public static String describeTable(String schemaName, String tableName)
+        throws StandardException
+    {
+        LanguageConnectionContext lcc = (LanguageConnectionContext)
+            getContextOrNull(LanguageConnectionContext.CONTEXT_ID);
+        TransactionController tc = lcc.getTransactionExecute();
+        DataDictionary dd = lcc.getDataDictionary();
+
+        SchemaDescriptor sd = dd.getSchemaDescriptor(schemaName, tc, true);
+        TableDescriptor byName = dd.getTableDescriptor(tableName, sd, tc);
+        TableDescriptor byId = dd.getTableDescriptor(byName.getUUID());
+
+        return System.identityHashCode(byName) + " " +
+            byName.getNumberOfColumns() + " " + byId.getNumberOfColumns();
+    }
+
+    /**
+     * Privileged lookup of a Context. Must be private so that user code
+     * can't call this entry point.
+     */
+    private static Context getContextOrNull(final String contextID) {
+        if (System.getSecurityManager() == null) {
+            return ContextService.getContextOrNull(contextID);
+        } else {
+            return AccessController.doPrivileged(
+                new PrivilegedAction<Context>() {
+                    public Context run() {
+                        return ContextService.getContextOrNull(contextID);
+                    }
+                });
+        }
+    }
+}
@@ -73,6 +73,8 @@ public class _Suite extends BaseTestCase  {
         suite.addTest(FloatTypesTest.suite());
         suite.addTest(GrantRevokeTest.suite());
         suite.addTest(GroupByExpressionTest.suite());
+        suite.addTest(HiddenClassTest.suite());
+        suite.addTest(InMemoryDependencyTest.suite());
         suite.addTest(InbetweenTest.suite());
         suite.addTest(InsertTest.suite());
         suite.addTest(JoinTest.suite());
@@ -95,6 +97,7 @@ public class _Suite extends BaseTestCase  {
         suite.addTest(StatementPlanCacheTest.suite());
         suite.addTest(StreamsTest.suite());
         suite.addTest(SubqueryFlatteningTest.suite());
+        suite.addTest(TableDescriptorSnapshotTest.suite());
         suite.addTest(TimeHandlingTest.suite());
         suite.addTest(TriggerTest.suite());
         suite.addTest(TriggerWhenClauseTest.suite());
@@ -115,6 +118,7 @@ public class _Suite extends BaseTestCase  {
         suite.addTest(HoldCursorTest.suite());
         suite.addTest(ShutdownDatabaseTest.suite());
         suite.addTest(StalePlansTest.suite());
+        suite.addTest(PersistentStatementCacheTest.suite());
         suite.addTest(SystemCatalogTest.suite());
         suite.addTest(ForBitDataTest.suite());
         suite.addTest(DistinctTest.suite());
@@ -263,6 +267,8 @@ public class _Suite extends BaseTestCase  {
         suite.addTest(Derby5866TriggerOrderTest.suite());
         suite.addTest(NoDBInternalsPermissionTest.suite());
         suite.addTest(ClassLoadingTest.suite());
+        suite.addTest(CoveringIndexTest.suite());
+        suite.addTest(SkipScanTest.suite());
         if (TestConfiguration.loadingFromJars()) { suite.addTest(VetJigsawTest.suite()); }
         return suite;
 	}
@@ -0,0 +1,92 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.management.LOBTempSpaceMBeanTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.functionTests.tests.management;
+
+import java.sql.Blob;
+import java.util.Hashtable;
+import javax.management.ObjectName;
+import junit.framework.Test;
+
+/**
+ * Test cases for {@code LOBTempSpaceMBean}, which shows the memory and disk
+ * space held by LOBs which are modified through JDBC.
+ */
+public class LOBTempSpaceMBeanTest extends MBeanTest {
+
+    public LOBTempSpaceMBeanTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return MBeanTest.suite(LOBTempSpaceMBeanTest.class,
+                                        "LOBTempSpaceMBeanTest");
+    }
+
+    private ObjectName getLOBTempSpaceMBeanObjectName() throws Exception {
+        Hashtable<String, String> keyProps = new Hashtable<String, String>();
+        keyProps.put("type", "LOBTempSpace");
+        return getDerbyMBeanName(keyProps);
+    }
+
+    /**
+     * Test that the attributes can be read and have the expected types.
+     */
+    public void testAttributes() throws Exception {
+        ObjectName name = getLOBTempSpaceMBeanObjectName();
+        assertLongAttribute(16 * 1024 * 1024, name, "MemoryBudget");
+        checkLongAttributeValue(name, "MemoryBytes");
+        checkLongAttributeValue(name, "PeakMemoryBytes");
+        checkLongAttributeValue(name, "SpilledBytes");
+        checkLongAttributeValue(name, "PeakSpilledBytes");
+        checkLongAttributeValue(name, "SpillCount");
+        checkIntAttributeValue(name, "SpillFileCount");
+    }
+
+    /**
+     * Test that a LOB which is too large to stay in memory is counted as
+     * spilled to disk, and that its space is released when it is freed.
+     */
+    public void testSpill() throws Exception {
+        ObjectName name = getLOBTempSpaceMBeanObjectName();
+        long spillCount = getLong(name, "SpillCount");
+        long spilledBytes = getLong(name, "SpilledBytes");
+
+        Blob small = getConnection().createBlob();
+        small.setBytes(1, new byte[100]);
+        assertEquals(spillCount, getLong(name, "SpillCount"));
+        assertTrue(getLong(name, "MemoryBytes") > 0);
+
+        Blob large = getConnection().createBlob();
+        large.setBytes(1, new byte[100000]);
+        assertEquals(spillCount + 1, getLong(name, "SpillCount"));
+        assertTrue(getLong(name, "SpilledBytes") >= spilledBytes + 100000);
+        assertTrue(((Integer) getAttribute(name, "SpillFileCount")) > 0);
+
+        large.free();
+        small.free();
+        assertEquals(spilledBytes, getLong(name, "SpilledBytes"));
+    }
+
+    private long getLong(ObjectName name, String attribute) throws Exception {
+        return ((Long) getAttribute(name, attribute)).longValue();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.management.LockManagerMBeanTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.functionTests.tests.management;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Hashtable;
+import java.util.Set;
+import javax.management.ObjectName;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.JDBC;
+
+/**
+ * Test cases for {@code LockManagerMBean}, which shows the locks held by
+ * the transactions of a database and the escalations caused by the memory
+ * they take up.
+ */
+public class LockManagerMBeanTest extends MBeanTest {
+
+    public LockManagerMBeanTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return MBeanTest.suite(LockManagerMBeanTest.class,
+                                        "LockManagerMBeanTest");
+    }
+
+    private ObjectName getLockManagerMBeanObjectName() throws Exception {
+        getConnection(); // boot the database
+        Hashtable<String, String> keyProps = new Hashtable<String, String>();
+        keyProps.put("type", "LockManager");
+        keyProps.put("db", "*");
+        Set<ObjectName> names = queryMBeans(getDerbyMBeanName(keyProps));
+        assertEquals("Should have a single lock manager", 1, names.size());
+        return names.iterator().next();
+    }
+
+    /**
+     * Test that the attributes can be read and have the expected types.
+     */
+    public void testAttributes() throws Exception {
+        ObjectName name = getLockManagerMBeanObjectName();
+        assertIntAttribute(64 * 1024 * 1024, name, "EscalationMemory");
+        checkLongAttributeValue(name, "LockCount");
+        checkLongAttributeValue(name, "LockMemoryBytes");
+        checkLongAttributeValue(name, "MemoryEscalationCount");
+        checkIntAttributeValue(name, "LockedObjectCount");
+        checkIntAttributeValue(name, "WaiterCount");
+    }
+
+    /**
+     * Test that a transaction whose locks take up more memory than
+     * derby.locks.escalationMemory allows escalates the row locks of the
+     * table on which it holds the most of them, although neither table
+     * reaches derby.locks.escalationThreshold.
+     */
+    public void testEscalationOnMemory() throws Exception {
+        ObjectName name = getLockManagerMBeanObjectName();
+        Statement s = createStatement();
+        s.executeUpdate("create table lm_small(x int primary key)");
+        s.executeUpdate("create table lm_large(x int primary key)");
+        PreparedStatement insSmall =
+                prepareStatement("insert into lm_small values ?");
+        PreparedStatement insLarge =
+                prepareStatement("insert into lm_large values ?");
+        for (int i = 0; i < 250; i++) {
+            insSmall.setInt(1, i);
+            insSmall.executeUpdate();
+            insLarge.setInt(1, i);
+            insLarge.executeUpdate();
+        }
+
+        // Room for about 250 locks.
+        s.execute("call syscs_util.syscs_set_database_property(" +
+                  "'derby.locks.escalationMemory', '65536')");
+        try {
+            long escalations = getLong(name, "MemoryEscalationCount");
+
+            setAutoCommit(false);
+            getConnection().setTransactionIsolation(
+                    Connection.TRANSACTION_SERIALIZABLE);
+            PreparedStatement updSmall =
+                    prepareStatement("update lm_small set x = x where x = ?");
+            PreparedStatement updLarge =
+                    prepareStatement("update lm_large set x = x where x = ?");
+            for (int i = 0; i < 100; i++) {
+                updSmall.setInt(1, i);
+                updSmall.executeUpdate();
+            }
+            for (int i = 0; i < 250; i++) {
+                updLarge.setInt(1, i);
+                updLarge.executeUpdate();
+            }
+
+            assertEquals(escalations + 1,
+                         getLong(name, "MemoryEscalationCount"));
+            assertTrue(getLong(name, "LockCount") > 0);
+            assertEquals(getLong(name, "LockCount") * 256,
+                         getLong(name, "LockMemoryBytes"));
+
+            JDBC.assertFullResultSet(
+                    s.executeQuery("select tablename, type, mode, count(*) " +
+                            "from syscs_diag.lock_table " +
+                            "where tablename like 'LM_%' " +
+                            "group by tablename, type, mode " +
+                            "order by tablename, type, mode"),
+                    new String[][] {
+                        { "LM_LARGE", "TABLE", "IX", "1" },
+                        { "LM_LARGE", "TABLE", "X",  "1" },
+                        { "LM_SMALL", "ROW",   "X",  "100" },
+                        { "LM_SMALL", "TABLE", "IX", "1" },
+                    });
+
+            rollback();
+        } finally {
+            setAutoCommit(true);
+            s.execute("call syscs_util.syscs_set_database_property(" +
+                      "'derby.locks.escalationMemory', null)");
+            s.executeUpdate("drop table lm_small");
+            s.executeUpdate("drop table lm_large");
+        }
+    }
+
+    private long getLong(ObjectName name, String attribute) throws Exception {
+        return ((Long) getAttribute(name, attribute)).longValue();
+    }
+}
@@ -47,8 +47,8 @@ public class ManagementMBeanTest extends MBeanTest {
     private static final String MANAGEMENT = "Management";
     private static final String VERSION = "Version";
 
-    // 1 NetworkServer, 1 JDBC, 2 Version, 2 Management beans
-    private static final int EXPECTED_BEAN_COUNT = 6;
+    // 1 NetworkServer, 1 JDBC, 1 LOBTempSpace, 2 Version, 2 Management beans
+    private static final int EXPECTED_BEAN_COUNT = 7;
     
     // MBean names
     private static final String[] MBEAN_TYPES =
@@ -56,6 +56,7 @@ public class ManagementMBeanTest extends MBeanTest {
         "NetworkServer",
         MANAGEMENT,
         "JDBC",
+        "LOBTempSpace",
         VERSION,
     };
     
@@ -108,8 +109,8 @@ public class ManagementMBeanTest extends MBeanTest {
         invokeOperation(mbean, "stopManagement");
         assertBooleanAttribute(false, mbean, "ManagementActive");
         
-        // the stop should have brought down 1 JDBC bean, 1 NetworkServer bean
-        // and 2 Version beans. it should have left 2 Management beans standing.
+        // the stop should have brought down 1 JDBC bean, 1 LOBTempSpace bean,
+        // 1 NetworkServer bean and 2 Version beans. it should have left 2 Management beans standing.
         StatsTuple afterStopping = getCurrentStats( "After Stopping" );
         
         int[] expectedCounts = new int[ MBEAN_TYPES.length ];
@@ -58,6 +58,8 @@ public class _Suite extends BaseTestCase {
             suite.addTest(InactiveManagementMBeanTest.suite());
             suite.addTest(VersionMBeanTest.suite());
             suite.addTest(JDBCMBeanTest.suite());
+            suite.addTest(LOBTempSpaceMBeanTest.suite());
+            suite.addTest(LockManagerMBeanTest.suite());
             suite.addTest(NetworkServerMBeanTest.suite());
             suite.addTest(CustomMBeanServerBuilderTest.suite());
             suite.addTest(CacheManagerMBeanTest.suite());
@@ -169,6 +169,38 @@ public class AutomaticIndexStatisticsTest
         assertFalse(statsPost1[0].after(statsPost[0]));
     }
 
+    /**
+     * Make sure stats are updated when enough rows have been modified, even
+     * if the row count doesn't change and no statement is compiled.
+     */
+    public void testStatsUpdatedOnModification()
+            throws SQLException {
+        String TAB = "TEST_MODIFICATION";
+        createAndInsertSimple(TAB, 10000);
+        // This should trigger creation of statistics.
+        prepareStatement("select * from " + TAB + " where id = ?");
+        IdxStats[] statsPre = stats.getStatsTable(TAB, 1);
+        assertEquals(20, statsPre[0].card);
+
+        // Modify too few rows, the stats should not be replaced.
+        PreparedStatement ps = prepareStatement(
+                "update " + TAB + " set val = id where id >= ? and id < ?");
+        ps.setInt(1, 0);
+        ps.setInt(2, 500);
+        assertEquals(500, ps.executeUpdate());
+        Utilities.sleep(1500);
+        IdxStats[] statsPost = stats.getStatsTable(TAB, 1);
+        assertTrue(statsPre[0].equals(statsPost[0]));
+
+        // Modify more rows with the same statement, passing the threshold.
+        ps.setInt(1, 500);
+        ps.setInt(2, 1500);
+        assertEquals(1000, ps.executeUpdate());
+        statsPost = stats.getNewStatsTable(TAB, statsPre);
+        assertEquals(10000, statsPost[0].rows);
+        assertTrue(statsPost[0].card > 1000);
+    }
+
     /**
      * Shuts down database while the daemon is scanning a table, and then
      * makes sure the database directory can be deleted.
@@ -0,0 +1,282 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.store.IndexPrefixCompressionTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.store;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test cases for B-tree indexes created with the
+ * derby.storage.indexPrefixCompression property, whose pages store the
+ * key columns shared by all of their rows only once.
+ */
+public class IndexPrefixCompressionTest extends BaseJDBCTestCase {
+
+    private static final String PREFIX_COMPRESSION =
+            "derby.storage.indexPrefixCompression";
+
+    /** Queries which must give the same result on both tables. */
+    private static final String[] QUERIES = {
+        "select count(*) from %s where tenant = 'tenant-3'",
+        "select count(*), sum(bigint(id)) from %s where tenant = 'tenant-3' "
+            + "and cat = 'category-00000000000000000000007'",
+        "select count(*), sum(bigint(id)) from %s where tenant >= 'tenant-2' "
+            + "and tenant < 'tenant-5' and ts between 100 and 9000",
+        "select max(ts) from %s where tenant = 'tenant-7' "
+            + "and cat = 'category-00000000000000000000001'",
+        "select tenant, cat, count(*) from %s group by tenant, cat "
+            + "order by tenant, cat",
+    };
+
+    public IndexPrefixCompressionTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create a test suite with all the test cases in this class.
+     */
+    public static Test suite() {
+        // This is a test for engine functionality, so skip client/server.
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(
+                    IndexPrefixCompressionTest.class));
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    protected void tearDown() throws Exception {
+        setDatabaseProperty(null);
+        dropTable("PC_COMPRESSED");
+        dropTable("PC_PLAIN");
+        super.tearDown();
+    }
+
+    // TESTS
+
+    /**
+     * Test that a prefix compressed index gives the same results as an
+     * ordinary index on the same data, through inserts, deletes,
+     * SYSCS_REORGANIZE_INDEX and SYSCS_COMPRESS_TABLE, and that it needs
+     * fewer pages.
+     */
+    public void testCompressedIndex() throws Exception {
+        Statement s = createStatement();
+        s.execute("create table pc_compressed"
+                + "(tenant varchar(40), cat varchar(40), ts bigint, id int)");
+        s.execute("create table pc_plain"
+                + "(tenant varchar(40), cat varchar(40), ts bigint, id int)");
+
+        setDatabaseProperty("true");
+        s.execute("create index pc_compressed_idx "
+                + "on pc_compressed(tenant, cat, ts, id)");
+        setDatabaseProperty(null);
+        s.execute("create index pc_plain_idx on pc_plain(tenant, cat, ts, id)");
+
+        insertRows(0, 20000);
+        assertSameResults();
+
+        s.execute("delete from pc_compressed where mod(id, 3) = 0");
+        s.execute("delete from pc_plain where mod(id, 3) = 0");
+        insertRows(20000, 5000);
+        assertSameResults();
+
+        // Most leaves leave out the tenant and many also the category, so
+        // the compressed index needs at least a fifth fewer pages.
+        assertTrue(getIndexPages("PC_COMPRESSED") * 5
+                < getIndexPages("PC_PLAIN") * 4);
+
+        // Merging leaves must keep the rows moved to another leaf intact.
+        s.execute("delete from pc_compressed where mod(id, 5) <> 0");
+        s.execute("delete from pc_plain where mod(id, 5) <> 0");
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'PC_COMPRESSED', null)");
+        assertSameResults();
+        insertRows(25000, 20000);
+        assertSameResults();
+
+        // Compress rebuilds the index, it must stay prefix compressed.
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'PC_COMPRESSED', 0)");
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'PC_PLAIN', 0)");
+        assertSameResults();
+
+        assertTrue(getIndexPages("PC_COMPRESSED")
+                <= getIndexPages("PC_PLAIN"));
+    }
+
+    /**
+     * Test that key values which compare equal to the key prefix of a page
+     * but are not the same, like strings which only differ in trailing
+     * blanks, are returned as they were inserted.
+     */
+    public void testEqualButNotSameKeys() throws Exception {
+        Statement s = createStatement();
+        setDatabaseProperty("true");
+        s.execute("create table pc_compressed"
+                + "(tenant varchar(40), id int)");
+        s.execute("create index pc_compressed_idx "
+                + "on pc_compressed(tenant, id)");
+        setDatabaseProperty(null);
+
+        setAutoCommit(false);
+        PreparedStatement ps = prepareStatement(
+                "insert into pc_compressed values (?, ?)");
+        String[] tenants = { "tenant-1", "tenant-1 ", "tenant-1  " };
+        for (int i = 0; i < 6000; i++) {
+            ps.setString(1, tenants[i % 3]);
+            ps.setInt(2, i);
+            ps.executeUpdate();
+        }
+        commit();
+        setAutoCommit(true);
+
+        ResultSet rs = s.executeQuery(
+                "select tenant, id from pc_compressed "
+                + "--DERBY-PROPERTIES index=pc_compressed_idx \n"
+                + "where tenant = 'tenant-1' order by id");
+        for (int i = 0; i < 6000; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(2));
+            assertEquals(tenants[i % 3], rs.getString(1));
+        }
+        assertFalse(rs.next());
+        rs.close();
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'PC_COMPRESSED')"),
+                "1");
+    }
+
+    /**
+     * Test that inserts and deletes which split pages and lengthen their
+     * key prefixes are rolled back correctly.
+     */
+    public void testRollback() throws Exception {
+        Statement s = createStatement();
+        s.execute("create table pc_compressed"
+                + "(tenant varchar(40), cat varchar(40), ts bigint, id int)");
+        s.execute("create table pc_plain"
+                + "(tenant varchar(40), cat varchar(40), ts bigint, id int)");
+
+        setDatabaseProperty("true");
+        s.execute("create index pc_compressed_idx "
+                + "on pc_compressed(tenant, cat, ts, id)");
+        setDatabaseProperty(null);
+        s.execute("create index pc_plain_idx on pc_plain(tenant, cat, ts, id)");
+
+        insertRows(0, 5000);
+
+        // Splits happen in their own transactions and stay, the inserts
+        // and deletes on the split pages must be undone on the pages the
+        // rows are on now.
+        setAutoCommit(false);
+        PreparedStatement ps = prepareStatement(
+                "insert into pc_compressed values (?,?,?,?)");
+        Random r = new Random(1);
+        for (int i = 5000; i < 15000; i++) {
+            ps.setString(1, "tenant-" + r.nextInt(10));
+            ps.setString(2, String.format("category-%023d", r.nextInt(20)));
+            ps.setLong(3, r.nextInt(10000));
+            ps.setInt(4, i);
+            ps.executeUpdate();
+        }
+        s.execute("delete from pc_compressed where mod(id, 2) = 0");
+        rollback();
+        setAutoCommit(true);
+
+        assertSameResults();
+    }
+
+    // HELPER METHODS
+
+    private void setDatabaseProperty(String value) throws Exception {
+        PreparedStatement ps = prepareStatement(
+                "call syscs_util.syscs_set_database_property(?, ?)");
+        ps.setString(1, PREFIX_COMPRESSION);
+        ps.setString(2, value);
+        ps.execute();
+        ps.close();
+    }
+
+    /**
+     * Insert the same rows into both tables.  Keys share long leading
+     * columns, so that most of the key is prefix on the branch pages.
+     */
+    private void insertRows(int first, int count) throws Exception {
+        setAutoCommit(false);
+        PreparedStatement[] ps = {
+            prepareStatement("insert into pc_compressed values (?,?,?,?)"),
+            prepareStatement("insert into pc_plain values (?,?,?,?)"),
+        };
+        Random r = new Random(first);
+        for (int i = first; i < first + count; i++) {
+            String tenant = "tenant-" + r.nextInt(10);
+            String cat = String.format("category-%023d", r.nextInt(20));
+            long ts = r.nextInt(10000);
+            for (int j = 0; j < ps.length; j++) {
+                ps[j].setString(1, tenant);
+                ps[j].setString(2, cat);
+                ps[j].setLong(3, ts);
+                ps[j].setInt(4, i);
+                ps[j].executeUpdate();
+            }
+        }
+        commit();
+        setAutoCommit(true);
+    }
+
+    /**
+     * Check that the queries give the same results on both tables, and that
+     * the indexes are consistent with their tables.
+     */
+    private void assertSameResults() throws Exception {
+        Statement s = createStatement();
+        Statement s2 = createStatement();
+        for (int i = 0; i < QUERIES.length; i++) {
+            JDBC.assertSameContents(
+                    s.executeQuery(String.format(QUERIES[i], "pc_plain")),
+                    s2.executeQuery(String.format(QUERIES[i], "pc_compressed")));
+        }
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'PC_COMPRESSED')"),
+                "1");
+    }
+
+    private long getIndexPages(String table) throws Exception {
+        ResultSet rs = createStatement().executeQuery(
+                "select numallocatedpages from "
+                + "table(syscs_diag.space_table('" + table + "')) t "
+                + "where isindex = 1");
+        assertTrue(rs.next());
+        long pages = rs.getLong(1);
+        rs.close();
+        return pages;
+    }
+}
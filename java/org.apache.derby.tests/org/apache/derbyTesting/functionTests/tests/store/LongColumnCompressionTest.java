@@ -0,0 +1,245 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.store.LongColumnCompressionTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.store;
+
+import java.io.Reader;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test cases for COMPRESSED columns, whose long values are stored deflated
+ * in the overflow pages of the table.
+ */
+public class LongColumnCompressionTest extends BaseJDBCTestCase {
+
+    private static final int ROWS = 20;
+
+    public LongColumnCompressionTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create a test suite with all the test cases in this class.
+     */
+    public static Test suite() {
+        // This is a test for engine functionality, so skip client/server.
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(
+                    LongColumnCompressionTest.class));
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    protected void tearDown() throws Exception {
+        dropTable("LC_COMPRESSED");
+        dropTable("LC_PLAIN");
+        super.tearDown();
+    }
+
+    // TESTS
+
+    /**
+     * Test that compressed columns return the values which were stored in
+     * them, through updates, SYSCS_COMPRESS_TABLE and dropping a column,
+     * and that they need fewer pages than the same values uncompressed.
+     */
+    public void testCompressedColumns() throws Exception {
+        Statement s = createStatement();
+        s.execute("create table lc_compressed(id int, "
+                + "c clob compressed, b blob compressed, "
+                + "v varchar(32000) compressed)");
+        s.execute("create table lc_plain(id int, "
+                + "c clob, b blob, v varchar(32000))");
+
+        insertRows("lc_compressed");
+        insertRows("lc_plain");
+        assertRows("LC_COMPRESSED", "");
+
+        assertTrue(getPages("LC_COMPRESSED") < getPages("LC_PLAIN"));
+
+        s.executeUpdate("update lc_compressed set c = c || 'xyz' "
+                + "where id = 3");
+        assertRows("LC_COMPRESSED", "xyz");
+
+        ResultSet rs = s.executeQuery("select length(c), substr(c, 1001, 10) "
+                + "from lc_compressed where id = 5");
+        assertTrue(rs.next());
+        assertEquals(makeString(5).length(), rs.getInt(1));
+        assertEquals(makeString(5).substring(1000, 1010), rs.getString(2));
+        rs.close();
+
+        // Compress rebuilds the heap, the columns must stay compressed.
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'LC_COMPRESSED', 0)");
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'LC_PLAIN', 0)");
+        assertRows("LC_COMPRESSED", "xyz");
+        assertTrue(getPages("LC_COMPRESSED") < getPages("LC_PLAIN"));
+
+        // Dropping a column renumbers the compressed columns after it.
+        s.execute("alter table lc_compressed drop column b");
+        rs = s.executeQuery("select id, c, v from lc_compressed order by id");
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(rs.next());
+            assertEquals(makeString(i) + (i == 3 ? "xyz" : ""),
+                    rs.getString(2));
+            assertEquals(makeString(i).substring(0, 30000), rs.getString(3));
+        }
+        assertFalse(rs.next());
+        rs.close();
+        assertTrue(getPages("LC_COMPRESSED") < getPages("LC_PLAIN"));
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'LC_COMPRESSED')"),
+                "1");
+    }
+
+    /**
+     * Test that a compressed CLOB can be read through a stream, and that
+     * reading it again from the start gives the same characters.
+     */
+    public void testStreams() throws Exception {
+        Statement s = createStatement();
+        s.execute("create table lc_compressed(id int, c clob compressed)");
+        PreparedStatement ps =
+                prepareStatement("insert into lc_compressed values (?, ?)");
+        ps.setInt(1, 1);
+        ps.setString(2, makeString(1));
+        ps.executeUpdate();
+
+        setAutoCommit(false);
+        ResultSet rs = s.executeQuery("select c from lc_compressed");
+        assertTrue(rs.next());
+        Clob clob = rs.getClob(1);
+        String expected = makeString(1);
+        assertEquals(expected.length(), clob.length());
+        assertEquals(expected.substring(50000, 50100),
+                clob.getSubString(50001, 100));
+
+        Reader r = clob.getCharacterStream();
+        char[] buf = new char[expected.length()];
+        int count = 0;
+        int n;
+        while ((n = r.read(buf, count, buf.length - count)) > 0) {
+            count += n;
+        }
+        assertEquals(expected, new String(buf, 0, count));
+        assertEquals(expected.substring(2, 7), clob.getSubString(3, 5));
+        rs.close();
+        commit();
+    }
+
+    /**
+     * Test that COMPRESSED is only accepted for character and binary
+     * columns of new base tables.
+     */
+    public void testNotAllowed() throws SQLException {
+        Statement s = createStatement();
+        assertStatementError("42XBP", s,
+                "create table lc_compressed(i int compressed)");
+
+        s.execute("create table lc_plain(i int)");
+        assertStatementError("42XBP", s,
+                "alter table lc_plain add column c clob compressed");
+        assertStatementError("42XBP", s,
+                "declare global temporary table lc_temp"
+                + "(v varchar(100) compressed) not logged");
+    }
+
+    // HELPER METHODS
+
+    /**
+     * Make a long value which compresses well, and is different in every
+     * row.
+     */
+    private static String makeString(int row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 15000; i++) {
+            sb.append("value ").append(i % 37).append(' ');
+        }
+        return sb.append(row).toString();
+    }
+
+    private void insertRows(String table) throws SQLException {
+        setAutoCommit(false);
+        PreparedStatement ps =
+                prepareStatement("insert into " + table + " values (?,?,?,?)");
+        for (int i = 0; i < ROWS; i++) {
+            String value = makeString(i);
+            ps.setInt(1, i);
+            ps.setString(2, value);
+            ps.setBytes(3, getBytes(value));
+            ps.setString(4, value.substring(0, 30000));
+            ps.executeUpdate();
+        }
+        commit();
+        setAutoCommit(true);
+    }
+
+    /**
+     * Check the values of all the rows of a table with all three columns.
+     *
+     * @param table the table
+     * @param suffix the suffix expected on the CLOB value of row 3
+     */
+    private void assertRows(String table, String suffix) throws Exception {
+        ResultSet rs = createStatement().executeQuery(
+                "select id, c, b, v from " + table + " order by id");
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(rs.next());
+            String value = makeString(i);
+            assertEquals(i, rs.getInt(1));
+            assertEquals(value + (i == 3 ? suffix : ""), rs.getString(2));
+            assertTrue(Arrays.equals(getBytes(value), rs.getBytes(3)));
+            assertEquals(value.substring(0, 30000), rs.getString(4));
+        }
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    private static byte[] getBytes(String value) {
+        try {
+            return value.getBytes("US-ASCII");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private long getPages(String table) throws Exception {
+        ResultSet rs = createStatement().executeQuery(
+                "select numallocatedpages from "
+                + "table(syscs_diag.space_table('" + table + "')) t "
+                + "where isindex = 0");
+        assertTrue(rs.next());
+        long pages = rs.getLong(1);
+        rs.close();
+        return pages;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.store.OnlineIndexReorganizeTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.J2EEDataSource;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+import org.apache.derbyTesting.junit.XATestUtil;
+
+/**
+ * Test cases for SYSCS_UTIL.SYSCS_REORGANIZE_INDEX, which merges under-filled
+ * B-tree leaf pages while the table stays available to other transactions.
+ */
+public class OnlineIndexReorganizeTest extends BaseJDBCTestCase {
+
+    public OnlineIndexReorganizeTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create a test suite with all the test cases in this class.
+     */
+    public static Test suite() {
+        // This is a test for engine functionality, so skip client/server.
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(
+                    OnlineIndexReorganizeTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.executeUpdate("create procedure WAIT_FOR_POST_COMMIT() "
+                        + "language java external name "
+                        + "'org.apache.derbyTesting.functionTests.util."
+                        + "T_Access.waitForPostCommitToFinish' "
+                        + "parameter style java");
+            }
+        };
+    }
+
+    protected void setUp() throws Exception {
+        Statement s = createStatement();
+        s.execute("create table reorg(id int, v varchar(60))");
+        s.execute("create index reorg_id on reorg(id)");
+        s.execute("create index reorg_v on reorg(v, id)");
+
+        setAutoCommit(false);
+        PreparedStatement ps =
+                prepareStatement("insert into reorg values (?, ?)");
+        for (int i = 0; i < 20000; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "value-" + (i % 50) + "-padding-padding-padding");
+            ps.executeUpdate();
+        }
+        commit();
+        setAutoCommit(true);
+
+        // Leave most leaf pages nearly empty.  Post commit processing may
+        // free the pages the delete leaves empty, let it finish so that it
+        // does not change the page counts the tests look at.
+        s.execute("delete from reorg where mod(id, 10) <> 0");
+        s.execute("call wait_for_post_commit()");
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    protected void tearDown() throws Exception {
+        dropTable("REORG");
+        super.tearDown();
+    }
+
+    // TESTS
+
+    /**
+     * Test that reorganizing frees index pages and leaves the indexes
+     * consistent with the table.
+     */
+    public void testReorganizeFreesPages() throws Exception {
+        Statement s = createStatement();
+        long idPages = getAllocatedPages("REORG_ID");
+        long vPages = getAllocatedPages("REORG_V");
+
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', 'REORG_ID')");
+        assertTrue(getAllocatedPages("REORG_ID") < idPages);
+        assertEquals(vPages, getAllocatedPages("REORG_V"));
+
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', null)");
+        assertTrue(getAllocatedPages("REORG_V") < vPages);
+
+        assertRemainingRows();
+
+        // The index must keep working for new rows.
+        s.execute("insert into reorg select id + 1, v from reorg");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from reorg where id between 5000 and 5200"),
+                "41");
+        assertConsistent();
+    }
+
+    /**
+     * Test that rows locked by another transaction do not block the
+     * reorganization, and are still there afterwards.
+     */
+    public void testReorganizeWithConcurrentWriter() throws Exception {
+        Connection other = openDefaultConnection();
+        other.setAutoCommit(false);
+        Statement os = other.createStatement();
+        os.executeUpdate("insert into reorg values (-1, 'uncommitted')");
+        os.executeUpdate("delete from reorg where id between 100 and 200");
+
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', null)");
+
+        other.commit();
+        other.close();
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from reorg"), "1990");
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select id from reorg where v = 'uncommitted'"), "-1");
+        assertConsistent();
+    }
+
+    /**
+     * Test that leaves changed by a transaction which has not committed yet
+     * are not merged away, so that the transaction can roll back.
+     */
+    public void testReorganizeWithRolledBackWriter() throws Exception {
+        Connection other = openDefaultConnection();
+        other.setAutoCommit(false);
+        Statement os = other.createStatement();
+        os.executeUpdate("insert into reorg values (-1, 'uncommitted')");
+        os.executeUpdate("delete from reorg where id between 100 and 200");
+
+        Statement s = createStatement();
+        long vPages = getAllocatedPages("REORG_V");
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', null)");
+        assertTrue(getAllocatedPages("REORG_V") < vPages);
+
+        other.rollback();
+        other.close();
+
+        assertRemainingRows();
+    }
+
+    /**
+     * Test that nothing is reorganized while a prepared transaction which
+     * recovery left in the transaction table remains, and that the index
+     * is reorganized once the transaction has been rolled back.
+     */
+    public void testReorganizeWithRecoveredPreparedXact() throws Exception {
+        XADataSource xads = J2EEDataSource.getXADataSource();
+        Xid xid = XATestUtil.getXid(28, 1, 2);
+
+        XAConnection xaconn = xads.getXAConnection();
+        XAResource xar = xaconn.getXAResource();
+        xar.start(xid, XAResource.TMNOFLAGS);
+        Statement xs = xaconn.getConnection().createStatement();
+        xs.executeUpdate("insert into reorg values (-1, 'prepared')");
+        xs.close();
+        xar.end(xid, XAResource.TMSUCCESS);
+        assertEquals(XAResource.XA_OK, xar.prepare(xid));
+        xaconn.close();
+
+        // Recovery at the next boot leaves the prepared transaction in the
+        // transaction table.
+        getTestConfiguration().shutdownDatabase();
+
+        Statement s = createStatement();
+        long vPages = getAllocatedPages("REORG_V");
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', null)");
+        assertEquals(vPages, getAllocatedPages("REORG_V"));
+
+        xaconn = xads.getXAConnection();
+        xaconn.getXAResource().rollback(xid);
+        xaconn.close();
+
+        s.execute("call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', null)");
+        assertTrue(getAllocatedPages("REORG_V") < vPages);
+
+        assertRemainingRows();
+    }
+
+    /**
+     * Test the errors raised for unknown tables and indexes.
+     */
+    public void testErrors() throws Exception {
+        Statement s = createStatement();
+        assertStatementError("42X05", s, "call syscs_util.syscs_reorganize_index"
+                + "('APP', 'NO_SUCH_TABLE', null)");
+        assertStatementError("42X65", s, "call syscs_util.syscs_reorganize_index"
+                + "('APP', 'REORG', 'NO_SUCH_INDEX')");
+    }
+
+    // HELPER METHODS
+
+    /**
+     * Check the rows left by {@code setUp()} through both indexes.
+     */
+    private void assertRemainingRows() throws Exception {
+        Statement s = createStatement();
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select count(*), sum(bigint(id)) from reorg"),
+                new String[][] {{"2000", "19990000"}});
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from reorg where id between 5000 and 5200"),
+                "21");
+
+        String[][] groups = new String[5][];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new String[] {
+                "value-" + (i * 10) + "-padding-padding-padding", "400" };
+        }
+        JDBC.assertFullResultSet(s.executeQuery(
+                "select v, count(*) from reorg "
+                + "--DERBY-PROPERTIES index=reorg_v\n"
+                + "group by v order by v"), groups);
+
+        assertConsistent();
+    }
+
+    /**
+     * Check that the indexes are consistent with the table.
+     */
+    private void assertConsistent() throws Exception {
+        JDBC.assertSingleValueResultSet(createStatement().executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'REORG')"), "1");
+    }
+
+    private long getAllocatedPages(String index) throws Exception {
+        ResultSet rs = createStatement().executeQuery(
+                "select numallocatedpages from "
+                + "table(syscs_diag.space_table('REORG')) t "
+                + "where conglomeratename = '" + index + "'");
+        assertTrue(rs.next());
+        long pages = rs.getLong(1);
+        rs.close();
+        return pages;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.store.OptimisticReadCommittedTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.DatabasePropertyTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.SystemPropertyTestSetup;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test cases for READ COMMITTED heap scans, which read the rows of pages
+ * that no uncommitted transaction has changed without locking them, and
+ * must still wait for the transactions that have changed the other pages.
+ */
+public class OptimisticReadCommittedTest extends BaseJDBCTestCase {
+
+    /** The number of rows in the table, four to a page. */
+    private static final int ROWS = 2000;
+
+    /** Sum of all the values in the table. */
+    private static final String SUM = "select sum(v) from orc";
+
+    public OptimisticReadCommittedTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create a test suite with all the test cases in this class.  The page
+     * cache is small, so that pages changed by a transaction which has not
+     * committed yet are written out and read in again.
+     */
+    public static Test suite() {
+        Properties props = new Properties();
+        props.setProperty("derby.storage.pageCacheSize", "40");
+
+        // This is a test for engine functionality, so skip client/server.
+        Test test = new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(
+                    OptimisticReadCommittedTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.execute("create table orc(id int primary key, v int, "
+                        + "filler varchar(900))");
+                PreparedStatement ps = s.getConnection().prepareStatement(
+                        "insert into orc values (?, 0, ?)");
+                char[] filler = new char[900];
+                java.util.Arrays.fill(filler, 'x');
+                for (int i = 0; i < ROWS; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, new String(filler));
+                    ps.executeUpdate();
+                }
+                ps.close();
+            }
+        };
+
+        return new SystemPropertyTestSetup(
+                DatabasePropertyTestSetup.setLockTimeouts(test, 1, 2),
+                props, true);
+    }
+
+    protected void setUp() throws SQLException {
+        getConnection().setTransactionIsolation(
+                Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    // TESTS
+
+    /**
+     * Test that rows changed by a transaction that has not committed yet
+     * are waited for, and that the rows are read without waiting once it
+     * has committed or rolled back.
+     */
+    public void testUncommittedChanges() throws SQLException {
+        Connection writer = openDefaultConnection();
+        writer.setAutoCommit(false);
+        Statement ws = writer.createStatement();
+
+        ws.executeUpdate("update orc set v = 1 where id = 5");
+        assertReadBlocked();
+        writer.rollback();
+        JDBC.assertSingleValueResultSet(
+                createStatement().executeQuery(SUM), "0");
+
+        ws.executeUpdate("delete from orc where id = 7");
+        assertReadBlocked();
+        writer.rollback();
+
+        ws.executeUpdate("insert into orc values (" + ROWS + ", 1, 'x')");
+        assertReadBlocked();
+        writer.rollback();
+
+        ws.executeUpdate("update orc set v = 1 where id = 5");
+        writer.commit();
+        JDBC.assertSingleValueResultSet(
+                createStatement().executeQuery(SUM), "1");
+        ws.executeUpdate("update orc set v = 0 where id = 5");
+        writer.commit();
+
+        ws.close();
+        writer.close();
+    }
+
+    /**
+     * Test that a page which was changed by a transaction that has not
+     * committed yet, and which has been pushed out of the page cache, is
+     * still known to have uncommitted changes when it is read in again.
+     */
+    public void testUncommittedChangesOnEvictedPage() throws SQLException {
+        Connection writer = openDefaultConnection();
+        writer.setAutoCommit(false);
+        Statement ws = writer.createStatement();
+        ws.executeUpdate("update orc set v = 1 where id = 5");
+
+        // A READ UNCOMMITTED scan of the whole table reads far more pages
+        // than the page cache holds.
+        Connection scanner = openDefaultConnection();
+        scanner.setTransactionIsolation(
+                Connection.TRANSACTION_READ_UNCOMMITTED);
+        for (int i = 0; i < 2; i++) {
+            JDBC.assertSingleValueResultSet(
+                    scanner.createStatement().executeQuery(SUM), "1");
+            assertReadBlocked();
+        }
+
+        writer.rollback();
+        JDBC.assertSingleValueResultSet(
+                createStatement().executeQuery(SUM), "0");
+
+        scanner.close();
+        ws.close();
+        writer.close();
+    }
+
+    /**
+     * Test that a row stored in pieces on several pages is waited for when
+     * a transaction that has not committed yet has only changed a column
+     * stored in a later piece, which does not change the page the scan
+     * locks the row on.
+     */
+    public void testUncommittedChangeOfOverflowPiece() throws SQLException {
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_set_database_property"
+                + "('derby.storage.pageSize', '4096')");
+        s.execute("create table ov(id int, a varchar(3000), "
+                + "b varchar(3000), c int)");
+        s.execute("call syscs_util.syscs_set_database_property"
+                + "('derby.storage.pageSize', null)");
+        char[] filler = new char[3000];
+        java.util.Arrays.fill(filler, 'x');
+        PreparedStatement ps =
+                prepareStatement("insert into ov values (1, ?, ?, 0)");
+        ps.setString(1, new String(filler));
+        ps.setString(2, new String(filler));
+        ps.executeUpdate();
+        ps.close();
+
+        Connection writer = openDefaultConnection();
+        writer.setAutoCommit(false);
+        Statement ws = writer.createStatement();
+        ws.executeUpdate("update ov set c = 42");
+
+        try {
+            JDBC.assertDrainResults(s.executeQuery("select c from ov"));
+            fail("read uncommitted change of an overflow piece");
+        } catch (SQLException sqle) {
+            assertSQLState("40XL1", sqle);
+        }
+
+        writer.rollback();
+        JDBC.assertSingleValueResultSet(
+                s.executeQuery("select c from ov"), "0");
+
+        ws.close();
+        writer.close();
+        s.execute("drop table ov");
+        s.close();
+    }
+
+    // HELPER METHODS
+
+    /**
+     * Check that a READ COMMITTED scan of the table times out waiting for
+     * a lock.
+     */
+    private void assertReadBlocked() throws SQLException {
+        Statement s = createStatement();
+        try {
+            JDBC.assertDrainResults(s.executeQuery(SUM));
+            fail("read uncommitted changes");
+        } catch (SQLException sqle) {
+            assertSQLState("40XL1", sqle);
+        }
+        s.close();
+    }
+}
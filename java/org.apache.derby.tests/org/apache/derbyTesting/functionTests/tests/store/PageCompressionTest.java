@@ -0,0 +1,274 @@
+/*
+ * Derby - Class org.apache.derbyTesting.functionTests.tests.store.PageCompressionTest
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.apache.derbyTesting.functionTests.tests.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Properties;
+import junit.framework.Test;
+import org.apache.derbyTesting.functionTests.util.PrivilegedFileOpsForTests;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.SystemPropertyTestSetup;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test cases for heaps created with the derby.storage.pageCompression
+ * property, whose pages are deflated when they are written to disk.
+ */
+public class PageCompressionTest extends BaseJDBCTestCase {
+
+    private static final String PAGE_COMPRESSION =
+            "derby.storage.pageCompression";
+
+    /** The default page size, used by all the tables of these tests. */
+    private static final int PAGE_SIZE = 4096;
+
+    /** The number of bytes of the format id at the start of a page. */
+    private static final int HEADER_SIZE = 4;
+
+    /** Queries which must give the same result on both tables. */
+    private static final String[] QUERIES = {
+        "select count(*), sum(bigint(id)) from %s",
+        "select region, status, count(*) from %s "
+            + "group by region, status order by region, status",
+        "select id, note from %s where id between 1000 and 1100 order by id",
+    };
+
+    public PageCompressionTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Create a test suite with all the test cases in this class.  The
+     * pages are small and kept in a small page cache, so that most reads
+     * of the compressed table have to go to disk.
+     */
+    public static Test suite() {
+        Properties props = new Properties();
+        props.setProperty("derby.storage.pageCacheSize", "40");
+
+        // This is a test for engine functionality, so skip client/server.
+        return new SystemPropertyTestSetup(
+                new CleanDatabaseTestSetup(
+                    TestConfiguration.embeddedSuite(
+                        PageCompressionTest.class)),
+                props, true);
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    protected void tearDown() throws Exception {
+        setDatabaseProperty(null);
+        dropTable("PG_COMPRESSED");
+        dropTable("PG_PLAIN");
+        super.tearDown();
+    }
+
+    // TESTS
+
+    /**
+     * Test that a heap with compressed pages gives the same results as an
+     * ordinary heap with the same rows, through inserts, updates, deletes
+     * and SYSCS_COMPRESS_TABLE.
+     */
+    public void testCompressedPages() throws Exception {
+        Statement s = createStatement();
+
+        setDatabaseProperty("true");
+        s.execute("create table pg_compressed(id int, region varchar(20), "
+                + "status varchar(20), note varchar(200))");
+        setDatabaseProperty(null);
+        s.execute("create table pg_plain(id int, region varchar(20), "
+                + "status varchar(20), note varchar(200))");
+
+        insertRows(0, 10000);
+        assertSameResults();
+
+        for (String table : new String[] {"pg_compressed", "pg_plain"}) {
+            s.executeUpdate("update " + table + " set note = note || "
+                    + "' was updated' where mod(id, 7) = 0");
+            s.executeUpdate("delete from " + table + " where mod(id, 11) = 0");
+        }
+        insertRows(10000, 2000);
+        assertSameResults();
+
+        // Compress creates a new heap, its pages must stay compressed.
+        s.execute("call syscs_util.syscs_compress_table"
+                + "('APP', 'PG_COMPRESSED', 0)");
+        assertSameResults();
+    }
+
+    /**
+     * Test that temporary tables are created without compressed pages, even
+     * when the property is set. The pages of the temporary table which the
+     * small page cache has written to disk must start like those of the
+     * plain table, and not like those of the compressed table.
+     */
+    public void testTemporaryTable() throws Exception {
+        Statement s = createStatement();
+        setDatabaseProperty("true");
+        s.execute("create table pg_compressed(id int, region varchar(20), "
+                + "status varchar(20), note varchar(200))");
+        s.execute("declare global temporary table session.pg_temp"
+                + "(id int, region varchar(20), status varchar(20), "
+                + "note varchar(200)) on commit preserve rows not logged");
+        setDatabaseProperty(null);
+        s.execute("create table pg_plain(id int, region varchar(20), "
+                + "status varchar(20), note varchar(200))");
+
+        insertRows(0, 10000);
+        s.execute("insert into session.pg_temp select * from pg_compressed");
+        JDBC.assertSingleValueResultSet(
+                s.executeQuery("select count(*) from session.pg_temp"),
+                "10000");
+        s.execute("call syscs_util.syscs_checkpoint_database()");
+
+        File dbDir = new File("system",
+                getTestConfiguration().getDefaultDatabaseName());
+        byte[] compressed = readPageHeader(getHeapFile(dbDir, "PG_COMPRESSED"));
+        byte[] plain = readPageHeader(getHeapFile(dbDir, "PG_PLAIN"));
+        assertFalse(Arrays.equals(compressed, plain));
+
+        int plainPages = 0;
+        for (File f : PrivilegedFileOpsForTests.listFiles(
+                new File(dbDir, "tmp"))) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    PrivilegedFileOpsForTests.getFileInputStream(f)));
+            try {
+                long pages = PrivilegedFileOpsForTests.length(f) / PAGE_SIZE;
+                byte[] page = new byte[PAGE_SIZE];
+                // Skip the first alloc page, which is never compressed.
+                in.readFully(page);
+                for (long i = 1; i < pages; i++) {
+                    in.readFully(page);
+                    byte[] header = Arrays.copyOf(page, HEADER_SIZE);
+                    assertFalse(f.getName() + " page " + i,
+                            Arrays.equals(compressed, header));
+                    if (Arrays.equals(plain, header)) {
+                        plainPages++;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+        assertTrue("no temporary pages on disk", plainPages > 0);
+
+        JDBC.assertSingleValueResultSet(
+                s.executeQuery("select count(*) from session.pg_temp"),
+                "10000");
+        s.execute("drop table session.pg_temp");
+    }
+
+    // HELPER METHODS
+
+    private void setDatabaseProperty(String value) throws Exception {
+        PreparedStatement ps = prepareStatement(
+                "call syscs_util.syscs_set_database_property(?, ?)");
+        ps.setString(1, PAGE_COMPRESSION);
+        ps.setString(2, value);
+        ps.execute();
+        ps.close();
+    }
+
+    /**
+     * Insert the same rows into both tables.  The rows repeat the same few
+     * strings, so that the pages compress well.
+     */
+    private void insertRows(int first, int count) throws Exception {
+        setAutoCommit(false);
+        PreparedStatement[] ps = {
+            prepareStatement("insert into pg_compressed values (?,?,?,?)"),
+            prepareStatement("insert into pg_plain values (?,?,?,?)"),
+        };
+        for (int i = first; i < first + count; i++) {
+            for (int j = 0; j < ps.length; j++) {
+                ps[j].setInt(1, i);
+                ps[j].setString(2, "region-" + (i % 10));
+                ps[j].setString(3, (i % 3 == 0) ? "ACTIVE" : "INACTIVE");
+                ps[j].setString(4, "the quick brown fox jumps over "
+                        + "the lazy dog " + (i % 100));
+                ps[j].executeUpdate();
+            }
+        }
+        commit();
+        setAutoCommit(true);
+    }
+
+    /**
+     * Get the file of the heap of a table in the APP schema.
+     */
+    private File getHeapFile(File dbDir, String table) throws Exception {
+        PreparedStatement ps = prepareStatement(
+                "select conglomeratenumber from sys.sysconglomerates c, "
+                + "sys.systables t where c.tableid = t.tableid "
+                + "and t.tablename = ? and c.isindex = false");
+        ps.setString(1, table);
+        ResultSet rs = ps.executeQuery();
+        assertTrue(rs.next());
+        long conglomerate = rs.getLong(1);
+        rs.close();
+        ps.close();
+        return new File(new File(dbDir, "seg0"),
+                "c" + Long.toHexString(conglomerate) + ".dat");
+    }
+
+    /**
+     * Read the format id at the start of the first data page of a heap.
+     */
+    private static byte[] readPageHeader(File f) throws Exception {
+        DataInputStream in = new DataInputStream(
+                PrivilegedFileOpsForTests.getFileInputStream(f));
+        try {
+            byte[] page = new byte[PAGE_SIZE];
+            in.readFully(page);
+            in.readFully(page, 0, HEADER_SIZE);
+            return Arrays.copyOf(page, HEADER_SIZE);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Check that the queries give the same results on both tables, and that
+     * the compressed table is consistent.
+     */
+    private void assertSameResults() throws Exception {
+        Statement s = createStatement();
+        Statement s2 = createStatement();
+        for (int i = 0; i < QUERIES.length; i++) {
+            JDBC.assertSameContents(
+                    s.executeQuery(String.format(QUERIES[i], "pg_plain")),
+                    s2.executeQuery(String.format(QUERIES[i], "pg_compressed")));
+        }
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'PG_COMPRESSED')"),
+                "1");
+    }
+}
@@ -92,12 +92,15 @@ public class SpaceTableTest extends BaseJDBCTestCase {
         // all test methods. CleanDatabaseSetup should take care of it.
         // stmt.executeUpdate("drop procedure WAIT_FOR_POST_COMMIT");
         dropTable("IDELETEU");
+        dropTable("FILLFACTOR");
         dropTable("PLATYPUS");
         dropTable("\"platypus2\"");
         dropFooTables(stmt);
         // force pagesize back to default
         stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
                 "'derby.storage.pageSize', NULL)");
+        stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
+                "'derby.storage.indexFillFactor', NULL)");
         commit();
         super.tearDown();
     }
@@ -352,6 +355,75 @@ public class SpaceTableTest extends BaseJDBCTestCase {
         commit();
     }
     
+    /**
+     * Check that derby.storage.indexFillFactor leaves free space on the
+     * leaves of an index when it is built, that appending to the index keeps
+     * the leaves filled up to the fill factor, and that the average leaf
+     * fill is reported by SPACE_TABLE.
+     */
+    public void testIndexFillFactor() throws SQLException
+    {
+        Statement stmt = createStatement();
+        stmt.executeUpdate("create table fillfactor (id int, v varchar(20))");
+
+        PreparedStatement ins =
+            prepareStatement("insert into fillfactor values (?, 'value')");
+        for (int i = 0; i < 4000; i++) {
+            ins.setInt(1, i);
+            ins.executeUpdate();
+        }
+
+        stmt.executeUpdate("create index ff_full on fillfactor(id)");
+        stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
+                "'derby.storage.indexFillFactor', '60')");
+        stmt.executeUpdate("create index ff_60 on fillfactor(id, v)");
+        stmt.execute("call SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(" +
+                "'derby.storage.indexFillFactor', NULL)");
+
+        assertLeafFill("FF_FULL", 90, 100);
+        assertLeafFill("FF_60", 50, 65);
+
+        // ever increasing keys are appended at the right edge of the index,
+        // the existing leaves are not split in half.
+        for (int i = 4000; i < 8000; i++) {
+            ins.setInt(1, i);
+            ins.executeUpdate();
+        }
+
+        assertLeafFill("FF_FULL", 90, 100);
+        assertLeafFill("FF_60", 50, 65);
+
+        // with more leaves than are sampled, the fill is estimated from a
+        // sample of them.
+        for (int i = 8000; i < 40000; i++) {
+            ins.setInt(1, i);
+            ins.executeUpdate();
+        }
+
+        assertLeafFill("FF_FULL", 85, 100);
+        assertLeafFill("FF_60", 45, 70);
+
+        // the table itself has no leaves.
+        JDBC.assertSingleValueResultSet(createStatement().executeQuery(
+                "select avgleaffill from table(syscs_diag.space_table(" +
+                "'FILLFACTOR')) t where conglomeratename = 'FILLFACTOR'"),
+                null);
+    }
+
+    private void assertLeafFill(String indexName, int low, int high)
+            throws SQLException
+    {
+        ResultSet rs = createStatement().executeQuery(
+                "select avgleaffill from table(syscs_diag.space_table(" +
+                "'FILLFACTOR')) t where conglomeratename = '" +
+                indexName + "'");
+        assertTrue(rs.next());
+        int fill = rs.getInt(1);
+        assertTrue(indexName + " leaves are " + fill + "% full",
+                (fill >= low) && (fill <= high));
+        rs.close();
+    }
+
     private ResultSet doSpaceTableSelect(String tableName) throws SQLException
     {
         ResultSet rs = null;
@@ -86,6 +86,11 @@ public class _Suite extends BaseTestCase  {
         suite.addTest(StoreScriptsTest.suite());
         suite.addTest(Derby4923Test.suite());
         suite.addTest(SpaceTableTest.suite());
+        suite.addTest(IndexPrefixCompressionTest.suite());
+        suite.addTest(LongColumnCompressionTest.suite());
+        suite.addTest(PageCompressionTest.suite());
+        suite.addTest(OnlineIndexReorganizeTest.suite());
+        suite.addTest(OptimisticReadCommittedTest.suite());
         
         /* Tests that only run in sane builds */
         if (SanityManager.DEBUG) {
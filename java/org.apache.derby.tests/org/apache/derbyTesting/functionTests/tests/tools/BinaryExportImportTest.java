@@ -0,0 +1,214 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.tools.BinaryExportImportTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.functionTests.tests.tools;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.SupportFilesSetup;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test SYSCS_UTIL.SYSCS_EXPORT_TABLE_BINARY, SYSCS_EXPORT_QUERY_BINARY and
+ * SYSCS_IMPORT_TABLE_BINARY, which move data in a typed binary format
+ * instead of delimited text.
+ */
+public class BinaryExportImportTest extends BaseJDBCTestCase {
+
+    /** Number of rows in the source table, enough for several blocks. */
+    private static final int ROWS = 10000;
+
+    /** Columns compared between the source and the imported table. */
+    private static final String COLUMNS = "i, s, b, r, d, dc, c, v, "
+            + "cast(lv as varchar(40)), bin, cast(cl as varchar(40)), "
+            + "length(bl), bo, dt, tm, ts";
+
+    public BinaryExportImportTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        Test test = TestConfiguration.embeddedSuite(
+                BinaryExportImportTest.class);
+        test = new SupportFilesSetup(test);
+        return new CleanDatabaseTestSetup(test) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                String columns = "(i int, s smallint, b bigint, r real, "
+                        + "d double, dc decimal(12, 3), c char(5), "
+                        + "v varchar(20), lv long varchar, "
+                        + "bin varchar(10) for bit data, cl clob, bl blob, "
+                        + "bo boolean, dt date, tm time, ts timestamp)";
+                s.execute("create table src" + columns);
+                s.execute("create table dest" + columns);
+                s.execute("create index dest_v on dest(v)");
+
+                PreparedStatement ps = s.getConnection().prepareStatement(
+                        "insert into src values (?, ?, ?, ?, ?, ?, ?, ?, ?, "
+                        + "?, ?, ?, ?, ?, ?, ?)");
+                PreparedStatement psNulls = s.getConnection().prepareStatement(
+                        "insert into src(i) values (?)");
+                for (int i = 0; i < ROWS; i++) {
+                    if (i % 11 == 0) {
+                        psNulls.setInt(1, i);
+                        psNulls.executeUpdate();
+                        continue;
+                    }
+                    ps.setInt(1, i);
+                    ps.setShort(2, (short) (i % 300 - 150));
+                    ps.setLong(3, (long) i * 1000000007L);
+                    ps.setFloat(4, i / 4.0f);
+                    ps.setDouble(5, -i / 8.0);
+                    ps.setString(6, (i - 5000) + "." + (i % 1000));
+                    ps.setString(7, i % 7 == 0 ? "" : "c" + (i % 5));
+                    ps.setString(8, "v\u00e6\u20ac" + i);
+                    ps.setString(9, "long " + i);
+                    ps.setBytes(10, new byte[] {(byte) i, (byte) (i >> 8)});
+                    ps.setString(11, i % 3 == 0 ? "" : "clob " + i);
+                    ps.setBytes(12, new byte[i % 5]);
+                    ps.setBoolean(13, i % 2 == 0);
+                    ps.setString(14, (1900 + i % 200) + "-02-28");
+                    ps.setString(15, (10 + i % 14) + ":30:15");
+                    ps.setString(16, (1900 + i % 200)
+                            + "-03-31 12:30:00.123456789");
+                    ps.executeUpdate();
+                }
+                ps.close();
+                psNulls.close();
+            }
+        };
+    }
+
+    protected void tearDown() throws Exception {
+        createStatement().execute("delete from dest");
+        super.tearDown();
+    }
+
+    /**
+     * Test that a table exported with and without compression is imported
+     * with the same values, both into an empty table and when appending.
+     */
+    public void testTable() throws SQLException {
+        String plain = fileName("table.bin");
+        String compressed = fileName("table_compressed.bin");
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_export_table_binary('APP', 'SRC', '"
+                + plain + "', 0)");
+        s.execute("call syscs_util.syscs_export_table_binary('APP', 'SRC', '"
+                + compressed + "', 1)");
+
+        importBinary(plain, 0);
+        assertSameRows(1);
+        importBinary(compressed, 0);
+        assertSameRows(2);
+        importBinary(compressed, 1);
+        assertSameRows(1);
+
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'DEST')"), "1");
+    }
+
+    /**
+     * Test the export of a query, whose columns are converted to the types
+     * of the table by the import.
+     */
+    public void testQuery() throws SQLException {
+        String file = fileName("query.bin");
+        Statement s = createStatement();
+        s.execute("create table narrow(id bigint, v varchar(40))");
+        s.execute("call syscs_util.syscs_export_query_binary("
+                + "'select i, v from src where i < 100', '" + file + "', 1)");
+
+        s.execute("call syscs_util.syscs_import_table_binary("
+                + "'APP', 'NARROW', '" + file + "', 0)");
+        JDBC.assertEmpty(s.executeQuery(
+                "select i, v from src where i < 100 except "
+                + "select cast(id as int), v from narrow"));
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from narrow"), "100");
+
+        // The values must still fit into the columns of the table.
+        s.execute("create table short_values(id int, v varchar(2))");
+        assertStatementError("22001", s,
+                "call syscs_util.syscs_import_table_binary("
+                + "'APP', 'SHORT_VALUES', '" + file + "', 0)");
+        JDBC.assertEmpty(s.executeQuery("select * from short_values"));
+
+        s.execute("drop table narrow");
+        s.execute("drop table short_values");
+    }
+
+    /**
+     * Test the errors raised for files which exist already, and for files
+     * which were not written by the binary export.
+     */
+    public void testErrors() throws SQLException {
+        String file = fileName("errors.bin");
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_export_query_binary("
+                + "'select i from src', '" + file + "', 0)");
+        assertStatementError("XIE0S", s,
+                "call syscs_util.syscs_export_query_binary("
+                + "'select i from src', '" + file + "', 0)");
+
+        String text = fileName("errors.del");
+        s.execute("call syscs_util.syscs_export_query('select i from src', '"
+                + text + "', null, null, null)");
+        assertStatementError("XIE0U", s,
+                "call syscs_util.syscs_import_table_binary("
+                + "'APP', 'DEST', '" + text + "', 0)");
+        assertStatementError("XIE04", s,
+                "call syscs_util.syscs_import_table_binary("
+                + "'APP', 'DEST', '" + fileName("missing.bin") + "', 0)");
+    }
+
+    private void importBinary(String file, int replace) throws SQLException {
+        createStatement().execute(
+                "call syscs_util.syscs_import_table_binary('APP', 'DEST', '"
+                + file + "', " + replace + ")");
+    }
+
+    /**
+     * Check that the imported table has every row of the source table the
+     * given number of times.
+     */
+    private void assertSameRows(int copies) throws SQLException {
+        Statement s = createStatement();
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from dest"), Integer.toString(copies * ROWS));
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from dest where i is null"), "0");
+        JDBC.assertEmpty(s.executeQuery(
+                "select " + COLUMNS + " from src except "
+                + "select " + COLUMNS + " from dest"));
+        JDBC.assertEmpty(s.executeQuery(
+                "select " + COLUMNS + " from dest except "
+                + "select " + COLUMNS + " from src"));
+    }
+
+    private static String fileName(String name) {
+        return SupportFilesSetup.getReadWrite(name).getPath();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.tools.BulkInsertQueryTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.functionTests.tests.tools;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test SYSCS_UTIL.SYSCS_BULK_INSERT_QUERY, which loads the rows of a query
+ * into an empty table without logging them.
+ */
+public class BulkInsertQueryTest extends BaseJDBCTestCase {
+
+    private static final int ROWS = 3000;
+
+    public BulkInsertQueryTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return new CleanDatabaseTestSetup(
+                TestConfiguration.embeddedSuite(BulkInsertQueryTest.class)) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.execute("create table src(id int, note varchar(20))");
+                s.execute("create table dest(id int primary key, "
+                        + "note varchar(20))");
+                s.execute("create index dest_note on dest(note)");
+
+                PreparedStatement ps = s.getConnection().prepareStatement(
+                        "insert into src values (?, ?)");
+                for (int i = 0; i < ROWS; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, i % 3 == 0 ? null : "note " + (i % 100));
+                    ps.executeUpdate();
+                }
+                ps.close();
+            }
+        };
+    }
+
+    protected void tearDown() throws Exception {
+        createStatement().execute("delete from dest");
+        super.tearDown();
+    }
+
+    /**
+     * Test that the rows are loaded into a new heap when the table is empty,
+     * and inserted one at a time when it is not.
+     */
+    public void testEmptyTable() throws SQLException {
+        long heap = getHeapConglomerate();
+        bulkInsert("select * from src where id < 1000", 0);
+        assertFalse(heap == getHeapConglomerate());
+        assertRows(1000);
+
+        heap = getHeapConglomerate();
+        bulkInsert("select * from src where id >= 1000", 0);
+        assertEquals(heap, getHeapConglomerate());
+        assertRows(ROWS);
+
+        // The unique index was rebuilt, so duplicates are still rejected.
+        assertStatementError("23505", createStatement(),
+                "insert into dest values (5, 'again')");
+    }
+
+    /**
+     * Test that replace empties the table first, also when the query
+     * returns no rows.
+     */
+    public void testReplace() throws SQLException {
+        bulkInsert("select * from src", 0);
+        bulkInsert("select * from src where id < 10", 1);
+        assertRows(10);
+        bulkInsert("select * from src where id < 0", 1);
+        assertRows(0);
+
+        // The table cannot be replaced with rows read from itself.
+        assertStatementError("42Y38", createStatement(),
+                "call syscs_util.syscs_bulk_insert_query('APP', 'DEST', "
+                + "'select * from dest', 1)");
+    }
+
+    /**
+     * Test that a failed load leaves the table as it was.
+     */
+    public void testErrors() throws SQLException {
+        bulkInsert("select * from src where id < 10", 0);
+        assertStatementError("23505", createStatement(),
+                "call syscs_util.syscs_bulk_insert_query('APP', 'DEST', "
+                + "'select * from src union all select * from src', 1)");
+        assertStatementError("42X05", createStatement(),
+                "call syscs_util.syscs_bulk_insert_query('APP', 'DEST', "
+                + "'select * from missing', 1)");
+        assertRows(10);
+    }
+
+    private void bulkInsert(String query, int replace) throws SQLException {
+        PreparedStatement ps = prepareStatement(
+                "call syscs_util.syscs_bulk_insert_query('APP', 'DEST', ?, ?)");
+        ps.setString(1, query);
+        ps.setInt(2, replace);
+        ps.execute();
+        ps.close();
+    }
+
+    private long getHeapConglomerate() throws SQLException {
+        ResultSet rs = createStatement().executeQuery(
+                "select conglomeratenumber from sys.sysconglomerates c, "
+                + "sys.systables t where c.tableid = t.tableid and "
+                + "t.tablename = 'DEST' and c.isindex = false");
+        assertTrue(rs.next());
+        long heap = rs.getLong(1);
+        rs.close();
+        return heap;
+    }
+
+    /**
+     * Check that the table has the first rows of the source table, and
+     * that its indexes match its heap.
+     */
+    private void assertRows(int rows) throws SQLException {
+        Statement s = createStatement();
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from dest"), Integer.toString(rows));
+        JDBC.assertEmpty(s.executeQuery(
+                "select * from dest except select * from src where id < "
+                + rows));
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'DEST')"), "1");
+    }
+}
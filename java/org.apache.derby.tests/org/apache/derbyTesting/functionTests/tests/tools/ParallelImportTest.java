@@ -0,0 +1,219 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.functionTests.tests.tools.ParallelImportTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.functionTests.tests.tools;
+
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.PrivilegedExceptionAction;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import junit.framework.Test;
+import org.apache.derbyTesting.junit.BaseJDBCTestCase;
+import org.apache.derbyTesting.junit.CleanDatabaseTestSetup;
+import org.apache.derbyTesting.junit.JDBC;
+import org.apache.derbyTesting.junit.SupportFilesSetup;
+import org.apache.derbyTesting.junit.TestConfiguration;
+
+/**
+ * Test SYSCS_UTIL.SYSCS_IMPORT_TABLE_PARALLEL, which parses the import
+ * file in several threads.
+ */
+public class ParallelImportTest extends BaseJDBCTestCase {
+
+    /** Number of rows in the source table, enough for several chunks. */
+    private static final int ROWS = 5000;
+
+    /** File written by the export. */
+    private final String fileName;
+
+    /** File with bad data. */
+    private final String badFileName;
+
+    public ParallelImportTest(String name) {
+        super(name);
+        fileName = SupportFilesSetup.getReadWrite("parallel.del").getPath();
+        badFileName =
+            SupportFilesSetup.getReadWrite("parallel_bad.del").getPath();
+    }
+
+    public static Test suite() {
+        Test test = TestConfiguration.embeddedSuite(ParallelImportTest.class);
+        test = new SupportFilesSetup(test);
+        return new CleanDatabaseTestSetup(test) {
+            protected void decorateSQL(Statement s) throws SQLException {
+                s.execute("create table src(id int, amount decimal(10, 2), "
+                        + "note varchar(40))");
+                s.execute("create table dest(id int, amount decimal(10, 2), "
+                        + "note varchar(40))");
+                s.execute("create index dest_amount on dest(amount)");
+
+                // Values with delimiters, separators and record separators
+                // must not be cut where a record ends.
+                String[] notes = {
+                    "plain", "with \"quote\"", "with, comma",
+                    "two\nlines", "  spaced  ", "", null,
+                };
+                PreparedStatement ps = s.getConnection().prepareStatement(
+                        "insert into src values (?, ?, ?)");
+                for (int i = 0; i < ROWS; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, (i % 1000) + ".25");
+                    ps.setString(3, notes[i % notes.length]);
+                    ps.executeUpdate();
+                }
+                ps.close();
+            }
+        };
+    }
+
+    protected void tearDown() throws Exception {
+        createStatement().execute("delete from dest");
+        super.tearDown();
+    }
+
+    /**
+     * Test that the parallel import loads the same rows as the export
+     * wrote, both into an empty table and when appending.
+     */
+    public void testImport() throws SQLException {
+        Statement s = createStatement();
+        s.execute("call syscs_util.syscs_export_table('APP', 'SRC', '"
+                + fileName + "', null, null, null)");
+
+        importParallel(0, 4);
+        assertSameRows();
+
+        importParallel(0, 2);
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from dest"), Integer.toString(2 * ROWS));
+
+        importParallel(1, 3);
+        assertSameRows();
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "values syscs_util.syscs_check_table('APP', 'DEST')"), "1");
+
+        // One thread gives the same result as SYSCS_IMPORT_TABLE.
+        importParallel(1, 1);
+        assertSameRows();
+    }
+
+    /**
+     * Test the errors raised for bad files and arguments.
+     */
+    public void testErrors() throws Exception {
+        assertStatementError("22008", createStatement(),
+                "call syscs_util.syscs_import_table_parallel('APP', 'DEST', '"
+                + badFileName + "', null, null, null, 0, 0)");
+
+        // A conversion error makes the whole import fail.
+        StringBuffer data = new StringBuffer();
+        for (int i = 0; i < 3000; i++) {
+            data.append(i).append(",1.5,\"ok\"\n");
+        }
+        data.append("3000,bad,\"ok\"\n");
+        writeFile(data.toString());
+        assertImportError("22018");
+
+        // So does a parse error in one of the later chunks.
+        data.setLength(data.length() - "3000,bad,\"ok\"\n".length());
+        data.append("3000,1.5,\"unterminated\n");
+        writeFile(data.toString());
+        assertImportError("XIE0E");
+
+        // An error in the first chunk ends the import while the reader
+        // waits to queue the chunks after it.
+        data.setLength(0);
+        data.append("0,bad,\"ok\"\n");
+        for (int i = 1; i < 20000; i++) {
+            data.append(i).append(",1.5,\"ok\"\n");
+        }
+        writeFile(data.toString());
+        assertImportError("22018");
+
+        JDBC.assertSingleValueResultSet(createStatement().executeQuery(
+                "select count(*) from dest"), "0");
+
+        // The threads have ended with the imports.
+        assertNoImportThreads();
+    }
+
+    private void importParallel(int replace, int parallelism)
+            throws SQLException {
+        importParallel(fileName, replace, parallelism);
+    }
+
+    private void importParallel(String file, int replace, int parallelism)
+            throws SQLException {
+        createStatement().execute(
+                "call syscs_util.syscs_import_table_parallel('APP', 'DEST', '"
+                + file + "', null, null, null, " + replace + ", "
+                + parallelism + ")");
+    }
+
+    private void assertImportError(String cause) throws SQLException {
+        try {
+            importParallel(badFileName, 0, 3);
+            fail("import should have failed");
+        } catch (SQLException se) {
+            assertSQLState("XIE0R", se);
+            assertSQLState(cause, se.getNextException());
+        }
+    }
+
+    private void assertSameRows() throws SQLException {
+        Statement s = createStatement();
+        JDBC.assertSingleValueResultSet(s.executeQuery(
+                "select count(*) from dest"), Integer.toString(ROWS));
+        JDBC.assertEmpty(s.executeQuery(
+                "select id, amount, note from src except "
+                + "select id, amount, note from dest"));
+    }
+
+    private void assertNoImportThreads() {
+        Set<Thread> threads = AccessController.doPrivileged(
+                new PrivilegedAction<Set<Thread>>() {
+            public Set<Thread> run() {
+                return Thread.getAllStackTraces().keySet();
+            }
+        });
+        for (Thread t : threads) {
+            assertFalse(t.getName(), t.getName().equals("derby.import"));
+        }
+    }
+
+    private void writeFile(final String data) throws Exception {
+        AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+            public Void run() throws Exception {
+                Writer out = new OutputStreamWriter(
+                        new FileOutputStream(badFileName), "UTF-8");
+                out.write(data);
+                out.close();
+                return null;
+            }
+        });
+    }
+}
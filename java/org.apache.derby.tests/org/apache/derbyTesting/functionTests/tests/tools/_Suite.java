@@ -58,6 +58,9 @@ public class _Suite extends BaseTestCase {
         suite.addTest(IjSecurityManagerTest.suite());
         suite.addTest(IjConnNameTest.suite());
         suite.addTest(RollBackWrappingWhenFailOnImportTest.suite());
+        suite.addTest(ParallelImportTest.suite());
+        suite.addTest(BinaryExportImportTest.suite());
+        suite.addTest(BulkInsertQueryTest.suite());
         suite.addTest(ConnectWrongSubprotocolTest.suite());
 
         // running a jar file implies not using a module path
@@ -0,0 +1,92 @@
+/*
+
+Derby - Class org.apache.derbyTesting.perf.clients.PrepareClient
+
+Licensed to the Apache Software Foundation (ASF) under one or more
+contributor license agreements.  See the NOTICE file distributed with
+this work for additional information regarding copyright ownership.
+The ASF licenses this file to You under the Apache License, Version 2.0
+(the "License"); you may not use this file except in compliance with
+the License.  You may obtain a copy of the License at
+
+   http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+*/
+
+package org.apache.derbyTesting.perf.clients;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client which prepares statements that are not in the statement cache
+ * against the tables generated by {@code SingleRecordFiller}. Each time the
+ * client's {@code doWork()} method is called, it compiles a new statement
+ * on a random table, executes it once and closes it. Compiling a statement
+ * registers in-memory dependencies on the table in the dependency manager,
+ * and pushing a statement out of the statement cache clears them again, so
+ * running this client in many threads, for example
+ * {@code -load sr_prepare -threads 64}, measures the contention in the
+ * dependency manager.
+ */
+public class PrepareClient implements Client {
+
+    /** Gives each client its own statement texts. */
+    private static final AtomicInteger clients = new AtomicInteger();
+
+    private Connection conn;
+
+    private final String[] tableNames;
+    private final Random r;
+    private final int clientNumber;
+    private int statementNumber;
+
+    /**
+     * Construct a new prepare client.
+     *
+     * @param tables the number of single-record tables in the test
+     */
+    public PrepareClient(int tables) {
+        tableNames = new String[tables];
+        for (int i = 0; i < tables; i++) {
+            tableNames[i] = SingleRecordFiller.getTableName(
+                    1, i, Types.VARCHAR, false, false);
+        }
+        r = new Random();
+        clientNumber = clients.incrementAndGet();
+    }
+
+    public void init(Connection c) throws SQLException {
+        c.setAutoCommit(false);
+        conn = c;
+    }
+
+    public void doWork() throws SQLException {
+        // the select list makes the text of the statement unique
+        String sql = "SELECT ID, TEXT, " + clientNumber + ", " +
+                statementNumber++ + " FROM " +
+                tableNames[r.nextInt(tableNames.length)] + " WHERE ID = ?";
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.setInt(1, 0);
+        ResultSet rs = ps.executeQuery();
+        rs.next();
+        rs.getInt(1);
+        rs.close();
+        ps.close();
+        conn.commit();
+    }
+
+    public void printReport(PrintStream out) {}
+}
@@ -235,6 +235,9 @@ public class Runner {
 "                    (32 tables with a single row each)\n" +
 "      * sr_update_multi - single-record update on a random table\n" +
 "                    (32 tables with a single row each)\n" +
+"      * sr_prepare - compile a new single-record select on a random\n" +
+"                    table (32 tables with a single row each), to measure\n" +
+"                    contention when many threads prepare statements\n" +
 "      * index_join - join of two tables (using indexed columns)\n" +
 "      * group_by - GROUP BY queries against TENKTUP1\n" +
 "      * bank_tx - emulate simple bank transactions, similar to TPC-B. The\n" +
@@ -309,7 +312,8 @@ public class Runner {
                        load.equals("sr_update_big")) {
             return new SingleRecordFiller(100000000, 1);
         } else if (load.equals("sr_select_multi") ||
-                       load.equals("sr_update_multi")) {
+                       load.equals("sr_update_multi") ||
+                       load.equals("sr_prepare")) {
             return new SingleRecordFiller(1, 32);
         } else if (load.equals("index_join")) {
             return new WisconsinFiller();
@@ -349,6 +353,8 @@ public class Runner {
             return new SingleRecordSelectClient(1, 32);
         } else if (load.equals("sr_update_multi")) {
             return new SingleRecordUpdateClient(1, 32);
+        } else if (load.equals("sr_prepare")) {
+            return new PrepareClient(32);
         } else if (load.equals("index_join")) {
             return new IndexJoinClient();
         } else if (load.equals("group_by")) {
@@ -0,0 +1,73 @@
+/*
+
+   Derby - Class org.apache.derbyTesting.unitTests.junit.StoredFormatIdsTest
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to you under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+      http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.apache.derbyTesting.unitTests.junit;
+
+import java.lang.reflect.Field;
+
+import org.apache.derby.iapi.services.io.RegisteredFormatIds;
+import org.apache.derby.iapi.services.io.StoredFormatIds;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that MAX_ID_2 in StoredFormatIds is kept up to date when format ids
+ * are added, as the comments in that interface ask.
+ */
+public class StoredFormatIdsTest extends TestCase {
+
+    /**
+     * Public constructor required for running test as stand alone JUnit.
+     *
+     * @param name
+     *            name to present this test case.
+     */
+    public StoredFormatIdsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * No format id is larger than MAX_ID_2.
+     */
+    public void testMaxId() throws IllegalAccessException {
+        for (Field f : StoredFormatIds.class.getFields()) {
+            String name = f.getName();
+            if (f.getType() != Integer.TYPE ||
+                    name.startsWith("MIN_") || name.startsWith("MAX_") ||
+                    name.endsWith("_LENGTH")) {
+                continue;
+            }
+
+            int id = f.getInt(null);
+            assertTrue(name + " = " + id + " is larger than MAX_ID_2",
+                    id <= StoredFormatIds.MAX_ID_2);
+        }
+    }
+
+    /**
+     * The registry of the classes of the two byte format ids has an entry
+     * for each id up to MAX_ID_2.
+     */
+    public void testRegisteredIds() {
+        assertEquals(StoredFormatIds.MAX_ID_2 + 1,
+                RegisteredFormatIds.countTwoByteIDs());
+    }
+}
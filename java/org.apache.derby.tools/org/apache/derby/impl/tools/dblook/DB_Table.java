@@ -132,6 +132,10 @@ public class DB_Table {
 	 * @param colNum the number of the column to generate (1 =>
 	 *  1st column, 2 => 2nd column, etc)
 	 * @return The generated DDL, as a string.
+	 *
+	 * Note: the COMPRESSED attribute of a column is kept only with the
+	 * heap of its table, not in SYS.SYSCOLUMNS, so it can not be read
+	 * back here and the generated column is never COMPRESSED.
 	 ****/
 
 	private static String createColumn(String colName, String tableId,
@@ -38,6 +38,7 @@ import org.apache.derby.iapi.store.access.FileResource;
 import org.apache.derby.iapi.store.access.GroupFetchScanController;
 import org.apache.derby.iapi.store.access.Qualifier;
 import org.apache.derby.iapi.store.access.RowLocationRetRowSource;
+import org.apache.derby.iapi.store.access.SampleObserver;
 import org.apache.derby.iapi.store.access.ScanController;
 import org.apache.derby.iapi.store.access.SortController;
 import org.apache.derby.iapi.store.access.SortCostController;
@@ -211,6 +212,19 @@ class NoOpTransaction implements TransactionController {
 
     }
 
+    public void reorganizeConglomerate(long conglomId)
+            throws StandardException {
+        // Auto-generated method stub
+
+    }
+
+    public long sampleConglomerate(long conglomId, int samplePages,
+            long[] cardinality, SampleObserver observer)
+            throws StandardException {
+        // Auto-generated method stub
+        return -1;
+    }
+
     public boolean fetchMaxOnBtree(long conglomId, int open_mode,
             int lock_level, int isolation_level,
             FormatableBitSet scanColumnList, DataValueDescriptor[] fetchRow)